@@ -0,0 +1,929 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.graph.curve;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.jogamp.graph.geom.Outline;
+import com.jogamp.graph.geom.Vertex;
+import com.jogamp.opengl.math.geom.AABBox;
+
+/**
+ * Generates multi-channel signed distance fields (MSDF) of {@link OutlineShape}s on the CPU,
+ * directly from their line and quadratic curve segments.
+ * <p>
+ * The edges of each outline are colored at their corners, so that every corner is formed by two edges
+ * sharing only one of the red, green and blue channels. Each channel holds the signed pseudo-distance
+ * to the closest edge of its color, hence the median of the three channels preserves sharp corners
+ * when reconstructed from a low resolution field. The alpha channel holds the true signed distance.
+ * </p>
+ * <p>
+ * Distances are signed positive inside the shape w.r.t. the nonzero winding rule and stored
+ * as <code>0.5 + distance / {@link #getRange() range}</code> in pixels, i.e. <code>128</code> marks the outline.
+ * Pixels whose channels would reconstruct the wrong side of the outline or clash with their neighbors
+ * are corrected to the true distance.
+ * </p>
+ * <p>
+ * Batches of shapes are generated concurrently, one shape per task, see {@link #generate(List, float)}.
+ * </p>
+ * <p>
+ * Note: Shapes shall not be modified by other threads while being generated.
+ * </p>
+ */
+public class MSDFGenerator {
+    /** Default distance range in pixels, {@value}. */
+    public static final float DEFAULT_RANGE = 4f;
+
+    /** Channel bits of an edge color */
+    private static final int RED = 1, GREEN = 2, BLUE = 4;
+    private static final int YELLOW = RED | GREEN, MAGENTA = RED | BLUE, CYAN = GREEN | BLUE, WHITE = RED | GREEN | BLUE;
+
+    /** Sine of the minimum angle between two edges detected as corner, ~3 radians. */
+    private static final double CORNER_CROSS_THRESHOLD = Math.sin(3.0);
+    /** Clash threshold w.r.t. the distance range, see {@link #correctClashes(byte[], int, int)} */
+    private static final double EDGE_THRESHOLD = 1.001;
+
+    /**
+     * Distance field of one shape, four bytes per pixel in RGBA order, rows from bottom to top.
+     * <p>
+     * Shape coordinates map to pixel coordinates via <code>pixel = ( shape + translate ) * scale</code>.
+     * </p>
+     */
+    public static final class Field {
+        private final int width;
+        private final int height;
+        private final byte[] data;
+        private final float scale;
+        private final float translateX;
+        private final float translateY;
+        private final float range;
+
+        Field(final int width, final int height, final byte[] data, final float scale, final float translateX, final float translateY, final float range) {
+            this.width = width;
+            this.height = height;
+            this.data = data;
+            this.scale = scale;
+            this.translateX = translateX;
+            this.translateY = translateY;
+            this.range = range;
+        }
+        /** Returns the width in pixels, zero for an empty shape. */
+        public final int getWidth() { return width; }
+        /** Returns the height in pixels, zero for an empty shape. */
+        public final int getHeight() { return height; }
+        /** Returns the RGBA pixels, rows from bottom to top. */
+        public final byte[] getData() { return data; }
+        /** Returns the number of pixels per shape unit. */
+        public final float getScale() { return scale; }
+        /** Returns the translation in shape units applied before {@link #getScale() scaling}. */
+        public final float getTranslateX() { return translateX; }
+        /** Returns the translation in shape units applied before {@link #getScale() scaling}. */
+        public final float getTranslateY() { return translateY; }
+        /** Returns the distance range in pixels covered by the values <code>[0..255]</code>. */
+        public final float getRange() { return range; }
+        /** Returns true if the shape had no edges. */
+        public final boolean isEmpty() { return 0 == width || 0 == height; }
+
+        /** Returns the median of the RGB channels of the given pixel, normalized to <code>[0..1]</code>. */
+        public final float getMedian(final int x, final int y) {
+            final int o = 4 * ( y * width + x );
+            return median(data[o] & 0xff, data[o+1] & 0xff, data[o+2] & 0xff) / 255f;
+        }
+
+        /** Returns the alpha channel, i.e. the true distance of the given pixel, normalized to <code>[0..1]</code>. */
+        public final float getDistance(final int x, final int y) {
+            return ( data[4 * ( y * width + x ) + 3] & 0xff ) / 255f;
+        }
+
+        @Override
+        public String toString() {
+            return "MSDF.Field["+width+"x"+height+", scale "+scale+", translate "+translateX+"/"+translateY+", range "+range+"]";
+        }
+    }
+
+    /**
+     * Edges of a shape, lines are stored as degenerated quadratic curves w/ the control point at their end.
+     */
+    private static final class Edges {
+        /** p0, p1 and p2 per edge */
+        double[] p = new double[6*32];
+        boolean[] quad = new boolean[32];
+        int[] color = new int[32];
+        int count = 0;
+
+        void add(final double x0, final double y0, final double x1, final double y1, final double x2, final double y2, final boolean isQuad) {
+            if( count == quad.length ) {
+                final double[] np = new double[p.length*2];
+                System.arraycopy(p, 0, np, 0, p.length);
+                p = np;
+                final boolean[] nq = new boolean[quad.length*2];
+                System.arraycopy(quad, 0, nq, 0, quad.length);
+                quad = nq;
+                final int[] nc = new int[color.length*2];
+                System.arraycopy(color, 0, nc, 0, color.length);
+                color = nc;
+            }
+            final int o = 6*count;
+            p[o+0] = x0; p[o+1] = y0;
+            p[o+2] = x1; p[o+3] = y1;
+            p[o+4] = x2; p[o+5] = y2;
+            quad[count] = isQuad;
+            color[count] = WHITE;
+            count++;
+        }
+    }
+
+    private final float range;
+    private ExecutorService executor;
+
+    /**
+     * Creates an instance w/ {@link #DEFAULT_RANGE} using the {@link ShapeTessellator#getSharedExecutor() shared executor}.
+     */
+    public MSDFGenerator() {
+        this(ShapeTessellator.getSharedExecutor(), DEFAULT_RANGE);
+    }
+
+    /**
+     * @param executor executor to generate the shapes of a batch, <code>null</code> generates them on the calling thread
+     * @param range distance range in pixels, i.e. the width of the outline's falloff
+     */
+    public MSDFGenerator(final ExecutorService executor, final float range) {
+        this.executor = executor;
+        this.range = range;
+    }
+
+    /** Returns the distance range in pixels. */
+    public final float getRange() { return range; }
+
+    /**
+     * Sets the executor to generate the shapes of a batch,
+     * <code>null</code> generates them on the calling thread.
+     */
+    public final void setExecutor(final ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    public final ExecutorService getExecutor() { return executor; }
+
+    /**
+     * Generates the distance fields of all given shapes concurrently.
+     * @param shapes the shapes, same instances are generated once
+     * @param scale pixels per shape unit
+     * @return the fields in order of the given shapes
+     * @throws InterruptedException if interrupted while waiting for the executor tasks
+     */
+    public final Field[] generate(final List<OutlineShape> shapes, final float scale) throws InterruptedException {
+        final int count = shapes.size();
+        final Field[] fields = new Field[count];
+        final ExecutorService exec = executor;
+        if( null == exec || count < 2 ) {
+            for(int i=0; i<count; i++) {
+                fields[i] = generate(shapes.get(i), scale);
+            }
+            return fields;
+        }
+        final ArrayList<Future<Field>> results = new ArrayList<Future<Field>>(count);
+        try {
+            for(int i=1; i<count; i++) {
+                final OutlineShape shape = shapes.get(i);
+                results.add( exec.submit( new Callable<Field>() {
+                    @Override
+                    public Field call() {
+                        return generate(shape, scale);
+                    } } ) );
+            }
+            // first shape on the calling thread
+            fields[0] = generate(shapes.get(0), scale);
+            for(int i=1; i<count; i++) {
+                fields[i] = results.get(i-1).get();
+            }
+        } catch (final ExecutionException ee) {
+            final Throwable t = ee.getCause();
+            if( t instanceof RuntimeException ) {
+                throw (RuntimeException) t;
+            }
+            throw new RuntimeException(t);
+        } finally {
+            for(int i=0; i<results.size(); i++) {
+                results.get(i).cancel(false);
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Generates the distance field of the given shape,
+     * sized to cover its bounds plus half the {@link #getRange() range} on each side.
+     * @param shape the shape
+     * @param scale pixels per shape unit
+     */
+    public final Field generate(final OutlineShape shape, final float scale) {
+        final Edges edges = new Edges();
+        final int[] contourStart = addEdges(shape, edges);
+        if( 0 == edges.count ) {
+            return new Field(0, 0, new byte[0], scale, 0f, 0f, range);
+        }
+        colorEdges(edges, contourStart);
+
+        final AABBox box = shape.getBounds();
+        final int pad = (int)Math.ceil(range / 2f) + 1;
+        final int width = (int)Math.ceil(box.getWidth() * scale) + 2 * pad;
+        final int height = (int)Math.ceil(box.getHeight() * scale) + 2 * pad;
+        final float translateX = pad / scale - box.getMinX();
+        final float translateY = pad / scale - box.getMinY();
+        final byte[] data = new byte[4 * width * height];
+
+        final double orient = getOrientation(edges, contourStart);
+        final double toNormalized = scale / range;
+        final double[] sd = new double[3];
+        final double[] tmp = new double[3];
+        final double[] best = new double[3*3];
+        final int[] bestEdge = new int[3];
+        final double[] crossings = new double[2*edges.count+2];
+        final int[] windings = new int[2*edges.count+2];
+        final double[] bounds = getEdgeBounds(edges);
+
+        for(int y=0; y<height; y++) {
+            final double py = ( y + 0.5 ) / scale - translateY;
+            final int crossingCount = getCrossings(edges, py, crossings, windings, tmp);
+            int crossing = 0;
+            int winding = 0;
+            for(int x=0; x<width; x++) {
+                final double px = ( x + 0.5 ) / scale - translateX;
+                while( crossing < crossingCount && crossings[crossing] < px ) {
+                    winding += windings[crossing++];
+                }
+                double minDist = Double.MAX_VALUE, minDot = 0;
+                for(int c=0; c<3; c++) {
+                    best[3*c] = Double.MAX_VALUE;
+                    bestEdge[c] = -1;
+                }
+                double maxBest = Double.MAX_VALUE;
+                for(int e=0; e<edges.count; e++) {
+                    // the control polygon's bounds contain the edge
+                    final double bx = Math.max(0, Math.max(bounds[4*e] - px, px - bounds[4*e+2]));
+                    final double by = Math.max(0, Math.max(bounds[4*e+1] - py, py - bounds[4*e+3]));
+                    if( bx*bx + by*by > maxBest * maxBest ) {
+                        continue;
+                    }
+                    signedDistance(edges, e, px, py, sd, tmp);
+                    final double dist = Math.abs(sd[0]);
+                    if( dist < Math.abs(minDist) || ( dist == Math.abs(minDist) && sd[1] < minDot ) ) {
+                        minDist = sd[0];
+                        minDot = sd[1];
+                    }
+                    final int color = edges.color[e];
+                    for(int c=0; c<3; c++) {
+                        if( 0 != ( color & ( 1 << c ) ) ) {
+                            final double bDist = Math.abs(best[3*c]);
+                            if( dist < bDist || ( dist == bDist && sd[1] < best[3*c+1] ) ) {
+                                best[3*c] = sd[0];
+                                best[3*c+1] = sd[1];
+                                best[3*c+2] = sd[2];
+                                bestEdge[c] = e;
+                            }
+                        }
+                    }
+                    maxBest = Math.max(Math.abs(minDist), Math.max(Math.abs(best[0]), Math.max(Math.abs(best[3]), Math.abs(best[6]))));
+                }
+                final boolean inside = 0 != winding;
+                double trueDist = orient * minDist;
+                if( inside != ( trueDist > 0 ) ) {
+                    // overlapping or mis-oriented outlines, the winding rule decides
+                    trueDist = inside ? Math.abs(trueDist) : -Math.abs(trueDist);
+                }
+                final double r = 0 <= bestEdge[0] ? orient * pseudoDistance(edges, bestEdge[0], px, py, best[0], best[2], tmp) : -Double.MAX_VALUE;
+                final double g = 0 <= bestEdge[1] ? orient * pseudoDistance(edges, bestEdge[1], px, py, best[3], best[5], tmp) : -Double.MAX_VALUE;
+                final double b = 0 <= bestEdge[2] ? orient * pseudoDistance(edges, bestEdge[2], px, py, best[6], best[8], tmp) : -Double.MAX_VALUE;
+                final int o = 4 * ( y * width + x );
+                data[o+3] = toByte(trueDist * toNormalized);
+                if( inside != ( median(r, g, b) > 0 ) ) {
+                    data[o+0] = data[o+1] = data[o+2] = data[o+3];
+                } else {
+                    data[o+0] = toByte(r * toNormalized);
+                    data[o+1] = toByte(g * toNormalized);
+                    data[o+2] = toByte(b * toNormalized);
+                }
+            }
+        }
+        correctClashes(data, width, height);
+        return new Field(width, height, data, scale, translateX, translateY, range);
+    }
+
+    /** Returns the bounds of each edge's control points, min-x, min-y, max-x and max-y. */
+    private static double[] getEdgeBounds(final Edges edges) {
+        final double[] bounds = new double[4*edges.count];
+        final double[] p = edges.p;
+        for(int e=0; e<edges.count; e++) {
+            final int o = 6*e;
+            bounds[4*e+0] = Math.min(p[o+0], Math.min(p[o+2], p[o+4]));
+            bounds[4*e+1] = Math.min(p[o+1], Math.min(p[o+3], p[o+5]));
+            bounds[4*e+2] = Math.max(p[o+0], Math.max(p[o+2], p[o+4]));
+            bounds[4*e+3] = Math.max(p[o+1], Math.max(p[o+3], p[o+5]));
+        }
+        return bounds;
+    }
+
+    private static byte toByte(final double normalizedDist) {
+        final double v = ( 0.5 + normalizedDist ) * 255.0;
+        if( v <= 0 ) {
+            return 0;
+        } else if( v >= 255 ) {
+            return (byte)255;
+        }
+        return (byte)(int)( v + 0.5 );
+    }
+
+    private static double median(final double a, final double b, final double c) {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
+    private static int median(final int a, final int b, final int c) {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
+    //
+    // Edge setup
+    //
+
+    /**
+     * Adds the line and quadratic curve segments of all outlines as closed contours,
+     * inserting the implied on-curve point between two consecutive off-curve points.
+     * @return the first edge of each contour, terminated by the edge count
+     */
+    private static int[] addEdges(final OutlineShape shape, final Edges edges) {
+        final int outlineCount = shape.getOutlineNumber();
+        final int[] contourStart = new int[outlineCount+1];
+        int contours = 0;
+        for(int i=0; i<outlineCount; i++) {
+            final Outline outline = shape.getOutline(i);
+            int n = outline.getVertexCount();
+            if( 2 < n ) {
+                final Vertex first = outline.getVertex(0);
+                final Vertex last = outline.getVertex(n-1);
+                if( first.getX() == last.getX() && first.getY() == last.getY() && first.isOnCurve() == last.isOnCurve() ) {
+                    n--; // closing vertex
+                }
+            }
+            if( 2 > n ) {
+                continue;
+            }
+            // on-curve start point, implied between the last and the first if all are off-curve
+            int start = 0;
+            while( start < n && !outline.getVertex(start).isOnCurve() ) {
+                start++;
+            }
+            final int k = start < n ? n : n + 1;
+            final double[] xs = new double[k];
+            final double[] ys = new double[k];
+            final boolean[] on = new boolean[k];
+            if( start < n ) {
+                for(int j=0; j<n; j++) {
+                    final Vertex v = outline.getVertex( ( start + j ) % n );
+                    xs[j] = v.getX();
+                    ys[j] = v.getY();
+                    on[j] = v.isOnCurve();
+                }
+            } else {
+                final Vertex a = outline.getVertex(n-1);
+                final Vertex b = outline.getVertex(0);
+                xs[0] = ( a.getX() + b.getX() ) * 0.5;
+                ys[0] = ( a.getY() + b.getY() ) * 0.5;
+                on[0] = true;
+                for(int j=0; j<n; j++) {
+                    final Vertex v = outline.getVertex(j);
+                    xs[j+1] = v.getX();
+                    ys[j+1] = v.getY();
+                }
+            }
+            final int start0 = edges.count;
+            double cx = xs[0], cy = ys[0];
+            int j = 1;
+            while( j <= k ) {
+                final int idx = j % k;
+                if( on[idx] ) {
+                    addLine(edges, cx, cy, xs[idx], ys[idx]);
+                    cx = xs[idx];
+                    cy = ys[idx];
+                    j++;
+                } else {
+                    final int next = ( j + 1 ) % k;
+                    final double ex, ey;
+                    if( on[next] ) {
+                        ex = xs[next];
+                        ey = ys[next];
+                        j += 2;
+                    } else {
+                        ex = ( xs[idx] + xs[next] ) * 0.5;
+                        ey = ( ys[idx] + ys[next] ) * 0.5;
+                        j++;
+                    }
+                    addQuad(edges, cx, cy, xs[idx], ys[idx], ex, ey);
+                    cx = ex;
+                    cy = ey;
+                }
+            }
+            if( edges.count > start0 ) {
+                contourStart[contours++] = start0;
+            }
+        }
+        final int[] res = new int[contours+1];
+        System.arraycopy(contourStart, 0, res, 0, contours);
+        res[contours] = edges.count;
+        return res;
+    }
+
+    private static void addLine(final Edges edges, final double x0, final double y0, final double x1, final double y1) {
+        if( x0 != x1 || y0 != y1 ) {
+            edges.add(x0, y0, x1, y1, x1, y1, false);
+        }
+    }
+
+    private static void addQuad(final Edges edges, final double x0, final double y0, final double x1, final double y1, final double x2, final double y2) {
+        if( ( x1 - x0 ) * ( y2 - y0 ) - ( y1 - y0 ) * ( x2 - x0 ) == 0 ) {
+            // collinear control point
+            addLine(edges, x0, y0, x2, y2);
+        } else {
+            edges.add(x0, y0, x1, y1, x2, y2, true);
+        }
+    }
+
+    /**
+     * Returns the sign mapping the distance sign of the edges to positive inside,
+     * derived from the orientation of the contour w/ the largest area, which is an outer one.
+     */
+    private static double getOrientation(final Edges edges, final int[] contourStart) {
+        double maxArea = 0;
+        for(int c=0; c<contourStart.length-1; c++) {
+            double area = 0;
+            for(int e=contourStart[c]; e<contourStart[c+1]; e++) {
+                final double[] p = edges.p;
+                final int o = 6*e;
+                area += p[o+0] * p[o+3] - p[o+2] * p[o+1];
+                area += p[o+2] * p[o+5] - p[o+4] * p[o+3];
+            }
+            if( Math.abs(area) > Math.abs(maxArea) ) {
+                maxArea = area;
+            }
+        }
+        // counter-clockwise contours have their inside on the left, i.e. at negative distances
+        return maxArea > 0 ? -1.0 : 1.0;
+    }
+
+    /**
+     * Colors the edges of each contour, switching the color at each corner
+     * so that adjacent edges of a corner share only one channel.
+     */
+    private static void colorEdges(final Edges edges, final int[] contourStart) {
+        final double[] dir0 = new double[2];
+        final double[] dir1 = new double[2];
+        int[] corners = new int[16];
+        for(int c=0; c<contourStart.length-1; c++) {
+            final int first = contourStart[c];
+            final int m = contourStart[c+1] - first;
+            int cornerCount = 0;
+            for(int i=0; i<m; i++) {
+                direction(edges, first + ( i + m - 1 ) % m, 1, dir0);
+                direction(edges, first + i, 0, dir1);
+                if( isCorner(dir0, dir1) ) {
+                    if( cornerCount == corners.length ) {
+                        final int[] nc = new int[corners.length*2];
+                        System.arraycopy(corners, 0, nc, 0, corners.length);
+                        corners = nc;
+                    }
+                    corners[cornerCount++] = i;
+                }
+            }
+            if( 0 == cornerCount ) {
+                // smooth contour
+                for(int i=0; i<m; i++) {
+                    edges.color[first+i] = WHITE;
+                }
+            } else if( 1 == cornerCount ) {
+                // teardrop, split the contour in thirds
+                final int[] colors = { MAGENTA, WHITE, YELLOW };
+                final int corner = corners[0];
+                if( 3 <= m ) {
+                    for(int i=0; i<m; i++) {
+                        final int third = (int)( 3 + 2.875 * i / ( m - 1 ) - 1.4375 + 0.5 ) - 3;
+                        edges.color[first + ( corner + i ) % m] = colors[1 + third];
+                    }
+                } else {
+                    for(int i=0; i<m; i++) {
+                        edges.color[first + ( corner + i ) % m] = colors[2 * i];
+                    }
+                }
+            } else {
+                final int start = corners[0];
+                int spline = 0;
+                final int initialColor = CYAN;
+                int color = initialColor;
+                for(int i=0; i<m; i++) {
+                    final int index = ( start + i ) % m;
+                    if( spline + 1 < cornerCount && corners[spline+1] == index ) {
+                        spline++;
+                        color = switchColor(color, spline == cornerCount - 1 ? initialColor : 0);
+                    }
+                    edges.color[first+index] = color;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the next color of two channels, differing from the given color
+     * and sharing at most one channel with the banned color.
+     */
+    private static int switchColor(final int color, final int banned) {
+        final int combined = color & banned;
+        if( RED == combined || GREEN == combined || BLUE == combined ) {
+            return combined ^ WHITE;
+        }
+        final int shifted = color << 1;
+        return ( shifted | shifted >> 3 ) & WHITE;
+    }
+
+    private static boolean isCorner(final double[] a, final double[] b) {
+        final double la = Math.sqrt(a[0]*a[0] + a[1]*a[1]);
+        final double lb = Math.sqrt(b[0]*b[0] + b[1]*b[1]);
+        if( 0 == la || 0 == lb ) {
+            return true;
+        }
+        final double dot = ( a[0]*b[0] + a[1]*b[1] ) / ( la * lb );
+        final double cross = ( a[0]*b[1] - a[1]*b[0] ) / ( la * lb );
+        return dot <= 0 || Math.abs(cross) > CORNER_CROSS_THRESHOLD;
+    }
+
+    /** Returns the tangent at the start <code>t = 0</code> or the end <code>t = 1</code> of the edge. */
+    private static void direction(final Edges edges, final int e, final int t, final double[] res) {
+        final double[] p = edges.p;
+        final int o = 6*e;
+        if( !edges.quad[e] ) {
+            res[0] = p[o+2] - p[o+0];
+            res[1] = p[o+3] - p[o+1];
+        } else if( 0 == t ) {
+            res[0] = p[o+2] - p[o+0];
+            res[1] = p[o+3] - p[o+1];
+            if( 0 == res[0] && 0 == res[1] ) {
+                res[0] = p[o+4] - p[o+0];
+                res[1] = p[o+5] - p[o+1];
+            }
+        } else {
+            res[0] = p[o+4] - p[o+2];
+            res[1] = p[o+5] - p[o+3];
+            if( 0 == res[0] && 0 == res[1] ) {
+                res[0] = p[o+4] - p[o+0];
+                res[1] = p[o+5] - p[o+1];
+            }
+        }
+    }
+
+    //
+    // Distances
+    //
+
+    private static double nonZeroSign(final double v) {
+        return v > 0 ? 1.0 : -1.0;
+    }
+
+    /**
+     * Computes the signed distance of the point to the edge.
+     * @param res distance, the absolute cosine between the edge's end tangent and the direction to the point
+     *        if the closest point is an end point, otherwise zero, and the curve parameter of the closest point
+     * @param t scratch array of three elements
+     */
+    private static void signedDistance(final Edges edges, final int e, final double px, final double py, final double[] res, final double[] t) {
+        final double[] p = edges.p;
+        final int o = 6*e;
+        final double x0 = p[o+0], y0 = p[o+1];
+        if( !edges.quad[e] ) {
+            final double abx = p[o+2] - x0, aby = p[o+3] - y0;
+            final double aqx = px - x0, aqy = py - y0;
+            final double param = ( aqx*abx + aqy*aby ) / ( abx*abx + aby*aby );
+            final double eqx = ( param > 0.5 ? p[o+2] : x0 ) - px;
+            final double eqy = ( param > 0.5 ? p[o+3] : y0 ) - py;
+            final double endpointDistance = Math.sqrt(eqx*eqx + eqy*eqy);
+            final double cross = aqx*aby - aqy*abx;
+            final double abLen = Math.sqrt(abx*abx + aby*aby);
+            res[2] = param;
+            if( param > 0 && param < 1 ) {
+                final double orthoDistance = cross / abLen;
+                if( Math.abs(orthoDistance) < endpointDistance ) {
+                    res[0] = orthoDistance;
+                    res[1] = 0;
+                    return;
+                }
+            }
+            res[0] = nonZeroSign(cross) * endpointDistance;
+            res[1] = 0 < endpointDistance ? Math.abs( ( abx*eqx + aby*eqy ) / ( abLen * endpointDistance ) ) : 0;
+            return;
+        }
+        final double qax = x0 - px, qay = y0 - py;
+        final double abx = p[o+2] - x0, aby = p[o+3] - y0;
+        final double brx = p[o+4] - p[o+2] - abx, bry = p[o+5] - p[o+3] - aby;
+        final double a = brx*brx + bry*bry;
+        final double b = 3 * ( abx*brx + aby*bry );
+        final double c = 2 * ( abx*abx + aby*aby ) + ( qax*brx + qay*bry );
+        final double d = qax*abx + qay*aby;
+        final int solutions = solveCubic(t, a, b, c, d);
+
+        // start point
+        double dx = abx, dy = aby;
+        if( 0 == dx && 0 == dy ) {
+            dx = p[o+4] - x0;
+            dy = p[o+5] - y0;
+        }
+        double minDistance = nonZeroSign(dx*qay - dy*qax) * Math.sqrt(qax*qax + qay*qay);
+        double param = -( qax*dx + qay*dy ) / ( dx*dx + dy*dy );
+        // end point
+        final double ex = p[o+4] - p[o+2], ey = p[o+5] - p[o+3];
+        final double qcx = p[o+4] - px, qcy = p[o+5] - py;
+        {
+            final double distance = Math.sqrt(qcx*qcx + qcy*qcy);
+            if( distance < Math.abs(minDistance) ) {
+                minDistance = nonZeroSign(ex*qcy - ey*qcx) * distance;
+                param = ( ( px - p[o+2] ) * ex + ( py - p[o+3] ) * ey ) / ( ex*ex + ey*ey );
+            }
+        }
+        for(int i=0; i<solutions; i++) {
+            final double ti = t[i];
+            if( ti > 0 && ti < 1 ) {
+                final double qex = qax + 2*ti*abx + ti*ti*brx;
+                final double qey = qay + 2*ti*aby + ti*ti*bry;
+                final double distance = Math.sqrt(qex*qex + qey*qey);
+                if( distance <= Math.abs(minDistance) ) {
+                    final double tx = abx + ti*brx, ty = aby + ti*bry;
+                    minDistance = nonZeroSign(tx*qey - ty*qex) * distance;
+                    param = ti;
+                }
+            }
+        }
+        res[0] = minDistance;
+        res[2] = param;
+        if( param >= 0 && param <= 1 ) {
+            res[1] = 0;
+        } else if( param < 0.5 ) {
+            res[1] = Math.abs( ( dx*qax + dy*qay ) / ( Math.sqrt(dx*dx + dy*dy) * Math.sqrt(qax*qax + qay*qay) ) );
+        } else {
+            res[1] = Math.abs( ( ex*qcx + ey*qcy ) / ( Math.sqrt(ex*ex + ey*ey) * Math.sqrt(qcx*qcx + qcy*qcy) ) );
+        }
+    }
+
+    /**
+     * Returns the pseudo-distance of the point to the edge, i.e. the signed distance
+     * where the edge is extended by its end tangents if the closest point is beyond an end point.
+     */
+    private static double pseudoDistance(final Edges edges, final int e, final double px, final double py, final double distance, final double param,
+                                         final double[] dir) {
+        final double[] p = edges.p;
+        final int o = 6*e;
+        if( param < 0 ) {
+            direction(edges, e, 0, dir);
+            final double len = Math.sqrt(dir[0]*dir[0] + dir[1]*dir[1]);
+            final double aqx = px - p[o+0], aqy = py - p[o+1];
+            final double ts = ( aqx*dir[0] + aqy*dir[1] ) / len;
+            if( ts < 0 ) {
+                final double pseudo = ( aqx*dir[1] - aqy*dir[0] ) / len;
+                if( Math.abs(pseudo) <= Math.abs(distance) ) {
+                    return pseudo;
+                }
+            }
+        } else if( param > 1 ) {
+            direction(edges, e, 1, dir);
+            final double len = Math.sqrt(dir[0]*dir[0] + dir[1]*dir[1]);
+            final double bqx = px - p[o+4], bqy = py - p[o+5];
+            final double ts = ( bqx*dir[0] + bqy*dir[1] ) / len;
+            if( ts > 0 ) {
+                final double pseudo = ( bqx*dir[1] - bqy*dir[0] ) / len;
+                if( Math.abs(pseudo) <= Math.abs(distance) ) {
+                    return pseudo;
+                }
+            }
+        }
+        return distance;
+    }
+
+    //
+    // Winding
+    //
+
+    /**
+     * Computes the sorted x-coordinates of all crossings of the horizontal line at <code>y</code>
+     * with the edges and their winding direction.
+     * @return the number of crossings
+     */
+    private static int getCrossings(final Edges edges, final double y, final double[] xs, final int[] windings, final double[] tmp) {
+        int count = 0;
+        final double[] p = edges.p;
+        for(int e=0; e<edges.count; e++) {
+            final int o = 6*e;
+            final double y0 = p[o+1], y2 = p[o+5];
+            if( !edges.quad[e] ) {
+                if( ( y0 <= y && y < y2 ) || ( y2 <= y && y < y0 ) ) {
+                    final double t = ( y - y0 ) / ( y2 - y0 );
+                    count = addCrossing(xs, windings, count, p[o+0] + t * ( p[o+2] - p[o+0] ), y2 > y0 ? 1 : -1);
+                }
+                continue;
+            }
+            final double y1 = p[o+3];
+            final double a = y0 - 2*y1 + y2;
+            final double b = 2 * ( y1 - y0 );
+            // split at the y-extremum into monotonic pieces
+            double tSplit = 0 != a ? ( y0 - y1 ) / a : -1;
+            if( tSplit <= 0 || tSplit >= 1 ) {
+                tSplit = 1;
+            }
+            double t0 = 0, ya = y0;
+            while( t0 < 1 ) {
+                final double t1 = t0 < tSplit ? tSplit : 1;
+                final double yb = ( a * t1 + b ) * t1 + y0;
+                if( ( ya <= y && y < yb ) || ( yb <= y && y < ya ) ) {
+                    final double t = solveMonotonic(a, b, y0 - y, t0, t1, tmp);
+                    final double mt = 1 - t;
+                    final double x = mt*mt*p[o+0] + 2*mt*t*p[o+2] + t*t*p[o+4];
+                    count = addCrossing(xs, windings, count, x, yb > ya ? 1 : -1);
+                }
+                t0 = t1;
+                ya = yb;
+            }
+        }
+        return count;
+    }
+
+    private static int addCrossing(final double[] xs, final int[] windings, final int count, final double x, final int winding) {
+        int i = count;
+        while( 0 < i && xs[i-1] > x ) {
+            xs[i] = xs[i-1];
+            windings[i] = windings[i-1];
+            i--;
+        }
+        xs[i] = x;
+        windings[i] = winding;
+        return count + 1;
+    }
+
+    /** Returns the root of <code>a t^2 + b t + c</code> within <code>[t0..t1]</code>, using the scratch array <code>t</code>. */
+    private static double solveMonotonic(final double a, final double b, final double c, final double t0, final double t1, final double[] t) {
+        final int n = solveQuadratic(t, a, b, c);
+        double best = 0.5 * ( t0 + t1 );
+        double bestErr = Double.MAX_VALUE;
+        for(int i=0; i<n; i++) {
+            final double ti = Math.max(t0, Math.min(t1, t[i]));
+            final double err = Math.abs(ti - t[i]);
+            if( err < bestErr ) {
+                bestErr = err;
+                best = ti;
+            }
+        }
+        return best;
+    }
+
+    //
+    // Polynomials
+    //
+
+    private static int solveQuadratic(final double[] x, final double a, final double b, final double c) {
+        if( 0 == a || Math.abs(b) > 1e12 * Math.abs(a) ) {
+            if( 0 == b ) {
+                return 0;
+            }
+            x[0] = -c / b;
+            return 1;
+        }
+        double dscr = b*b - 4*a*c;
+        if( dscr > 0 ) {
+            dscr = Math.sqrt(dscr);
+            x[0] = ( -b + dscr ) / ( 2*a );
+            x[1] = ( -b - dscr ) / ( 2*a );
+            return 2;
+        } else if( 0 == dscr ) {
+            x[0] = -b / ( 2*a );
+            return 1;
+        }
+        return 0;
+    }
+
+    private static int solveCubicNormed(final double[] x, double a, final double b, final double c) {
+        final double a2 = a*a;
+        double q = ( a2 - 3*b ) / 9.0;
+        final double r = ( a * ( 2*a2 - 9*b ) + 27*c ) / 54.0;
+        final double r2 = r*r;
+        final double q3 = q*q*q;
+        a /= 3.0;
+        if( r2 < q3 ) {
+            double t = r / Math.sqrt(q3);
+            t = Math.acos( Math.max(-1.0, Math.min(1.0, t)) );
+            q = -2 * Math.sqrt(q);
+            x[0] = q * Math.cos( t / 3.0 ) - a;
+            x[1] = q * Math.cos( ( t + 2*Math.PI ) / 3.0 ) - a;
+            x[2] = q * Math.cos( ( t - 2*Math.PI ) / 3.0 ) - a;
+            return 3;
+        }
+        final double u = ( r < 0 ? 1 : -1 ) * Math.pow( Math.abs(r) + Math.sqrt(r2 - q3), 1.0 / 3.0 );
+        final double v = 0 == u ? 0 : q / u;
+        x[0] = ( u + v ) - a;
+        if( u == v || Math.abs(u - v) < 1e-12 * Math.abs(u + v) ) {
+            x[1] = -0.5 * ( u + v ) - a;
+            return 2;
+        }
+        return 1;
+    }
+
+    private static int solveCubic(final double[] x, final double a, final double b, final double c, final double d) {
+        if( 0 != a ) {
+            final double bn = b / a;
+            if( Math.abs(bn) < 1e6 ) {
+                return solveCubicNormed(x, bn, c / a, d / a);
+            }
+        }
+        return solveQuadratic(x, b, c, d);
+    }
+
+    //
+    // Error correction
+    //
+
+    /**
+     * Sets the channels of pixels clashing w/ a neighbor to their median,
+     * i.e. where interpolation between both would reconstruct a false edge.
+     */
+    private void correctClashes(final byte[] data, final int width, final int height) {
+        final double threshold = EDGE_THRESHOLD / range * 255.0;
+        final double diagThreshold = threshold * Math.sqrt(2.0);
+        final boolean[] clash = new boolean[width * height];
+        for(int y=0; y<height; y++) {
+            for(int x=0; x<width; x++) {
+                final int o = 4 * ( y * width + x );
+                if( ( 0 < x && detectClash(data, o, o - 4, threshold) ) ||
+                    ( x < width - 1 && detectClash(data, o, o + 4, threshold) ) ||
+                    ( 0 < y && detectClash(data, o, o - 4 * width, threshold) ) ||
+                    ( y < height - 1 && detectClash(data, o, o + 4 * width, threshold) ) ||
+                    ( 0 < x && 0 < y && detectClash(data, o, o - 4 * width - 4, diagThreshold) ) ||
+                    ( x < width - 1 && 0 < y && detectClash(data, o, o - 4 * width + 4, diagThreshold) ) ||
+                    ( 0 < x && y < height - 1 && detectClash(data, o, o + 4 * width - 4, diagThreshold) ) ||
+                    ( x < width - 1 && y < height - 1 && detectClash(data, o, o + 4 * width + 4, diagThreshold) ) ) {
+                    clash[y * width + x] = true;
+                }
+            }
+        }
+        for(int i=0; i<clash.length; i++) {
+            if( clash[i] ) {
+                final int o = 4 * i;
+                final byte m = (byte) median(data[o] & 0xff, data[o+1] & 0xff, data[o+2] & 0xff);
+                data[o] = data[o+1] = data[o+2] = m;
+            }
+        }
+    }
+
+    private static boolean detectClash(final byte[] data, final int oa, final int ob, final double threshold) {
+        int a0 = data[oa] & 0xff, a1 = data[oa+1] & 0xff, a2 = data[oa+2] & 0xff;
+        int b0 = data[ob] & 0xff, b1 = data[ob+1] & 0xff, b2 = data[ob+2] & 0xff;
+        int tmp;
+        // sort the channel pairs by decreasing absolute difference
+        if( Math.abs(b0 - a0) < Math.abs(b1 - a1) ) {
+            tmp = a0; a0 = a1; a1 = tmp;
+            tmp = b0; b0 = b1; b1 = tmp;
+        }
+        if( Math.abs(b1 - a1) < Math.abs(b2 - a2) ) {
+            tmp = a1; a1 = a2; a2 = tmp;
+            tmp = b1; b1 = b2; b2 = tmp;
+            if( Math.abs(b0 - a0) < Math.abs(b1 - a1) ) {
+                tmp = a0; a0 = a1; a1 = tmp;
+                tmp = b0; b0 = b1; b1 = tmp;
+            }
+        }
+        return Math.abs(b0 - a0) >= threshold &&
+               !( b0 == b1 && b0 == b2 ) && // other pixel has been equalized
+               Math.abs(2 * a2 - 255) >= Math.abs(2 * b2 - 255); // only flag the pixel farther from the outline
+    }
+}
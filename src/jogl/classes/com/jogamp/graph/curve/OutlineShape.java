@@ -96,6 +96,7 @@ import com.jogamp.opengl.math.geom.AABBox;
  *
  * @see Outline
  * @see Region
+ * @see PackedOutlineShape
  */
 public class OutlineShape implements Comparable<OutlineShape> {
     /**
@@ -142,6 +143,7 @@ public class OutlineShape implements Comparable<OutlineShape> {
     private int dirtyBits;
 
     private float sharpness;
+    private Triangulation.Type triangulationType;
 
     private final float[] tmpV1 = new float[3];
     private final float[] tmpV2 = new float[3];
@@ -160,6 +162,7 @@ public class OutlineShape implements Comparable<OutlineShape> {
         this.addedVerticeCount = 0;
         this.dirtyBits = 0;
         this.sharpness = DEFAULT_SHARPNESS;
+        this.triangulationType = Triangulation.Type.CDT;
     }
 
     /**
@@ -182,6 +185,22 @@ public class OutlineShape implements Comparable<OutlineShape> {
         }
     }
 
+    /** Triangulation algorithm, defaults to {@link Triangulation.Type#CDT}. */
+    public Triangulation.Type getTriangulationType() { return triangulationType; }
+
+    /**
+     * Sets the triangulation algorithm, defaults to {@link Triangulation.Type#CDT}.
+     * <p>
+     * {@link Triangulation.Type#SWEEP} always completes the triangulation of complex outlines in O(n log n).
+     * </p>
+     */
+    public void setTriangulationType(final Triangulation.Type type) {
+        if( this.triangulationType != type ) {
+            clearCache();
+            triangulationType = type;
+        }
+    }
+
     /** Clears all data and reset all states as if this instance was newly created */
     public void clear() {
         outlines.clear();
@@ -660,7 +679,7 @@ public class OutlineShape implements Comparable<OutlineShape> {
             generateVertexIds();
 
             triangles.clear();
-            final Triangulator triangulator2d = Triangulation.create();
+            final Triangulator triangulator2d = Triangulation.create(triangulationType);
             for(int index = 0; index<outlines.size(); index++) {
                 triangulator2d.addCurve(triangles, outlines.get(index), sharpness);
             }
@@ -707,6 +726,7 @@ public class OutlineShape implements Comparable<OutlineShape> {
      */
     public final OutlineShape transform(final AffineTransform t) {
         final OutlineShape newOutlineShape = new OutlineShape(vertexFactory);
+        newOutlineShape.setTriangulationType(triangulationType);
         final int osize = outlines.size();
         for(int i=0; i<osize; i++) {
             newOutlineShape.addOutline( outlines.get(i).transform(t, vertexFactory) );
@@ -0,0 +1,545 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.graph.curve;
+
+import java.util.AbstractList;
+import java.util.BitSet;
+import java.util.List;
+
+import jogamp.graph.geom.plane.AffineTransform;
+
+import com.jogamp.graph.curve.tess.Triangulation;
+import com.jogamp.graph.geom.Outline;
+import com.jogamp.graph.geom.SVertex;
+import com.jogamp.graph.geom.Vertex;
+import com.jogamp.opengl.math.FloatUtil;
+import com.jogamp.opengl.math.geom.AABBox;
+
+/**
+ * Compact {@link OutlineShape} storage, keeping all vertices of all outlines
+ * in primitive arrays instead of one {@link Vertex} object per point.
+ * <p>
+ * Coordinates are stored as structure of arrays, i.e. one float array for each x, y and z,
+ * the on-curve flags in a {@link BitSet} and the outlines as start offsets into these arrays.
+ * Hence a point costs 12 bytes plus one bit, compared to around 100 bytes
+ * of a heap allocated {@link Vertex} with its coordinate arrays and list reference.
+ * </p>
+ * <p>
+ * Outlines are defined as with {@link OutlineShape}, i.e. via {@link #addVertex(float, float, boolean)},
+ * {@link #addEmptyOutline()} and {@link #closeLastOutline(boolean)}.
+ * </p>
+ * <p>
+ * Existing {@link Vertex} consumers may read the storage through the flyweight views
+ * {@link #getVertex(int)} and {@link #getOutlineVertices(int)}.
+ * Triangulation operates on {@link OutlineShape}, see {@link #toOutlineShape(Vertex.Factory)}
+ * and {@link ShapeTessellator#tessellate(PackedOutlineShape)}, the latter avoiding to materialize the vertices
+ * if the tessellation is cached.
+ * </p>
+ */
+public final class PackedOutlineShape {
+    private float[] x, y, z;
+    private final BitSet onCurve;
+    private int size;
+
+    /** start vertex index of each outline */
+    private int[] outlineStart;
+    private final BitSet outlineClosed;
+    private int outlineCount;
+
+    private float sharpness;
+    private Triangulation.Type triangulationType;
+    private boolean quadraticNurbs;
+
+    private final AABBox bbox;
+    private boolean dirtyBBox;
+
+    /**
+     * Create a new empty shape, see {@link #PackedOutlineShape(int)}.
+     */
+    public PackedOutlineShape() {
+        this(16);
+    }
+
+    /**
+     * Create a new empty shape with one empty outline.
+     * @param vertexCapacity initial vertex capacity
+     */
+    public PackedOutlineShape(final int vertexCapacity) {
+        final int cap = Math.max(1, vertexCapacity);
+        x = new float[cap];
+        y = new float[cap];
+        z = new float[cap];
+        onCurve = new BitSet(cap);
+        size = 0;
+        outlineStart = new int[4];
+        outlineClosed = new BitSet();
+        outlineCount = 1;
+        sharpness = OutlineShape.DEFAULT_SHARPNESS;
+        triangulationType = Triangulation.Type.CDT;
+        quadraticNurbs = false;
+        bbox = new AABBox();
+        dirtyBBox = false;
+    }
+
+    /**
+     * Packs the outlines of the given {@link OutlineShape}, as well as its
+     * sharpness, triangulation type and {@link OutlineShape.VerticesState}.
+     */
+    public PackedOutlineShape(final OutlineShape src) {
+        this(src.getOutlineNumber() > 0 ? countVertices(src) : 1);
+        final int osize = src.getOutlineNumber();
+        for(int o=0; o<osize; o++) {
+            final Outline outline = src.getOutline(o);
+            if( 0 < o ) {
+                addEmptyOutline(); // like toOutlineShape(..)
+            }
+            final int vsize = outline.getVertexCount();
+            for(int i=0; i<vsize; i++) {
+                final Vertex v = outline.getVertex(i);
+                addVertex(v.getX(), v.getY(), v.getZ(), v.isOnCurve());
+            }
+            if( outline.isClosed() ) {
+                outlineClosed.set(outlineCount-1);
+            }
+        }
+        sharpness = src.getSharpness();
+        triangulationType = src.getTriangulationType();
+        quadraticNurbs = OutlineShape.VerticesState.QUADRATIC_NURBS == src.getOutlineState();
+    }
+    private static int countVertices(final OutlineShape src) {
+        int n = 0;
+        for(int o=src.getOutlineNumber()-1; o>=0; o--) {
+            n += src.getOutline(o).getVertexCount();
+        }
+        return n;
+    }
+
+    /** Sharpness value, defaults to {@link OutlineShape#DEFAULT_SHARPNESS}. */
+    public float getSharpness() { return sharpness; }
+
+    /** Sets sharpness, defaults to {@link OutlineShape#DEFAULT_SHARPNESS}. */
+    public void setSharpness(final float s) { sharpness = s; }
+
+    /** Triangulation algorithm, defaults to {@link Triangulation.Type#CDT}. */
+    public Triangulation.Type getTriangulationType() { return triangulationType; }
+
+    /** Sets the triangulation algorithm, defaults to {@link Triangulation.Type#CDT}. */
+    public void setTriangulationType(final Triangulation.Type type) { triangulationType = type; }
+
+    /** See {@link OutlineShape#setIsQuadraticNurbs()}. */
+    public final void setIsQuadraticNurbs() { quadraticNurbs = true; }
+
+    /** See {@link OutlineShape#getOutlineState()}. */
+    public final OutlineShape.VerticesState getOutlineState() {
+        return quadraticNurbs ? OutlineShape.VerticesState.QUADRATIC_NURBS : OutlineShape.VerticesState.UNDEFINED;
+    }
+
+    /** Clears all outlines, keeping the allocated storage. */
+    public final void clear() {
+        size = 0;
+        onCurve.clear();
+        outlineClosed.clear();
+        outlineCount = 1;
+        quadraticNurbs = false;
+        bbox.reset();
+        dirtyBBox = false;
+    }
+
+    /** Returns the total number of vertices of all outlines. */
+    public final int getVertexCount() { return size; }
+
+    public final int getOutlineNumber() { return outlineCount; }
+
+    /** Returns the index of the first vertex of the given outline. */
+    public final int getOutlineStart(final int outline) throws IndexOutOfBoundsException {
+        checkOutline(outline);
+        return outlineStart[outline];
+    }
+
+    public final int getOutlineVertexCount(final int outline) throws IndexOutOfBoundsException {
+        checkOutline(outline);
+        return ( outline < outlineCount - 1 ? outlineStart[outline+1] : size ) - outlineStart[outline];
+    }
+
+    public final boolean isOutlineClosed(final int outline) throws IndexOutOfBoundsException {
+        checkOutline(outline);
+        return outlineClosed.get(outline);
+    }
+
+    private final void checkOutline(final int outline) {
+        if( 0 > outline || outline >= outlineCount ) {
+            throw new IndexOutOfBoundsException("outline "+outline+" not within [0.."+(outlineCount-1)+"]");
+        }
+    }
+    private final void checkVertex(final int index) {
+        if( 0 > index || index >= size ) {
+            throw new IndexOutOfBoundsException("vertex "+index+" not within [0.."+(size-1)+"]");
+        }
+    }
+
+    /**
+     * Add a new empty outline, all new vertices added belong to it.
+     * <p>If the last outline is empty already, no new one will be added.</p>
+     */
+    public final void addEmptyOutline() {
+        if( 0 < getOutlineVertexCount(outlineCount-1) ) {
+            newOutline();
+        }
+    }
+    private final void newOutline() {
+        if( outlineCount == outlineStart.length ) {
+            final int[] tmp = new int[outlineCount * 2];
+            System.arraycopy(outlineStart, 0, tmp, 0, outlineCount);
+            outlineStart = tmp;
+        }
+        outlineStart[outlineCount++] = size;
+    }
+
+    /** Adds a 2D vertex with z=0 to the last outline, see {@link OutlineShape#addVertex(float, float, boolean)}. */
+    public final void addVertex(final float x, final float y, final boolean onCurve) {
+        addVertex(x, y, 0f, onCurve);
+    }
+
+    /** Adds a 3D vertex to the last outline, see {@link OutlineShape#addVertex(float, float, float, boolean)}. */
+    public final void addVertex(final float x, final float y, final float z, final boolean onCurve) {
+        ensureCapacity(size+1);
+        this.x[size] = x;
+        this.y[size] = y;
+        this.z[size] = z;
+        if( onCurve ) {
+            this.onCurve.set(size);
+        }
+        size++;
+        if( !dirtyBBox ) {
+            bbox.resize(x, y, z);
+        }
+    }
+
+    /** Returns the number of vertices the arrays can hold w/o growing, i.e. the allocated storage. */
+    public final int getVertexCapacity() { return x.length; }
+
+    /**
+     * Ensures the arrays hold at least the given number of vertices.
+     */
+    public final void ensureCapacity(final int vertexCount) {
+        if( vertexCount > x.length ) {
+            final int cap = Math.max(vertexCount, x.length + ( x.length >> 1 ) + 1);
+            x = copyOf(x, cap);
+            y = copyOf(y, cap);
+            z = copyOf(z, cap);
+        }
+    }
+    private final float[] copyOf(final float[] src, final int cap) {
+        final float[] dst = new float[cap];
+        System.arraycopy(src, 0, dst, 0, size);
+        return dst;
+    }
+
+    /**
+     * Closes the last outline, see {@link OutlineShape#closeLastOutline(boolean)}.
+     * @param closeTail if true, a copy of the first vertex will be appended,
+     *                  otherwise a copy of the last vertex will be prepended.
+     * @return true if closing performed, otherwise false for NOP
+     */
+    public final boolean closeLastOutline(final boolean closeTail) {
+        final int o = outlineCount-1;
+        outlineClosed.set(o);
+        final int first = outlineStart[o];
+        final int last = size - 1;
+        if( first > last ) {
+            return false;
+        }
+        if( FloatUtil.isEqual(x[first], x[last], FloatUtil.EPSILON) &&
+            FloatUtil.isEqual(y[first], y[last], FloatUtil.EPSILON) &&
+            FloatUtil.isEqual(z[first], z[last], FloatUtil.EPSILON) ) {
+            return false;
+        }
+        if( closeTail ) {
+            addVertex(x[first], y[first], z[first], onCurve.get(first));
+        } else {
+            final float lx = x[last], ly = y[last], lz = z[last];
+            final boolean lc = onCurve.get(last);
+            ensureCapacity(size+1);
+            final int n = size - first;
+            System.arraycopy(x, first, x, first+1, n);
+            System.arraycopy(y, first, y, first+1, n);
+            System.arraycopy(z, first, z, first+1, n);
+            for(int i=size; i>first; i--) {
+                onCurve.set(i, onCurve.get(i-1));
+            }
+            x[first] = lx;
+            y[first] = ly;
+            z[first] = lz;
+            onCurve.set(first, lc);
+            size++;
+        }
+        return true;
+    }
+
+    public final float getX(final int index) { checkVertex(index); return x[index]; }
+    public final float getY(final int index) { checkVertex(index); return y[index]; }
+    public final float getZ(final int index) { checkVertex(index); return z[index]; }
+    public final boolean isOnCurve(final int index) { checkVertex(index); return onCurve.get(index); }
+
+    /**
+     * Copies the coordinates of the given vertex to {@code dest}, returns {@code dest} for chaining.
+     */
+    public final float[] getCoord(final int index, final float[] dest) {
+        checkVertex(index);
+        dest[0] = x[index];
+        dest[1] = y[index];
+        dest[2] = z[index];
+        return dest;
+    }
+
+    /**
+     * Replaces the coordinates of the given vertex.
+     * <p>Sets the bounding box dirty, hence a next call to {@link #getBounds()} will validate it.</p>
+     */
+    public final void setCoord(final int index, final float x, final float y, final float z) {
+        checkVertex(index);
+        this.x[index] = x;
+        this.y[index] = y;
+        this.z[index] = z;
+        dirtyBBox = true;
+    }
+
+    public final void setOnCurve(final int index, final boolean onCurve) {
+        checkVertex(index);
+        this.onCurve.set(index, onCurve);
+    }
+
+    public final AABBox getBounds() {
+        if( dirtyBBox ) {
+            dirtyBBox = false;
+            bbox.reset();
+            for(int i=0; i<size; i++) {
+                bbox.resize(x[i], y[i], z[i]);
+            }
+        }
+        return bbox;
+    }
+
+    /**
+     * Return a transformed copy, all vertices are transformed in place of the new arrays.
+     */
+    public final PackedOutlineShape transform(final AffineTransform t) {
+        final PackedOutlineShape res = new PackedOutlineShape(size);
+        final float m00 = t.getScaleX(), m01 = t.getShearX(), m02 = t.getTranslateX();
+        final float m10 = t.getShearY(), m11 = t.getScaleY(), m12 = t.getTranslateY();
+        for(int i=0; i<size; i++) {
+            final float px = x[i];
+            final float py = y[i];
+            res.x[i] = px * m00 + py * m01 + m02;
+            res.y[i] = px * m10 + py * m11 + m12;
+        }
+        System.arraycopy(z, 0, res.z, 0, size);
+        res.onCurve.or(onCurve);
+        res.size = size;
+        res.outlineStart = new int[outlineStart.length];
+        System.arraycopy(outlineStart, 0, res.outlineStart, 0, outlineCount);
+        res.outlineCount = outlineCount;
+        res.outlineClosed.or(outlineClosed);
+        res.sharpness = sharpness;
+        res.triangulationType = triangulationType;
+        res.dirtyBBox = true;
+        return res;
+    }
+
+    /**
+     * Creates an {@link OutlineShape} with all vertices created by the given factory,
+     * as well as this shape's sharpness, triangulation type and {@link OutlineShape.VerticesState}.
+     */
+    public final OutlineShape toOutlineShape(final Vertex.Factory<? extends Vertex> factory) {
+        final OutlineShape shape = new OutlineShape(factory);
+        shape.setSharpness(sharpness);
+        shape.setTriangulationType(triangulationType);
+        for(int o=0; o<outlineCount; o++) {
+            if( 0 < o ) {
+                shape.addEmptyOutline();
+            }
+            final int end = o < outlineCount - 1 ? outlineStart[o+1] : size;
+            for(int i=outlineStart[o]; i<end; i++) {
+                shape.addVertex(factory.create(x[i], y[i], z[i], onCurve.get(i)));
+            }
+            if( outlineClosed.get(o) ) {
+                shape.closeLastOutline(true);
+            }
+        }
+        if( quadraticNurbs ) {
+            shape.setIsQuadraticNurbs();
+        }
+        return shape;
+    }
+
+    /**
+     * Returns a flyweight {@link Vertex} view of the vertex at the given index.
+     * <p>
+     * Setting the coordinates or the on-curve flag writes through to this shape.
+     * However, {@link Vertex#getCoord()} returns a snapshot of the view,
+     * i.e. modifying the returned array has no effect on this shape.
+     * Texture coordinates and the id are held by the view only.
+     * </p>
+     */
+    public final Vertex getVertex(final int index) {
+        checkVertex(index);
+        return new VertexView(this, index);
+    }
+
+    /**
+     * Returns a read-only list of flyweight {@link Vertex} views of the given outline,
+     * see {@link #getVertex(int)}.
+     */
+    public final List<Vertex> getOutlineVertices(final int outline) {
+        final int start = getOutlineStart(outline);
+        final int count = getOutlineVertexCount(outline);
+        return new AbstractList<Vertex>() {
+            @Override
+            public Vertex get(final int index) {
+                if( 0 > index || index >= count ) {
+                    throw new IndexOutOfBoundsException("vertex "+index+" not within [0.."+(count-1)+"]");
+                }
+                return new VertexView(PackedOutlineShape.this, start + index);
+            }
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    /**
+     * Flyweight {@link Vertex} view of one vertex of a {@link PackedOutlineShape}.
+     */
+    static final class VertexView implements Vertex {
+        private final PackedOutlineShape shape;
+        private final int index;
+        private final float[] coord = new float[3];
+        private final float[] texCoord = new float[3];
+        private int id;
+
+        VertexView(final PackedOutlineShape shape, final int index) {
+            this.shape = shape;
+            this.index = index;
+            this.id = Integer.MAX_VALUE;
+        }
+
+        @Override
+        public final float getX() { return shape.x[index]; }
+        @Override
+        public final float getY() { return shape.y[index]; }
+        @Override
+        public final float getZ() { return shape.z[index]; }
+        @Override
+        public int getCoordCount() { return 3; }
+        @Override
+        public final float[] getCoord() { return shape.getCoord(index, coord); }
+
+        @Override
+        public final void setCoord(final float x, final float y, final float z) {
+            shape.setCoord(index, x, y, z);
+        }
+        @Override
+        public final void setCoord(final float[] coordsBuffer, final int offset, final int length) {
+            final float[] c = shape.getCoord(index, coord);
+            System.arraycopy(coordsBuffer, offset, c, 0, length);
+            shape.setCoord(index, c[0], c[1], c[2]);
+        }
+        @Override
+        public final void setX(final float x) { shape.setCoord(index, x, getY(), getZ()); }
+        @Override
+        public final void setY(final float y) { shape.setCoord(index, getX(), y, getZ()); }
+        @Override
+        public final void setZ(final float z) { shape.setCoord(index, getX(), getY(), z); }
+
+        @Override
+        public final boolean isOnCurve() { return shape.onCurve.get(index); }
+        @Override
+        public final void setOnCurve(final boolean onCurve) { shape.setOnCurve(index, onCurve); }
+
+        @Override
+        public final int getId() { return id; }
+        @Override
+        public final void setId(final int id) { this.id = id; }
+
+        @Override
+        public final float[] getTexCoord() { return texCoord; }
+        @Override
+        public final void setTexCoord(final float s, final float t, final float p) {
+            texCoord[0] = s;
+            texCoord[1] = t;
+            texCoord[2] = p;
+        }
+        @Override
+        public final void setTexCoord(final float[] texCoordsBuffer, final int offset, final int length) {
+            System.arraycopy(texCoordsBuffer, offset, texCoord, 0, length);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if( obj == this) {
+                return true;
+            }
+            if( null == obj || !(obj instanceof Vertex) ) {
+                return false;
+            }
+            final Vertex v = (Vertex) obj;
+            return isOnCurve() == v.isOnCurve() &&
+                   FloatUtil.isEqual(getX(), v.getX(), FloatUtil.EPSILON) &&
+                   FloatUtil.isEqual(getY(), v.getY(), FloatUtil.EPSILON) &&
+                   FloatUtil.isEqual(getZ(), v.getZ(), FloatUtil.EPSILON) &&
+                   FloatUtil.isEqual(texCoord[0], v.getTexCoord()[0], FloatUtil.EPSILON) &&
+                   FloatUtil.isEqual(texCoord[1], v.getTexCoord()[1], FloatUtil.EPSILON) &&
+                   FloatUtil.isEqual(texCoord[2], v.getTexCoord()[2], FloatUtil.EPSILON);
+        }
+        @Override
+        public final int hashCode() {
+            throw new InternalError("hashCode not designed");
+        }
+
+        /**
+         * @return deep clone of this view, detached from the shape
+         */
+        @Override
+        public Vertex clone() {
+            return new SVertex(this);
+        }
+
+        @Override
+        public String toString() {
+            return "[View "+index+", ID: " + id + ", onCurve: " + isOnCurve() +
+                   ": p " + getX() + ", " + getY() + ", " + getZ() +
+                   ", t " + texCoord[0] + ", " + texCoord[1] + ", " + texCoord[2] + "]";
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PackedOutlineShape[outlines "+outlineCount+", vertices "+size+", capacity "+x.length+"]";
+    }
+}
@@ -101,6 +101,33 @@ public abstract class Region {
      */
     public static final int COLORTEXTURE_RENDERING_BIT = 1 <<  10;
 
+    /**
+     * Rendering-Mode bit for {@link #getRenderModes() Region}
+     * <p>
+     * If set, shared shape geometry is drawn once per instance,
+     * each instance carrying its own offset, scale and color attribute.
+     * </p>
+     * <p>
+     * Only supported for one pass rendering by
+     * {@link com.jogamp.graph.curve.opengl.GLTextInstances}, requiring a GL2ES3 context.
+     * </p>
+     */
+    public static final int INSTANCED_RENDERING_BIT = 1 <<  11;
+
+    /**
+     * Rendering-Mode bit for {@link #getRenderModes() Region}
+     * <p>
+     * If set, glyphs are drawn as textured quads in one pass,
+     * the coverage being reconstructed from a multi-channel signed distance field atlas.
+     * The quads' curve parameters carry the atlas texture coordinates.
+     * </p>
+     * <p>
+     * Only supported for one pass rendering by
+     * {@link com.jogamp.graph.curve.opengl.GLSDFText}, see {@link MSDFGenerator}.
+     * </p>
+     */
+    public static final int SDF_RENDERING_BIT = 1 <<  12;
+
     /** Default maximum {@link #getQuality() quality}, {@value}. */
     public static final int MAX_QUALITY  = 1;
 
@@ -108,12 +135,22 @@ public abstract class Region {
 
     protected static final int DIRTY_SHAPE    = 1 << 0 ;
     protected static final int DIRTY_STATE    = 1 << 1 ;
+    /** Ranges of the shape have been replaced in place, see {@link #replaceTessellatedShape(int, TessellatedShape, AffineTransform, float[])} */
+    protected static final int DIRTY_SHAPE_RANGE = 1 << 2 ;
 
     private final int renderModes;
     private int quality;
     private int dirty = DIRTY_SHAPE | DIRTY_STATE;
     private int numVertices = 0;
+    private int numIndices = 0;
+    /** vertex start, vertex count, index start and index count of each added shape */
+    private int[] shapeRanges = new int[4*16];
+    /** low and high xyz of each added shape's vertices, allowing to recompute the bounding box on replacement */
+    private float[] shapeBounds = new float[6*16];
+    private int numShapes = 0;
     protected final AABBox box = new AABBox();
+    /** bounding box of the vertices of the shape being added or replaced */
+    private final AABBox shapeBox = new AABBox();
     protected Frustum frustum = null;
 
     public static boolean isVBAA(final int renderModes) {
@@ -155,16 +192,36 @@ public abstract class Region {
         return 0 != (renderModes & Region.COLORTEXTURE_RENDERING_BIT);
     }
 
+    /**
+     * Returns true if render mode uses instancing,
+     * i.e. the bit {@link #INSTANCED_RENDERING_BIT} is set,
+     * otherwise false.
+     */
+    public static boolean hasInstancing(final int renderModes) {
+        return 0 != (renderModes & Region.INSTANCED_RENDERING_BIT);
+    }
+
+    /**
+     * Returns true if render mode uses a signed distance field atlas,
+     * i.e. the bit {@link #SDF_RENDERING_BIT} is set,
+     * otherwise false.
+     */
+    public static boolean hasSDF(final int renderModes) {
+        return 0 != (renderModes & Region.SDF_RENDERING_BIT);
+    }
+
     public static String getRenderModeString(final int renderModes) {
         final String curveS = hasVariableWeight(renderModes) ? "-curve" : "";
         final String cChanS = hasColorChannel(renderModes) ? "-cols" : "";
         final String cTexS = hasColorTexture(renderModes) ? "-ctex" : "";
+        final String instS = hasInstancing(renderModes) ? "-inst" : "";
+        final String sdfS = hasSDF(renderModes) ? "-sdf" : "";
         if( Region.isVBAA(renderModes) ) {
-            return "vbaa"+curveS+cChanS+cTexS;
+            return "vbaa"+curveS+cChanS+cTexS+instS+sdfS;
         } else if( Region.isMSAA(renderModes) ) {
-            return "msaa"+curveS+cChanS+cTexS;
+            return "msaa"+curveS+cChanS+cTexS+instS+sdfS;
         } else {
-            return "norm"+curveS+cChanS+cTexS;
+            return "norm"+curveS+cChanS+cTexS+instS+sdfS;
         }
     }
 
@@ -173,12 +230,51 @@ public abstract class Region {
         this.quality = MAX_QUALITY;
     }
 
-    // FIXME: Better handling of impl. buffer growth .. !
-    // protected abstract void setupInitialComponentCount(int attributeCount, int indexCount);
+    /**
+     * Ensures the impl. buffers can hold the given number of additional vertices and indices,
+     * allowing a bulk of {@link #pushVertex(float[], float[], float[])} and {@link #pushIndex(int)}
+     * calls to grow them only once.
+     * <p>
+     * Default implementation does nothing.
+     * </p>
+     */
+    protected void setupInitialComponentCount(final int attributeCount, final int indexCount) { }
 
     protected abstract void pushVertex(final float[] coords, final float[] texParams, float[] rgba);
     protected abstract void pushIndex(int idx);
 
+    /**
+     * Returns true if this implementation supports
+     * {@link #replaceTessellatedShape(int, TessellatedShape, AffineTransform, float[]) replacing shapes} in place,
+     * i.e. implements {@link #replaceVertex(int, float[], float[], float[])} and {@link #replaceIndex(int, int)}.
+     * <p>
+     * Default implementation returns false.
+     * </p>
+     */
+    public boolean supportsShapeReplacement() { return false; }
+
+    /**
+     * Overwrites the vertex at the given index, previously added via {@link #pushVertex(float[], float[], float[])}.
+     * <p>
+     * Only called if {@link #supportsShapeReplacement()}, default implementation throws {@link UnsupportedOperationException}.
+     * </p>
+     * @see #replaceTessellatedShape(int, TessellatedShape, AffineTransform, float[])
+     */
+    protected void replaceVertex(final int index, final float[] coords, final float[] texParams, final float[] rgba) {
+        throw new UnsupportedOperationException("Shape range replacement not supported by "+getClass().getName());
+    }
+
+    /**
+     * Overwrites the index at the given position, previously added via {@link #pushIndex(int)}.
+     * <p>
+     * Only called if {@link #supportsShapeReplacement()}, default implementation throws {@link UnsupportedOperationException}.
+     * </p>
+     * @see #replaceTessellatedShape(int, TessellatedShape, AffineTransform, float[])
+     */
+    protected void replaceIndex(final int position, final int idx) {
+        throw new UnsupportedOperationException("Shape range replacement not supported by "+getClass().getName());
+    }
+
     /**
      * Return bit-field of render modes, see {@link GLRegion#create(int, TextureSequence)}.
      */
@@ -193,7 +289,10 @@ public abstract class Region {
     protected void clearImpl() {
         dirty = DIRTY_SHAPE | DIRTY_STATE;
         numVertices = 0;
+        numIndices = 0;
+        numShapes = 0;
         box.reset();
+        shapeBox.reset();
     }
 
     /**
@@ -249,24 +348,102 @@ public abstract class Region {
     final float[] coordsEx = new float[3];
 
     private void pushNewVertexImpl(final Vertex vertIn, final AffineTransform transform, final float[] rgba) {
+        pushNewVertexImpl(vertIn.getCoord(), vertIn.getTexCoord(), transform, rgba);
+    }
+
+    private void pushNewVertexImpl(final float[] coordsIn, final float[] texParams, final AffineTransform transform, final float[] rgba) {
+        pushVertex(transformImpl(coordsIn, transform), texParams, rgba);
+        numVertices++;
+    }
+
+    /** Returns the transformed coordinates, resizing the bounding box. */
+    private float[] transformImpl(final float[] coordsIn, final AffineTransform transform) {
         if( null != transform ) {
-            final float[] coordsIn = vertIn.getCoord();
             transform.transform(coordsIn, coordsEx);
             coordsEx[2] = coordsIn[2];
             box.resize(coordsEx[0], coordsEx[1], coordsEx[2]);
-            pushVertex(coordsEx, vertIn.getTexCoord(), rgba);
+            shapeBox.resize(coordsEx[0], coordsEx[1], coordsEx[2]);
+            return coordsEx;
         } else {
-            box.resize(vertIn.getX(), vertIn.getY(), vertIn.getZ());
-            pushVertex(vertIn.getCoord(), vertIn.getTexCoord(), rgba);
+            box.resize(coordsIn[0], coordsIn[1], coordsIn[2]);
+            shapeBox.resize(coordsIn[0], coordsIn[1], coordsIn[2]);
+            return coordsIn;
         }
-        numVertices++;
     }
 
     private void pushNewVertexIdxImpl(final Vertex vertIn, final AffineTransform transform, final float[] rgba) {
-        pushIndex(numVertices);
+        pushIndexImpl(numVertices);
         pushNewVertexImpl(vertIn, transform, rgba);
     }
 
+    private void pushIndexImpl(final int idx) {
+        pushIndex(idx);
+        numIndices++;
+    }
+
+    /** Adds the range of the shape being added, its bounds are taken from and reset {@link #shapeBox}. */
+    private void addShapeRange(final int vertexStart, final int vertexCount, final int indexStart, final int indexCount) {
+        if( 4*numShapes == shapeRanges.length ) {
+            final int[] tmp = new int[2*shapeRanges.length];
+            System.arraycopy(shapeRanges, 0, tmp, 0, shapeRanges.length);
+            shapeRanges = tmp;
+            final float[] tmpB = new float[2*shapeBounds.length];
+            System.arraycopy(shapeBounds, 0, tmpB, 0, shapeBounds.length);
+            shapeBounds = tmpB;
+        }
+        final int i = 4*numShapes;
+        shapeRanges[i+0] = vertexStart;
+        shapeRanges[i+1] = vertexCount;
+        shapeRanges[i+2] = indexStart;
+        shapeRanges[i+3] = indexCount;
+        setShapeBounds(numShapes++);
+    }
+
+    /** Stores and resets {@link #shapeBox} as the bounds of the given shape. */
+    private void setShapeBounds(final int shapeIndex) {
+        final int i = 6*shapeIndex;
+        System.arraycopy(shapeBox.getLow(), 0, shapeBounds, i, 3);
+        System.arraycopy(shapeBox.getHigh(), 0, shapeBounds, i+3, 3);
+        shapeBox.reset();
+    }
+
+    /** Returns true if the stored bounds of the given shape touch the border of the {@link #box bounding box}. */
+    private boolean isShapeOnBorder(final int shapeIndex) {
+        final int i = 6*shapeIndex;
+        final float[] low = box.getLow();
+        final float[] high = box.getHigh();
+        for(int k=0; k<3; k++) {
+            if( shapeBounds[i+k] <= low[k] || shapeBounds[i+3+k] >= high[k] ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Recomputes the {@link #box bounding box} from the stored bounds of all non-empty shapes. */
+    private void recomputeBounds() {
+        box.reset();
+        for(int s=0; s<numShapes; s++) {
+            if( 0 < shapeRanges[4*s+1] ) {
+                final int i = 6*s;
+                box.resize(shapeBounds[i+0], shapeBounds[i+1], shapeBounds[i+2]);
+                box.resize(shapeBounds[i+3], shapeBounds[i+4], shapeBounds[i+5]);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of shapes added since creation or last clear,
+     * each {@link #addOutlineShape(OutlineShape, AffineTransform, float[]) added OutlineShape} counts as one,
+     * each {@link #addTessellatedShape(TessellatedShape, AffineTransform, float[]) added TessellatedShape}
+     * as {@link TessellatedShape#getShapeCount()}. Frustum culled shapes are counted as well.
+     * <p>
+     * The shape index is used to {@link #replaceTessellatedShape(int, TessellatedShape, AffineTransform, float[]) replace}
+     * a shape's range in place.
+     * </p>
+     */
+    public final int getShapeCount() { return numShapes; }
+
     private final AABBox tmpBox = new AABBox();
 
     /**
@@ -292,6 +469,7 @@ public abstract class Region {
                 if(DEBUG_INSTANCE) {
                     System.err.println("Region.addOutlineShape(): Dropping outside shapeBoxT: "+shapeBoxT);
                 }
+                addShapeRange(numVertices, 0, numIndices, 0);
                 return;
             }
         }
@@ -308,6 +486,7 @@ public abstract class Region {
         // setupInitialComponentCount(verticeCount, indexCount); // FIXME: Use it ?
 
         final int idxOffset = numVertices;
+        final int idxStart = numIndices;
         int vertsVNewIdxCount = 0, vertsTMovIdxCount = 0, vertsTNewIdxCount = 0, tris = 0;
         final int vertsDupCountV = 0, vertsDupCountT = 0, vertsKnownMovedT = 0;
         if( vertsIn.size() >= 3 ) {
@@ -335,9 +514,9 @@ public abstract class Region {
                     if(Region.DEBUG_INSTANCE) {
                         System.err.println("T["+i+"]: Moved "+tv0Idx+" + "+idxOffset+" -> "+(tv0Idx+idxOffset));
                     }
-                    pushIndex(tv0Idx+idxOffset);
-                    pushIndex(triInVertices[1].getId()+idxOffset);
-                    pushIndex(triInVertices[2].getId()+idxOffset);
+                    pushIndexImpl(tv0Idx+idxOffset);
+                    pushIndexImpl(triInVertices[1].getId()+idxOffset);
+                    pushIndexImpl(triInVertices[2].getId()+idxOffset);
                     vertsTMovIdxCount+=3;
                 } else {
                     // invalid idx - generate new one
@@ -360,6 +539,7 @@ public abstract class Region {
             // int vertsDupCountV = 0, vertsDupCountT = 0;
             System.err.println("Region.addOutlineShape().X: box "+box);
         }
+        addShapeRange(idxOffset, numVertices - idxOffset, idxStart, numIndices - idxStart);
         markShapeDirty();
     }
 
@@ -369,6 +549,162 @@ public abstract class Region {
         }
     }
 
+    private final float[] coordsIn = new float[3];
+    private final float[] texParamsIn = new float[3];
+
+    /**
+     * Add the given {@link TessellatedShape} to this region,
+     * growing the impl. buffers once for all of its vertices and indices.
+     * <p>
+     * Produces the same vertices and indices as {@link #addOutlineShape(OutlineShape, AffineTransform, float[])}
+     * for each of the tessellated shapes.
+     * </p>
+     * @param tess the tessellated shapes, see {@link ShapeTessellator}
+     * @param t the optional {@link AffineTransform} to be applied on each vertex
+     * @param rgbaColor if {@link #hasColorChannel()} RGBA color must be passed, otherwise value is ignored.
+     * @throws IllegalArgumentException if the region's vertices would exceed the 16-bit index range of 65536 vertices
+     */
+    public final void addTessellatedShape(final TessellatedShape tess, final AffineTransform t, final float[] rgbaColor) {
+        if( null != frustum ) {
+            final AABBox shapeBoxT;
+            if( null != t ) {
+                t.transform(tess.getBounds(), tmpBox);
+                shapeBoxT = tmpBox;
+            } else {
+                shapeBoxT = tess.getBounds();
+            }
+            if( frustum.isAABBoxOutside(shapeBoxT) ) {
+                if(DEBUG_INSTANCE) {
+                    System.err.println("Region.addTessellatedShape(): Dropping outside shapeBoxT: "+shapeBoxT);
+                }
+                for(int s=tess.getShapeCount(); s>0; s--) {
+                    addShapeRange(numVertices, 0, numIndices, 0);
+                }
+                return;
+            }
+        }
+        final int vertexCount = tess.getVertexCount();
+        final int indexCount = tess.getIndexCount();
+        if( 0 == indexCount ) {
+            for(int s=tess.getShapeCount(); s>0; s--) {
+                addShapeRange(numVertices, 0, numIndices, 0);
+            }
+            return;
+        }
+        if( numVertices + vertexCount > 0x10000 ) {
+            // indices are rendered as GL_UNSIGNED_SHORT
+            throw new IllegalArgumentException("Region vertices "+numVertices+" + "+vertexCount+" exceed 16-bit index range, split "+tess+" into smaller batches");
+        }
+        setupInitialComponentCount(vertexCount, indexCount);
+
+        final int idxOffset = numVertices;
+        final int idxStart = numIndices;
+        final float[] coords = tess.coords;
+        final float[] curveParams = tess.curveParams;
+        for(int s=0; s<tess.getShapeCount(); s++) {
+            final int vStart = tess.getShapeVertexOffset(s);
+            final int vEnd = tess.getShapeVertexOffset(s+1);
+            for(int i=vStart; i<vEnd; i++) {
+                System.arraycopy(coords, 3*i, coordsIn, 0, 3);
+                System.arraycopy(curveParams, 3*i, texParamsIn, 0, 3);
+                pushNewVertexImpl(coordsIn, texParamsIn, t, rgbaColor);
+            }
+            addShapeRange(idxOffset + vStart, vEnd - vStart,
+                          idxStart + tess.getShapeIndexOffset(s), tess.getShapeIndexOffset(s+1) - tess.getShapeIndexOffset(s));
+        }
+        final int[] indices = tess.indices;
+        for(int i=0; i<indexCount; i++) {
+            pushIndexImpl(indices[i]+idxOffset);
+        }
+        if(DEBUG_INSTANCE) {
+            System.err.println("Region.addTessellatedShape().X: idxOffset "+idxOffset+", verts "+vertexCount+", indices "+indexCount+", box "+box);
+        }
+        markShapeDirty();
+    }
+
+    /**
+     * Replaces the vertices and indices of the given {@link #getShapeCount() shape index} in place,
+     * see {@link #replaceTessellatedShape(int, TessellatedShape, AffineTransform, float[])}.
+     * <p>
+     * Replacing a shape with itself using a different {@link AffineTransform}, e.g. to move it,
+     * only transforms its cached triangulation.
+     * </p>
+     * @return true if replaced, false if the vertex or index count differs or replacement is not
+     *         {@link #supportsShapeReplacement() supported} and nothing has been modified
+     */
+    public final boolean replaceOutlineShape(final int shapeIndex, final OutlineShape shape, final AffineTransform t, final float[] rgbaColor)
+            throws IndexOutOfBoundsException {
+        return replaceTessellatedShape(shapeIndex, TessellatedShape.create(shape), t, rgbaColor);
+    }
+
+    /**
+     * Replaces the vertices and indices of the {@link TessellatedShape#getShapeCount() shapes} starting
+     * at the given {@link #getShapeCount() shape index} in place, without re-adding all shapes of this region.
+     * <p>
+     * Replacement requires each shape's vertex and index count to be equal to the one it replaces.
+     * Only the modified ranges will be uploaded with the next draw call, instead of all vertices and indices.
+     * </p>
+     * <p>
+     * Frustum culling is not applied. The {@link #getBounds() bounding box} grows to include the new vertices
+     * and is recomputed from all shapes if a replaced shape was located at its border, i.e. it may shrink.
+     * </p>
+     * @param shapeIndex index of the first shape to replace
+     * @param tess the replacing shapes
+     * @param t the optional {@link AffineTransform} to be applied on each vertex
+     * @param rgbaColor if {@link #hasColorChannel()} RGBA color must be passed, otherwise value is ignored.
+     * @return true if replaced, false if a vertex or index count differs or replacement is not
+     *         {@link #supportsShapeReplacement() supported} and nothing has been modified
+     * @throws IndexOutOfBoundsException if the shapes are out of range [0 .. {@link #getShapeCount()})
+     */
+    public final boolean replaceTessellatedShape(final int shapeIndex, final TessellatedShape tess, final AffineTransform t, final float[] rgbaColor)
+            throws IndexOutOfBoundsException {
+        final int shapeCount = tess.getShapeCount();
+        if( 0 > shapeIndex || shapeIndex + shapeCount > numShapes ) {
+            throw new IndexOutOfBoundsException("shapes ["+shapeIndex+" .. "+(shapeIndex+shapeCount)+") not within [0 .. "+numShapes+")");
+        }
+        if( !supportsShapeReplacement() ) {
+            return false;
+        }
+        for(int s=0; s<shapeCount; s++) {
+            final int r = 4*(shapeIndex+s);
+            if( shapeRanges[r+1] != tess.getShapeVertexOffset(s+1) - tess.getShapeVertexOffset(s) ||
+                shapeRanges[r+3] != tess.getShapeIndexOffset(s+1) - tess.getShapeIndexOffset(s) ) {
+                return false;
+            }
+        }
+        boolean shrink = false;
+        for(int s=0; s<shapeCount; s++) {
+            shrink = shrink || isShapeOnBorder(shapeIndex+s);
+        }
+        shapeBox.reset();
+        for(int s=0; s<shapeCount; s++) {
+            final int r = 4*(shapeIndex+s);
+            final int vStart = tess.getShapeVertexOffset(s);
+            final int vEnd = tess.getShapeVertexOffset(s+1);
+            final int vOffset = shapeRanges[r+0] - vStart;
+            for(int v=vStart; v<vEnd; v++) {
+                System.arraycopy(tess.coords, 3*v, coordsIn, 0, 3);
+                System.arraycopy(tess.curveParams, 3*v, texParamsIn, 0, 3);
+                replaceVertex(v + vOffset, transformImpl(coordsIn, t), texParamsIn, rgbaColor);
+            }
+            final int iStart = tess.getShapeIndexOffset(s);
+            final int iEnd = tess.getShapeIndexOffset(s+1);
+            final int iOffset = shapeRanges[r+2] - iStart;
+            for(int i=iStart; i<iEnd; i++) {
+                replaceIndex(i + iOffset, tess.indices[i] + vOffset);
+            }
+            setShapeBounds(shapeIndex+s);
+        }
+        if( shrink ) {
+            recomputeBounds();
+        }
+        if(DEBUG_INSTANCE) {
+            System.err.println("Region.replaceTessellatedShape().X: shapes ["+shapeIndex+" .. "+(shapeIndex+shapeCount)+"), box "+box);
+        }
+        dirty |= DIRTY_SHAPE_RANGE;
+        return true;
+    }
+
     /** @return the AxisAligned bounding box of current region */
     public final AABBox getBounds() {
         return box;
@@ -385,6 +721,13 @@ public abstract class Region {
     public final boolean isShapeDirty() {
         return 0 != ( dirty & DIRTY_SHAPE ) ;
     }
+    /**
+     * Returns true if ranges of this region's shape have been replaced,
+     * see {@link #replaceTessellatedShape(int, TessellatedShape, AffineTransform, float[])}.
+     */
+    public final boolean isShapeRangeDirty() {
+        return 0 != ( dirty & DIRTY_SHAPE_RANGE ) ;
+    }
     /**
      * Mark this region's state dirty, i.e.
      * it's render attributes or parameters changed.
@@ -0,0 +1,442 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.graph.curve;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jogamp.graph.geom.plane.AffineTransform;
+
+import com.jogamp.graph.geom.Outline;
+import com.jogamp.graph.geom.SVertex;
+import com.jogamp.graph.geom.Vertex;
+import com.jogamp.opengl.math.geom.AABBox;
+
+/**
+ * Triangulates batches of {@link OutlineShape}s concurrently
+ * and merges the result into one pre-sized {@link TessellatedShape},
+ * to be added to a {@link Region} in one go via {@link Region#addTessellatedShape(TessellatedShape, AffineTransform, float[])}.
+ * <p>
+ * The batch is split in chunks of shapes processed by the {@link #setExecutor(ExecutorService) executor},
+ * the merge copies the chunks concurrently into the pre-sized result.
+ * </p>
+ * <p>
+ * Tessellated shapes are cached by their outlines, sharpness and triangulation type,
+ * looked up via a 64-bit hash computed before triangulation and compared in full on a hash match.
+ * Rebuilding a batch of re-created but unchanged shapes hence does not triangulate them again.
+ * </p>
+ * <p>
+ * Note: Triangulation modifies the {@link OutlineShape}s, which hence shall not be used
+ * by other threads while being tessellated. Same shape instances within one batch are triangulated once.
+ * </p>
+ */
+public class ShapeTessellator {
+    /** Default maximum number of cached {@link TessellatedShape}s, {@value}. */
+    public static final int DEFAULT_CACHE_SIZE = 4096;
+
+    /** Minimum number of shapes per concurrent chunk */
+    private static final int MIN_CHUNK_SHAPES = 64;
+
+    private static ExecutorService sharedExecutor = null;
+
+    /** Cache key, the hashed shape data compared on a hash match */
+    private static final class ShapeKey {
+        final int[] data;
+        final long hash;
+
+        ShapeKey(final int[] data) {
+            this.data = data;
+            this.hash = getHash(data);
+        }
+        @Override
+        public final int hashCode() { return (int) ( hash ^ ( hash >>> 32 ) ); }
+        @Override
+        public final boolean equals(final Object o) {
+            if( this == o ) {
+                return true;
+            }
+            if( !(o instanceof ShapeKey) ) {
+                return false;
+            }
+            final ShapeKey k = (ShapeKey) o;
+            return hash == k.hash && Arrays.equals(data, k.data);
+        }
+    }
+
+    private final LinkedHashMap<ShapeKey, TessellatedShape> cache;
+    private final int cacheSize;
+    private ExecutorService executor;
+    private final AtomicInteger cacheHits = new AtomicInteger();
+    private final AtomicInteger cacheMisses = new AtomicInteger();
+
+    /**
+     * Creates an instance using the {@link #getSharedExecutor() shared executor}
+     * and a cache of {@link #DEFAULT_CACHE_SIZE} entries.
+     */
+    public ShapeTessellator() {
+        this(getSharedExecutor(), DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param executor executor to process the chunks of a batch, <code>null</code> processes them on the calling thread
+     * @param cacheSize maximum number of cached {@link TessellatedShape}s, zero disables the cache
+     */
+    public ShapeTessellator(final ExecutorService executor, final int cacheSize) {
+        this.executor = executor;
+        this.cacheSize = cacheSize;
+        this.cache = new LinkedHashMap<ShapeKey, TessellatedShape>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<ShapeKey, TessellatedShape> eldest) {
+                return size() > ShapeTessellator.this.cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Returns a lazily created executor shared by all users of this class,
+     * with one daemon thread per available processor.
+     * Returns <code>null</code> on a single processor machine.
+     */
+    public static synchronized ExecutorService getSharedExecutor() {
+        if( null == sharedExecutor ) {
+            final int threads = Runtime.getRuntime().availableProcessors();
+            if( 1 < threads ) {
+                final AtomicInteger threadNum = new AtomicInteger(0);
+                sharedExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                    @Override
+                    public Thread newThread(final Runnable r) {
+                        final Thread t = new Thread(r, "Graph-Tessellator-Worker-" + threadNum.getAndIncrement());
+                        t.setDaemon(true);
+                        return t;
+                    } } );
+            }
+        }
+        return sharedExecutor;
+    }
+
+    /**
+     * Sets the executor to process the chunks of a batch,
+     * <code>null</code> processes them on the calling thread.
+     */
+    public final void setExecutor(final ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    public final ExecutorService getExecutor() { return executor; }
+
+    /** Returns the number of cached {@link TessellatedShape}s. */
+    public final int getCacheCount() {
+        synchronized( cache ) {
+            return cache.size();
+        }
+    }
+
+    /** Returns the number of shapes taken from the cache. */
+    public final int getCacheHitCount() { return cacheHits.get(); }
+
+    /** Returns the number of triangulated shapes. */
+    public final int getCacheMissCount() { return cacheMisses.get(); }
+
+    /** Clears the cache and its statistics. */
+    public final void clearCache() {
+        synchronized( cache ) {
+            cache.clear();
+        }
+        cacheHits.set(0);
+        cacheMisses.set(0);
+    }
+
+    /**
+     * Returns a 64-bit hash of the given shape's outlines, sharpness and triangulation type.
+     */
+    public static long getHash(final OutlineShape shape) {
+        return getHash(getKeyData(shape));
+    }
+
+    /**
+     * Returns a 64-bit hash of the given packed shape, equal to {@link #getHash(OutlineShape)}
+     * of its {@link PackedOutlineShape#toOutlineShape(Vertex.Factory) unpacked} shape.
+     */
+    public static long getHash(final PackedOutlineShape shape) {
+        return getHash(getKeyData(shape));
+    }
+
+    /** Returns the hashed data of the given shape: outline state, triangulation type, sharpness and outlines. */
+    private static int[] getKeyData(final OutlineShape shape) {
+        final int outlineCount = shape.getOutlineNumber();
+        int size = 4 + outlineCount;
+        for(int o=0; o<outlineCount; o++) {
+            size += 4 * shape.getOutline(o).getVertexCount();
+        }
+        final int[] data = new int[size];
+        int p = 0;
+        data[p++] = shape.getOutlineState().ordinal();
+        data[p++] = shape.getTriangulationType().ordinal();
+        data[p++] = Float.floatToIntBits(shape.getSharpness());
+        data[p++] = outlineCount;
+        for(int o=0; o<outlineCount; o++) {
+            final Outline outline = shape.getOutline(o);
+            final int vertexCount = outline.getVertexCount();
+            data[p++] = vertexCount;
+            for(int i=0; i<vertexCount; i++) {
+                final Vertex v = outline.getVertex(i);
+                data[p++] = Float.floatToIntBits(v.getX());
+                data[p++] = Float.floatToIntBits(v.getY());
+                data[p++] = Float.floatToIntBits(v.getZ());
+                data[p++] = v.isOnCurve() ? 1 : 0;
+            }
+        }
+        return data;
+    }
+
+    /** Returns the hashed data of the given packed shape, equal to the one of its unpacked shape. */
+    private static int[] getKeyData(final PackedOutlineShape shape) {
+        final int outlineCount = shape.getOutlineNumber();
+        int size = 4 + outlineCount;
+        for(int o=0; o<outlineCount; o++) {
+            size += 4 * shape.getOutlineVertexCount(o);
+        }
+        final int[] data = new int[size];
+        int p = 0;
+        data[p++] = shape.getOutlineState().ordinal();
+        data[p++] = shape.getTriangulationType().ordinal();
+        data[p++] = Float.floatToIntBits(shape.getSharpness());
+        data[p++] = outlineCount;
+        for(int o=0; o<outlineCount; o++) {
+            final int start = shape.getOutlineStart(o);
+            final int vertexCount = shape.getOutlineVertexCount(o);
+            data[p++] = vertexCount;
+            for(int i=start; i<start+vertexCount; i++) {
+                data[p++] = Float.floatToIntBits(shape.getX(i));
+                data[p++] = Float.floatToIntBits(shape.getY(i));
+                data[p++] = Float.floatToIntBits(shape.getZ(i));
+                data[p++] = shape.isOnCurve(i) ? 1 : 0;
+            }
+        }
+        return data;
+    }
+
+    private static long getHash(final int[] data) {
+        long h = 0xcbf29ce484222325L; // FNV-1a
+        for(int i=0; i<data.length; i++) {
+            h = hash(h, data[i]);
+        }
+        return h;
+    }
+
+    private static long hash(long h, final int v) {
+        for(int i=0; i<32; i+=8) {
+            h ^= ( v >>> i ) & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * Returns the cached or newly created {@link TessellatedShape} of the given shape.
+     */
+    public final TessellatedShape tessellate(final OutlineShape shape) {
+        if( 0 >= cacheSize ) {
+            cacheMisses.incrementAndGet();
+            return TessellatedShape.create(shape);
+        }
+        final ShapeKey key = new ShapeKey(getKeyData(shape));
+        final TessellatedShape cached = getCached(key);
+        if( null != cached ) {
+            return cached;
+        }
+        return putCached(key, TessellatedShape.create(shape));
+    }
+
+    /**
+     * Returns the cached or newly created {@link TessellatedShape} of the given packed shape.
+     * <p>
+     * The packed vertices are only {@link PackedOutlineShape#toOutlineShape(Vertex.Factory) unpacked}
+     * for triangulation if not cached. Packed and unpacked shapes of equal content share the cache entry.
+     * </p>
+     */
+    public final TessellatedShape tessellate(final PackedOutlineShape shape) {
+        if( 0 >= cacheSize ) {
+            cacheMisses.incrementAndGet();
+            return TessellatedShape.create(shape.toOutlineShape(SVertex.factory()));
+        }
+        final ShapeKey key = new ShapeKey(getKeyData(shape));
+        final TessellatedShape cached = getCached(key);
+        if( null != cached ) {
+            return cached;
+        }
+        return putCached(key, TessellatedShape.create(shape.toOutlineShape(SVertex.factory())));
+    }
+
+    private TessellatedShape getCached(final ShapeKey key) {
+        final TessellatedShape res;
+        synchronized( cache ) {
+            res = cache.get(key);
+        }
+        if( null != res ) {
+            cacheHits.incrementAndGet();
+        } else {
+            cacheMisses.incrementAndGet();
+        }
+        return res;
+    }
+
+    private TessellatedShape putCached(final ShapeKey key, final TessellatedShape res) {
+        synchronized( cache ) {
+            cache.put(key, res);
+        }
+        return res;
+    }
+
+    /**
+     * Tessellates all given shapes concurrently and merges them into one {@link TessellatedShape},
+     * preserving their order.
+     * @throws InterruptedException if interrupted while waiting for the executor tasks
+     */
+    public final TessellatedShape tessellate(final List<OutlineShape> shapes) throws InterruptedException {
+        final int count = shapes.size();
+        final TessellatedShape[] parts = new TessellatedShape[count];
+
+        // same instances are triangulated once
+        final IdentityHashMap<OutlineShape, Integer> firstIndex = new IdentityHashMap<OutlineShape, Integer>(count);
+        final int[] sameAs = new int[count];
+        for(int i=0; i<count; i++) {
+            final Integer first = firstIndex.get(shapes.get(i));
+            if( null == first ) {
+                firstIndex.put(shapes.get(i), Integer.valueOf(i));
+                sameAs[i] = -1;
+            } else {
+                sameAs[i] = first.intValue();
+            }
+        }
+        run(count, new Chunk() {
+            @Override
+            public void run(final int start, final int end) {
+                for(int i=start; i<end; i++) {
+                    if( 0 > sameAs[i] ) {
+                        parts[i] = tessellate(shapes.get(i));
+                    }
+                }
+            } } );
+        int vertexCount = 0;
+        int indexCount = 0;
+        final int[] vertexOffsets = new int[count+1];
+        final int[] indexOffsets = new int[count+1];
+        final AABBox bounds = new AABBox();
+        for(int i=0; i<count; i++) {
+            if( 0 <= sameAs[i] ) {
+                parts[i] = parts[sameAs[i]];
+            }
+            vertexOffsets[i] = vertexCount;
+            indexOffsets[i] = indexCount;
+            vertexCount += parts[i].getVertexCount();
+            indexCount += parts[i].getIndexCount();
+            if( 0 < parts[i].getVertexCount() ) {
+                bounds.resize(parts[i].getBounds());
+            }
+        }
+        vertexOffsets[count] = vertexCount;
+        indexOffsets[count] = indexCount;
+        final float[] coords = new float[3*vertexCount];
+        final float[] curveParams = new float[3*vertexCount];
+        final int[] indices = new int[indexCount];
+        run(count, new Chunk() {
+            @Override
+            public void run(final int start, final int end) {
+                for(int i=start; i<end; i++) {
+                    final TessellatedShape p = parts[i];
+                    final int vertexOffset = vertexOffsets[i];
+                    System.arraycopy(p.coords, 0, coords, 3*vertexOffset, p.coords.length);
+                    System.arraycopy(p.curveParams, 0, curveParams, 3*vertexOffset, p.curveParams.length);
+                    final int[] pIndices = p.indices;
+                    final int indexOffset = indexOffsets[i];
+                    for(int j=0; j<pIndices.length; j++) {
+                        indices[indexOffset+j] = pIndices[j] + vertexOffset;
+                    }
+                }
+            } } );
+        return new TessellatedShape(coords, curveParams, indices, bounds, vertexOffsets, indexOffsets);
+    }
+
+    private static interface Chunk {
+        void run(int start, int end);
+    }
+
+    /**
+     * Runs the given chunk on all items, split into concurrent chunks if an executor is set.
+     */
+    private void run(final int count, final Chunk chunk) throws InterruptedException {
+        final ExecutorService exec = executor;
+        if( null == exec || count < 2 * MIN_CHUNK_SHAPES ) {
+            chunk.run(0, count);
+            return;
+        }
+        final int chunks = Math.min( ( count + MIN_CHUNK_SHAPES - 1 ) / MIN_CHUNK_SHAPES, 4 * Runtime.getRuntime().availableProcessors() );
+        final int chunkSize = ( count + chunks - 1 ) / chunks;
+        final ArrayList<Future<Object>> results = new ArrayList<Future<Object>>(chunks);
+        try {
+            for(int start=chunkSize; start<count; start+=chunkSize) {
+                final int s = start;
+                final int e = Math.min(count, start + chunkSize);
+                results.add( exec.submit( new Callable<Object>() {
+                    @Override
+                    public Object call() {
+                        chunk.run(s, e);
+                        return null;
+                    } } ) );
+            }
+            // first chunk on the calling thread
+            chunk.run(0, Math.min(count, chunkSize));
+            for(int i=0; i<results.size(); i++) {
+                results.get(i).get();
+            }
+        } catch (final ExecutionException ee) {
+            final Throwable t = ee.getCause();
+            if( t instanceof RuntimeException ) {
+                throw (RuntimeException) t;
+            }
+            throw new RuntimeException(t);
+        } finally {
+            for(int i=0; i<results.size(); i++) {
+                results.get(i).cancel(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.graph.curve;
+
+import java.util.ArrayList;
+
+import jogamp.graph.geom.plane.AffineTransform;
+
+import com.jogamp.graph.geom.Triangle;
+import com.jogamp.graph.geom.Vertex;
+import com.jogamp.opengl.math.geom.AABBox;
+
+/**
+ * Immutable triangulation of one or more {@link OutlineShape}s,
+ * i.e. the vertices, curve parameters and indices as pushed into a {@link Region}
+ * by {@link Region#addOutlineShape(OutlineShape, AffineTransform, float[])}.
+ * <p>
+ * Instances are created by {@link ShapeTessellator} and added to a region
+ * in one go via {@link Region#addTessellatedShape(TessellatedShape, AffineTransform, float[])}.
+ * </p>
+ */
+public final class TessellatedShape {
+    /* pp */ final float[] coords;
+    /* pp */ final float[] curveParams;
+    /* pp */ final int[] indices;
+    private final AABBox bounds;
+    /** first vertex and index of each shape, followed by the total count */
+    private final int[] vertexOffsets;
+    private final int[] indexOffsets;
+
+    /* pp */ TessellatedShape(final float[] coords, final float[] curveParams, final int[] indices, final AABBox bounds,
+                              final int[] vertexOffsets, final int[] indexOffsets) {
+        this.coords = coords;
+        this.curveParams = curveParams;
+        this.indices = indices;
+        this.bounds = bounds;
+        this.vertexOffsets = vertexOffsets;
+        this.indexOffsets = indexOffsets;
+    }
+
+    /**
+     * Triangulates the given shape, see {@link OutlineShape#getTriangles(OutlineShape.VerticesState)}.
+     */
+    /* pp */ static TessellatedShape create(final OutlineShape shape) {
+        final ArrayList<Triangle> tris = shape.getTriangles(OutlineShape.VerticesState.QUADRATIC_NURBS);
+        final ArrayList<Vertex> verts = shape.getVertices();
+        final AABBox bounds = new AABBox();
+        if( verts.size() < 3 ) {
+            return new TessellatedShape(new float[0], new float[0], new int[0], bounds, new int[] { 0, 0 }, new int[] { 0, 0 });
+        }
+        // triangles w/o valid vertex ids carry their own vertices
+        int newVertices = 0;
+        for(int i=0; i<tris.size(); i++) {
+            if( Integer.MAX_VALUE == tris.get(i).getVertices()[0].getId() ) {
+                newVertices += 3;
+            }
+        }
+        final int vertexCount = verts.size() + newVertices;
+        final float[] coords = new float[3*vertexCount];
+        final float[] curveParams = new float[3*vertexCount];
+        final int[] indices = new int[3*tris.size()];
+        int v = 0;
+        for(int i=0; i<verts.size(); i++) {
+            putVertex(verts.get(i), coords, curveParams, v++, bounds);
+        }
+        int idx = 0;
+        for(int i=0; i<tris.size(); i++) {
+            final Vertex[] triVertices = tris.get(i).getVertices();
+            if( Integer.MAX_VALUE == triVertices[0].getId() ) {
+                for(int j=0; j<3; j++) {
+                    indices[idx++] = v;
+                    putVertex(triVertices[j], coords, curveParams, v++, bounds);
+                }
+            } else {
+                indices[idx++] = triVertices[0].getId();
+                indices[idx++] = triVertices[1].getId();
+                indices[idx++] = triVertices[2].getId();
+            }
+        }
+        return new TessellatedShape(coords, curveParams, indices, bounds, new int[] { 0, vertexCount }, new int[] { 0, indices.length });
+    }
+
+    private static void putVertex(final Vertex vertex, final float[] coords, final float[] curveParams, final int v, final AABBox bounds) {
+        System.arraycopy(vertex.getCoord(), 0, coords, 3*v, 3);
+        System.arraycopy(vertex.getTexCoord(), 0, curveParams, 3*v, 3);
+        bounds.resize(vertex.getX(), vertex.getY(), vertex.getZ());
+    }
+
+    /** Returns the number of vertices. */
+    public final int getVertexCount() { return coords.length / 3; }
+
+    /** Returns the number of indices, three per triangle. */
+    public final int getIndexCount() { return indices.length; }
+
+    /** Returns the number of tessellated {@link OutlineShape}s. */
+    public final int getShapeCount() { return vertexOffsets.length - 1; }
+
+    /**
+     * Returns the first vertex of the given shape, or the vertex count for {@code shape} == {@link #getShapeCount()}.
+     * The vertices of shape {@code i} are {@code [getShapeVertexOffset(i) .. getShapeVertexOffset(i+1))}.
+     */
+    public final int getShapeVertexOffset(final int shape) { return vertexOffsets[shape]; }
+
+    /**
+     * Returns the first index of the given shape, or the index count for {@code shape} == {@link #getShapeCount()}.
+     * The indices of shape {@code i} are {@code [getShapeIndexOffset(i) .. getShapeIndexOffset(i+1))}.
+     */
+    public final int getShapeIndexOffset(final int shape) { return indexOffsets[shape]; }
+
+    /** Returns the bounding box of all vertices, not to be modified. */
+    public final AABBox getBounds() { return bounds; }
+
+    /** Copies the coordinates of the given vertex. */
+    public final void getCoord(final int vertex, final float[] dst) {
+        System.arraycopy(coords, 3*vertex, dst, 0, 3);
+    }
+
+    /** Copies the curve parameters, i.e. texture coordinates, of the given vertex. */
+    public final void getCurveParams(final int vertex, final float[] dst) {
+        System.arraycopy(curveParams, 3*vertex, dst, 0, 3);
+    }
+
+    /** Returns the vertex index at the given position. */
+    public final int getIndex(final int i) { return indices[i]; }
+
+    @Override
+    public String toString() {
+        return "TessellatedShape[shapes "+getShapeCount()+", vertices "+getVertexCount()+", indices "+getIndexCount()+", "+bounds+"]";
+    }
+}
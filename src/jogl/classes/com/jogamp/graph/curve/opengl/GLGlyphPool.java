@@ -0,0 +1,294 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.graph.curve.opengl;
+
+import java.util.HashMap;
+import java.util.Iterator;
+
+import com.jogamp.opengl.GL;
+import com.jogamp.opengl.GL2ES2;
+
+import jogamp.graph.curve.opengl.shader.AttributeNames;
+
+import com.jogamp.common.util.IntObjectHashMap;
+import com.jogamp.graph.curve.OutlineShape;
+import com.jogamp.graph.curve.Region;
+import com.jogamp.graph.font.Font;
+import com.jogamp.opengl.util.GLArrayDataServer;
+import com.jogamp.opengl.util.glsl.ShaderProgram;
+
+/**
+ * Shared pool of tessellated {@link Font.Glyph} geometry,
+ * i.e. one vertex, curve-parameter and index buffer holding each used glyph's {@link OutlineShape}
+ * in font units exactly once.
+ * <p>
+ * Glyphs are tessellated on first use via {@link #getEntry(Font, Font.Glyph)} and appended to the pool,
+ * which is uploaded again at the next {@link #update(GL2ES2)} only if new glyphs have been added.
+ * The pool is referenced by any number of {@link GLTextInstances}, which draw each glyph
+ * as a positioned, scaled and colored instance of its {@link Entry}.
+ * </p>
+ * <p>
+ * Indices are of type {@link GL#GL_UNSIGNED_INT}, hence the pool is not limited to 64k vertices.
+ * </p>
+ * <p>
+ * Not thread safe, shall be used on the GL thread only.
+ * </p>
+ */
+public class GLGlyphPool {
+    /** Glyph geometry within the pool, see {@link GLGlyphPool#getEntry(Font, Font.Glyph)}. */
+    public static final class Entry {
+        private final int id;
+        private final int firstIndex;
+        private final int indexCount;
+
+        Entry(final int id, final int firstIndex, final int indexCount) {
+            this.id = id;
+            this.firstIndex = firstIndex;
+            this.indexCount = indexCount;
+        }
+        /** Returns the unique id of this entry within its pool, starting w/ zero. */
+        public final int getId() { return id; }
+        /** Returns the first index of the glyph's triangles within the pool's index buffer. */
+        public final int getFirstIndex() { return firstIndex; }
+        /** Returns the number of indices, i.e. three times the number of triangles. Zero for empty glyphs. */
+        public final int getIndexCount() { return indexCount; }
+
+        @Override
+        public String toString() {
+            return "Entry["+id+", idx "+firstIndex+" + "+indexCount+"]";
+        }
+    }
+
+    /** {@link Region} sink pushing the tessellated shapes into the pool's buffers. */
+    private final class Sink extends Region {
+        int vertexCount = 0;
+        int indexCount = 0;
+
+        Sink() {
+            super(0);
+        }
+        @Override
+        protected final void pushVertex(final float[] coords, final float[] texParams, final float[] rgba) {
+            gca_VerticesAttr.putf(coords[0]);
+            gca_VerticesAttr.putf(coords[1]);
+            gca_VerticesAttr.putf(coords[2]);
+
+            gca_CurveParamsAttr.putf(texParams[0]);
+            gca_CurveParamsAttr.putf(texParams[1]);
+            gca_CurveParamsAttr.putf(texParams[2]);
+            vertexCount++;
+        }
+        @Override
+        protected final void pushIndex(final int idx) {
+            indicesBuffer.puti(idx);
+            indexCount++;
+        }
+        final void reset() {
+            clearImpl();
+            vertexCount = 0;
+            indexCount = 0;
+        }
+    }
+
+    private GLArrayDataServer gca_VerticesAttr;
+    private GLArrayDataServer gca_CurveParamsAttr;
+    private GLArrayDataServer indicesBuffer;
+    private final Sink sink = new Sink();
+    private final HashMap<Font, IntObjectHashMap> fontEntries = new HashMap<Font, IntObjectHashMap>();
+    private int entryCount = 0;
+    private boolean dirty = true;
+    private ShaderProgram sp = null;
+
+    public GLGlyphPool() {
+        final int initialElementCount = 4096;
+        indicesBuffer = GLArrayDataServer.createData(3, GL.GL_UNSIGNED_INT, initialElementCount, GL.GL_STATIC_DRAW, GL.GL_ELEMENT_ARRAY_BUFFER);
+
+        gca_VerticesAttr = GLArrayDataServer.createGLSL(AttributeNames.VERTEX_ATTR_NAME, 3, GL.GL_FLOAT,
+                                                        false, initialElementCount, GL.GL_STATIC_DRAW);
+
+        gca_CurveParamsAttr = GLArrayDataServer.createGLSL(AttributeNames.CURVEPARAMS_ATTR_NAME, 3, GL.GL_FLOAT,
+                                                           false, initialElementCount, GL.GL_STATIC_DRAW);
+    }
+
+    /**
+     * Returns the {@link Entry} of the given glyph,
+     * tessellating and appending its {@link OutlineShape} to the pool if not contained yet.
+     * <p>
+     * Glyphs are identified by their {@link Font} and {@link Font.Glyph#getID() ID},
+     * hence a glyph re-created by its font maps to the same entry.
+     * </p>
+     * @param font the {@link Font} of the glyph
+     * @param glyph the {@link Font.Glyph}
+     */
+    public final Entry getEntry(final Font font, final Font.Glyph glyph) {
+        IntObjectHashMap entries = fontEntries.get(font);
+        if( null == entries ) {
+            entries = new IntObjectHashMap();
+            fontEntries.put(font, entries);
+        }
+        final int glyphId = glyph.getID();
+        Entry entry = (Entry) entries.get(glyphId);
+        if( null == entry ) {
+            final OutlineShape shape = glyph.getShape();
+            final int firstIndex = sink.indexCount;
+            if( null != shape ) {
+                if( !dirty ) {
+                    // unseal for appending
+                    indicesBuffer.seal(false);
+                    gca_VerticesAttr.seal(false);
+                    gca_CurveParamsAttr.seal(false);
+                    dirty = true;
+                }
+                sink.addOutlineShape(shape, null, null);
+            }
+            entry = new Entry(entryCount++, firstIndex, sink.indexCount - firstIndex);
+            entries.put(glyphId, entry);
+            if( Region.DEBUG_INSTANCE ) {
+                System.err.println("GLGlyphPool: Added '"+glyph.getSymbol()+"' "+entry);
+            }
+        }
+        return entry;
+    }
+
+    /** Returns the number of {@link Entry entries}, i.e. distinct glyphs. */
+    public final int getEntryCount() { return entryCount; }
+
+    /** Returns the number of vertices within the pool. */
+    public final int getVertexCount() { return sink.vertexCount; }
+
+    /** Returns the number of indices within the pool. */
+    public final int getIndexCount() { return sink.indexCount; }
+
+    /** Returns true if glyphs have been added since the last {@link #update(GL2ES2)}. */
+    public final boolean isDirty() { return dirty; }
+
+    /**
+     * Uploads the pool if {@link #isDirty() dirty}, i.e. if new glyphs have been added.
+     */
+    public final void update(final GL2ES2 gl) {
+        if( dirty ) {
+            gca_VerticesAttr.seal(gl, true);
+            gca_VerticesAttr.enableBuffer(gl, false);
+            gca_CurveParamsAttr.seal(gl, true);
+            gca_CurveParamsAttr.enableBuffer(gl, false);
+            indicesBuffer.seal(gl, true);
+            indicesBuffer.enableBuffer(gl, false);
+            dirty = false;
+            if( Region.DEBUG_INSTANCE ) {
+                System.err.println("GLGlyphPool: Uploaded "+this);
+            }
+        }
+    }
+
+    private static final boolean throwOnError = false;
+
+    /**
+     * Enables the vertex and curve-parameter attributes
+     * and binds the index buffer of this pool for the {@link RenderState#getShaderProgram() current program},
+     * or disables and unbinds them.
+     * <p>
+     * Shall be called after {@link #update(GL2ES2)}.
+     * </p>
+     */
+    public final void enable(final GL2ES2 gl, final RenderState rs, final boolean enable) {
+        if( enable ) {
+            final ShaderProgram rsSp = rs.getShaderProgram();
+            final boolean updateLocation = !rsSp.equals(sp);
+            sp = rsSp;
+            rs.updateAttributeLoc(gl, updateLocation, gca_VerticesAttr, throwOnError);
+            rs.updateAttributeLoc(gl, updateLocation, gca_CurveParamsAttr, throwOnError);
+            gca_VerticesAttr.enableBuffer(gl, true);
+            gca_CurveParamsAttr.enableBuffer(gl, true);
+            indicesBuffer.bindBuffer(gl, true); // keeps VBO binding
+        } else {
+            indicesBuffer.bindBuffer(gl, false);
+            gca_CurveParamsAttr.enableBuffer(gl, false);
+            gca_VerticesAttr.enableBuffer(gl, false);
+        }
+    }
+
+    /**
+     * Removes all glyphs from the pool.
+     * <p>
+     * All {@link Entry entries} become invalid, hence all {@link GLTextInstances} using this pool
+     * must be {@link GLTextInstances#clear() cleared}.
+     * </p>
+     */
+    public final void clear(final GL2ES2 gl) {
+        if( null != indicesBuffer ) {
+            indicesBuffer.seal(gl, false);
+            indicesBuffer.rewind();
+        }
+        if( null != gca_VerticesAttr ) {
+            gca_VerticesAttr.seal(gl, false);
+            gca_VerticesAttr.rewind();
+        }
+        if( null != gca_CurveParamsAttr ) {
+            gca_CurveParamsAttr.seal(gl, false);
+            gca_CurveParamsAttr.rewind();
+        }
+        sink.reset();
+        fontEntries.clear();
+        entryCount = 0;
+        dirty = true;
+    }
+
+    /**
+     * Delete and clear the associated OGL objects.
+     */
+    public final void destroy(final GL2ES2 gl) {
+        clear(gl);
+        if(null != gca_VerticesAttr) {
+            gca_VerticesAttr.destroy(gl);
+            gca_VerticesAttr = null;
+        }
+        if(null != gca_CurveParamsAttr) {
+            gca_CurveParamsAttr.destroy(gl);
+            gca_CurveParamsAttr = null;
+        }
+        if(null != indicesBuffer) {
+            indicesBuffer.destroy(gl);
+            indicesBuffer = null;
+        }
+        sp = null;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("GLGlyphPool[glyphs ").append(entryCount).append(", fonts [");
+        for(final Iterator<Font> i = fontEntries.keySet().iterator(); i.hasNext(); ) {
+            sb.append(i.next().getName(Font.NAME_UNIQUNAME));
+            if( i.hasNext() ) {
+                sb.append(", ");
+            }
+        }
+        sb.append("], vertices ").append(getVertexCount()).append(", indices ").append(getIndexCount()).append("]");
+        return sb.toString();
+    }
+}
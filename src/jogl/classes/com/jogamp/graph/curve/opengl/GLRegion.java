@@ -66,6 +66,9 @@ public abstract class GLRegion extends Region {
         } else if( Region.hasColorTexture(renderModes) ) {
             throw new IllegalArgumentException("COLORTEXTURE_RENDERING_BIT set but null TextureSequence");
         }
+        if( Region.hasInstancing(renderModes) ) {
+            throw new IllegalArgumentException("INSTANCED_RENDERING_BIT only supported by GLTextInstances");
+        }
         if( isVBAA(renderModes) ) {
             return new VBORegion2PVBAAES2(renderModes, colorTexSeq, Region.DEFAULT_TWO_PASS_TEXTURE_UNIT);
         } else if( isMSAA(renderModes) ) {
@@ -90,6 +93,15 @@ public abstract class GLRegion extends Region {
      */
     protected abstract void updateImpl(final GL2ES2 gl);
 
+    /**
+     * Uploads the replaced ranges of a graph region's shape if {@link #isShapeRangeDirty()}
+     * and not {@link #isShapeDirty()}, i.e. the ogl related objects have been initialized already.
+     * <p>Called by {@link #draw(GL2ES2, RegionRenderer, int[])}.</p>
+     * <p>Default implementation does nothing, since shape range replacement is not supported by default.</p>
+     * @see Region#replaceTessellatedShape(int, com.jogamp.graph.curve.TessellatedShape, jogamp.graph.geom.plane.AffineTransform, float[])
+     */
+    protected void updateRangeImpl(final GL2ES2 gl) { }
+
     protected abstract void destroyImpl(final GL2ES2 gl);
 
     protected abstract void clearImpl(final GL2ES2 gl);
@@ -142,9 +154,11 @@ public abstract class GLRegion extends Region {
     public final void draw(final GL2ES2 gl, final RegionRenderer renderer, final int[/*1*/] sampleCount) {
         if( isShapeDirty() ) {
             updateImpl(gl);
+        } else if( isShapeRangeDirty() ) {
+            updateRangeImpl(gl);
         }
         drawImpl(gl, renderer, sampleCount);
-        clearDirtyBits(DIRTY_SHAPE|DIRTY_STATE);
+        clearDirtyBits(DIRTY_SHAPE|DIRTY_SHAPE_RANGE|DIRTY_STATE);
     }
 
     protected abstract void drawImpl(final GL2ES2 gl, final RegionRenderer renderer, final int[/*1*/] sampleCount);
@@ -0,0 +1,423 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.graph.curve.opengl;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import com.jogamp.opengl.GL;
+import com.jogamp.opengl.GL2ES2;
+
+import com.jogamp.common.util.IntObjectHashMap;
+import com.jogamp.graph.curve.MSDFGenerator;
+import com.jogamp.graph.curve.OutlineShape;
+import com.jogamp.graph.curve.Region;
+import com.jogamp.graph.font.Font;
+import com.jogamp.graph.font.GlyphRun;
+import com.jogamp.opengl.util.packrect.BackingStoreManager;
+import com.jogamp.opengl.util.packrect.Rect;
+import com.jogamp.opengl.util.packrect.RectanglePacker;
+
+/**
+ * Atlas of multi-channel signed distance fields of {@link Font.Glyph}s,
+ * generated by a {@link MSDFGenerator} and packed into one RGBA texture via a {@link RectanglePacker}.
+ * <p>
+ * Glyphs are generated at one fixed {@link #getFieldPixelSize() pixel size} and
+ * scaled to any pixel size by {@link GLSDFText}, which renders them as quads in one pass
+ * using the {@link Region#SDF_RENDERING_BIT}.
+ * </p>
+ * <p>
+ * Glyphs are generated on first use via {@link #getEntry(Font, Font.Glyph)},
+ * {@link #addGlyphs(Font, GlyphRun)} generates all unknown glyphs of a run concurrently.
+ * The atlas grows as required up to {@link #MAX_SIZE} and
+ * is uploaded again at the next {@link #update(GL2ES2)} only if new glyphs have been added.
+ * Growing or compacting the atlas moves the glyphs, see {@link #getLayoutCount()}.
+ * </p>
+ * <p>
+ * Not thread safe, shall be used on the GL thread only.
+ * </p>
+ */
+public class GLSDFGlyphAtlas {
+    /** Default {@link #getFieldPixelSize() field pixel size}, {@value}. */
+    public static final float DEFAULT_FIELD_PIXEL_SIZE = 32f;
+    /** Maximum width and height of the atlas in texel, {@value}. */
+    public static final int MAX_SIZE = 4096;
+
+    /** Glyph within the atlas, see {@link GLSDFGlyphAtlas#getEntry(Font, Font.Glyph)}. */
+    public static final class Entry {
+        private final Rect rect;
+        private final int width;
+        private final int height;
+        private final float scale;
+        private final float x0, y0;
+        private boolean valid;
+
+        Entry() {
+            this.rect = null;
+            this.width = 0;
+            this.height = 0;
+            this.scale = 1f;
+            this.x0 = 0f;
+            this.y0 = 0f;
+            this.valid = true;
+        }
+        Entry(final Rect rect, final MSDFGenerator.Field field) {
+            this.rect = rect;
+            this.width = field.getWidth();
+            this.height = field.getHeight();
+            this.scale = field.getScale();
+            this.x0 = -field.getTranslateX();
+            this.y0 = -field.getTranslateY();
+            this.valid = true;
+        }
+        /** Returns true if the glyph has no outline, e.g. a space. */
+        public final boolean isEmpty() { return null == rect; }
+        /** Returns false if the entry has been removed by {@link GLSDFGlyphAtlas#clear()}, it shall be {@link GLSDFGlyphAtlas#getEntry(Font, Font.Glyph) queried} again. */
+        public final boolean isValid() { return valid; }
+        /** Returns the field's left texel column within the atlas, changes with the {@link GLSDFGlyphAtlas#getLayoutCount() layout}. */
+        public final int getTexelX() { return rect.x(); }
+        /** Returns the field's bottom texel row within the atlas, changes with the {@link GLSDFGlyphAtlas#getLayoutCount() layout}. */
+        public final int getTexelY() { return rect.y(); }
+        /** Returns the field's width in texel. */
+        public final int getTexelWidth() { return width; }
+        /** Returns the field's height in texel. */
+        public final int getTexelHeight() { return height; }
+        /** Returns the left edge of the field in font units. */
+        public final float getX0() { return x0; }
+        /** Returns the bottom edge of the field in font units. */
+        public final float getY0() { return y0; }
+        /** Returns the right edge of the field in font units. */
+        public final float getX1() { return x0 + width / scale; }
+        /** Returns the top edge of the field in font units. */
+        public final float getY1() { return y0 + height / scale; }
+
+        @Override
+        public String toString() {
+            return "Entry["+( valid ? "" : "invalid, " )+( null != rect ? rect.x()+"/"+rect.y()+" "+width+"x"+height : "empty" )+", font-units "+x0+"/"+y0+" .. "+getX1()+"/"+getY1()+"]";
+        }
+    }
+
+    /** RGBA backing store, rows from bottom to top. */
+    private static final class Store {
+        final int width;
+        final int height;
+        final byte[] data;
+
+        Store(final int width, final int height) {
+            this.width = width;
+            this.height = height;
+            this.data = new byte[4 * width * height];
+        }
+        final void copy(final int srcX, final int srcY, final Store dst, final int dstX, final int dstY, final int w, final int h) {
+            for(int y=0; y<h; y++) {
+                System.arraycopy(data, 4 * ( ( srcY + y ) * width + srcX ),
+                                 dst.data, 4 * ( ( dstY + y ) * dst.width + dstX ), 4 * w);
+            }
+        }
+    }
+
+    private final BackingStoreManager storeManager = new BackingStoreManager() {
+        @Override
+        public Object allocateBackingStore(final int w, final int h) {
+            return new Store(w, h);
+        }
+        @Override
+        public void deleteBackingStore(final Object backingStore) { }
+        @Override
+        public boolean canCompact() { return true; }
+        @Override
+        public boolean preExpand(final Rect cause, final int attemptNumber) {
+            return false; // grow, glyphs are never evicted
+        }
+        @Override
+        public boolean additionFailed(final Rect cause, final int attemptNumber) {
+            // called w/ the height clamped to MAX_SIZE, the packer would retry forever
+            throw new RuntimeException("GLSDFGlyphAtlas: No space for "+cause.w()+"x"+cause.h()+" at max height "+MAX_SIZE+", "+entryCount+" glyphs");
+        }
+        @Override
+        public void beginMovement(final Object oldBackingStore, final Object newBackingStore) { }
+        @Override
+        public void move(final Object oldBackingStore, final Rect oldLocation, final Object newBackingStore, final Rect newLocation) {
+            ((Store)oldBackingStore).copy(oldLocation.x(), oldLocation.y(), (Store)newBackingStore, newLocation.x(), newLocation.y(),
+                                          oldLocation.w(), oldLocation.h());
+        }
+        @Override
+        public void endMovement(final Object oldBackingStore, final Object newBackingStore) {
+            layoutCount++;
+            dirty = true;
+        }
+    };
+
+    private final MSDFGenerator generator;
+    private final float fieldPixelSize;
+    private final RectanglePacker packer;
+    private final HashMap<Font, IntObjectHashMap> fontEntries = new HashMap<Font, IntObjectHashMap>();
+    private int entryCount = 0;
+    private int layoutCount = 0;
+    private boolean dirty = true;
+
+    private final int[] texName = { 0 };
+    private int texWidth = 0;
+    private int texHeight = 0;
+
+    /**
+     * Creates an atlas w/ a {@link MSDFGenerator#MSDFGenerator() default generator} and {@link #DEFAULT_FIELD_PIXEL_SIZE}.
+     */
+    public GLSDFGlyphAtlas() {
+        this(new MSDFGenerator(), DEFAULT_FIELD_PIXEL_SIZE);
+    }
+
+    /**
+     * @param generator the {@link MSDFGenerator}, its range determines the maximum outline falloff when rendered
+     * @param fieldPixelSize pixel size the glyphs are generated at, see {@link Font#getPixelSize(float, float)}
+     */
+    public GLSDFGlyphAtlas(final MSDFGenerator generator, final float fieldPixelSize) {
+        this.generator = generator;
+        this.fieldPixelSize = fieldPixelSize;
+        this.packer = new RectanglePacker(storeManager, 256, 256);
+        this.packer.setMaxSize(MAX_SIZE, MAX_SIZE);
+    }
+
+    /** Returns the used {@link MSDFGenerator}. */
+    public final MSDFGenerator getGenerator() { return generator; }
+
+    /** Returns the pixel size the glyphs are generated at. */
+    public final float getFieldPixelSize() { return fieldPixelSize; }
+
+    /** Returns the distance range in texel, see {@link MSDFGenerator#getRange()}. */
+    public final float getRange() { return generator.getRange(); }
+
+    /** Returns the number of {@link Entry entries}, i.e. distinct glyphs. */
+    public final int getEntryCount() { return entryCount; }
+
+    /** Returns the current width of the atlas in texel. */
+    public final int getWidth() { return getStore().width; }
+
+    /** Returns the current height of the atlas in texel. */
+    public final int getHeight() { return getStore().height; }
+
+    /**
+     * Returns the number of re-layouts, i.e. growing or compacting the atlas, which moves the {@link Entry entries}.
+     * Texture coordinates derived from the entries must be updated if changed.
+     */
+    public final int getLayoutCount() { return layoutCount; }
+
+    /** Returns true if glyphs have been added since the last {@link #update(GL2ES2)}. */
+    public final boolean isDirty() { return dirty; }
+
+    /** Returns the RGBA texel of the atlas, rows from bottom to top. */
+    public final byte[] getData() { return getStore().data; }
+
+    private Store getStore() {
+        return (Store) packer.getBackingStore();
+    }
+
+    private IntObjectHashMap getEntries(final Font font) {
+        IntObjectHashMap entries = fontEntries.get(font);
+        if( null == entries ) {
+            entries = new IntObjectHashMap();
+            fontEntries.put(font, entries);
+        }
+        return entries;
+    }
+
+    /**
+     * Returns the {@link Entry} of the given glyph,
+     * generating and adding its distance field to the atlas if not contained yet.
+     * @param font the {@link Font} of the glyph
+     * @param glyph the {@link Font.Glyph}
+     * @throws RuntimeException if the atlas exceeds {@link #MAX_SIZE}
+     */
+    public final Entry getEntry(final Font font, final Font.Glyph glyph) throws RuntimeException {
+        final IntObjectHashMap entries = getEntries(font);
+        Entry entry = (Entry) entries.get(glyph.getID());
+        if( null == entry ) {
+            final OutlineShape shape = glyph.getShape();
+            entry = add(font, glyph, null != shape ? generator.generate(shape, getScale(font)) : null);
+        }
+        return entry;
+    }
+
+    /**
+     * Generates the distance fields of all glyphs of the run not contained yet concurrently,
+     * see {@link MSDFGenerator#generate(java.util.List, float)}, and adds them to the atlas.
+     * @return the number of added glyphs
+     * @throws InterruptedException if interrupted while waiting for the generator
+     * @throws RuntimeException if the atlas exceeds {@link #MAX_SIZE}
+     */
+    public final int addGlyphs(final Font font, final GlyphRun run) throws InterruptedException, RuntimeException {
+        final IntObjectHashMap entries = getEntries(font);
+        final ArrayList<Font.Glyph> glyphs = new ArrayList<Font.Glyph>();
+        final ArrayList<OutlineShape> shapes = new ArrayList<OutlineShape>();
+        final IntObjectHashMap queued = new IntObjectHashMap();
+        final int glyphCount = run.getGlyphCount();
+        for(int i=0; i<glyphCount; i++) {
+            final Font.Glyph glyph = run.getGlyph(i);
+            final int id = glyph.getID();
+            if( null == entries.get(id) && null == queued.get(id) ) {
+                queued.put(id, glyph);
+                final OutlineShape shape = glyph.getShape();
+                if( null != shape ) {
+                    glyphs.add(glyph);
+                    shapes.add(shape);
+                } else {
+                    add(font, glyph, null);
+                }
+            }
+        }
+        final MSDFGenerator.Field[] fields = generator.generate(shapes, getScale(font));
+        for(int i=0; i<fields.length; i++) {
+            add(font, glyphs.get(i), fields[i]);
+        }
+        return queued.size();
+    }
+
+    private float getScale(final Font font) {
+        return font.getMetrics().getScale(fieldPixelSize);
+    }
+
+    private Entry add(final Font font, final Font.Glyph glyph, final MSDFGenerator.Field field) {
+        final Entry entry;
+        if( null == field || field.isEmpty() ) {
+            entry = new Entry();
+        } else {
+            // one texel gap avoids filtering across neighbors
+            final Rect rect = new Rect(0, 0, field.getWidth() + 1, field.getHeight() + 1, null);
+            pack(rect);
+            final Store store = getStore();
+            final byte[] src = field.getData();
+            for(int y=0; y<field.getHeight(); y++) {
+                System.arraycopy(src, 4 * y * field.getWidth(), store.data, 4 * ( ( rect.y() + y ) * store.width + rect.x() ), 4 * field.getWidth());
+            }
+            entry = new Entry(rect, field);
+        }
+        getEntries(font).put(glyph.getID(), entry);
+        entryCount++;
+        dirty = true;
+        if( Region.DEBUG_INSTANCE ) {
+            System.err.println("GLSDFGlyphAtlas: Added '"+glyph.getSymbol()+"' "+entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Adds the rect to the packer, which only grows in height for rects not wider than the atlas.
+     * At {@link #MAX_SIZE} height, the atlas is widened by packing a temporary wider rect.
+     */
+    private void pack(final Rect rect) throws RuntimeException {
+        while( true ) {
+            try {
+                packer.add(rect);
+                return;
+            } catch (final RuntimeException re) {
+                final int width = getWidth();
+                if( MAX_SIZE <= width ) {
+                    throw new RuntimeException("GLSDFGlyphAtlas: Exceeds "+MAX_SIZE+"x"+MAX_SIZE, re);
+                }
+                final Rect wide = new Rect(0, 0, Math.min(2 * width, MAX_SIZE), 1, null);
+                packer.add(wide);
+                packer.remove(wide);
+            }
+        }
+    }
+
+    /**
+     * Uploads the atlas to its texture if {@link #isDirty() dirty}, i.e. if new glyphs have been added.
+     * The texture is left bound to the active texture unit.
+     */
+    public final void update(final GL2ES2 gl) {
+        final Store store = getStore();
+        if( 0 == texName[0] ) {
+            gl.glGenTextures(1, texName, 0);
+            gl.glBindTexture(GL.GL_TEXTURE_2D, texName[0]);
+            gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_MIN_FILTER, GL.GL_LINEAR);
+            gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_MAG_FILTER, GL.GL_LINEAR);
+            gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_WRAP_S, GL.GL_CLAMP_TO_EDGE);
+            gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_WRAP_T, GL.GL_CLAMP_TO_EDGE);
+        } else {
+            gl.glBindTexture(GL.GL_TEXTURE_2D, texName[0]);
+        }
+        if( dirty ) {
+            final ByteBuffer pixels = ByteBuffer.wrap(store.data);
+            gl.glPixelStorei(GL.GL_UNPACK_ALIGNMENT, 4);
+            if( texWidth != store.width || texHeight != store.height ) {
+                texWidth = store.width;
+                texHeight = store.height;
+                gl.glTexImage2D(GL.GL_TEXTURE_2D, 0, GL.GL_RGBA, texWidth, texHeight, 0, GL.GL_RGBA, GL.GL_UNSIGNED_BYTE, pixels);
+            } else {
+                gl.glTexSubImage2D(GL.GL_TEXTURE_2D, 0, 0, 0, texWidth, texHeight, GL.GL_RGBA, GL.GL_UNSIGNED_BYTE, pixels);
+            }
+            dirty = false;
+            if( Region.DEBUG_INSTANCE ) {
+                System.err.println("GLSDFGlyphAtlas: Uploaded "+this);
+            }
+        }
+    }
+
+    /**
+     * Returns the texture name, zero before the first {@link #update(GL2ES2)}.
+     */
+    public final int getTextureName() { return texName[0]; }
+
+    /**
+     * Removes all glyphs from the atlas, all {@link Entry entries} become {@link Entry#isValid() invalid}.
+     */
+    public final void clear() {
+        for(final IntObjectHashMap entries : fontEntries.values()) {
+            for(final IntObjectHashMap.Entry e : entries) {
+                ((Entry)e.getValue()).valid = false;
+            }
+        }
+        packer.clear();
+        fontEntries.clear();
+        entryCount = 0;
+        layoutCount++;
+        Arrays.fill(getStore().data, (byte)0);
+        dirty = true;
+    }
+
+    /**
+     * Deletes the texture and removes all glyphs.
+     */
+    public final void destroy(final GL2ES2 gl) {
+        clear();
+        if( 0 != texName[0] ) {
+            gl.glDeleteTextures(1, texName, 0);
+            texName[0] = 0;
+        }
+        texWidth = 0;
+        texHeight = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "GLSDFGlyphAtlas[glyphs "+entryCount+", "+getWidth()+"x"+getHeight()+", field "+fieldPixelSize+" px, range "+getRange()+", layouts "+layoutCount+", dirty "+dirty+"]";
+    }
+}
@@ -0,0 +1,404 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.graph.curve.opengl;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+import com.jogamp.opengl.GL;
+import com.jogamp.opengl.GL2ES2;
+import com.jogamp.opengl.GLException;
+import com.jogamp.opengl.GLUniformData;
+
+import jogamp.graph.curve.opengl.shader.AttributeNames;
+import jogamp.graph.curve.opengl.shader.UniformNames;
+
+import com.jogamp.graph.curve.Region;
+import com.jogamp.graph.font.Font;
+import com.jogamp.graph.font.GlyphRun;
+import com.jogamp.opengl.util.GLArrayDataServer;
+import com.jogamp.opengl.util.glsl.ShaderProgram;
+
+/**
+ * One pass text rendering using the multi-channel signed distance fields of a {@link GLSDFGlyphAtlas}.
+ * <p>
+ * Each visible glyph of an added string is drawn as one textured quad,
+ * the fragment shader reconstructs the coverage from the median of the field's channels,
+ * see {@link Region#SDF_RENDERING_BIT}. All added strings are drawn with one draw call per 16384 quads,
+ * no tessellation is required and small text is anti-aliased w/o a second pass.
+ * </p>
+ * <p>
+ * Only one pass rendering w/o color texture is supported,
+ * the {@link Region#COLORCHANNEL_RENDERING_BIT} and {@link Region#SDF_RENDERING_BIT} are always added to the render modes.
+ * </p>
+ * <p>
+ * Not thread safe, shall be used on the GL thread only.
+ * </p>
+ */
+public class GLSDFText {
+    /** Per quad components: x, y, scale, z, r, g, b, a */
+    private static final int QUAD_COMPONENTS = 8;
+    /** Maximum quads per draw call w/ 16-bit indices, as GL_UNSIGNED_INT is not available on all ES2 implementations. */
+    private static final int MAX_BATCH_QUADS = 0x10000 / 4;
+    private static final boolean throwOnError = false;
+
+    private final GLSDFGlyphAtlas atlas;
+    private final int renderModes;
+    private final int textureUnit;
+    private final RenderState.ProgramLocal rsLocal;
+
+    // quads in added order
+    private float[] quads;
+    private GLSDFGlyphAtlas.Entry[] quadEntries;
+    private Font[] quadFonts;
+    private Font.Glyph[] quadGlyphs;
+    private int quadCount;
+    private boolean dirty;
+    private int layoutCount;
+
+    private final GLArrayDataServer gca_VerticesAttr;
+    private final GLArrayDataServer gca_CurveParamsAttr;
+    private final GLArrayDataServer gca_ColorsAttr;
+    private final GLArrayDataServer indicesBuffer;
+    private final GLUniformData gcu_SDFTexUnit;
+    private final GLUniformData gcu_SDFParams;
+    private final float[] sdfParams = new float[3];
+    private ShaderProgram sp;
+
+    /**
+     * @param renderModes bit-field of modes, e.g. {@link Region#COLORCHANNEL_RENDERING_BIT}.
+     *        Two pass modes, {@link Region#COLORTEXTURE_RENDERING_BIT} and {@link Region#INSTANCED_RENDERING_BIT} are not supported.
+     * @param atlas the {@link GLSDFGlyphAtlas} holding the glyph's distance fields, may be shared
+     * @param textureUnit the texture unit the atlas is bound to while drawing
+     * @throws IllegalArgumentException if renderModes contains unsupported bits
+     */
+    public GLSDFText(final int renderModes, final GLSDFGlyphAtlas atlas, final int textureUnit) throws IllegalArgumentException {
+        if( Region.isTwoPass(renderModes) || Region.hasColorTexture(renderModes) || Region.hasInstancing(renderModes) ) {
+            throw new IllegalArgumentException("Unsupported render modes: "+Region.getRenderModeString(renderModes));
+        }
+        this.atlas = atlas;
+        this.renderModes = renderModes | Region.COLORCHANNEL_RENDERING_BIT | Region.SDF_RENDERING_BIT;
+        this.textureUnit = textureUnit;
+        this.rsLocal = new RenderState.ProgramLocal();
+        final int initialQuadCount = 64;
+        quads = new float[initialQuadCount * QUAD_COMPONENTS];
+        quadEntries = new GLSDFGlyphAtlas.Entry[initialQuadCount];
+        quadFonts = new Font[initialQuadCount];
+        quadGlyphs = new Font.Glyph[initialQuadCount];
+        quadCount = 0;
+        dirty = true;
+        layoutCount = atlas.getLayoutCount();
+
+        final int initialElementCount = 4 * initialQuadCount;
+        indicesBuffer = GLArrayDataServer.createData(3, GL.GL_UNSIGNED_SHORT, initialElementCount, GL.GL_STATIC_DRAW, GL.GL_ELEMENT_ARRAY_BUFFER);
+        gca_VerticesAttr = GLArrayDataServer.createGLSL(AttributeNames.VERTEX_ATTR_NAME, 3, GL.GL_FLOAT,
+                                                        false, initialElementCount, GL.GL_STATIC_DRAW);
+        gca_CurveParamsAttr = GLArrayDataServer.createGLSL(AttributeNames.CURVEPARAMS_ATTR_NAME, 3, GL.GL_FLOAT,
+                                                           false, initialElementCount, GL.GL_STATIC_DRAW);
+        gca_ColorsAttr = GLArrayDataServer.createGLSL(AttributeNames.COLOR_ATTR_NAME, 4, GL.GL_FLOAT,
+                                                      false, initialElementCount, GL.GL_STATIC_DRAW);
+        gcu_SDFTexUnit = new GLUniformData(UniformNames.gcu_SDFTexUnit, textureUnit);
+        gcu_SDFParams = new GLUniformData(UniformNames.gcu_SDFParams, 3, FloatBuffer.wrap(sdfParams));
+        sp = null;
+    }
+
+    /** Returns the used {@link GLSDFGlyphAtlas}. */
+    public final GLSDFGlyphAtlas getAtlas() { return atlas; }
+
+    /** Returns the render modes, including {@link Region#COLORCHANNEL_RENDERING_BIT} and {@link Region#SDF_RENDERING_BIT}. */
+    public final int getRenderModes() { return renderModes; }
+
+    /** Returns the texture unit the atlas is bound to while drawing. */
+    public final int getTextureUnit() { return textureUnit; }
+
+    /** Returns the number of quads, i.e. visible glyphs. */
+    public final int getQuadCount() { return quadCount; }
+
+    /**
+     * Removes all quads, keeping the {@link GLSDFGlyphAtlas} and the GL buffers.
+     */
+    public final void clear() {
+        Arrays.fill(quadFonts, 0, quadCount, null);
+        Arrays.fill(quadGlyphs, 0, quadCount, null);
+        quadCount = 0;
+        dirty = true;
+    }
+
+    /**
+     * Adds the string's glyphs as quads w.r.t. the font and pixelSize at the given position.
+     * <p>
+     * The glyphs are laid out via {@link Font#getGlyphRun(CharSequence, float)},
+     * unknown glyphs are generated concurrently and added to the {@link GLSDFGlyphAtlas}, see {@link GLSDFGlyphAtlas#addGlyphs(Font, GlyphRun)}.
+     * </p>
+     * @param font the target {@link Font}
+     * @param pixelSize Use {@link Font#getPixelSize(float, float)} for resolution correct pixel-size.
+     * @param str string text
+     * @param x x-position of the string's origin
+     * @param y y-position of the string's origin, i.e. its first baseline
+     * @param z z-position of the string
+     * @param rgbaColor RGBA color of the string
+     * @return the number of added quads
+     */
+    public final int addString(final Font font, final float pixelSize, final CharSequence str,
+                               final float x, final float y, final float z, final float[] rgbaColor) {
+        final GlyphRun run = font.getGlyphRun(str, pixelSize);
+        try {
+            atlas.addGlyphs(font, run);
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt(); // remaining glyphs are generated on this thread below
+        }
+        final float scale = font.getMetrics().getScale(pixelSize);
+        final int glyphCount = run.getGlyphCount();
+        final int quadCount0 = quadCount;
+
+        for(int i=0; i< glyphCount; i++) {
+            final Font.Glyph glyph = run.getGlyph(i);
+            final GLSDFGlyphAtlas.Entry entry = atlas.getEntry(font, glyph);
+            if( !entry.isEmpty() ) {
+                addQuad(entry, font, glyph, x + run.getX(i), y + run.getY(i), scale, z, rgbaColor);
+            }
+        }
+        return quadCount - quadCount0;
+    }
+
+    private void addQuad(final GLSDFGlyphAtlas.Entry entry, final Font font, final Font.Glyph glyph, final float x, final float y, final float scale, final float z, final float[] rgba) {
+        if( quadCount == quadEntries.length ) {
+            final int newCount = quadCount * 2;
+            final float[] newQuads = new float[newCount * QUAD_COMPONENTS];
+            System.arraycopy(quads, 0, newQuads, 0, quadCount * QUAD_COMPONENTS);
+            quads = newQuads;
+            final GLSDFGlyphAtlas.Entry[] newEntries = new GLSDFGlyphAtlas.Entry[newCount];
+            System.arraycopy(quadEntries, 0, newEntries, 0, quadCount);
+            quadEntries = newEntries;
+            final Font[] newFonts = new Font[newCount];
+            System.arraycopy(quadFonts, 0, newFonts, 0, quadCount);
+            quadFonts = newFonts;
+            final Font.Glyph[] newGlyphs = new Font.Glyph[newCount];
+            System.arraycopy(quadGlyphs, 0, newGlyphs, 0, quadCount);
+            quadGlyphs = newGlyphs;
+        }
+        final int o = quadCount * QUAD_COMPONENTS;
+        quads[o+0] = x;
+        quads[o+1] = y;
+        quads[o+2] = scale;
+        quads[o+3] = z;
+        quads[o+4] = rgba[0];
+        quads[o+5] = rgba[1];
+        quads[o+6] = rgba[2];
+        quads[o+7] = rgba[3];
+        quadEntries[quadCount] = entry;
+        quadFonts[quadCount] = font;
+        quadGlyphs[quadCount++] = glyph;
+        dirty = true;
+    }
+
+    /**
+     * Queries the {@link GLSDFGlyphAtlas.Entry entries} invalidated by {@link GLSDFGlyphAtlas#clear()} again,
+     * which adds their glyphs to the atlas again.
+     */
+    private void validateEntries() {
+        for(int i=0; i<quadCount; i++) {
+            if( !quadEntries[i].isValid() ) {
+                quadEntries[i] = atlas.getEntry(quadFonts[i], quadGlyphs[i]);
+                dirty = true;
+            }
+        }
+    }
+
+    /**
+     * Fills the vertex, texture coordinate and color buffers of all quads,
+     * w/ texture coordinates of the current atlas layout.
+     * The index buffer covers one batch of up to {@link #MAX_BATCH_QUADS} quads only, see {@link #setFirstQuad(GL2ES2, int)}.
+     */
+    private void fillBuffers(final GL2ES2 gl) {
+        indicesBuffer.seal(gl, false);
+        indicesBuffer.rewind();
+        gca_VerticesAttr.seal(gl, false);
+        gca_VerticesAttr.rewind();
+        gca_CurveParamsAttr.seal(gl, false);
+        gca_CurveParamsAttr.rewind();
+        gca_ColorsAttr.seal(gl, false);
+        gca_ColorsAttr.rewind();
+
+        final int batchQuads = Math.min(quadCount, MAX_BATCH_QUADS);
+        indicesBuffer.growIfNeeded(6 * batchQuads);
+        gca_VerticesAttr.growIfNeeded(4 * 3 * quadCount);
+        gca_CurveParamsAttr.growIfNeeded(4 * 3 * quadCount);
+        gca_ColorsAttr.growIfNeeded(4 * 4 * quadCount);
+
+        final float texScaleX = 1f / atlas.getWidth();
+        final float texScaleY = 1f / atlas.getHeight();
+        for(int i=0; i<quadCount; i++) {
+            final GLSDFGlyphAtlas.Entry entry = quadEntries[i];
+            final int o = i * QUAD_COMPONENTS;
+            final float x = quads[o+0], y = quads[o+1], scale = quads[o+2], z = quads[o+3];
+            final float x0 = x + entry.getX0() * scale, x1 = x + entry.getX1() * scale;
+            final float y0 = y + entry.getY0() * scale, y1 = y + entry.getY1() * scale;
+            final float s0 = entry.getTexelX() * texScaleX, s1 = ( entry.getTexelX() + entry.getTexelWidth() ) * texScaleX;
+            final float t0 = entry.getTexelY() * texScaleY, t1 = ( entry.getTexelY() + entry.getTexelHeight() ) * texScaleY;
+            putVertex(x0, y0, z, s0, t0, o);
+            putVertex(x1, y0, z, s1, t0, o);
+            putVertex(x1, y1, z, s1, t1, o);
+            putVertex(x0, y1, z, s0, t1, o);
+        }
+        for(int i=0; i<batchQuads; i++) {
+            final int v = 4 * i;
+            indicesBuffer.puts((short)(v+0)); indicesBuffer.puts((short)(v+1)); indicesBuffer.puts((short)(v+2));
+            indicesBuffer.puts((short)(v+0)); indicesBuffer.puts((short)(v+2)); indicesBuffer.puts((short)(v+3));
+        }
+        gca_VerticesAttr.seal(gl, true);
+        gca_VerticesAttr.enableBuffer(gl, false);
+        gca_CurveParamsAttr.seal(gl, true);
+        gca_CurveParamsAttr.enableBuffer(gl, false);
+        gca_ColorsAttr.seal(gl, true);
+        gca_ColorsAttr.enableBuffer(gl, false);
+        indicesBuffer.seal(gl, true);
+        indicesBuffer.enableBuffer(gl, false);
+        layoutCount = atlas.getLayoutCount();
+        dirty = false;
+    }
+
+    private void putVertex(final float x, final float y, final float z, final float s, final float t, final int o) {
+        gca_VerticesAttr.putf(x);
+        gca_VerticesAttr.putf(y);
+        gca_VerticesAttr.putf(z);
+        gca_CurveParamsAttr.putf(s);
+        gca_CurveParamsAttr.putf(t);
+        gca_CurveParamsAttr.putf(0f);
+        gca_ColorsAttr.putf(quads[o+4]);
+        gca_ColorsAttr.putf(quads[o+5]);
+        gca_ColorsAttr.putf(quads[o+6]);
+        gca_ColorsAttr.putf(quads[o+7]);
+    }
+
+    /**
+     * Points the located vertex attributes to the given first quad,
+     * as ES2 lacks a base vertex for the 16-bit indices of the following batch.
+     */
+    private void setFirstQuad(final GL2ES2 gl, final int quad) {
+        setFirstQuad(gl, gca_VerticesAttr, quad);
+        setFirstQuad(gl, gca_CurveParamsAttr, quad);
+        setFirstQuad(gl, gca_ColorsAttr, quad);
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+    }
+
+    private static void setFirstQuad(final GL2ES2 gl, final GLArrayDataServer ad, final int quad) {
+        final int location = ad.getLocation();
+        if( 0 <= location ) { // skip attributes not located w/o throwOnError, like GLSLArrayHandler
+            gl.glBindBuffer(GL.GL_ARRAY_BUFFER, ad.getVBOName());
+            gl.glVertexAttribPointer(location, ad.getComponentCount(), ad.getComponentType(), ad.getNormalized(),
+                                     ad.getStride(), 4L * quad * ad.getStride());
+        }
+    }
+
+    /**
+     * Renders all quads, see {@link GLRegion#draw(GL2ES2, RegionRenderer, int[])} for the renderer setup.
+     * <p>
+     * Uploads the {@link GLSDFGlyphAtlas} if new glyphs have been added,
+     * and the quads if they have been changed or the atlas layout has changed.
+     * </p>
+     * @param gl the current GL state
+     * @param renderer the {@link RegionRenderer} to be used
+     * @throws GLException if the renderer is not initialized
+     */
+    public final void draw(final GL2ES2 gl, final RegionRenderer renderer) throws GLException {
+        if( !renderer.isInitialized() ) {
+            throw new GLException("GLSDFText: renderer not initialized!");
+        }
+        final RenderState rs = renderer.getRenderState();
+        renderer.useShaderProgram(gl, renderModes, true, 0, 0, null);
+        final ShaderProgram rsSp = rs.getShaderProgram();
+        final boolean updateLocation = !rsSp.equals(sp);
+        sp = rsSp;
+        if( updateLocation ) {
+            rs.updateAttributeLoc(gl, true, gca_VerticesAttr, throwOnError);
+            rs.updateAttributeLoc(gl, true, gca_CurveParamsAttr, throwOnError);
+            rs.updateAttributeLoc(gl, true, gca_ColorsAttr, throwOnError);
+        }
+        rsLocal.update(gl, rs, updateLocation, renderModes, true, throwOnError);
+
+        if( 0 == quadCount ) {
+            return; // empty!
+        }
+        validateEntries();
+        gl.glActiveTexture(GL.GL_TEXTURE0 + textureUnit);
+        atlas.update(gl); // binds the atlas
+        if( dirty || layoutCount != atlas.getLayoutCount() ) {
+            fillBuffers(gl);
+        }
+        sdfParams[0] = atlas.getWidth();
+        sdfParams[1] = atlas.getHeight();
+        sdfParams[2] = atlas.getRange();
+        // Always update, since program maybe used by multiple regions
+        rs.updateUniformDataLoc(gl, updateLocation, true, gcu_SDFTexUnit, throwOnError);
+        rs.updateUniformDataLoc(gl, updateLocation, true, gcu_SDFParams, throwOnError);
+        if( Region.DEBUG_INSTANCE ) {
+            System.err.println("GLSDFText.draw: "+this);
+        }
+        if( rs.isHintMaskSet(RenderState.BITHINT_BLENDING_ENABLED) ) {
+            gl.glBlendFunc(GL.GL_SRC_ALPHA, GL.GL_ONE_MINUS_SRC_ALPHA);
+        }
+        gca_VerticesAttr.enableBuffer(gl, true);
+        gca_CurveParamsAttr.enableBuffer(gl, true);
+        gca_ColorsAttr.enableBuffer(gl, true);
+        indicesBuffer.bindBuffer(gl, true); // keeps VBO binding
+
+        for(int quad=0; quad<quadCount; quad+=MAX_BATCH_QUADS) {
+            if( 0 < quad ) {
+                setFirstQuad(gl, quad);
+            }
+            gl.glDrawElements(GL.GL_TRIANGLES, 6 * Math.min(quadCount - quad, MAX_BATCH_QUADS), GL.GL_UNSIGNED_SHORT, 0);
+        }
+        if( MAX_BATCH_QUADS < quadCount ) {
+            setFirstQuad(gl, 0); // GLSLArrayHandler only sets the pointer if the VBO binding differs
+        }
+
+        indicesBuffer.bindBuffer(gl, false);
+        gca_ColorsAttr.enableBuffer(gl, false);
+        gca_CurveParamsAttr.enableBuffer(gl, false);
+        gca_VerticesAttr.enableBuffer(gl, false);
+    }
+
+    /**
+     * Delete the GL buffers and remove all quads.
+     * The {@link GLSDFGlyphAtlas} is not destroyed.
+     */
+    public final void destroy(final GL2ES2 gl) {
+        clear();
+        indicesBuffer.destroy(gl);
+        gca_VerticesAttr.destroy(gl);
+        gca_CurveParamsAttr.destroy(gl);
+        gca_ColorsAttr.destroy(gl);
+        sp = null;
+    }
+
+    @Override
+    public String toString() {
+        return "GLSDFText["+Region.getRenderModeString(renderModes)+", quads "+quadCount+", "+atlas+"]";
+    }
+}
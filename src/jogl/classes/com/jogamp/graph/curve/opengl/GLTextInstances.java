@@ -0,0 +1,373 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.graph.curve.opengl;
+
+import java.nio.FloatBuffer;
+
+import com.jogamp.opengl.GL;
+import com.jogamp.opengl.GL2ES2;
+import com.jogamp.opengl.GL2ES3;
+import com.jogamp.opengl.GLException;
+
+import jogamp.graph.curve.opengl.shader.AttributeNames;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.graph.curve.Region;
+import com.jogamp.graph.font.Font;
+import com.jogamp.graph.font.GlyphRun;
+import com.jogamp.opengl.util.glsl.ShaderProgram;
+
+/**
+ * Instanced text rendering using the shared glyph geometry of a {@link GLGlyphPool}.
+ * <p>
+ * Each added string is stored as one instance per visible glyph,
+ * i.e. its offset, scale and color, while the glyph's tessellated {@link com.jogamp.graph.curve.OutlineShape}
+ * resides only once in the {@link GLGlyphPool}.
+ * Changing text hence only costs an update of the small instance buffer,
+ * no tessellation nor vertex upload is required for known glyphs.
+ * </p>
+ * <p>
+ * At {@link #draw(GL2ES2, RegionRenderer)} instances are grouped by glyph,
+ * issuing one {@link GL2ES3#glDrawElementsInstanced(int, int, int, long, int) instanced draw call} per distinct glyph
+ * for all added strings, independent of their count and length.
+ * </p>
+ * <p>
+ * Requires a GL2ES3 context, i.e. instanced arrays. Only one pass rendering w/o color texture is supported,
+ * the {@link Region#COLORCHANNEL_RENDERING_BIT} and {@link Region#INSTANCED_RENDERING_BIT} are always added to the render modes.
+ * </p>
+ * <p>
+ * Not thread safe, shall be used on the GL thread only.
+ * </p>
+ */
+public class GLTextInstances {
+    /** Per instance components: x, y, scale, z, r, g, b, a */
+    private static final int INSTANCE_COMPONENTS = 8;
+    private static final int INSTANCE_BYTES = INSTANCE_COMPONENTS * Buffers.SIZEOF_FLOAT;
+    private static final int COLOR_OFFSET = 4 * Buffers.SIZEOF_FLOAT;
+    private static final boolean throwOnError = false;
+
+    private final GLGlyphPool pool;
+    private final int renderModes;
+    private final RenderState.ProgramLocal rsLocal;
+
+    // instances in added order
+    private float[] instances;
+    private GLGlyphPool.Entry[] instanceEntries;
+    private int instanceCount;
+
+    // uploaded instances grouped by glyph
+    private FloatBuffer groupedInstances;
+    private GLGlyphPool.Entry[] groupEntries;
+    private int[] groupFirst;
+    private int[] groupCounts;
+    private int groupCount;
+    private boolean dirty;
+
+    private final int[] vboName = { 0 };
+    private int vboCapacity;
+    private ShaderProgram sp;
+    private int paramsLoc;
+    private int colorsLoc;
+
+    /**
+     * @param renderModes bit-field of modes, e.g. {@link Region#VARWEIGHT_RENDERING_BIT}.
+     *        Two pass modes and {@link Region#COLORTEXTURE_RENDERING_BIT} are not supported.
+     * @param pool the {@link GLGlyphPool} holding the glyph geometry, may be shared
+     * @throws IllegalArgumentException if renderModes contains unsupported bits
+     */
+    public GLTextInstances(final int renderModes, final GLGlyphPool pool) throws IllegalArgumentException {
+        if( Region.isTwoPass(renderModes) || Region.hasColorTexture(renderModes) ) {
+            throw new IllegalArgumentException("Unsupported render modes: "+Region.getRenderModeString(renderModes));
+        }
+        this.pool = pool;
+        this.renderModes = renderModes | Region.COLORCHANNEL_RENDERING_BIT | Region.INSTANCED_RENDERING_BIT;
+        this.rsLocal = new RenderState.ProgramLocal();
+        final int initialInstanceCount = 64;
+        instances = new float[initialInstanceCount * INSTANCE_COMPONENTS];
+        instanceEntries = new GLGlyphPool.Entry[initialInstanceCount];
+        instanceCount = 0;
+        groupedInstances = null;
+        groupEntries = new GLGlyphPool.Entry[0];
+        groupFirst = new int[0];
+        groupCounts = new int[0];
+        groupCount = 0;
+        dirty = true;
+        vboCapacity = 0;
+        sp = null;
+        paramsLoc = -1;
+        colorsLoc = -1;
+    }
+
+    /** Returns the used {@link GLGlyphPool}. */
+    public final GLGlyphPool getPool() { return pool; }
+
+    /** Returns the render modes, including {@link Region#COLORCHANNEL_RENDERING_BIT} and {@link Region#INSTANCED_RENDERING_BIT}. */
+    public final int getRenderModes() { return renderModes; }
+
+    /** Returns the number of glyph instances. */
+    public final int getInstanceCount() { return instanceCount; }
+
+    /**
+     * Returns the number of instanced draw calls, i.e. the number of distinct glyphs,
+     * as determined by the last {@link #draw(GL2ES2, RegionRenderer)}.
+     */
+    public final int getDrawCallCount() { return groupCount; }
+
+    /**
+     * Removes all instances, keeping the {@link GLGlyphPool} and the GL buffer.
+     */
+    public final void clear() {
+        instanceCount = 0;
+        dirty = true;
+    }
+
+    /**
+     * Adds the string's glyphs as instances w.r.t. the font and pixelSize at the given position.
+     * <p>
+     * The glyphs are laid out via {@link Font#getGlyphRun(CharSequence, float)} as by {@link TextRegionUtil#processString(TextRegionUtil.ShapeVisitor, jogamp.graph.geom.plane.AffineTransform, Font, float, CharSequence, jogamp.graph.geom.plane.AffineTransform, jogamp.graph.geom.plane.AffineTransform) TextRegionUtil.processString(..)},
+     * unknown glyphs are added to the {@link GLGlyphPool}.
+     * </p>
+     * @param font the target {@link Font}
+     * @param pixelSize Use {@link Font#getPixelSize(float, float)} for resolution correct pixel-size.
+     * @param str string text
+     * @param x x-position of the string's origin
+     * @param y y-position of the string's origin, i.e. its first baseline
+     * @param z z-position of the string
+     * @param rgbaColor RGBA color of the string
+     * @return the number of added instances
+     */
+    public final int addString(final Font font, final float pixelSize, final CharSequence str,
+                               final float x, final float y, final float z, final float[] rgbaColor) {
+        final GlyphRun run = font.getGlyphRun(str, pixelSize);
+        final float scale = font.getMetrics().getScale(pixelSize);
+        final int glyphCount = run.getGlyphCount();
+        final int instanceCount0 = instanceCount;
+
+        for(int i=0; i< glyphCount; i++) {
+            final GLGlyphPool.Entry entry = pool.getEntry(font, run.getGlyph(i));
+            if( 0 < entry.getIndexCount() ) {
+                addInstance(entry, x + run.getX(i), y + run.getY(i), scale, z, rgbaColor);
+            }
+        }
+        return instanceCount - instanceCount0;
+    }
+
+    private void addInstance(final GLGlyphPool.Entry entry, final float x, final float y, final float scale, final float z, final float[] rgba) {
+        if( instanceCount == instanceEntries.length ) {
+            final int newCount = instanceCount * 2;
+            final float[] newInstances = new float[newCount * INSTANCE_COMPONENTS];
+            System.arraycopy(instances, 0, newInstances, 0, instanceCount * INSTANCE_COMPONENTS);
+            instances = newInstances;
+            final GLGlyphPool.Entry[] newEntries = new GLGlyphPool.Entry[newCount];
+            System.arraycopy(instanceEntries, 0, newEntries, 0, instanceCount);
+            instanceEntries = newEntries;
+        }
+        final int o = instanceCount * INSTANCE_COMPONENTS;
+        instances[o+0] = x;
+        instances[o+1] = y;
+        instances[o+2] = scale;
+        instances[o+3] = z;
+        instances[o+4] = rgba[0];
+        instances[o+5] = rgba[1];
+        instances[o+6] = rgba[2];
+        instances[o+7] = rgba[3];
+        instanceEntries[instanceCount++] = entry;
+        dirty = true;
+    }
+
+    /**
+     * Groups the instances by glyph via a counting sort over the {@link GLGlyphPool.Entry#getId() entry ids}.
+     */
+    private void groupInstances() {
+        final int entryCount = pool.getEntryCount();
+        final int[] starts = new int[entryCount];
+        final GLGlyphPool.Entry[] entries = new GLGlyphPool.Entry[entryCount];
+        for(int i=0; i<instanceCount; i++) {
+            final GLGlyphPool.Entry entry = instanceEntries[i];
+            starts[entry.getId()]++;
+            entries[entry.getId()] = entry;
+        }
+        int groups = 0;
+        for(int e=0; e<entryCount; e++) {
+            if( 0 < starts[e] ) {
+                groups++;
+            }
+        }
+        if( groupEntries.length < groups ) {
+            groupEntries = new GLGlyphPool.Entry[groups];
+            groupFirst = new int[groups];
+            groupCounts = new int[groups];
+        }
+        groupCount = 0;
+        int first = 0;
+        for(int e=0; e<entryCount; e++) {
+            final int count = starts[e];
+            if( 0 < count ) {
+                groupEntries[groupCount] = entries[e];
+                groupFirst[groupCount] = first;
+                groupCounts[groupCount] = count;
+                groupCount++;
+            }
+            starts[e] = first;
+            first += count;
+        }
+        final int floatCount = instanceCount * INSTANCE_COMPONENTS;
+        if( null == groupedInstances || groupedInstances.capacity() < floatCount ) {
+            groupedInstances = Buffers.newDirectFloatBuffer(Math.max(floatCount, instances.length));
+        }
+        groupedInstances.clear();
+        for(int i=0; i<instanceCount; i++) {
+            final int dst = starts[instanceEntries[i].getId()]++;
+            groupedInstances.position(dst * INSTANCE_COMPONENTS);
+            groupedInstances.put(instances, i * INSTANCE_COMPONENTS, INSTANCE_COMPONENTS);
+        }
+        groupedInstances.position(0);
+        groupedInstances.limit(floatCount);
+    }
+
+    private void upload(final GL2ES2 gl) {
+        groupInstances();
+        final int sizeInBytes = instanceCount * INSTANCE_BYTES;
+        if( 0 == vboName[0] ) {
+            gl.glGenBuffers(1, vboName, 0);
+        }
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, vboName[0]);
+        if( sizeInBytes > vboCapacity ) {
+            vboCapacity = groupedInstances.capacity() * Buffers.SIZEOF_FLOAT;
+            gl.glBufferData(GL.GL_ARRAY_BUFFER, vboCapacity, null, GL.GL_DYNAMIC_DRAW);
+        }
+        gl.glBufferSubData(GL.GL_ARRAY_BUFFER, 0, sizeInBytes, groupedInstances);
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+        dirty = false;
+    }
+
+    /**
+     * Renders all instances, see {@link GLRegion#draw(GL2ES2, RegionRenderer, int[])} for the renderer setup.
+     * <p>
+     * Uploads the {@link GLGlyphPool} if new glyphs have been added
+     * and the instance buffer if instances have been changed.
+     * </p>
+     * @param gl the current GL state
+     * @param renderer the {@link RegionRenderer} to be used
+     * @throws GLException if the renderer is not initialized or the context is not GL2ES3
+     */
+    public final void draw(final GL2ES2 gl, final RegionRenderer renderer) throws GLException {
+        if( !renderer.isInitialized() ) {
+            throw new GLException("GLTextInstances: renderer not initialized!");
+        }
+        if( !gl.isGL2ES3() ) {
+            throw new GLException("GLTextInstances: Instanced rendering requires GL2ES3, has "+gl);
+        }
+        final GL2ES3 gl3 = gl.getGL2ES3();
+        final RenderState rs = renderer.getRenderState();
+        renderer.useShaderProgram(gl, renderModes, true, 0, 0, null);
+        final ShaderProgram rsSp = rs.getShaderProgram();
+        final boolean updateLocation = !rsSp.equals(sp);
+        sp = rsSp;
+        if( updateLocation ) {
+            paramsLoc = gl.glGetAttribLocation(sp.program(), AttributeNames.INSTANCE_PARAMS_ATTR_NAME);
+            colorsLoc = gl.glGetAttribLocation(sp.program(), AttributeNames.INSTANCE_COLOR_ATTR_NAME);
+            if( throwOnError && ( 0 > paramsLoc || 0 > colorsLoc ) ) {
+                throw new GLException("Could not locate instance attributes: "+paramsLoc+", "+colorsLoc);
+            }
+        }
+        rsLocal.update(gl, rs, updateLocation, renderModes, true, throwOnError);
+
+        if( 0 == instanceCount ) {
+            groupCount = 0;
+            return; // empty!
+        }
+        pool.update(gl);
+        if( dirty ) {
+            upload(gl);
+        }
+        if( Region.DEBUG_INSTANCE ) {
+            System.err.println("GLTextInstances.draw: instances "+instanceCount+", draw calls "+groupCount+", "+pool);
+        }
+        if( rs.isHintMaskSet(RenderState.BITHINT_BLENDING_ENABLED) ) {
+            gl.glBlendFunc(GL.GL_SRC_ALPHA, GL.GL_ONE_MINUS_SRC_ALPHA);
+        }
+        pool.enable(gl, rs, true);
+
+        // skip attributes not located w/o throwOnError, like GLSLArrayHandler
+        final boolean hasParams = 0 <= paramsLoc;
+        final boolean hasColors = 0 <= colorsLoc;
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, vboName[0]);
+        if( hasParams ) {
+            gl.glEnableVertexAttribArray(paramsLoc);
+            gl3.glVertexAttribDivisor(paramsLoc, 1);
+        }
+        if( hasColors ) {
+            gl.glEnableVertexAttribArray(colorsLoc);
+            gl3.glVertexAttribDivisor(colorsLoc, 1);
+        }
+        for(int g=0; g<groupCount; g++) {
+            final GLGlyphPool.Entry entry = groupEntries[g];
+            final long offset = (long)groupFirst[g] * INSTANCE_BYTES;
+            if( hasParams ) {
+                gl.glVertexAttribPointer(paramsLoc, 4, GL.GL_FLOAT, false, INSTANCE_BYTES, offset);
+            }
+            if( hasColors ) {
+                gl.glVertexAttribPointer(colorsLoc, 4, GL.GL_FLOAT, false, INSTANCE_BYTES, offset + COLOR_OFFSET);
+            }
+            gl3.glDrawElementsInstanced(GL.GL_TRIANGLES, entry.getIndexCount(), GL.GL_UNSIGNED_INT,
+                                        (long)entry.getFirstIndex() * Buffers.SIZEOF_INT, groupCounts[g]);
+        }
+        if( hasColors ) {
+            gl3.glVertexAttribDivisor(colorsLoc, 0);
+            gl.glDisableVertexAttribArray(colorsLoc);
+        }
+        if( hasParams ) {
+            gl3.glVertexAttribDivisor(paramsLoc, 0);
+            gl.glDisableVertexAttribArray(paramsLoc);
+        }
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+
+        pool.enable(gl, rs, false);
+    }
+
+    /**
+     * Delete the instance buffer and remove all instances.
+     * The {@link GLGlyphPool} is not destroyed.
+     */
+    public final void destroy(final GL2ES2 gl) {
+        clear();
+        if( 0 != vboName[0] ) {
+            gl.glDeleteBuffers(1, vboName, 0);
+            vboName[0] = 0;
+        }
+        vboCapacity = 0;
+        groupCount = 0;
+        sp = null;
+    }
+
+    @Override
+    public String toString() {
+        return "GLTextInstances["+Region.getRenderModeString(renderModes)+", instances "+instanceCount+", draw calls "+groupCount+", "+pool+"]";
+    }
+}
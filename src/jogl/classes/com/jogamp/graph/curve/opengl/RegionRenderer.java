@@ -295,6 +295,8 @@ public class RegionRenderer {
 
     private static String GLSL_USE_COLOR_CHANNEL = "#define USE_COLOR_CHANNEL 1\n";
     private static String GLSL_USE_COLOR_TEXTURE = "#define USE_COLOR_TEXTURE 1\n";
+    private static String GLSL_USE_INSTANCING = "#define USE_INSTANCING 1\n";
+    private static String GLSL_USE_SDF = "#define USE_SDF 1\n";
     private static String GLSL_DEF_SAMPLE_COUNT = "#define SAMPLE_COUNT ";
     private static String GLSL_CONST_SAMPLE_COUNT = "const float sample_count = ";
     private static String GLSL_MAIN_BEGIN = "void main (void)\n{\n";
@@ -322,6 +324,8 @@ public class RegionRenderer {
         PASS1_SIMPLE("curve", "_simple", 0),
         /** Pass-1: Curve Varying Weight */
         PASS1_WEIGHT("curve", "_weight", 0),
+        /** Pass-1: Multi-channel signed distance field */
+        PASS1_SDF("sdf", "", 0),
         /** Pass-2: MSAA */
         PASS2_MSAA("msaa", "", 0),
         /** Pass-2: VBAA Flipquad3, 1 sample */
@@ -361,6 +365,9 @@ public class RegionRenderer {
         }
 
         public static ShaderModeSelector1 selectPass1(final int renderModes) {
+            if( Region.hasSDF(renderModes) ) {
+                return PASS1_SDF;
+            }
             return Region.hasVariableWeight(renderModes) ? PASS1_WEIGHT : PASS1_SIMPLE;
         }
 
@@ -398,7 +405,8 @@ public class RegionRenderer {
     }
     private final IntObjectHashMap shaderPrograms = new IntObjectHashMap();
 
-    private static final int HIGH_MASK = Region.COLORCHANNEL_RENDERING_BIT | Region.COLORTEXTURE_RENDERING_BIT;
+    private static final int HIGH_MASK = Region.COLORCHANNEL_RENDERING_BIT | Region.COLORTEXTURE_RENDERING_BIT | Region.INSTANCED_RENDERING_BIT |
+                                          Region.SDF_RENDERING_BIT;
     private static final int TWO_PASS_BIT = 1 <<  31;
 
     /**
@@ -497,6 +505,12 @@ public class RegionRenderer {
             posVp = rsVp.insertShaderSource(0, posVp, GLSL_USE_COLOR_CHANNEL);
             posFp = rsFp.insertShaderSource(0, posFp, GLSL_USE_COLOR_CHANNEL);
         }
+        if( Region.hasInstancing( renderModes ) ) {
+            posVp = rsVp.insertShaderSource(0, posVp, GLSL_USE_INSTANCING);
+        }
+        if( Region.hasSDF( renderModes ) ) {
+            posFp = rsFp.insertShaderSource(0, posFp, GLSL_USE_SDF);
+        }
         if( Region.hasColorTexture( renderModes ) ) {
                     rsVp.insertShaderSource(0, posVp, GLSL_USE_COLOR_TEXTURE);
             posFp = rsFp.insertShaderSource(0, posFp, GLSL_USE_COLOR_TEXTURE);
@@ -39,7 +39,7 @@ import jogamp.graph.geom.plane.AffineTransform;
 import com.jogamp.graph.curve.OutlineShape;
 import com.jogamp.graph.curve.Region;
 import com.jogamp.graph.font.Font;
-import com.jogamp.graph.font.Font.Glyph;
+import com.jogamp.graph.font.GlyphRun;
 import com.jogamp.graph.geom.Vertex;
 import com.jogamp.graph.geom.Vertex.Factory;
 
@@ -89,46 +89,29 @@ public class TextRegionUtil {
     public static void processString(final ShapeVisitor visitor, final AffineTransform transform,
                                      final Font font, final float pixelSize, final CharSequence str,
                                      final AffineTransform temp1, final AffineTransform temp2) {
-        final int charCount = str.length();
-
-        // region.setFlipped(true);
-        final Font.Metrics metrics = font.getMetrics();
-        final float lineHeight = font.getLineHeight(pixelSize);
-
-        final float scale = metrics.getScale(pixelSize);
-
-        float y = 0;
-        float advanceTotal = 0;
-
-        for(int i=0; i< charCount; i++) {
-            final char character = str.charAt(i);
-            if( '\n' == character ) {
-                y -= lineHeight;
-                advanceTotal = 0;
-            } else if (character == ' ') {
-                advanceTotal += font.getAdvanceWidth(Glyph.ID_SPACE, pixelSize);
+        // kerned and ligature substituted glyph positions
+        final GlyphRun run = font.getGlyphRun(str, pixelSize);
+        final float scale = font.getMetrics().getScale(pixelSize);
+        final int glyphCount = run.getGlyphCount();
+
+        for(int i=0; i< glyphCount; i++) {
+            final Font.Glyph glyph = run.getGlyph(i);
+            final OutlineShape glyphShape = glyph.getShape();
+            if( null == glyphShape ) {
+                continue;
+            }
+            if(Region.DEBUG_INSTANCE) {
+                System.err.println("XXXXXXXXXXXXXXx glyph: "+glyph.getID()+", scale: "+scale+"; translate: "+run.getX(i)+", "+run.getY(i));
+            }
+            // reset transform
+            if( null != transform ) {
+                temp1.setTransform(transform);
             } else {
-                if(Region.DEBUG_INSTANCE) {
-                    System.err.println("XXXXXXXXXXXXXXx char: "+character+", scale: "+scale+"; translate: "+advanceTotal+", "+y);
-                }
-                // reset transform
-                if( null != transform ) {
-                    temp1.setTransform(transform);
-                } else {
-                    temp1.setToIdentity();
-                }
-                temp1.translate(advanceTotal, y, temp2);
-                temp1.scale(scale, scale, temp2);
-
-                final Font.Glyph glyph = font.getGlyph(character);
-                final OutlineShape glyphShape = glyph.getShape();
-                if( null == glyphShape ) {
-                    continue;
-                }
-                visitor.visit(glyphShape, temp1);
-
-                advanceTotal += glyph.getAdvance(pixelSize, true);
+                temp1.setToIdentity();
             }
+            temp1.translate(run.getX(i), run.getY(i), temp2);
+            temp1.scale(scale, scale, temp2);
+            visitor.visit(glyphShape, temp1);
         }
     }
 
@@ -245,8 +228,53 @@ public class TextRegionUtil {
         region.draw(gl, renderer, sampleCount);
     }
 
+    /**
+     * Render the string in 3D space w.r.t. the font and pixelSize
+     * as instances of the glyphs tessellated once into the {@link #getGlyphPool() shared glyph pool}.
+     * <p>
+     * In contrast to {@link #drawString3D(GL2ES2, RegionRenderer, Font, float, CharSequence, float[], int[])}
+     * no {@link GLRegion} is created per distinct string, changing text only updates the small instance buffer.
+     * Hence this is the preferred method for many distinct and frequently changing strings.
+     * Multiple strings may be batched via {@link GLTextInstances} using the {@link #getGlyphPool() shared glyph pool}.
+     * </p>
+     * <p>
+     * Requires a GL2ES3 context and one pass {@link #renderModes render modes} w/o color texture,
+     * see {@link GLTextInstances}.
+     * </p>
+     * @param gl the current GL state
+     * @param renderer the {@link RegionRenderer} to be used
+     * @param font {@link Font} to be used
+     * @param pixelSize Use {@link Font#getPixelSize(float, float)} for resolution correct pixel-size.
+     * @param str text to be rendered
+     * @param rgbaColor RGBA color of the text
+     * @throws GLException if TextRenderer not initialized or the context is not GL2ES3
+     */
+    public void drawStringInstanced(final GL2ES2 gl, final RegionRenderer renderer, final Font font, final float pixelSize,
+                                    final CharSequence str, final float[] rgbaColor) {
+        if( null == textInstances ) {
+            textInstances = new GLTextInstances(renderModes, getGlyphPool());
+        }
+        textInstances.clear();
+        textInstances.addString(font, pixelSize, str, 0f, 0f, 0f, rgbaColor);
+        textInstances.draw(gl, renderer);
+    }
+
+    /**
+     * Returns the {@link GLGlyphPool} shared by {@link #drawStringInstanced(GL2ES2, RegionRenderer, Font, float, CharSequence, float[])},
+     * which may also be used for user {@link GLTextInstances}.
+     * <p>
+     * The pool is destroyed w/ {@link #clear(GL2ES2)}.
+     * </p>
+     */
+    public final GLGlyphPool getGlyphPool() {
+        if( null == glyphPool ) {
+            glyphPool = new GLGlyphPool();
+        }
+        return glyphPool;
+    }
+
    /**
-    * Clear all cached {@link GLRegions}.
+    * Clear all cached {@link GLRegions} and destroy the {@link #getGlyphPool() shared glyph pool}.
     */
    public void clear(final GL2ES2 gl) {
        // fluchCache(gl) already called
@@ -257,6 +285,14 @@ public class TextRegionUtil {
        }
        stringCacheMap.clear();
        stringCacheArray.clear();
+       if( null != textInstances ) {
+           textInstances.destroy(gl);
+           textInstances = null;
+       }
+       if( null != glyphPool ) {
+           glyphPool.destroy(gl);
+           glyphPool = null;
+       }
    }
 
    /**
@@ -348,4 +384,6 @@ public class TextRegionUtil {
    private final HashMap<String, GLRegion> stringCacheMap = new HashMap<String, GLRegion>(DEFAULT_CACHE_LIMIT);
    private final ArrayList<String> stringCacheArray = new ArrayList<String>(DEFAULT_CACHE_LIMIT);
    private int stringCacheLimit = DEFAULT_CACHE_LIMIT;
+   private GLGlyphPool glyphPool = null;
+   private GLTextInstances textInstances = null;
 }
\ No newline at end of file
@@ -29,16 +29,43 @@
 package com.jogamp.graph.curve.tess;
 
 import jogamp.graph.curve.tess.CDTriangulator2D;
+import jogamp.graph.curve.tess.SweepTriangulator2D;
 
 
 public class Triangulation {
-    /** Create a new instance of a triangulation.
-     *  Currently only a modified version of Constraint Delaunay
-     *  is implemented.
+    /** Triangulation algorithm */
+    public enum Type {
+        /**
+         * Modified Constraint Delaunay triangulation, the default.
+         * Produces well shaped triangles, but may not complete complex outlines.
+         */
+        CDT,
+        /**
+         * Sweep-line monotone partition in O(n log n), which always completes.
+         * Triangles are not Delaunay.
+         */
+        SWEEP
+    }
+
+    /** Create a new instance of the default {@link Type#CDT} triangulation,
+     *  a modified version of Constraint Delaunay.
      * @return instance of a triangulator
      * @see Triangulator
      */
     public static Triangulator create() {
         return new CDTriangulator2D();
     }
+
+    /** Create a new instance of a triangulation of the given {@link Type}.
+     * @return instance of a triangulator
+     * @see Triangulator
+     */
+    public static Triangulator create(final Type type) {
+        switch( type ) {
+            case SWEEP:
+                return new SweepTriangulator2D();
+            default:
+                return new CDTriangulator2D();
+        }
+    }
 }
@@ -175,6 +175,41 @@ public interface Font {
     public Glyph getGlyph(final char symbol);
     public int getNumGlyphs();
 
+    /**
+     * Returns the glyph ID of the given symbol as mapped by the font,
+     * {@link Glyph#ID_UNKNOWN} if not mapped.
+     */
+    public int getGlyphID(final char symbol);
+
+    /**
+     * Returns the {@link Glyph} of the given glyph ID,
+     * e.g. a substituted glyph or ligature of a {@link #getGlyphRun(CharSequence, float) glyph run},
+     * which may have no symbol mapped.
+     * @param glyphID the font specific glyph ID
+     */
+    public Glyph getGlyphByID(final int glyphID);
+
+    /**
+     * Returns the horizontal kerning adjustment between the given glyph pair,
+     * to be added to the left glyph's advance.
+     * @param leftGlyphID glyph ID of the left glyph
+     * @param rightGlyphID glyph ID of the right glyph
+     * @param pixelSize Use <code>pointSize * resolution</code> for resolution correct pixel-size, see {@link #getPixelSize(float, float)}
+     */
+    public float getKerning(final int leftGlyphID, final int rightGlyphID, final float pixelSize);
+
+    /**
+     * Returns the shaped and laid out glyphs of the given string,
+     * i.e. glyph substitutions like ligatures and pair kerning applied.
+     * <p>
+     * Implementations may cache the result by string and pixel size,
+     * hence repeated strings are not shaped again.
+     * </p>
+     * @param string string text
+     * @param pixelSize Use <code>pointSize * resolution</code> for resolution correct pixel-size, see {@link #getPixelSize(float, float)}
+     */
+    public GlyphRun getGlyphRun(final CharSequence string, final float pixelSize);
+
     /**
      *
      * @param pixelSize Use <code>pointSize * resolution</code> for resolution correct pixel-size, see {@link #getPixelSize(float, float)}
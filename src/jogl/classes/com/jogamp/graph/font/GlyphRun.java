@@ -0,0 +1,116 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.graph.font;
+
+/**
+ * Shaped and laid out glyphs of a string w.r.t. a {@link Font} and pixel size,
+ * see {@link Font#getGlyphRun(CharSequence, float)}.
+ * <p>
+ * Shaping applies the font's glyph substitutions, e.g. ligatures, and pair kerning.
+ * Only visible glyphs are contained, i.e. space and newline characters only advance the pen position.
+ * </p>
+ * <p>
+ * Positions are the glyph origins in pixel units relative to the string's origin,
+ * each line advancing downwards by {@link Font#getLineHeight(float)}.
+ * </p>
+ * <p>
+ * Glyphs are referenced by symbol or glyph ID and resolved via the font on each {@link #getGlyph(int)} call,
+ * i.e. a cached run doesn't keep glyphs alive which have been evicted from the font's glyph cache.
+ * </p>
+ * <p>
+ * Instances are immutable and may be shared.
+ * </p>
+ */
+public final class GlyphRun {
+    private final Font font;
+    private final float pixelSize;
+    private final char[] symbols;
+    private final int[] glyphIDs;
+    private final float[] positions;
+    private final int glyphCount;
+    private final float width;
+    private final int lineCount;
+
+    /**
+     * @param font the {@link Font}
+     * @param pixelSize the pixel size
+     * @param symbols the symbol of each glyph or zero if none is mapped, e.g. for a ligature, owned by this instance
+     * @param glyphIDs the glyph ID of each glyph, used if no symbol is mapped, owned by this instance
+     * @param positions x and y position of each glyph, owned by this instance
+     * @param glyphCount the number of glyphs
+     * @param width the maximum advance of all lines
+     * @param lineCount the number of lines
+     */
+    public GlyphRun(final Font font, final float pixelSize, final char[] symbols, final int[] glyphIDs, final float[] positions,
+                    final int glyphCount, final float width, final int lineCount) {
+        this.font = font;
+        this.pixelSize = pixelSize;
+        this.symbols = symbols;
+        this.glyphIDs = glyphIDs;
+        this.positions = positions;
+        this.glyphCount = glyphCount;
+        this.width = width;
+        this.lineCount = lineCount;
+    }
+
+    public final Font getFont() { return font; }
+
+    public final float getPixelSize() { return pixelSize; }
+
+    /** Returns the number of visible glyphs. */
+    public final int getGlyphCount() { return glyphCount; }
+
+    /** Returns the glyph at the given index, retrieved via {@link Font#getGlyph(char)} or {@link Font#getGlyphByID(int)}. */
+    public final Font.Glyph getGlyph(final int i) {
+        final char symbol = symbols[i];
+        return 0 != symbol ? font.getGlyph(symbol) : font.getGlyphByID(glyphIDs[i]);
+    }
+
+    /** Returns the glyph ID at the given index. */
+    public final int getGlyphID(final int i) { return glyphIDs[i]; }
+
+    /** Returns the symbol at the given index, or zero if none is mapped, e.g. for a ligature. */
+    public final char getSymbol(final int i) { return symbols[i]; }
+
+    /** Returns the x-position of the glyph's origin at the given index. */
+    public final float getX(final int i) { return positions[2*i]; }
+
+    /** Returns the y-position of the glyph's origin at the given index. */
+    public final float getY(final int i) { return positions[2*i+1]; }
+
+    /** Returns the maximum advance of all lines, including kerning. */
+    public final float getWidth() { return width; }
+
+    /** Returns the number of lines, i.e. the number of newline characters plus one. */
+    public final int getLineCount() { return lineCount; }
+
+    @Override
+    public String toString() {
+        return "GlyphRun["+font+", pixelSize "+pixelSize+", glyphs "+glyphCount+", width "+width+", lines "+lineCount+"]";
+    }
+}
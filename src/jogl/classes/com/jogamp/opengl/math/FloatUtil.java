@@ -1844,6 +1844,328 @@ public final class FloatUtil {
     }
   }
 
+  //
+  // Bulk Matrix Ops
+  //
+  // Transforming many vectors or matrices with one call avoids the per-element call overhead
+  // and allows the JIT to hoist the constant matrix into registers. Loops are kept trivial,
+  // i.e. linear unit-stride access w/o branches, so they are eligible for range-check elimination
+  // and superword (SIMD) auto-vectorization.
+  //
+
+  /**
+   * Multiply matrix with an array of 4-component column-vectors: v_out[i] = m_in * v_in[i]
+   * <p>
+   * Vectors are tightly packed, i.e. vector <code>i</code> starts at <code>v_in_off+i*4</code>.
+   * Input and output may be the same array at the same offset for an in-place transformation.
+   * </p>
+   * @param m_in 4x4 matrix in column-major order
+   * @param m_in_off offset to matrix
+   * @param v_in array of 4-component column-vectors
+   * @param v_in_off offset to first input vector
+   * @param v_out array of 4-component column-vectors, receiving the result
+   * @param v_out_off offset to first output vector
+   * @param count number of vectors to transform
+   * @return given result array <i>v_out</i> for chaining
+   * @see #multMatrixVec(float[], int, float[], int, float[], int)
+   */
+  public static float[] multMatrixVec4Array(final float[] m_in, final int m_in_off,
+                                            final float[] v_in, final int v_in_off,
+                                            final float[] v_out, final int v_out_off, final int count) {
+      checkBulkBounds(v_in, v_in_off, v_out, v_out_off, 4, count);
+      final float m00 = m_in[m_in_off+0+0*4], m10 = m_in[m_in_off+1+0*4], m20 = m_in[m_in_off+2+0*4], m30 = m_in[m_in_off+3+0*4];
+      final float m01 = m_in[m_in_off+0+1*4], m11 = m_in[m_in_off+1+1*4], m21 = m_in[m_in_off+2+1*4], m31 = m_in[m_in_off+3+1*4];
+      final float m02 = m_in[m_in_off+0+2*4], m12 = m_in[m_in_off+1+2*4], m22 = m_in[m_in_off+2+2*4], m32 = m_in[m_in_off+3+2*4];
+      final float m03 = m_in[m_in_off+0+3*4], m13 = m_in[m_in_off+1+3*4], m23 = m_in[m_in_off+2+3*4], m33 = m_in[m_in_off+3+3*4];
+
+      for(int i=0; i<count; i++) {
+          final int ii = v_in_off + i*4;
+          final int io = v_out_off + i*4;
+          final float x = v_in[ii+0], y = v_in[ii+1], z = v_in[ii+2], w = v_in[ii+3];
+          v_out[io+0] = m00 * x  +  m01 * y  +  m02 * z  +  m03 * w ;
+          v_out[io+1] = m10 * x  +  m11 * y  +  m12 * z  +  m13 * w ;
+          v_out[io+2] = m20 * x  +  m21 * y  +  m22 * z  +  m23 * w ;
+          v_out[io+3] = m30 * x  +  m31 * y  +  m32 * z  +  m33 * w ;
+      }
+      return v_out;
+  }
+
+  /**
+   * Multiply matrix with an array of 3-component points: v_out[i] = m_in * ( v_in[i], 1 )
+   * <p>
+   * Each point is treated as a homogeneous column-vector with <code>w = 1</code>,
+   * the resulting <code>w</code> component is dropped, i.e. no perspective division is performed.
+   * Hence this method is intended for affine transformations, e.g. a model-view matrix.
+   * </p>
+   * <p>
+   * Points are tightly packed, i.e. point <code>i</code> starts at <code>v_in_off+i*3</code>.
+   * Input and output may be the same array at the same offset for an in-place transformation.
+   * </p>
+   * @param m_in 4x4 matrix in column-major order
+   * @param m_in_off offset to matrix
+   * @param v_in array of 3-component points
+   * @param v_in_off offset to first input point
+   * @param v_out array of 3-component points, receiving the result
+   * @param v_out_off offset to first output point
+   * @param count number of points to transform
+   * @return given result array <i>v_out</i> for chaining
+   */
+  public static float[] multMatrixVec3Array(final float[] m_in, final int m_in_off,
+                                            final float[] v_in, final int v_in_off,
+                                            final float[] v_out, final int v_out_off, final int count) {
+      checkBulkBounds(v_in, v_in_off, v_out, v_out_off, 3, count);
+      final float m00 = m_in[m_in_off+0+0*4], m10 = m_in[m_in_off+1+0*4], m20 = m_in[m_in_off+2+0*4];
+      final float m01 = m_in[m_in_off+0+1*4], m11 = m_in[m_in_off+1+1*4], m21 = m_in[m_in_off+2+1*4];
+      final float m02 = m_in[m_in_off+0+2*4], m12 = m_in[m_in_off+1+2*4], m22 = m_in[m_in_off+2+2*4];
+      final float m03 = m_in[m_in_off+0+3*4], m13 = m_in[m_in_off+1+3*4], m23 = m_in[m_in_off+2+3*4];
+
+      for(int i=0; i<count; i++) {
+          final int ii = v_in_off + i*3;
+          final int io = v_out_off + i*3;
+          final float x = v_in[ii+0], y = v_in[ii+1], z = v_in[ii+2];
+          v_out[io+0] = m00 * x  +  m01 * y  +  m02 * z  +  m03 ;
+          v_out[io+1] = m10 * x  +  m11 * y  +  m12 * z  +  m13 ;
+          v_out[io+2] = m20 * x  +  m21 * y  +  m22 * z  +  m23 ;
+      }
+      return v_out;
+  }
+
+  /**
+   * Multiply matrix with an array of 3-component directions: v_out[i] = m_in * ( v_in[i], 0 )
+   * <p>
+   * Same as {@link #multMatrixVec3Array(float[], int, float[], int, float[], int, int)}
+   * but treating each vector as a direction with <code>w = 0</code>, i.e. the translation is not applied.
+   * </p>
+   * @param m_in 4x4 matrix in column-major order
+   * @param m_in_off offset to matrix
+   * @param v_in array of 3-component directions
+   * @param v_in_off offset to first input direction
+   * @param v_out array of 3-component directions, receiving the result
+   * @param v_out_off offset to first output direction
+   * @param count number of directions to transform
+   * @return given result array <i>v_out</i> for chaining
+   */
+  public static float[] multMatrixDir3Array(final float[] m_in, final int m_in_off,
+                                            final float[] v_in, final int v_in_off,
+                                            final float[] v_out, final int v_out_off, final int count) {
+      checkBulkBounds(v_in, v_in_off, v_out, v_out_off, 3, count);
+      final float m00 = m_in[m_in_off+0+0*4], m10 = m_in[m_in_off+1+0*4], m20 = m_in[m_in_off+2+0*4];
+      final float m01 = m_in[m_in_off+0+1*4], m11 = m_in[m_in_off+1+1*4], m21 = m_in[m_in_off+2+1*4];
+      final float m02 = m_in[m_in_off+0+2*4], m12 = m_in[m_in_off+1+2*4], m22 = m_in[m_in_off+2+2*4];
+
+      for(int i=0; i<count; i++) {
+          final int ii = v_in_off + i*3;
+          final int io = v_out_off + i*3;
+          final float x = v_in[ii+0], y = v_in[ii+1], z = v_in[ii+2];
+          v_out[io+0] = m00 * x  +  m01 * y  +  m02 * z ;
+          v_out[io+1] = m10 * x  +  m11 * y  +  m12 * z ;
+          v_out[io+2] = m20 * x  +  m21 * y  +  m22 * z ;
+      }
+      return v_out;
+  }
+
+  /**
+   * Multiply matrix with an array of 4-component column-vectors: v_out[i] = m_in * v_in[i]
+   * <p>
+   * Buffer variant of {@link #multMatrixVec4Array(float[], int, float[], int, float[], int, int)},
+   * using absolute indexing relative to each buffer's current position, which is not modified.
+   * </p>
+   * <p>
+   * Input and output may be the same buffer at the same position for an in-place transformation.
+   * </p>
+   * @param m_in 4x4 matrix in column-major order
+   * @param m_in_off offset to matrix
+   * @param v_in buffer of 4-component column-vectors starting at its current position
+   * @param v_out buffer of 4-component column-vectors starting at its current position, receiving the result
+   * @param count number of vectors to transform
+   */
+  public static void multMatrixVec4Array(final float[] m_in, final int m_in_off,
+                                         final FloatBuffer v_in, final FloatBuffer v_out, final int count) {
+      checkBulkBounds(v_in, v_out, 4, count);
+      final float m00 = m_in[m_in_off+0+0*4], m10 = m_in[m_in_off+1+0*4], m20 = m_in[m_in_off+2+0*4], m30 = m_in[m_in_off+3+0*4];
+      final float m01 = m_in[m_in_off+0+1*4], m11 = m_in[m_in_off+1+1*4], m21 = m_in[m_in_off+2+1*4], m31 = m_in[m_in_off+3+1*4];
+      final float m02 = m_in[m_in_off+0+2*4], m12 = m_in[m_in_off+1+2*4], m22 = m_in[m_in_off+2+2*4], m32 = m_in[m_in_off+3+2*4];
+      final float m03 = m_in[m_in_off+0+3*4], m13 = m_in[m_in_off+1+3*4], m23 = m_in[m_in_off+2+3*4], m33 = m_in[m_in_off+3+3*4];
+      final int v_in_off = v_in.position();
+      final int v_out_off = v_out.position();
+
+      for(int i=0; i<count; i++) {
+          final int ii = v_in_off + i*4;
+          final int io = v_out_off + i*4;
+          final float x = v_in.get(ii+0), y = v_in.get(ii+1), z = v_in.get(ii+2), w = v_in.get(ii+3);
+          v_out.put(io+0, m00 * x  +  m01 * y  +  m02 * z  +  m03 * w );
+          v_out.put(io+1, m10 * x  +  m11 * y  +  m12 * z  +  m13 * w );
+          v_out.put(io+2, m20 * x  +  m21 * y  +  m22 * z  +  m23 * w );
+          v_out.put(io+3, m30 * x  +  m31 * y  +  m32 * z  +  m33 * w );
+      }
+  }
+
+  /**
+   * Multiply matrix with an array of 3-component points: v_out[i] = m_in * ( v_in[i], 1 )
+   * <p>
+   * Buffer variant of {@link #multMatrixVec3Array(float[], int, float[], int, float[], int, int)},
+   * using absolute indexing relative to each buffer's current position, which is not modified.
+   * </p>
+   * <p>
+   * Input and output may be the same buffer at the same position for an in-place transformation.
+   * </p>
+   * @param m_in 4x4 matrix in column-major order
+   * @param m_in_off offset to matrix
+   * @param v_in buffer of 3-component points starting at its current position
+   * @param v_out buffer of 3-component points starting at its current position, receiving the result
+   * @param count number of points to transform
+   */
+  public static void multMatrixVec3Array(final float[] m_in, final int m_in_off,
+                                         final FloatBuffer v_in, final FloatBuffer v_out, final int count) {
+      checkBulkBounds(v_in, v_out, 3, count);
+      final float m00 = m_in[m_in_off+0+0*4], m10 = m_in[m_in_off+1+0*4], m20 = m_in[m_in_off+2+0*4];
+      final float m01 = m_in[m_in_off+0+1*4], m11 = m_in[m_in_off+1+1*4], m21 = m_in[m_in_off+2+1*4];
+      final float m02 = m_in[m_in_off+0+2*4], m12 = m_in[m_in_off+1+2*4], m22 = m_in[m_in_off+2+2*4];
+      final float m03 = m_in[m_in_off+0+3*4], m13 = m_in[m_in_off+1+3*4], m23 = m_in[m_in_off+2+3*4];
+      final int v_in_off = v_in.position();
+      final int v_out_off = v_out.position();
+
+      for(int i=0; i<count; i++) {
+          final int ii = v_in_off + i*3;
+          final int io = v_out_off + i*3;
+          final float x = v_in.get(ii+0), y = v_in.get(ii+1), z = v_in.get(ii+2);
+          v_out.put(io+0, m00 * x  +  m01 * y  +  m02 * z  +  m03 );
+          v_out.put(io+1, m10 * x  +  m11 * y  +  m12 * z  +  m13 );
+          v_out.put(io+2, m20 * x  +  m21 * y  +  m22 * z  +  m23 );
+      }
+  }
+
+  /**
+   * Multiply matrix with an array of 3-component directions: v_out[i] = m_in * ( v_in[i], 0 )
+   * <p>
+   * Buffer variant of {@link #multMatrixDir3Array(float[], int, float[], int, float[], int, int)},
+   * using absolute indexing relative to each buffer's current position, which is not modified.
+   * </p>
+   * <p>
+   * Input and output may be the same buffer at the same position for an in-place transformation.
+   * </p>
+   * @param m_in 4x4 matrix in column-major order
+   * @param m_in_off offset to matrix
+   * @param v_in buffer of 3-component directions starting at its current position
+   * @param v_out buffer of 3-component directions starting at its current position, receiving the result
+   * @param count number of directions to transform
+   */
+  public static void multMatrixDir3Array(final float[] m_in, final int m_in_off,
+                                         final FloatBuffer v_in, final FloatBuffer v_out, final int count) {
+      checkBulkBounds(v_in, v_out, 3, count);
+      final float m00 = m_in[m_in_off+0+0*4], m10 = m_in[m_in_off+1+0*4], m20 = m_in[m_in_off+2+0*4];
+      final float m01 = m_in[m_in_off+0+1*4], m11 = m_in[m_in_off+1+1*4], m21 = m_in[m_in_off+2+1*4];
+      final float m02 = m_in[m_in_off+0+2*4], m12 = m_in[m_in_off+1+2*4], m22 = m_in[m_in_off+2+2*4];
+      final int v_in_off = v_in.position();
+      final int v_out_off = v_out.position();
+
+      for(int i=0; i<count; i++) {
+          final int ii = v_in_off + i*3;
+          final int io = v_out_off + i*3;
+          final float x = v_in.get(ii+0), y = v_in.get(ii+1), z = v_in.get(ii+2);
+          v_out.put(io+0, m00 * x  +  m01 * y  +  m02 * z );
+          v_out.put(io+1, m10 * x  +  m11 * y  +  m12 * z );
+          v_out.put(io+2, m20 * x  +  m21 * y  +  m22 * z );
+      }
+  }
+
+  /**
+   * Multiply one matrix with an array of matrices: [d_i] = [a] x [b_i]
+   * <p>
+   * Typical use is to concatenate a parent transformation with many instance transformations.
+   * Matrices are tightly packed, i.e. matrix <code>i</code> starts at <code>b_off+i*16</code>.
+   * </p>
+   * <p>
+   * Arrays <code>b</code> and <code>d</code> may be the same at the same offset for an in-place operation,
+   * however, <code>a</code> shall not overlap with <code>d</code>.
+   * </p>
+   * @param a 4x4 matrix in column-major order
+   * @param a_off offset to matrix <code>a</code>
+   * @param b array of 4x4 matrices in column-major order
+   * @param b_off offset to first matrix of <code>b</code>
+   * @param d array of 4x4 matrices in column-major order, receiving the result a*b_i
+   * @param d_off offset to first result matrix of <code>d</code>
+   * @param count number of matrices to multiply
+   * @return given result array <i>d</i> for chaining
+   * @see #multMatrix(float[], int, float[], int, float[], int)
+   */
+  public static float[] multMatrixArray(final float[] a, final int a_off,
+                                        final float[] b, final int b_off,
+                                        final float[] d, final int d_off, final int count) {
+      checkBulkBounds(b, b_off, d, d_off, 16, count);
+      final float a00 = a[a_off+0+0*4], a10 = a[a_off+1+0*4], a20 = a[a_off+2+0*4], a30 = a[a_off+3+0*4];
+      final float a01 = a[a_off+0+1*4], a11 = a[a_off+1+1*4], a21 = a[a_off+2+1*4], a31 = a[a_off+3+1*4];
+      final float a02 = a[a_off+0+2*4], a12 = a[a_off+1+2*4], a22 = a[a_off+2+2*4], a32 = a[a_off+3+2*4];
+      final float a03 = a[a_off+0+3*4], a13 = a[a_off+1+3*4], a23 = a[a_off+2+3*4], a33 = a[a_off+3+3*4];
+
+      for(int i=0; i<count; i++) {
+          final int bi = b_off + i*16;
+          final int di = d_off + i*16;
+          // each column of [d_i] is [a] x (column of [b_i])
+          for(int c=0; c<16; c+=4) {
+              final float x = b[bi+c+0], y = b[bi+c+1], z = b[bi+c+2], w = b[bi+c+3];
+              d[di+c+0] = a00 * x  +  a01 * y  +  a02 * z  +  a03 * w ;
+              d[di+c+1] = a10 * x  +  a11 * y  +  a12 * z  +  a13 * w ;
+              d[di+c+2] = a20 * x  +  a21 * y  +  a22 * z  +  a23 * w ;
+              d[di+c+3] = a30 * x  +  a31 * y  +  a32 * z  +  a33 * w ;
+          }
+      }
+      return d;
+  }
+
+  /**
+   * Multiply two arrays of matrices element-wise: [d_i] = [a_i] x [b_i]
+   * <p>
+   * Matrices are tightly packed, i.e. matrix <code>i</code> starts at <code>*_off+i*16</code>.
+   * Array <code>d</code> shall not overlap with <code>a</code> or <code>b</code>.
+   * </p>
+   * @param a array of 4x4 matrices in column-major order
+   * @param a_off offset to first matrix of <code>a</code>
+   * @param b array of 4x4 matrices in column-major order
+   * @param b_off offset to first matrix of <code>b</code>
+   * @param d array of 4x4 matrices in column-major order, receiving the result a_i*b_i
+   * @param d_off offset to first result matrix of <code>d</code>
+   * @param count number of matrices to multiply
+   * @return given result array <i>d</i> for chaining
+   */
+  public static float[] multMatrixArrays(final float[] a, final int a_off,
+                                         final float[] b, final int b_off,
+                                         final float[] d, final int d_off, final int count) {
+      checkBulkBounds(a, a_off, d, d_off, 16, count);
+      checkBulkBounds(b, b_off, d, d_off, 16, count);
+      for(int i=0; i<count; i++) {
+          multMatrix(a, a_off+i*16, b, b_off+i*16, d, d_off+i*16);
+      }
+      return d;
+  }
+
+  private static void checkBulkBounds(final float[] v_in, final int v_in_off, final float[] v_out, final int v_out_off,
+                                      final int components, final int count) {
+      if( 0 > count ) {
+          throw new IllegalArgumentException("Negative count "+count);
+      }
+      final long len = (long)components * count;
+      if( 0 > v_in_off || v_in_off + len > v_in.length ) {
+          throw new IndexOutOfBoundsException("Input of "+count+" x "+components+" components at offset "+v_in_off+" exceeds length "+v_in.length);
+      }
+      if( 0 > v_out_off || v_out_off + len > v_out.length ) {
+          throw new IndexOutOfBoundsException("Output of "+count+" x "+components+" components at offset "+v_out_off+" exceeds length "+v_out.length);
+      }
+  }
+
+  private static void checkBulkBounds(final FloatBuffer v_in, final FloatBuffer v_out, final int components, final int count) {
+      if( 0 > count ) {
+          throw new IllegalArgumentException("Negative count "+count);
+      }
+      final long len = (long)components * count;
+      if( len > v_in.remaining() ) {
+          throw new IndexOutOfBoundsException("Input of "+count+" x "+components+" components exceeds remaining "+v_in.remaining());
+      }
+      if( len > v_out.remaining() ) {
+          throw new IndexOutOfBoundsException("Output of "+count+" x "+components+" components exceeds remaining "+v_out.remaining());
+      }
+  }
+
   /**
    * Copy the named column of the given column-major matrix to v_out.
    * <p>
@@ -0,0 +1,724 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.math.geom;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.jogamp.opengl.math.Ray;
+
+/**
+ * Bounding volume hierarchy over an array of axis aligned bounding boxes,
+ * answering {@link Ray} picking and {@link Frustum} culling queries
+ * in logarithmic instead of linear time.
+ * <p>
+ * Boxes are passed in the structure of arrays layout also used by
+ * {@link Frustum#cullAABBoxes(float[], float[], int, byte[], int[])},
+ * i.e. <code>low</code> and <code>high</code> hold 3 floats per box.
+ * The tree only references these arrays, queries return box indices.
+ * </p>
+ * <p>
+ * The tree is built top-down using the surface area heuristic (SAH),
+ * evaluated at the {@link #BIN_COUNT} bin borders along the longest axis of the box centroids.
+ * Large trees may be built concurrently, see {@link #build(ExecutorService, float[], float[], int)}.
+ * </p>
+ * <p>
+ * If boxes move, {@link #refit()} updates all node bounds in linear time
+ * w/o changing the tree topology. Since query performance degrades
+ * with boxes moving far from their initial position, the tree shall be rebuilt occasionally.
+ * </p>
+ * <p>
+ * Nodes are stored in flat arrays in depth-first order, i.e. the left child of an inner node
+ * directly follows its parent. Each subtree of <i>n</i> boxes reserves <i>2n-1</i> node slots,
+ * hence all subtrees can be built independently.
+ * </p>
+ * <p>
+ * Queries are thread safe as long as the tree is neither built nor refitted concurrently.
+ * </p>
+ * <pre>
+ * On fast Construction of SAH-based Bounding Volume Hierarchies
+ *   Ingo Wald, IEEE Symposium on Interactive Ray Tracing 2007
+ * </pre>
+ */
+public class AABBoxTree {
+    /** Number of bins used to evaluate the surface area heuristic per split, value {@value}. */
+    public static final int BIN_COUNT = 16;
+
+    /** Default maximum number of boxes per leaf, value {@value}. */
+    public static final int DEFAULT_LEAF_SIZE = 4;
+
+    /** Minimum number of boxes of a subtree being built by a separate task. */
+    private static final int PARALLEL_MIN_BOXES = 4096;
+
+    /** Cost of traversing a node relative to testing a box. */
+    private static final float TRAVERSAL_COST = 1f;
+
+    private final int maxLeafSize;
+
+    private float[] low, high;
+    private int count;
+    private int nodeSlots;
+    private int[] boxIdx;
+    /** Centroid times two of each box, only valid while building. */
+    private float[] centroid2;
+
+    private float[] nodeLow, nodeHigh;
+    /** First {@link #boxIdx} offset of the subtree's boxes. */
+    private int[] nodeFirst;
+    /** Number of boxes of the subtree, zero for unused slots. */
+    private int[] nodeBoxes;
+    /** Right child of an inner node, zero for leaves. */
+    private int[] nodeRight;
+
+    /** Creates an empty tree using {@link #DEFAULT_LEAF_SIZE}. */
+    public AABBoxTree() {
+        this(DEFAULT_LEAF_SIZE);
+    }
+
+    /**
+     * Creates an empty tree.
+     * @param maxLeafSize maximum number of boxes per leaf, must be greater than zero
+     * @throws IllegalArgumentException if <code>maxLeafSize</code> is less than one
+     */
+    public AABBoxTree(final int maxLeafSize) throws IllegalArgumentException {
+        if( 1 > maxLeafSize ) {
+            throw new IllegalArgumentException("Invalid maxLeafSize "+maxLeafSize);
+        }
+        this.maxLeafSize = maxLeafSize;
+        this.count = 0;
+        this.nodeSlots = 0;
+    }
+
+    /** Returns the maximum number of boxes per leaf. */
+    public final int getMaxLeafSize() { return maxLeafSize; }
+
+    /** Returns the number of boxes of the last {@link #build(float[], float[], int) build}. */
+    public final int getBoxCount() { return count; }
+
+    /** Returns the number of used nodes. */
+    public final int getNodeCount() {
+        int n = 0;
+        for(int i=0; i<nodeSlots; i++) {
+            if( 0 < nodeBoxes[i] ) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /** Returns the depth of the tree, i.e. one for a single leaf and zero if empty. */
+    public final int getDepth() {
+        return 0 < count ? getDepth(0) : 0;
+    }
+    private int getDepth(final int node) {
+        if( 0 == nodeRight[node] ) {
+            return 1;
+        }
+        return 1 + Math.max(getDepth(node+1), getDepth(nodeRight[node]));
+    }
+
+    /**
+     * Builds the tree over the given boxes.
+     * <p>
+     * The arrays are referenced, not copied. They are read again by {@link #refit()}
+     * and by all queries, hence they shall only be modified in between a call to {@link #refit()}.
+     * </p>
+     * @param low lower box corners, 3 floats per box
+     * @param high upper box corners, 3 floats per box
+     * @param count number of boxes
+     * @throws IndexOutOfBoundsException if <code>count</code> exceeds the given arrays
+     */
+    public final void build(final float[] low, final float[] high, final int count) throws IndexOutOfBoundsException {
+        prepareBuild(low, high, count);
+        if( 0 < count ) {
+            new Builder().buildSubtree(0, 0, count);
+        }
+        centroid2 = null;
+    }
+
+    /**
+     * Builds the tree like {@link #build(float[], float[], int)},
+     * but builds all subtrees of sufficient size concurrently using the given <code>executor</code>.
+     * <p>
+     * The upper levels are split by the calling thread, hence no task waits for another task.
+     * This method blocks until all tasks are completed.
+     * </p>
+     * @param executor the executor running the tasks, e.g. a fixed thread pool sized to the number of cores
+     * @param low lower box corners, 3 floats per box
+     * @param high upper box corners, 3 floats per box
+     * @param count number of boxes
+     * @throws IndexOutOfBoundsException if <code>count</code> exceeds the given arrays
+     * @throws InterruptedException if interrupted while waiting for the tasks
+     * @throws RuntimeException if a task failed, wrapping the cause unless it is a {@link RuntimeException}
+     */
+    public final void build(final ExecutorService executor, final float[] low, final float[] high, final int count)
+            throws IndexOutOfBoundsException, InterruptedException, RuntimeException
+    {
+        prepareBuild(low, high, count);
+        if( 0 < count ) {
+            final ArrayList<Future<?>> results = new ArrayList<Future<?>>();
+            try {
+                splitParallel(executor, new Builder(), 0, 0, count, results);
+                for(int i=0; i<results.size(); i++) {
+                    results.get(i).get();
+                }
+            } catch (final ExecutionException ee) {
+                final Throwable t = ee.getCause();
+                if( t instanceof RuntimeException ) {
+                    throw (RuntimeException)t;
+                }
+                throw new RuntimeException(t);
+            } finally {
+                for(int i=0; i<results.size(); i++) {
+                    results.get(i).cancel(false);
+                }
+            }
+        }
+        centroid2 = null;
+    }
+
+    private void splitParallel(final ExecutorService executor, final Builder builder,
+                               final int node, final int begin, final int end, final ArrayList<Future<?>> results) {
+        if( end - begin < PARALLEL_MIN_BOXES ) {
+            results.add( executor.submit( new Callable<Object>() {
+                @Override
+                public Object call() {
+                    new Builder().buildSubtree(node, begin, end);
+                    return null;
+                } } ) );
+            return;
+        }
+        final int mid = builder.splitNode(node, begin, end);
+        if( 0 <= mid ) {
+            splitParallel(executor, builder, node+1, begin, mid, results);
+            splitParallel(executor, builder, nodeRight[node], mid, end, results);
+        }
+    }
+
+    private void prepareBuild(final float[] low, final float[] high, final int count) throws IndexOutOfBoundsException {
+        if( 0 > count || low.length < 3*count || high.length < 3*count ) {
+            throw new IndexOutOfBoundsException("count "+count+" exceeds low "+low.length+" or high "+high.length+" length / 3");
+        }
+        this.low = low;
+        this.high = high;
+        this.count = count;
+        nodeSlots = Math.max(0, 2*count-1);
+        if( null == nodeBoxes || nodeBoxes.length < nodeSlots ) {
+            nodeLow = new float[3*nodeSlots];
+            nodeHigh = new float[3*nodeSlots];
+            nodeFirst = new int[nodeSlots];
+            nodeBoxes = new int[nodeSlots];
+            nodeRight = new int[nodeSlots];
+        } else {
+            for(int i=0; i<nodeSlots; i++) {
+                nodeBoxes[i] = 0;
+            }
+        }
+        if( null == boxIdx || boxIdx.length < count ) {
+            boxIdx = new int[count];
+        }
+        centroid2 = new float[3*count];
+        for(int i=0; i<count; i++) {
+            boxIdx[i] = i;
+            final int o = 3*i;
+            centroid2[o+0] = low[o+0] + high[o+0];
+            centroid2[o+1] = low[o+1] + high[o+1];
+            centroid2[o+2] = low[o+2] + high[o+2];
+        }
+    }
+
+    /** Per thread build state. */
+    private final class Builder {
+        private final int[] binCount = new int[BIN_COUNT];
+        private final float[] binLow = new float[3*BIN_COUNT];
+        private final float[] binHigh = new float[3*BIN_COUNT];
+        private final float[] rightArea = new float[BIN_COUNT];
+        private final int[] rightCount = new int[BIN_COUNT];
+
+        /** Builds the subtree, recursing into the smaller child only to bound the stack depth. */
+        void buildSubtree(int node, int begin, int end) {
+            while( true ) {
+                final int mid = splitNode(node, begin, end);
+                if( 0 > mid ) {
+                    return;
+                }
+                final int right = nodeRight[node];
+                if( mid - begin < end - mid ) {
+                    buildSubtree(node+1, begin, mid);
+                    node = right;
+                    begin = mid;
+                } else {
+                    buildSubtree(right, mid, end);
+                    node = node+1;
+                    end = mid;
+                }
+            }
+        }
+
+        /**
+         * Computes the bounds of the node and either makes it a leaf or partitions its boxes.
+         * @return the partition index of an inner node or -1 for a leaf
+         */
+        int splitNode(final int node, final int begin, final int end) {
+            final float[] low = AABBoxTree.this.low;
+            final float[] high = AABBoxTree.this.high;
+            final float[] centroid2 = AABBoxTree.this.centroid2;
+            final int n = end - begin;
+
+            float lx = Float.POSITIVE_INFINITY, ly = Float.POSITIVE_INFINITY, lz = Float.POSITIVE_INFINITY;
+            float hx = Float.NEGATIVE_INFINITY, hy = Float.NEGATIVE_INFINITY, hz = Float.NEGATIVE_INFINITY;
+            float cx0 = Float.POSITIVE_INFINITY, cy0 = Float.POSITIVE_INFINITY, cz0 = Float.POSITIVE_INFINITY;
+            float cx1 = Float.NEGATIVE_INFINITY, cy1 = Float.NEGATIVE_INFINITY, cz1 = Float.NEGATIVE_INFINITY;
+            for(int i=begin; i<end; i++) {
+                final int o = 3*boxIdx[i];
+                lx = Math.min(lx, low[o+0]); hx = Math.max(hx, high[o+0]);
+                ly = Math.min(ly, low[o+1]); hy = Math.max(hy, high[o+1]);
+                lz = Math.min(lz, low[o+2]); hz = Math.max(hz, high[o+2]);
+                final float cx = centroid2[o+0], cy = centroid2[o+1], cz = centroid2[o+2];
+                cx0 = Math.min(cx0, cx); cx1 = Math.max(cx1, cx);
+                cy0 = Math.min(cy0, cy); cy1 = Math.max(cy1, cy);
+                cz0 = Math.min(cz0, cz); cz1 = Math.max(cz1, cz);
+            }
+            final int no = 3*node;
+            nodeLow[no+0] = lx; nodeLow[no+1] = ly; nodeLow[no+2] = lz;
+            nodeHigh[no+0] = hx; nodeHigh[no+1] = hy; nodeHigh[no+2] = hz;
+            nodeFirst[node] = begin;
+            nodeBoxes[node] = n;
+            nodeRight[node] = 0;
+            if( 1 == n ) {
+                return -1;
+            }
+
+            // split along the longest centroid axis
+            final int axis;
+            final float cmin, cext;
+            {
+                final float ex = cx1 - cx0, ey = cy1 - cy0, ez = cz1 - cz0;
+                if( ex >= ey && ex >= ez ) {
+                    axis = 0; cmin = cx0; cext = ex;
+                } else if( ey >= ez ) {
+                    axis = 1; cmin = cy0; cext = ey;
+                } else {
+                    axis = 2; cmin = cz0; cext = ez;
+                }
+            }
+            int mid;
+            if( !( cext > 0f ) ) {
+                // all centroids coincide, no spatial split possible
+                if( n <= maxLeafSize ) {
+                    return -1;
+                }
+                mid = ( begin + end ) >>> 1;
+            } else {
+                final float scale = BIN_COUNT * ( 1f - 1e-6f ) / cext;
+                for(int b=0; b<BIN_COUNT; b++) {
+                    binCount[b] = 0;
+                    final int bo = 3*b;
+                    binLow[bo+0] = Float.POSITIVE_INFINITY; binLow[bo+1] = Float.POSITIVE_INFINITY; binLow[bo+2] = Float.POSITIVE_INFINITY;
+                    binHigh[bo+0] = Float.NEGATIVE_INFINITY; binHigh[bo+1] = Float.NEGATIVE_INFINITY; binHigh[bo+2] = Float.NEGATIVE_INFINITY;
+                }
+                for(int i=begin; i<end; i++) {
+                    final int o = 3*boxIdx[i];
+                    final int bo = 3*binOf(centroid2[o+axis], cmin, scale);
+                    binCount[bo/3]++;
+                    binLow[bo+0] = Math.min(binLow[bo+0], low[o+0]); binHigh[bo+0] = Math.max(binHigh[bo+0], high[o+0]);
+                    binLow[bo+1] = Math.min(binLow[bo+1], low[o+1]); binHigh[bo+1] = Math.max(binHigh[bo+1], high[o+1]);
+                    binLow[bo+2] = Math.min(binLow[bo+2], low[o+2]); binHigh[bo+2] = Math.max(binHigh[bo+2], high[o+2]);
+                }
+                // sweep from the right: area and count of bins [b..BIN_COUNT-1]
+                {
+                    float rlx = Float.POSITIVE_INFINITY, rly = Float.POSITIVE_INFINITY, rlz = Float.POSITIVE_INFINITY;
+                    float rhx = Float.NEGATIVE_INFINITY, rhy = Float.NEGATIVE_INFINITY, rhz = Float.NEGATIVE_INFINITY;
+                    int rn = 0;
+                    for(int b=BIN_COUNT-1; b>0; b--) {
+                        final int bo = 3*b;
+                        rlx = Math.min(rlx, binLow[bo+0]); rhx = Math.max(rhx, binHigh[bo+0]);
+                        rly = Math.min(rly, binLow[bo+1]); rhy = Math.max(rhy, binHigh[bo+1]);
+                        rlz = Math.min(rlz, binLow[bo+2]); rhz = Math.max(rhz, binHigh[bo+2]);
+                        rn += binCount[b];
+                        rightArea[b] = 0 < rn ? halfArea(rhx-rlx, rhy-rly, rhz-rlz) : 0f;
+                        rightCount[b] = rn;
+                    }
+                }
+                // sweep from the left, split in front of bin b
+                int bestSplit = -1;
+                float bestCost = Float.POSITIVE_INFINITY;
+                {
+                    float llx = Float.POSITIVE_INFINITY, lly = Float.POSITIVE_INFINITY, llz = Float.POSITIVE_INFINITY;
+                    float lhx = Float.NEGATIVE_INFINITY, lhy = Float.NEGATIVE_INFINITY, lhz = Float.NEGATIVE_INFINITY;
+                    int ln = 0;
+                    for(int b=1; b<BIN_COUNT; b++) {
+                        final int bo = 3*(b-1);
+                        llx = Math.min(llx, binLow[bo+0]); lhx = Math.max(lhx, binHigh[bo+0]);
+                        lly = Math.min(lly, binLow[bo+1]); lhy = Math.max(lhy, binHigh[bo+1]);
+                        llz = Math.min(llz, binLow[bo+2]); lhz = Math.max(lhz, binHigh[bo+2]);
+                        ln += binCount[b-1];
+                        if( 0 < ln && 0 < rightCount[b] ) {
+                            final float cost = ln * halfArea(lhx-llx, lhy-lly, lhz-llz) + rightCount[b] * rightArea[b];
+                            if( cost < bestCost ) {
+                                bestCost = cost;
+                                bestSplit = b;
+                            }
+                        }
+                    }
+                }
+                if( n <= maxLeafSize ) {
+                    final float area = halfArea(hx-lx, hy-ly, hz-lz);
+                    if( 0 > bestSplit || n * area <= TRAVERSAL_COST * area + bestCost ) {
+                        return -1;
+                    }
+                }
+                if( 0 > bestSplit ) {
+                    mid = ( begin + end ) >>> 1;
+                } else {
+                    // partition boxes of bins [0..bestSplit-1] to the front
+                    int i = begin, j = end - 1;
+                    while( i <= j ) {
+                        if( binOf(centroid2[3*boxIdx[i]+axis], cmin, scale) < bestSplit ) {
+                            i++;
+                        } else {
+                            final int t = boxIdx[i]; boxIdx[i] = boxIdx[j]; boxIdx[j] = t;
+                            j--;
+                        }
+                    }
+                    mid = i;
+                    if( begin == mid || end == mid ) {
+                        mid = ( begin + end ) >>> 1;
+                    }
+                }
+            }
+            nodeRight[node] = node + 2*( mid - begin );
+            return mid;
+        }
+    }
+
+    private static int binOf(final float c, final float cmin, final float scale) {
+        final int b = (int) ( ( c - cmin ) * scale );
+        return b < BIN_COUNT ? b : BIN_COUNT - 1;
+    }
+
+    private static float halfArea(final float dx, final float dy, final float dz) {
+        return dx*dy + dy*dz + dz*dx;
+    }
+
+    /**
+     * Updates all node bounds after boxes have been moved or resized in place,
+     * keeping the tree topology.
+     * <p>
+     * Children are stored after their parent, hence a single backward pass over all nodes suffices.
+     * </p>
+     */
+    public final void refit() {
+        for(int node=nodeSlots-1; node>=0; node--) {
+            if( 0 == nodeBoxes[node] ) {
+                continue;
+            }
+            final int no = 3*node;
+            final int right = nodeRight[node];
+            if( 0 == right ) {
+                float lx = Float.POSITIVE_INFINITY, ly = Float.POSITIVE_INFINITY, lz = Float.POSITIVE_INFINITY;
+                float hx = Float.NEGATIVE_INFINITY, hy = Float.NEGATIVE_INFINITY, hz = Float.NEGATIVE_INFINITY;
+                final int end = nodeFirst[node] + nodeBoxes[node];
+                for(int i=nodeFirst[node]; i<end; i++) {
+                    final int o = 3*boxIdx[i];
+                    lx = Math.min(lx, low[o+0]); hx = Math.max(hx, high[o+0]);
+                    ly = Math.min(ly, low[o+1]); hy = Math.max(hy, high[o+1]);
+                    lz = Math.min(lz, low[o+2]); hz = Math.max(hz, high[o+2]);
+                }
+                nodeLow[no+0] = lx; nodeLow[no+1] = ly; nodeLow[no+2] = lz;
+                nodeHigh[no+0] = hx; nodeHigh[no+1] = hy; nodeHigh[no+2] = hz;
+            } else {
+                final int lo = no + 3, ro = 3*right;
+                for(int k=0; k<3; k++) {
+                    nodeLow[no+k] = Math.min(nodeLow[lo+k], nodeLow[ro+k]);
+                    nodeHigh[no+k] = Math.max(nodeHigh[lo+k], nodeHigh[ro+k]);
+                }
+            }
+        }
+    }
+
+    //
+    // Ray queries
+    //
+
+    /**
+     * Returns the ray parameter where the ray enters the given box, zero if the origin is inside,
+     * or -1 if the ray misses the box or enters it beyond <code>tMax</code>.
+     * <p>
+     * The ray is treated as a half-line like {@link AABBox#intersectsRay(Ray)} does.
+     * </p>
+     */
+    private static float rayEntry(final float ox, final float oy, final float oz,
+                                  final float dx, final float dy, final float dz,
+                                  final float ix, final float iy, final float iz,
+                                  final float[] lo, final float[] hi, final int o, final float tMax) {
+        float t0 = 0f, t1 = tMax;
+        if( 0f != dx ) {
+            float a = ( lo[o+0] - ox ) * ix, b = ( hi[o+0] - ox ) * ix;
+            if( a > b ) { final float t = a; a = b; b = t; }
+            if( a > t0 ) { t0 = a; }
+            if( b < t1 ) { t1 = b; }
+        } else if( ox < lo[o+0] || ox > hi[o+0] ) {
+            return -1f;
+        }
+        if( 0f != dy ) {
+            float a = ( lo[o+1] - oy ) * iy, b = ( hi[o+1] - oy ) * iy;
+            if( a > b ) { final float t = a; a = b; b = t; }
+            if( a > t0 ) { t0 = a; }
+            if( b < t1 ) { t1 = b; }
+        } else if( oy < lo[o+1] || oy > hi[o+1] ) {
+            return -1f;
+        }
+        if( 0f != dz ) {
+            float a = ( lo[o+2] - oz ) * iz, b = ( hi[o+2] - oz ) * iz;
+            if( a > b ) { final float t = a; a = b; b = t; }
+            if( a > t0 ) { t0 = a; }
+            if( b < t1 ) { t1 = b; }
+        } else if( oz < lo[o+2] || oz > hi[o+2] ) {
+            return -1f;
+        }
+        return t0 <= t1 ? t0 : -1f;
+    }
+
+    /**
+     * Collects all boxes intersected by the given {@link Ray}, treated as a half-line.
+     * <p>
+     * Equivalent to testing each box via {@link AABBox#intersectsRay(Ray)}, the order of the results is undefined.
+     * </p>
+     * @param ray the ray
+     * @param result receives the intersected box indices, hits exceeding its length are counted only
+     * @return total number of intersected boxes
+     */
+    public final int getRayIntersections(final Ray ray, final int[] result) {
+        if( 0 == count ) {
+            return 0;
+        }
+        final float ox = ray.orig[0], oy = ray.orig[1], oz = ray.orig[2];
+        final float dx = ray.dir[0], dy = ray.dir[1], dz = ray.dir[2];
+        final float ix = 1f / dx, iy = 1f / dy, iz = 1f / dz;
+        int[] stack = new int[64];
+        int sp = 0;
+        stack[sp++] = 0;
+        int hits = 0;
+        while( 0 < sp ) {
+            final int node = stack[--sp];
+            if( 0 > rayEntry(ox, oy, oz, dx, dy, dz, ix, iy, iz, nodeLow, nodeHigh, 3*node, Float.POSITIVE_INFINITY) ) {
+                continue;
+            }
+            final int right = nodeRight[node];
+            if( 0 != right ) {
+                if( sp + 2 > stack.length ) {
+                    stack = grow(stack);
+                }
+                stack[sp++] = right;
+                stack[sp++] = node+1;
+            } else {
+                final int end = nodeFirst[node] + nodeBoxes[node];
+                for(int i=nodeFirst[node]; i<end; i++) {
+                    final int b = boxIdx[i];
+                    if( 1 == nodeBoxes[node] ||
+                        0 <= rayEntry(ox, oy, oz, dx, dy, dz, ix, iy, iz, low, high, 3*b, Float.POSITIVE_INFINITY) ) {
+                        if( hits < result.length ) {
+                            result[hits] = b;
+                        }
+                        hits++;
+                    }
+                }
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Returns the box closest to the origin of the given {@link Ray}, treated as a half-line.
+     * <p>
+     * Distance is measured to the point the ray enters a box, i.e. it is zero for all boxes containing the origin.
+     * Nodes are traversed front to back, skipping all nodes behind the closest hit so far.
+     * </p>
+     * @param ray the ray
+     * @param distance optional storage receiving the ray parameter <i>t</i> of the entry point
+     *                 <code>orig + t * dir</code> at element zero, may be <code>null</code>
+     * @return index of the closest intersected box or -1 if none is intersected
+     */
+    public final int getClosestRayIntersection(final Ray ray, final float[] distance) {
+        if( 0 == count ) {
+            return -1;
+        }
+        final float ox = ray.orig[0], oy = ray.orig[1], oz = ray.orig[2];
+        final float dx = ray.dir[0], dy = ray.dir[1], dz = ray.dir[2];
+        final float ix = 1f / dx, iy = 1f / dy, iz = 1f / dz;
+        int[] stack = new int[64];
+        float[] stackT = new float[64];
+        int sp = 0;
+        float best = Float.POSITIVE_INFINITY;
+        int bestIdx = -1;
+        {
+            final float t = rayEntry(ox, oy, oz, dx, dy, dz, ix, iy, iz, nodeLow, nodeHigh, 0, best);
+            if( 0 > t ) {
+                return -1;
+            }
+            stack[sp] = 0;
+            stackT[sp++] = t;
+        }
+        while( 0 < sp ) {
+            --sp;
+            if( stackT[sp] > best ) {
+                continue;
+            }
+            final int node = stack[sp];
+            final int right = nodeRight[node];
+            if( 0 != right ) {
+                final int left = node+1;
+                final float tl = rayEntry(ox, oy, oz, dx, dy, dz, ix, iy, iz, nodeLow, nodeHigh, 3*left, best);
+                final float tr = rayEntry(ox, oy, oz, dx, dy, dz, ix, iy, iz, nodeLow, nodeHigh, 3*right, best);
+                if( sp + 2 > stack.length ) {
+                    stack = grow(stack);
+                    stackT = grow(stackT);
+                }
+                // push the farther child first to visit the nearer one first
+                if( tl <= tr ) {
+                    if( 0 <= tr ) { stack[sp] = right; stackT[sp++] = tr; }
+                    if( 0 <= tl ) { stack[sp] = left; stackT[sp++] = tl; }
+                } else {
+                    if( 0 <= tl ) { stack[sp] = left; stackT[sp++] = tl; }
+                    if( 0 <= tr ) { stack[sp] = right; stackT[sp++] = tr; }
+                }
+            } else {
+                final int end = nodeFirst[node] + nodeBoxes[node];
+                for(int i=nodeFirst[node]; i<end; i++) {
+                    final int b = boxIdx[i];
+                    final float t = rayEntry(ox, oy, oz, dx, dy, dz, ix, iy, iz, low, high, 3*b, best);
+                    if( 0 <= t && ( t < best || ( t == best && b < bestIdx ) ) ) {
+                        best = t;
+                        bestIdx = b;
+                    }
+                }
+            }
+        }
+        if( 0 <= bestIdx && null != distance ) {
+            distance[0] = best;
+        }
+        return bestIdx;
+    }
+
+    //
+    // Frustum queries
+    //
+
+    /**
+     * Collects all boxes not {@link Frustum#isAABBoxOutside(AABBox) outside} of the given {@link Frustum}.
+     * <p>
+     * Nodes {@link Frustum#isAABBoxOutside(AABBox) outside} of the frustum are skipped,
+     * all boxes of nodes whose bounding sphere is {@link Frustum#classifySphere(float[], float) inside}
+     * are collected w/o further tests. Only boxes of partially visible leaves are tested individually.
+     * </p>
+     * <p>
+     * The result equals testing each box via {@link Frustum#isAABBoxOutside(AABBox)},
+     * the order of the results is undefined.
+     * </p>
+     * @param frustum the frustum
+     * @param result receives the visible box indices, boxes exceeding its length are counted only
+     * @return total number of visible boxes
+     */
+    public final int getVisible(final Frustum frustum, final int[] result) {
+        if( 0 == count ) {
+            return 0;
+        }
+        final AABBox box = new AABBox();
+        final float[] center = new float[3];
+        int[] stack = new int[64];
+        int sp = 0;
+        stack[sp++] = 0;
+        int visible = 0;
+        while( 0 < sp ) {
+            final int node = stack[--sp];
+            final int no = 3*node;
+            box.setSize(nodeLow[no+0], nodeLow[no+1], nodeLow[no+2], nodeHigh[no+0], nodeHigh[no+1], nodeHigh[no+2]);
+            if( frustum.isAABBoxOutside(box) ) {
+                continue;
+            }
+            final int first = nodeFirst[node];
+            final int n = nodeBoxes[node];
+            final float ex = nodeHigh[no+0] - nodeLow[no+0];
+            final float ey = nodeHigh[no+1] - nodeLow[no+1];
+            final float ez = nodeHigh[no+2] - nodeLow[no+2];
+            center[0] = nodeLow[no+0] + ex * 0.5f;
+            center[1] = nodeLow[no+1] + ey * 0.5f;
+            center[2] = nodeLow[no+2] + ez * 0.5f;
+            final float radius = 0.5f * (float)Math.sqrt(ex*ex + ey*ey + ez*ez);
+            if( 1 == n || Frustum.Location.INSIDE == frustum.classifySphere(center, radius) ) {
+                for(int i=first; i<first+n; i++) {
+                    if( visible < result.length ) {
+                        result[visible] = boxIdx[i];
+                    }
+                    visible++;
+                }
+                continue;
+            }
+            final int right = nodeRight[node];
+            if( 0 != right ) {
+                if( sp + 2 > stack.length ) {
+                    stack = grow(stack);
+                }
+                stack[sp++] = right;
+                stack[sp++] = node+1;
+            } else {
+                for(int i=first; i<first+n; i++) {
+                    final int o = 3*boxIdx[i];
+                    box.setSize(low[o+0], low[o+1], low[o+2], high[o+0], high[o+1], high[o+2]);
+                    if( !frustum.isAABBoxOutside(box) ) {
+                        if( visible < result.length ) {
+                            result[visible] = boxIdx[i];
+                        }
+                        visible++;
+                    }
+                }
+            }
+        }
+        return visible;
+    }
+
+    private static int[] grow(final int[] a) {
+        final int[] b = new int[2*a.length];
+        System.arraycopy(a, 0, b, 0, a.length);
+        return b;
+    }
+    private static float[] grow(final float[] a) {
+        final float[] b = new float[2*a.length];
+        System.arraycopy(a, 0, b, 0, a.length);
+        return b;
+    }
+
+    @Override
+    public String toString() {
+        return "AABBoxTree[boxes "+count+", nodes "+getNodeCount()+", depth "+getDepth()+", maxLeafSize "+maxLeafSize+"]";
+    }
+}
@@ -27,6 +27,12 @@
  */
 package com.jogamp.opengl.math.geom;
 
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
 import jogamp.common.os.PlatformPropsImpl;
 
 import com.jogamp.common.os.Platform;
@@ -45,6 +51,7 @@ import com.jogamp.opengl.math.FovHVHalves;
  *   <li> {@link #isPointOutside(float[]) point} </li>
  *   <li> {@link #isSphereOutside(float[], float) sphere} </li>
  *   <li> {@link #isAABBoxOutside(AABBox) bounding-box} </li>
+ *   <li> {@link #cullAABBoxes(float[], float[], int, byte[], int[]) array of bounding-boxes} </li>
  * </ul>
  *
  * <p>
@@ -368,6 +375,238 @@ public class Frustum {
         return false;
     }
 
+    //
+    // Bulk AABBox culling
+    //
+
+    /** No plane rejected the box at the last bulk culling pass, see {@link #cullAABBoxes(float[], float[], int, byte[], int[])}. */
+    public static final byte NO_PLANE = -1;
+
+    /**
+     * Returns the planes packed as float[6*8]: normal (x, y, z), distance, absolute normal (x, y, z) and padding,
+     * allowing a branch free test of the box's farthest corner within the plane's normal direction.
+     */
+    private final float[] packPlanes() {
+        final float[] pp = new float[6*8];
+        for (int i = 0; i < 6; ++i) {
+            final Plane p = planes[i];
+            final int j = i*8;
+            pp[j+0] = p.n[0];
+            pp[j+1] = p.n[1];
+            pp[j+2] = p.n[2];
+            pp[j+3] = p.d;
+            pp[j+4] = Math.abs(p.n[0]);
+            pp[j+5] = Math.abs(p.n[1]);
+            pp[j+6] = Math.abs(p.n[2]);
+        }
+        return pp;
+    }
+
+    /**
+     * Returns true if the box is completely outside of the packed plane <code>k</code>,
+     * i.e. the box corner farthest into the plane's normal direction has a distance &le; 0.
+     * <pre>
+     *   dist = n * center + |n| * extent, with center = (low + high) / 2 and extent = (high - low) / 2
+     * </pre>
+     */
+    private static boolean isOutsideImpl(final float[] pp, final int k,
+                                         final float lx, final float ly, final float lz,
+                                         final float hx, final float hy, final float hz) {
+        final int j = k*8;
+        return pp[j+0] * ( lx + hx ) + pp[j+1] * ( ly + hy ) + pp[j+2] * ( lz + hz ) +
+               pp[j+4] * ( hx - lx ) + pp[j+5] * ( hy - ly ) + pp[j+6] * ( hz - lz ) + 2f * pp[j+3] <= 0.0f;
+    }
+
+    /**
+     * Returns true if box <code>i</code> is completely outside of the frustum.
+     * <p>
+     * If <code>lastFailedPlane</code> is given, the plane which rejected the box last time is tested first
+     * and the rejecting plane is stored, or {@link #NO_PLANE}.
+     * </p>
+     */
+    private static boolean isOutsideImpl(final float[] pp, final float[] low, final float[] high, final int i, final byte[] lastFailedPlane) {
+        final int i3 = i*3;
+        final float lx = low[i3], ly = low[i3+1], lz = low[i3+2];
+        final float hx = high[i3], hy = high[i3+1], hz = high[i3+2];
+        if( null != lastFailedPlane ) {
+            final int last = lastFailedPlane[i];
+            if( 0 <= last && isOutsideImpl(pp, last, lx, ly, lz, hx, hy, hz) ) {
+                return true;
+            }
+            for (int k = 0; k < 6; ++k) {
+                if( k != last && isOutsideImpl(pp, k, lx, ly, lz, hx, hy, hz) ) {
+                    lastFailedPlane[i] = (byte)k;
+                    return true;
+                }
+            }
+            lastFailedPlane[i] = NO_PLANE;
+            return false;
+        }
+        for (int k = 0; k < 6; ++k) {
+            if( isOutsideImpl(pp, k, lx, ly, lz, hx, hy, hz) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void checkBulkArgs(final float[] low, final float[] high, final int count, final byte[] lastFailedPlane) {
+        if( 0 > count || count > low.length / 3 || count > high.length / 3 ) {
+            throw new IndexOutOfBoundsException("count "+count+" exceeds box arrays of length low "+low.length+", high "+high.length);
+        }
+        if( null != lastFailedPlane && lastFailedPlane.length < count ) {
+            throw new IndexOutOfBoundsException("count "+count+" exceeds lastFailedPlane length "+lastFailedPlane.length);
+        }
+    }
+
+    /**
+     * Culls an array of axis aligned bounding boxes in one pass and stores the indices of the visible boxes.
+     * <p>
+     * Boxes are given in a structure of arrays layout w/o {@link AABBox} instances,
+     * i.e. box <code>i</code> is defined by its lower corner <code>low[i*3+0..2]</code>
+     * and its upper corner <code>high[i*3+0..2]</code>.
+     * </p>
+     * <p>
+     * Each box is classified like {@link #isAABBoxOutside(AABBox)}, i.e. a box is visible
+     * if it is not completely outside, hence it may only be partially inside.
+     * </p>
+     * <p>
+     * If the optional plane-coherency cache <code>lastFailedPlane</code> is given,
+     * the plane which rejected the box in the previous pass is tested first.
+     * Initialize the cache with {@link #NO_PLANE} and keep it for subsequent frames.
+     * </p>
+     * @param low lower box corners, 3 floats per box
+     * @param high upper box corners, 3 floats per box
+     * @param count number of boxes
+     * @param lastFailedPlane optional plane-coherency cache, one entry per box, may be <code>null</code>
+     * @param visible receives the indices of visible boxes in ascending order, at least <code>count</code> elements
+     * @return number of visible boxes stored in <code>visible</code>
+     * @throws IndexOutOfBoundsException if <code>count</code> exceeds the given arrays
+     */
+    public final int cullAABBoxes(final float[] low, final float[] high, final int count,
+                                  final byte[] lastFailedPlane, final int[] visible) throws IndexOutOfBoundsException {
+        checkBulkArgs(low, high, count, lastFailedPlane);
+        if( visible.length < count ) {
+            throw new IndexOutOfBoundsException("count "+count+" exceeds visible length "+visible.length);
+        }
+        final float[] pp = packPlanes();
+        int v = 0;
+        for(int i=0; i<count; i++) {
+            if( !isOutsideImpl(pp, low, high, i, lastFailedPlane) ) {
+                visible[v++] = i;
+            }
+        }
+        return v;
+    }
+
+    /**
+     * Culls an array of axis aligned bounding boxes in one pass and sets the bits of the visible boxes.
+     * <p>
+     * Same as {@link #cullAABBoxes(float[], float[], int, byte[], int[])},
+     * but storing the result in the bitset <code>visibleBits</code>,
+     * i.e. box <code>i</code> is visible if bit <code>i % 64</code> of <code>visibleBits[i / 64]</code> is set.
+     * </p>
+     * @param low lower box corners, 3 floats per box
+     * @param high upper box corners, 3 floats per box
+     * @param count number of boxes
+     * @param lastFailedPlane optional plane-coherency cache, one entry per box, may be <code>null</code>
+     * @param visibleBits receives the visibility bitset, at least <code>(count+63)/64</code> elements
+     * @return number of visible boxes
+     * @throws IndexOutOfBoundsException if <code>count</code> exceeds the given arrays
+     */
+    public final int cullAABBoxes(final float[] low, final float[] high, final int count,
+                                  final byte[] lastFailedPlane, final long[] visibleBits) throws IndexOutOfBoundsException {
+        checkBulkArgs(low, high, count, lastFailedPlane);
+        if( visibleBits.length < ( count + 63 ) >>> 6 ) {
+            throw new IndexOutOfBoundsException("count "+count+" exceeds visibleBits length "+visibleBits.length);
+        }
+        return cullAABBoxesImpl(packPlanes(), low, high, 0, count, lastFailedPlane, visibleBits);
+    }
+
+    private static int cullAABBoxesImpl(final float[] pp, final float[] low, final float[] high, final int fromIdx, final int toIdx,
+                                        final byte[] lastFailedPlane, final long[] visibleBits) {
+        int v = 0;
+        for(int w = fromIdx >>> 6; w << 6 < toIdx; w++) {
+            final int i0 = w << 6;
+            final int i1 = Math.min(i0 + 64, toIdx);
+            long bits = 0;
+            for(int i=i0; i<i1; i++) {
+                if( !isOutsideImpl(pp, low, high, i, lastFailedPlane) ) {
+                    bits |= 1L << ( i - i0 );
+                }
+            }
+            visibleBits[w] = bits;
+            v += Long.bitCount(bits);
+        }
+        return v;
+    }
+
+    /**
+     * Culls an array of axis aligned bounding boxes like {@link #cullAABBoxes(float[], float[], int, byte[], long[])},
+     * but splits the boxes into <code>taskCount</code> ranges culled concurrently by the given <code>executor</code>.
+     * <p>
+     * Ranges are aligned to 64 boxes, hence each task writes to distinct elements of <code>visibleBits</code>
+     * and <code>lastFailedPlane</code>. This method blocks until all tasks are completed.
+     * </p>
+     * <p>
+     * The planes must not be modified while this method is running.
+     * </p>
+     * @param executor the executor running the tasks, e.g. a fixed thread pool sized to the number of cores
+     * @param taskCount number of tasks to split the boxes into
+     * @param low lower box corners, 3 floats per box
+     * @param high upper box corners, 3 floats per box
+     * @param count number of boxes
+     * @param lastFailedPlane optional plane-coherency cache, one entry per box, may be <code>null</code>
+     * @param visibleBits receives the visibility bitset, at least <code>(count+63)/64</code> elements
+     * @return number of visible boxes
+     * @throws IndexOutOfBoundsException if <code>count</code> exceeds the given arrays
+     * @throws InterruptedException if interrupted while waiting for the tasks
+     * @throws RuntimeException if a task failed, wrapping the cause unless it is a {@link RuntimeException}
+     */
+    public final int cullAABBoxes(final ExecutorService executor, final int taskCount,
+                                  final float[] low, final float[] high, final int count,
+                                  final byte[] lastFailedPlane, final long[] visibleBits)
+            throws IndexOutOfBoundsException, InterruptedException, RuntimeException
+    {
+        checkBulkArgs(low, high, count, lastFailedPlane);
+        if( visibleBits.length < ( count + 63 ) >>> 6 ) {
+            throw new IndexOutOfBoundsException("count "+count+" exceeds visibleBits length "+visibleBits.length);
+        }
+        final float[] pp = packPlanes();
+        final int words = ( count + 63 ) >>> 6;
+        final int tasks = Math.max(1, Math.min(taskCount, words));
+        if( 1 == tasks ) {
+            return cullAABBoxesImpl(pp, low, high, 0, count, lastFailedPlane, visibleBits);
+        }
+        final ArrayList<Future<Integer>> results = new ArrayList<Future<Integer>>(tasks);
+        final int wordsPerTask = ( words + tasks - 1 ) / tasks;
+        for(int w0=0; w0<words; w0+=wordsPerTask) {
+            final int fromIdx = w0 << 6;
+            final int toIdx = Math.min( ( w0 + wordsPerTask ) << 6, count );
+            results.add( executor.submit( new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return Integer.valueOf( cullAABBoxesImpl(pp, low, high, fromIdx, toIdx, lastFailedPlane, visibleBits) );
+                } } ) );
+        }
+        int v = 0;
+        try {
+            for(int i=0; i<results.size(); i++) {
+                v += results.get(i).get().intValue();
+            }
+        } catch (final ExecutionException ee) {
+            final Throwable t = ee.getCause();
+            if( t instanceof RuntimeException ) {
+                throw (RuntimeException)t;
+            }
+            throw new RuntimeException(t);
+        } finally {
+            for(int i=0; i<results.size(); i++) {
+                results.get(i).cancel(false);
+            }
+        }
+        return v;
+    }
 
     public static enum Location { OUTSIDE, INSIDE, INTERSECT };
 
@@ -153,7 +153,10 @@ public abstract class AnimatorBase implements GLAnimatorControl {
     protected final synchronized void initImpl(final boolean force) {
         if( force || null == impl ) {
             final String seqSuffix = String.format((Locale)null, "#%02d", seqInstanceNumber++);
-            if( useAWTAnimatorImpl( modeBits ) ) {
+            impl = createCustomImpl();
+            if( null != impl ) {
+                baseName = getBaseName("")+seqSuffix;
+            } else if( useAWTAnimatorImpl( modeBits ) ) {
                 try {
                     impl = (AnimatorImpl) awtAnimatorImplClazz.newInstance();
                     baseName = getBaseName("AWT")+seqSuffix;
@@ -170,6 +173,17 @@ public abstract class AnimatorBase implements GLAnimatorControl {
     }
     protected abstract String getBaseName(String prefix);
 
+    /**
+     * Returns a custom {@link AnimatorImpl} used instead of the AWT aware or default implementation,
+     * invoked by {@link #initImpl(boolean)}.
+     * <p>
+     * Default implementation returns <code>null</code>.
+     * </p>
+     */
+    protected AnimatorImpl createCustomImpl() {
+        return null;
+    }
+
     /**
      * Enables or disables the given <code>bitValues</code>
      * in this Animators <code>modeBits</code>.
@@ -207,7 +221,7 @@ public abstract class AnimatorBase implements GLAnimatorControl {
         initImpl(false);
         pause();
         if( isStarted() ) {
-            drawable.setExclusiveContextThread( exclusiveContext ? getExclusiveContextThread() : null ); // if already running ..
+            drawable.setExclusiveContextThread( exclusiveContext ? getExclusiveContextThread(drawable) : null ); // if already running ..
         }
         drawables.add(drawable);
         drawablesEmpty = drawables.size() == 0;
@@ -408,6 +422,18 @@ public abstract class AnimatorBase implements GLAnimatorControl {
         return ( isStarted() && exclusiveContext ) ? ( null != userExclusiveContextThread ? userExclusiveContextThread : animThread ) : null ;
     }
 
+    /**
+     * Returns the exclusive context thread of the given {@link GLAutoDrawable}
+     * if {@link #isExclusiveContextEnabled()} and {@link #isStarted()}, otherwise <code>null</code>.
+     * <p>
+     * Default implementation returns {@link #getExclusiveContextThread()},
+     * an animator rendering its drawables on multiple threads returns the thread rendering the given drawable.
+     * </p>
+     */
+    protected Thread getExclusiveContextThread(final GLAutoDrawable drawable) {
+        return getExclusiveContextThread();
+    }
+
     /**
      * Should be called at {@link #start()} and {@link #stop()}
      * from within the animator thread.
@@ -421,10 +447,10 @@ public abstract class AnimatorBase implements GLAnimatorControl {
             System.err.println("AnimatorBase.setExclusiveContextImpl exlusive "+exclusiveContext+": Enable "+enable+" for "+this+" - "+Thread.currentThread());
             // Thread.dumpStack();
         }
-        final Thread ect = getExclusiveContextThread();
         for (int i=0; i<drawables.size(); i++) {
             try {
-                drawables.get(i).setExclusiveContextThread( enable ? ect : null );
+                final GLAutoDrawable drawable = drawables.get(i);
+                drawable.setExclusiveContextThread( enable ? getExclusiveContextThread(drawable) : null );
             } catch (final RuntimeException e) {
                 e.printStackTrace();
             }
@@ -0,0 +1,450 @@
+/**
+ * Copyright 2026 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.jogamp.common.ExceptionUtils;
+import com.jogamp.common.util.InterruptSource;
+import com.jogamp.common.util.SourcedInterruptedException;
+import com.jogamp.opengl.GLAutoDrawable;
+import com.jogamp.opengl.GLException;
+
+/**
+ * An Animator driving its {@link GLAutoDrawable}s at a target frames-per-second rate
+ * on its own thread, scheduling each frame against an absolute {@link System#nanoTime()} deadline.
+ * <p>
+ * Deadlines are multiples of the frame period from the start or resume time, hence the frame rate does not drift.
+ * Waiting for a deadline sleeps for most of the remaining time and spins the last part,
+ * where the spin margin adapts to the measured sleep overshoot of the platform.
+ * </p>
+ * <p>
+ * A frame starting one or more periods past its deadline is late.
+ * If {@link #setFrameSkipping(boolean) frame skipping} is enabled, the late frame is rendered for the latest passed deadline
+ * and all earlier ones are dropped, each counted as {@link #getMissedDeadlines() missed deadline}.
+ * Otherwise the late frame counts as one missed deadline and the following frames are rendered back to back to catch up.
+ * </p>
+ * <p>
+ * The duration between the start of consecutive frames is recorded in a lock-free {@link FrameTimeHistogram},
+ * which may be queried while the animation is running, see {@link #getFrameTimeHistogram()}.
+ * </p>
+ * <p>
+ * The Animator execution thread does not run as a daemon thread,
+ * so it is able to keep an application from terminating.<br>
+ * Call {@link #stop() } to terminate the animation and it's execution thread.
+ * </p>
+ */
+public class FramePacingAnimator extends AnimatorBase {
+    /** Minimum spin margin before a deadline in nanoseconds, {@value}. */
+    public static final long MIN_SPIN_NANOS = 100000;
+    /** Maximum spin margin before a deadline in nanoseconds, {@value}. */
+    public static final long MAX_SPIN_NANOS = 2000000;
+
+    private ThreadGroup threadGroup;
+    private Runnable runnable;
+    private int fps;
+    private volatile boolean frameSkipping;
+    private final FrameTimeHistogram histogram = new FrameTimeHistogram();
+    private final AtomicLong missedDeadlines = new AtomicLong();
+    private final AtomicLong skippedFrames = new AtomicLong();
+    /** Estimated sleep overshoot in nanoseconds, animation thread only */
+    private long sleepOvershoot = MIN_SPIN_NANOS;
+    boolean isAnimating;
+    volatile boolean pauseIssued;
+    volatile boolean stopIssued;
+
+    /**
+     * Creates a new, empty FramePacingAnimator w/ the given target frames-per-second.
+     * @param fps target frames-per-second, a value &le; 0 runs as fast as possible
+     */
+    public FramePacingAnimator(final int fps) {
+        this(null, fps);
+    }
+
+    /**
+     * Creates a new FramePacingAnimator w/ the given target frames-per-second for a particular drawable.
+     * @param drawable the initial drawable, may be <code>null</code>
+     * @param fps target frames-per-second, a value &le; 0 runs as fast as possible
+     */
+    public FramePacingAnimator(final GLAutoDrawable drawable, final int fps) {
+        super();
+        this.fps = fps;
+        if( null != drawable ) {
+            add(drawable);
+        }
+        if(DEBUG) {
+            System.err.println("FramePacingAnimator created, fps "+fps+", w/ "+drawable);
+        }
+    }
+
+    @Override
+    protected final String getBaseName(final String prefix) {
+        return "FramePacing" + prefix + "Animator" ;
+    }
+
+    /**
+     * @param fps target frames-per-second, a value &le; 0 runs as fast as possible
+     * @throws GLException if the animator has already been started
+     */
+    public final synchronized void setFPS(final int fps) throws GLException {
+        if ( isStarted() ) {
+            throw new GLException("Animator already started.");
+        }
+        this.fps = fps;
+    }
+    public final int getFPS() { return fps; }
+
+    /**
+     * Enables or disables frame skipping, disabled by default.
+     * <p>
+     * If enabled, deadlines missed by a late frame are dropped and the following frame is scheduled
+     * to the next deadline in the future. Otherwise the missed frames are rendered back to back.
+     * </p>
+     */
+    public final synchronized void setFrameSkipping(final boolean enable) {
+        frameSkipping = enable;
+    }
+    public final synchronized boolean isFrameSkipping() { return frameSkipping; }
+
+    /**
+     * Set a {@link ThreadGroup} for the {@link #getThread() animation thread}.
+     *
+     * @param tg the {@link ThreadGroup}
+     * @throws GLException if the animator has already been started
+     */
+    public final synchronized void setThreadGroup(final ThreadGroup tg) throws GLException {
+        if ( isStarted() ) {
+            throw new GLException("Animator already started.");
+        }
+        threadGroup = tg;
+    }
+
+    /**
+     * Returns the histogram of frame times, i.e. the duration between the start of consecutive frames.
+     * <p>
+     * The histogram is updated lock-free and may be queried while animating.
+     * It is reset at {@link #start()} and via {@link #resetFrameStatistics()}.
+     * </p>
+     */
+    public final FrameTimeHistogram getFrameTimeHistogram() { return histogram; }
+
+    /** Returns the number of missed frame deadlines since start, i.e. dropped or late frames, see {@link #setFrameSkipping(boolean)}. */
+    public final long getMissedDeadlines() { return missedDeadlines.get(); }
+
+    /** Returns the number of dropped frame deadlines since start, only if {@link #setFrameSkipping(boolean) frame skipping} is enabled. */
+    public final long getSkippedFrames() { return skippedFrames.get(); }
+
+    /** Resets the {@link #getFrameTimeHistogram() frame time histogram} and deadline counters. */
+    public final void resetFrameStatistics() {
+        histogram.reset();
+        missedDeadlines.set(0);
+        skippedFrames.set(0);
+    }
+
+    /**
+     * Waits until the given deadline, sleeping until the adaptive spin margin and spinning the remaining time.
+     */
+    private final void waitUntil(final long deadline) throws InterruptedException {
+        for(;;) {
+            final long t0 = System.nanoTime();
+            final long remaining = deadline - t0;
+            if( 0 >= remaining ) {
+                return;
+            }
+            final long spin = Math.min(MAX_SPIN_NANOS, Math.max(MIN_SPIN_NANOS, sleepOvershoot + sleepOvershoot/2));
+            if( remaining > spin ) {
+                final long sleep = remaining - spin;
+                LockSupport.parkNanos(this, sleep);
+                if( Thread.interrupted() ) {
+                    throw new InterruptedException();
+                }
+                // fast attack, slow decay
+                final long overshoot = System.nanoTime() - t0 - sleep;
+                if( overshoot > sleepOvershoot ) {
+                    sleepOvershoot = overshoot;
+                } else {
+                    sleepOvershoot -= ( sleepOvershoot - Math.max(0, overshoot) ) / 16;
+                }
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    class MainLoop implements Runnable {
+        @Override
+        public String toString() {
+            return "[started "+isStarted()+", animating "+isAnimating()+", paused "+isPaused()+", drawable "+drawables.size()+", drawablesEmpty "+drawablesEmpty+"]";
+        }
+
+        @Override
+        public void run() {
+            ThreadDeath caughtThreadDeath = null;
+            UncaughtAnimatorException caughtException = null;
+            final long period = 0 < fps ? 1000000000L / fps : 0;
+            long nextDeadline = 0;
+            long lastFrameStart = 0;
+            boolean anchor = true;
+
+            try {
+                synchronized (FramePacingAnimator.this) {
+                    if(DEBUG) {
+                        System.err.println("FramePacingAnimator start on " + getThreadName() + ": " + toString());
+                    }
+                    fpsCounter.resetFPSCounter();
+                    animThread = Thread.currentThread();
+                    isAnimating = false;
+                    // 'waitForStartedCondition' wake-up is handled below!
+                }
+
+                while (!stopIssued) {
+                    synchronized (FramePacingAnimator.this) {
+                        // Pause; Also don't consume CPU unless there is work to be done and not paused
+                        boolean ectCleared = false;
+                        while ( !stopIssued && ( pauseIssued || drawablesEmpty ) ) {
+                            if( drawablesEmpty ) {
+                                pauseIssued = true;
+                            }
+                            final boolean wasPaused = pauseIssued;
+                            if (DEBUG) {
+                                System.err.println("FramePacingAnimator pause on " + animThread.getName() + ": " + toString());
+                            }
+                            if ( exclusiveContext && !drawablesEmpty && !ectCleared ) {
+                                ectCleared = true;
+                                setDrawablesExclCtxState(false);
+                                try {
+                                    display(); // propagate exclusive context -> off!
+                                } catch (final UncaughtAnimatorException dre) {
+                                    caughtException = dre;
+                                    stopIssued = true;
+                                    break; // end pause loop
+                                }
+                            }
+                            isAnimating = false;
+                            FramePacingAnimator.this.notifyAll();
+                            try {
+                                FramePacingAnimator.this.wait();
+                            } catch (final InterruptedException e) {
+                                caughtException = new UncaughtAnimatorException(null, SourcedInterruptedException.wrap(e));
+                                stopIssued = true;
+                                break; // end pause loop
+                            }
+                            if (wasPaused) {
+                                // resume from pause -> reset counter
+                                fpsCounter.resetFPSCounter();
+                                if (DEBUG) {
+                                    System.err.println("FramePacingAnimator resume on " + animThread.getName() + ": " + toString());
+                                }
+                            }
+                        }
+                        if (!stopIssued && !isAnimating) {
+                            // Wakes up 'waitForStartedCondition' sync
+                            // - and -
+                            // Resume from pause or drawablesEmpty,
+                            // implies !pauseIssued and !drawablesEmpty
+                            isAnimating = true;
+                            anchor = true; // paused time is neither a frame nor a missed deadline
+                            setDrawablesExclCtxState(exclusiveContext); // may re-enable exclusive context
+                            FramePacingAnimator.this.notifyAll();
+                        }
+                    } // sync FramePacingAnimator.this
+                    if ( !pauseIssued && !stopIssued ) {
+                        if( anchor ) {
+                            anchor = false;
+                            nextDeadline = System.nanoTime();
+                            lastFrameStart = 0;
+                        } else if( 0 < period ) {
+                            try {
+                                waitUntil(nextDeadline);
+                            } catch (final InterruptedException e) {
+                                caughtException = new UncaughtAnimatorException(null, SourcedInterruptedException.wrap(e));
+                                stopIssued = true;
+                                break; // end animation loop
+                            }
+                        }
+                        final long frameStart = System.nanoTime();
+                        if( 0 < period ) {
+                            final long missed = ( frameStart - nextDeadline ) / period;
+                            if( 0 < missed ) {
+                                if( frameSkipping ) {
+                                    missedDeadlines.addAndGet(missed);
+                                    skippedFrames.addAndGet(missed);
+                                    nextDeadline += missed * period; // stay aligned to the period
+                                } else {
+                                    missedDeadlines.incrementAndGet(); // catching up, late frame
+                                }
+                            }
+                            nextDeadline += period;
+                        }
+                        if( 0 != lastFrameStart ) {
+                            histogram.record(frameStart - lastFrameStart);
+                        }
+                        lastFrameStart = frameStart;
+                        try {
+                            display();
+                        } catch (final UncaughtAnimatorException dre) {
+                            caughtException = dre;
+                            stopIssued = true;
+                            break; // end animation loop
+                        }
+                        if( 0 >= period ) {
+                            // Avoid swamping the CPU
+                            Thread.yield();
+                        }
+                    }
+                }
+            } catch(final ThreadDeath td) {
+                if(DEBUG) {
+                    ExceptionUtils.dumpThrowable("", td);
+                }
+                caughtThreadDeath = td;
+            }
+            if( exclusiveContext && !drawablesEmpty ) {
+                setDrawablesExclCtxState(false);
+                try {
+                    display(); // propagate exclusive context -> off!
+                } catch (final UncaughtAnimatorException dre) {
+                    if( null == caughtException ) {
+                        caughtException = dre;
+                    } else {
+                        ExceptionUtils.dumpThrowable("(setExclusiveContextThread)", dre);
+                    }
+                }
+            }
+            boolean flushGLRunnables = false;
+            boolean throwCaughtException = false;
+            synchronized (FramePacingAnimator.this) {
+                if(DEBUG) {
+                    System.err.println("FramePacingAnimator stop on " + animThread.getName() + ": " + toString()+", "+histogram);
+                    if( null != caughtException ) {
+                        ExceptionUtils.dumpThrowable("", caughtException);
+                    }
+                }
+                stopIssued = false;
+                pauseIssued = false;
+                isAnimating = false;
+                if( null != caughtException ) {
+                    flushGLRunnables = true;
+                    throwCaughtException = !handleUncaughtException(caughtException);
+                }
+                animThread = null;
+                FramePacingAnimator.this.notifyAll();
+            }
+            if( flushGLRunnables ) {
+                flushGLRunnables();
+            }
+            if( throwCaughtException ) {
+                throw caughtException;
+            }
+            if( null != caughtThreadDeath ) {
+                throw caughtThreadDeath;
+            }
+        }
+    }
+
+    @Override
+    public final synchronized boolean isAnimating() {
+        return animThread != null && isAnimating ;
+    }
+
+    @Override
+    public final synchronized boolean isPaused() {
+        return animThread != null && pauseIssued ;
+    }
+
+    @Override
+    public final synchronized boolean start() {
+        if ( isStarted() ) {
+            return false;
+        }
+        if (runnable == null) {
+            runnable = new MainLoop();
+        }
+        fpsCounter.resetFPSCounter();
+        resetFrameStatistics();
+        final Thread thread = new InterruptSource.Thread(threadGroup, runnable, getThreadName()+"-"+baseName);
+        thread.setDaemon(false); // force to be non daemon, regardless of parent thread
+        if(DEBUG) {
+            final Thread ct = Thread.currentThread();
+            System.err.println("FramePacingAnimator "+ct.getName()+"[daemon "+ct.isDaemon()+"]: starting "+thread.getName()+"[daemon "+thread.isDaemon()+"]");
+        }
+        thread.start();
+        return finishLifecycleAction(waitForStartedCondition, 0);
+    }
+    private final Condition waitForStartedCondition = new Condition() {
+        @Override
+        public boolean eval() {
+            return !isStarted() || (!drawablesEmpty && !isAnimating) ;
+        } };
+
+    @Override
+    public final synchronized boolean stop() {
+        if ( !isStarted() ) {
+            return false;
+        }
+        stopIssued = true;
+        notifyAll(); // wake up paused animation thread
+        return finishLifecycleAction(waitForStoppedCondition, 0);
+    }
+    private final Condition waitForStoppedCondition = new Condition() {
+        @Override
+        public boolean eval() {
+            return isStarted();
+        } };
+
+    @Override
+    public final synchronized boolean pause() {
+        if ( !isStarted() || pauseIssued ) {
+            return false;
+        }
+        pauseIssued = true;
+        return finishLifecycleAction(waitForPausedCondition, 0);
+    }
+    private final Condition waitForPausedCondition = new Condition() {
+        @Override
+        public boolean eval() {
+            // end waiting if stopped as well
+            return isStarted() && isAnimating;
+        } };
+
+    @Override
+    public final synchronized boolean resume() {
+        if ( !isStarted() || !pauseIssued ) {
+            return false;
+        }
+        pauseIssued = false;
+        return finishLifecycleAction(waitForResumeCondition, 0);
+    }
+    private final Condition waitForResumeCondition = new Condition() {
+        @Override
+        public boolean eval() {
+            // end waiting if stopped as well
+            return isStarted() && ( !drawablesEmpty && !isAnimating || drawablesEmpty && !pauseIssued ) ;
+        } };
+}
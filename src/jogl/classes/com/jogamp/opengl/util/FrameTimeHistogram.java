@@ -0,0 +1,163 @@
+/**
+ * Copyright 2026 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations in nanoseconds w/ bounded relative error, i.e. HDR style.
+ * <p>
+ * Values below {@value #SUB_BUCKETS} ns are counted exactly,
+ * larger values within logarithmic buckets, each split into {@value #SUB_BUCKETS} linear sub-buckets.
+ * Hence the relative error of a reported value is below <code>1 / {@value #SUB_BUCKETS}</code>,
+ * e.g. 16.6 ms is reported within 0.14 ms, while the whole <code>long</code> range is covered w/ 3712 counters.
+ * </p>
+ * <p>
+ * {@link #record(long) Recording} uses atomic increments only,
+ * all queries may be performed concurrently from any thread, e.g. while an animation is running.
+ * Queries are not an atomic snapshot, i.e. a concurrently recorded value may be reflected partially.
+ * </p>
+ */
+public class FrameTimeHistogram {
+    /** Number of linear sub-buckets per power of two, {@value}. */
+    public static final int SUB_BUCKETS = 64;
+    private static final int SUB_BITS = 6;
+    private static final int BUCKET_COUNT = ( 64 - SUB_BITS ) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong(0);
+    private final AtomicLong sum = new AtomicLong(0);
+    private final AtomicLong max = new AtomicLong(0);
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+
+    public FrameTimeHistogram() {}
+
+    /** Returns the bucket index of the given non negative value. */
+    static int getIndex(final long value) {
+        if( value < SUB_BUCKETS ) {
+            return (int) value;
+        }
+        final int msb = 63 - Long.numberOfLeadingZeros(value); // >= SUB_BITS
+        final int shift = msb - SUB_BITS;
+        return ( shift + 1 ) * SUB_BUCKETS + (int) ( ( value >>> shift ) & ( SUB_BUCKETS - 1 ) );
+    }
+
+    /** Returns the highest value counted by the bucket of the given index. */
+    static long getHighestValue(final int index) {
+        if( index < SUB_BUCKETS ) {
+            return index;
+        }
+        final int shift = index / SUB_BUCKETS - 1;
+        final long lowest = (long) ( SUB_BUCKETS + index % SUB_BUCKETS ) << shift;
+        return lowest + ( 1L << shift ) - 1;
+    }
+
+    /**
+     * Records the given duration, negative values are counted as zero.
+     * @param nanos duration in nanoseconds
+     */
+    public final void record(final long nanos) {
+        final long v = Math.max(0, nanos);
+        counts.incrementAndGet(getIndex(v));
+        sum.addAndGet(v);
+        count.incrementAndGet();
+        long m;
+        while( v > ( m = max.get() ) && !max.compareAndSet(m, v) ) { }
+        while( v < ( m = min.get() ) && !min.compareAndSet(m, v) ) { }
+    }
+
+    /** Clears all recorded values. */
+    public final void reset() {
+        for(int i=0; i<BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+        min.set(Long.MAX_VALUE);
+    }
+
+    /** Returns the number of recorded values. */
+    public final long getCount() { return count.get(); }
+
+    /** Returns the largest recorded value in nanoseconds, or 0 if none. */
+    public final long getMax() { return max.get(); }
+
+    /** Returns the smallest recorded value in nanoseconds, or 0 if none. */
+    public final long getMin() {
+        final long m = min.get();
+        return Long.MAX_VALUE != m ? m : 0;
+    }
+
+    /** Returns the exact mean of all recorded values in nanoseconds, or 0 if none. */
+    public final double getMean() {
+        final long c = count.get();
+        return 0 < c ? (double) sum.get() / c : 0;
+    }
+
+    /**
+     * Returns the value in nanoseconds, which is greater or equal than the given percentage of recorded values,
+     * within the relative error of this histogram, or 0 if none.
+     * @param percentile [0..100]
+     */
+    public final long getPercentile(final double percentile) {
+        long total = 0;
+        for(int i=0; i<BUCKET_COUNT; i++) {
+            total += counts.get(i);
+        }
+        if( 0 == total ) {
+            return 0;
+        }
+        final double p = Math.min(100.0, Math.max(0.0, percentile));
+        final long rank = Math.max(1, (long) Math.ceil( p / 100.0 * total ));
+        long acc = 0;
+        for(int i=0; i<BUCKET_COUNT; i++) {
+            acc += counts.get(i);
+            if( acc >= rank ) {
+                return Math.min(getHighestValue(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /** Returns the number of recorded values greater than the given threshold in nanoseconds, within the relative error of this histogram. */
+    public final long getCountAbove(final long nanos) {
+        long res = 0;
+        for(int i=getIndex(Math.max(0, nanos))+1; i<BUCKET_COUNT; i++) {
+            res += counts.get(i);
+        }
+        return res;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FrameTimeHistogram[count %d, mean %.3f ms, p50 %.3f ms, p95 %.3f ms, p99 %.3f ms, max %.3f ms]",
+                getCount(), getMean()/1e6, getPercentile(50)/1e6, getPercentile(95)/1e6, getPercentile(99)/1e6, getMax()/1e6);
+    }
+}
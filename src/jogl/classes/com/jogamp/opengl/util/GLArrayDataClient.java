@@ -347,6 +347,18 @@ public class GLArrayDataClient extends GLArrayDataWrapper implements GLArrayData
                        "]";
   }
 
+  /**
+   * Increases the capacity of the buffer, if necessary, to hold the given number of additional components.
+   * <p>
+   * Allows to pre-size the buffer once before a bulk of put operations.
+   * </p>
+   * @return true if the buffer has been grown
+   * @throws GLException if the buffer is sealed or mapped and requires to grow
+   */
+  public final boolean growIfNeeded(final int spareComponents) {
+    return growBufferIfNecessary(spareComponents);
+  }
+
   // non public matters
 
   protected final boolean growBufferIfNecessary(final int spareComponents) {
@@ -28,9 +28,16 @@
 
 package com.jogamp.opengl.util;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
+import com.jogamp.nativewindow.util.Dimension;
 import com.jogamp.nativewindow.util.PixelFormat;
 import com.jogamp.opengl.GL;
 import com.jogamp.opengl.GL2ES3;
@@ -39,6 +46,7 @@ import com.jogamp.opengl.GLDrawable;
 import com.jogamp.opengl.GLException;
 
 import com.jogamp.common.nio.Buffers;
+import com.jogamp.common.util.IOUtil;
 import com.jogamp.opengl.util.texture.Texture;
 import com.jogamp.opengl.util.texture.TextureData;
 import com.jogamp.opengl.util.GLPixelBuffer;
@@ -129,6 +137,52 @@ public class GLReadBufferUtil {
         }
     }
 
+    /**
+     * Write the TextureData filled by {@link #readPixels(GLAutoDrawable, boolean)} to file asynchronously
+     * using the given executor, i.e. the caller, e.g. the animation loop, is not blocked by encoding.
+     * <p>
+     * The pixels are copied before returning, hence this instance may read the next frame right away.
+     * </p>
+     * <p>
+     * PNG files are encoded via {@link PNGPixelRect#write(OutputStream, boolean, ExecutorService)},
+     * compressing the image data concurrently on the same executor.
+     * Other formats are written via {@link TextureIO#write(TextureData, File)}.
+     * </p>
+     *
+     * @param dest destination file
+     * @param executor executor running the encoding tasks
+     * @return {@link Future} delivering <code>dest</code> when written, or the {@link IOException} on failure
+     */
+    public Future<File> write(final File dest, final ExecutorService executor) {
+        final TextureData src = readTextureData;
+        final ByteBuffer srcBuf = (ByteBuffer) src.getBuffer();
+        srcBuf.rewind();
+        final ByteBuffer pixels = Buffers.newDirectByteBuffer(srcBuf.remaining());
+        pixels.put(srcBuf).rewind();
+        rewindPixelBuffer();
+        final TextureData data = new TextureData(src.getGLProfile(), src.getInternalFormat(),
+                                                 src.getWidth(), src.getHeight(), src.getBorder(),
+                                                 src.getPixelAttributes(), false, false,
+                                                 src.getMustFlipVertically(), pixels, null /* Flusher */);
+        return executor.submit(new Callable<File>() {
+            @Override
+            public File call() throws IOException {
+                final int bytesPerPixel = data.getPixelAttributes().pfmt.comp.bytesPerPixel();
+                if( TextureIO.PNG.equals(IOUtil.getFileSuffix(dest)) &&
+                    ( 1 == bytesPerPixel || 3 == bytesPerPixel || 4 == bytesPerPixel ) ) {
+                    final PNGPixelRect image = new PNGPixelRect(data.getPixelAttributes().pfmt,
+                                                                new Dimension(data.getWidth(), data.getHeight()),
+                                                                0 /* stride */, !data.getMustFlipVertically() /* isGLOriented */, pixels,
+                                                                -1f, -1f);
+                    final OutputStream outs = new BufferedOutputStream(IOUtil.getFileOutputStream(dest, true /* allowOverwrite */));
+                    image.write(outs, true /* close */, executor);
+                } else {
+                    TextureIO.write(data, dest);
+                }
+                return dest;
+            } } );
+    }
+
     /**
      * Read the drawable's pixels to TextureData and Texture, if requested at construction.
      *
@@ -45,6 +45,7 @@ import jogamp.common.os.PlatformPropsImpl;
 
 import com.jogamp.common.nio.Buffers;
 import com.jogamp.common.util.FloatStack;
+import com.jogamp.common.util.IntegerStack;
 import com.jogamp.opengl.math.FloatUtil;
 import com.jogamp.opengl.math.Quaternion;
 import com.jogamp.opengl.math.Ray;
@@ -58,12 +59,24 @@ import com.jogamp.opengl.math.geom.Frustum;
  * <p>
  * Further more, PMVMatrix provides the {@link #glGetMviMatrixf() inverse modelview matrix (Mvi)} and
  * {@link #glGetMvitMatrixf() inverse transposed modelview matrix (Mvit)}.
- * {@link Frustum} is also provided by {@link #glGetFrustum()}.
+ * {@link Frustum} is also provided by {@link #glGetFrustum()}, as well as the
+ * {@link #glGetPMvPremulMatrixf() pre-multiplied P x Mv matrix}.
  * To keep these derived values synchronized after mutable Mv operations like {@link #glRotatef(float, float, float, float) glRotatef(..)}
  * in {@link #glMatrixMode(int) glMatrixMode}({@link GLMatrixFunc#GL_MODELVIEW GL_MODELVIEW}),
  * users have to call {@link #update()} before using Mvi and Mvit.
  * </p>
  * <p>
+ * Each derived value owns a {@link #getDirtyBits() dirty bit} and is only recomputed if requested and dirty.
+ * A {@link #glPushMatrix() push} / {@link #glPopMatrix() pop} section in {@link GLMatrixFunc#GL_MODELVIEW GL_MODELVIEW} mode
+ * restores the dirty state of all derived values, which have not been recomputed within the section.
+ * Hence a typical per-object push, translate, rotate and pop sequence does not
+ * cause a recomputation of e.g. the camera's {@link Frustum} or Mvi matrix.
+ * </p>
+ * <p>
+ * None of the matrix operations allocate memory, except for the matrix stack
+ * growing beyond its current capacity, see {@link #PMVMatrix(int)}.
+ * </p>
+ * <p>
  * All matrices are provided in column-major order,
  * as specified in the OpenGL fixed function pipeline, i.e. compatibility profile.
  * See {@link FloatUtil}.
@@ -103,8 +116,15 @@ public final class PMVMatrix implements GLMatrixFunc {
     public static final int DIRTY_INVERSE_TRANSPOSED_MODELVIEW  = 1 << 1;
     /** Bit value stating a dirty {@link #glGetFrustum() frustum}. */
     public static final int DIRTY_FRUSTUM                       = 1 << 2;
+    /** Bit value stating a dirty {@link #glGetPMvPremulMatrixf() pre-multiplied P x Mv matrix}. */
+    public static final int DIRTY_PREMUL_PMV                    = 1 << 3;
     /** Bit value stating all is dirty */
-    public static final int DIRTY_ALL                           = DIRTY_INVERSE_MODELVIEW | DIRTY_INVERSE_TRANSPOSED_MODELVIEW | DIRTY_FRUSTUM;
+    public static final int DIRTY_ALL                           = DIRTY_INVERSE_MODELVIEW | DIRTY_INVERSE_TRANSPOSED_MODELVIEW | DIRTY_FRUSTUM | DIRTY_PREMUL_PMV;
+
+    /** Derived values depending on the {@link #glGetMvMatrixf() modelview matrix (Mv)} */
+    private static final int DIRTY_BY_MODELVIEW                 = DIRTY_ALL;
+    /** Derived values depending on the {@link #glGetPMatrixf() projection matrix (P)} */
+    private static final int DIRTY_BY_PROJECTION                = DIRTY_FRUSTUM | DIRTY_PREMUL_PMV;
 
     /**
      * @param matrixModeName One of {@link GLMatrixFunc#GL_MODELVIEW GL_MODELVIEW}, {@link GLMatrixFunc#GL_PROJECTION GL_PROJECTION} or {@link GL#GL_TEXTURE GL_TEXTURE}
@@ -200,17 +220,35 @@ public final class PMVMatrix implements GLMatrixFunc {
      * </p>
      */
     public PMVMatrix() {
+        this(0);
+    }
+
+    /**
+     * Creates an instance of PMVMatrix with a preallocated modelview stack.
+     * <p>
+     * Implementation uses non-direct non-NIO Buffers with guaranteed backing array,
+     * which allows faster access in Java computation.
+     * </p>
+     * <p>
+     * {@link #glPushMatrix()} in {@link GLMatrixFunc#GL_MODELVIEW GL_MODELVIEW} mode
+     * will not allocate memory up to the given depth.
+     * </p>
+     * @param mvStackDepth initial capacity of the modelview stack in matrices
+     */
+    public PMVMatrix(final int mvStackDepth) {
           // I    Identity
           // T    Texture
           // P    Projection
           // Mv   ModelView
           // Mvi  Modelview-Inverse
           // Mvit Modelview-Inverse-Transpose
-          matrixArray = new float[5*16];
+          // PMv  Projection x ModelView
+          matrixArray = new float[6*16];
 
           mP_offset   = 0*16;
           mMv_offset  = 1*16;
           mTex_offset = 4*16;
+          mPMv_offset = 5*16;
 
           matrixPMvMvit = Buffers.slice2Float(matrixArray,  0*16, 4*16);  // P + Mv + Mvi + Mvit
           matrixPMvMvi  = Buffers.slice2Float(matrixArray,  0*16, 3*16);  // P + Mv + Mvi
@@ -220,6 +258,7 @@ public final class PMVMatrix implements GLMatrixFunc {
           matrixMvi     = Buffers.slice2Float(matrixArray,  2*16, 1*16);  //          Mvi
           matrixMvit    = Buffers.slice2Float(matrixArray,  3*16, 1*16);  //                Mvit
           matrixTex     = Buffers.slice2Float(matrixArray,  4*16, 1*16);  //                       T
+          matrixPMvPremul = Buffers.slice2Float(matrixArray, 5*16, 1*16); //                            PMv
 
           mat4Tmp1      = new float[16];
           mat4Tmp2      = new float[16];
@@ -230,7 +269,8 @@ public final class PMVMatrix implements GLMatrixFunc {
           // Start w/ zero size to save memory
           matrixTStack = new FloatStack( 0,  2*16); // growSize: GL-min size (2)
           matrixPStack = new FloatStack( 0,  2*16); // growSize: GL-min size (2)
-          matrixMvStack= new FloatStack( 0, 16*16); // growSize: half GL-min size (32)
+          matrixMvStack= new FloatStack( mvStackDepth*16, 16*16); // growSize: half GL-min size (32)
+          matrixMvBitsStack = new IntegerStack( mvStackDepth*2, 16*2); // dirty-bits and section-bits per modelview stack entry
 
           reset();
 
@@ -250,6 +290,7 @@ public final class PMVMatrix implements GLMatrixFunc {
         modifiedBits = MODIFIED_ALL;
         dirtyBits = DIRTY_ALL;
         requestMask = 0;
+        mvSectionBits = DIRTY_ALL; // P changed, derived values are invalid for any pushed modelview
         matrixMode = GL_MODELVIEW;
     }
 
@@ -366,6 +407,23 @@ public final class PMVMatrix implements GLMatrixFunc {
         return matrixPMvMvit;
     }
 
+    /**
+     * Returns the pre-multiplied {@link #glGetPMatrixf() P} x {@link #glGetMvMatrixf() Mv} matrix.
+     * <p>
+     * Method enables the PMv matrix update, and performs it's update w/o clearing the modified bits.
+     * </p>
+     * <p>
+     * See {@link #update()} and <a href="#storageDetails"> matrix storage details</a>.
+     * </p>
+     * @see #update()
+     * @see #clearAllUpdateRequests()
+     */
+    public final FloatBuffer glGetPMvPremulMatrixf() {
+        requestMask |= DIRTY_PREMUL_PMV ;
+        updateImpl(false);
+        return matrixPMvPremul;
+    }
+
     /** Returns the frustum, derived from projection * modelview */
     public final Frustum glGetFrustum() {
         requestMask |= DIRTY_FRUSTUM;
@@ -498,12 +556,13 @@ public final class PMVMatrix implements GLMatrixFunc {
         if(matrixMode==GL_MODELVIEW) {
             matrixMv.put(values, offset, 16);
             matrixMv.reset();
-            dirtyBits |= DIRTY_INVERSE_MODELVIEW | DIRTY_INVERSE_TRANSPOSED_MODELVIEW | DIRTY_FRUSTUM ;
+            dirtyBits |= DIRTY_BY_MODELVIEW ;
             modifiedBits |= MODIFIED_MODELVIEW;
         } else if(matrixMode==GL_PROJECTION) {
             matrixP.put(values, offset, 16);
             matrixP.reset();
-            dirtyBits |= DIRTY_FRUSTUM ;
+            dirtyBits |= DIRTY_BY_PROJECTION ;
+            mvSectionBits |= DIRTY_BY_PROJECTION ;
             modifiedBits |= MODIFIED_PROJECTION;
         } else if(matrixMode==GL.GL_TEXTURE) {
             matrixTex.put(values, offset, 16);
@@ -518,12 +577,13 @@ public final class PMVMatrix implements GLMatrixFunc {
         if(matrixMode==GL_MODELVIEW) {
             matrixMv.put(m);
             matrixMv.reset();
-            dirtyBits |= DIRTY_INVERSE_MODELVIEW | DIRTY_INVERSE_TRANSPOSED_MODELVIEW | DIRTY_FRUSTUM ;
+            dirtyBits |= DIRTY_BY_MODELVIEW ;
             modifiedBits |= MODIFIED_MODELVIEW;
         } else if(matrixMode==GL_PROJECTION) {
             matrixP.put(m);
             matrixP.reset();
-            dirtyBits |= DIRTY_FRUSTUM ;
+            dirtyBits |= DIRTY_BY_PROJECTION ;
+            mvSectionBits |= DIRTY_BY_PROJECTION ;
             modifiedBits |= MODIFIED_PROJECTION;
         } else if(matrixMode==GL.GL_TEXTURE) {
             matrixTex.put(m);
@@ -540,12 +600,13 @@ public final class PMVMatrix implements GLMatrixFunc {
         if(matrixMode==GL_MODELVIEW) {
             quat.toMatrix(matrixArray, mMv_offset);
             matrixMv.reset();
-            dirtyBits |= DIRTY_INVERSE_MODELVIEW | DIRTY_INVERSE_TRANSPOSED_MODELVIEW | DIRTY_FRUSTUM ;
+            dirtyBits |= DIRTY_BY_MODELVIEW ;
             modifiedBits |= MODIFIED_MODELVIEW;
         } else if(matrixMode==GL_PROJECTION) {
             quat.toMatrix(matrixArray, mP_offset);
             matrixP.reset();
-            dirtyBits |= DIRTY_FRUSTUM ;
+            dirtyBits |= DIRTY_BY_PROJECTION ;
+            mvSectionBits |= DIRTY_BY_PROJECTION ;
             modifiedBits |= MODIFIED_PROJECTION;
         } else if(matrixMode==GL.GL_TEXTURE) {
             quat.toMatrix(matrixArray, mTex_offset);
@@ -554,20 +615,35 @@ public final class PMVMatrix implements GLMatrixFunc {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * In {@link GLMatrixFunc#GL_MODELVIEW GL_MODELVIEW} mode the dirty state of the derived values
+     * is restored to the state at the corresponding {@link #glPushMatrix()}, if they have not been
+     * recomputed and the {@link #glGetPMatrixf() projection matrix (P)} has not been modified in between.
+     * </p>
+     */
     @Override
     public final void glPopMatrix() {
-        final FloatStack stack;
         if(matrixMode==GL_MODELVIEW) {
-            stack = matrixMvStack;
-        } else if(matrixMode==GL_PROJECTION) {
-            stack = matrixPStack;
-        } else if(matrixMode==GL.GL_TEXTURE) {
-            stack = matrixTStack;
+            matrixMvStack.getFromTop(matrixArray, mMv_offset, 16);
+            matrixMvBitsStack.getFromTop(mvBitsTmp, 0, 2);
+            // Derived values are still valid for the restored Mv, if clean at push and untouched since
+            dirtyBits = mvBitsTmp[0] | mvSectionBits;
+            mvSectionBits |= mvBitsTmp[1];
+            modifiedBits |= MODIFIED_MODELVIEW;
         } else {
-            throw new InternalError("XXX: mode "+matrixMode);
+            final FloatStack stack;
+            if(matrixMode==GL_PROJECTION) {
+                stack = matrixPStack;
+            } else if(matrixMode==GL.GL_TEXTURE) {
+                stack = matrixTStack;
+            } else {
+                throw new InternalError("XXX: mode "+matrixMode);
+            }
+            stack.position(stack.position() - 16);
+            glLoadMatrixf(stack.buffer(), stack.position());
         }
-        stack.position(stack.position() - 16);
-        glLoadMatrixf(stack.buffer(), stack.position());
     }
 
     @Override
@@ -575,6 +651,10 @@ public final class PMVMatrix implements GLMatrixFunc {
         if(matrixMode==GL_MODELVIEW) {
             matrixMvStack.putOnTop(matrixMv, 16);
             matrixMv.reset();
+            mvBitsTmp[0] = dirtyBits;
+            mvBitsTmp[1] = mvSectionBits;
+            matrixMvBitsStack.putOnTop(mvBitsTmp, 0, 2);
+            mvSectionBits = 0;
         } else if(matrixMode==GL_PROJECTION) {
             matrixPStack.putOnTop(matrixP, 16);
             matrixP.reset();
@@ -588,11 +668,12 @@ public final class PMVMatrix implements GLMatrixFunc {
     public final void glLoadIdentity() {
         if(matrixMode==GL_MODELVIEW) {
             FloatUtil.makeIdentity(matrixArray, mMv_offset);
-            dirtyBits |= DIRTY_INVERSE_MODELVIEW | DIRTY_INVERSE_TRANSPOSED_MODELVIEW | DIRTY_FRUSTUM ;
+            dirtyBits |= DIRTY_BY_MODELVIEW ;
             modifiedBits |= MODIFIED_MODELVIEW;
         } else if(matrixMode==GL_PROJECTION) {
             FloatUtil.makeIdentity(matrixArray, mP_offset);
-            dirtyBits |= DIRTY_FRUSTUM ;
+            dirtyBits |= DIRTY_BY_PROJECTION ;
+            mvSectionBits |= DIRTY_BY_PROJECTION ;
             modifiedBits |= MODIFIED_PROJECTION;
         } else if(matrixMode==GL.GL_TEXTURE) {
             FloatUtil.makeIdentity(matrixArray, mTex_offset);
@@ -605,11 +686,12 @@ public final class PMVMatrix implements GLMatrixFunc {
     public final void glMultMatrixf(final FloatBuffer m) {
         if(matrixMode==GL_MODELVIEW) {
             FloatUtil.multMatrix(matrixMv, m);
-            dirtyBits |= DIRTY_INVERSE_MODELVIEW | DIRTY_INVERSE_TRANSPOSED_MODELVIEW | DIRTY_FRUSTUM ;
+            dirtyBits |= DIRTY_BY_MODELVIEW ;
             modifiedBits |= MODIFIED_MODELVIEW;
         } else if(matrixMode==GL_PROJECTION) {
             FloatUtil.multMatrix(matrixP, m);
-            dirtyBits |= DIRTY_FRUSTUM ;
+            dirtyBits |= DIRTY_BY_PROJECTION ;
+            mvSectionBits |= DIRTY_BY_PROJECTION ;
             modifiedBits |= MODIFIED_PROJECTION;
         } else if(matrixMode==GL.GL_TEXTURE) {
             FloatUtil.multMatrix(matrixTex, m);
@@ -621,11 +703,12 @@ public final class PMVMatrix implements GLMatrixFunc {
     public final void glMultMatrixf(final float[] m, final int m_offset) {
         if(matrixMode==GL_MODELVIEW) {
             FloatUtil.multMatrix(matrixArray, mMv_offset, m, m_offset);
-            dirtyBits |= DIRTY_INVERSE_MODELVIEW | DIRTY_INVERSE_TRANSPOSED_MODELVIEW | DIRTY_FRUSTUM ;
+            dirtyBits |= DIRTY_BY_MODELVIEW ;
             modifiedBits |= MODIFIED_MODELVIEW;
         } else if(matrixMode==GL_PROJECTION) {
             FloatUtil.multMatrix(matrixArray, mP_offset, m, m_offset);
-            dirtyBits |= DIRTY_FRUSTUM ;
+            dirtyBits |= DIRTY_BY_PROJECTION ;
+            mvSectionBits |= DIRTY_BY_PROJECTION ;
             modifiedBits |= MODIFIED_PROJECTION;
         } else if(matrixMode==GL.GL_TEXTURE) {
             FloatUtil.multMatrix(matrixArray, mTex_offset, m, m_offset);
@@ -862,12 +945,14 @@ public final class PMVMatrix implements GLMatrixFunc {
         final boolean mviReq = 0 != (DIRTY_INVERSE_MODELVIEW & requestMask);
         final boolean mvitReq = 0 != (DIRTY_INVERSE_TRANSPOSED_MODELVIEW & requestMask);
         final boolean frustumReq = 0 != (DIRTY_FRUSTUM & requestMask);
+        final boolean pmvDirty = 0 != (DIRTY_PREMUL_PMV & dirtyBits);
+        final boolean pmvReq = 0 != (DIRTY_PREMUL_PMV & requestMask);
         final boolean modP = 0 != ( MODIFIED_PROJECTION & modifiedBits );
         final boolean modMv = 0 != ( MODIFIED_MODELVIEW & modifiedBits );
         final boolean modT = 0 != ( MODIFIED_TEXTURE & modifiedBits );
 
         sb.append("PMVMatrix[modified[P ").append(modP).append(", Mv ").append(modMv).append(", T ").append(modT);
-        sb.append("], dirty/req[Mvi ").append(mviDirty).append("/").append(mviReq).append(", Mvit ").append(mvitDirty).append("/").append(mvitReq).append(", Frustum ").append(frustumDirty).append("/").append(frustumReq).append("]").append(PlatformPropsImpl.NEWLINE);
+        sb.append("], dirty/req[Mvi ").append(mviDirty).append("/").append(mviReq).append(", Mvit ").append(mvitDirty).append("/").append(mvitReq).append(", Frustum ").append(frustumDirty).append("/").append(frustumReq).append(", PMv ").append(pmvDirty).append("/").append(pmvReq).append("]").append(PlatformPropsImpl.NEWLINE);
         sb.append(", Projection").append(PlatformPropsImpl.NEWLINE);
         matrixToString(sb, f, matrixP);
         sb.append(", Modelview").append(PlatformPropsImpl.NEWLINE);
@@ -882,6 +967,10 @@ public final class PMVMatrix implements GLMatrixFunc {
             sb.append(", Inverse Transposed Modelview").append(PlatformPropsImpl.NEWLINE);
             matrixToString(sb, f, matrixMvit);
         }
+        if( 0 != ( requestMask & DIRTY_PREMUL_PMV ) ) {
+            sb.append(", Pre-multiplied P x Mv").append(PlatformPropsImpl.NEWLINE);
+            matrixToString(sb, f, matrixPMvPremul);
+        }
         sb.append("]");
         return sb;
     }
@@ -923,6 +1012,7 @@ public final class PMVMatrix implements GLMatrixFunc {
      * @see #DIRTY_INVERSE_MODELVIEW
      * @see #DIRTY_INVERSE_TRANSPOSED_MODELVIEW
      * @see #DIRTY_FRUSTUM
+     * @see #DIRTY_PREMUL_PMV
      * @see #glGetMviMatrixf()
      * @see #glGetMvitMatrixf()
      * @see #glGetPMvMviMatrixf()
@@ -944,6 +1034,7 @@ public final class PMVMatrix implements GLMatrixFunc {
      * @see #DIRTY_INVERSE_MODELVIEW
      * @see #DIRTY_INVERSE_TRANSPOSED_MODELVIEW
      * @see #DIRTY_FRUSTUM
+     * @see #DIRTY_PREMUL_PMV
      * @see #glGetMviMatrixf()
      * @see #glGetMvitMatrixf()
      * @see #glGetPMvMviMatrixf()
@@ -1008,6 +1099,7 @@ public final class PMVMatrix implements GLMatrixFunc {
      * @see #DIRTY_INVERSE_MODELVIEW
      * @see #DIRTY_INVERSE_TRANSPOSED_MODELVIEW
      * @see #DIRTY_FRUSTUM
+     * @see #DIRTY_PREMUL_PMV
      * @see #glGetMviMatrixf()
      * @see #glGetMvitMatrixf()
      * @see #glGetPMvMviMatrixf()
@@ -1024,15 +1116,23 @@ public final class PMVMatrix implements GLMatrixFunc {
             modifiedBits = 0;
         }
 
-        if( 0 != ( dirtyBits & ( DIRTY_FRUSTUM & requestMask ) ) ) {
-            if( null == frustum ) {
-                frustum = new Frustum();
+        if( 0 != ( dirtyBits & ( ( DIRTY_FRUSTUM | DIRTY_PREMUL_PMV ) & requestMask ) ) ) {
+            // Frustum is derived from PMv, hence PMv is updated for both
+            if( 0 != ( dirtyBits & DIRTY_PREMUL_PMV ) ) {
+                FloatUtil.multMatrix(matrixArray, mP_offset, matrixArray, mMv_offset, matrixArray, mPMv_offset);
+                dirtyBits &= ~DIRTY_PREMUL_PMV;
+                mvSectionBits |= DIRTY_PREMUL_PMV;
+                mod = true;
+            }
+            if( 0 != ( dirtyBits & ( DIRTY_FRUSTUM & requestMask ) ) ) {
+                if( null == frustum ) {
+                    frustum = new Frustum();
+                }
+                frustum.updateByPMV(matrixArray, mPMv_offset);
+                dirtyBits &= ~DIRTY_FRUSTUM;
+                mvSectionBits |= DIRTY_FRUSTUM;
+                mod = true;
             }
-            FloatUtil.multMatrix(matrixArray, mP_offset, matrixArray, mMv_offset, mat4Tmp1, 0);
-            // FloatUtil.multMatrix(matrixP, matrixMv, mat4Tmp1, 0);
-            frustum.updateByPMV(mat4Tmp1, 0);
-            dirtyBits &= ~DIRTY_FRUSTUM;
-            mod = true;
         }
 
         if( 0 == ( dirtyBits & requestMask ) ) {
@@ -1056,25 +1156,30 @@ public final class PMVMatrix implements GLMatrixFunc {
                 throw new GLException(msgCantComputeInverse);
             }
             dirtyBits &= ~DIRTY_INVERSE_MODELVIEW;
+            mvSectionBits |= DIRTY_INVERSE_MODELVIEW;
             res = true;
         }
         if( 0 != ( requestMask & ( dirtyBits & DIRTY_INVERSE_TRANSPOSED_MODELVIEW ) ) ) { // only if requested & dirty
             FloatUtil.transposeMatrix(_matrixMvi, _matrixMviOffset, matrixMvit.array(), matrixMvit.position());
             dirtyBits &= ~DIRTY_INVERSE_TRANSPOSED_MODELVIEW;
+            mvSectionBits |= DIRTY_INVERSE_TRANSPOSED_MODELVIEW;
             res = true;
         }
         return res;
     }
 
     private final float[] matrixArray;
-    private final int mP_offset, mMv_offset, mTex_offset;
-    private final FloatBuffer matrixPMvMvit, matrixPMvMvi, matrixPMv, matrixP, matrixTex, matrixMv, matrixMvi, matrixMvit;
+    private final int mP_offset, mMv_offset, mTex_offset, mPMv_offset;
+    private final FloatBuffer matrixPMvMvit, matrixPMvMvi, matrixPMv, matrixP, matrixTex, matrixMv, matrixMvi, matrixMvit, matrixPMvPremul;
     private final float[] matrixTxSx;
     private final float[] mat4Tmp1, mat4Tmp2, mat4Tmp3;
     private final FloatStack matrixTStack, matrixPStack, matrixMvStack;
+    private final IntegerStack matrixMvBitsStack;
+    private final int[] mvBitsTmp = new int[2];
     private int matrixMode = GL_MODELVIEW;
     private int modifiedBits = MODIFIED_ALL;
     private int dirtyBits = DIRTY_ALL; // contains the dirty bits, i.e. hinting for update operation
     private int requestMask = 0; // may contain the requested dirty bits: DIRTY_INVERSE_MODELVIEW | DIRTY_INVERSE_TRANSPOSED_MODELVIEW
+    private int mvSectionBits = 0; // derived values recomputed or invalidated by P since last modelview push
     private Frustum frustum;
 }
@@ -33,6 +33,9 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import com.jogamp.nativewindow.util.Dimension;
 import com.jogamp.nativewindow.util.DimensionImmutable;
@@ -43,7 +46,6 @@ import com.jogamp.nativewindow.util.PixelFormatUtil;
 import jogamp.opengl.Debug;
 import jogamp.opengl.util.pngj.ImageInfo;
 import jogamp.opengl.util.pngj.ImageLine;
-import jogamp.opengl.util.pngj.ImageLineHelper;
 import jogamp.opengl.util.pngj.PngReader;
 import jogamp.opengl.util.pngj.PngWriter;
 import jogamp.opengl.util.pngj.chunks.PngChunkPLTE;
@@ -78,6 +80,35 @@ public class PNGPixelRect extends PixelRectangle.GenericPixelRect {
     public static PNGPixelRect read(final InputStream in,
                                     final PixelFormat ddestFmt, final boolean destDirectBuffer, final int destMinStrideInBytes,
                                     final boolean destIsGLOriented) throws IOException {
+        return read(in, ddestFmt, destDirectBuffer, destMinStrideInBytes, destIsGLOriented, null);
+    }
+
+    /**
+     * Reads a PNG image from the specified InputStream
+     * like {@link #read(InputStream, PixelFormat, boolean, int, boolean)},
+     * but optionally pipelines decoding.
+     * <p>
+     * If <code>inflateExecutor</code> is not <code>null</code>, the compressed image data is inflated
+     * by a task of the given executor while the calling thread unfilters and converts the rows,
+     * see {@link PngReader#setInflateExecutor(ExecutorService)}.
+     * </p>
+     * <p>
+     * Each row is decoded into a single reused byte array and copied in bulk to the destination buffer
+     * if no pixel conversion is required.
+     * </p>
+     *
+     * @param in input stream
+     * @param destFmt desired destination {@link PixelFormat} incl. conversion, maybe <code>null</code> to use source {@link PixelFormat}
+     * @param destDirectBuffer if true, using a direct NIO buffer, otherwise an array backed buffer
+     * @param destMinStrideInBytes used if greater than PNG's stride, otherwise using PNG's stride. Stride is width * bytes-per-pixel.
+     * @param destIsGLOriented
+     * @param inflateExecutor optional executor inflating the image data concurrently, maybe <code>null</code>
+     * @return the newly created PNGPixelRect instance
+     * @throws IOException
+     */
+    public static PNGPixelRect read(final InputStream in,
+                                    final PixelFormat ddestFmt, final boolean destDirectBuffer, final int destMinStrideInBytes,
+                                    final boolean destIsGLOriented, final ExecutorService inflateExecutor) throws IOException {
         final BufferedInputStream bin = (in instanceof BufferedInputStream) ? (BufferedInputStream)in : new BufferedInputStream(in);
         final PngReader pngr = new PngReader(bin, null);
         final ImageInfo imgInfo = pngr.imgInfo;
@@ -149,45 +180,53 @@ public class PNGPixelRect extends PixelRectangle.GenericPixelRect {
         }
         final boolean vert_flip = destIsGLOriented;
 
-        int[] rgbaScanline = indexed ? new int[width * channels] : null;
+        if( imgInfo.packed ) {
+            pngr.setUnpackedMode(true); // one sample per byte
+        }
+        if( null != inflateExecutor ) {
+            pngr.setInflateExecutor(inflateExecutor);
+        }
+        final byte[] scanline = new byte[imgInfo.samplesPerRow];
+        final int[] palAlpha = indexed && hasAlpha ? trns.getPalletteAlpha() : null;
+        final boolean fastPath = !indexed && !isGrayAlpha && srcFmt == destFmt;
+        final int rowBytes = width * bytesPerPixel;
         if(DEBUG) {
             System.err.println("PNGPixelRect: indexed "+indexed+", alpha "+hasAlpha+", grayscale "+imgInfo.greyscale+", channels "+channels+"/"+imgInfo.channels+
                                ", bytesPerPixel "+bytesPerPixel+"/"+imgInfo.bytesPixel+
                                ", grayAlpha "+isGrayAlpha+", pixels "+width+"x"+height+", dpi "+dpiX+"x"+dpiY+", format "+srcFmt);
-            System.err.println("PNGPixelRect: destFormat "+destFmt+" ("+ddestFmt+", fast-path "+(destFmt==srcFmt)+"), destDirectBuffer "+destDirectBuffer+", destIsGLOriented (flip) "+destIsGLOriented);
+            System.err.println("PNGPixelRect: destFormat "+destFmt+" ("+ddestFmt+", fast-path "+fastPath+"), destDirectBuffer "+destDirectBuffer+", destIsGLOriented (flip) "+destIsGLOriented);
             System.err.println("PNGPixelRect: destStrideInBytes "+destStrideInBytes+" (destMinStrideInBytes "+destMinStrideInBytes+")");
         }
 
         for (int row = 0; row < height; row++) {
-            final ImageLine l1 = pngr.readRow(row);
-            int lineOff = 0;
+            pngr.readRowByte(scanline, row);
             int dataOff = vert_flip ? ( height - 1 - row ) * destStrideInBytes : row * destStrideInBytes;
-            if( indexed ) {
-                for (int j = width - 1; j >= 0; j--) {
-                    rgbaScanline = ImageLineHelper.palette2rgb(l1, plte, trns, rgbaScanline); // reuse rgbaScanline and update if resized
-                    dataOff = getPixelRGBA8ToAny(destFmt, destPixels, dataOff, rgbaScanline, lineOff, hasAlpha);
-                    lineOff += bytesPerPixel;
+            if( fastPath ) {
+                destPixels.position(dataOff);
+                destPixels.put(scanline, 0, rowBytes);
+            } else if( indexed ) {
+                for (int j = 0; j < width; j++) {
+                    final int idx = scanline[j] & 0xff;
+                    final int rgb = plte.getEntry(idx);
+                    final byte alpha = ( null != palAlpha && idx < palAlpha.length ) ? (byte)palAlpha[idx] : (byte)0xff;
+                    dataOff = getPixelRGBA8ToAny(destFmt, destPixels, dataOff, (byte)( rgb >>> 16 ), (byte)( rgb >>> 8 ), (byte)rgb, alpha);
                 }
             } else if( 1 == channels ) {
-                for (int j = width - 1; j >= 0; j--) {
-                    dataOff = getPixelLUMToAny(destFmt, destPixels, dataOff, (byte)l1.scanline[lineOff++], (byte)0xff); // Luminance, 1 bytesPerPixel
+                for (int lineOff = 0; lineOff < width; lineOff++) {
+                    dataOff = getPixelLUMToAny(destFmt, destPixels, dataOff, scanline[lineOff], (byte)0xff); // Luminance, 1 bytesPerPixel
                 }
             } else if( isGrayAlpha ) {
-                for (int j = width - 1; j >= 0; j--) {
-                    dataOff = getPixelLUMToAny(destFmt, destPixels, dataOff, (byte)l1.scanline[lineOff++], (byte)l1.scanline[lineOff++]); // Luminance+Alpha, 2 bytesPerPixel
-                }
-            } else if( srcFmt == destFmt ) { // fast-path
-                for (int j = width - 1; j >= 0; j--) {
-                    dataOff = getPixelRGBSame(destPixels, dataOff, l1.scanline, lineOff, bytesPerPixel);
-                    lineOff += bytesPerPixel;
+                for (int lineOff = 0; lineOff < rowBytes; lineOff+=2) {
+                    dataOff = getPixelLUMToAny(destFmt, destPixels, dataOff, scanline[lineOff], scanline[lineOff+1]); // Luminance+Alpha, 2 bytesPerPixel
                 }
             } else {
-                for (int j = width - 1; j >= 0; j--) {
-                    dataOff = getPixelRGBA8ToAny(destFmt, destPixels, dataOff, l1.scanline, lineOff, hasAlpha);
-                    lineOff += bytesPerPixel;
+                for (int lineOff = 0; lineOff < rowBytes; lineOff += bytesPerPixel) {
+                    dataOff = getPixelRGBA8ToAny(destFmt, destPixels, dataOff, scanline[lineOff], scanline[lineOff+1], scanline[lineOff+2],
+                                                 hasAlpha ? scanline[lineOff+3] : (byte)0xff);
                 }
             }
         }
+        destPixels.position(0);
         pngr.end();
 
         return new PNGPixelRect(destFmt, new Dimension(width, height), destStrideInBytes, destIsGLOriented, destPixels, dpiX, dpiY);
@@ -223,11 +262,8 @@ public class PNGPixelRect extends PixelRectangle.GenericPixelRect {
         }
         return dOff;
     }
-    private static final int getPixelRGBA8ToAny(final PixelFormat dest_fmt, final ByteBuffer d, int dOff, final int[] scanline, final int lineOff, final boolean srcHasAlpha) {
-        final int p = PixelFormatUtil.convertToInt32(dest_fmt, (byte)scanline[lineOff],   // R
-                                                               (byte)scanline[lineOff+1], // G
-                                                               (byte)scanline[lineOff+2], // B
-                                                               srcHasAlpha ? (byte)scanline[lineOff+3] : (byte)0xff); // A
+    private static final int getPixelRGBA8ToAny(final PixelFormat dest_fmt, final ByteBuffer d, int dOff, final byte r, final byte g, final byte b, final byte a) {
+        final int p = PixelFormatUtil.convertToInt32(dest_fmt, r, g, b, a);
         final int dbpp = dest_fmt.comp.bytesPerPixel();
         d.put(dOff++, (byte) ( p ));                // 1
         if( 1 < dbpp ) {
@@ -239,17 +275,6 @@ public class PNGPixelRect extends PixelRectangle.GenericPixelRect {
         }
         return dOff;
     }
-    private static final int getPixelRGBSame(final ByteBuffer d, int dOff, final int[] scanline, final int lineOff, final int bpp) {
-        d.put(dOff++, (byte)scanline[lineOff]);             // R
-        if( 1 < bpp ) {
-            d.put(dOff++, (byte)scanline[lineOff + 1]);     // G
-            d.put(dOff++, (byte)scanline[lineOff + 2]);     // B
-            if( 4 == bpp ) {
-                d.put(dOff++, (byte)scanline[lineOff + 3]); // A
-            }
-        }
-        return dOff;
-    }
     private int setPixelRGBA8(final ImageLine line, final int lineOff, final ByteBuffer src, final int srcOff, final int bytesPerPixel, final boolean hasAlpha) {
         final int b = hasAlpha ? 4-1 : 3-1;
         if( src.limit() <= srcOff + b ) {
@@ -303,6 +328,26 @@ public class PNGPixelRect extends PixelRectangle.GenericPixelRect {
     public double[] getDpi() { return dpi; }
 
     public void write(final OutputStream outstream, final boolean closeOutstream) throws IOException {
+        write(outstream, closeOutstream, null);
+    }
+
+    /**
+     * Writes this image as PNG to the given OutputStream
+     * like {@link #write(OutputStream, boolean)},
+     * but optionally compresses the image data concurrently.
+     * <p>
+     * If <code>compressExecutor</code> is not <code>null</code>, the filtered rows are deflated
+     * in independent chunks by tasks of the given executor while the calling thread keeps filtering,
+     * see {@link PngWriter#setCompressionExecutor(ExecutorService)}.
+     * The result is a regular PNG file.
+     * </p>
+     *
+     * @param outstream destination stream
+     * @param closeOutstream if true, closes <code>outstream</code> when done
+     * @param compressExecutor optional executor compressing the image data concurrently, maybe <code>null</code>
+     * @throws IOException
+     */
+    public void write(final OutputStream outstream, final boolean closeOutstream, final ExecutorService compressExecutor) throws IOException {
         final int width = size.getWidth();
         final int height = size.getHeight();
         final int bytesPerPixel = pixelformat.comp.bytesPerPixel();
@@ -314,6 +359,7 @@ public class PNGPixelRect extends PixelRectangle.GenericPixelRect {
         // open image for writing to a output stream
         try {
             final PngWriter png = new PngWriter(outstream, imi);
+            png.setCompressionExecutor(compressExecutor);
             // add some optional metadata (chunks)
             png.getMetadata().setDpi(dpi[0], dpi[1]);
             png.getMetadata().setTimeNow(0); // 0 seconds from now = now
@@ -344,6 +390,30 @@ public class PNGPixelRect extends PixelRectangle.GenericPixelRect {
         }
     }
 
+    /**
+     * Writes this image as PNG to the given OutputStream asynchronously,
+     * i.e. the whole encoding runs as a task of the given executor,
+     * which is also used to compress the image data concurrently,
+     * see {@link #write(OutputStream, boolean, ExecutorService)}.
+     * <p>
+     * The pixel buffer is not copied, hence it must not be modified
+     * until the returned {@link Future} is done.
+     * </p>
+     *
+     * @param outstream destination stream
+     * @param closeOutstream if true, closes <code>outstream</code> when done
+     * @param executor executor running the encoding and compression tasks
+     * @return {@link Future} delivering this instance when written, or the {@link IOException} on failure
+     */
+    public Future<PNGPixelRect> writeAsync(final OutputStream outstream, final boolean closeOutstream, final ExecutorService executor) {
+        return executor.submit(new Callable<PNGPixelRect>() {
+            @Override
+            public PNGPixelRect call() throws IOException {
+                write(outstream, closeOutstream, executor);
+                return PNGPixelRect.this;
+            } } );
+    }
+
     public static void write(final PixelFormat pixelformat, final DimensionImmutable size,
                              int strideInPixels, final boolean isGLOriented, final IntBuffer pixels,
                              final double dpiX, final double dpiY,
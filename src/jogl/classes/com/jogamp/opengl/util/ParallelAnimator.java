@@ -0,0 +1,378 @@
+/**
+ * Copyright 2026 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.util;
+
+import com.jogamp.common.ExceptionUtils;
+import com.jogamp.common.util.InterruptSource;
+import com.jogamp.common.util.SourcedInterruptedException;
+import com.jogamp.opengl.GLAutoDrawable;
+import com.jogamp.opengl.GLContext;
+import com.jogamp.opengl.GLException;
+
+/**
+ * An Animator rendering its independent {@link GLAutoDrawable}s concurrently on multiple render threads.
+ * <p>
+ * Drawables of the same render group, by default all drawables of one {@link GLContext#getSharedMaster() shared context set},
+ * are rendered on the same render thread, see {@link #getRenderGroupKey(GLAutoDrawable)}.
+ * Each render group is assigned to its own render thread up to the maximum number of render threads,
+ * beyond that render groups are distributed to the least loaded render thread.
+ * </p>
+ * <p>
+ * Each animation frame is synchronized by a barrier, i.e. the animator thread releases all render threads at once
+ * and waits until all drawables have been rendered, hence all drawables present the same frame.
+ * </p>
+ * <p>
+ * If {@link #setExclusiveContext(boolean) exclusive context} is enabled,
+ * each drawable's context is dedicated to its render thread, see {@link #getRenderThread(GLAutoDrawable)}.
+ * A thread passed via {@link #setExclusiveContext(Thread)} is not used.
+ * </p>
+ * <p>
+ * The render group of a drawable w/o created context is re-evaluated each frame,
+ * as its shared context set is only known after creation.
+ * Once its context is dedicated to its render thread, a drawable stays on it.
+ * </p>
+ * <p>
+ * The Animator execution thread does not run as a daemon thread,
+ * so it is able to keep an application from terminating.<br>
+ * Call {@link #stop() } to terminate the animation and it's execution thread, including all render threads.
+ * </p>
+ */
+public class ParallelAnimator extends AnimatorBase {
+    private final int maxRenderThreads;
+    private ThreadGroup threadGroup;
+    private Runnable runnable;
+    boolean isAnimating;
+    volatile boolean pauseIssued;
+    volatile boolean stopIssued;
+
+    /**
+     * Creates a new, empty ParallelAnimator using up to {@link Runtime#availableProcessors()} render threads.
+     */
+    public ParallelAnimator() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new, empty ParallelAnimator.
+     * @param maxRenderThreads maximum number of render threads, at least one
+     */
+    public ParallelAnimator(final int maxRenderThreads) {
+        super();
+        if( 0 >= maxRenderThreads ) {
+            throw new IllegalArgumentException("Invalid maxRenderThreads "+maxRenderThreads);
+        }
+        this.maxRenderThreads = maxRenderThreads;
+        // render threads don't run on the AWT-EDT
+        modeBits &= ~MODE_EXPECT_AWT_RENDERING_THREAD;
+        if(DEBUG) {
+            System.err.println("ParallelAnimator created, maxRenderThreads "+maxRenderThreads);
+        }
+    }
+
+    @Override
+    protected final String getBaseName(final String prefix) {
+        return "Parallel" + prefix + "Animator" ;
+    }
+
+    @Override
+    protected final AnimatorImpl createCustomImpl() {
+        return new ParallelAnimatorImpl(this, maxRenderThreads);
+    }
+
+    /** Returns the maximum number of render threads. */
+    public final int getMaxRenderThreads() { return maxRenderThreads; }
+
+    /** Returns the number of currently running render threads. */
+    public final int getRenderThreadCount() {
+        final AnimatorImpl _impl = impl;
+        return _impl instanceof ParallelAnimatorImpl ? ((ParallelAnimatorImpl)_impl).getRenderThreadCount() : 0;
+    }
+
+    /**
+     * Returns the render thread of the given drawable or <code>null</code>, if not yet rendered by this animator.
+     */
+    public final Thread getRenderThread(final GLAutoDrawable drawable) {
+        final AnimatorImpl _impl = impl;
+        return _impl instanceof ParallelAnimatorImpl ? ((ParallelAnimatorImpl)_impl).getRenderThread(drawable, false) : null;
+    }
+
+    /**
+     * Returns the key of the given drawable's render group, all drawables of one render group are rendered on the same render thread.
+     * <p>
+     * Default implementation returns the {@link GLContext#getSharedMaster() shared master context},
+     * the drawable's context if not shared or the drawable itself if it has no context.
+     * </p>
+     * <p>
+     * May be overridden to group drawables differently,
+     * however, the implementation must not block on this animator instance.
+     * </p>
+     */
+    protected Object getRenderGroupKey(final GLAutoDrawable drawable) {
+        final GLContext ctx = drawable.getContext();
+        if( null == ctx ) {
+            return drawable;
+        }
+        final GLContext master = ctx.getSharedMaster();
+        return null != master ? master : ctx;
+    }
+
+    @Override
+    protected final Thread getExclusiveContextThread(final GLAutoDrawable drawable) {
+        if( null == getExclusiveContextThread() ) {
+            return null;
+        }
+        initImpl(false);
+        return ((ParallelAnimatorImpl)impl).getRenderThread(drawable, true);
+    }
+
+    /**
+     * Set a {@link ThreadGroup} for the {@link #getThread() animation thread}.
+     *
+     * @param tg the {@link ThreadGroup}
+     * @throws GLException if the animator has already been started
+     */
+    public final synchronized void setThreadGroup(final ThreadGroup tg) throws GLException {
+        if ( isStarted() ) {
+            throw new GLException("Animator already started.");
+        }
+        threadGroup = tg;
+    }
+
+    class MainLoop implements Runnable {
+        @Override
+        public String toString() {
+            return "[started "+isStarted()+", animating "+isAnimating()+", paused "+isPaused()+", drawable "+drawables.size()+", drawablesEmpty "+drawablesEmpty+", renderThreads "+getRenderThreadCount()+"]";
+        }
+
+        @Override
+        public void run() {
+            ThreadDeath caughtThreadDeath = null;
+            UncaughtAnimatorException caughtException = null;
+
+            try {
+                synchronized (ParallelAnimator.this) {
+                    if(DEBUG) {
+                        System.err.println("ParallelAnimator start on " + getThreadName() + ": " + toString());
+                    }
+                    fpsCounter.resetFPSCounter();
+                    animThread = Thread.currentThread();
+                    isAnimating = false;
+                    // 'waitForStartedCondition' wake-up is handled below!
+                }
+
+                while (!stopIssued) {
+                    synchronized (ParallelAnimator.this) {
+                        // Pause; Also don't consume CPU unless there is work to be done and not paused
+                        boolean ectCleared = false;
+                        while ( !stopIssued && ( pauseIssued || drawablesEmpty ) ) {
+                            if( drawablesEmpty ) {
+                                pauseIssued = true;
+                            }
+                            final boolean wasPaused = pauseIssued;
+                            if (DEBUG) {
+                                System.err.println("ParallelAnimator pause on " + animThread.getName() + ": " + toString());
+                            }
+                            if ( exclusiveContext && !drawablesEmpty && !ectCleared ) {
+                                ectCleared = true;
+                                setDrawablesExclCtxState(false);
+                                try {
+                                    display(); // propagate exclusive context -> off!
+                                } catch (final UncaughtAnimatorException dre) {
+                                    caughtException = dre;
+                                    stopIssued = true;
+                                    break; // end pause loop
+                                }
+                            }
+                            isAnimating = false;
+                            ParallelAnimator.this.notifyAll();
+                            try {
+                                ParallelAnimator.this.wait();
+                            } catch (final InterruptedException e) {
+                                caughtException = new UncaughtAnimatorException(null, SourcedInterruptedException.wrap(e));
+                                stopIssued = true;
+                                break; // end pause loop
+                            }
+                            if (wasPaused) {
+                                // resume from pause -> reset counter
+                                fpsCounter.resetFPSCounter();
+                                if (DEBUG) {
+                                    System.err.println("ParallelAnimator resume on " + animThread.getName() + ": " + toString());
+                                }
+                            }
+                        }
+                        if (!stopIssued && !isAnimating) {
+                            // Wakes up 'waitForStartedCondition' sync
+                            // - and -
+                            // Resume from pause or drawablesEmpty,
+                            // implies !pauseIssued and !drawablesEmpty
+                            isAnimating = true;
+                            setDrawablesExclCtxState(exclusiveContext); // may re-enable exclusive context
+                            ParallelAnimator.this.notifyAll();
+                        }
+                    } // sync ParallelAnimator.this
+                    if ( !pauseIssued && !stopIssued ) {
+                        try {
+                            display(); // frame barrier: returns after all render threads are done
+                        } catch (final UncaughtAnimatorException dre) {
+                            caughtException = dre;
+                            stopIssued = true;
+                            break; // end animation loop
+                        }
+                    }
+                }
+            } catch(final ThreadDeath td) {
+                if(DEBUG) {
+                    ExceptionUtils.dumpThrowable("", td);
+                }
+                caughtThreadDeath = td;
+            }
+            if( exclusiveContext && !drawablesEmpty ) {
+                setDrawablesExclCtxState(false);
+                try {
+                    display(); // propagate exclusive context -> off!
+                } catch (final UncaughtAnimatorException dre) {
+                    if( null == caughtException ) {
+                        caughtException = dre;
+                    } else {
+                        ExceptionUtils.dumpThrowable("(setExclusiveContextThread)", dre);
+                    }
+                }
+            }
+            if( impl instanceof ParallelAnimatorImpl ) {
+                ((ParallelAnimatorImpl)impl).dispose();
+            }
+            boolean flushGLRunnables = false;
+            boolean throwCaughtException = false;
+            synchronized (ParallelAnimator.this) {
+                if(DEBUG) {
+                    System.err.println("ParallelAnimator stop on " + animThread.getName() + ": " + toString());
+                    if( null != caughtException ) {
+                        ExceptionUtils.dumpThrowable("", caughtException);
+                    }
+                }
+                stopIssued = false;
+                pauseIssued = false;
+                isAnimating = false;
+                if( null != caughtException ) {
+                    flushGLRunnables = true;
+                    throwCaughtException = !handleUncaughtException(caughtException);
+                }
+                animThread = null;
+                ParallelAnimator.this.notifyAll();
+            }
+            if( flushGLRunnables ) {
+                flushGLRunnables();
+            }
+            if( throwCaughtException ) {
+                throw caughtException;
+            }
+            if( null != caughtThreadDeath ) {
+                throw caughtThreadDeath;
+            }
+        }
+    }
+
+    @Override
+    public final synchronized boolean isAnimating() {
+        return animThread != null && isAnimating ;
+    }
+
+    @Override
+    public final synchronized boolean isPaused() {
+        return animThread != null && pauseIssued ;
+    }
+
+    @Override
+    public final synchronized boolean start() {
+        if ( isStarted() ) {
+            return false;
+        }
+        if (runnable == null) {
+            runnable = new MainLoop();
+        }
+        fpsCounter.resetFPSCounter();
+        final Thread thread = new InterruptSource.Thread(threadGroup, runnable, getThreadName()+"-"+baseName);
+        thread.setDaemon(false); // force to be non daemon, regardless of parent thread
+        if(DEBUG) {
+            final Thread ct = Thread.currentThread();
+            System.err.println("ParallelAnimator "+ct.getName()+"[daemon "+ct.isDaemon()+"]: starting "+thread.getName()+"[daemon "+thread.isDaemon()+"]");
+        }
+        thread.start();
+        return finishLifecycleAction(waitForStartedCondition, 0);
+    }
+    private final Condition waitForStartedCondition = new Condition() {
+        @Override
+        public boolean eval() {
+            return !isStarted() || (!drawablesEmpty && !isAnimating) ;
+        } };
+
+    @Override
+    public final synchronized boolean stop() {
+        if ( !isStarted() ) {
+            return false;
+        }
+        stopIssued = true;
+        notifyAll(); // wake up paused animation thread
+        return finishLifecycleAction(waitForStoppedCondition, 0);
+    }
+    private final Condition waitForStoppedCondition = new Condition() {
+        @Override
+        public boolean eval() {
+            return isStarted();
+        } };
+
+    @Override
+    public final synchronized boolean pause() {
+        if ( !isStarted() || pauseIssued ) {
+            return false;
+        }
+        pauseIssued = true;
+        return finishLifecycleAction(waitForPausedCondition, 0);
+    }
+    private final Condition waitForPausedCondition = new Condition() {
+        @Override
+        public boolean eval() {
+            // end waiting if stopped as well
+            return isStarted() && isAnimating;
+        } };
+
+    @Override
+    public final synchronized boolean resume() {
+        if ( !isStarted() || !pauseIssued ) {
+            return false;
+        }
+        pauseIssued = false;
+        return finishLifecycleAction(waitForResumeCondition, 0);
+    }
+    private final Condition waitForResumeCondition = new Condition() {
+        @Override
+        public boolean eval() {
+            // end waiting if stopped as well
+            return isStarted() && ( !drawablesEmpty && !isAnimating || drawablesEmpty && !pauseIssued ) ;
+        } };
+}
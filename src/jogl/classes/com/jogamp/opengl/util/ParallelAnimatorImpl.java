@@ -0,0 +1,361 @@
+/**
+ * Copyright 2026 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.util;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+import com.jogamp.common.util.InterruptSource;
+import com.jogamp.opengl.GLAutoDrawable;
+import com.jogamp.opengl.GLContext;
+
+import com.jogamp.opengl.util.AnimatorBase.UncaughtAnimatorException;
+
+/**
+ * {@link AnimatorBase.AnimatorImpl} rendering independent {@link GLAutoDrawable}s concurrently,
+ * used by {@link ParallelAnimator}.
+ * <p>
+ * Each render group, see {@link ParallelAnimator#getRenderGroupKey(GLAutoDrawable)},
+ * is assigned to one render thread, while one render thread may serve multiple groups
+ * if their number exceeds the maximum number of render threads.
+ * A drawable keeps its render thread while it is bound to it as exclusive context thread.
+ * </p>
+ * <p>
+ * Each {@link #display(ArrayList, boolean, boolean) display} call is one frame:
+ * all render threads are released at once and the call returns after all of them have finished,
+ * i.e. no drawable starts a frame before all drawables have finished the previous one.
+ * </p>
+ */
+class ParallelAnimatorImpl implements AnimatorBase.AnimatorImpl {
+    private final ParallelAnimator owner;
+    private final int maxThreads;
+
+    /** Assignment and workers, guarded by this instance */
+    private final IdentityHashMap<GLAutoDrawable, Worker> assignment = new IdentityHashMap<GLAutoDrawable, Worker>();
+    private final IdentityHashMap<Object, Worker> groups = new IdentityHashMap<Object, Worker>();
+    private final ArrayList<Worker> workers = new ArrayList<Worker>();
+    private final ArrayList<GLAutoDrawable> scheduled = new ArrayList<GLAutoDrawable>();
+    private boolean unresolvedGroups = false;
+    private int workerSeq = 0;
+
+    /** Frame barrier, guarded by sync */
+    private final Object sync = new Object();
+    private long frame = 0;
+    private int remaining = 0;
+    private boolean ignoreExceptions;
+    private boolean printExceptions;
+    private UncaughtAnimatorException caught;
+
+    ParallelAnimatorImpl(final ParallelAnimator owner, final int maxThreads) {
+        this.owner = owner;
+        this.maxThreads = maxThreads;
+    }
+
+    class Worker implements Runnable {
+        final Thread thread;
+        final ArrayList<GLAutoDrawable> drawables = new ArrayList<GLAutoDrawable>();
+        /** Drawables assigned to this worker, including not yet scheduled ones, guarded by ParallelAnimatorImpl.this */
+        int load = 0;
+        /** Guarded by sync */
+        boolean retired = false;
+        /** Last frame rendered, a new worker joins w/ the next frame */
+        private long seen;
+
+        Worker(final String name) {
+            synchronized(sync) {
+                seen = frame;
+            }
+            thread = new InterruptSource.Thread(null, this, name);
+            thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while( true ) {
+                final boolean ignore, print;
+                synchronized(sync) {
+                    while( seen == frame && !retired ) {
+                        try {
+                            sync.wait();
+                        } catch (final InterruptedException e) {
+                            // only retirement ends this thread
+                        }
+                    }
+                    if( retired ) {
+                        return;
+                    }
+                    seen = frame;
+                    ignore = ignoreExceptions;
+                    print = printExceptions;
+                }
+                UncaughtAnimatorException ex = null;
+                for (int i=0; null == ex && i<drawables.size(); i++) {
+                    final GLAutoDrawable drawable = drawables.get(i);
+                    try {
+                        drawable.display();
+                    } catch (final Throwable t) {
+                        if (ignore) {
+                            if (print) {
+                                t.printStackTrace();
+                            }
+                        } else {
+                            ex = new UncaughtAnimatorException(drawable, t);
+                        }
+                    }
+                }
+                synchronized(sync) {
+                    if( null != ex && null == caught ) {
+                        caught = ex;
+                    }
+                    if( 0 == --remaining ) {
+                        sync.notifyAll();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return thread.getName()+"["+drawables.size()+" drawables]";
+        }
+    }
+
+    /**
+     * Returns the render thread assigned to the given drawable.
+     * @param assign if <code>true</code> and the drawable is not yet assigned, assign it now, otherwise return <code>null</code>
+     */
+    final synchronized Thread getRenderThread(final GLAutoDrawable drawable, final boolean assign) {
+        Worker w = assignment.get(drawable);
+        if( null == w && assign ) {
+            w = assign(drawable, owner.getRenderGroupKey(drawable));
+        }
+        return null != w ? w.thread : null;
+    }
+
+    /** Returns the number of render threads. */
+    final synchronized int getRenderThreadCount() {
+        return workers.size();
+    }
+
+    /** Assigns the drawable to its group's worker, the least loaded one or a new worker. */
+    private final Worker assign(final GLAutoDrawable drawable, final Object key) {
+        Worker w = groups.get(key);
+        if( null == w ) {
+            if( workers.size() < maxThreads ) {
+                w = new Worker(owner.baseName+"-Render-"+(workerSeq++));
+                workers.add(w);
+                w.thread.start();
+            } else {
+                for(int i=0; i<workers.size(); i++) {
+                    final Worker wi = workers.get(i);
+                    if( null == w || wi.load < w.load ) {
+                        w = wi;
+                    }
+                }
+            }
+            groups.put(key, w);
+        }
+        w.load++;
+        assignment.put(drawable, w);
+        return w;
+    }
+
+    private final void unassign(final GLAutoDrawable drawable) {
+        final Worker w = assignment.remove(drawable);
+        if( null != w ) {
+            w.load--;
+        }
+    }
+
+    /**
+     * Updates the workers' drawables if the given list has changed
+     * or the render group of a drawable may have changed since the last frame.
+     * @return the number of workers
+     */
+    private final synchronized int update(final ArrayList<GLAutoDrawable> drawables) {
+        if( !unresolvedGroups && isScheduled(drawables) ) {
+            return workers.size();
+        }
+        final ArrayList<GLAutoDrawable> current = new ArrayList<GLAutoDrawable>(drawables.size());
+        try {
+            for(int i=0; i<drawables.size(); i++) {
+                current.add(drawables.get(i));
+            }
+        } catch (final IndexOutOfBoundsException e) {
+            // concurrent pulling of GLAutoDrawables ..
+        }
+        // Drop removed drawables
+        final IdentityHashMap<GLAutoDrawable, Object> keep = new IdentityHashMap<GLAutoDrawable, Object>();
+        for(int i=0; i<current.size(); i++) {
+            keep.put(current.get(i), current);
+        }
+        final ArrayList<GLAutoDrawable> previous = new ArrayList<GLAutoDrawable>(assignment.keySet());
+        for(int i=0; i<previous.size(); i++) {
+            final GLAutoDrawable d = previous.get(i);
+            if( !keep.containsKey(d) ) {
+                unassign(d);
+            }
+        }
+        // Regroup: Drawables bound to their render thread stay, others follow their group
+        groups.clear();
+        unresolvedGroups = false;
+        final Object[] keys = new Object[current.size()];
+        for(int i=0; i<current.size(); i++) {
+            final GLAutoDrawable d = current.get(i);
+            keys[i] = owner.getRenderGroupKey(d);
+            final GLContext ctx = d.getContext();
+            unresolvedGroups = unresolvedGroups || null == ctx || !ctx.isCreated(); // share set known after creation
+            final Worker w = assignment.get(d);
+            if( null != w && w.thread == d.getExclusiveContextThread() && !groups.containsKey(keys[i]) ) {
+                groups.put(keys[i], w);
+            }
+        }
+        for(int i=0; i<current.size(); i++) {
+            final GLAutoDrawable d = current.get(i);
+            final Worker w = assignment.get(d);
+            if( null != w && w.thread == d.getExclusiveContextThread() ) {
+                continue;
+            }
+            if( null != w && !groups.containsKey(keys[i]) ) {
+                groups.put(keys[i], w); // stay
+            } else if( null == w || groups.get(keys[i]) != w ) {
+                unassign(d);
+                assign(d, keys[i]);
+            }
+        }
+        // Rebuild lists, retire idle workers
+        for(int i=0; i<workers.size(); i++) {
+            workers.get(i).drawables.clear();
+        }
+        for(int i=0; i<current.size(); i++) {
+            final GLAutoDrawable d = current.get(i);
+            assignment.get(d).drawables.add(d);
+        }
+        for(int i=workers.size()-1; i>=0; i--) {
+            final Worker w = workers.get(i);
+            if( 0 == w.load ) {
+                workers.remove(i);
+                synchronized(sync) {
+                    w.retired = true;
+                    sync.notifyAll();
+                }
+            }
+        }
+        scheduled.clear();
+        scheduled.addAll(current);
+        return workers.size();
+    }
+
+    private final boolean isScheduled(final ArrayList<GLAutoDrawable> drawables) {
+        try {
+            if( drawables.size() != scheduled.size() ) {
+                return false;
+            }
+            for(int i=0; i<scheduled.size(); i++) {
+                if( drawables.get(i) != scheduled.get(i) ) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (final IndexOutOfBoundsException e) {
+            // concurrent pulling of GLAutoDrawables ..
+            return false;
+        }
+    }
+
+    @Override
+    public void display(final ArrayList<GLAutoDrawable> drawables,
+                        final boolean ignoreExceptions,
+                        final boolean printExceptions) throws UncaughtAnimatorException {
+        final int workerCount = update(drawables);
+        if( 0 == workerCount ) {
+            return;
+        }
+        final UncaughtAnimatorException ex;
+        boolean interrupted = false;
+        synchronized(sync) {
+            this.ignoreExceptions = ignoreExceptions;
+            this.printExceptions = printExceptions;
+            caught = null;
+            remaining = workerCount;
+            frame++;
+            sync.notifyAll();
+            while( 0 < remaining ) {
+                try {
+                    sync.wait();
+                } catch (final InterruptedException e) {
+                    interrupted = true; // render threads still use the drawables
+                }
+            }
+            ex = caught;
+            caught = null;
+        }
+        if( interrupted ) {
+            Thread.currentThread().interrupt();
+        }
+        if( null != ex ) {
+            throw ex;
+        }
+    }
+
+    /**
+     * Terminates all render threads, to be called by the animator thread
+     * after the final {@link #display(ArrayList, boolean, boolean) display} call
+     * releasing the exclusive context threads.
+     */
+    final synchronized void dispose() {
+        synchronized(sync) {
+            for(int i=0; i<workers.size(); i++) {
+                workers.get(i).retired = true;
+            }
+            sync.notifyAll();
+        }
+        workers.clear();
+        groups.clear();
+        assignment.clear();
+        scheduled.clear();
+        unresolvedGroups = false;
+    }
+
+    /** Returns <code>true</code> if the current thread is one of the render threads. */
+    private final synchronized boolean isRenderThread() {
+        final Thread ct = Thread.currentThread();
+        for(int i=0; i<workers.size(); i++) {
+            if( ct == workers.get(i).thread ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean blockUntilDone(final Thread thread) {
+        // A render thread waiting for the animator thread would block the frame barrier
+        return Thread.currentThread() != thread && !isRenderThread();
+    }
+}
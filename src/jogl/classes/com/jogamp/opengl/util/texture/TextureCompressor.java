@@ -0,0 +1,371 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.util.texture;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import jogamp.opengl.glu.mipmap.MipmapBuilder;
+import jogamp.opengl.util.texture.ETC2BlockCodec;
+import jogamp.opengl.util.texture.S3TCBlockCodec;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.opengl.GL;
+import com.jogamp.opengl.GL2ES2;
+import com.jogamp.opengl.GL2ES3;
+
+/**
+ * CPU encoder of block compressed textures, i.e. BC1 (DXT1), BC3 (DXT5), ETC2 RGB8 and ETC2 RGBA8 (EAC),
+ * usable offline or at load time, e.g. within {@link TextureStreamer#decode(TextureStreamer.Request)}.
+ * <p>
+ * Compressed textures take 1/8 (BC1, ETC2 RGB8) or 1/4 (BC3, ETC2 RGBA8) of the memory and upload bandwidth of RGBA8.
+ * The result may be written to KTX or KTX2 via {@link TextureIO#write(TextureData, java.io.File)}.
+ * </p>
+ * <p>
+ * The decoder is provided for verification and as fallback if the GL lacks support of a format.
+ * </p>
+ */
+public class TextureCompressor {
+
+    /** Supported block compressed formats */
+    public static enum Format {
+        /** BC1 (DXT1) RGB, 8 bytes per 4x4 block, {@link GL#GL_COMPRESSED_RGB_S3TC_DXT1_EXT} */
+        BC1(GL.GL_COMPRESSED_RGB_S3TC_DXT1_EXT, GL.GL_RGB, S3TCBlockCodec.BC1_BLOCK_SIZE),
+        /** BC3 (DXT5) RGBA, 16 bytes per 4x4 block, {@link GL#GL_COMPRESSED_RGBA_S3TC_DXT5_EXT} */
+        BC3(GL.GL_COMPRESSED_RGBA_S3TC_DXT5_EXT, GL.GL_RGBA, S3TCBlockCodec.BC3_BLOCK_SIZE),
+        /** ETC2 RGB, 8 bytes per 4x4 block, {@link GL2ES3#GL_COMPRESSED_RGB8_ETC2} */
+        ETC2_RGB8(GL2ES3.GL_COMPRESSED_RGB8_ETC2, GL.GL_RGB, ETC2BlockCodec.RGB8_BLOCK_SIZE),
+        /** ETC2 RGBA with EAC alpha, 16 bytes per 4x4 block, {@link GL2ES3#GL_COMPRESSED_RGBA8_ETC2_EAC} */
+        ETC2_RGBA8(GL2ES3.GL_COMPRESSED_RGBA8_ETC2_EAC, GL.GL_RGBA, ETC2BlockCodec.RGBA8_BLOCK_SIZE);
+
+        /** The GL internal format */
+        public final int glInternalFormat;
+        /** The uncompressed GL format, i.e. {@link GL#GL_RGB} or {@link GL#GL_RGBA} */
+        public final int glFormat;
+        /** Bytes per 4x4 block */
+        public final int blockSize;
+
+        Format(final int glInternalFormat, final int glFormat, final int blockSize) {
+            this.glInternalFormat = glInternalFormat;
+            this.glFormat = glFormat;
+            this.blockSize = blockSize;
+        }
+
+        /** Returns the {@link Format} of the given GL internal format, or <code>null</code> if not supported. */
+        public static Format valueOf(final int glInternalFormat) {
+            final Format[] all = values();
+            for(int i=0; i<all.length; i++) {
+                if( all[i].glInternalFormat == glInternalFormat ) {
+                    return all[i];
+                }
+            }
+            return null;
+        }
+    }
+
+    /** Returns the size in bytes of an image of the given dimension in the given format. */
+    public static int getCompressedSize(final Format fmt, final int width, final int height) {
+        return ( ( width + 3 ) / 4 ) * ( ( height + 3 ) / 4 ) * fmt.blockSize;
+    }
+
+    /**
+     * Compresses an RGBA8 image.
+     * <p>
+     * Edge blocks of images with a dimension not a multiple of 4 replicate the last row and column.
+     * Row order is preserved, i.e. the first row of the source is the first row of the first block row.
+     * </p>
+     * @param fmt the destination format
+     * @param rgba source pixels, 4 bytes RGBA each, starting at its position, which is not modified
+     * @param width image width
+     * @param height image height
+     * @param strideInBytes source row stride, 0 for <code>width * 4</code>
+     * @param dest destination, receiving {@link #getCompressedSize(Format, int, int)} bytes starting at its position,
+     *             which is not modified
+     * @param executor optional executor compressing bands of block rows concurrently, may be <code>null</code>
+     * @throws IndexOutOfBoundsException if a buffer is too small
+     * @throws InterruptedException if interrupted while waiting for the executor tasks
+     */
+    public static void compress(final Format fmt, final ByteBuffer rgba, final int width, final int height, final int strideInBytes,
+                                final ByteBuffer dest, final ExecutorService executor)
+            throws IndexOutOfBoundsException, InterruptedException
+    {
+        final int stride = 0 < strideInBytes ? strideInBytes : width * 4;
+        if( rgba.remaining() < stride * ( height - 1 ) + width * 4 ) {
+            throw new IndexOutOfBoundsException("Source of "+rgba.remaining()+" bytes too small for "+width+"x"+height+", stride "+stride);
+        }
+        if( dest.remaining() < getCompressedSize(fmt, width, height) ) {
+            throw new IndexOutOfBoundsException("Destination of "+dest.remaining()+" bytes too small for "+width+"x"+height+" "+fmt);
+        }
+        final int blockRows = ( height + 3 ) / 4;
+        final int tasks = null != executor ? Math.min(blockRows, 4 * Runtime.getRuntime().availableProcessors()) : 1;
+        if( 1 >= tasks ) {
+            compressImpl(fmt, rgba, width, height, stride, dest, 0, blockRows);
+            return;
+        }
+        final int rowsPerTask = ( blockRows + tasks - 1 ) / tasks;
+        final ArrayList<Future<Object>> results = new ArrayList<Future<Object>>(tasks);
+        for(int r0=0; r0<blockRows; r0+=rowsPerTask) {
+            final int fromRow = r0;
+            final int toRow = Math.min(r0 + rowsPerTask, blockRows);
+            results.add( executor.submit( new Callable<Object>() {
+                @Override
+                public Object call() {
+                    compressImpl(fmt, rgba, width, height, stride, dest, fromRow, toRow);
+                    return null;
+                } } ) );
+        }
+        try {
+            for(int i=0; i<results.size(); i++) {
+                results.get(i).get();
+            }
+        } catch (final ExecutionException ee) {
+            final Throwable t = ee.getCause();
+            if( t instanceof RuntimeException ) {
+                throw (RuntimeException)t;
+            }
+            throw new RuntimeException(t);
+        } finally {
+            for(int i=0; i<results.size(); i++) {
+                results.get(i).cancel(false);
+            }
+        }
+    }
+
+    /** Compresses the block rows [fromRow..toRow[ using absolute buffer access only, hence thread safe. */
+    private static void compressImpl(final Format fmt, final ByteBuffer rgba, final int width, final int height, final int stride,
+                                     final ByteBuffer dest, final int fromRow, final int toRow) {
+        final int srcPos = rgba.position();
+        final int blocksX = ( width + 3 ) / 4;
+        final int rowBytes = blocksX * fmt.blockSize;
+        final int[] px = new int[64];
+        final byte[] out = new byte[rowBytes];
+        final byte[] in = new byte[width * 4];
+        final ByteBuffer src = rgba.duplicate();
+        final ByteBuffer dst = dest.duplicate();
+        for(int by=fromRow; by<toRow; by++) {
+            final int[] rows = new int[64*blocksX];
+            for(int y=0; y<4; y++) {
+                final int sy = Math.min(by*4 + y, height - 1);
+                src.position(srcPos + sy * stride);
+                src.get(in, 0, in.length);
+                for(int x=0; x<blocksX*4; x++) {
+                    final int sx = Math.min(x, width - 1) * 4;
+                    final int d = ( ( x >> 2 ) * 16 + y * 4 + ( x & 3 ) ) * 4;
+                    rows[d]   = in[sx] & 0xff;
+                    rows[d+1] = in[sx+1] & 0xff;
+                    rows[d+2] = in[sx+2] & 0xff;
+                    rows[d+3] = in[sx+3] & 0xff;
+                }
+            }
+            for(int bx=0; bx<blocksX; bx++) {
+                System.arraycopy(rows, bx*64, px, 0, 64);
+                final int off = bx * fmt.blockSize;
+                switch( fmt ) {
+                    case BC1:        S3TCBlockCodec.encodeBC1(px, out, off); break;
+                    case BC3:        S3TCBlockCodec.encodeBC3(px, out, off); break;
+                    case ETC2_RGB8:  ETC2BlockCodec.encodeRGB8(px, out, off); break;
+                    case ETC2_RGBA8: ETC2BlockCodec.encodeRGBA8(px, out, off); break;
+                }
+            }
+            dst.position(dest.position() + by * rowBytes);
+            dst.put(out);
+        }
+    }
+
+    /**
+     * Decompresses an image to RGBA8.
+     * @param fmt the source format
+     * @param src compressed source, starting at its position, which is not modified
+     * @param width image width
+     * @param height image height
+     * @param rgba destination receiving <code>width * height * 4</code> bytes starting at its position, which is not modified
+     * @throws IndexOutOfBoundsException if a buffer is too small
+     */
+    public static void decompress(final Format fmt, final ByteBuffer src, final int width, final int height, final ByteBuffer rgba)
+            throws IndexOutOfBoundsException
+    {
+        if( src.remaining() < getCompressedSize(fmt, width, height) ) {
+            throw new IndexOutOfBoundsException("Source of "+src.remaining()+" bytes too small for "+width+"x"+height+" "+fmt);
+        }
+        if( rgba.remaining() < width * height * 4 ) {
+            throw new IndexOutOfBoundsException("Destination of "+rgba.remaining()+" bytes too small for "+width+"x"+height);
+        }
+        final int blocksX = ( width + 3 ) / 4;
+        final int blocksY = ( height + 3 ) / 4;
+        final byte[] in = new byte[blocksX * fmt.blockSize];
+        final byte[] out = new byte[width * 4];
+        final int[] px = new int[64*blocksX];
+        final ByteBuffer s = src.duplicate();
+        final ByteBuffer d = rgba.duplicate();
+        for(int by=0; by<blocksY; by++) {
+            s.get(in);
+            for(int bx=0; bx<blocksX; bx++) {
+                decodeBlock(fmt, in, bx * fmt.blockSize, px, bx * 64);
+            }
+            final int rows = Math.min(4, height - by*4);
+            for(int y=0; y<rows; y++) {
+                for(int x=0; x<width; x++) {
+                    final int p = ( ( x >> 2 ) * 16 + y * 4 + ( x & 3 ) ) * 4;
+                    out[x*4]   = (byte) px[p];
+                    out[x*4+1] = (byte) px[p+1];
+                    out[x*4+2] = (byte) px[p+2];
+                    out[x*4+3] = (byte) px[p+3];
+                }
+                d.put(out);
+            }
+        }
+    }
+
+    private static void decodeBlock(final Format fmt, final byte[] in, final int off, final int[] px, final int pxOff) {
+        final int[] block = new int[64];
+        switch( fmt ) {
+            case BC1:        S3TCBlockCodec.decodeBC1(in, off, block); break;
+            case BC3:        S3TCBlockCodec.decodeBC3(in, off, block); break;
+            case ETC2_RGB8:  ETC2BlockCodec.decodeRGB8(in, off, block); break;
+            case ETC2_RGBA8: ETC2BlockCodec.decodeRGBA8(in, off, block); break;
+        }
+        System.arraycopy(block, 0, px, pxOff, 64);
+    }
+
+    /**
+     * Converts the given level of the {@link TextureData} to tightly packed RGBA8.
+     * @throws IllegalArgumentException if the pixel format or type is not supported
+     */
+    private static ByteBuffer toRGBA8(final TextureData data, final Buffer buffer, final int width, final int height)
+            throws IllegalArgumentException
+    {
+        if( data.isDataCompressed() ) {
+            throw new IllegalArgumentException("Data is already compressed: "+data);
+        }
+        if( !( buffer instanceof ByteBuffer ) ||
+            ( GL.GL_UNSIGNED_BYTE != data.getPixelType() && GL.GL_BYTE != data.getPixelType() ) ) {
+            throw new IllegalArgumentException("Only byte pixel data is supported: "+data);
+        }
+        final int[] srcComp; // source component index of R, G, B and A, -1 for 255
+        switch( data.getPixelFormat() ) {
+            case GL.GL_RGBA:            srcComp = new int[] { 0, 1, 2, 3 }; break;
+            case GL.GL_BGRA:            srcComp = new int[] { 2, 1, 0, 3 }; break;
+            case GL.GL_RGB:             srcComp = new int[] { 0, 1, 2, -1 }; break;
+            case GL.GL_BGR:             srcComp = new int[] { 2, 1, 0, -1 }; break;
+            case GL.GL_LUMINANCE_ALPHA: srcComp = new int[] { 0, 0, 0, 1 }; break;
+            case GL.GL_LUMINANCE:
+            case GL2ES2.GL_RED:         srcComp = new int[] { 0, 0, 0, -1 }; break;
+            default:
+                throw new IllegalArgumentException("Unsupported pixel format 0x"+Integer.toHexString(data.getPixelFormat())+": "+data);
+        }
+        final int bpp = GL.GL_LUMINANCE_ALPHA == data.getPixelFormat() ? 2 : ( -1 == srcComp[3] ? ( srcComp[1] == srcComp[0] ? 1 : 3 ) : 4 );
+        final int align = Math.max(1, data.getAlignment());
+        final int rowLength = 0 < data.getRowLength() ? data.getRowLength() * bpp : width * bpp;
+        final int stride = ( ( rowLength + align - 1 ) / align ) * align;
+        final ByteBuffer src = (ByteBuffer) buffer;
+        final ByteBuffer rgba = Buffers.newDirectByteBuffer(width * height * 4);
+        final int pos = src.position();
+        for(int y=0; y<height; y++) {
+            for(int x=0; x<width; x++) {
+                final int p = pos + y * stride + x * bpp;
+                for(int c=0; c<4; c++) {
+                    rgba.put( -1 == srcComp[c] ? (byte)0xff : src.get(p + srcComp[c]) );
+                }
+            }
+        }
+        rgba.rewind();
+        return rgba;
+    }
+
+    /**
+     * Compresses the given uncompressed {@link TextureData} including all mipmap levels.
+     * <p>
+     * Supported sources are byte typed {@link GL#GL_RGBA}, {@link GL#GL_BGRA}, {@link GL#GL_RGB}, {@link GL#GL_BGR},
+     * {@link GL#GL_LUMINANCE}, {@link GL#GL_LUMINANCE_ALPHA} and {@link GL2ES2#GL_RED} data.
+     * </p>
+     * <p>
+     * Mipmap levels of the source are compressed as given. Otherwise, if <code>mipmap</code> is requested,
+     * the full mipmap chain is generated by 2x2 box filtering, since compressed textures cannot
+     * have their mipmaps generated by the GL.
+     * </p>
+     * <p>
+     * The {@link TextureData#getMustFlipVertically()} state is preserved, block rows are not flipped.
+     * </p>
+     * @param data the uncompressed source
+     * @param fmt the destination format
+     * @param mipmap whether to generate mipmaps if the source has none
+     * @param executor optional executor compressing bands of block rows concurrently, may be <code>null</code>
+     * @return the compressed {@link TextureData}
+     * @throws IllegalArgumentException if the source is not supported
+     * @throws InterruptedException if interrupted while waiting for the executor tasks
+     */
+    public static TextureData compress(final TextureData data, final Format fmt, final boolean mipmap, final ExecutorService executor)
+            throws IllegalArgumentException, InterruptedException
+    {
+        final Buffer[] srcLevels = data.getMipmapData();
+        final ArrayList<ByteBuffer> levels = new ArrayList<ByteBuffer>();
+        int w = data.getWidth(), h = data.getHeight();
+        if( null != srcLevels ) {
+            for(int i=0; i<srcLevels.length; i++) {
+                levels.add( compressLevel(fmt, toRGBA8(data, srcLevels[i], w, h), w, h, executor) );
+                w = Math.max(1, w / 2);
+                h = Math.max(1, h / 2);
+            }
+        } else {
+            final ByteBuffer rgba = toRGBA8(data, data.getBuffer(), w, h);
+            levels.add( compressLevel(fmt, rgba, w, h, executor) );
+            if( mipmap && ( 1 < w || 1 < h ) ) {
+                final ByteBuffer[] mips = new MipmapBuilder(4, GL.GL_UNSIGNED_BYTE).setExecutor(executor).buildLevels(rgba, w, h, w * 4);
+                for(int i=0; i<mips.length; i++) {
+                    w = Math.max(1, w / 2);
+                    h = Math.max(1, h / 2);
+                    levels.add( compressLevel(fmt, mips[i], w, h, executor) );
+                }
+            }
+        }
+        final TextureData res;
+        if( 1 < levels.size() || null != srcLevels ) {
+            res = new TextureData(data.getGLProfile(), fmt.glInternalFormat, data.getWidth(), data.getHeight(), 0,
+                                  fmt.glFormat, GL.GL_UNSIGNED_BYTE, true /* dataIsCompressed */,
+                                  data.getMustFlipVertically(), levels.toArray(new Buffer[levels.size()]), null);
+        } else {
+            res = new TextureData(data.getGLProfile(), fmt.glInternalFormat, data.getWidth(), data.getHeight(), 0,
+                                  fmt.glFormat, GL.GL_UNSIGNED_BYTE, false /* mipmap */, true /* dataIsCompressed */,
+                                  data.getMustFlipVertically(), levels.get(0), null);
+        }
+        res.setColorSpace(data.getColorSpace());
+        return res;
+    }
+
+    private static ByteBuffer compressLevel(final Format fmt, final ByteBuffer rgba, final int width, final int height,
+                                            final ExecutorService executor) throws InterruptedException {
+        final ByteBuffer dest = Buffers.newDirectByteBuffer(getCompressedSize(fmt, width, height));
+        compress(fmt, rgba, width, height, 0, dest, executor);
+        return dest;
+    }
+}
@@ -56,6 +56,9 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import com.jogamp.nativewindow.util.Dimension;
 import com.jogamp.nativewindow.util.DimensionImmutable;
@@ -76,6 +79,7 @@ import com.jogamp.opengl.util.PNGPixelRect;
 import com.jogamp.opengl.util.GLPixelBuffer.GLPixelAttributes;
 import com.jogamp.opengl.util.texture.ImageType;
 import com.jogamp.opengl.util.texture.spi.DDSImage;
+import com.jogamp.opengl.util.texture.spi.KTXImage;
 import com.jogamp.opengl.util.texture.spi.JPEGImage;
 import com.jogamp.opengl.util.texture.spi.NetPbmTextureWriter;
 import com.jogamp.opengl.util.texture.spi.SGIImage;
@@ -109,7 +113,9 @@ import com.jogamp.opengl.util.texture.spi.TextureWriter;
     images from both files and streams. One handles DirectDraw Surface
     (".dds") images read from files, though can not read these images
     from streams. One handles Targa (".tga") images read from both
-    files and streams. These providers are executed in an arbitrary
+    files and streams. One handles Khronos texture (".ktx", ".ktx2")
+    files and streams, including block compressed data and mipmaps.
+    These providers are executed in an arbitrary
     order. Some of these providers require the file's suffix to either
     be specified via the newTextureData methods or for the file to be
     named with the appropriate suffix. In general a file suffix should
@@ -122,6 +128,10 @@ import com.jogamp.opengl.util.texture.spi.TextureWriter;
     make sure not to disturb the state of the InputStream for
     downstream TextureProviders. </P>
 
+    <P> For loading many textures in the background, see {@link
+    TextureStreamer}, which decodes via the TextureProviders on worker
+    threads and uploads the results on the GL thread. </P>
+
     <P> There are analogous TextureWriters provided for writing
     textures back to disk if desired. As of this writing, there are
     four TextureWriters registered by default: one for Targa files,
@@ -133,6 +143,8 @@ import com.jogamp.opengl.util.texture.spi.TextureWriter;
     DXTn compressed format. Whether this will occur is dependent on
     whether the texture's internal format is one of the DXTn
     compressed formats and whether the target file is .dds format.
+    The KTX writer supports the BC1-3 and ETC2 compressed formats, see
+    {@link TextureCompressor} to create them from uncompressed data. </P>
 */
 
 public class TextureIO {
@@ -142,6 +154,18 @@ public class TextureIO {
      */
     public static final String DDS     = ImageType.T_DDS;
 
+    /** Constant which can be used as a file suffix to indicate a
+        Khronos texture file, value {@value}.
+        <p>Alias for {@link ImageType#T_KTX}.</p>
+     */
+    public static final String KTX     = ImageType.T_KTX;
+
+    /** Constant which can be used as a file suffix to indicate a
+        Khronos texture 2.0 file, value {@value}.
+        <p>Alias for {@link ImageType#T_KTX2}.</p>
+     */
+    public static final String KTX2    = ImageType.T_KTX2;
+
     /**
      * Constant which can be used as a file suffix to indicate an SGI RGB file, value {@value}.
      * <p>
@@ -443,6 +467,39 @@ public class TextureIO {
         return newTextureDataImpl(glp, url, internalFormat, pixelFormat, mipmap, fileSuffix);
     }
 
+    /**
+     * Creates a TextureData from each of the given URLs concurrently,
+     * each read by a task of the given executor. Does no OpenGL work.
+     * <p>
+     * Equivalent to calling {@link #newTextureData(GLProfile, URL, boolean, String)}
+     * for each URL w/ <code>null</code> fileSuffix, i.e. auto-detecting the file format.
+     * The registered texture providers shall not be modified until all tasks are completed.
+     * </p>
+     *
+     * @param executor the executor running the tasks, e.g. a fixed thread pool sized to the number of cores
+     * @param glp the OpenGL Profile the texture data should be
+     *                  created for.
+     * @param urls the URLs from which to read the texture data
+     * @param mipmap     whether mipmaps should be produced for the
+     *                   textures either by autogenerating them or
+     *                   reading them from the file.
+     * @return one future per URL in the given order, yielding the texture data
+     *         or throwing the {@link IOException} wrapped in an {@link java.util.concurrent.ExecutionException}
+     */
+    public static List<Future<TextureData>> newTextureData(final ExecutorService executor, final GLProfile glp,
+                                                           final List<URL> urls, final boolean mipmap) {
+        final List<Future<TextureData>> res = new ArrayList<Future<TextureData>>(urls.size());
+        for(int i=0; i<urls.size(); i++) {
+            final URL url = urls.get(i);
+            res.add( executor.submit( new Callable<TextureData>() {
+                @Override
+                public TextureData call() throws IOException {
+                    return newTextureData(glp, url, mipmap, null);
+                } } ) );
+        }
+        return res;
+    }
+
     //----------------------------------------------------------------------
     // methods that *do* require a current context
     //
@@ -625,7 +682,9 @@ public class TextureIO {
         if (internalFormat == GL.GL_COMPRESSED_RGB_S3TC_DXT1_EXT ||
             internalFormat == GL.GL_COMPRESSED_RGBA_S3TC_DXT1_EXT ||
             internalFormat == GL.GL_COMPRESSED_RGBA_S3TC_DXT3_EXT ||
-            internalFormat == GL.GL_COMPRESSED_RGBA_S3TC_DXT5_EXT) {
+            internalFormat == GL.GL_COMPRESSED_RGBA_S3TC_DXT5_EXT ||
+            internalFormat == GL2ES3.GL_COMPRESSED_RGB8_ETC2 ||
+            internalFormat == GL2ES3.GL_COMPRESSED_RGBA8_ETC2_EAC) {
             // Fetch using glGetCompressedTexImage
             final int size   = glGetTexLevelParameteri(gl, GL.GL_TEXTURE_2D, 0, GL2GL3.GL_TEXTURE_COMPRESSED_IMAGE_SIZE);
             final ByteBuffer res = ByteBuffer.allocate(size);
@@ -786,6 +845,7 @@ public class TextureIO {
 
         // Other special-case providers
         addTextureProvider(new DDSTextureProvider());
+        addTextureProvider(new KTXTextureProvider());
         addTextureProvider(new SGITextureProvider());
         addTextureProvider(new TGATextureProvider());
         addTextureProvider(new JPGTextureProvider());
@@ -811,6 +871,7 @@ public class TextureIO {
 
         // Other special-case writers
         addTextureWriter(new DDSTextureWriter());
+        addTextureWriter(new KTXTextureWriter());
         addTextureWriter(new SGITextureWriter());
         addTextureWriter(new TGATextureWriter());
         addTextureWriter(new NetPbmTextureWriter());
@@ -1020,6 +1081,70 @@ public class TextureIO {
         }
     }
 
+    //----------------------------------------------------------------------
+    // KTX and KTX2 image provider
+    static class KTXTextureProvider implements TextureProvider {
+        private static final ImageType[] imageTypes = new ImageType[] { new ImageType(ImageType.T_KTX), new ImageType(ImageType.T_KTX2) };
+        @Override
+        public final ImageType[] getImageTypes() {
+            return imageTypes;
+        }
+
+        @Override
+        public TextureData newTextureData(final GLProfile glp, final InputStream stream,
+                                          int internalFormat,
+                                          int pixelFormat,
+                                          boolean mipmap,
+                                          final String fileSuffix) throws IOException {
+            final String suffix = ImageType.T_KTX.equals(fileSuffix) || ImageType.T_KTX2.equals(fileSuffix) ?
+                                  fileSuffix : ImageType.Util.getFileSuffix(stream);
+            if (ImageType.T_KTX.equals(suffix) || ImageType.T_KTX2.equals(suffix)) {
+                final KTXImage image = KTXImage.read(stream);
+                if (internalFormat == 0) {
+                    internalFormat = image.getGLInternalFormat();
+                }
+                if (pixelFormat == 0) {
+                    pixelFormat = image.getGLFormat();
+                }
+                final TextureData data;
+                if (mipmap && image.getNumMipMaps() > 1) {
+                    final Buffer[] mipmapData = new Buffer[image.getNumMipMaps()];
+                    for (int i = 0; i < mipmapData.length; i++) {
+                        mipmapData[i] = image.getMipMap(i);
+                    }
+                    data = new TextureData(glp, internalFormat,
+                                           image.getWidth(),
+                                           image.getHeight(),
+                                           0,
+                                           pixelFormat,
+                                           image.getGLType(),
+                                           image.isCompressed(),
+                                           image.isTopDown(),
+                                           mipmapData,
+                                           null);
+                } else {
+                    // Can't generate mipmaps for compressed textures
+                    mipmap = mipmap && !image.isCompressed();
+                    data = new TextureData(glp, internalFormat,
+                                           image.getWidth(),
+                                           image.getHeight(),
+                                           0,
+                                           pixelFormat,
+                                           image.getGLType(),
+                                           mipmap,
+                                           image.isCompressed(),
+                                           image.isTopDown(),
+                                           image.getMipMap(0),
+                                           null);
+                }
+                data.setAlignment(image.getRowAlignment());
+                return data;
+            }
+
+            return null;
+        }
+    }
+
     //----------------------------------------------------------------------
     // SGI RGB image provider
     static class SGITextureProvider implements TextureProvider {
@@ -1250,6 +1375,54 @@ public class TextureIO {
         }
     }
 
+    //----------------------------------------------------------------------
+    // KTX and KTX2 texture writer
+    //
+    static class KTXTextureWriter implements TextureWriter {
+        @Override
+        public boolean write(final File file,
+                             final TextureData data) throws IOException {
+            final String fileSuffix = IOUtil.getFileSuffix(file);
+            final int version;
+            if (ImageType.T_KTX.equals(fileSuffix)) {
+                version = KTXImage.VERSION_1;
+            } else if (ImageType.T_KTX2.equals(fileSuffix)) {
+                version = KTXImage.VERSION_2;
+            } else {
+                return false;
+            }
+            final int pixelType = data.getPixelType();
+            if (!data.isDataCompressed() &&
+                pixelType != GL.GL_BYTE &&
+                pixelType != GL.GL_UNSIGNED_BYTE) {
+                throw new IOException("KTX writer only supports byte / unsigned byte textures");
+            }
+            if (data.getRowLength() > 0) {
+                throw new IOException("KTX writer doesn't support a row length");
+            }
+            ByteBuffer[] mipmaps = null;
+            if (data.getMipmapData() != null) {
+                mipmaps = new ByteBuffer[data.getMipmapData().length];
+                for (int i = 0; i < mipmaps.length; i++) {
+                    mipmaps[i] = (ByteBuffer) data.getMipmapData()[i];
+                }
+            } else {
+                mipmaps = new ByteBuffer[] { (ByteBuffer) data.getBuffer() };
+            }
+            final KTXImage image = KTXImage.createFromData(version,
+                                                           data.getInternalFormat(),
+                                                           data.getPixelFormat(),
+                                                           data.isDataCompressed(),
+                                                           data.getWidth(),
+                                                           data.getHeight(),
+                                                           data.getMustFlipVertically(),
+                                                           data.getAlignment(),
+                                                           mipmaps);
+            image.write(file);
+            return true;
+        }
+    }
+
     //----------------------------------------------------------------------
     // SGI (rgb) texture writer
     //
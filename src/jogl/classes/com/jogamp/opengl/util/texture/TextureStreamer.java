@@ -0,0 +1,568 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.util.texture;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.jogamp.opengl.GL;
+import com.jogamp.opengl.GL2ES2;
+import com.jogamp.opengl.GL2ES3;
+import com.jogamp.opengl.GLException;
+import com.jogamp.opengl.GLProfile;
+
+import jogamp.opengl.Debug;
+
+/**
+ * Asynchronous texture loader, decoding images on a bounded pool of worker threads
+ * via the {@link TextureIO} {@link com.jogamp.opengl.util.texture.spi.TextureProvider TextureProvider}s
+ * and uploading them on the GL thread.
+ * <p>
+ * Pipeline:
+ * <ol>
+ *   <li>{@link #load(URL, String, boolean, int, Listener) load(..)} queues a {@link Request}, may be called from any thread.</li>
+ *   <li>A worker takes the pending request with the highest {@link Request#getPriority() priority}, FIFO for equal priorities,
+ *       and {@link #decode(Request) decodes} it to {@link TextureData},
+ *       optionally {@link #setCompressionFormat(TextureCompressor.Format) block compressed}.
+ *       Decoded data waiting for upload is accounted against the memory budget,
+ *       workers don't start new decodes while the budget is exhausted.
+ *       Since the size is only known after decoding, the budget may be exceeded by the requests being decoded concurrently.</li>
+ *   <li>{@link #upload(GL, int, long) upload(..)}, called by the GL thread e.g. once per frame,
+ *       uploads decoded requests in priority order up to the given per call limits.
+ *       Plain 2D images are streamed through a ring of pixel unpack buffers (PBO) if available,
+ *       all other data is handled by {@link Texture#Texture(GL, TextureData)}.
+ *       {@link Listener}s are notified within this call, i.e. on the GL thread.</li>
+ * </ol>
+ * </p>
+ * <p>
+ * The CPU stage does not require a GL context, custom upload stages or tests
+ * may fetch decoded requests via {@link #pollDecoded()} instead of calling {@link #upload(GL, int, long)}.
+ * </p>
+ */
+public class TextureStreamer {
+    private static final boolean DEBUG = Debug.debug("Texture");
+
+    /** Receives the outcome of a {@link Request}, always called on the thread invoking {@link TextureStreamer#upload(GL, int, long)}. */
+    public static interface Listener {
+        /** The request has been uploaded to the given texture. */
+        void textureLoaded(Request request, Texture texture);
+        /** The request failed, either decoding or uploading. Cancelled requests are not reported. */
+        void textureFailed(Request request, Throwable cause);
+    }
+
+    /** State of a {@link Request} */
+    public static enum State { QUEUED, DECODING, DECODED, UPLOADED, FAILED, CANCELLED };
+
+    /** A queued texture load, see {@link TextureStreamer#load(URL, String, boolean, int, Listener)}. */
+    public final class Request {
+        private final URL url;
+        private final String fileSuffix;
+        private final boolean mipmap;
+        private final Listener listener;
+        private final DecodeTask task;
+        private int priority;
+        private long seq;
+        private State state = State.QUEUED;
+        private TextureData data = null;
+        private int dataSize = 0;
+        private Texture texture = null;
+        private Throwable error = null;
+
+        private Request(final URL url, final String fileSuffix, final boolean mipmap, final int priority, final Listener listener) {
+            this.url = url;
+            this.fileSuffix = fileSuffix;
+            this.mipmap = mipmap;
+            this.priority = priority;
+            this.listener = listener;
+            this.task = new DecodeTask(this);
+        }
+
+        public final URL getURL() { return url; }
+        /** Returns the file suffix passed to the {@link TextureIO} providers, may be <code>null</code>. */
+        public final String getFileSuffix() { return fileSuffix; }
+        public final boolean getMipmap() { return mipmap; }
+        public final Listener getListener() { return listener; }
+        public final int getPriority() { synchronized(lock) { return priority; } }
+        public final State getState() { synchronized(lock) { return state; } }
+        /** Returns the uploaded texture, or <code>null</code> if not {@link State#UPLOADED}. */
+        public final Texture getTexture() { synchronized(lock) { return texture; } }
+        /** Returns the failure cause, or <code>null</code> if not {@link State#FAILED}. */
+        public final Throwable getError() { synchronized(lock) { return error; } }
+
+        /**
+         * Changes the priority of this request, if not yet uploaded.
+         * Higher values are decoded and uploaded first.
+         */
+        public final void setPriority(final int priority) {
+            synchronized(lock) {
+                if( State.QUEUED == state && workers.remove(task) ) {
+                    this.priority = priority;
+                    this.seq = seqCounter.getAndIncrement();
+                    workers.execute(task);
+                } else if( State.DECODED == state && decoded.remove(this) ) {
+                    // re-insert, the PriorityQueue does not re-sort on changed priorities
+                    this.priority = priority;
+                    decoded.add(this);
+                } else {
+                    // not contained in any queue
+                    this.priority = priority;
+                }
+            }
+        }
+
+        /**
+         * Cancels this request, if not yet uploaded or failed.
+         * <p>
+         * A request being decoded completes decoding, its result is dropped.
+         * Decoded data is released from the memory budget.
+         * </p>
+         * @return true if cancelled, otherwise false
+         */
+        public final boolean cancel() {
+            synchronized(lock) {
+                switch( state ) {
+                    case QUEUED:
+                        workers.remove(task);
+                        break;
+                    case DECODING:
+                        break;
+                    case DECODED:
+                        decoded.remove(this);
+                        releaseData(this);
+                        break;
+                    default:
+                        return false;
+                }
+                state = State.CANCELLED;
+                lock.notifyAll();
+                return true;
+            }
+        }
+
+        /** Returns the decoded data, only valid for requests fetched via {@link TextureStreamer#pollDecoded()}. */
+        public final TextureData getTextureData() { synchronized(lock) { return data; } }
+
+        @Override
+        public final String toString() {
+            synchronized(lock) {
+                return "Request["+url+", prio "+priority+", "+state+", "+dataSize+" bytes]";
+            }
+        }
+    }
+
+    /** Comparable, since queued in the workers' {@link PriorityBlockingQueue}. */
+    private class DecodeTask implements Runnable, Comparable<DecodeTask> {
+        final Request request;
+
+        DecodeTask(final Request request) {
+            this.request = request;
+        }
+
+        @Override
+        public int compareTo(final DecodeTask o) {
+            return compareRequests(request, o.request);
+        }
+
+        @Override
+        public void run() {
+            decodeImpl(request);
+        }
+    }
+
+    private static int compareRequests(final Request a, final Request b) {
+        if( a.priority != b.priority ) {
+            return a.priority > b.priority ? -1 : 1;
+        }
+        return a.seq < b.seq ? -1 : ( a.seq > b.seq ? 1 : 0 );
+    }
+
+    private final Object lock = new Object();
+    private final GLProfile glp;
+    private final long memoryBudget;
+    private final ThreadPoolExecutor workers;
+    private final AtomicLong seqCounter = new AtomicLong(0);
+    private final PriorityQueue<Request> decoded;
+    private final ArrayList<Request> decoding = new ArrayList<Request>();
+    private final ArrayList<Request> failed = new ArrayList<Request>();
+    private final int[] pbos;
+    private int pboIdx = 0;
+    private long decodedBytes = 0;
+    private boolean shutdown = false;
+    private volatile TextureCompressor.Format compressionFormat = null;
+
+    /**
+     * @param glp the {@link GLProfile} the texture data is decoded for, passed to the {@link TextureIO} providers
+     * @param workerCount number of decoding threads, e.g. {@link Runtime#availableProcessors()}
+     * @param memoryBudget maximum bytes of decoded data waiting for upload. At least one decoded request is always allowed.
+     * @param pboCount number of pixel unpack buffers used round robin for uploads, 0 to disable
+     */
+    public TextureStreamer(final GLProfile glp, final int workerCount, final long memoryBudget, final int pboCount) {
+        if( 0 >= workerCount ) {
+            throw new IllegalArgumentException("Invalid workerCount "+workerCount);
+        }
+        this.glp = glp;
+        this.memoryBudget = memoryBudget;
+        this.pbos = new int[Math.max(0, pboCount)];
+        this.decoded = new PriorityQueue<Request>(64, new java.util.Comparator<Request>() {
+            @Override
+            public int compare(final Request a, final Request b) {
+                return compareRequests(a, b);
+            } } );
+        final AtomicInteger threadNum = new AtomicInteger(0);
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                                              new PriorityBlockingQueue<Runnable>(),
+                                              new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread t = new Thread(r, "TextureStreamer-Worker-"+threadNum.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            } } );
+        // idle core threads take all tasks from the priority queue,
+        // otherwise the first workerCount tasks would be run directly bypassing the priority order
+        this.workers.prestartAllCoreThreads();
+    }
+
+    public final GLProfile getGLProfile() { return glp; }
+    public final long getMemoryBudget() { return memoryBudget; }
+
+    /**
+     * Sets the block compressed format decoded images are transcoded to on the worker threads,
+     * or <code>null</code> to keep them as decoded, the default.
+     * <p>
+     * Compressed and unsupported images are kept as decoded.
+     * The GL must support the given format, see {@link TextureCompressor}.
+     * </p>
+     */
+    public final void setCompressionFormat(final TextureCompressor.Format fmt) { compressionFormat = fmt; }
+
+    /** Returns the block compressed format decoded images are transcoded to, or <code>null</code> */
+    public final TextureCompressor.Format getCompressionFormat() { return compressionFormat; }
+
+    /** Returns the number of bytes of decoded data waiting for upload. */
+    public final long getDecodedBytes() { synchronized(lock) { return decodedBytes; } }
+
+    /** Returns the number of decoded requests waiting for upload. */
+    public final int getDecodedCount() { synchronized(lock) { return decoded.size(); } }
+
+    /** Returns the number of requests waiting to be decoded. */
+    public final int getQueuedCount() { return workers.getQueue().size(); }
+
+    /**
+     * Queues loading the texture at <code>url</code>, returns immediately.
+     * @param url the image location
+     * @param fileSuffix the image type suffix passed to the {@link TextureIO} providers, may be <code>null</code>
+     * @param mipmap whether mipmaps shall be created, see {@link TextureIO#newTextureData(GLProfile, URL, boolean, String)}
+     * @param priority higher values are decoded and uploaded first, FIFO for equal priorities
+     * @param listener optional {@link Listener}, may be <code>null</code>
+     * @return the queued {@link Request}
+     * @throws IllegalStateException if already {@link #dispose(GL) disposed}
+     */
+    public final Request load(final URL url, final String fileSuffix, final boolean mipmap, final int priority, final Listener listener)
+            throws IllegalStateException
+    {
+        final Request request = new Request(url, fileSuffix, mipmap, priority, listener);
+        synchronized(lock) {
+            if( shutdown ) {
+                throw new IllegalStateException("disposed");
+            }
+            request.seq = seqCounter.getAndIncrement();
+            workers.execute(request.task);
+        }
+        return request;
+    }
+
+    /**
+     * Decodes the given request, called on a worker thread.
+     * <p>
+     * Default implementation uses {@link TextureIO#newTextureData(GLProfile, URL, boolean, String)}.
+     * </p>
+     * @throws IOException
+     */
+    protected TextureData decode(final Request request) throws IOException {
+        final TextureData data = TextureIO.newTextureData(glp, request.getURL(), request.getMipmap(), request.getFileSuffix());
+        if( null == data ) {
+            throw new IOException("No TextureProvider could decode "+request.getURL());
+        }
+        return data;
+    }
+
+    private void decodeImpl(final Request request) {
+        synchronized(lock) {
+            // stay within memory budget, but always allow one
+            while( !shutdown && State.QUEUED == request.state && 0 < decodedBytes && decodedBytes >= memoryBudget ) {
+                try {
+                    lock.wait();
+                } catch (final InterruptedException ie) {
+                    break; // shutdown
+                }
+            }
+            if( shutdown && State.QUEUED == request.state ) {
+                request.state = State.CANCELLED;
+            }
+            if( State.QUEUED != request.state ) {
+                return;
+            }
+            request.state = State.DECODING;
+            decoding.add(request);
+        }
+        TextureData data = null;
+        Throwable error = null;
+        try {
+            data = decode(request);
+            final TextureCompressor.Format fmt = compressionFormat;
+            if( null != fmt && !data.isDataCompressed() ) {
+                try {
+                    final TextureData cdata = TextureCompressor.compress(data, fmt, request.getMipmap(), null);
+                    data.destroy();
+                    data = cdata;
+                } catch (final IllegalArgumentException iae) {
+                    // unsupported pixel format, keep as decoded
+                }
+            }
+        } catch (final Throwable t) {
+            error = t;
+        }
+        synchronized(lock) {
+            decoding.remove(request);
+            if( State.DECODING != request.state || shutdown ) {
+                if( null != data ) {
+                    data.destroy();
+                }
+                return;
+            }
+            if( null != error ) {
+                request.state = State.FAILED;
+                request.error = error;
+                failed.add(request);
+                if(DEBUG) {
+                    System.err.println("TextureStreamer: failed "+request+": "+error);
+                }
+            } else {
+                request.state = State.DECODED;
+                request.data = data;
+                request.dataSize = data.getEstimatedMemorySize();
+                decodedBytes += request.dataSize;
+                decoded.add(request);
+            }
+        }
+    }
+
+    private void releaseData(final Request request) {
+        decodedBytes -= request.dataSize;
+        request.dataSize = 0;
+        if( null != request.data ) {
+            request.data.destroy();
+            request.data = null;
+        }
+        lock.notifyAll();
+    }
+
+    /**
+     * Removes and returns the decoded request with the highest priority, or <code>null</code> if none is available.
+     * <p>
+     * Its {@link Request#getTextureData() data} is released from the memory budget
+     * and the request is left {@link State#DECODED}, i.e. the caller takes over the upload.
+     * </p>
+     */
+    public final Request pollDecoded() {
+        synchronized(lock) {
+            final Request request = decoded.poll();
+            if( null != request ) {
+                decodedBytes -= request.dataSize;
+                request.dataSize = 0;
+                lock.notifyAll();
+            }
+            return request;
+        }
+    }
+
+    /**
+     * Uploads decoded requests in priority order and notifies their {@link Listener}s, as well as those of failed requests.
+     * <p>
+     * Must be called on the GL thread, e.g. once per frame. Stops after <code>maxTextures</code> uploads or
+     * once <code>maxBytes</code> would be exceeded, while at least one request is uploaded per call.
+     * Hence the per frame upload cost stays bounded.
+     * </p>
+     * @param gl the current GL
+     * @param maxTextures maximum number of textures to upload
+     * @param maxBytes maximum number of bytes to upload
+     * @return number of uploaded textures
+     */
+    public final int upload(final GL gl, final int maxTextures, final long maxBytes) {
+        final ArrayList<Request> failedNow;
+        synchronized(lock) {
+            if( failed.isEmpty() ) {
+                failedNow = null;
+            } else {
+                failedNow = new ArrayList<Request>(failed);
+                failed.clear();
+            }
+        }
+        if( null != failedNow ) {
+            for(int i=0; i<failedNow.size(); i++) {
+                final Request r = failedNow.get(i);
+                if( null != r.listener ) {
+                    r.listener.textureFailed(r, r.error);
+                }
+            }
+        }
+        int count = 0;
+        long bytes = 0;
+        while( count < maxTextures ) {
+            final Request request;
+            synchronized(lock) {
+                final Request next = decoded.peek();
+                if( null == next || ( 0 < count && bytes + next.dataSize > maxBytes ) ) {
+                    break;
+                }
+                request = decoded.poll();
+                bytes += request.dataSize;
+            }
+            Texture texture = null;
+            Throwable error = null;
+            try {
+                texture = newTexture(gl, request.data);
+            } catch (final Throwable t) {
+                error = t;
+            }
+            synchronized(lock) {
+                releaseData(request);
+                if( null != error ) {
+                    request.state = State.FAILED;
+                    request.error = error;
+                } else {
+                    request.state = State.UPLOADED;
+                    request.texture = texture;
+                }
+            }
+            if( null != request.listener ) {
+                if( null != error ) {
+                    request.listener.textureFailed(request, error);
+                } else {
+                    request.listener.textureLoaded(request, texture);
+                }
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Creates the texture, via a pixel unpack buffer of the ring if suitable.
+     */
+    private Texture newTexture(final GL gl, final TextureData data) throws GLException {
+        final Buffer buffer = data.getBuffer();
+        if( 0 == pbos.length || !gl.isGL2ES3() || data.isDataCompressed() || data.getMipmap() ||
+            null != data.getMipmapData() || !( buffer instanceof ByteBuffer ) || 0 != data.getRowLength() ) {
+            return new Texture(gl, data);
+        }
+        final ByteBuffer pixels = ((ByteBuffer) buffer).duplicate();
+        pixels.rewind();
+        final int size = pixels.remaining();
+        if( 0 == pbos[0] ) {
+            gl.glGenBuffers(pbos.length, pbos, 0);
+        }
+        final int pbo = pbos[pboIdx];
+        pboIdx = ( pboIdx + 1 ) % pbos.length;
+
+        gl.glBindBuffer(GL2ES3.GL_PIXEL_UNPACK_BUFFER, pbo);
+        try {
+            // orphan the previous storage, the driver may still read it
+            gl.glBufferData(GL2ES3.GL_PIXEL_UNPACK_BUFFER, size, null, GL2ES2.GL_STREAM_DRAW);
+            final ByteBuffer mapped = gl.glMapBufferRange(GL2ES3.GL_PIXEL_UNPACK_BUFFER, 0, size,
+                                                          GL.GL_MAP_WRITE_BIT | GL.GL_MAP_INVALIDATE_BUFFER_BIT);
+            if( null == mapped ) {
+                throw new GLException("Could not map pixel unpack buffer of "+size+" bytes");
+            }
+            mapped.put(pixels);
+            gl.glUnmapBuffer(GL2ES3.GL_PIXEL_UNPACK_BUFFER);
+
+            final int[] tmp = new int[1];
+            gl.glGenTextures(1, tmp, 0);
+            final int texID = tmp[0];
+            gl.glBindTexture(GL.GL_TEXTURE_2D, texID);
+            gl.glGetIntegerv(GL.GL_UNPACK_ALIGNMENT, tmp, 0); // save alignment
+            gl.glPixelStorei(GL.GL_UNPACK_ALIGNMENT, data.getAlignment());
+            gl.glTexImage2D(GL.GL_TEXTURE_2D, 0, data.getInternalFormat(),
+                            data.getWidth(), data.getHeight(), data.getBorder(),
+                            data.getPixelFormat(), data.getPixelType(), 0L);
+            gl.glPixelStorei(GL.GL_UNPACK_ALIGNMENT, tmp[0]); // restore alignment
+            gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_MIN_FILTER, GL.GL_LINEAR);
+            gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_MAG_FILTER, GL.GL_LINEAR);
+            gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_WRAP_S, GL.GL_CLAMP_TO_EDGE);
+            gl.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_WRAP_T, GL.GL_CLAMP_TO_EDGE);
+            return new Texture(texID, GL.GL_TEXTURE_2D, data.getWidth(), data.getHeight(),
+                               data.getWidth(), data.getHeight(), data.getMustFlipVertically());
+        } finally {
+            gl.glBindBuffer(GL2ES3.GL_PIXEL_UNPACK_BUFFER, 0);
+        }
+    }
+
+    /**
+     * Cancels all pending requests, i.e. queued, decoding and decoded ones,
+     * stops the workers and releases the pixel unpack buffers.
+     * @param gl the current GL if the pixel unpack buffers have been used by {@link #upload(GL, int, long)}, otherwise may be <code>null</code>
+     */
+    public final void dispose(final GL gl) {
+        synchronized(lock) {
+            shutdown = true;
+            for(final Request r : decoded) {
+                releaseData(r);
+                r.state = State.CANCELLED;
+            }
+            decoded.clear();
+            for(int i=0; i<decoding.size(); i++) {
+                decoding.get(i).state = State.CANCELLED; // result dropped by the worker
+            }
+            failed.clear();
+            final List<Runnable> queued = workers.shutdownNow();
+            for(int i=0; i<queued.size(); i++) {
+                ((DecodeTask)queued.get(i)).request.state = State.CANCELLED;
+            }
+            lock.notifyAll();
+        }
+        if( null != gl && 0 < pbos.length && 0 != pbos[0] ) {
+            gl.glDeleteBuffers(pbos.length, pbos, 0);
+            for(int i=0; i<pbos.length; i++) {
+                pbos[i] = 0;
+            }
+        }
+    }
+}
@@ -29,8 +29,11 @@ package com.jogamp.opengl.util.texture.spi;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
 
+import com.jogamp.nativewindow.util.PixelFormat;
 import com.jogamp.opengl.GL;
 
 import jogamp.opengl.Debug;
@@ -52,12 +55,36 @@ public class JPEGImage {
      * @throws IOException
      */
     public static JPEGImage read(final InputStream in, final ColorSpace cs) throws IOException {
-        return new JPEGImage(in, cs);
+        return new JPEGImage(in, cs, PixelFormat.RGB888, null, null);
     }
 
     /** Reads a JPEG image from the specified InputStream, using the {@link ColorSpace#RGB}. */
     public static JPEGImage read(final InputStream in) throws IOException {
-        return new JPEGImage(in, ColorSpace.RGB);
+        return new JPEGImage(in, ColorSpace.RGB, PixelFormat.RGB888, null, null);
+    }
+
+    /**
+     * Reads a JPEG image from the specified InputStream, storing the pixels
+     * in the desired {@link PixelFormat} within the given buffer, if suitable.
+     * <p>
+     * Decoded blocks are color converted straight into the destination buffer, bottom-to-top,
+     * without intermediate component lines, see {@link JPEGDecoder#getPixel(ByteBuffer, PixelFormat, int, boolean, ExecutorService)}.
+     * Reusing <code>dest</code> for multiple images hence avoids most allocations per image.
+     * </p>
+     *
+     * @param in input stream
+     * @param destFmt one of {@link PixelFormat#LUMINANCE}, {@link PixelFormat#RGB888}, {@link PixelFormat#BGR888},
+     *                {@link PixelFormat#RGBA8888} or {@link PixelFormat#BGRA8888}
+     * @param dest optional destination buffer, used if its capacity suffices, otherwise a new direct buffer is allocated.
+     *             The pixels are stored starting at index zero, see {@link #getData()}.
+     * @param executor optional executor converting bands of MCU rows concurrently, may be <code>null</code>
+     * @return the newly created JPEGImage instance
+     * @throws IOException
+     * @throws IllegalArgumentException if <code>destFmt</code> is not supported
+     */
+    public static JPEGImage read(final InputStream in, final PixelFormat destFmt, final ByteBuffer dest, final ExecutorService executor)
+            throws IOException, IllegalArgumentException {
+        return new JPEGImage(in, ColorSpace.RGB, destFmt, dest, executor);
     }
 
     private static class JPEGColorSink implements JPEGDecoder.ColorSink  {
@@ -118,19 +145,64 @@ public class JPEGImage {
         }
     };
 
-    private JPEGImage(final InputStream in, final ColorSpace cs) throws IOException {
+    private JPEGImage(final InputStream in, final ColorSpace cs, final PixelFormat destFmt, final ByteBuffer dest, final ExecutorService executor) throws IOException {
         pixelStorage = new JPEGColorSink(cs);
         final JPEGDecoder decoder = new JPEGDecoder();
         decoder.parse(in);
         pixelWidth = decoder.getWidth();
         pixelHeight = decoder.getHeight();
-        decoder.getPixel(pixelStorage, pixelWidth, pixelHeight);
-        data = pixelStorage.data;
         final boolean hasAlpha = false;
 
-        bytesPerPixel = 3;
-        glFormat = GL.GL_RGB;
-        reversedChannels = false; // RGB[A]
+        if( ColorSpace.RGB == cs ) {
+            switch( destFmt ) {
+                case LUMINANCE:
+                    glFormat = GL.GL_LUMINANCE;
+                    reversedChannels = false;
+                    break;
+                case RGB888:
+                    glFormat = GL.GL_RGB;
+                    reversedChannels = false;
+                    break;
+                case BGR888:
+                    glFormat = GL.GL_BGR;
+                    reversedChannels = true;
+                    break;
+                case RGBA8888:
+                    glFormat = GL.GL_RGBA;
+                    reversedChannels = false;
+                    break;
+                case BGRA8888:
+                    glFormat = GL.GL_BGRA;
+                    reversedChannels = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported destination format "+destFmt);
+            }
+            bytesPerPixel = destFmt.comp.bytesPerPixel();
+            pixelStorage.storageComponents = bytesPerPixel;
+            pixelStorage.width = pixelWidth;
+            pixelStorage.height = pixelHeight;
+            pixelStorage.sourceCS = decoder.getSourceColorSpace();
+            pixelStorage.sourceComponents = decoder.getComponentCount();
+            final int size = pixelWidth * pixelHeight * bytesPerPixel;
+            if( null != dest && dest.capacity() >= size ) {
+                pixelStorage.data = dest;
+            } else {
+                pixelStorage.data = Buffers.newDirectByteBuffer(size);
+            }
+            try {
+                decoder.getPixel(pixelStorage.data, destFmt, 0, true /* bottom-to-top */, executor);
+            } catch (final InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while decoding: "+ie.getMessage());
+            }
+        } else {
+            decoder.getPixel(pixelStorage, pixelWidth, pixelHeight);
+            bytesPerPixel = 3;
+            glFormat = GL.GL_RGB;
+            reversedChannels = false; // RGB[A]
+        }
+        data = pixelStorage.data;
         if(DEBUG) {
             System.err.println("JPEGImage: alpha "+hasAlpha+", bytesPerPixel "+bytesPerPixel+
                                ", pixels "+pixelWidth+"x"+pixelHeight+", glFormat 0x"+Integer.toHexString(glFormat));
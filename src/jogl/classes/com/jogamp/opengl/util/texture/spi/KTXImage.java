@@ -0,0 +1,629 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.util.texture.spi;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import com.jogamp.common.util.IOUtil;
+import com.jogamp.opengl.GL;
+import com.jogamp.opengl.GL2ES2;
+import com.jogamp.opengl.GL2ES3;
+
+/**
+ * A reader and writer for Khronos KTX (.ktx) and KTX2 (.ktx2) texture container files.
+ * <p>
+ * Supported are 2D textures with mipmaps in the uncompressed byte formats and the BC1, BC2, BC3
+ * and ETC2 block compressed formats. KTX files of other formats are read as well,
+ * as long as they are 2D, passing their GL format triple through.
+ * Cube maps, arrays, 3D textures and KTX2 supercompression are not supported.
+ * </p>
+ * <ul>
+ *   <li>{@code https://registry.khronos.org/KTX/specs/1.0/ktxspec.v1.html}</li>
+ *   <li>{@code https://registry.khronos.org/KTX/specs/2.0/ktxspec.v2.html}</li>
+ * </ul>
+ */
+public class KTXImage {
+    /** KTX file format version 1 */
+    public static final int VERSION_1 = 1;
+    /** KTX file format version 2 */
+    public static final int VERSION_2 = 2;
+
+    private static final byte[] ID_KTX1 = { (byte)0xAB, 'K', 'T', 'X', ' ', '1', '1', (byte)0xBB, '\r', '\n', 0x1A, '\n' };
+    private static final byte[] ID_KTX2 = { (byte)0xAB, 'K', 'T', 'X', ' ', '2', '0', (byte)0xBB, '\r', '\n', 0x1A, '\n' };
+    private static final int ENDIANNESS = 0x04030201;
+    private static final String KEY_ORIENTATION = "KTXorientation";
+    private static final String KEY_WRITER = "KTXwriter";
+    private static final String WRITER = "JogAmp JOGL";
+
+    /** Data format descriptor color models */
+    private static final int DF_MODEL_RGBSDA = 1;
+    private static final int DF_MODEL_BC1A = 128;
+    private static final int DF_MODEL_BC2 = 129;
+    private static final int DF_MODEL_BC3 = 130;
+    private static final int DF_MODEL_ETC2 = 161;
+    private static final int DF_SAMPLE_LINEAR = 0x10;
+
+    /** A supported format, mapping between Vulkan and GL */
+    private static class FormatInfo {
+        final int vkFormat, glInternalFormat, glFormat, glType, glBaseInternalFormat;
+        /** bytes per pixel or per 4x4 block if compressed */
+        final int size;
+        final boolean compressed, srgb;
+        final int dfModel;
+        /** data format descriptor sample channel ids in memory order */
+        final int[] dfChannels;
+
+        FormatInfo(final int vkFormat, final int glInternalFormat, final int glFormat, final int glType, final int glBaseInternalFormat,
+                   final int size, final boolean compressed, final boolean srgb, final int dfModel, final int[] dfChannels) {
+            this.vkFormat = vkFormat;
+            this.glInternalFormat = glInternalFormat;
+            this.glFormat = glFormat;
+            this.glType = glType;
+            this.glBaseInternalFormat = glBaseInternalFormat;
+            this.size = size;
+            this.compressed = compressed;
+            this.srgb = srgb;
+            this.dfModel = dfModel;
+            this.dfChannels = dfChannels;
+        }
+    }
+
+    private static final int UB = GL.GL_UNSIGNED_BYTE;
+    private static final FormatInfo[] formats = {
+        new FormatInfo(  9, GL.GL_R8,                       GL2ES2.GL_RED, UB, GL2ES2.GL_RED,  1, false, false, DF_MODEL_RGBSDA, new int[] { 0 }),
+        new FormatInfo( 16, GL.GL_RG8,                      GL2ES2.GL_RG,  UB, GL2ES2.GL_RG,   2, false, false, DF_MODEL_RGBSDA, new int[] { 0, 1 }),
+        new FormatInfo( 23, GL.GL_RGB8,                     GL.GL_RGB,     UB, GL.GL_RGB,      3, false, false, DF_MODEL_RGBSDA, new int[] { 0, 1, 2 }),
+        new FormatInfo( 29, GL2ES3.GL_SRGB8,                GL.GL_RGB,     UB, GL.GL_RGB,      3, false, true,  DF_MODEL_RGBSDA, new int[] { 0, 1, 2 }),
+        new FormatInfo( 30, GL.GL_RGB8,                     GL.GL_BGR,     UB, GL.GL_RGB,      3, false, false, DF_MODEL_RGBSDA, new int[] { 2, 1, 0 }),
+        new FormatInfo( 37, GL.GL_RGBA8,                    GL.GL_RGBA,    UB, GL.GL_RGBA,     4, false, false, DF_MODEL_RGBSDA, new int[] { 0, 1, 2, 15 }),
+        new FormatInfo( 43, GL.GL_SRGB8_ALPHA8,             GL.GL_RGBA,    UB, GL.GL_RGBA,     4, false, true,  DF_MODEL_RGBSDA, new int[] { 0, 1, 2, 15 }),
+        new FormatInfo( 44, GL.GL_RGBA8,                    GL.GL_BGRA,    UB, GL.GL_RGBA,     4, false, false, DF_MODEL_RGBSDA, new int[] { 2, 1, 0, 15 }),
+        new FormatInfo(131, GL.GL_COMPRESSED_RGB_S3TC_DXT1_EXT,  0, 0, GL.GL_RGB,   8, true, false, DF_MODEL_BC1A, new int[] { 0 }),
+        new FormatInfo(133, GL.GL_COMPRESSED_RGBA_S3TC_DXT1_EXT, 0, 0, GL.GL_RGBA,  8, true, false, DF_MODEL_BC1A, new int[] { 1 }),
+        new FormatInfo(135, GL.GL_COMPRESSED_RGBA_S3TC_DXT3_EXT, 0, 0, GL.GL_RGBA, 16, true, false, DF_MODEL_BC2,  new int[] { 15, 0 }),
+        new FormatInfo(137, GL.GL_COMPRESSED_RGBA_S3TC_DXT5_EXT, 0, 0, GL.GL_RGBA, 16, true, false, DF_MODEL_BC3,  new int[] { 15, 0 }),
+        new FormatInfo(147, GL2ES3.GL_COMPRESSED_RGB8_ETC2,              0, 0, GL.GL_RGB,   8, true, false, DF_MODEL_ETC2, new int[] { 2 }),
+        new FormatInfo(148, GL2ES3.GL_COMPRESSED_SRGB8_ETC2,             0, 0, GL.GL_RGB,   8, true, true,  DF_MODEL_ETC2, new int[] { 2 }),
+        new FormatInfo(151, GL2ES3.GL_COMPRESSED_RGBA8_ETC2_EAC,         0, 0, GL.GL_RGBA, 16, true, false, DF_MODEL_ETC2, new int[] { 15, 2 }),
+        new FormatInfo(152, GL2ES3.GL_COMPRESSED_SRGB8_ALPHA8_ETC2_EAC,  0, 0, GL.GL_RGBA, 16, true, true,  DF_MODEL_ETC2, new int[] { 15, 2 }) };
+
+    private static FormatInfo findByVkFormat(final int vkFormat) {
+        for(int i=0; i<formats.length; i++) {
+            if( formats[i].vkFormat == vkFormat ) {
+                return formats[i];
+            }
+        }
+        return null;
+    }
+
+    private static FormatInfo findByGLFormat(final int glInternalFormat, final int glFormat, final boolean compressed) {
+        for(int i=0; i<formats.length; i++) {
+            final FormatInfo fi = formats[i];
+            if( fi.compressed == compressed && fi.glInternalFormat == glInternalFormat &&
+                ( compressed || fi.glFormat == glFormat ) ) {
+                return fi;
+            }
+        }
+        if( !compressed ) {
+            // unsized internal formats
+            for(int i=0; i<formats.length; i++) {
+                final FormatInfo fi = formats[i];
+                if( !fi.compressed && !fi.srgb && fi.glFormat == glFormat && fi.glBaseInternalFormat == glInternalFormat ) {
+                    return fi;
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Returns true if the given GL format is supported for writing. */
+    public static boolean isWriteSupported(final int glInternalFormat, final int glFormat, final boolean compressed) {
+        return null != findByGLFormat(glInternalFormat, glFormat, compressed);
+    }
+
+    private final int version;
+    private final int vkFormat;
+    private final int glInternalFormat;
+    private final int glFormat;
+    private final int glType;
+    private final int glBaseInternalFormat;
+    private final int width;
+    private final int height;
+    private final boolean compressed;
+    private final boolean topDown;
+    private final int rowAlignment;
+    private final ByteBuffer[] levels;
+
+    private KTXImage(final int version, final int vkFormat, final int glInternalFormat, final int glFormat, final int glType,
+                     final int glBaseInternalFormat, final int width, final int height, final boolean compressed,
+                     final boolean topDown, final int rowAlignment, final ByteBuffer[] levels) {
+        this.version = version;
+        this.vkFormat = vkFormat;
+        this.glInternalFormat = glInternalFormat;
+        this.glFormat = glFormat;
+        this.glType = glType;
+        this.glBaseInternalFormat = glBaseInternalFormat;
+        this.width = width;
+        this.height = height;
+        this.compressed = compressed;
+        this.topDown = topDown;
+        this.rowAlignment = rowAlignment;
+        this.levels = levels;
+    }
+
+    /** Returns {@link #VERSION_1} or {@link #VERSION_2} */
+    public int getVersion() { return version; }
+    /** Returns the Vulkan format, 0 if undefined, i.e. for {@link #VERSION_1} files of a format unknown to this implementation */
+    public int getVkFormat() { return vkFormat; }
+    public int getGLInternalFormat() { return glInternalFormat; }
+    /** Returns the GL pixel format, for compressed data the base internal format */
+    public int getGLFormat() { return compressed ? glBaseInternalFormat : glFormat; }
+    /** Returns the GL pixel type, for compressed data {@link GL#GL_UNSIGNED_BYTE} */
+    public int getGLType() { return compressed ? GL.GL_UNSIGNED_BYTE : glType; }
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public boolean isCompressed() { return compressed; }
+    /** Returns true if the first row is the top row, i.e. the texture must be flipped vertically by GL. */
+    public boolean isTopDown() { return topDown; }
+    /** Returns the row alignment of uncompressed data, i.e. 4 for {@link #VERSION_1} and 1 for {@link #VERSION_2} */
+    public int getRowAlignment() { return rowAlignment; }
+    public int getNumMipMaps() { return levels.length; }
+    /** Returns the data of the given mipmap level, level 0 being the largest. */
+    public ByteBuffer getMipMap(final int level) { return levels[level]; }
+
+    //
+    // Reading
+    //
+
+    /**
+     * Reads a KTX or KTX2 image from the given stream.
+     * @throws IOException if the data is malformed or not supported
+     */
+    public static KTXImage read(final InputStream stream) throws IOException {
+        return read(ByteBuffer.wrap(IOUtil.copyStream2ByteArray(stream)));
+    }
+
+    /**
+     * Reads a KTX or KTX2 image from the given buffer, starting at its position.
+     * Mipmap data is sliced from the given buffer, i.e. not copied.
+     * @throws IOException if the data is malformed or not supported
+     */
+    public static KTXImage read(final ByteBuffer buf) throws IOException {
+        final ByteBuffer b = buf.slice();
+        b.order(ByteOrder.LITTLE_ENDIAN);
+        if( b.remaining() < 64 ) {
+            throw new IOException("Not a KTX file, only "+b.remaining()+" bytes");
+        }
+        final byte[] id = new byte[12];
+        b.get(id);
+        if( java.util.Arrays.equals(id, ID_KTX1) ) {
+            return readKTX1(b);
+        } else if( java.util.Arrays.equals(id, ID_KTX2) ) {
+            return readKTX2(b);
+        }
+        throw new IOException("Not a KTX file, invalid identifier");
+    }
+
+    private static KTXImage readKTX1(final ByteBuffer b) throws IOException {
+        final int endianness = b.getInt();
+        if( ENDIANNESS != endianness ) {
+            if( Integer.reverseBytes(ENDIANNESS) != endianness ) {
+                throw new IOException("Invalid KTX endianness 0x"+Integer.toHexString(endianness));
+            }
+            b.order(ByteOrder.BIG_ENDIAN);
+        }
+        final int glType = b.getInt();
+        final int glTypeSize = b.getInt();
+        final int glFormat = b.getInt();
+        final int glInternalFormat = b.getInt();
+        final int glBaseInternalFormat = b.getInt();
+        final int width = b.getInt();
+        final int height = b.getInt();
+        final int depth = b.getInt();
+        final int arrayElements = b.getInt();
+        final int faces = b.getInt();
+        final int levelCount = Math.max(1, b.getInt());
+        final int kvdLength = b.getInt();
+        if( 0 == height || 0 != depth || 0 != arrayElements || 1 != faces ) {
+            throw new IOException("Only 2D KTX textures are supported, have "+width+"x"+height+"x"+depth+
+                                  ", "+arrayElements+" array elements, "+faces+" faces");
+        }
+        final String orientation = readKeyValueData(b, b.position(), kvdLength).get(KEY_ORIENTATION);
+        b.position(b.position() + kvdLength);
+        final boolean compressed = 0 == glType;
+        final boolean swap = ByteOrder.BIG_ENDIAN == b.order() && 1 < glTypeSize;
+        final ByteBuffer[] levels = new ByteBuffer[levelCount];
+        for(int i=0; i<levelCount; i++) {
+            final int imageSize = b.getInt();
+            levels[i] = slice(b, b.position(), imageSize);
+            if( swap ) {
+                levels[i] = swap(levels[i], glTypeSize);
+            }
+            b.position(b.position() + ( ( imageSize + 3 ) & ~3 ));
+        }
+        final FormatInfo fi = compressed ? findByGLFormat(glInternalFormat, 0, true) : findByGLFormat(glInternalFormat, glFormat, false);
+        return new KTXImage(VERSION_1, null != fi ? fi.vkFormat : 0, glInternalFormat, glFormat, glType, glBaseInternalFormat,
+                            width, height, compressed,
+                            null != orientation && orientation.indexOf("T=d") >= 0, // default is GL's bottom up
+                            4, levels);
+    }
+
+    private static KTXImage readKTX2(final ByteBuffer b) throws IOException {
+        final int vkFormat = b.getInt();
+        b.getInt(); // typeSize
+        final int width = b.getInt();
+        final int height = b.getInt();
+        final int depth = b.getInt();
+        final int layers = b.getInt();
+        final int faces = b.getInt();
+        final int levelCount = Math.max(1, b.getInt());
+        final int supercompression = b.getInt();
+        b.getInt(); // dfdByteOffset
+        b.getInt(); // dfdByteLength
+        final int kvdOffset = b.getInt();
+        final int kvdLength = b.getInt();
+        b.getLong(); // sgdByteOffset
+        b.getLong(); // sgdByteLength
+        if( 0 == height || 0 != depth || 0 != layers || 1 != faces ) {
+            throw new IOException("Only 2D KTX2 textures are supported, have "+width+"x"+height+"x"+depth+
+                                  ", "+layers+" layers, "+faces+" faces");
+        }
+        if( 0 != supercompression ) {
+            throw new IOException("KTX2 supercompression scheme "+supercompression+" not supported");
+        }
+        final FormatInfo fi = findByVkFormat(vkFormat);
+        if( null == fi ) {
+            throw new IOException("KTX2 Vulkan format "+vkFormat+" not supported");
+        }
+        final ByteBuffer[] levels = new ByteBuffer[levelCount];
+        for(int i=0; i<levelCount; i++) {
+            final long offset = b.getLong();
+            final long length = b.getLong();
+            b.getLong(); // uncompressedByteLength
+            if( offset + length > b.limit() ) {
+                throw new IOException("KTX2 level "+i+" exceeds file: "+offset+" + "+length+" > "+b.limit());
+            }
+            levels[i] = slice(b, (int)offset, (int)length);
+        }
+        final String orientation = 0 < kvdLength ? readKeyValueData(b, kvdOffset, kvdLength).get(KEY_ORIENTATION) : null;
+        return new KTXImage(VERSION_2, vkFormat, fi.glInternalFormat, fi.glFormat, fi.glType, fi.glBaseInternalFormat,
+                            width, height, fi.compressed,
+                            null == orientation || orientation.length() < 2 || 'u' != orientation.charAt(1), // default is rd
+                            1, levels);
+    }
+
+    private static ByteBuffer slice(final ByteBuffer b, final int offset, final int length) throws IOException {
+        if( 0 > offset || 0 > length || offset + length > b.limit() ) {
+            throw new IOException("KTX data of "+length+" bytes at "+offset+" exceeds "+b.limit()+" bytes");
+        }
+        final ByteBuffer d = b.duplicate();
+        d.position(offset);
+        d.limit(offset + length);
+        return d.slice();
+    }
+
+    private static ByteBuffer swap(final ByteBuffer src, final int typeSize) {
+        final ByteBuffer dst = ByteBuffer.allocate(src.remaining());
+        for(int i=0; i+typeSize<=src.remaining(); i+=typeSize) {
+            for(int j=0; j<typeSize; j++) {
+                dst.put(i+j, src.get(i+typeSize-1-j));
+            }
+        }
+        return dst;
+    }
+
+    /** Reads the NUL terminated string key value pairs, skipping binary values. */
+    private static java.util.Map<String, String> readKeyValueData(final ByteBuffer b, final int offset, final int length) throws IOException {
+        final java.util.Map<String, String> res = new java.util.HashMap<String, String>();
+        final ByteBuffer kvd = slice(b, offset, length).order(b.order());
+        while( kvd.remaining() >= 4 ) {
+            final int size = kvd.getInt();
+            if( size > kvd.remaining() ) {
+                break;
+            }
+            final byte[] kv = new byte[size];
+            kvd.get(kv);
+            kvd.position(Math.min(kvd.limit(), ( kvd.position() + 3 ) & ~3));
+            int keyEnd = 0;
+            while( keyEnd < size && 0 != kv[keyEnd] ) {
+                keyEnd++;
+            }
+            int valueEnd = keyEnd + 1;
+            while( valueEnd < size && 0 != kv[valueEnd] ) {
+                valueEnd++;
+            }
+            if( keyEnd < size ) {
+                res.put(new String(kv, 0, keyEnd, "UTF-8"), new String(kv, keyEnd + 1, valueEnd - keyEnd - 1, "UTF-8"));
+            }
+        }
+        return res;
+    }
+
+    //
+    // Writing
+    //
+
+    /**
+     * Creates an image from the given data, which must be in a supported format.
+     * @param version {@link #VERSION_1} or {@link #VERSION_2}
+     * @param glInternalFormat the GL internal format, sized or unsized
+     * @param glFormat the GL pixel format, ignored if compressed
+     * @param compressed whether the data is block compressed
+     * @param width level 0 width
+     * @param height level 0 height
+     * @param topDown true if the first row is the top row
+     * @param rowAlignment the row alignment of uncompressed data
+     * @param levels tightly packed mipmap levels, largest first
+     * @throws IOException if the format is not supported
+     */
+    public static KTXImage createFromData(final int version, final int glInternalFormat, final int glFormat, final boolean compressed,
+                                          final int width, final int height, final boolean topDown, final int rowAlignment,
+                                          final ByteBuffer[] levels) throws IOException {
+        if( VERSION_1 != version && VERSION_2 != version ) {
+            throw new IllegalArgumentException("Invalid version "+version);
+        }
+        final FormatInfo fi = findByGLFormat(glInternalFormat, glFormat, compressed);
+        if( null == fi ) {
+            throw new IOException("Unsupported format: internal 0x"+Integer.toHexString(glInternalFormat)+
+                                  ", format 0x"+Integer.toHexString(glFormat)+", compressed "+compressed);
+        }
+        return new KTXImage(version, fi.vkFormat, fi.glInternalFormat, fi.glFormat, fi.glType, fi.glBaseInternalFormat,
+                            width, height, compressed, topDown, Math.max(1, rowAlignment), levels);
+    }
+
+    /** Writes this image to the given file. */
+    public void write(final File file) throws IOException {
+        final OutputStream out = new BufferedOutputStream(IOUtil.getFileOutputStream(file, true /* allowOverwrite */));
+        try {
+            write(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes this image to the given stream in its {@link #getVersion() version}, the stream is not closed.
+     */
+    public void write(final OutputStream out) throws IOException {
+        final FormatInfo fi = findByVkFormat(vkFormat);
+        if( null == fi ) {
+            throw new IOException("Unsupported format for writing: vkFormat "+vkFormat);
+        }
+        final ByteBuffer[] packed = new ByteBuffer[levels.length];
+        for(int i=0; i<levels.length; i++) {
+            packed[i] = repack(fi, i, VERSION_1 == version ? 4 : 1);
+        }
+        if( VERSION_1 == version ) {
+            writeKTX1(fi, packed, out);
+        } else {
+            writeKTX2(fi, packed, out);
+        }
+    }
+
+    private int levelWidth(final int level) { return Math.max(1, width >> level); }
+    private int levelHeight(final int level) { return Math.max(1, height >> level); }
+
+    /** Returns the given level with rows aligned as required by the destination, compressed data is passed through. */
+    private ByteBuffer repack(final FormatInfo fi, final int level, final int dstAlignment) throws IOException {
+        final ByteBuffer src = levels[level].duplicate();
+        src.rewind();
+        final int w = levelWidth(level), h = levelHeight(level);
+        if( fi.compressed ) {
+            final int size = ( ( w + 3 ) / 4 ) * ( ( h + 3 ) / 4 ) * fi.size;
+            if( src.remaining() < size ) {
+                throw new IOException("Level "+level+" has "+src.remaining()+" bytes, expected "+size);
+            }
+            src.limit(size);
+            return src;
+        }
+        final int rowBytes = w * fi.size;
+        final int srcStride = ( ( rowBytes + rowAlignment - 1 ) / rowAlignment ) * rowAlignment;
+        final int dstStride = ( ( rowBytes + dstAlignment - 1 ) / dstAlignment ) * dstAlignment;
+        if( src.remaining() < srcStride * ( h - 1 ) + rowBytes ) {
+            throw new IOException("Level "+level+" has "+src.remaining()+" bytes, expected "+( srcStride * ( h - 1 ) + rowBytes ));
+        }
+        if( srcStride == dstStride ) {
+            src.limit(Math.min(src.limit(), dstStride * h));
+            if( src.remaining() == dstStride * h ) {
+                return src;
+            }
+        }
+        final ByteBuffer dst = ByteBuffer.allocate(dstStride * h);
+        final byte[] row = new byte[rowBytes];
+        for(int y=0; y<h; y++) {
+            src.position(y * srcStride);
+            src.get(row);
+            dst.position(y * dstStride);
+            dst.put(row);
+        }
+        dst.rewind();
+        return dst;
+    }
+
+    private static byte[] keyValueData(final String[] keys, final String[] values, final ByteOrder order) throws IOException {
+        int size = 0;
+        final byte[][] kvs = new byte[keys.length][];
+        for(int i=0; i<keys.length; i++) {
+            final byte[] k = keys[i].getBytes("UTF-8");
+            final byte[] v = values[i].getBytes("UTF-8");
+            kvs[i] = new byte[k.length + 1 + v.length + 1];
+            System.arraycopy(k, 0, kvs[i], 0, k.length);
+            System.arraycopy(v, 0, kvs[i], k.length + 1, v.length);
+            size += 4 + ( ( kvs[i].length + 3 ) & ~3 );
+        }
+        final ByteBuffer b = ByteBuffer.allocate(size).order(order);
+        for(int i=0; i<kvs.length; i++) {
+            b.putInt(kvs[i].length);
+            b.put(kvs[i]);
+            b.position(( b.position() + 3 ) & ~3);
+        }
+        return b.array();
+    }
+
+    private void writeKTX1(final FormatInfo fi, final ByteBuffer[] packed, final OutputStream out) throws IOException {
+        final byte[] kvd = keyValueData(new String[] { KEY_ORIENTATION, KEY_WRITER },
+                                        new String[] { topDown ? "S=r,T=d" : "S=r,T=u", WRITER }, ByteOrder.LITTLE_ENDIAN);
+        final ByteBuffer h = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+        h.put(ID_KTX1);
+        h.putInt(ENDIANNESS);
+        h.putInt(fi.compressed ? 0 : fi.glType);
+        h.putInt(1); // glTypeSize
+        h.putInt(fi.compressed ? 0 : fi.glFormat);
+        h.putInt(fi.glInternalFormat);
+        h.putInt(fi.glBaseInternalFormat);
+        h.putInt(width);
+        h.putInt(height);
+        h.putInt(0); // depth
+        h.putInt(0); // array elements
+        h.putInt(1); // faces
+        h.putInt(packed.length);
+        h.putInt(kvd.length);
+        out.write(h.array());
+        out.write(kvd);
+        final ByteBuffer size = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        for(int i=0; i<packed.length; i++) {
+            final int n = packed[i].remaining();
+            size.putInt(0, n);
+            out.write(size.array());
+            writeBuffer(packed[i], out);
+            out.write(new byte[( ( n + 3 ) & ~3 ) - n]); // mip padding
+        }
+    }
+
+    private void writeKTX2(final FormatInfo fi, final ByteBuffer[] packed, final OutputStream out) throws IOException {
+        final byte[] dfd = dataFormatDescriptor(fi);
+        final byte[] kvd = keyValueData(new String[] { KEY_ORIENTATION, KEY_WRITER },
+                                        new String[] { topDown ? "rd" : "ru", WRITER }, ByteOrder.LITTLE_ENDIAN);
+        final int levelAlign = lcm(fi.size, 4);
+        final int dfdOffset = 80 + 24 * packed.length;
+        final int kvdOffset = dfdOffset + dfd.length;
+        int dataOffset = kvdOffset + kvd.length;
+        // levels are stored smallest first
+        final long[] offsets = new long[packed.length];
+        for(int i=packed.length-1; i>=0; i--) {
+            dataOffset = ( ( dataOffset + levelAlign - 1 ) / levelAlign ) * levelAlign;
+            offsets[i] = dataOffset;
+            dataOffset += packed[i].remaining();
+        }
+        final ByteBuffer h = ByteBuffer.allocate(dfdOffset).order(ByteOrder.LITTLE_ENDIAN);
+        h.put(ID_KTX2);
+        h.putInt(fi.vkFormat);
+        h.putInt(1); // typeSize
+        h.putInt(width);
+        h.putInt(height);
+        h.putInt(0); // depth
+        h.putInt(0); // layers
+        h.putInt(1); // faces
+        h.putInt(packed.length);
+        h.putInt(0); // supercompression
+        h.putInt(dfdOffset);
+        h.putInt(dfd.length);
+        h.putInt(kvdOffset);
+        h.putInt(kvd.length);
+        h.putLong(0); // sgdByteOffset
+        h.putLong(0); // sgdByteLength
+        for(int i=0; i<packed.length; i++) {
+            h.putLong(offsets[i]);
+            h.putLong(packed[i].remaining());
+            h.putLong(packed[i].remaining());
+        }
+        out.write(h.array());
+        out.write(dfd);
+        out.write(kvd);
+        long pos = kvdOffset + kvd.length;
+        for(int i=packed.length-1; i>=0; i--) {
+            out.write(new byte[(int)( offsets[i] - pos )]);
+            writeBuffer(packed[i], out);
+            pos = offsets[i] + packed[i].remaining();
+        }
+    }
+
+    /** Returns the basic data format descriptor block including the total size. */
+    private static byte[] dataFormatDescriptor(final FormatInfo fi) {
+        final int samples = fi.dfChannels.length;
+        final int blockSize = 24 + 16 * samples;
+        final ByteBuffer b = ByteBuffer.allocate(4 + blockSize).order(ByteOrder.LITTLE_ENDIAN);
+        b.putInt(4 + blockSize);
+        b.putInt(0); // vendor Khronos, type basic
+        b.putInt(2 | blockSize << 16); // version 1.3
+        b.put((byte)fi.dfModel);
+        b.put((byte)1); // primaries BT709
+        b.put((byte)( fi.srgb ? 2 : 1 )); // transfer sRGB or linear
+        b.put((byte)0); // straight alpha
+        if( fi.compressed ) {
+            b.put((byte)3).put((byte)3).put((byte)0).put((byte)0); // 4x4 texel blocks
+        } else {
+            b.putInt(0);
+        }
+        b.put((byte)fi.size).put((byte)0).put((byte)0).put((byte)0);
+        b.putInt(0);
+        final int bitsPerSample = fi.size * 8 / samples;
+        for(int i=0; i<samples; i++) {
+            final int ch = fi.dfChannels[i];
+            final int channelType = ch | ( fi.srgb && 15 == ch ? DF_SAMPLE_LINEAR : 0 );
+            b.putInt(i * bitsPerSample | ( bitsPerSample - 1 ) << 16 | channelType << 24);
+            b.putInt(0); // sample position
+            b.putInt(0); // lower
+            b.putInt(fi.compressed ? 0xFFFFFFFF : 0xFF); // upper
+        }
+        return b.array();
+    }
+
+    private static int lcm(final int a, final int b) {
+        int x = a, y = b;
+        while( 0 != y ) {
+            final int t = x % y;
+            x = y;
+            y = t;
+        }
+        return a / x * b;
+    }
+
+    private static void writeBuffer(final ByteBuffer buf, final OutputStream out) throws IOException {
+        final ByteBuffer b = buf.duplicate();
+        final byte[] tmp = new byte[Math.min(b.remaining(), 64*1024)];
+        while( b.hasRemaining() ) {
+            final int n = Math.min(tmp.length, b.remaining());
+            b.get(tmp, 0, n);
+            out.write(tmp, 0, n);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "KTXImage[v"+version+", "+width+"x"+height+", vk "+vkFormat+", internal 0x"+Integer.toHexString(glInternalFormat)+
+               ", format 0x"+Integer.toHexString(getGLFormat())+", type 0x"+Integer.toHexString(getGLType())+
+               ", compressed "+compressed+", topDown "+topDown+", levels "+levels.length+"]";
+    }
+}
@@ -60,6 +60,7 @@ public class VBORegion2PMSAAES2  extends GLRegion {
     private GLArrayDataServer gca_CurveParamsAttr;
     private GLArrayDataServer gca_ColorsAttr;
     private GLArrayDataServer indicesBuffer;
+    private final VBORegionSubData subData;
     private final GLUniformData gcu_ColorTexUnit;
     private final float[] colorTexBBox; // x0, y0, x1, y1
     private final GLUniformData gcu_ColorTexBBox;
@@ -156,6 +157,7 @@ public class VBORegion2PMSAAES2  extends GLRegion {
         } else {
             gca_ColorsAttr = null;
         }
+        subData = new VBORegionSubData(indicesBuffer, gca_VerticesAttr, gca_CurveParamsAttr, gca_ColorsAttr);
         if( hasColorTexture() ) {
             gcu_ColorTexUnit = new GLUniformData(UniformNames.gcu_ColorTexUnit, colorTexSeq.getTextureUnit());
             colorTexBBox = new float[4];
@@ -208,9 +210,20 @@ public class VBORegion2PMSAAES2  extends GLRegion {
             gca_ColorsAttr.seal(gl, false);
             gca_ColorsAttr.rewind();
         }
+        subData.clear();
         fboDirty = true;
     }
 
+    @Override
+    protected final void setupInitialComponentCount(final int attributeCount, final int indexCount) {
+        indicesBuffer.growIfNeeded(indexCount);
+        gca_VerticesAttr.growIfNeeded(attributeCount * gca_VerticesAttr.getComponentCount());
+        gca_CurveParamsAttr.growIfNeeded(attributeCount * gca_CurveParamsAttr.getComponentCount());
+        if( null != gca_ColorsAttr ) {
+            gca_ColorsAttr.growIfNeeded(attributeCount * gca_ColorsAttr.getComponentCount());
+        }
+    }
+
     @Override
     protected final void pushVertex(final float[] coords, final float[] texParams, final float[] rgba) {
         gca_VerticesAttr.putf(coords[0]);
@@ -238,6 +251,19 @@ public class VBORegion2PMSAAES2  extends GLRegion {
         indicesBuffer.puts((short)idx);
     }
 
+    @Override
+    public final boolean supportsShapeReplacement() { return true; }
+
+    @Override
+    protected final void replaceVertex(final int index, final float[] coords, final float[] texParams, final float[] rgba) {
+        subData.replaceVertex(index, coords, texParams, rgba);
+    }
+
+    @Override
+    protected final void replaceIndex(final int position, final int idx) {
+        subData.replaceIndex(position, idx);
+    }
+
     @Override
     protected void updateImpl(final GL2ES2 gl) {
         // seal buffers
@@ -251,6 +277,17 @@ public class VBORegion2PMSAAES2  extends GLRegion {
             gca_ColorsAttr.seal(gl, true);
             gca_ColorsAttr.enableBuffer(gl, false);
         }
+        subData.clear();
+        updateBoxImpl(gl);
+    }
+
+    @Override
+    protected void updateRangeImpl(final GL2ES2 gl) {
+        subData.upload(gl);
+        updateBoxImpl(gl);
+    }
+
+    private void updateBoxImpl(final GL2ES2 gl) {
         if( null != gcu_ColorTexUnit && colorTexSeq.isTextureAvailable() ) {
             final TextureSequence.TextureFrame frame = colorTexSeq.getLastTexture();
             final Texture tex = frame.getTexture();
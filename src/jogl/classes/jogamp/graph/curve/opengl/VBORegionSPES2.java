@@ -53,6 +53,7 @@ public class VBORegionSPES2 extends GLRegion {
     private GLArrayDataServer gca_CurveParamsAttr = null;
     private GLArrayDataServer gca_ColorsAttr;
     private GLArrayDataServer indicesBuffer = null;
+    private final VBORegionSubData subData;
     private final GLUniformData gcu_ColorTexUnit;
     private final float[] colorTexBBox; // x0, y0, x1, y1
     private final GLUniformData gcu_ColorTexBBox;
@@ -78,6 +79,7 @@ public class VBORegionSPES2 extends GLRegion {
         } else {
             gca_ColorsAttr = null;
         }
+        subData = new VBORegionSubData(indicesBuffer, gca_VerticesAttr, gca_CurveParamsAttr, gca_ColorsAttr);
         if( hasColorTexture() ) {
             gcu_ColorTexUnit = new GLUniformData(UniformNames.gcu_ColorTexUnit, colorTexSeq.getTextureUnit());
             colorTexBBox = new float[4];
@@ -110,6 +112,17 @@ public class VBORegionSPES2 extends GLRegion {
             gca_ColorsAttr.seal(gl, false);
             gca_ColorsAttr.rewind();
         }
+        subData.clear();
+    }
+
+    @Override
+    protected final void setupInitialComponentCount(final int attributeCount, final int indexCount) {
+        indicesBuffer.growIfNeeded(indexCount);
+        gca_VerticesAttr.growIfNeeded(attributeCount * gca_VerticesAttr.getComponentCount());
+        gca_CurveParamsAttr.growIfNeeded(attributeCount * gca_CurveParamsAttr.getComponentCount());
+        if( null != gca_ColorsAttr ) {
+            gca_ColorsAttr.growIfNeeded(attributeCount * gca_ColorsAttr.getComponentCount());
+        }
     }
 
     @Override
@@ -139,6 +152,19 @@ public class VBORegionSPES2 extends GLRegion {
         indicesBuffer.puts((short)idx);
     }
 
+    @Override
+    public final boolean supportsShapeReplacement() { return true; }
+
+    @Override
+    protected final void replaceVertex(final int index, final float[] coords, final float[] texParams, final float[] rgba) {
+        subData.replaceVertex(index, coords, texParams, rgba);
+    }
+
+    @Override
+    protected final void replaceIndex(final int position, final int idx) {
+        subData.replaceIndex(position, idx);
+    }
+
     @Override
     protected void updateImpl(final GL2ES2 gl) {
         // seal buffers
@@ -150,6 +176,24 @@ public class VBORegionSPES2 extends GLRegion {
             gca_ColorsAttr.seal(gl, true);
             gca_ColorsAttr.enableBuffer(gl, false);
         }
+        indicesBuffer.seal(gl, true);
+        indicesBuffer.enableBuffer(gl, false);
+        subData.clear();
+        updateColorTexBBox();
+        if(DEBUG_INSTANCE) {
+            System.err.println("VBORegionSPES2 idx "+indicesBuffer);
+            System.err.println("VBORegionSPES2 ver "+gca_VerticesAttr);
+            System.err.println("VBORegionSPES2 tex "+gca_CurveParamsAttr);
+        }
+    }
+
+    @Override
+    protected void updateRangeImpl(final GL2ES2 gl) {
+        subData.upload(gl);
+        updateColorTexBBox();
+    }
+
+    private void updateColorTexBBox() {
         if( null != gcu_ColorTexUnit && colorTexSeq.isTextureAvailable() ) {
             final TextureSequence.TextureFrame frame = colorTexSeq.getLastTexture();
             final Texture tex = frame.getTexture();
@@ -168,13 +212,6 @@ public class VBORegionSPES2 extends GLRegion {
                 colorTexBBox[3] = box.getMaxY() * tcSy;
             }
         }
-        indicesBuffer.seal(gl, true);
-        indicesBuffer.enableBuffer(gl, false);
-        if(DEBUG_INSTANCE) {
-            System.err.println("VBORegionSPES2 idx "+indicesBuffer);
-            System.err.println("VBORegionSPES2 ver "+gca_VerticesAttr);
-            System.err.println("VBORegionSPES2 tex "+gca_CurveParamsAttr);
-        }
     }
 
     private static final boolean throwOnError = false; // FIXME
@@ -0,0 +1,136 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package jogamp.graph.curve.opengl;
+
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.opengl.GL;
+import com.jogamp.opengl.util.GLArrayDataServer;
+
+/**
+ * In place modification of the shape buffers of a VBO region,
+ * uploading only the modified component range of each buffer via glBufferSubData.
+ * <p>
+ * Components are only written and marked modified if their value differs,
+ * e.g. moving a shape only uploads the range of its vertices.
+ * </p>
+ */
+final class VBORegionSubData {
+    private final GLArrayDataServer indices;
+    private final GLArrayDataServer vertices;
+    private final GLArrayDataServer curveParams;
+    private final GLArrayDataServer colors;
+    /** modified component range [start, end) of indices, vertices, curveParams and colors */
+    private final int[] start = new int[4];
+    private final int[] end = new int[4];
+
+    VBORegionSubData(final GLArrayDataServer indices, final GLArrayDataServer vertices,
+                     final GLArrayDataServer curveParams, final GLArrayDataServer colors) {
+        this.indices = indices;
+        this.vertices = vertices;
+        this.curveParams = curveParams;
+        this.colors = colors;
+        clear();
+    }
+
+    /** Discards all modified ranges, e.g. after a full upload. */
+    final void clear() {
+        for(int i=0; i<4; i++) {
+            start[i] = Integer.MAX_VALUE;
+            end[i] = 0;
+        }
+    }
+
+    final void replaceVertex(final int index, final float[] coords, final float[] texParams, final float[] rgba) {
+        putf(1, vertices, index, coords);
+        putf(2, curveParams, index, texParams);
+        if( null != colors ) {
+            if( null != rgba ) {
+                putf(3, colors, index, rgba);
+            } else {
+                throw new IllegalArgumentException("Null color given for COLOR_CHANNEL rendering mode");
+            }
+        }
+    }
+
+    final void replaceIndex(final int position, final int idx) {
+        final ShortBuffer b = (ShortBuffer) indices.getBuffer();
+        final short v = (short)idx;
+        if( b.get(position) != v ) {
+            b.put(position, v);
+            mark(0, position, position+1);
+        }
+    }
+
+    private void putf(final int r, final GLArrayDataServer ad, final int index, final float[] src) {
+        final FloatBuffer b = (FloatBuffer) ad.getBuffer();
+        final int comps = ad.getComponentCount();
+        final int o = index * comps;
+        for(int i=0; i<comps; i++) {
+            if( b.get(o+i) != src[i] ) {
+                b.put(o+i, src[i]);
+                mark(r, o+i, o+i+1);
+            }
+        }
+    }
+
+    private void mark(final int r, final int s, final int e) {
+        if( s < start[r] ) {
+            start[r] = s;
+        }
+        if( e > end[r] ) {
+            end[r] = e;
+        }
+    }
+
+    /**
+     * Uploads the modified ranges of all buffers already written to their VBO
+     * and {@link #clear() clears} them.
+     */
+    final void upload(final GL gl) {
+        upload(gl, 0, indices);
+        upload(gl, 1, vertices);
+        upload(gl, 2, curveParams);
+        if( null != colors ) {
+            upload(gl, 3, colors);
+        }
+        clear();
+    }
+
+    private void upload(final GL gl, final int r, final GLArrayDataServer ad) {
+        if( start[r] < end[r] && ad.isVBO() && ad.isVBOWritten() ) {
+            final int bytes = ad.getComponentSizeInBytes();
+            final int count = end[r] - start[r];
+            gl.glBindBuffer(ad.getVBOTarget(), ad.getVBOName());
+            gl.glBufferSubData(ad.getVBOTarget(), (long)start[r] * bytes, (long)count * bytes, Buffers.slice(ad.getBuffer(), start[r], count));
+            gl.glBindBuffer(ad.getVBOTarget(), 0);
+        }
+    }
+}
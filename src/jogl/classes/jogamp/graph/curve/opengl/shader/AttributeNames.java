@@ -43,6 +43,16 @@ public class AttributeNames {
      */
     public static final String COLOR_ATTR_NAME = "gca_Colors";
 
+    /**
+     * The per instance offset and scale in an OGL object: x, y, scale, z
+     */
+    public static final String INSTANCE_PARAMS_ATTR_NAME = "gca_InstanceParams";
+
+    /**
+     * The per instance color in an OGL object
+     */
+    public static final String INSTANCE_COLOR_ATTR_NAME = "gca_InstanceColors";
+
     public static final String FBO_VERTEX_ATTR_NAME = "gca_FboVertices";
 
     public static final String FBO_TEXCOORDS_ATTR_NAME = "gca_FboTexCoords";
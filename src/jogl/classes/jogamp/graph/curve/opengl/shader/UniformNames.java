@@ -6,6 +6,8 @@ public class UniformNames {
     public static final String gcu_Weight = "gcu_Weight";
     public static final String gcu_ColorTexUnit = "gcu_ColorTexUnit";
     public static final String gcu_ColorTexBBox = "gcu_ColorTexBBox";
+    public static final String gcu_SDFTexUnit = "gcu_SDFTexUnit";
+    public static final String gcu_SDFParams = "gcu_SDFParams"; // atlas width, height and distance range in texel
 
     public static final String gcu_PMVMatrix02 = "gcu_PMVMatrix02"; // gcu_PMVMatrix[3]; // P, Mv, and Mvi
     public static final String gcu_FboTexUnit = "gcu_FboTexUnit";
@@ -25,6 +25,11 @@ attribute vec2    gca_FboTexCoords;
     attribute vec4    gca_Colors;
 #endif
 
+#ifdef USE_INSTANCING
+    attribute vec4    gca_InstanceParams; // x, y, scale, z
+    attribute vec4    gca_InstanceColors;
+#endif
+
 //attribute vec3    gca_Normals;
 
 #endif // attributes_glsl
@@ -0,0 +1,17 @@
+
+    // pass-1: multi-channel signed distance field, curve parameters are the atlas texture coordinates
+    vec3 msd = texture2D(gcu_SDFTexUnit, gcv_CurveParam.xy).rgb;
+    float sd = max(min(msd.r, msd.g), min(max(msd.r, msd.g), msd.b)) - 0.5;
+
+    // distance range in screen pixel
+    vec2 unitRange = vec2(gcu_SDFParams.z) / gcu_SDFParams.xy;
+    vec2 screenTexSize = vec2(1.0) / fwidth(gcv_CurveParam.xy);
+    float screenPxRange = max(0.5 * dot(unitRange, screenTexSize), 1.0);
+
+    float a = clamp(screenPxRange * sd + 0.5, 0.0, 1.0);
+#if defined(USE_COLOR_CHANNEL)
+    mgl_FragColor = vec4(gcv_Color.rgb * gcu_ColorStatic.rgb, gcv_Color.a * gcu_ColorStatic.a * a);
+#else
+    mgl_FragColor = vec4(gcu_ColorStatic.rgb, gcu_ColorStatic.a * a);
+#endif
+
@@ -10,6 +10,11 @@ uniform float   gcu_Weight;
     uniform vec4  gcu_ColorTexBBox;
 #endif
 
+#ifdef USE_SDF
+    uniform sampler2D  gcu_SDFTexUnit;
+    uniform vec3  gcu_SDFParams; // atlas width, height and distance range in texel
+#endif
+
 uniform mat4    gcu_PMVMatrix02[3]; // P, Mv, and Mvi
 uniform sampler2D  gcu_FboTexUnit;
 
@@ -85,18 +85,22 @@ public class CDTriangulator2D implements Triangulator {
             loop = getContainerLoop(polyline);
         }
 
+        final int sinkSize0 = sink.size();
         if(loop == null) {
             final GraphOutline outline = new GraphOutline(polyline);
-            final GraphOutline innerPoly = extractBoundaryTriangles(sink, outline, false, sharpness);
+            final GraphOutline innerPoly = extractBoundaryTriangles(sink, outline, false, sharpness, maxTriID);
             // vertices.addAll(polyline.getVertices());
             loop = new Loop(innerPoly, VectorUtil.Winding.CCW);
             loops.add(loop);
         } else {
             final GraphOutline outline = new GraphOutline(polyline);
-            final GraphOutline innerPoly = extractBoundaryTriangles(sink, outline, true, sharpness);
+            final GraphOutline innerPoly = extractBoundaryTriangles(sink, outline, true, sharpness, maxTriID);
             // vertices.addAll(innerPoly.getVertices());
             loop.addConstraintCurve(innerPoly);
         }
+        final int boundaryTriangles = sink.size() - sinkSize0;
+        maxTriID += boundaryTriangles;
+        addedVerticeCount += 3 * boundaryTriangles;
     }
 
     @Override
@@ -159,7 +163,17 @@ public class CDTriangulator2D implements Triangulator {
         }
     }
 
-    private GraphOutline extractBoundaryTriangles(final List<Triangle> sink, final GraphOutline outline, final boolean hole, final float sharpness) {
+    /**
+     * Adds a curve triangle for each off-curve vertex of the given outline to the sink,
+     * using cloned vertices carrying the curve's texture coordinates.
+     * <p>
+     * Added triangles are numbered starting with <code>firstTriID</code>, each adding three vertices.
+     * </p>
+     * @return the inner outline to be triangulated, i.e. the on-curve vertices and the off-curve vertices of holes
+     */
+    /* pp */ static GraphOutline extractBoundaryTriangles(final List<Triangle> sink, final GraphOutline outline, final boolean hole,
+                                                         final float sharpness, final int firstTriID) {
+        int triID = firstTriID;
         final GraphOutline innerOutline = new GraphOutline();
         final ArrayList<GraphVertex> outVertices = outline.getGraphPoint();
         final int size = outVertices.size();
@@ -172,7 +186,6 @@ public class CDTriangulator2D implements Triangulator {
                 final Vertex v0 = gv0.getPoint().clone();
                 final Vertex v2 = gv2.getPoint().clone();
                 final Vertex v1 = gv1.getPoint().clone();
-                addedVerticeCount += 3;
                 final boolean[] boundaryVertices = { true, true, true };
 
                 gv0.setBoundaryContained(true);
@@ -188,7 +201,7 @@ public class CDTriangulator2D implements Triangulator {
                     holeLike = true;
                     t = new Triangle(v2, v1, v0, boundaryVertices);
                 }
-                t.setId(maxTriID++);
+                t.setId(triID++);
                 sink.add(t);
                 if(DEBUG){
                     System.err.println(t);
@@ -0,0 +1,565 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package jogamp.graph.curve.tess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+
+import com.jogamp.graph.curve.tess.Triangulator;
+import com.jogamp.graph.geom.Outline;
+import com.jogamp.graph.geom.Triangle;
+import com.jogamp.graph.geom.Vertex;
+import com.jogamp.opengl.math.VectorUtil;
+import com.jogamp.opengl.math.geom.AABBox;
+
+/**
+ * Sweep-line triangulation of a list of Outlines that define a set of
+ * Closed Regions with optional n holes in O(n log n).
+ * <p>
+ * The inner polygons are partitioned into y-monotone pieces by a single top-down sweep,
+ * inserting the partitioning diagonals into the {@link HEdge} structure.
+ * Each piece is then triangulated in linear time.
+ * Unlike {@link CDTriangulator2D}, the result is not Delaunay, but the triangulation always completes.
+ * </p>
+ * <p>
+ * An outline is treated as a hole if it is contained in an odd number of
+ * previously added outlines, hence outlines shall be added from large to small.
+ * </p>
+ */
+public class SweepTriangulator2D implements Triangulator {
+
+    private static final boolean DEBUG = CDTriangulator2D.DEBUG;
+
+    private static final int START = 0;
+    private static final int END = 1;
+    private static final int SPLIT = 2;
+    private static final int MERGE = 3;
+    private static final int REGULAR = 4;
+
+    /** Inner polygons for the containment test */
+    private final ArrayList<GraphOutline> polygons = new ArrayList<GraphOutline>();
+    /** One boundary edge per polygon vertex, interior to its left */
+    private final ArrayList<HEdge> edges = new ArrayList<HEdge>();
+
+    private int addedVerticeCount;
+    private int maxTriID;
+
+    /** Constructor for a new sweep-line triangulator
+     */
+    public SweepTriangulator2D() {
+        reset();
+    }
+
+    @Override
+    public final void reset() {
+        maxTriID = 0;
+        addedVerticeCount = 0;
+        polygons.clear();
+        edges.clear();
+    }
+
+    @Override
+    public final int getAddedVerticeCount() {
+        return addedVerticeCount;
+    }
+
+    @Override
+    public final void addCurve(final List<Triangle> sink, final Outline polyline, final float sharpness) {
+        final boolean hole = isHole(polyline);
+        final int sinkSize0 = sink.size();
+        final GraphOutline innerPoly = CDTriangulator2D.extractBoundaryTriangles(sink, new GraphOutline(polyline), hole, sharpness, maxTriID);
+        final int boundaryTriangles = sink.size() - sinkSize0;
+        maxTriID += boundaryTriangles;
+        addedVerticeCount += 3 * boundaryTriangles;
+        if( addPolygon(innerPoly, hole) ) {
+            polygons.add(innerPoly);
+        }
+    }
+
+    @Override
+    public final void generate(final List<Triangle> sink) {
+        final int n = edges.size();
+        if( 0 == n ) {
+            return;
+        }
+        final ArrayList<GraphVertex> diagonals = new ArrayList<GraphVertex>();
+        sweep(diagonals);
+
+        final ArrayList<HEdge> allEdges = new ArrayList<HEdge>(n + diagonals.size());
+        allEdges.addAll(edges);
+        for(int i=0; i<diagonals.size(); i+=2) {
+            insertDiagonal(diagonals.get(i), diagonals.get(i+1), allEdges);
+        }
+
+        // triangulate each monotone face
+        final HashSet<HEdge> visited = new HashSet<HEdge>(allEdges.size());
+        final ArrayList<GraphVertex> face = new ArrayList<GraphVertex>();
+        for(int i=0; i<allEdges.size(); i++) {
+            final HEdge e = allEdges.get(i);
+            if( visited.contains(e) ) {
+                continue;
+            }
+            face.clear();
+            HEdge f = e;
+            int guard = allEdges.size();
+            do {
+                visited.add(f);
+                face.add(f.getGraphPoint());
+                f = f.getNext();
+            } while( f != e && 0 < --guard );
+            triangulateMonotone(sink, face);
+        }
+        if(DEBUG){
+            System.err.println("SweepTri.gen: vertices "+n+", diagonals "+diagonals.size()/2+", triangles "+sink.size());
+        }
+    }
+
+    /**
+     * Returns true if the polyline's first on-curve vertex is contained in an odd number of added polygons.
+     */
+    private boolean isHole(final Outline polyline) {
+        final int size = polyline.getVertexCount();
+        if( 0 == size ) {
+            return false;
+        }
+        Vertex v = polyline.getVertex(0);
+        for(int i=0; i<size; i++) {
+            if( polyline.getVertex(i).isOnCurve() ) {
+                v = polyline.getVertex(i);
+                break;
+            }
+        }
+        boolean inside = false;
+        for(int i=0; i<polygons.size(); i++) {
+            if( checkInside(polygons.get(i), v) ) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    private static boolean checkInside(final GraphOutline polygon, final Vertex v) {
+        final AABBox box = polygon.getOutline().getBounds();
+        if( !box.contains(v.getX(), v.getY(), v.getZ()) ) {
+            return false;
+        }
+        final ArrayList<GraphVertex> vertices = polygon.getGraphPoint();
+        final int size = vertices.size();
+        boolean inside = false;
+        for(int i=0, j=size-1; i<size; j=i++) {
+            final GraphVertex v1 = vertices.get(i);
+            final GraphVertex v2 = vertices.get(j);
+            if ( ((v1.getY() > v.getY()) != (v2.getY() > v.getY())) &&
+                  (v.getX() < (v2.getX() - v1.getX()) * (v.getY() - v1.getY()) / (v2.getY() - v1.getY()) + v1.getX()) ){
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * Adds the polygon's boundary edges, counter clockwise for outer boundaries and clockwise for holes,
+     * dropping coincident neighbors.
+     * @return false if the polygon is degenerated and has been skipped
+     */
+    private boolean addPolygon(final GraphOutline polygon, final boolean hole) {
+        final ArrayList<GraphVertex> vertices = polygon.getGraphPoint();
+        final ArrayList<GraphVertex> ring = new ArrayList<GraphVertex>(vertices.size());
+        for(int i=0; i<vertices.size(); i++) {
+            final GraphVertex v = vertices.get(i);
+            if( ring.isEmpty() || !isEqual(ring.get(ring.size()-1), v) ) {
+                ring.add(v);
+            }
+        }
+        while( 1 < ring.size() && isEqual(ring.get(0), ring.get(ring.size()-1)) ) {
+            ring.remove(ring.size()-1);
+        }
+        final int size = ring.size();
+        if( 3 > size ) {
+            return false;
+        }
+        float area = 0;
+        for(int i=0, j=size-1; i<size; j=i++) {
+            final GraphVertex v1 = ring.get(j);
+            final GraphVertex v2 = ring.get(i);
+            area += v1.getX() * v2.getY() - v2.getX() * v1.getY();
+        }
+        if( 0 == area ) {
+            return false;
+        }
+        final boolean invert = ( area > 0 ) == hole;
+        final int edgeType = hole ? HEdge.HOLE : HEdge.BOUNDARY;
+        HEdge firstEdge = null;
+        HEdge lastEdge = null;
+        for(int i=0; i<size; i++) {
+            final GraphVertex v = ring.get( invert ? size-1-i : i );
+            final HEdge edge = new HEdge(v, edgeType);
+            v.addEdge(edge);
+            if( null != lastEdge ) {
+                HEdge.connect(lastEdge, edge);
+            } else {
+                firstEdge = edge;
+            }
+            edges.add(edge);
+            lastEdge = edge;
+        }
+        HEdge.connect(lastEdge, firstEdge);
+        return true;
+    }
+
+    private static boolean isEqual(final GraphVertex a, final GraphVertex b) {
+        return a.getX() == b.getX() && a.getY() == b.getY();
+    }
+
+    /** Returns true if a is above b w.r.t. the sweep, i.e. has a greater y or the same y and a smaller x. */
+    private static boolean isAbove(final GraphVertex a, final GraphVertex b) {
+        return a.getY() > b.getY() || ( a.getY() == b.getY() && a.getX() < b.getX() );
+    }
+
+    private static final Comparator<HEdge> aboveComparator = new Comparator<HEdge>() {
+        @Override
+        public int compare(final HEdge e1, final HEdge e2) {
+            final GraphVertex a = e1.getGraphPoint();
+            final GraphVertex b = e2.getGraphPoint();
+            if( isAbove(a, b) ) {
+                return -1;
+            } else if( isAbove(b, a) ) {
+                return 1;
+            }
+            return 0;
+        } };
+
+    private static float triArea(final GraphVertex a, final GraphVertex b, final GraphVertex c) {
+        return VectorUtil.triAreaVec2(a.getPoint(), b.getPoint(), c.getPoint());
+    }
+
+    private static int getVertexType(final GraphVertex prev, final GraphVertex v, final GraphVertex next) {
+        final boolean prevBelow = isAbove(v, prev);
+        final boolean nextBelow = isAbove(v, next);
+        final boolean convex = triArea(prev, v, next) >= 0;
+        if( prevBelow && nextBelow ) {
+            return convex ? START : SPLIT;
+        } else if( !prevBelow && !nextBelow ) {
+            return convex ? END : MERGE;
+        }
+        return REGULAR;
+    }
+
+    /** Status edge of the sweep, having the polygon's interior to its right */
+    private static class SweepEdge {
+        final HEdge edge;
+        final int id;
+        final float x0, y0, x1, y1;
+        GraphVertex helper;
+        boolean helperIsMerge;
+
+        SweepEdge(final HEdge edge, final int id, final GraphVertex upper, final GraphVertex lower) {
+            this.edge = edge;
+            this.id = id;
+            x0 = upper.getX(); y0 = upper.getY();
+            x1 = lower.getX(); y1 = lower.getY();
+        }
+
+        /** Returns the edge's x at y, or its lower x if horizontal. */
+        final float getX(final float y) {
+            if( y0 == y1 ) {
+                return x1;
+            }
+            final float t = Math.max(0f, Math.min(1f, ( y - y0 ) / ( y1 - y0 )));
+            return x0 + t * ( x1 - x0 );
+        }
+
+        final void setHelper(final GraphVertex v, final boolean merge) {
+            helper = v;
+            helperIsMerge = merge;
+        }
+    }
+
+    /** Orders the {@link SweepEdge}s from left to right at the current sweep line. */
+    private static class StatusComparator implements Comparator<SweepEdge> {
+        float sweepY;
+
+        @Override
+        public int compare(final SweepEdge a, final SweepEdge b) {
+            if( a == b ) {
+                return 0;
+            }
+            float xa = a.getX(sweepY);
+            float xb = b.getX(sweepY);
+            if( xa == xb ) {
+                // common point: compare below the sweep line
+                final float y = Math.max(a.y1, b.y1);
+                if( y < sweepY ) {
+                    xa = a.getX(y);
+                    xb = b.getX(y);
+                }
+            }
+            if( xa != xb ) {
+                return xa < xb ? -1 : 1;
+            }
+            return a.id < b.id ? -1 : ( a.id > b.id ? 1 : 0 );
+        }
+    }
+
+    /**
+     * Partitions the polygons into y-monotone pieces, see de Berg et al., Computational Geometry, chapter 3.
+     * @param diagonals sink of the partitioning diagonals' vertex pairs
+     */
+    private void sweep(final ArrayList<GraphVertex> diagonals) {
+        final int n = edges.size();
+        final HEdge[] events = edges.toArray(new HEdge[n]);
+        Arrays.sort(events, aboveComparator);
+
+        final StatusComparator comparator = new StatusComparator();
+        final TreeSet<SweepEdge> status = new TreeSet<SweepEdge>(comparator);
+        final IdentityHashMap<HEdge, SweepEdge> statusEdges = new IdentityHashMap<HEdge, SweepEdge>();
+        int nextId = 0;
+
+        for(int i=0; i<n; i++) {
+            final HEdge e = events[i];
+            final GraphVertex v = e.getGraphPoint();
+            final GraphVertex next = e.getNext().getGraphPoint();
+            final GraphVertex prev = e.getPrev().getGraphPoint();
+            comparator.sweepY = v.getY();
+            final int type = getVertexType(prev, v, next);
+            final boolean interiorRight = REGULAR == type && isAbove(prev, v);
+
+            if( END == type || MERGE == type || interiorRight ) {
+                // previous edge ends here
+                final SweepEdge pe = statusEdges.remove(e.getPrev());
+                if( null != pe ) {
+                    if( pe.helperIsMerge ) {
+                        addDiagonal(diagonals, v, pe.helper);
+                    }
+                    removeStatus(status, pe);
+                }
+            }
+            if( SPLIT == type || MERGE == type || ( REGULAR == type && !interiorRight ) ) {
+                // update the edge left of v
+                final SweepEdge left = status.lower(new SweepEdge(null, Integer.MAX_VALUE, v, v));
+                if( null != left ) {
+                    if( SPLIT == type || left.helperIsMerge ) {
+                        addDiagonal(diagonals, v, left.helper);
+                    }
+                    left.setHelper(v, MERGE == type);
+                }
+            }
+            if( START == type || SPLIT == type || interiorRight ) {
+                // next edge starts here
+                final SweepEdge ne = new SweepEdge(e, nextId++, v, next);
+                ne.setHelper(v, false);
+                status.add(ne);
+                statusEdges.put(e, ne);
+            }
+        }
+    }
+
+    private static void removeStatus(final TreeSet<SweepEdge> status, final SweepEdge se) {
+        if( !status.remove(se) ) {
+            // order disturbed by degenerated input, remove by identity
+            final Iterator<SweepEdge> it = status.iterator();
+            while( it.hasNext() ) {
+                if( it.next() == se ) {
+                    it.remove();
+                    break;
+                }
+            }
+        }
+    }
+
+    private static void addDiagonal(final ArrayList<GraphVertex> diagonals, final GraphVertex a, final GraphVertex b) {
+        if( null != b && a != b ) {
+            diagonals.add(a);
+            diagonals.add(b);
+        }
+    }
+
+    /**
+     * Returns the edge leaving a whose face contains the direction to b,
+     * i.e. b lies counter clockwise between the edge and its predecessor.
+     */
+    private static HEdge findFaceEdge(final GraphVertex a, final GraphVertex b) {
+        final ArrayList<HEdge> out = a.getEdges();
+        if( null == out ) {
+            return null;
+        }
+        final double target = getAngle(a, b);
+        for(int i=0; i<out.size(); i++) {
+            final HEdge e = out.get(i);
+            final double out0 = getAngle(a, e.getNext().getGraphPoint());
+            final double in0 = getAngle(a, e.getPrev().getGraphPoint());
+            final double t = normalizeAngle(target - out0);
+            final double w = normalizeAngle(in0 - out0);
+            if( 0 < t && ( t < w || 0 == w ) ) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    private static double getAngle(final GraphVertex a, final GraphVertex b) {
+        return Math.atan2(b.getY() - a.getY(), b.getX() - a.getX());
+    }
+
+    private static double normalizeAngle(final double a) {
+        return a < 0 ? a + 2.0 * Math.PI : a;
+    }
+
+    /**
+     * Splits the face containing both vertices by a pair of {@link HEdge#INNER} sibling edges.
+     */
+    private static void insertDiagonal(final GraphVertex a, final GraphVertex b, final ArrayList<HEdge> allEdges) {
+        final HEdge ea = findFaceEdge(a, b);
+        final HEdge eb = findFaceEdge(b, a);
+        if( null == ea || null == eb ) {
+            if(DEBUG){
+                System.err.println("SweepTri.diag: skipped "+a+" - "+b);
+            }
+            return;
+        }
+        final HEdge ab = new HEdge(a, HEdge.INNER);
+        final HEdge ba = new HEdge(b, HEdge.INNER);
+        HEdge.makeSiblings(ab, ba);
+        final HEdge eaPrev = ea.getPrev();
+        final HEdge ebPrev = eb.getPrev();
+        HEdge.connect(eaPrev, ab);
+        HEdge.connect(ab, eb);
+        HEdge.connect(ebPrev, ba);
+        HEdge.connect(ba, ea);
+        a.addEdge(ab);
+        b.addEdge(ba);
+        allEdges.add(ab);
+        allEdges.add(ba);
+    }
+
+    /**
+     * Triangulates a y-monotone polygon given in counter clockwise order,
+     * see de Berg et al., Computational Geometry, chapter 3.
+     */
+    private void triangulateMonotone(final List<Triangle> sink, final ArrayList<GraphVertex> face) {
+        final int k = face.size();
+        if( 3 > k ) {
+            return;
+        }
+        if( 3 == k ) {
+            addTriangle(sink, face.get(0), face.get(1), face.get(2));
+            return;
+        }
+        int top = 0;
+        int bottom = 0;
+        for(int i=1; i<k; i++) {
+            if( isAbove(face.get(i), face.get(top)) ) {
+                top = i;
+            }
+            if( isAbove(face.get(bottom), face.get(i)) ) {
+                bottom = i;
+            }
+        }
+        // counter clockwise from the top vertex runs down the left chain
+        final boolean[] leftChain = new boolean[k];
+        for(int i=top; i!=bottom; i=(i+1)%k) {
+            leftChain[i] = true;
+        }
+        final Integer[] order = new Integer[k];
+        for(int i=0; i<k; i++) {
+            order[i] = Integer.valueOf(i);
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer i1, final Integer i2) {
+                final GraphVertex a = face.get(i1.intValue());
+                final GraphVertex b = face.get(i2.intValue());
+                if( isAbove(a, b) ) {
+                    return -1;
+                } else if( isAbove(b, a) ) {
+                    return 1;
+                }
+                return 0;
+            } } );
+
+        final int[] stack = new int[k];
+        int sp = 0;
+        stack[sp++] = order[0].intValue();
+        stack[sp++] = order[1].intValue();
+        for(int j=2; j<k-1; j++) {
+            final int u = order[j].intValue();
+            final GraphVertex uv = face.get(u);
+            if( leftChain[u] != leftChain[stack[sp-1]] ) {
+                while( 1 < sp ) {
+                    final int v = stack[--sp];
+                    addTriangle(sink, uv, face.get(v), face.get(stack[sp-1]));
+                }
+                sp = 0;
+                stack[sp++] = order[j-1].intValue();
+                stack[sp++] = u;
+            } else {
+                int last = stack[--sp];
+                while( 0 < sp ) {
+                    final GraphVertex lv = face.get(last);
+                    final GraphVertex sv = face.get(stack[sp-1]);
+                    final float area = leftChain[u] ? triArea(sv, lv, uv) : triArea(uv, lv, sv);
+                    if( area <= 0 ) {
+                        break;
+                    }
+                    addTriangle(sink, uv, lv, sv);
+                    last = stack[--sp];
+                }
+                stack[sp++] = last;
+                stack[sp++] = u;
+            }
+        }
+        final GraphVertex uv = face.get(order[k-1].intValue());
+        while( 1 < sp ) {
+            final int v = stack[--sp];
+            addTriangle(sink, uv, face.get(v), face.get(stack[sp-1]));
+        }
+    }
+
+    /** Adds the counter clockwise triangle, skipping degenerated ones. */
+    private void addTriangle(final List<Triangle> sink, final GraphVertex a, final GraphVertex b, final GraphVertex c) {
+        final float area = triArea(a, b, c);
+        if( 0 == area ) {
+            return;
+        }
+        final GraphVertex v2 = area > 0 ? b : c;
+        final GraphVertex v3 = area > 0 ? c : b;
+        final boolean[] boundary = { a.isBoundaryContained(), v2.isBoundaryContained(), v3.isBoundaryContained() };
+        final Triangle t = new Triangle(a.getPoint(), v2.getPoint(), v3.getPoint(), boundary);
+        t.setId(maxTriID++);
+        sink.add(t);
+        if(DEBUG){
+            System.err.println("SweepTri.tri: "+t);
+        }
+    }
+}
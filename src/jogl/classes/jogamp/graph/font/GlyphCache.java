@@ -0,0 +1,207 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package jogamp.graph.font;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded cache of glyph objects keyed by their <code>char</code> symbol.
+ * <p>
+ * Lookups via {@link #get(char)} are lock-free, i.e. they only read a two level table
+ * of atomic references, hence concurrent text layout threads do not contend.
+ * Insertion and eviction are serialized.
+ * </p>
+ * <p>
+ * The cache is bounded by an entry count and by the sum of the estimated costs of its values,
+ * e.g. their memory footprint in bytes. If inserting a value exceeds either budget,
+ * entries are evicted by the CLOCK algorithm, an approximation of LRU:
+ * a lookup marks an entry as referenced, the clock hand clears that mark once
+ * and evicts the first unreferenced entry it passes.
+ * Evicted values are only released by the cache, users may still hold and use them.
+ * </p>
+ * @param <V> the value type
+ */
+public class GlyphCache<V> {
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private static class Entry<V> {
+        final char symbol;
+        final V value;
+        final int cost;
+        volatile boolean referenced;
+
+        Entry(final char symbol, final V value, final int cost) {
+            this.symbol = symbol;
+            this.value = value;
+            this.cost = cost;
+        }
+    }
+
+    private final int maxEntries;
+    private final long maxCost;
+    /** Table of pages of {@link #PAGE_SIZE} entries each, indexed by the high byte of the symbol. */
+    private final AtomicReferenceArray<AtomicReferenceArray<Entry<V>>> pages =
+            new AtomicReferenceArray<AtomicReferenceArray<Entry<V>>>(0x10000 >>> PAGE_BITS);
+
+    /** Clock ring of all entries, guarded by this instance */
+    private final ArrayList<Entry<V>> ring = new ArrayList<Entry<V>>();
+    private int hand = 0;
+    private long cost = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxEntries maximum number of entries, zero or less for unlimited
+     * @param maxCost maximum sum of the entry costs, zero or less for unlimited
+     */
+    public GlyphCache(final int maxEntries, final long maxCost) {
+        this.maxEntries = 0 < maxEntries ? maxEntries : Integer.MAX_VALUE;
+        this.maxCost = 0 < maxCost ? maxCost : Long.MAX_VALUE;
+    }
+
+    /** Returns the maximum number of entries, {@link Integer#MAX_VALUE} if unlimited. */
+    public final int getMaxEntries() { return maxEntries; }
+
+    /** Returns the maximum sum of the entry costs, {@link Long#MAX_VALUE} if unlimited. */
+    public final long getMaxCost() { return maxCost; }
+
+    /**
+     * Returns the cached value for the given symbol or <code>null</code>, lock-free.
+     */
+    public final V get(final char symbol) {
+        final AtomicReferenceArray<Entry<V>> page = pages.get(symbol >>> PAGE_BITS);
+        final Entry<V> e = null != page ? page.get(symbol & PAGE_MASK) : null;
+        if( null != e ) {
+            if( !e.referenced ) {
+                e.referenced = true;
+            }
+            hits.incrementAndGet();
+            return e.value;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Adds the value for the given symbol, evicting other entries if a budget would be exceeded.
+     * <p>
+     * If another thread added a value for the symbol in the meantime, the existing value is kept
+     * and returned, so all users share the same instance.
+     * A value whose cost alone exceeds the cost budget is returned but not cached.
+     * </p>
+     * @param symbol the key
+     * @param value the value
+     * @param valueCost the estimated cost of the value, e.g. its size in bytes
+     * @return the cached value for the symbol
+     */
+    public final synchronized V put(final char symbol, final V value, final int valueCost) {
+        AtomicReferenceArray<Entry<V>> page = pages.get(symbol >>> PAGE_BITS);
+        if( null == page ) {
+            page = new AtomicReferenceArray<Entry<V>>(PAGE_SIZE);
+            pages.set(symbol >>> PAGE_BITS, page);
+        } else {
+            final Entry<V> e = page.get(symbol & PAGE_MASK);
+            if( null != e ) {
+                return e.value;
+            }
+        }
+        if( valueCost > maxCost ) {
+            return value;
+        }
+        while( !ring.isEmpty() && ( ring.size() >= maxEntries || cost + valueCost > maxCost ) ) {
+            evictOne();
+        }
+        final Entry<V> e = new Entry<V>(symbol, value, valueCost);
+        ring.add(e);
+        cost += valueCost;
+        page.set(symbol & PAGE_MASK, e);
+        return value;
+    }
+
+    /** Advances the clock hand to the first unreferenced entry and evicts it */
+    private void evictOne() {
+        while( true ) {
+            if( hand >= ring.size() ) {
+                hand = 0;
+            }
+            final Entry<V> e = ring.get(hand);
+            if( e.referenced ) {
+                e.referenced = false;
+                hand++;
+            } else {
+                // the last entry takes the slot, the hand then tests it next
+                final Entry<V> last = ring.remove(ring.size() - 1);
+                if( last != e ) {
+                    ring.set(hand, last);
+                }
+                pages.get(e.symbol >>> PAGE_BITS).set(e.symbol & PAGE_MASK, null);
+                cost -= e.cost;
+                evictions.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    /** Removes all entries, the statistics are kept. */
+    public final synchronized void clear() {
+        for(int i=0; i<pages.length(); i++) {
+            pages.set(i, null);
+        }
+        ring.clear();
+        hand = 0;
+        cost = 0;
+    }
+
+    /** Returns the number of entries. */
+    public final synchronized int size() { return ring.size(); }
+
+    /** Returns the sum of the entry costs. */
+    public final synchronized long getCost() { return cost; }
+
+    /** Returns the number of {@link #get(char)} calls finding a value. */
+    public final long getHitCount() { return hits.get(); }
+
+    /** Returns the number of {@link #get(char)} calls finding no value. */
+    public final long getMissCount() { return misses.get(); }
+
+    /** Returns the number of evicted entries. */
+    public final long getEvictionCount() { return evictions.get(); }
+
+    @Override
+    public String toString() {
+        return "GlyphCache[entries "+size()+"/"+(Integer.MAX_VALUE == maxEntries ? "unlimited" : String.valueOf(maxEntries))+
+               ", cost "+getCost()+"/"+(Long.MAX_VALUE == maxCost ? "unlimited" : String.valueOf(maxCost))+
+               ", hits "+getHitCount()+", misses "+getMissCount()+", evictions "+getEvictionCount()+"]";
+    }
+}
@@ -27,6 +27,10 @@
  */
 package jogamp.graph.font.typecast;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import jogamp.graph.font.GlyphCache;
 import jogamp.graph.font.typecast.ot.OTFont;
 import jogamp.graph.font.typecast.ot.OTFontCollection;
 import jogamp.graph.font.typecast.ot.table.CmapFormat;
@@ -36,10 +40,11 @@ import jogamp.graph.font.typecast.ot.table.HdmxTable;
 import jogamp.graph.font.typecast.ot.table.ID;
 import jogamp.graph.geom.plane.AffineTransform;
 
-import com.jogamp.common.util.IntObjectHashMap;
+import com.jogamp.common.util.PropertyAccess;
 import com.jogamp.graph.curve.OutlineShape;
 import com.jogamp.graph.font.Font;
 import com.jogamp.graph.font.FontFactory;
+import com.jogamp.graph.font.GlyphRun;
 import com.jogamp.graph.geom.SVertex;
 import com.jogamp.graph.geom.Vertex;
 import com.jogamp.opengl.math.geom.AABBox;
@@ -48,14 +53,48 @@ class TypecastFont implements Font {
     static final boolean DEBUG = false;
     private static final Vertex.Factory<SVertex> vertexFactory = SVertex.factory();
 
+    /** Maximum number of cached glyphs per font, property <code>jogamp.graph.font.glyphcache.maxEntries</code>, default unlimited. */
+    private static final int GLYPH_CACHE_MAX_ENTRIES = PropertyAccess.getIntProperty("jogamp.graph.font.glyphcache.maxEntries", true, 0);
+    /** Maximum estimated bytes of cached glyphs per font, property <code>jogamp.graph.font.glyphcache.maxBytes</code>, default 8 MiB. */
+    private static final long GLYPH_CACHE_MAX_BYTES = PropertyAccess.getLongProperty("jogamp.graph.font.glyphcache.maxBytes", true, 8L << 20);
+    /** Maximum number of cached {@link GlyphRun}s per font, property <code>jogamp.graph.font.shapecache.maxEntries</code>, default 256. Zero disables the cache. */
+    private static final int SHAPE_CACHE_MAX_ENTRIES = PropertyAccess.getIntProperty("jogamp.graph.font.shapecache.maxEntries", true, 256);
+
+    /** {@link GlyphRun} cache key */
+    private static final class ShapeKey {
+        final String string;
+        final int pixelSizeBits;
+        final int hash;
+
+        ShapeKey(final String string, final float pixelSize) {
+            this.string = string;
+            this.pixelSizeBits = Float.floatToIntBits(pixelSize);
+            this.hash = 31 * string.hashCode() + pixelSizeBits;
+        }
+        @Override
+        public final int hashCode() { return hash; }
+        @Override
+        public final boolean equals(final Object o) {
+            if( this == o ) {
+                return true;
+            }
+            if( !(o instanceof ShapeKey) ) {
+                return false;
+            }
+            final ShapeKey k = (ShapeKey) o;
+            return pixelSizeBits == k.pixelSizeBits && string.equals(k.string);
+        }
+    }
+
     // private final OTFontCollection fontset;
     /* pp */ final OTFont font;
     private final CmapFormat cmapFormat;
     private final int cmapentries;
-    private final IntObjectHashMap char2Glyph;
+    private final GlyphCache<TypecastGlyph> char2Glyph;
+    private final GlyphCache<TypecastGlyph> id2Glyph;
+    private volatile TypecastShaper shaper;
+    private final LinkedHashMap<ShapeKey, GlyphRun> shapeCache;
     private final TypecastHMetrics metrics;
-    private final float[] tmpV3 = new float[3];
-    // FIXME: Add cache size to limit memory usage ??
 
     public TypecastFont(final OTFontCollection fontset) {
         // this.fontset = fontset;
@@ -144,7 +183,16 @@ class TypecastFont implements Font {
                 }
             }
         }
-        char2Glyph = new IntObjectHashMap(cmapentries + cmapentries/4);
+        char2Glyph = new GlyphCache<TypecastGlyph>(GLYPH_CACHE_MAX_ENTRIES, GLYPH_CACHE_MAX_BYTES);
+        id2Glyph = new GlyphCache<TypecastGlyph>(GLYPH_CACHE_MAX_ENTRIES, GLYPH_CACHE_MAX_BYTES);
+        shaper = null;
+        shapeCache = new LinkedHashMap<ShapeKey, GlyphRun>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<ShapeKey, GlyphRun> eldest) {
+                return size() > SHAPE_CACHE_MAX_ENTRIES;
+            }
+        };
         metrics = new TypecastHMetrics(this);
     }
 
@@ -177,9 +225,28 @@ class TypecastFont implements Font {
         return metrics;
     }
 
+    /** Estimated heap size of a glyph and its {@link OutlineShape} in bytes. */
+    private static int estimateSize(final OutlineShape shape) {
+        int size = 128;
+        if( null != shape ) {
+            for(int i=0; i<shape.getOutlineNumber(); i++) {
+                size += 64 + shape.getOutline(i).getVertexCount() * 96;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Glyphs are cached in a bounded {@link GlyphCache}, lookups are lock-free.
+     * Concurrent misses for the same symbol may build the glyph more than once,
+     * but all callers receive the cached instance.
+     * </p>
+     */
     @Override
     public Glyph getGlyph(final char symbol) {
-        TypecastGlyph result = (TypecastGlyph) char2Glyph.get(symbol);
+        TypecastGlyph result = char2Glyph.get(symbol);
         if (null == result) {
             // final short code = (short) char2Code.get(symbol);
             short code = (short) cmapFormat.mapCharCode(symbol);
@@ -191,40 +258,109 @@ class TypecastFont implements Font {
                     default:   code = Glyph.ID_UNKNOWN;
                 }
             }
+            result = createGlyph(symbol, code);
+            result = char2Glyph.put(symbol, result, estimateSize(result.getShape()));
+        }
+        return result;
+    }
 
-            jogamp.graph.font.typecast.ot.OTGlyph glyph = font.getGlyph(code);
-            if(null == glyph) {
-                glyph = font.getGlyph(Glyph.ID_UNKNOWN);
-            }
-            if(null == glyph) {
-                throw new RuntimeException("Could not retrieve glyph for symbol: <"+symbol+"> "+(int)symbol+" -> glyph id "+code);
-            }
-            final OutlineShape shape = TypecastRenderer.buildShape(symbol, glyph, vertexFactory);
-            result = new TypecastGlyph(this, symbol, code, glyph.getBBox(), glyph.getAdvanceWidth(), shape);
-            if(DEBUG) {
-                System.err.println("New glyph: " + (int)symbol + " ( " + symbol +" ) -> " + code + ", contours " + glyph.getPointCount() + ": " + shape);
-            }
-            glyph.clearPointData();
-
-            final HdmxTable hdmx = font.getHdmxTable();
-            if (null!= result && null != hdmx) {
-                /*if(DEBUG) {
-                    System.err.println("hdmx "+hdmx);
-                }*/
-                for (int i=0; i<hdmx.getNumberOfRecords(); i++)
-                {
-                    final HdmxTable.DeviceRecord dr = hdmx.getRecord(i);
-                    result.addAdvance(dr.getWidth(code), dr.getPixelSize());
-                    /* if(DEBUG) {
-                        System.err.println("hdmx advance : pixelsize = "+dr.getWidth(code)+" : "+ dr.getPixelSize());
-                    } */
-                }
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Glyphs are cached separately from those {@link #getGlyph(char) retrieved by symbol}.
+     * </p>
+     */
+    @Override
+    public Glyph getGlyphByID(final int glyphID) {
+        final char key = (char) glyphID;
+        TypecastGlyph result = id2Glyph.get(key);
+        if (null == result) {
+            result = createGlyph((char)0, (short)glyphID);
+            result = id2Glyph.put(key, result, estimateSize(result.getShape()));
+        }
+        return result;
+    }
+
+    private TypecastGlyph createGlyph(final char symbol, final short code) {
+        jogamp.graph.font.typecast.ot.OTGlyph glyph = font.getGlyph(code);
+        if(null == glyph) {
+            glyph = font.getGlyph(Glyph.ID_UNKNOWN);
+        }
+        if(null == glyph) {
+            throw new RuntimeException("Could not retrieve glyph for symbol: <"+symbol+"> "+(int)symbol+" -> glyph id "+code);
+        }
+        final OutlineShape shape = TypecastRenderer.buildShape(symbol, glyph, vertexFactory);
+        final TypecastGlyph result = new TypecastGlyph(this, symbol, code, glyph.getBBox(), glyph.getAdvanceWidth(), shape);
+        if(DEBUG) {
+            System.err.println("New glyph: " + (int)symbol + " ( " + symbol +" ) -> " + code + ", contours " + glyph.getPointCount() + ": " + shape + ", " + char2Glyph);
+        }
+        glyph.clearPointData();
+
+        final HdmxTable hdmx = font.getHdmxTable();
+        if (null != hdmx) {
+            /*if(DEBUG) {
+                System.err.println("hdmx "+hdmx);
+            }*/
+            for (int i=0; i<hdmx.getNumberOfRecords(); i++)
+            {
+                final HdmxTable.DeviceRecord dr = hdmx.getRecord(i);
+                result.addAdvance(dr.getWidth(code), dr.getPixelSize());
+                /* if(DEBUG) {
+                    System.err.println("hdmx advance : pixelsize = "+dr.getWidth(code)+" : "+ dr.getPixelSize());
+                } */
             }
-            char2Glyph.put(symbol, result);
         }
         return result;
     }
 
+    @Override
+    public int getGlyphID(final char symbol) {
+        return cmapFormat.mapCharCode(symbol);
+    }
+
+    private TypecastShaper getShaper() {
+        TypecastShaper s = shaper;
+        if( null == s ) {
+            shaper = s = new TypecastShaper(font); // idempotent
+        }
+        return s;
+    }
+
+    @Override
+    public float getKerning(final int leftGlyphID, final int rightGlyphID, final float pixelSize) {
+        return getShaper().getKerning(leftGlyphID, rightGlyphID) * metrics.getScale(pixelSize);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Applies the GSUB single and ligature substitutions of the default features
+     * <code>ccmp, locl, rlig, liga</code> and <code>clig</code> as well as the 'kern' table pair kerning.
+     * </p>
+     * <p>
+     * Results are kept in a LRU cache of at most <code>jogamp.graph.font.shapecache.maxEntries</code> runs.
+     * Cached runs only reference their glyphs by symbol or ID, hence don't hold glyphs evicted from the glyph cache.
+     * </p>
+     */
+    @Override
+    public GlyphRun getGlyphRun(final CharSequence string, final float pixelSize) {
+        if( 0 >= SHAPE_CACHE_MAX_ENTRIES ) {
+            return getShaper().shape(this, string, pixelSize);
+        }
+        final ShapeKey key = new ShapeKey(string.toString(), pixelSize);
+        GlyphRun run;
+        synchronized( shapeCache ) {
+            run = shapeCache.get(key);
+        }
+        if( null == run ) {
+            run = getShaper().shape(this, key.string, pixelSize);
+            synchronized( shapeCache ) {
+                shapeCache.put(key, run);
+            }
+        }
+        return run;
+    }
+
     @Override
     public final float getPixelSize(final float fontSize /* points per inch */, final float resolution) {
         return fontSize * resolution / ( 72f /* points per inch */ );
@@ -259,6 +395,7 @@ class TypecastFont implements Font {
     @Override
     public float getMetricHeight(final CharSequence string, final float pixelSize, final AABBox tmp) {
         int height = 0;
+        final float[] tmpV3 = new float[3];
 
         for (int i=0; i<string.length(); i++) {
             final char character = string.charAt(i);
@@ -279,23 +416,19 @@ class TypecastFont implements Font {
         final int charCount = string.length();
         final float lineHeight = getLineHeight(pixelSize);
         float totalHeight = 0;
-        float totalWidth = 0;
-        float curLineWidth = 0;
+        boolean curLineUsed = false;
         for (int i=0; i<charCount; i++) {
-            final char character = string.charAt(i);
-            if (character == '\n') {
-                totalWidth = Math.max(curLineWidth, totalWidth);
-                curLineWidth = 0;
+            if (string.charAt(i) == '\n') {
+                curLineUsed = false;
                 totalHeight += lineHeight;
-                continue;
+            } else {
+                curLineUsed = true;
             }
-            final Glyph glyph = getGlyph(character);
-            curLineWidth += glyph.getAdvance(pixelSize, true);
         }
-        if (curLineWidth > 0) {
+        if (curLineUsed) {
             totalHeight += lineHeight;
-            totalWidth = Math.max(curLineWidth, totalWidth);
         }
+        final float totalWidth = getGlyphRun(string, pixelSize).getWidth();
         return new AABBox(0, 0, 0, totalWidth, totalHeight,0);
     }
     @Override
@@ -304,42 +437,22 @@ class TypecastFont implements Font {
         if (string == null) {
             return new AABBox();
         }
-        final int charCount = string.length();
-        final float lineHeight = getLineHeight(pixelSize);
+        final GlyphRun run = getGlyphRun(string, pixelSize);
         final float scale = getMetrics().getScale(pixelSize);
         final AABBox tbox = new AABBox();
         final AABBox res = new AABBox();
 
-        float y = 0;
-        float advanceTotal = 0;
-
-        for(int i=0; i< charCount; i++) {
-            final char character = string.charAt(i);
-            if( '\n' == character ) {
-                y -= lineHeight;
-                advanceTotal = 0;
-            } else if (character == ' ') {
-                advanceTotal += getAdvanceWidth(Glyph.ID_SPACE, pixelSize);
+        for(int i=0; i< run.getGlyphCount(); i++) {
+            // reset transform
+            if( null != transform ) {
+                temp1.setTransform(transform);
             } else {
-                // reset transform
-                if( null != transform ) {
-                    temp1.setTransform(transform);
-                } else {
-                    temp1.setToIdentity();
-                }
-                temp1.translate(advanceTotal, y, temp2);
-                temp1.scale(scale, scale, temp2);
-                tbox.reset();
-
-                final Font.Glyph glyph = getGlyph(character);
-                res.resize(temp1.transform(glyph.getBBox(), tbox));
-
-                final OutlineShape glyphShape = glyph.getShape();
-                if( null == glyphShape ) {
-                    continue;
-                }
-                advanceTotal += glyph.getAdvance(pixelSize, true);
+                temp1.setToIdentity();
             }
+            temp1.translate(run.getX(i), run.getY(i), temp2);
+            temp1.scale(scale, scale, temp2);
+            tbox.reset();
+            res.resize(temp1.transform(run.getGlyph(i).getBBox(), tbox));
         }
         return res;
     }
@@ -0,0 +1,232 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package jogamp.graph.font.typecast;
+
+import jogamp.graph.font.typecast.ot.OTFont;
+import jogamp.graph.font.typecast.ot.table.GsubTable;
+import jogamp.graph.font.typecast.ot.table.KernTable;
+import jogamp.graph.font.typecast.ot.table.Ligature;
+import jogamp.graph.font.typecast.ot.table.LigatureSet;
+import jogamp.graph.font.typecast.ot.table.LigatureSubstFormat1;
+import jogamp.graph.font.typecast.ot.table.Lookup;
+import jogamp.graph.font.typecast.ot.table.LookupSubtable;
+import jogamp.graph.font.typecast.ot.table.SingleSubst;
+
+import com.jogamp.graph.font.Font;
+import com.jogamp.graph.font.Font.Glyph;
+import com.jogamp.graph.font.GlyphRun;
+
+/**
+ * Shapes and lays out strings of a {@link TypecastFont} to {@link GlyphRun}s.
+ * <p>
+ * Applies the GSUB single and ligature substitutions of the default shaping features
+ * for the latin script and pair kerning of the 'kern' table.
+ * Space and newline characters terminate substitution and kerning context.
+ * </p>
+ * <p>
+ * Immutable after construction, hence thread safe.
+ * </p>
+ */
+final class TypecastShaper {
+    static final String SCRIPT = "latn";
+    /** GSUB features applied by default, lookups are applied in lookup list order. */
+    static final String[] FEATURES = { "ccmp", "locl", "rlig", "liga", "clig" };
+
+    private static final int LOOKUP_SINGLE = 1;
+    private static final int LOOKUP_LIGATURE = 4;
+
+    private final KernTable kern;
+    private final Lookup[] lookups;
+
+    TypecastShaper(final OTFont font) {
+        kern = font.getKernTable();
+        final GsubTable gsub = font.getGsubTable();
+        if( null != gsub ) {
+            final Lookup[] all = gsub.getLookups(SCRIPT, FEATURES);
+            int n = 0;
+            for(int i=0; i<all.length; i++) {
+                final int type = all[i].getType();
+                if( LOOKUP_SINGLE == type || LOOKUP_LIGATURE == type ) {
+                    all[n++] = all[i];
+                }
+            }
+            lookups = new Lookup[n];
+            System.arraycopy(all, 0, lookups, 0, n);
+        } else {
+            lookups = new Lookup[0];
+        }
+    }
+
+    /** Returns true if the font provides kerning pairs. */
+    final boolean hasKerning() { return null != kern; }
+
+    /** Returns the number of applied substitution lookups. */
+    final int getLookupCount() { return lookups.length; }
+
+    /** Returns the kerning of the given glyph pair in font units. */
+    final int getKerning(final int left, final int right) {
+        return null != kern ? kern.getKerning(left, right) : 0;
+    }
+
+    /**
+     * Applies the substitution lookups to the given glyph IDs.
+     * Substituted glyphs get their symbol cleared to zero.
+     * @return the new glyph count
+     */
+    final int substitute(final int[] ids, final char[] symbols, int count) {
+        for(int l=0; l<lookups.length; l++) {
+            final Lookup lookup = lookups[l];
+            if( LOOKUP_SINGLE == lookup.getType() ) {
+                for(int i=0; i<count; i++) {
+                    for(int s=0; s<lookup.getSubtableCount(); s++) {
+                        final LookupSubtable st = lookup.getSubtable(s);
+                        if( st instanceof SingleSubst ) {
+                            final int id = ((SingleSubst)st).substitute(ids[i]);
+                            if( id != ids[i] ) {
+                                ids[i] = id;
+                                symbols[i] = 0;
+                                break;
+                            }
+                        }
+                    }
+                }
+            } else {
+                for(int i=0; i<count; i++) {
+                    for(int s=0; s<lookup.getSubtableCount(); s++) {
+                        final LookupSubtable st = lookup.getSubtable(s);
+                        if( st instanceof LigatureSubstFormat1 ) {
+                            final int n = ligate((LigatureSubstFormat1)st, ids, symbols, i, count);
+                            if( n < count ) {
+                                count = n;
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Replaces the first matching ligature starting at index i.
+     * @return the new glyph count, unchanged if no ligature matched
+     */
+    private static int ligate(final LigatureSubstFormat1 subst, final int[] ids, final char[] symbols, final int i, final int count) {
+        final LigatureSet set = subst.getLigatureSet(ids[i]);
+        if( null == set ) {
+            return count;
+        }
+        for(int l=0; l<set.getLigatureCount(); l++) {
+            final Ligature lig = set.getLigature(l);
+            final int compCount = lig.getGlyphCount();
+            if( 1 < compCount && i + compCount <= count ) {
+                boolean match = true;
+                for(int c=1; match && c<compCount; c++) {
+                    match = ids[i+c] == lig.getGlyphId(c);
+                }
+                if( match ) {
+                    ids[i] = lig.getLigatureGlyph();
+                    symbols[i] = 0;
+                    final int removed = compCount - 1;
+                    System.arraycopy(ids, i+compCount, ids, i+1, count-i-compCount);
+                    System.arraycopy(symbols, i+compCount, symbols, i+1, count-i-compCount);
+                    return count - removed;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Shapes and lays out the given string.
+     */
+    final GlyphRun shape(final TypecastFont font, final CharSequence string, final float pixelSize) {
+        final int len = string.length();
+        final float scale = font.getMetrics().getScale(pixelSize);
+        final float lineHeight = font.getLineHeight(pixelSize);
+        final char[] runSymbols = new char[len];
+        final int[] runIDs = new int[len];
+        final float[] positions = new float[2*len];
+        final int[] ids = new int[len];
+        final char[] symbols = new char[len];
+        int glyphCount = 0;
+        int lineCount = 1;
+        float width = 0;
+        float x = 0;
+        float y = 0;
+
+        int i = 0;
+        while( i < len ) {
+            final char c = string.charAt(i);
+            if( '\n' == c ) {
+                width = Math.max(width, x);
+                x = 0;
+                y -= lineHeight;
+                lineCount++;
+                i++;
+            } else if( ' ' == c ) {
+                x += font.getAdvanceWidth(Glyph.ID_SPACE, pixelSize);
+                i++;
+            } else {
+                // segment up to the next space or newline
+                int n = 0;
+                while( i < len ) {
+                    final char s = string.charAt(i);
+                    if( '\n' == s || ' ' == s ) {
+                        break;
+                    }
+                    symbols[n] = s;
+                    ids[n] = font.getGlyphID(s);
+                    n++;
+                    i++;
+                }
+                if( 0 < lookups.length ) {
+                    n = substitute(ids, symbols, n);
+                }
+                int prevId = -1;
+                for(int k=0; k<n; k++) {
+                    final Font.Glyph glyph = 0 != symbols[k] ? font.getGlyph(symbols[k]) : font.getGlyphByID(ids[k]);
+                    final int id = glyph.getID() & 0xffff;
+                    if( 0 <= prevId ) {
+                        x += getKerning(prevId, id) * scale;
+                    }
+                    runSymbols[glyphCount] = symbols[k];
+                    runIDs[glyphCount] = id;
+                    positions[2*glyphCount] = x;
+                    positions[2*glyphCount+1] = y;
+                    glyphCount++;
+                    x += glyph.getAdvance(pixelSize, true);
+                    prevId = id;
+                }
+            }
+        }
+        width = Math.max(width, x);
+        return new GlyphRun(font, pixelSize, runSymbols, runIDs, positions, glyphCount, width, lineCount);
+    }
+}
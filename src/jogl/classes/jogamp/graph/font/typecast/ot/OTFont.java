@@ -53,14 +53,18 @@ package jogamp.graph.font.typecast.ot;
 import java.io.DataInputStream;
 import java.io.IOException;
 
+import com.jogamp.common.nio.ByteBufferInputStream;
+
 import jogamp.graph.font.typecast.ot.table.CmapTable;
 import jogamp.graph.font.typecast.ot.table.DirectoryEntry;
 import jogamp.graph.font.typecast.ot.table.GlyfDescript;
 import jogamp.graph.font.typecast.ot.table.GlyfTable;
+import jogamp.graph.font.typecast.ot.table.GsubTable;
 import jogamp.graph.font.typecast.ot.table.HdmxTable;
 import jogamp.graph.font.typecast.ot.table.HeadTable;
 import jogamp.graph.font.typecast.ot.table.HheaTable;
 import jogamp.graph.font.typecast.ot.table.HmtxTable;
+import jogamp.graph.font.typecast.ot.table.KernTable;
 import jogamp.graph.font.typecast.ot.table.LocaTable;
 import jogamp.graph.font.typecast.ot.table.MaxpTable;
 import jogamp.graph.font.typecast.ot.table.NameTable;
@@ -74,6 +78,12 @@ import jogamp.graph.font.typecast.ot.table.VheaTable;
 
 /**
  * The TrueType font.
+ * <p>
+ * Only the table directory and the <code>head</code>, <code>hhea</code> and <code>maxp</code> tables
+ * are parsed when reading the font, all other tables are parsed from the font data
+ * of the {@link OTFontCollection} on first access.
+ * Accessing the tables is thread safe.
+ * </p>
  * @version $Id: OTFont.java,v 1.6 2007-01-31 01:49:18 davidsch Exp $
  * @author <a href="mailto:davidsch@dev.java.net">David Schweinsberg</a>, Sven Gothel
  */
@@ -81,19 +91,14 @@ public class OTFont {
 
     private final OTFontCollection _fc;
     private TableDirectory _tableDirectory = null;
+    private int _tablesOrigin;
     private Table[] _tables;
-    private Os2Table _os2;
-    private CmapTable _cmap;
-    private GlyfTable _glyf;
+    private boolean[] _tablesRead;
     private HeadTable _head;
     private HheaTable _hhea;
-    private HdmxTable _hdmx;
-    private HmtxTable _hmtx;
-    private LocaTable _loca;
     private MaxpTable _maxp;
-    private NameTable _name;
-    private PostTable _post;
-    private VheaTable _vhea;
+    private volatile GlyfTable _glyf;
+    private volatile HmtxTable _hmtx;
 
     /**
      * Constructor
@@ -105,10 +110,11 @@ public class OTFont {
         if(null == sb) {
             sb = new StringBuilder();
         }
-        return _name.getRecordsRecordString(sb, nameIndex);
+        return getNameTable().getRecordsRecordString(sb, nameIndex);
     }
 
     public StringBuilder getAllNames(StringBuilder sb, final String separator) {
+        final NameTable _name = getNameTable();
         if(null != _name) {
             if(null == sb) {
                 sb = new StringBuilder();
@@ -120,9 +126,23 @@ public class OTFont {
         return sb;
     }
 
-    public Table getTable(final int tableType) {
-        for (int i = 0; i < _tables.length; i++) {
-            if ((_tables[i] != null) && (_tables[i].getType() == tableType)) {
+    /**
+     * Returns the table of the given type, parsing it on first access.
+     * @throws RuntimeException if the table data cannot be parsed
+     */
+    public synchronized Table getTable(final int tableType) {
+        for (int i = 0; i < _tableDirectory.getNumTables(); i++) {
+            final DirectoryEntry entry = _tableDirectory.getEntry(i);
+            if (entry.getTag() == tableType) {
+                if (!_tablesRead[i]) {
+                    try {
+                        _tables[i] = TableFactory.create(_fc, this, entry, _fc.getData(_tablesOrigin + entry.getOffset()));
+                    } catch (final IOException e) {
+                        throw new RuntimeException("Error reading table "+entry.getTagAsString(), e);
+                    } finally {
+                        _tablesRead[i] = true;
+                    }
+                }
                 return _tables[i];
             }
         }
@@ -130,11 +150,11 @@ public class OTFont {
     }
 
     public Os2Table getOS2Table() {
-        return _os2;
+        return (Os2Table) getTable(Table.OS_2);
     }
 
     public CmapTable getCmapTable() {
-        return _cmap;
+        return (CmapTable) getTable(Table.cmap);
     }
 
     public HeadTable getHeadTable() {
@@ -145,16 +165,39 @@ public class OTFont {
         return _hhea;
     }
 
+    public KernTable getKernTable() {
+        return (KernTable) getTable(Table.kern);
+    }
+
+    public GsubTable getGsubTable() {
+        return (GsubTable) getTable(Table.GSUB);
+    }
+
     public HdmxTable getHdmxTable() {
-        return _hdmx;
+        return (HdmxTable) getTable(Table.hdmx);
     }
 
     public HmtxTable getHmtxTable() {
-        return _hmtx;
+        HmtxTable hmtx = _hmtx;
+        if (hmtx == null) {
+            _hmtx = hmtx = (HmtxTable) getTable(Table.hmtx);
+        }
+        return hmtx;
     }
 
     public LocaTable getLocaTable() {
-        return _loca;
+        return (LocaTable) getTable(Table.loca);
+    }
+
+    /**
+     * Returns the 'glyf' table, only available for TrueType outlines.
+     */
+    public GlyfTable getGlyfTable() {
+        GlyfTable glyf = _glyf;
+        if (glyf == null) {
+            _glyf = glyf = (GlyfTable) getTable(Table.glyf);
+        }
+        return glyf;
     }
 
     public MaxpTable getMaxpTable() {
@@ -162,15 +205,15 @@ public class OTFont {
     }
 
     public NameTable getNameTable() {
-        return _name;
+        return (NameTable) getTable(Table.name);
     }
 
     public PostTable getPostTable() {
-        return _post;
+        return (PostTable) getTable(Table.post);
     }
 
     public VheaTable getVheaTable() {
-        return _vhea;
+        return (VheaTable) getTable(Table.vhea);
     }
 
     public int getAscent() {
@@ -187,12 +230,13 @@ public class OTFont {
 
     public OTGlyph getGlyph(final int i) {
 
-        final GlyfDescript _glyfDescr = _glyf.getDescription(i);
+        final GlyfDescript _glyfDescr = getGlyfTable().getDescription(i);
+        final HmtxTable hmtx = getHmtxTable();
         return (null != _glyfDescr)
             ? new OTGlyph(
                 _glyfDescr,
-                _hmtx.getLeftSideBearing(i),
-                _hmtx.getAdvanceWidth(i))
+                hmtx.getLeftSideBearing(i),
+                hmtx.getAdvanceWidth(i))
             : null;
     }
 
@@ -200,21 +244,8 @@ public class OTFont {
         return _tableDirectory;
     }
 
-    private Table readTable(
-            final DataInputStream dis,
-            final int tablesOrigin,
-            final int tag) throws IOException {
-        dis.reset();
-        final DirectoryEntry entry = _tableDirectory.getEntryByTag(tag);
-        if (entry == null) {
-            return null;
-        }
-        dis.skip(tablesOrigin + entry.getOffset());
-        return TableFactory.create(_fc, this, entry, dis);
-    }
-
     /**
-     * @param dis OpenType/TrueType font file data.
+     * Reads the table directory and the prerequisite tables from the font data of the collection.
      * @param directoryOffset The Table Directory offset within the file.  For a
      * regular TTF/OTF file this will be zero, but for a TTC (Font Collection)
      * the offset is retrieved from the TTC header.  For a Mac font resource,
@@ -225,62 +256,26 @@ public class OTFont {
      * individual font resource data.
      */
     protected void read(
-            final DataInputStream dis,
             final int directoryOffset,
             final int tablesOrigin) throws IOException {
 
         // Load the table directory
-        dis.reset();
-        dis.skip(directoryOffset);
-        _tableDirectory = new TableDirectory(dis);
+        _tableDirectory = new TableDirectory(new DataInputStream(new ByteBufferInputStream(_fc.getData(directoryOffset))));
+        _tablesOrigin = tablesOrigin;
         _tables = new Table[_tableDirectory.getNumTables()];
-
-        // Load some prerequisite tables
-        _head = (HeadTable) readTable(dis, tablesOrigin, Table.head);
-        _hhea = (HheaTable) readTable(dis, tablesOrigin, Table.hhea);
-        _maxp = (MaxpTable) readTable(dis, tablesOrigin, Table.maxp);
-        _loca = (LocaTable) readTable(dis, tablesOrigin, Table.loca);
-        _vhea = (VheaTable) readTable(dis, tablesOrigin, Table.vhea);
-
-        int index = 0;
-        _tables[index++] = _head;
-        _tables[index++] = _hhea;
-        _tables[index++] = _maxp;
-        if (_loca != null) {
-            _tables[index++] = _loca;
-        }
-        if (_vhea != null) {
-            _tables[index++] = _vhea;
-        }
-
-        // Load all other tables
-        for (int i = 0; i < _tableDirectory.getNumTables(); i++) {
-            final DirectoryEntry entry = _tableDirectory.getEntry(i);
-            if (entry.getTag() == Table.head
-                    || entry.getTag() == Table.hhea
-                    || entry.getTag() == Table.maxp
-                    || entry.getTag() == Table.loca
-                    || entry.getTag() == Table.vhea) {
-                continue;
+        _tablesRead = new boolean[_tableDirectory.getNumTables()];
+
+        // Load some prerequisite tables, all others are read on demand
+        try {
+            _head = (HeadTable) getTable(Table.head);
+            _hhea = (HheaTable) getTable(Table.hhea);
+            _maxp = (MaxpTable) getTable(Table.maxp);
+        } catch (final RuntimeException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
             }
-            dis.reset();
-            dis.skip(tablesOrigin + entry.getOffset());
-            _tables[index] = TableFactory.create(_fc, this, entry, dis);
-            ++index;
+            throw e;
         }
-
-        // Get references to commonly used tables (these happen to be all the
-        // required tables)
-        _cmap = (CmapTable) getTable(Table.cmap);
-        _hdmx = (HdmxTable) getTable(Table.hdmx);
-        _hmtx = (HmtxTable) getTable(Table.hmtx);
-        _name = (NameTable) getTable(Table.name);
-        _os2 = (Os2Table) getTable(Table.OS_2);
-        _post = (PostTable) getTable(Table.post);
-
-        // If this is a TrueType outline, then we'll have at least the
-        // 'glyf' table (along with the 'loca' table)
-        _glyf = (GlyfTable) getTable(Table.glyf);
     }
 
     @Override
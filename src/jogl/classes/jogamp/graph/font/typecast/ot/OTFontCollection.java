@@ -20,14 +20,19 @@
 
 package jogamp.graph.font.typecast.ot;
 
-import java.io.File;
-import java.io.BufferedInputStream;
 import java.io.DataInputStream;
-import java.io.FileInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-
+import java.io.RandomAccessFile;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+
+import com.jogamp.common.nio.ByteBufferInputStream;
 
 import jogamp.graph.font.typecast.ot.mac.ResourceHeader;
 import jogamp.graph.font.typecast.ot.mac.ResourceMap;
@@ -39,6 +44,13 @@ import jogamp.graph.font.typecast.ot.table.Table;
 
 
 /**
+ * The font data is held in one {@link ByteBuffer}.
+ * Font files are memory mapped read-only, where all collections created from the same
+ * unmodified file share one mapping. Font streams are read into a heap buffer.
+ * <p>
+ * Only the table directories and a few prerequisite tables are parsed up front,
+ * all other tables are parsed on first access, see {@link OTFont#getTable(int)}.
+ * </p>
  *
  * @author <a href="mailto:davidsch@dev.java.net">David Schweinsberg</a>
  * @version $Id: OTFontCollection.java,v 1.6 2010-08-10 11:38:11 davidsch Exp $
@@ -51,6 +63,10 @@ public class OTFontCollection {
     private OTFont[] _fonts;
     private final ArrayList<Table> _tables = new ArrayList<Table>();
     private boolean _resourceFork = false;
+    private ByteBuffer _buffer;
+
+    /** Shared read-only mappings of font files, key is the canonical path, length and modification time */
+    private static final HashMap<String, WeakReference<ByteBuffer>> _mappedFiles = new HashMap<String, WeakReference<ByteBuffer>>();
 
     /** Creates new FontCollection */
     protected OTFontCollection() {
@@ -95,7 +111,21 @@ public class OTFontCollection {
         return _ttcHeader;
     }
 
-    public Table getTable(final DirectoryEntry de) {
+    /**
+     * Returns the font data starting at the given offset, reaching up to the end of the data.
+     * The returned buffer is independent and may be consumed by the caller.
+     */
+    public ByteBuffer getData(final int offset) {
+        final ByteBuffer b = _buffer.duplicate();
+        b.position(offset);
+        return b.slice();
+    }
+
+    private DataInputStream getDataInput(final int offset) {
+        return new DataInputStream(new ByteBufferInputStream(getData(offset)));
+    }
+
+    public synchronized Table getTable(final DirectoryEntry de) {
         for (int i = 0; i < _tables.size(); i++) {
             final Table table = _tables.get(i);
             if ((table.getDirectoryEntry().getTag() == de.getTag()) &&
@@ -106,7 +136,7 @@ public class OTFontCollection {
         return null;
     }
 
-    public void addTable(final Table table) {
+    public synchronized void addTable(final Table table) {
         _tables.add(table);
     }
 
@@ -130,13 +160,7 @@ public class OTFontCollection {
             }
             _resourceFork = true;
         }
-        final int streamLen = (int) file.length();
-        final BufferedInputStream bis = new BufferedInputStream(new FileInputStream(file), streamLen);
-        try {
-            readImpl(bis, streamLen);
-        } finally {
-            bis.close();
-        }
+        readImpl(map(file));
     }
 
     /**
@@ -146,33 +170,57 @@ public class OTFontCollection {
     protected void read(final InputStream is, final int streamLen) throws IOException {
         _pathName = "";
         _fileName = "";
-        final InputStream bis;
-        if( is.markSupported() ) {
-            bis = is;
-        } else {
-            bis = new BufferedInputStream(is, streamLen);
-        }
-        readImpl(bis, streamLen);
+        final byte[] data = new byte[streamLen];
+        new DataInputStream(is).readFully(data);
+        readImpl(ByteBuffer.wrap(data));
     }
 
     /**
-     * @param is The OpenType font stream, must {@link InputStream#markSupported() support mark}!
+     * Returns the shared read-only mapping of the given file, creating it if required.
+     * If the file cannot be mapped, e.g. a resource fork, it is read into a heap buffer.
      */
-    private void readImpl(final InputStream bis, final int streamLen) throws IOException {
-        if( !bis.markSupported() ) {
-            throw new IllegalArgumentException("stream of type "+bis.getClass().getName()+" doesn't support mark");
+    private static ByteBuffer map(final File file) throws IOException {
+        final String key = file.getCanonicalPath()+":"+file.length()+":"+file.lastModified();
+        synchronized( _mappedFiles ) {
+            final WeakReference<ByteBuffer> ref = _mappedFiles.get(key);
+            ByteBuffer buffer = null != ref ? ref.get() : null;
+            if( null == buffer ) {
+                final RandomAccessFile raf = new RandomAccessFile(file, "r");
+                try {
+                    try {
+                        buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+                    } catch (final IOException ioe) {
+                        final byte[] data = new byte[(int) raf.length()];
+                        raf.readFully(data);
+                        buffer = ByteBuffer.wrap(data);
+                    }
+                } finally {
+                    raf.close();
+                }
+                for(final Iterator<WeakReference<ByteBuffer>> it = _mappedFiles.values().iterator(); it.hasNext(); ) {
+                    if( null == it.next().get() ) {
+                        it.remove();
+                    }
+                }
+                _mappedFiles.put(key, new WeakReference<ByteBuffer>(buffer));
+            }
+            return buffer;
         }
-        bis.mark(streamLen);
-        final DataInputStream dis = new DataInputStream(bis);
+    }
+
+    /**
+     * @param buffer The OpenType font data
+     */
+    private void readImpl(final ByteBuffer buffer) throws IOException {
+        _buffer = buffer;
+        final DataInputStream dis = getDataInput(0);
         if (_resourceFork || _pathName.endsWith(".dfont")) {
 
             // This is a Macintosh font suitcase resource
             final ResourceHeader resourceHeader = new ResourceHeader(dis);
 
             // Seek to the map offset and read the map
-            dis.reset();
-            dis.skip(resourceHeader.getMapOffset());
-            final ResourceMap map = new ResourceMap(dis);
+            final ResourceMap map = new ResourceMap(getDataInput(resourceHeader.getMapOffset()));
 
             // Get the 'sfnt' resources
             final ResourceType resourceType = map.getResourceType("sfnt");
@@ -184,25 +232,24 @@ public class OTFontCollection {
                 _fonts[i] = new OTFont(this);
                 final int offset = resourceHeader.getDataOffset() +
                         resourceReference.getDataOffset() + 4;
-                _fonts[i].read(dis, offset, offset);
+                _fonts[i].read(offset, offset);
             }
 
         } else if (TTCHeader.isTTC(dis)) {
 
             // This is a TrueType font collection
-            dis.reset();
-            _ttcHeader = new TTCHeader(dis);
+            _ttcHeader = new TTCHeader(getDataInput(0));
             _fonts = new OTFont[_ttcHeader.getDirectoryCount()];
             for (int i = 0; i < _ttcHeader.getDirectoryCount(); i++) {
                 _fonts[i] = new OTFont(this);
-                _fonts[i].read(dis, _ttcHeader.getTableDirectory(i), 0);
+                _fonts[i].read(_ttcHeader.getTableDirectory(i), 0);
             }
         } else {
 
             // This is a standalone font file
             _fonts = new OTFont[1];
             _fonts[0] = new OTFont(this);
-            _fonts[0].read(dis, 0, 0);
+            _fonts[0].read(0, 0);
         }
     }
 }
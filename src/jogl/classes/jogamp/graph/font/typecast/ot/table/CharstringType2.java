@@ -21,6 +21,7 @@
 package jogamp.graph.font.typecast.ot.table;
 
 import jogamp.graph.font.typecast.ot.table.CffTable;
+import jogamp.graph.font.typecast.t2.T2Program;
 
 /**
  * CFF Type 2 Charstring
@@ -114,6 +115,7 @@ public class CharstringType2 extends Charstring {
     private final CffTable.Index _localSubrIndex;
     private final CffTable.Index _globalSubrIndex;
     private int _ip;
+    private T2Program _program;
 
     /** Creates a new instance of CharstringType2 */
     protected CharstringType2(
@@ -165,6 +167,21 @@ public class CharstringType2 extends Charstring {
         sb.append(mnemonic);
     }
 
+    /**
+     * Returns this charstring pre-decoded for the
+     * {@link jogamp.graph.font.typecast.t2.T2Interpreter T2Interpreter},
+     * decoded once and cached with the font's {@link CffTable}.
+     * <p>
+     * Decoding uses the instruction pointer, hence it is synchronized.
+     * </p>
+     */
+    public synchronized T2Program getProgram() {
+        if( null == _program ) {
+            _program = T2Program.decode(this);
+        }
+        return _program;
+    }
+
     public void resetIP() {
         _ip = _offset;
     }
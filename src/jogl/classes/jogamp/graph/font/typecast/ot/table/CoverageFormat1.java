@@ -77,11 +77,25 @@ public class CoverageFormat1 extends Coverage {
         return 1;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Binary search, glyph IDs are sorted in ascending order.
+     * </p>
+     */
     @Override
     public int findGlyph(final int glyphId) {
-        for (int i = 0; i < _glyphCount; i++) {
-            if (_glyphIds[i] == glyphId) {
-                return i;
+        int lo = 0;
+        int hi = _glyphCount - 1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            final int id = _glyphIds[mid];
+            if (id < glyphId) {
+                lo = mid + 1;
+            } else if (id > glyphId) {
+                hi = mid - 1;
+            } else {
+                return mid;
             }
         }
         return -1;
@@ -77,12 +77,25 @@ public class CoverageFormat2 extends Coverage {
         return 2;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Binary search, ranges are sorted by their start glyph ID.
+     * </p>
+     */
     @Override
     public int findGlyph(final int glyphId) {
-        for (int i = 0; i < _rangeCount; i++) {
-            final int n = _rangeRecords[i].getCoverageIndex(glyphId);
-            if (n > -1) {
-                return n;
+        int lo = 0;
+        int hi = _rangeCount - 1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            final RangeRecord r = _rangeRecords[mid];
+            if (r.getEnd() < glyphId) {
+                lo = mid + 1;
+            } else if (r.getStart() > glyphId) {
+                hi = mid - 1;
+            } else {
+                return r.getCoverageIndex(glyphId);
             }
         }
         return -1;
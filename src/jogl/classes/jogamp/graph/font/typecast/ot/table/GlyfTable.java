@@ -50,70 +50,83 @@
 
 package jogamp.graph.font.typecast.ot.table;
 
-import java.io.ByteArrayInputStream;
-import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.jogamp.common.nio.ByteBufferInputStream;
 
 /**
+ * The glyph descriptions are parsed on demand from the table data,
+ * i.e. when first requested via {@link #getDescription(int)}.
  * @version $Id: GlyfTable.java,v 1.6 2010-08-10 11:46:30 davidsch Exp $
  * @author <a href="mailto:davidsch@dev.java.net">David Schweinsberg</a>
  */
 public class GlyfTable implements Table {
 
+    private static final byte PENDING = 0;
+    private static final byte PARSING = 1;
+    private static final byte PARSED = 2;
+
     private final DirectoryEntry _de;
+    private final ByteBuffer _data;
+    private final LocaTable _loca;
     private final GlyfDescript[] _descript;
+    private final byte[] _state;
 
+    /**
+     * @param data the font data starting at this table
+     */
     protected GlyfTable(
             final DirectoryEntry de,
-            final DataInput di,
+            final ByteBuffer data,
             final MaxpTable maxp,
-            final LocaTable loca) throws IOException {
+            final LocaTable loca) {
         _de = (DirectoryEntry) de.clone();
+        _data = data;
+        _loca = loca;
         _descript = new GlyfDescript[maxp.getNumGlyphs()];
+        _state = new byte[maxp.getNumGlyphs()];
+    }
 
-        // Buffer the whole table so we can randomly access it
-        final byte[] buf = new byte[de.getLength()];
-        di.readFully(buf);
-        final ByteArrayInputStream bais = new ByteArrayInputStream(buf);
-
-        // Process all the simple glyphs
-        for (int i = 0; i < maxp.getNumGlyphs(); i++) {
-            final int len = loca.getOffset(i + 1) - loca.getOffset(i);
-            if (len > 0) {
-                bais.reset();
-                bais.skip(loca.getOffset(i));
-                final DataInputStream dis = new DataInputStream(bais);
-                final short numberOfContours = dis.readShort();
-                if (numberOfContours >= 0) {
-                    _descript[i] = new GlyfSimpleDescript(this, i, numberOfContours, dis);
-                }
-            } else {
-                _descript[i] = null;
-            }
+    /**
+     * Returns the description of the given glyph, parsing it on first access.
+     * @return the description or null if the glyph has no outline
+     * @throws RuntimeException if the glyph data cannot be parsed
+     */
+    public synchronized GlyfDescript getDescription(final int i) {
+        if (i < 0 || i >= _descript.length) {
+            return null;
         }
-
-        // Now do all the composite glyphs
-        for (int i = 0; i < maxp.getNumGlyphs(); i++) {
-            final int len = loca.getOffset(i + 1) - loca.getOffset(i);
-            if (len > 0) {
-                bais.reset();
-                bais.skip(loca.getOffset(i));
-                final DataInputStream dis = new DataInputStream(bais);
-                final short numberOfContours = dis.readShort();
-                if (numberOfContours < 0) {
-                    _descript[i] = new GlyfCompositeDescript(this, i, dis);
-                }
+        if (_state[i] == PENDING) {
+            _state[i] = PARSING;
+            try {
+                _descript[i] = parseDescription(i);
+            } catch (final IOException e) {
+                throw new RuntimeException("Error reading glyph "+i, e);
+            } finally {
+                _state[i] = PARSED;
             }
         }
+        // A composite glyph referring to itself while parsing yields null
+        return _descript[i];
     }
 
-    public GlyfDescript getDescription(final int i) {
-        if (i < _descript.length) {
-            return _descript[i];
-        } else {
+    private GlyfDescript parseDescription(final int i) throws IOException {
+        final int offset = _loca.getOffset(i);
+        final int len = _loca.getOffset(i + 1) - offset;
+        if (len <= 0) {
             return null;
         }
+        final ByteBuffer b = _data.duplicate();
+        b.position(offset);
+        final DataInputStream dis = new DataInputStream(new ByteBufferInputStream(b.slice()));
+        final short numberOfContours = dis.readShort();
+        if (numberOfContours >= 0) {
+            return new GlyfSimpleDescript(this, i, numberOfContours, dis);
+        } else {
+            return new GlyfCompositeDescript(this, i, dis);
+        }
     }
 
     @Override
@@ -148,6 +148,51 @@ public class GsubTable implements Table, LookupSubtableFactory {
         return _lookupList;
     }
 
+    /**
+     * Returns the {@link Lookup}s of the given features in {@link LookupList} order,
+     * i.e. the order they shall be applied.
+     * <p>
+     * The features are taken from the default language system of the given script,
+     * falling back to the <code>DFLT</code> and the first script.
+     * </p>
+     * @param scriptTag 4 character script tag, e.g. <code>latn</code>
+     * @param featureTags 4 character feature tags, e.g. <code>liga</code>
+     */
+    public Lookup[] getLookups(final String scriptTag, final String[] featureTags) {
+        Script script = _scriptList.findScript(scriptTag);
+        if (script == null || script.getDefaultLangSys() == null) {
+            script = _scriptList.findScript("DFLT");
+        }
+        if ((script == null || script.getDefaultLangSys() == null) && _scriptList.getScriptCount() > 0) {
+            script = _scriptList.getScript(0);
+        }
+        if (script == null || script.getDefaultLangSys() == null) {
+            return new Lookup[0];
+        }
+        final LangSys langSys = script.getDefaultLangSys();
+        final boolean[] used = new boolean[_lookupList.getLookupCount()];
+        int count = 0;
+        for (int i = 0; i < featureTags.length; i++) {
+            final Feature feature = _featureList.findFeature(langSys, featureTags[i]);
+            if (feature != null) {
+                for (int j = 0; j < feature.getLookupCount(); j++) {
+                    final int idx = feature.getLookupListIndex(j);
+                    if (idx < used.length && !used[idx]) {
+                        used[idx] = true;
+                        count++;
+                    }
+                }
+            }
+        }
+        final Lookup[] lookups = new Lookup[count];
+        for (int i = 0, j = 0; i < used.length; i++) {
+            if (used[i]) {
+                lookups[j++] = _lookupList.getLookup(i);
+            }
+        }
+        return lookups;
+    }
+
     @Override
     public String toString() {
         return "GSUB";
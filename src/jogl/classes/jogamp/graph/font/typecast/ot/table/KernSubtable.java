@@ -18,6 +18,8 @@ import java.io.IOException;
  */
 public abstract class KernSubtable {
 
+    private int _coverage;
+
     /** Creates new KernSubtable */
     protected KernSubtable() {
     }
@@ -26,23 +28,54 @@ public abstract class KernSubtable {
 
     public abstract KerningPair getKerningPair(int i);
 
+    /**
+     * Returns the kerning value of the given glyph pair in font units, zero if the pair is not kerned.
+     */
+    public abstract int getKerning(int left, int right);
+
+    /** Returns true if this subtable holds horizontal kerning data. */
+    public boolean isHorizontal() {
+        return 0 != (_coverage & 0x01);
+    }
+
+    /** Returns true if this subtable holds minimum values instead of kerning values. */
+    public boolean isMinimum() {
+        return 0 != (_coverage & 0x02);
+    }
+
+    /** Returns true if this subtable holds perpendicular (cross-stream) kerning. */
+    public boolean isCrossStream() {
+        return 0 != (_coverage & 0x04);
+    }
+
+    /** Returns true if the values of this subtable replace the accumulated value. */
+    public boolean isOverride() {
+        return 0 != (_coverage & 0x08);
+    }
+
     public static KernSubtable read(final DataInput di) throws IOException {
         KernSubtable table = null;
         /* final int version = */ di.readUnsignedShort();
-        /* final int length = */ di.readUnsignedShort();
+        final int length = di.readUnsignedShort();
         final int coverage = di.readUnsignedShort();
         final int format = coverage >> 8;
 
         switch (format) {
         case 0:
+            // length may overflow for large tables, nPairs is authoritative
             table = new KernSubtableFormat0(di);
             break;
         case 2:
             table = new KernSubtableFormat2(di);
+            di.skipBytes(length - 6 - 8); // class tables and kerning array are not parsed
             break;
         default:
+            di.skipBytes(length - 6);
             break;
         }
+        if (table != null) {
+            table._coverage = coverage;
+        }
         return table;
     }
 
@@ -10,6 +10,7 @@ package jogamp.graph.font.typecast.ot.table;
 
 import java.io.DataInput;
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
  *
@@ -23,6 +24,8 @@ public class KernSubtableFormat0 extends KernSubtable {
     private final int entrySelector;
     private final int rangeShift;
     private final KerningPair[] kerningPairs;
+    /** Sorted pair index, each entry is <code>left &lt;&lt; 32 | right &lt;&lt; 16 | value</code> */
+    private final long[] pairIndex;
 
     /** Creates new KernSubtableFormat0 */
     protected KernSubtableFormat0(final DataInput di) throws IOException {
@@ -34,6 +37,13 @@ public class KernSubtableFormat0 extends KernSubtable {
         for (int i = 0; i < nPairs; i++) {
             kerningPairs[i] = new KerningPair(di);
         }
+        // pairs shall be sorted, but don't rely on it
+        pairIndex = new long[nPairs];
+        for (int i = 0; i < nPairs; i++) {
+            final KerningPair kp = kerningPairs[i];
+            pairIndex[i] = ((long) kp.getLeft() << 32) | ((long) kp.getRight() << 16) | (kp.getValue() & 0xffff);
+        }
+        Arrays.sort(pairIndex);
     }
 
     @Override
@@ -46,4 +56,29 @@ public class KernSubtableFormat0 extends KernSubtable {
         return kerningPairs[i];
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Binary search within the sorted pair index.
+     * </p>
+     */
+    @Override
+    public int getKerning(final int left, final int right) {
+        final long key = ((long) left << 16) | right;
+        int lo = 0;
+        int hi = nPairs - 1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            final long k = pairIndex[mid] >>> 16;
+            if (k < key) {
+                lo = mid + 1;
+            } else if (k > key) {
+                hi = mid - 1;
+            } else {
+                return (short) pairIndex[mid];
+            }
+        }
+        return 0;
+    }
+
 }
@@ -41,4 +41,9 @@ public class KernSubtableFormat2 extends KernSubtable {
         return null;
     }
 
+    @Override
+    public int getKerning(final int left, final int right) {
+        return 0;
+    }
+
 }
@@ -42,6 +42,31 @@ public class KernTable implements Table {
         return tables[i];
     }
 
+    /**
+     * Returns the horizontal kerning value of the given glyph pair in font units,
+     * accumulated over all horizontal kerning subtables.
+     * Minimum and cross-stream subtables are ignored.
+     * @param left glyph ID of the left glyph
+     * @param right glyph ID of the right glyph
+     */
+    public int getKerning(final int left, final int right) {
+        int value = 0;
+        for (int i = 0; i < nTables; i++) {
+            final KernSubtable t = tables[i];
+            if (t != null && t.isHorizontal() && !t.isMinimum() && !t.isCrossStream()) {
+                final int v = t.getKerning(left, right);
+                if (t.isOverride()) {
+                    if (v != 0) {
+                        value = v;
+                    }
+                } else {
+                    value += v;
+                }
+            }
+        }
+        return value;
+    }
+
     /** Get the table type, as a table directory value.
      * @return The table type
      */
@@ -78,6 +78,16 @@ public class Ligature {
         return _compCount;
     }
 
+    /** Returns the ligature glyph ID. */
+    public int getLigatureGlyph() {
+        return _ligGlyph;
+    }
+
+    /**
+     * Returns the glyph ID of the given component, starting w/ the second component at index 1,
+     * since the first component is given by the coverage.
+     * Index 0 returns the {@link #getLigatureGlyph() ligature glyph}.
+     */
     public int getGlyphId(final int i) {
         return (i == 0) ? _ligGlyph : _components[i-1];
     }
@@ -81,5 +81,14 @@ public class LigatureSet {
         }
     }
 
+    public int getLigatureCount() {
+        return _ligatureCount;
+    }
+
+    /** Returns the ligature at the given index, ligatures are ordered by preference. */
+    public Ligature getLigature(final int i) {
+        return _ligatures[i];
+    }
+
 }
 
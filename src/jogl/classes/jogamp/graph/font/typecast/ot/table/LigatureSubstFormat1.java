@@ -89,6 +89,15 @@ public class LigatureSubstFormat1 extends LigatureSubst {
         return 1;
     }
 
+    /**
+     * Returns the {@link LigatureSet} of ligatures starting with the given glyph,
+     * or null if the glyph is not covered.
+     */
+    public LigatureSet getLigatureSet(final int glyphId) {
+        final int i = _coverage.findGlyph(glyphId);
+        return (i > -1) ? _ligatureSets[i] : null;
+    }
+
     @Override
     public String getTypeAsString() {
         return "LigatureSubstFormat1";
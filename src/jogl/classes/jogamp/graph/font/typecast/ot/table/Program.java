@@ -11,6 +11,8 @@ package jogamp.graph.font.typecast.ot.table;
 import java.io.DataInput;
 import java.io.IOException;
 
+import jogamp.graph.font.typecast.tt.engine.CompiledProgram;
+
 /**
  * @version $Id: Program.java,v 1.1.1.1 2004-12-05 23:14:57 davidsch Exp $
  * @author <a href="mailto:davidsch@dev.java.net">David Schweinsberg</a>
@@ -18,16 +20,35 @@ import java.io.IOException;
 public abstract class Program {
 
     private short[] instructions;
+    private CompiledProgram compiledProgram;
 
     public short[] getInstructions() {
         return instructions;
     }
 
+    /**
+     * Returns the {@link #getInstructions() instructions} pre-decoded for the
+     * {@link jogamp.graph.font.typecast.tt.engine.Interpreter Interpreter},
+     * compiled once and cached with this table of the font.
+     * <p>
+     * Races are benign, as {@link CompiledProgram} is immutable.
+     * </p>
+     */
+    public CompiledProgram getCompiledProgram() {
+        CompiledProgram p = compiledProgram;
+        if( null == p ) {
+            p = CompiledProgram.compile(instructions);
+            compiledProgram = p;
+        }
+        return p;
+    }
+
     protected void readInstructions(final DataInput di, final int count) throws IOException {
         instructions = new short[count];
         for (int i = 0; i < count; i++) {
             instructions[i] = (short) di.readUnsignedByte();
         }
+        compiledProgram = null;
     }
 /*
     protected void readInstructions(ByteArrayInputStream bais, int count) {
@@ -72,6 +72,14 @@ public class RangeRecord {
         _startCoverageIndex = di.readUnsignedShort();
     }
 
+    public int getStart() {
+        return _start;
+    }
+
+    public int getEnd() {
+        return _end;
+    }
+
     public boolean isInRange(final int glyphId) {
         return (_start <= glyphId && glyphId <= _end);
     }
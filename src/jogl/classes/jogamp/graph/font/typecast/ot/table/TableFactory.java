@@ -52,6 +52,9 @@ package jogamp.graph.font.typecast.ot.table;
 
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.jogamp.common.nio.ByteBufferInputStream;
 
 import jogamp.graph.font.typecast.ot.OTFont;
 import jogamp.graph.font.typecast.ot.OTFontCollection;
@@ -63,11 +66,17 @@ import jogamp.graph.font.typecast.ot.OTFontCollection;
  */
 public class TableFactory {
 
+    /**
+     * @param fc the font collection, may be null
+     * @param font the font the table belongs to
+     * @param de the directory entry of the table
+     * @param data the font data starting at the table, may reach beyond it
+     */
     public static Table create(
             final OTFontCollection fc,
             final OTFont font,
             final DirectoryEntry de,
-            final DataInputStream dis) throws IOException {
+            final ByteBuffer data) throws IOException {
         Table t = null;
 
         // First, if we have a font collection, look for the table there
@@ -79,6 +88,7 @@ public class TableFactory {
         }
 
         // Create the table
+        final DataInputStream dis = new DataInputStream(new ByteBufferInputStream(data.duplicate()));
         switch (de.getTag()) {
         case Table.BASE:
             t = new BaseTable(de, dis);
@@ -136,7 +146,7 @@ public class TableFactory {
             t = new GaspTable(de, dis);
             break;
         case Table.glyf:
-            t = new GlyfTable(de, dis, font.getMaxpTable(), font.getLocaTable());
+            t = new GlyfTable(de, data, font.getMaxpTable(), font.getLocaTable());
             break;
         case Table.hdmx:
             t = new HdmxTable(de, dis, font.getMaxpTable());
@@ -30,6 +30,11 @@ import jogamp.graph.font.typecast.ot.table.CharstringType2;
 /**
  * Type 2 Charstring Interpreter.  Operator descriptions are quoted from
  * Adobe's Type 2 Charstring Format document -- 5117.Type2.pdf.
+ * <p>
+ * Charstrings are executed from their cached {@link T2Program}, i.e. they are decoded once.
+ * Arguments are kept as primitives on a fixed size stack and the operators
+ * read their arguments in place, hence executing allocates the resulting points only.
+ * </p>
  * @author <a href="mailto:davidsch@dev.java.net">David Schweinsberg</a>
  * @version $Id: T2Interpreter.java,v 1.2 2007-07-26 11:10:18 davidsch Exp $
  */
@@ -39,13 +44,16 @@ public class T2Interpreter {
     private static final int SUBR_STACK_LIMIT = 10;
     private static final int TRANSIENT_ARRAY_ELEMENT_COUNT = 32;
 
-    private final Number[] _argStack = new Number[ARGUMENT_STACK_LIMIT];
+    private final double[] _argStack = new double[ARGUMENT_STACK_LIMIT];
     private int _argStackIndex = 0;
     private final int[] _subrStack = new int[SUBR_STACK_LIMIT];
     private int _subrStackIndex = 0;
-    private final Number[] _transientArray = new Number[TRANSIENT_ARRAY_ELEMENT_COUNT];
+    private final double[] _transientArray = new double[TRANSIENT_ARRAY_ELEMENT_COUNT];
+    private final double[] _rollArray = new double[ARGUMENT_STACK_LIMIT];
 
-    private ArrayList<Point> _points;
+    private final ArrayList<Point> _points = new ArrayList<Point>();
+    /** The current point, i.e. the last point or the origin */
+    private int _x, _y;
 
     /** Creates a new instance of T2Interpreter */
     public T2Interpreter() {
@@ -56,31 +64,28 @@ public class T2Interpreter {
      * (dx1, dy1).
      */
     private void _rmoveto() {
-        final int dy1 = popArg().intValue();
-        final int dx1 = popArg().intValue();
+        final int dy1 = (int) popArg();
+        final int dx1 = (int) popArg();
         clearArg();
-        final Point lastPoint = getLastPoint();
-        moveTo(lastPoint.x + dx1, lastPoint.y + dy1);
+        moveTo(_x + dx1, _y + dy1);
     }
 
     /**
      * Moves the current point dx1 units in the horizontal direction.
      */
     private void _hmoveto() {
-        final int dx1 = popArg().intValue();
+        final int dx1 = (int) popArg();
         clearArg();
-        final Point lastPoint = getLastPoint();
-        moveTo(lastPoint.x + dx1, lastPoint.y);
+        moveTo(_x + dx1, _y);
     }
 
     /**
      * Moves the current point dy1 units in the vertical direction.
      */
     private void _vmoveto() {
-        final int dy1 = popArg().intValue();
+        final int dy1 = (int) popArg();
         clearArg();
-        final Point lastPoint = getLastPoint();
-        moveTo(lastPoint.x, lastPoint.y + dy1);
+        moveTo(_x, _y + dy1);
     }
 
     /**
@@ -91,15 +96,10 @@ public class T2Interpreter {
      */
     private void _rlineto() {
         final int count = getArgCount() / 2;
-        final int[] dx = new int[count];
-        final int[] dy = new int[count];
+        final int base = getArgCount() - count * 2;
         for (int i = 0; i < count; ++i) {
-            dy[count - i - 1] = popArg().intValue();
-            dx[count - i - 1] = popArg().intValue();
-        }
-        for (int i = 0; i < count; ++i) {
-            final Point lastPoint = getLastPoint();
-            lineTo(lastPoint.x + dx[i], lastPoint.y + dy[i]);
+            final int a = base + i * 2;
+            lineTo(_x + getArg(a), _y + getArg(a + 1));
         }
         clearArg();
     }
@@ -116,16 +116,11 @@ public class T2Interpreter {
      */
     private void _hlineto() {
         final int count = getArgCount();
-        final Number[] nums = new Number[count];
-        for (int i = 0; i < count; ++i) {
-            nums[count - i - 1] = popArg();
-        }
         for (int i = 0; i < count; ++i) {
-            final Point lastPoint = getLastPoint();
             if (i % 2 == 0) {
-                lineTo(lastPoint.x + nums[i].intValue(), lastPoint.y);
+                lineTo(_x + getArg(i), _y);
             } else {
-                lineTo(lastPoint.x, lastPoint.y + nums[i].intValue());
+                lineTo(_x, _y + getArg(i));
             }
         }
         clearArg();
@@ -143,16 +138,11 @@ public class T2Interpreter {
      */
     private void _vlineto() {
         final int count = getArgCount();
-        final Number[] nums = new Number[count];
-        for (int i = 0; i < count; ++i) {
-            nums[count - i - 1] = popArg();
-        }
         for (int i = 0; i < count; ++i) {
-            final Point lastPoint = getLastPoint();
             if (i % 2 == 0) {
-                lineTo(lastPoint.x, lastPoint.y + nums[i].intValue());
+                lineTo(_x, _y + getArg(i));
             } else {
-                lineTo(lastPoint.x + nums[i].intValue(), lastPoint.y);
+                lineTo(_x + getArg(i), _y);
             }
         }
         clearArg();
@@ -168,28 +158,15 @@ public class T2Interpreter {
      */
     private void _rrcurveto() {
         final int count = getArgCount() / 6;
-        final int[] dxa = new int[count];
-        final int[] dya = new int[count];
-        final int[] dxb = new int[count];
-        final int[] dyb = new int[count];
-        final int[] dxc = new int[count];
-        final int[] dyc = new int[count];
+        final int base = getArgCount() - count * 6;
         for (int i = 0; i < count; ++i) {
-            dyc[count - i - 1] = popArg().intValue();
-            dxc[count - i - 1] = popArg().intValue();
-            dyb[count - i - 1] = popArg().intValue();
-            dxb[count - i - 1] = popArg().intValue();
-            dya[count - i - 1] = popArg().intValue();
-            dxa[count - i - 1] = popArg().intValue();
-        }
-        for (int i = 0; i < count; ++i) {
-            final Point lastPoint = getLastPoint();
-            final int xa = lastPoint.x + dxa[i];
-            final int ya = lastPoint.y + dya[i];
-            final int xb = xa + dxb[i];
-            final int yb = ya + dyb[i];
-            final int xc = xb + dxc[i];
-            final int yc = yb + dyc[i];
+            final int a = base + i * 6;
+            final int xa = _x + getArg(a);
+            final int ya = _y + getArg(a + 1);
+            final int xb = xa + getArg(a + 2);
+            final int yb = ya + getArg(a + 3);
+            final int xc = xb + getArg(a + 4);
+            final int yc = yb + getArg(a + 5);
             curveTo(xa, ya, xb, yb, xc, yc);
         }
         clearArg();
@@ -204,27 +181,15 @@ public class T2Interpreter {
      */
     private void _hhcurveto() {
         final int count = getArgCount() / 4;
-        int dy1 = 0;
-        final int[] dxa = new int[count];
-        final int[] dxb = new int[count];
-        final int[] dyb = new int[count];
-        final int[] dxc = new int[count];
-        for (int i = 0; i < count; ++i) {
-            dxc[count - i - 1] = popArg().intValue();
-            dyb[count - i - 1] = popArg().intValue();
-            dxb[count - i - 1] = popArg().intValue();
-            dxa[count - i - 1] = popArg().intValue();
-        }
-        if (getArgCount() == 1) {
-            dy1 = popArg().intValue();
-        }
+        final int base = getArgCount() - count * 4;
+        final int dy1 = base == 1 ? getArg(0) : 0;
         for (int i = 0; i < count; ++i) {
-            final Point lastPoint = getLastPoint();
-            final int xa = lastPoint.x + dxa[i];
-            final int ya = lastPoint.y + (i == 0 ? dy1 : 0);
-            final int xb = xa + dxb[i];
-            final int yb = ya + dyb[i];
-            final int xc = xb + dxc[i];
+            final int a = base + i * 4;
+            final int xa = _x + getArg(a);
+            final int ya = _y + (i == 0 ? dy1 : 0);
+            final int xb = xa + getArg(a + 1);
+            final int yb = ya + getArg(a + 2);
+            final int xc = xb + getArg(a + 3);
             final int yc = yb;
             curveTo(xa, ya, xb, yb, xc, yc);
         }
@@ -244,97 +209,46 @@ public class T2Interpreter {
     private void _hvcurveto() {
         if (getArgCount() % 8 <= 1) {
             final int count = getArgCount() / 8;
-            final int[] dxa = new int[count];
-            final int[] dxb = new int[count];
-            final int[] dyb = new int[count];
-            final int[] dyc = new int[count];
-            final int[] dyd = new int[count];
-            final int[] dxe = new int[count];
-            final int[] dye = new int[count];
-            final int[] dxf = new int[count];
-            int dyf = 0;
-            if (getArgCount() % 8 == 1) {
-                dyf = popArg().intValue();
-            }
+            final int dyf = getArgCount() % 8 == 1 ? getArg(getArgCount() - 1) : 0;
             for (int i = 0; i < count; ++i) {
-                dxf[count - i - 1] = popArg().intValue();
-                dye[count - i - 1] = popArg().intValue();
-                dxe[count - i - 1] = popArg().intValue();
-                dyd[count - i - 1] = popArg().intValue();
-                dyc[count - i - 1] = popArg().intValue();
-                dyb[count - i - 1] = popArg().intValue();
-                dxb[count - i - 1] = popArg().intValue();
-                dxa[count - i - 1] = popArg().intValue();
-            }
-            for (int i = 0; i < count; ++i) {
-                final Point lastPoint = getLastPoint();
-                final int xa = lastPoint.x + dxa[i];
-                final int ya = lastPoint.y;
-                final int xb = xa + dxb[i];
-                final int yb = ya + dyb[i];
+                final int a = i * 8;
+                final int xa = _x + getArg(a);
+                final int ya = _y;
+                final int xb = xa + getArg(a + 1);
+                final int yb = ya + getArg(a + 2);
                 final int xc = xb;
-                final int yc = yb + dyc[i];
+                final int yc = yb + getArg(a + 3);
                 final int xd = xc;
-                final int yd = yc + dyd[i];
-                final int xe = xd + dxe[i];
-                final int ye = yd + dye[i];
-                final int xf = xe + dxf[i];
+                final int yd = yc + getArg(a + 4);
+                final int xe = xd + getArg(a + 5);
+                final int ye = yd + getArg(a + 6);
+                final int xf = xe + getArg(a + 7);
                 final int yf = ye + dyf;
                 curveTo(xa, ya, xb, yb, xc, yc);
                 curveTo(xd, yd, xe, ye, xf, yf);
             }
         } else {
             final int count = getArgCount() / 8;
-            final int[] dya = new int[count];
-            final int[] dxb = new int[count];
-            final int[] dyb = new int[count];
-            final int[] dxc = new int[count];
-            final int[] dxd = new int[count];
-            final int[] dxe = new int[count];
-            final int[] dye = new int[count];
-            final int[] dyf = new int[count];
-            int dxf = 0;
-            if (getArgCount() % 8 == 1) {
-                dxf = popArg().intValue();
-            }
-            for (int i = 0; i < count; ++i) {
-                dyf[count - i - 1] = popArg().intValue();
-                dye[count - i - 1] = popArg().intValue();
-                dxe[count - i - 1] = popArg().intValue();
-                dxd[count - i - 1] = popArg().intValue();
-                dxc[count - i - 1] = popArg().intValue();
-                dyb[count - i - 1] = popArg().intValue();
-                dxb[count - i - 1] = popArg().intValue();
-                dya[count - i - 1] = popArg().intValue();
-            }
+            final int base = getArgCount() - count * 8;
+            final int dxf = 0;
             /**
-             * Not using the 'popped' arguments,
-             * hence simply pop them from stack!
-             *
-            final int dy3 = popArg().intValue();
-            final int dy2 = popArg().intValue();
-            final int dx2 = popArg().intValue();
-            final int dx1 = popArg().intValue();
-            */
-            popArg();
-            popArg();
-            popArg();
-            popArg();
-
+             * Not using the arguments dx1, dx2, dy2 and dy3
+             * below the curve arguments.
+             */
             for (int i = 0; i < count; ++i) {
-                final Point lastPoint = getLastPoint();
-                final int xa = lastPoint.x;
-                final int ya = lastPoint.y + dya[i];
-                final int xb = xa + dxb[i];
-                final int yb = ya + dyb[i];
-                final int xc = xb + dxc[i];
+                final int a = base + i * 8;
+                final int xa = _x;
+                final int ya = _y + getArg(a);
+                final int xb = xa + getArg(a + 1);
+                final int yb = ya + getArg(a + 2);
+                final int xc = xb + getArg(a + 3);
                 final int yc = yb;
-                final int xd = xc + dxd[i];
+                final int xd = xc + getArg(a + 4);
                 final int yd = yc;
-                final int xe = xd + dxe[i];
-                final int ye = yd + dye[i];
+                final int xe = xd + getArg(a + 5);
+                final int ye = yd + getArg(a + 6);
                 final int xf = xe + dxf;
-                final int yf = ye + dyf[i];
+                final int yf = ye + getArg(a + 7);
                 curveTo(xa, ya, xb, yb, xc, yc);
                 curveTo(xd, yd, xe, ye, xf, yf);
 
@@ -352,32 +266,19 @@ public class T2Interpreter {
      */
     private void _rcurveline() {
         final int count = (getArgCount() - 2) / 6;
-        final int[] dxa = new int[count];
-        final int[] dya = new int[count];
-        final int[] dxb = new int[count];
-        final int[] dyb = new int[count];
-        final int[] dxc = new int[count];
-        final int[] dyc = new int[count];
-        final int dyd = popArg().intValue();
-        final int dxd = popArg().intValue();
-        for (int i = 0; i < count; ++i) {
-            dyc[count - i - 1] = popArg().intValue();
-            dxc[count - i - 1] = popArg().intValue();
-            dyb[count - i - 1] = popArg().intValue();
-            dxb[count - i - 1] = popArg().intValue();
-            dya[count - i - 1] = popArg().intValue();
-            dxa[count - i - 1] = popArg().intValue();
-        }
+        final int dyd = getArg(getArgCount() - 1);
+        final int dxd = getArg(getArgCount() - 2);
+        final int base = getArgCount() - 2 - count * 6;
         int xc = 0;
         int yc = 0;
         for (int i = 0; i < count; ++i) {
-            final Point lastPoint = getLastPoint();
-            final int xa = lastPoint.x + dxa[i];
-            final int ya = lastPoint.y + dya[i];
-            final int xb = xa + dxb[i];
-            final int yb = ya + dyb[i];
-            xc = xb + dxc[i];
-            yc = yb + dyc[i];
+            final int a = base + i * 6;
+            final int xa = _x + getArg(a);
+            final int ya = _y + getArg(a + 1);
+            final int xb = xa + getArg(a + 2);
+            final int yb = ya + getArg(a + 3);
+            xc = xb + getArg(a + 4);
+            yc = yb + getArg(a + 5);
             curveTo(xa, ya, xb, yb, xc, yc);
         }
         lineTo(xc + dxd, yc + dyd);
@@ -391,25 +292,21 @@ public class T2Interpreter {
      * items on the argument stack.
      */
     private void _rlinecurve() {
-        final int count = (getArgCount() - 6) / 2;
-        final int[] dxa = new int[count];
-        final int[] dya = new int[count];
-        final int dyd = popArg().intValue();
-        final int dxd = popArg().intValue();
-        final int dyc = popArg().intValue();
-        final int dxc = popArg().intValue();
-        final int dyb = popArg().intValue();
-        final int dxb = popArg().intValue();
-        for (int i = 0; i < count; ++i) {
-            dya[count - i - 1] = popArg().intValue();
-            dxa[count - i - 1] = popArg().intValue();
-        }
+        final int n = getArgCount();
+        final int count = (n - 6) / 2;
+        final int dyd = getArg(n - 1);
+        final int dxd = getArg(n - 2);
+        final int dyc = getArg(n - 3);
+        final int dxc = getArg(n - 4);
+        final int dyb = getArg(n - 5);
+        final int dxb = getArg(n - 6);
+        final int base = n - 6 - count * 2;
         int xa = 0;
         int ya = 0;
         for (int i = 0; i < count; ++i) {
-            final Point lastPoint = getLastPoint();
-            xa = lastPoint.x + dxa[i];
-            ya = lastPoint.y + dya[i];
+            final int a = base + i * 2;
+            xa = _x + getArg(a);
+            ya = _y + getArg(a + 1);
             lineTo(xa, ya);
         }
         final int xb = xa + dxb;
@@ -431,47 +328,24 @@ public class T2Interpreter {
     private void _vhcurveto() {
         if (getArgCount() % 8 <= 1) {
             final int count = getArgCount() / 8;
-            final int[] dya = new int[count];
-            final int[] dxb = new int[count];
-            final int[] dyb = new int[count];
-            final int[] dxc = new int[count];
-            final int[] dxd = new int[count];
-            final int[] dxe = new int[count];
-            final int[] dye = new int[count];
-            final int[] dyf = new int[count];
-            int dxf = 0;
-            if (getArgCount() % 8 == 1) {
-                dxf = popArg().intValue();
-            }
+            final int dxf = getArgCount() % 8 == 1 ? getArg(getArgCount() - 1) : 0;
             for (int i = 0; i < count; ++i) {
-                dyf[count - i - 1] = popArg().intValue();
-                dye[count - i - 1] = popArg().intValue();
-                dxe[count - i - 1] = popArg().intValue();
-                dxd[count - i - 1] = popArg().intValue();
-                dxc[count - i - 1] = popArg().intValue();
-                dyb[count - i - 1] = popArg().intValue();
-                dxb[count - i - 1] = popArg().intValue();
-                dya[count - i - 1] = popArg().intValue();
-            }
-            for (int i = 0; i < count; ++i) {
-                final Point lastPoint = getLastPoint();
-                final int xa = lastPoint.x;
-                final int ya = lastPoint.y + dya[i];
-                final int xb = xa + dxb[i];
-                final int yb = ya + dyb[i];
-                final int xc = xb + dxc[i];
+                final int a = i * 8;
+                final int xa = _x;
+                final int ya = _y + getArg(a);
+                final int xb = xa + getArg(a + 1);
+                final int yb = ya + getArg(a + 2);
+                final int xc = xb + getArg(a + 3);
                 final int yc = yb;
-                final int xd = xc + dxd[i];
+                final int xd = xc + getArg(a + 4);
                 final int yd = yc;
-                final int xe = xd + dxe[i];
-                final int ye = yd + dye[i];
+                final int xe = xd + getArg(a + 5);
+                final int ye = yd + getArg(a + 6);
                 final int xf = xe + dxf;
-                final int yf = ye + dyf[i];
+                final int yf = ye + getArg(a + 7);
                 curveTo(xa, ya, xb, yb, xc, yc);
                 curveTo(xd, yd, xe, ye, xf, yf);
             }
-        } else {
-            final int foo = 0;
         }
         clearArg();
     }
@@ -575,7 +449,7 @@ public class T2Interpreter {
      * Returns the absolute value of num.
      */
     private void _abs() {
-        final double num = popArg().doubleValue();
+        final double num = popArg();
         pushArg(Math.abs(num));
     }
 
@@ -583,8 +457,8 @@ public class T2Interpreter {
      * Returns the sum of the two numbers num1 and num2.
      */
     private void _add() {
-        final double num2 = popArg().doubleValue();
-        final double num1 = popArg().doubleValue();
+        final double num2 = popArg();
+        final double num1 = popArg();
         pushArg(num1 + num2);
     }
 
@@ -592,8 +466,8 @@ public class T2Interpreter {
      * Returns the result of subtracting num2 from num1.
      */
     private void _sub() {
-        final double num2 = popArg().doubleValue();
-        final double num1 = popArg().doubleValue();
+        final double num2 = popArg();
+        final double num1 = popArg();
         pushArg(num1 - num2);
     }
 
@@ -602,8 +476,8 @@ public class T2Interpreter {
      * undefined if overflow occurs and is zero for underflow.
      */
     private void _div() {
-        final double num2 = popArg().doubleValue();
-        final double num1 = popArg().doubleValue();
+        final double num2 = popArg();
+        final double num1 = popArg();
         pushArg(num1 / num2);
     }
 
@@ -611,7 +485,7 @@ public class T2Interpreter {
      * Returns the negative of num.
      */
     private void _neg() {
-        final double num = popArg().doubleValue();
+        final double num = popArg();
         pushArg(-num);
     }
 
@@ -628,8 +502,8 @@ public class T2Interpreter {
      * result is undefined, and zero is returned for underflow.
      */
     private void _mul() {
-        final double num2 = popArg().doubleValue();
-        final double num1 = popArg().doubleValue();
+        final double num2 = popArg();
+        final double num1 = popArg();
         pushArg(num1 * num2);
     }
 
@@ -638,7 +512,7 @@ public class T2Interpreter {
      * undefined.
      */
     private void _sqrt() {
-        final double num = popArg().doubleValue();
+        final double num = popArg();
         pushArg(Math.sqrt(num));
     }
 
@@ -653,8 +527,8 @@ public class T2Interpreter {
      * Exchanges the top two elements on the argument stack.
      */
     private void _exch() {
-        final Number num2 = popArg();
-        final Number num1 = popArg();
+        final double num2 = popArg();
+        final double num1 = popArg();
         pushArg(num2);
         pushArg(num1);
     }
@@ -666,15 +540,8 @@ public class T2Interpreter {
      * undefined.
      */
     private void _index() {
-        final int i = popArg().intValue();
-        final Number[] nums = new Number[i];
-        for (int j = 0; j < i; ++j) {
-            nums[j] = popArg();
-        }
-        for (int j = i - 1; j >= 0; --j) {
-            pushArg(nums[j]);
-        }
-        pushArg(nums[i]);
+        final int i = (int) popArg();
+        pushArg(_argStack[_argStackIndex - 1 - Math.max(i, 0)]);
     }
 
     /**
@@ -685,14 +552,13 @@ public class T2Interpreter {
      * operation is undefined.
      */
     private void _roll() {
-        final int j = popArg().intValue();
-        final int n = popArg().intValue();
-        final Number[] nums = new Number[n];
+        final int j = (int) popArg();
+        final int n = (int) popArg();
         for (int i = 0; i < n; ++i) {
-            nums[i] = popArg();
+            _rollArray[i] = popArg();
         }
         for (int i = n - 1; i >= 0; --i) {
-            pushArg(nums[(n + i + j) % n]);
+            pushArg(_rollArray[(n + i + j) % n]);
         }
     }
 
@@ -700,7 +566,7 @@ public class T2Interpreter {
      * Duplicates the top element on the argument stack.
      */
     private void _dup() {
-        final Number any = popArg();
+        final double any = popArg();
         pushArg(any);
         pushArg(any);
     }
@@ -709,8 +575,8 @@ public class T2Interpreter {
      * Stores val into the transient array at the location given by i.
      */
     private void _put() {
-        final int i = popArg().intValue();
-        final Number val = popArg();
+        final int i = (int) popArg();
+        final double val = popArg();
         _transientArray[i] = val;
     }
 
@@ -721,7 +587,7 @@ public class T2Interpreter {
      * charstring, the value returned is undefined.
      */
     private void _get() {
-        final int i = popArg().intValue();
+        final int i = (int) popArg();
         pushArg(_transientArray[i]);
     }
 
@@ -730,8 +596,8 @@ public class T2Interpreter {
      * puts a 0 on the stack if either argument is zero.
      */
     private void _and() {
-        final double num2 = popArg().doubleValue();
-        final double num1 = popArg().doubleValue();
+        final double num2 = popArg();
+        final double num1 = popArg();
         pushArg((num1!=0.0) && (num2!=0.0) ? 1 : 0);
     }
 
@@ -740,8 +606,8 @@ public class T2Interpreter {
      * puts a 0 on the stack if both arguments are zero.
      */
     private void _or() {
-        final double num2 = popArg().doubleValue();
-        final double num1 = popArg().doubleValue();
+        final double num2 = popArg();
+        final double num1 = popArg();
         pushArg((num1!=0.0) || (num2!=0.0) ? 1 : 0);
     }
 
@@ -749,7 +615,7 @@ public class T2Interpreter {
      * Returns a 0 if num1 is non-zero; returns a 1 if num1 is zero.
      */
     private void _not() {
-        final double num1 = popArg().doubleValue();
+        final double num1 = popArg();
         pushArg((num1!=0.0) ? 0 : 1);
     }
 
@@ -758,8 +624,8 @@ public class T2Interpreter {
      * is put on the stack.
      */
     private void _eq() {
-        final double num2 = popArg().doubleValue();
-        final double num1 = popArg().doubleValue();
+        final double num2 = popArg();
+        final double num1 = popArg();
         pushArg(num1 == num2 ? 1 : 0);
     }
 
@@ -769,10 +635,10 @@ public class T2Interpreter {
      * number of a subroutine.
      */
     private void _ifelse() {
-        final double v2 = popArg().doubleValue();
-        final double v1 = popArg().doubleValue();
-        final Number s2 = popArg();
-        final Number s1 = popArg();
+        final double v2 = popArg();
+        final double v1 = popArg();
+        final double s2 = popArg();
+        final double s1 = popArg();
         pushArg(v1 <= v2 ? s1 : s2);
     }
 
@@ -806,16 +672,32 @@ public class T2Interpreter {
 
     }
 
+    /**
+     * Executes the {@link CharstringType2#getProgram() cached program} of the given charstring.
+     * @return the outline points or null if an unknown operator was hit
+     */
     public Point[] execute(final CharstringType2 cs) {
-        _points = new ArrayList<Point>();
-        cs.resetIP();
-        while (cs.moreBytes()) {
-            while (cs.isOperandAtIndex()) {
-                pushArg(cs.nextOperand());
+        return execute(cs.getProgram());
+    }
+
+    /**
+     * Executes the given program.
+     * @return the outline points or null if an unknown operator was hit
+     */
+    public Point[] execute(final T2Program program) {
+        _points.clear();
+        _x = 0;
+        _y = 0;
+        clearArg();
+        final int operatorCount = program.getOperatorCount();
+        for (int k = 0; k < operatorCount; ++k) {
+            final int end = program.getOperandStart(k + 1);
+            for (int o = program.getOperandStart(k); o < end; ++o) {
+                pushArg(program.getOperand(o));
             }
-            int operator = cs.nextByte();
-            if (operator == 12) {
-                operator = cs.nextByte();
+            int operator = program.getOperator(k);
+            if (operator >> 8 == T2Mnemonic.ESCAPE) {
+                operator &= 0xff;
 
                 // Two-byte operators
                 switch (operator) {
@@ -989,14 +871,22 @@ public class T2Interpreter {
     /**
      * Pop a value off the argument stack
      */
-    private Number popArg() {
+    private double popArg() {
         return _argStack[--_argStackIndex];
     }
 
+    /**
+     * Returns the integer value of the argument at index <code>i</code>,
+     * counted from the bottom of the argument stack
+     */
+    private int getArg(final int i) {
+        return (int) _argStack[i];
+    }
+
     /**
      * Push a value on to the argument stack
      */
-    private void pushArg(final Number n) {
+    private void pushArg(final double n) {
         _argStack[_argStackIndex++] = n;
     }
 
@@ -1021,34 +911,31 @@ public class T2Interpreter {
         _argStackIndex = 0;
     }
 
-    private Point getLastPoint() {
-        final int size = _points.size();
-        if (size > 0) {
-            return _points.get(size - 1);
-        } else {
-            return new Point(0, 0, true, false);
-        }
-    }
-
     private void moveTo(final int x, final int y) {
         endContour();
         _points.add(new Point(x, y, true, false));
+        _x = x;
+        _y = y;
     }
 
     private void lineTo(final int x, final int y) {
         _points.add(new Point(x, y, true, false));
+        _x = x;
+        _y = y;
     }
 
     private void curveTo(final int cx1, final int cy1, final int cx2, final int cy2, final int x, final int y) {
         _points.add(new Point(cx1, cy1, false, false));
         _points.add(new Point(cx2, cy2, false, false));
         _points.add(new Point(x, y, true, false));
+        _x = x;
+        _y = y;
     }
 
     private void endContour() {
-        final Point lastPoint = getLastPoint();
-        if (lastPoint != null) {
-            lastPoint.endOfContour = true;
+        final int size = _points.size();
+        if (size > 0) {
+            _points.get(size - 1).endOfContour = true;
         }
     }
 }
@@ -0,0 +1,110 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package jogamp.graph.font.typecast.t2;
+
+import jogamp.graph.font.typecast.ot.table.CharstringType2;
+
+/**
+ * A Type 2 charstring pre-decoded into operand and operator arrays,
+ * executed by {@link T2Interpreter#execute(T2Program)}.
+ * <p>
+ * Operator <code>i</code> consumes the operands
+ * <code>[{@link #getOperandStart(int) getOperandStart(i)} .. getOperandStart(i+1))</code>,
+ * two byte operators are encoded as <code>{@link T2Mnemonic#ESCAPE} &lt;&lt; 8 | op</code>.
+ * Operands following the last operator are dropped.
+ * </p>
+ * <p>
+ * Instances are immutable and cached per charstring, see {@link CharstringType2#getProgram()}.
+ * </p>
+ */
+public final class T2Program {
+    private final double[] operands;
+    private final int[] operators;
+    private final int[] operandStart;
+
+    private T2Program(final double[] operands, final int[] operators, final int[] operandStart) {
+        this.operands = operands;
+        this.operators = operators;
+        this.operandStart = operandStart;
+    }
+
+    public int getOperatorCount() { return operators.length; }
+
+    public int getOperator(final int i) { return operators[i]; }
+
+    /** Returns the first operand index of operator <code>i</code>, <code>i</code> may equal {@link #getOperatorCount()}. */
+    public int getOperandStart(final int i) { return operandStart[i]; }
+
+    public double getOperand(final int i) { return operands[i]; }
+
+    /**
+     * Decodes the given charstring, leaving its instruction pointer at the end.
+     */
+    public static T2Program decode(final CharstringType2 cs) {
+        double[] operands = new double[16];
+        int[] operators = new int[16];
+        int[] operandStart = new int[17];
+        int operandCount = 0;
+        int operatorCount = 0;
+        cs.resetIP();
+        while (cs.moreBytes()) {
+            while (cs.moreBytes() && cs.isOperandAtIndex()) {
+                if( operandCount == operands.length ) {
+                    final double[] tmp = new double[operandCount * 2];
+                    System.arraycopy(operands, 0, tmp, 0, operandCount);
+                    operands = tmp;
+                }
+                operands[operandCount++] = cs.nextOperand().doubleValue();
+            }
+            if( !cs.moreBytes() ) {
+                break;
+            }
+            int operator = cs.nextByte();
+            if (operator == T2Mnemonic.ESCAPE) {
+                operator = T2Mnemonic.ESCAPE << 8 | cs.nextByte();
+            }
+            if( operatorCount == operators.length ) {
+                final int[] tmp = new int[operatorCount * 2];
+                System.arraycopy(operators, 0, tmp, 0, operatorCount);
+                operators = tmp;
+                final int[] tmp2 = new int[operatorCount * 2 + 1];
+                System.arraycopy(operandStart, 0, tmp2, 0, operatorCount + 1);
+                operandStart = tmp2;
+            }
+            operators[operatorCount++] = operator;
+            operandStart[operatorCount] = operandCount;
+        }
+        final double[] o = new double[operandCount];
+        System.arraycopy(operands, 0, o, 0, operandCount);
+        final int[] op = new int[operatorCount];
+        System.arraycopy(operators, 0, op, 0, operatorCount);
+        final int[] os = new int[operatorCount + 1];
+        System.arraycopy(operandStart, 0, os, 0, operatorCount + 1);
+        return new T2Program(o, op, os);
+    }
+}
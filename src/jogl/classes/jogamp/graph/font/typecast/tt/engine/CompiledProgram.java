@@ -0,0 +1,236 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package jogamp.graph.font.typecast.tt.engine;
+
+import jogamp.graph.font.typecast.ot.Mnemonic;
+
+/**
+ * A TrueType instruction stream pre-decoded into a compact int array,
+ * executed by {@link Interpreter#execute(CompiledProgram, int)}.
+ * <p>
+ * Each instruction occupies one slot holding its opcode,
+ * followed by its immediate operands:
+ * <ul>
+ *   <li>PUSHB, PUSHW, NPUSHB and NPUSHW: the value count and the values,
+ *       words already sign extended.</li>
+ *   <li>IF: the position following the matching ELSE, or the matching EIF.</li>
+ *   <li>ELSE: the position following the matching EIF.</li>
+ *   <li>FDEF and IDEF: the position following the matching ENDF.</li>
+ *   <li>JMPR, JROT and JROF: the byte offset of the instruction,
+ *       the relative jump target is mapped back via {@link #getPosition(int)}.</li>
+ * </ul>
+ * Hence the interpreter neither re-decodes push data nor scans for branch targets.
+ * </p>
+ * <p>
+ * Instances are immutable and may be shared between interpreters,
+ * see {@link jogamp.graph.font.typecast.ot.table.Program#getCompiledProgram()}.
+ * </p>
+ */
+public final class CompiledProgram {
+    /** Opcode and operand slots */
+    final int[] code;
+    /** Code position per byte offset, -1 within push data, last element is the end. */
+    private final int[] bytePositions;
+
+    private CompiledProgram(final int[] code, final int[] bytePositions) {
+        this.code = code;
+        this.bytePositions = bytePositions;
+    }
+
+    /** Returns the number of int slots, i.e. the end position. */
+    public int getCodeLength() { return code.length; }
+
+    /** Returns the byte length of the original instruction stream. */
+    public int getByteLength() { return bytePositions.length - 1; }
+
+    /**
+     * Returns the code position of the instruction at the given byte offset,
+     * or {@link #getCodeLength()} if the offset does not start an instruction.
+     */
+    public int getPosition(final int byteOffset) {
+        if( 0 > byteOffset || byteOffset >= bytePositions.length ) {
+            return code.length;
+        }
+        final int pos = bytePositions[byteOffset];
+        return 0 <= pos ? pos : code.length;
+    }
+
+    /**
+     * Returns the data byte count of the push instruction at <code>i</code>,
+     * clamped to the remaining stream, or -1 if it is no push instruction.
+     */
+    private static int getPushByteCount(final short[] instructions, final int i) {
+        final int opcode = instructions[i];
+        final int remaining = instructions.length - i - 1;
+        final int count;
+        if( Mnemonic.NPUSHB == opcode ) {
+            count = 0 < remaining ? 1 + instructions[i + 1] : 0;
+        } else if( Mnemonic.NPUSHW == opcode ) {
+            count = 0 < remaining ? 1 + instructions[i + 1] * 2 : 0;
+        } else if( Mnemonic.PUSHB == ( opcode & 0xf8 ) ) {
+            count = ( opcode & 0x07 ) + 1;
+        } else if( Mnemonic.PUSHW == ( opcode & 0xf8 ) ) {
+            count = ( ( opcode & 0x07 ) + 1 ) * 2;
+        } else {
+            return -1;
+        }
+        return Math.min(count, remaining);
+    }
+
+    private static int getOperandCount(final int opcode) {
+        switch( opcode ) {
+            case Mnemonic.IF:
+            case Mnemonic.ELSE:
+            case Mnemonic.FDEF:
+            case Mnemonic.IDEF:
+            case Mnemonic.JMPR:
+            case Mnemonic.JROT:
+            case Mnemonic.JROF:
+                return 1;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Decodes the given instruction stream.
+     * <p>
+     * IF, ELSE and FDEF are matched with respect to nesting,
+     * unmatched ones branch to the end of the program.
+     * A push instruction exceeding the stream is truncated.
+     * </p>
+     * @param instructions the instruction bytes, may be null
+     */
+    public static CompiledProgram compile(final short[] instructions) {
+        final int byteCount = null != instructions ? instructions.length : 0;
+        final int[] bytePositions = new int[byteCount + 1];
+
+        // pass 1: code positions and length
+        int codeLength = 0;
+        for(int i = 0; i < byteCount; ) {
+            final int opcode = instructions[i];
+            bytePositions[i] = codeLength;
+            final int pushBytes = getPushByteCount(instructions, i);
+            if( 0 <= pushBytes ) {
+                final int valueCount = getPushValueCount(opcode, pushBytes);
+                for(int j = 1; j <= pushBytes; j++) {
+                    bytePositions[i + j] = -1;
+                }
+                codeLength += 2 + valueCount;
+                i += 1 + pushBytes;
+            } else {
+                codeLength += 1 + getOperandCount(opcode);
+                i++;
+            }
+        }
+        bytePositions[byteCount] = codeLength;
+
+        // pass 2: opcodes, operands and branch targets
+        final int[] code = new int[codeLength];
+        int[] openIfs = new int[16];
+        int branchDepth = 0;
+        int funcSlot = -1;
+        int pc = 0;
+        for(int i = 0; i < byteCount; ) {
+            final int opcode = instructions[i];
+            code[pc++] = opcode;
+            final int pushBytes = getPushByteCount(instructions, i);
+            if( 0 <= pushBytes ) {
+                final int valueCount = getPushValueCount(opcode, pushBytes);
+                final boolean words = Mnemonic.NPUSHW == opcode || Mnemonic.PUSHW == ( opcode & 0xf8 );
+                int d = i + 1 + ( ( Mnemonic.NPUSHB == opcode || Mnemonic.NPUSHW == opcode ) ? 1 : 0 );
+                code[pc++] = valueCount;
+                for(int j = 0; j < valueCount; j++) {
+                    if( words ) {
+                        code[pc++] = (short) ( ( instructions[d] << 8 ) | instructions[d + 1] );
+                        d += 2;
+                    } else {
+                        code[pc++] = instructions[d++];
+                    }
+                }
+                i += 1 + pushBytes;
+                continue;
+            }
+            switch( opcode ) {
+                case Mnemonic.IF:
+                    if( branchDepth == openIfs.length ) {
+                        final int[] tmp = new int[branchDepth * 2];
+                        System.arraycopy(openIfs, 0, tmp, 0, branchDepth);
+                        openIfs = tmp;
+                    }
+                    openIfs[branchDepth++] = pc;
+                    code[pc++] = codeLength;
+                    break;
+                case Mnemonic.ELSE:
+                    if( 0 < branchDepth ) {
+                        code[openIfs[branchDepth - 1]] = pc + 1;
+                        openIfs[branchDepth - 1] = pc;
+                    }
+                    code[pc++] = codeLength;
+                    break;
+                case Mnemonic.EIF:
+                    if( 0 < branchDepth ) {
+                        code[openIfs[--branchDepth]] = pc;
+                    }
+                    break;
+                case Mnemonic.FDEF:
+                case Mnemonic.IDEF:
+                    funcSlot = pc;
+                    code[pc++] = codeLength;
+                    break;
+                case Mnemonic.ENDF:
+                    if( 0 <= funcSlot ) {
+                        code[funcSlot] = pc;
+                        funcSlot = -1;
+                    }
+                    break;
+                case Mnemonic.JMPR:
+                case Mnemonic.JROT:
+                case Mnemonic.JROF:
+                    code[pc++] = i;
+                    break;
+                default:
+                    break;
+            }
+            i++;
+        }
+        return new CompiledProgram(code, bytePositions);
+    }
+
+    private static int getPushValueCount(final int opcode, final int pushBytes) {
+        if( Mnemonic.NPUSHB == opcode ) {
+            return Math.max(0, pushBytes - 1);
+        } else if( Mnemonic.NPUSHW == opcode ) {
+            return Math.max(0, pushBytes - 1) / 2;
+        } else if( Mnemonic.PUSHW == ( opcode & 0xf8 ) ) {
+            return pushBytes / 2;
+        } else {
+            return pushBytes;
+        }
+    }
+}
@@ -27,24 +27,84 @@ package jogamp.graph.font.typecast.tt.engine;
  */
 class GraphicsState {
 
-    public boolean auto_flip = true;
-    public int control_value_cut_in = 0;
-    public int delta_base = 9;
-    public int delta_shift = 3;
+    public boolean auto_flip;
+    public int control_value_cut_in;
+    public int delta_base;
+    public int delta_shift;
     public int dual_projection_vectors;
-    public int[] freedom_vector = new int[2];
-    public int zp0 = 1;
-    public int zp1 = 1;
-    public int zp2 = 1;
-    public int instruction_control = 0;
-    public int loop = 1;
-    public int minimum_distance = 1;
-    public int[] projection_vector = new int[2];
-    public int round_state = 1;
-    public int rp0 = 0;
-    public int rp1 = 0;
-    public int rp2 = 0;
-    public int scan_control = 0;
-    public int single_width_cut_in = 0;
-    public int single_width_value = 0;
+    public final int[] freedom_vector = new int[2];
+    public int zp0;
+    public int zp1;
+    public int zp2;
+    public int instruction_control;
+    public int loop;
+    public int minimum_distance;
+    public final int[] projection_vector = new int[2];
+    public int round_state;
+    public int rp0;
+    public int rp1;
+    public int rp2;
+    public int scan_control;
+    public int single_width_cut_in;
+    public int single_width_value;
+
+    public GraphicsState() {
+        reset();
+    }
+
+    /**
+     * Sets the default state, without allocations.
+     */
+    public void reset() {
+        auto_flip = true;
+        control_value_cut_in = 0;
+        delta_base = 9;
+        delta_shift = 3;
+        dual_projection_vectors = 0;
+        freedom_vector[0] = 0;
+        freedom_vector[1] = 0;
+        zp0 = 1;
+        zp1 = 1;
+        zp2 = 1;
+        instruction_control = 0;
+        loop = 1;
+        minimum_distance = 1;
+        projection_vector[0] = 0;
+        projection_vector[1] = 0;
+        round_state = 1;
+        rp0 = 0;
+        rp1 = 0;
+        rp2 = 0;
+        scan_control = 0;
+        single_width_cut_in = 0;
+        single_width_value = 0;
+    }
+
+    /**
+     * Copies the given state into this instance, without allocations.
+     */
+    public void copyFrom(final GraphicsState o) {
+        auto_flip = o.auto_flip;
+        control_value_cut_in = o.control_value_cut_in;
+        delta_base = o.delta_base;
+        delta_shift = o.delta_shift;
+        dual_projection_vectors = o.dual_projection_vectors;
+        freedom_vector[0] = o.freedom_vector[0];
+        freedom_vector[1] = o.freedom_vector[1];
+        zp0 = o.zp0;
+        zp1 = o.zp1;
+        zp2 = o.zp2;
+        instruction_control = o.instruction_control;
+        loop = o.loop;
+        minimum_distance = o.minimum_distance;
+        projection_vector[0] = o.projection_vector[0];
+        projection_vector[1] = o.projection_vector[1];
+        round_state = o.round_state;
+        rp0 = o.rp0;
+        rp1 = o.rp1;
+        rp2 = o.rp2;
+        scan_control = o.scan_control;
+        single_width_cut_in = o.single_width_cut_in;
+        single_width_value = o.single_width_value;
+    }
 }
@@ -27,6 +27,11 @@ import jogamp.graph.font.typecast.ot.Point;
  * The interpreter shall remain ignorant of the table structure - the table
  * data will be extracted by supporting classes, whether it be the Parser
  * or some other.
+ * <p>
+ * Instructions are executed from {@link CompiledProgram}s,
+ * i.e. push data and branch targets are decoded once per program.
+ * The stack, store, cvt and graphics state are allocated once per interpreter.
+ * </p>
  * @author <a href="mailto:davidsch@dev.java.net">David Schweinsberg</a>
  * @version $Id: Interpreter.java,v 1.1.1.1 2004-12-05 23:15:05 davidsch Exp $
  */
@@ -34,13 +39,14 @@ public class Interpreter {
 
     private Parser parser = null;
     private final GraphicsState gs = new GraphicsState();
+    private final GraphicsState cvtGs = new GraphicsState();
     private final Point[][] zone = new Point[2][];
     private int[] stack = null;
     private int[] store = null;
     private final int[] cvt = new int[256];
     private int[] functionMap = null;
+    private CompiledProgram[] functionProgram = null;
     private int stackIndex = 0;
-    private boolean inFuncDef = false;
 
     public Interpreter(final int stackMax, final int storeMax, final int funcMax) {
         zone[0] = new Point[256];
@@ -48,6 +54,7 @@ public class Interpreter {
         stack = new int[stackMax];
         store = new int[storeMax];
         functionMap = new int[funcMax];
+        functionProgram = new CompiledProgram[funcMax];
     }
 
     /**
@@ -101,7 +108,8 @@ public class Interpreter {
      * CALL function
      */
     private void _call() {
-        execute(functionMap[pop()]);
+        final int f = pop();
+        execute(functionProgram[f], functionMap[f]);
     }
 
     /**
@@ -225,13 +233,6 @@ public class Interpreter {
         push(n);
     }
 
-    /**
-     * ELSE
-     */
-    private int _else(final int instructionIndex) {
-        return parser.handleElse(instructionIndex);
-    }
-
     /**
      * EQual
      */
@@ -249,9 +250,10 @@ public class Interpreter {
     /**
      * Function DEFinition
      */
-    private void _fdef(final int instructionIndex) {
-        functionMap[pop()] = instructionIndex;
-        inFuncDef = true;
+    private void _fdef(final CompiledProgram program, final int pc) {
+        final int f = pop();
+        functionMap[f] = pc;
+        functionProgram[f] = program;
     }
 
     /**
@@ -364,14 +366,6 @@ public class Interpreter {
      */
     private void _idef() {
         pop();
-        inFuncDef = true;
-    }
-
-    /**
-     * IF test
-     */
-    private int _if(final int instructionIndex) {
-        return parser.handleIf(pop() != 0, instructionIndex);
     }
 
     /**
@@ -449,45 +443,14 @@ public class Interpreter {
     private void _iup(final short param) {
     }
 
-    /**
-     * JuMP Relative
-     */
-    private int _jmpr(final int instructionIndex) {
-        return instructionIndex + ( pop() - 1 );
-    }
-
-    /**
-     * Jump Relative On False
-     */
-    private int _jrof(int instructionIndex) {
-        final boolean test = pop() != 0;
-        final int offset = pop();
-        if (!test) {
-            instructionIndex += offset - 1;
-        }
-        return instructionIndex;
-    }
-
-    /**
-     * Jump Relative On True
-     */
-    private int _jrot(int instructionIndex) {
-        final boolean test = pop() != 0;
-        final int offset = pop();
-        if (test) {
-            instructionIndex += offset - 1;
-        }
-        return instructionIndex;
-    }
-
     /**
      * LOOP and CALL function
      */
     private void _loopcall() {
-        /* final int index = */ pop();
+        final int f = pop();
         final int count = pop();
         for (int i = 0; i < count; i++) {
-            execute(functionMap[i]);
+            execute(functionProgram[f], functionMap[f]);
         }
     }
 
@@ -632,11 +595,13 @@ public class Interpreter {
      * PUSH N Words
      * PUSH Bytes
      * PUSH Words
+     * @return the position following the push data
      */
-    private void _push(final int[] data) {
-        for (int j = 0; j < data.length; j++) {
-            push(data[j]);
-        }
+    private int _push(final int[] code, final int pc) {
+        final int count = code[pc];
+        System.arraycopy(code, pc + 1, stack, stackIndex, count);
+        stackIndex += count;
+        return pc + 1 + count;
     }
 
     /**
@@ -1188,144 +1153,190 @@ public class Interpreter {
      * Write Store
      */
     private void _ws() {
-        store[pop()] = pop();
-    }
-
-    public void execute(int ip) {
-        while (ip < ((ip & 0xffff0000) | parser.getISLength(ip >> 16))) {
-            final short opcode = parser.getOpcode(ip);
-            if (inFuncDef) {
-
-                // We're within a function definition, so don't execute the code
-                if (opcode == Mnemonic.ENDF) {
-                    inFuncDef = false;
+        final int value = pop();
+        store[pop()] = value;
+    }
+
+    /**
+     * Executes the program of the {@link Parser} denoted by the high word of <code>ip</code>,
+     * starting at the instruction at byte offset <code>ip & 0xffff</code>.
+     * @see #execute(CompiledProgram, int)
+     */
+    public void execute(final int ip) {
+        final CompiledProgram program = parser.getProgram(ip >> 16);
+        execute(program, program.getPosition(ip & 0xffff));
+    }
+
+    /**
+     * Executes the given program starting at code position <code>pc</code>,
+     * until its end or ENDF is reached.
+     * <p>
+     * Function and instruction definitions are skipped in one step,
+     * IF, ELSE and the relative jumps use the pre-decoded targets.
+     * Undefined opcodes are ignored.
+     * </p>
+     */
+    public void execute(final CompiledProgram program, int pc) {
+        final int[] code = program.code;
+        final int end = code.length;
+        while (pc < end) {
+            final int opcode = code[pc++];
+            switch (opcode) {
+                case Mnemonic.SVTCA:
+                case Mnemonic.SVTCA + 1: _svtca((short)(opcode & 1)); break;
+                case Mnemonic.SPVTCA:
+                case Mnemonic.SPVTCA + 1: _spvtca((short)(opcode & 1)); break;
+                case Mnemonic.SFVTCA:
+                case Mnemonic.SFVTCA + 1: _sfvtca((short)(opcode & 1)); break;
+                case Mnemonic.SPVTL:
+                case Mnemonic.SPVTL + 1: _spvtl((short)(opcode & 1)); break;
+                case Mnemonic.SFVTL:
+                case Mnemonic.SFVTL + 1: _sfvtl((short)(opcode & 1)); break;
+                case Mnemonic.SPVFS: _spvfs(); break;
+                case Mnemonic.SFVFS: _sfvfs(); break;
+                case Mnemonic.GPV: _gpv(); break;
+                case Mnemonic.GFV: _gfv(); break;
+                case Mnemonic.SFVTPV: _sfvtpv(); break;
+                case Mnemonic.ISECT: _isect(); break;
+                case Mnemonic.SRP0: _srp0(); break;
+                case Mnemonic.SRP1: _srp1(); break;
+                case Mnemonic.SRP2: _srp2(); break;
+                case Mnemonic.SZP0: _szp0(); break;
+                case Mnemonic.SZP1: _szp1(); break;
+                case Mnemonic.SZP2: _szp2(); break;
+                case Mnemonic.SZPS: _szps(); break;
+                case Mnemonic.SLOOP: _sloop(); break;
+                case Mnemonic.RTG: _rtg(); break;
+                case Mnemonic.RTHG: _rthg(); break;
+                case Mnemonic.SMD: _smd(); break;
+                case Mnemonic.ELSE: pc = code[pc]; break;
+                case Mnemonic.JMPR: pc = program.getPosition(code[pc] + pop()); break;
+                case Mnemonic.SCVTCI: _scvtci(); break;
+                case Mnemonic.SSWCI: _sswci(); break;
+                case Mnemonic.SSW: _ssw(); break;
+                case Mnemonic.DUP: _dup(); break;
+                case Mnemonic.POP: pop(); break;
+                case Mnemonic.CLEAR: _clear(); break;
+                case Mnemonic.SWAP: _swap(); break;
+                case Mnemonic.DEPTH: _depth(); break;
+                case Mnemonic.CINDEX: _cindex(); break;
+                case Mnemonic.MINDEX: _mindex(); break;
+                case Mnemonic.ALIGNPTS: _alignpts(); break;
+                case Mnemonic.UTP: _utp(); break;
+                case Mnemonic.LOOPCALL: _loopcall(); break;
+                case Mnemonic.CALL: _call(); break;
+                case Mnemonic.FDEF: _fdef(program, pc + 1); pc = code[pc]; break;
+                case Mnemonic.ENDF: return;
+                case Mnemonic.MDAP:
+                case Mnemonic.MDAP + 1: _mdap((short)(opcode & 1)); break;
+                case Mnemonic.IUP:
+                case Mnemonic.IUP + 1: _iup((short)(opcode & 1)); break;
+                case Mnemonic.SHP:
+                case Mnemonic.SHP + 1: _shp((short)(opcode & 1)); break;
+                case Mnemonic.SHC:
+                case Mnemonic.SHC + 1: _shc((short)(opcode & 1)); break;
+                case Mnemonic.SHZ:
+                case Mnemonic.SHZ + 1: _shz((short)(opcode & 1)); break;
+                case Mnemonic.SHPIX: _shpix(); break;
+                case Mnemonic.IP: _ip(); break;
+                case Mnemonic.MSIRP:
+                case Mnemonic.MSIRP + 1: _msirp((short)(opcode & 1)); break;
+                case Mnemonic.ALIGNRP: _alignrp(); break;
+                case Mnemonic.RTDG: _rtdg(); break;
+                case Mnemonic.MIAP:
+                case Mnemonic.MIAP + 1: _miap((short)(opcode & 1)); break;
+                case Mnemonic.NPUSHB:
+                case Mnemonic.NPUSHW: pc = _push(code, pc); break;
+                case Mnemonic.WS: _ws(); break;
+                case Mnemonic.RS: _rs(); break;
+                case Mnemonic.WCVTP: _wcvtp(); break;
+                case Mnemonic.RCVT: _rcvt(); break;
+                case Mnemonic.GC:
+                case Mnemonic.GC + 1: _gc((short)(opcode & 1)); break;
+                case Mnemonic.SCFS: _scfs(); break;
+                case Mnemonic.MD:
+                case Mnemonic.MD + 1: _md((short)(opcode & 1)); break;
+                case Mnemonic.MPPEM: _mppem(); break;
+                case Mnemonic.MPS: _mps(); break;
+                case Mnemonic.FLIPON: _flipon(); break;
+                case Mnemonic.FLIPOFF: _flipoff(); break;
+                case Mnemonic.DEBUG: _debug(); break;
+                case Mnemonic.LT: _lt(); break;
+                case Mnemonic.LTEQ: _lteq(); break;
+                case Mnemonic.GT: _gt(); break;
+                case Mnemonic.GTEQ: _gteq(); break;
+                case Mnemonic.EQ: _eq(); break;
+                case Mnemonic.NEQ: _neq(); break;
+                case Mnemonic.ODD: _odd(); break;
+                case Mnemonic.EVEN: _even(); break;
+                case Mnemonic.IF: pc = 0 != pop() ? pc + 1 : code[pc]; break;
+                case Mnemonic.EIF: break;
+                case Mnemonic.AND: _and(); break;
+                case Mnemonic.OR: _or(); break;
+                case Mnemonic.NOT: _not(); break;
+                case Mnemonic.DELTAP1: _deltap1(); break;
+                case Mnemonic.SDB: _sdb(); break;
+                case Mnemonic.SDS: _sds(); break;
+                case Mnemonic.ADD: _add(); break;
+                case Mnemonic.SUB: _sub(); break;
+                case Mnemonic.DIV: _div(); break;
+                case Mnemonic.MUL: _mul(); break;
+                case Mnemonic.ABS: _abs(); break;
+                case Mnemonic.NEG: _neg(); break;
+                case Mnemonic.FLOOR: _floor(); break;
+                case Mnemonic.CEILING: _ceiling(); break;
+                case Mnemonic.ROUND:
+                case Mnemonic.ROUND + 1:
+                case Mnemonic.ROUND + 2:
+                case Mnemonic.ROUND + 3: _round((short)(opcode & 3)); break;
+                case Mnemonic.NROUND:
+                case Mnemonic.NROUND + 1:
+                case Mnemonic.NROUND + 2:
+                case Mnemonic.NROUND + 3: _nround((short)(opcode & 3)); break;
+                case Mnemonic.WCVTF: _wcvtf(); break;
+                case Mnemonic.DELTAP2: _deltap2(); break;
+                case Mnemonic.DELTAP3: _deltap3(); break;
+                case Mnemonic.DELTAC1: _deltac1(); break;
+                case Mnemonic.DELTAC2: _deltac2(); break;
+                case Mnemonic.DELTAC3: _deltac3(); break;
+                case Mnemonic.SROUND: _sround(); break;
+                case Mnemonic.S45ROUND: _s45round(); break;
+                case Mnemonic.JROT: {
+                    final boolean test = pop() != 0;
+                    final int offset = pop();
+                    pc = test ? program.getPosition(code[pc] + offset) : pc + 1;
+                    break;
+                }
+                case Mnemonic.JROF: {
+                    final boolean test = pop() != 0;
+                    final int offset = pop();
+                    pc = !test ? program.getPosition(code[pc] + offset) : pc + 1;
+                    break;
                 }
-                ip = parser.advanceIP(ip);
-                continue;
+                case Mnemonic.ROFF: _roff(); break;
+                case Mnemonic.RUTG: _rutg(); break;
+                case Mnemonic.RDTG: _rdtg(); break;
+                case Mnemonic.SANGW: break; // SANGW (ignored)
+                case Mnemonic.AA: break; // AA (ignored)
+                case Mnemonic.FLIPPT: _flippt(); break;
+                case Mnemonic.FLIPRGON: _fliprgon(); break;
+                case Mnemonic.FLIPRGOFF: _fliprgoff(); break;
+                case Mnemonic.SCANCTRL: _scanctrl(); break;
+                case Mnemonic.SDPVTL:
+                case Mnemonic.SDPVTL + 1: _sdpvtl((short)(opcode & 1)); break;
+                case Mnemonic.GETINFO: _getinfo(); break;
+                case Mnemonic.IDEF: _idef(); pc = code[pc]; break;
+                case Mnemonic.ROLL: _roll(); break;
+                case Mnemonic.MAX: _max(); break;
+                case Mnemonic.MIN: _min(); break;
+                case Mnemonic.SCANTYPE: _scantype(); break;
+                case Mnemonic.INSTCTRL: _instctrl(); break;
+                default:
+                    if (opcode >= Mnemonic.MIRP) _mirp((short)(opcode & 31));
+                    else if (opcode >= Mnemonic.MDRP) _mdrp((short)(opcode & 31));
+                    else if (opcode >= Mnemonic.PUSHB) pc = _push(code, pc);
+                    break;
             }
-            if (opcode >= Mnemonic.MIRP) _mirp((short)(opcode & 31));
-            else if (opcode >= Mnemonic.MDRP) _mdrp((short)(opcode & 31));
-            else if (opcode >= Mnemonic.PUSHW) _push(parser.getPushData(ip));
-            else if (opcode >= Mnemonic.PUSHB) _push(parser.getPushData(ip));
-            else if (opcode >= Mnemonic.INSTCTRL) _instctrl();
-            else if (opcode >= Mnemonic.SCANTYPE) _scantype();
-            else if (opcode >= Mnemonic.MIN) _min();
-            else if (opcode >= Mnemonic.MAX) _max();
-            else if (opcode >= Mnemonic.ROLL) _roll();
-            else if (opcode >= Mnemonic.IDEF) _idef();
-            else if (opcode >= Mnemonic.GETINFO) _getinfo();
-            else if (opcode >= Mnemonic.SDPVTL) _sdpvtl((short)(opcode & 1));
-            else if (opcode >= Mnemonic.SCANCTRL) _scanctrl();
-            else if (opcode >= Mnemonic.FLIPRGOFF) _fliprgoff();
-            else if (opcode >= Mnemonic.FLIPRGON) _fliprgon();
-            else if (opcode >= Mnemonic.FLIPPT) _flippt();
-            else if (opcode >= Mnemonic.AA); // AA (ignored)
-            else if (opcode >= Mnemonic.SANGW); // SANGW (ignored)
-            else if (opcode >= Mnemonic.RDTG) _rdtg();
-            else if (opcode >= Mnemonic.RUTG) _rutg();
-            else if (opcode >= Mnemonic.ROFF) _roff();
-            else if (opcode >= Mnemonic.JROF) ip = _jrof(ip);
-            else if (opcode >= Mnemonic.JROT) ip = _jrot(ip);
-            else if (opcode >= Mnemonic.S45ROUND) _s45round();
-            else if (opcode >= Mnemonic.SROUND) _sround();
-            else if (opcode >= Mnemonic.DELTAC3) _deltac3();
-            else if (opcode >= Mnemonic.DELTAC2) _deltac2();
-            else if (opcode >= Mnemonic.DELTAC1) _deltac1();
-            else if (opcode >= Mnemonic.DELTAP3) _deltap3();
-            else if (opcode >= Mnemonic.DELTAP2) _deltap2();
-            else if (opcode >= Mnemonic.WCVTF) _wcvtf();
-            else if (opcode >= Mnemonic.NROUND) _nround((short)(opcode & 3));
-            else if (opcode >= Mnemonic.ROUND) _round((short)(opcode & 3));
-            else if (opcode >= Mnemonic.CEILING) _ceiling();
-            else if (opcode >= Mnemonic.FLOOR) _floor();
-            else if (opcode >= Mnemonic.NEG) _neg();
-            else if (opcode >= Mnemonic.ABS) _abs();
-            else if (opcode >= Mnemonic.MUL) _mul();
-            else if (opcode >= Mnemonic.DIV) _div();
-            else if (opcode >= Mnemonic.SUB) _sub();
-            else if (opcode >= Mnemonic.ADD) _add();
-            else if (opcode >= Mnemonic.SDS) _sds();
-            else if (opcode >= Mnemonic.SDB) _sdb();
-            else if (opcode >= Mnemonic.DELTAP1) _deltap1();
-            else if (opcode >= Mnemonic.NOT) _not();
-            else if (opcode >= Mnemonic.OR) _or();
-            else if (opcode >= Mnemonic.AND) _and();
-            else if (opcode >= Mnemonic.EIF); // EIF
-            else if (opcode >= Mnemonic.IF) ip = _if(ip);
-            else if (opcode >= Mnemonic.EVEN) _even();
-            else if (opcode >= Mnemonic.ODD) _odd();
-            else if (opcode >= Mnemonic.NEQ) _neq();
-            else if (opcode >= Mnemonic.EQ) _eq();
-            else if (opcode >= Mnemonic.GTEQ) _gteq();
-            else if (opcode >= Mnemonic.GT) _gt();
-            else if (opcode >= Mnemonic.LTEQ) _lteq();
-            else if (opcode >= Mnemonic.LT) _lt();
-            else if (opcode >= Mnemonic.DEBUG) _debug();
-            else if (opcode >= Mnemonic.FLIPOFF) _flipoff();
-            else if (opcode >= Mnemonic.FLIPON) _flipon();
-            else if (opcode >= Mnemonic.MPS) _mps();
-            else if (opcode >= Mnemonic.MPPEM) _mppem();
-            else if (opcode >= Mnemonic.MD) _md((short)(opcode & 1));
-            else if (opcode >= Mnemonic.SCFS) _scfs();
-            else if (opcode >= Mnemonic.GC) _gc((short)(opcode & 1));
-            else if (opcode >= Mnemonic.RCVT) _rcvt();
-            else if (opcode >= Mnemonic.WCVTP) _wcvtp();
-            else if (opcode >= Mnemonic.RS) _rs();
-            else if (opcode >= Mnemonic.WS) _ws();
-            else if (opcode >= Mnemonic.NPUSHW) _push(parser.getPushData(ip));
-            else if (opcode >= Mnemonic.NPUSHB) _push(parser.getPushData(ip));
-            else if (opcode >= Mnemonic.MIAP) _miap((short)(opcode & 1));
-            else if (opcode >= Mnemonic.RTDG) _rtdg();
-            else if (opcode >= Mnemonic.ALIGNRP) _alignrp();
-            else if (opcode >= Mnemonic.IP) _ip();
-            else if (opcode >= Mnemonic.MSIRP) _msirp((short)(opcode & 1));
-            else if (opcode >= Mnemonic.SHPIX) _shpix();
-            else if (opcode >= Mnemonic.SHZ) _shz((short)(opcode & 1));
-            else if (opcode >= Mnemonic.SHC) _shc((short)(opcode & 1));
-            else if (opcode >= Mnemonic.SHP) _shp((short)(opcode & 1));
-            else if (opcode >= Mnemonic.IUP) _iup((short)(opcode & 1));
-            else if (opcode >= Mnemonic.MDAP) _mdap((short)(opcode & 1));
-            else if (opcode >= Mnemonic.ENDF) return;
-            else if (opcode >= Mnemonic.FDEF) _fdef(ip + 1);
-            else if (opcode >= Mnemonic.CALL) _call();
-            else if (opcode >= Mnemonic.LOOPCALL) _loopcall();
-            else if (opcode >= Mnemonic.UTP) _utp();
-            else if (opcode >= Mnemonic.ALIGNPTS) _alignpts();
-            else if (opcode >= Mnemonic.MINDEX) _mindex();
-            else if (opcode >= Mnemonic.CINDEX) _cindex();
-            else if (opcode >= Mnemonic.DEPTH) _depth();
-            else if (opcode >= Mnemonic.SWAP) _swap();
-            else if (opcode >= Mnemonic.CLEAR) _clear();
-            else if (opcode >= Mnemonic.POP) pop();
-            else if (opcode >= Mnemonic.DUP) _dup();
-            else if (opcode >= Mnemonic.SSW) _ssw();
-            else if (opcode >= Mnemonic.SSWCI) _sswci();
-            else if (opcode >= Mnemonic.SCVTCI) _scvtci();
-            else if (opcode >= Mnemonic.JMPR) ip = _jmpr(ip);
-            else if (opcode >= Mnemonic.ELSE) ip = _else(ip);
-            else if (opcode >= Mnemonic.SMD) _smd();
-            else if (opcode >= Mnemonic.RTHG) _rthg();
-            else if (opcode >= Mnemonic.RTG) _rtg();
-            else if (opcode >= Mnemonic.SLOOP) _sloop();
-            else if (opcode >= Mnemonic.SZPS) _szps();
-            else if (opcode >= Mnemonic.SZP2) _szp2();
-            else if (opcode >= Mnemonic.SZP1) _szp1();
-            else if (opcode >= Mnemonic.SZP0) _szp0();
-            else if (opcode >= Mnemonic.SRP2) _srp2();
-            else if (opcode >= Mnemonic.SRP1) _srp1();
-            else if (opcode >= Mnemonic.SRP0) _srp0();
-            else if (opcode >= Mnemonic.ISECT) _isect();
-            else if (opcode >= Mnemonic.SFVTPV) _sfvtpv();
-            else if (opcode >= Mnemonic.GFV) _gfv();
-            else if (opcode >= Mnemonic.GPV) _gpv();
-            else if (opcode >= Mnemonic.SFVFS) _sfvfs();
-            else if (opcode >= Mnemonic.SPVFS) _spvfs();
-            else if (opcode >= Mnemonic.SFVTL) _sfvtl((short)(opcode & 1));
-            else if (opcode >= Mnemonic.SPVTL) _spvtl((short)(opcode & 1));
-            else if (opcode >= Mnemonic.SFVTCA) _sfvtca((short)(opcode & 1));
-            else if (opcode >= Mnemonic.SPVTCA) _spvtca((short)(opcode & 1));
-            else if (opcode >= Mnemonic.SVTCA) _svtca((short)(opcode & 1));
-            ip = parser.advanceIP(ip);
         }
     }
 
@@ -1333,6 +1344,20 @@ public class Interpreter {
         return zone;
     }
 
+    /**
+     * Returns the number of elements on the stack
+     */
+    public int getStackDepth() {
+        return stackIndex;
+    }
+
+    /**
+     * Returns the stack element at index <code>i</code>, counted from the bottom
+     */
+    public int getStackElement(final int i) {
+        return stack[i];
+    }
+
     private int pop() {
         return stack[--stackIndex];
     }
@@ -1341,18 +1366,28 @@ public class Interpreter {
         stack[stackIndex++] = i;
     }
 
+    /**
+     * Runs the control value program, its resulting graphics state
+     * is the initial state of each glyph program.
+     */
     public void runCvtProgram() {
-        execute(0x00010000);
+        stackIndex = 0;
+        gs.reset();
+        execute(parser.getProgram(1), 0);
+        cvtGs.copyFrom(gs);
     }
 
     public void runFontProgram() {
-        execute(0);
+        stackIndex = 0;
+        execute(parser.getProgram(0), 0);
     }
 
     public void runGlyphProgram() {
+        stackIndex = 0;
+        gs.copyFrom(cvtGs);
         // instruction_control can be set to stop glyphs grid-fitting
         if ((gs.instruction_control & 1) == 0) {
-            execute(0x00020000);
+            execute(parser.getProgram(2), 0);
         }
     }
 
@@ -21,6 +21,7 @@
 package jogamp.graph.font.typecast.tt.engine;
 
 import jogamp.graph.font.typecast.ot.Mnemonic;
+import jogamp.graph.font.typecast.ot.table.Program;
 
 /**
  * @author <a href="mailto:davidsch@dev.java.net">David Schweinsberg</a>
@@ -29,6 +30,7 @@ import jogamp.graph.font.typecast.ot.Mnemonic;
 public class Parser {
 
     private final short[][] instructions = new short[3][];
+    private final CompiledProgram[] programs = new CompiledProgram[3];
 
     /**
      * Advance the instruction pointer to the next executable opcode.
@@ -107,24 +109,11 @@ public class Parser {
         return data;
     }
 
-    public int handleElse(int ip) {
-        while (instructions[ip >> 16][ip & 0xffff] != Mnemonic.EIF) {
-            ip = advanceIP(ip);
-        }
-        return ip;
-    }
-
-    public int handleIf(final boolean test, int ip) {
-        if (test == false) {
-            // The TrueType spec says that we merely jump to the *next* ELSE or EIF
-            // instruction in the instruction stream.  So therefore no nesting!
-            // Looking at actual code, IF-ELSE-EIF can be nested!
-            while ((instructions[ip >> 16][ip & 0xffff] != Mnemonic.ELSE)
-                    && (instructions[ip >> 16][ip & 0xffff] != Mnemonic.EIF)) {
-                ip = advanceIP(ip);
-            }
-        }
-        return ip;
+    /**
+     * Returns the compiled font (0), cvt (1) or glyph (2) program.
+     */
+    public CompiledProgram getProgram(final int prog) {
+        return programs[prog];
     }
 
     /**
@@ -132,6 +121,18 @@ public class Parser {
      */
     public void setCvtProgram(final short[] program) {
         instructions[1] = program;
+        programs[1] = CompiledProgram.compile(program);
+    }
+
+    /**
+     * This program is run everytime we scale the font
+     * <p>
+     * Uses the program's cached {@link Program#getCompiledProgram() compiled program}.
+     * </p>
+     */
+    public void setCvtProgram(final Program program) {
+        instructions[1] = program.getInstructions();
+        programs[1] = program.getCompiledProgram();
     }
 
     /**
@@ -139,6 +140,18 @@ public class Parser {
      */
     public void setFontProgram(final short[] program) {
         instructions[0] = program;
+        programs[0] = CompiledProgram.compile(program);
+    }
+
+    /**
+     * This program is only run once
+     * <p>
+     * Uses the program's cached {@link Program#getCompiledProgram() compiled program}.
+     * </p>
+     */
+    public void setFontProgram(final Program program) {
+        instructions[0] = program.getInstructions();
+        programs[0] = program.getCompiledProgram();
     }
 
     /**
@@ -146,6 +159,18 @@ public class Parser {
      */
     public void setGlyphProgram(final short[] program) {
         instructions[2] = program;
+        programs[2] = CompiledProgram.compile(program);
+    }
+
+    /**
+     * This program is run everytime we scale the glyph
+     * <p>
+     * Uses the program's cached {@link Program#getCompiledProgram() compiled program}.
+     * </p>
+     */
+    public void setGlyphProgram(final Program program) {
+        instructions[2] = program.getInstructions();
+        programs[2] = program.getCompiledProgram();
     }
 
     @Override
@@ -316,6 +316,16 @@ public class BuildMipmap {
     mark = psm.getUnpackSkipRows() * rowsize + psm.getUnpackSkipPixels() * group_size;
     data.position( mark );
 
+    // specialized and parallel halving of the common byte and float types
+    final MipmapBuilder builder;
+    if( MipmapBuilder.isSupported( type, false ) ) {
+      builder = new MipmapBuilder( cmpts, type );
+      builder.setSRGB( MipmapBuilder.isSRGBFormat( internalFormat ) );
+      builder.setExecutor( MipmapBuilder.getSharedExecutor() );
+    } else {
+      builder = null;
+    }
+
     gl.glPixelStorei( GL2ES2.GL_UNPACK_SKIP_ROWS, 0 );
     gl.glPixelStorei( GL2ES2.GL_UNPACK_SKIP_PIXELS, 0 );
     gl.glPixelStorei( GL2ES2.GL_UNPACK_ROW_LENGTH, 0 );
@@ -386,7 +396,11 @@ public class BuildMipmap {
       if( dstImage != null ) {
         switch( type ) {
           case( GL.GL_UNSIGNED_BYTE ):
-            HalveImage.halveImage_ubyte( cmpts, width, height, data, dstImage, element_size, rowsize, group_size );
+            if( null != builder ) {
+              halveImage( builder, data, width, height, rowsize, dstImage );
+            } else {
+              HalveImage.halveImage_ubyte( cmpts, width, height, data, dstImage, element_size, rowsize, group_size );
+            }
             break;
           case( GL.GL_BYTE ):
             HalveImage.halveImage_byte( cmpts, width, height, data, dstImage, element_size, rowsize, group_size );
@@ -404,7 +418,11 @@ public class BuildMipmap {
             HalveImage.halveImage_int( cmpts, width, height, data, dstImage.asIntBuffer(), element_size, rowsize, group_size, myswap_bytes );
             break;
           case( GL.GL_FLOAT ):
-            HalveImage.halveImage_float( cmpts, width, height, data, dstImage.asFloatBuffer(), element_size, rowsize, group_size, myswap_bytes );
+            if( null != builder && !myswap_bytes ) {
+              halveImage( builder, data, width, height, rowsize, dstImage );
+            } else {
+              HalveImage.halveImage_float( cmpts, width, height, data, dstImage.asFloatBuffer(), element_size, rowsize, group_size, myswap_bytes );
+            }
             break;
           case( GL2GL3.GL_UNSIGNED_BYTE_3_3_2 ):
             assert( format == GL.GL_RGB );
@@ -692,13 +710,20 @@ public class BuildMipmap {
       }
     }
 
+    // padded copy of the levels, allocated once for the largest padded level
+    ByteBuffer newMipmapImage = null;
+
     level++;  // update current level for the loop
     for( ; level <= levels; level++ ) {
       srcImage.rewind();
       dstImage.rewind();
       switch( type ) {
         case( GL.GL_UNSIGNED_BYTE ):
-          HalveImage.halveImage_ubyte( cmpts, newwidth, newheight, srcImage, dstImage, element_size, rowsize, group_size );
+          if( null != builder ) {
+            halveImage( builder, srcImage, newwidth, newheight, rowsize, dstImage );
+          } else {
+            HalveImage.halveImage_ubyte( cmpts, newwidth, newheight, srcImage, dstImage, element_size, rowsize, group_size );
+          }
           break;
         case( GL.GL_BYTE ):
           HalveImage.halveImage_byte( cmpts, newwidth, newheight, srcImage, dstImage, element_size, rowsize, group_size );
@@ -716,7 +741,11 @@ public class BuildMipmap {
           HalveImage.halveImage_int( cmpts, newwidth, newheight, srcImage, dstImage.asIntBuffer(), element_size, rowsize, group_size, myswap_bytes );
           break;
         case( GL.GL_FLOAT ):
-          HalveImage.halveImage_float( cmpts, newwidth, newheight, srcImage, dstImage.asFloatBuffer(), element_size, rowsize, group_size, myswap_bytes );
+          if( null != builder && !myswap_bytes ) {
+            halveImage( builder, srcImage, newwidth, newheight, rowsize, dstImage );
+          } else {
+            HalveImage.halveImage_float( cmpts, newwidth, newheight, srcImage, dstImage.asFloatBuffer(), element_size, rowsize, group_size, myswap_bytes );
+          }
           break;
         case( GL2GL3.GL_UNSIGNED_BYTE_3_3_2 ):
           assert( format == GL.GL_RGB );
@@ -795,14 +824,13 @@ public class BuildMipmap {
       } else {
         // compute length of new row in bytes, including padding
         final int newRowLength = rowsize + psm.getUnpackAlignment() - rowPad;
-        int ii, jj;
-        final int dstTrav;
-        final int srcTrav;
+        int ii;
 
-        // allocate new image for mipmap of size newRowLength x newheight
-        ByteBuffer newMipmapImage = null;
+        // allocate new image for mipmap of size newRowLength x newheight, if not yet done
         try {
-          newMipmapImage = ByteBuffer.allocateDirect( newRowLength * newheight );
+          if( null == newMipmapImage || newMipmapImage.capacity() < newRowLength * newheight ) {
+            newMipmapImage = ByteBuffer.allocateDirect( newRowLength * newheight );
+          }
         } catch( final OutOfMemoryError ome ) {
           gl.glPixelStorei( GL.GL_UNPACK_ALIGNMENT, psm.getUnpackAlignment() );
           gl.glPixelStorei( GL2ES2.GL_UNPACK_SKIP_ROWS, psm.getUnpackSkipRows() );
@@ -811,14 +839,14 @@ public class BuildMipmap {
           gl.glPixelStorei( GL2GL3.GL_UNPACK_SWAP_BYTES, (psm.getUnpackSwapBytes() ? 1 : 0) );
           return( GLU.GLU_OUT_OF_MEMORY );
         }
-        srcImage.rewind();
         // copy image from srcImage into newMipmapImage by rows
         for( ii = 0; ii < newheight; ii++ ) {
-          newMipmapImage.position(newRowLength * ii);
-          for( jj = 0; jj < rowsize; jj++ ) {
-            newMipmapImage.put( srcImage.get() );
-          }
+          srcImage.limit( rowsize * ( ii + 1 ) );
+          srcImage.position( rowsize * ii );
+          newMipmapImage.position( newRowLength * ii );
+          newMipmapImage.put( srcImage );
         }
+        srcImage.clear();
 
         // and use this new image for mipmapping instead
         if( baseLevel <= level && level <= maxLevel ) {
@@ -843,6 +871,23 @@ public class BuildMipmap {
     return( 0 );
   }
 
+  /**
+   * Halves the image using the given builder, finishing on the calling thread if interrupted,
+   * since the GLU entry points cannot report an interruption.
+   */
+  private static void halveImage( final MipmapBuilder builder, final ByteBuffer src, final int width, final int height,
+                                  final int rowsize, final ByteBuffer dst ) {
+    while( true ) {
+      try {
+        builder.halve( src, width, height, rowsize, dst );
+        return;
+      } catch( final InterruptedException ie ) {
+        Thread.currentThread().interrupt();
+        builder.setExecutor( null );
+      }
+    }
+  }
+
   public static int fastBuild2DMipmaps( final GL gl, final PixelStorageModes psm, final int target,
           final int components, final int width, final int height, final int format, final int type, final ByteBuffer data ) {
     final int[] newwidth = new int[1];
@@ -0,0 +1,534 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package jogamp.opengl.glu.mipmap;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.opengl.GL;
+import com.jogamp.opengl.GL2ES3;
+
+/**
+ * Mipmap level generator for the common {@link GL#GL_UNSIGNED_BYTE} and {@link GL#GL_FLOAT}
+ * component types, an alternative to the generic {@link HalveImage} routines.
+ * <p>
+ * Each level is produced from the previous one by a separable 2:1 reduction,
+ * either the GLU 2x2 box filter or a 6-tap Kaiser windowed sinc, see {@link #setFilter(int)}.
+ * 4 component bytes, i.e. RGBA8, are box filtered as packed integers,
+ * all other cases run on plain component loops without per-type dispatch.
+ * </p>
+ * <p>
+ * Byte data may be treated as sRGB encoded, see {@link #setSRGB(boolean)}.
+ * </p>
+ * <p>
+ * Each level is split in bands of rows, which are processed concurrently if an
+ * {@link #setExecutor(ExecutorService) executor} is given.
+ * The float row buffers used by the Kaiser filter are kept by this instance and reused for all levels,
+ * hence an instance shall not be used by multiple threads concurrently.
+ * </p>
+ */
+public class MipmapBuilder {
+
+  /** GLU compatible 2x2 box filter, the default. */
+  public static final int FILTER_BOX = 0;
+  /** Separable 6-tap Kaiser windowed sinc filter, sharper than the box filter with less aliasing. */
+  public static final int FILTER_KAISER = 1;
+
+  /** Minimum number of destination pixels per band */
+  private static final int MIN_BAND_PIXELS = 32 * 1024;
+
+  private static final int KAISER_TAPS = 6;
+  private static final float[] KAISER_WEIGHTS = computeKaiserWeights( 3f, 4f );
+
+  private static final float[] SRGB_TO_LINEAR = new float[256];
+  private static final int LINEAR_TO_SRGB_BITS = 16;
+  private static final byte[] LINEAR_TO_SRGB = new byte[ 1 << LINEAR_TO_SRGB_BITS ];
+
+  static {
+    for( int i = 0; i < 256; i++ ) {
+      final double c = i / 255.0;
+      SRGB_TO_LINEAR[i] = (float) ( c <= 0.04045 ? c / 12.92 : Math.pow( ( c + 0.055 ) / 1.055, 2.4 ) );
+    }
+    final int max = LINEAR_TO_SRGB.length - 1;
+    for( int i = 0; i <= max; i++ ) {
+      final double l = (double) i / max;
+      final double c = l <= 0.0031308 ? l * 12.92 : 1.055 * Math.pow( l, 1.0 / 2.4 ) - 0.055;
+      LINEAR_TO_SRGB[i] = (byte) (int) ( c * 255.0 + 0.5 );
+    }
+  }
+
+  private static ExecutorService sharedExecutor = null;
+
+  private final int components;
+  private final int type;
+  private final int elementSize;
+  private int filter = FILTER_BOX;
+  private boolean srgb = false;
+  private ExecutorService executor = null;
+  private float[][] rowBuffers = new float[0][];
+
+  /**
+   * @param components number of components per pixel, 1 - 4
+   * @param type {@link GL#GL_UNSIGNED_BYTE} or {@link GL#GL_FLOAT}
+   * @throws IllegalArgumentException if the components or type are not supported
+   */
+  public MipmapBuilder( final int components, final int type ) throws IllegalArgumentException {
+    if( components < 1 || components > 4 ) {
+      throw new IllegalArgumentException( "Unsupported components " + components );
+    }
+    if( !isSupported( type, false ) ) {
+      throw new IllegalArgumentException( "Unsupported type 0x" + Integer.toHexString( type ) );
+    }
+    this.components = components;
+    this.type = type;
+    this.elementSize = GL.GL_FLOAT == type ? 4 : 1;
+  }
+
+  /** Returns true if data of the given type and byte swapping can be processed by this class. */
+  public static boolean isSupported( final int type, final boolean swapBytes ) {
+    return !swapBytes && ( GL.GL_UNSIGNED_BYTE == type || GL.GL_FLOAT == type );
+  }
+
+  /** Returns true if the given internal format stores sRGB encoded color. */
+  public static boolean isSRGBFormat( final int internalFormat ) {
+    switch( internalFormat ) {
+      case GL.GL_SRGB:
+      case GL2ES3.GL_SRGB8:
+      case GL.GL_SRGB_ALPHA:
+      case GL.GL_SRGB8_ALPHA8:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Returns a lazily created executor shared by all users of this package,
+   * with one daemon thread per available processor.
+   * Returns <code>null</code> on a single processor machine.
+   */
+  public static synchronized ExecutorService getSharedExecutor() {
+    if( null == sharedExecutor ) {
+      final int threads = Runtime.getRuntime().availableProcessors();
+      if( 1 < threads ) {
+        final AtomicInteger threadNum = new AtomicInteger( 0 );
+        sharedExecutor = Executors.newFixedThreadPool( threads, new ThreadFactory() {
+          @Override
+          public Thread newThread( final Runnable r ) {
+            final Thread t = new Thread( r, "GLU-Mipmap-Worker-" + threadNum.getAndIncrement() );
+            t.setDaemon( true );
+            return t;
+          } } );
+      }
+    }
+    return sharedExecutor;
+  }
+
+  /** Sets the filter, {@link #FILTER_BOX} or {@link #FILTER_KAISER}. */
+  public MipmapBuilder setFilter( final int filter ) {
+    if( FILTER_BOX != filter && FILTER_KAISER != filter ) {
+      throw new IllegalArgumentException( "Unknown filter " + filter );
+    }
+    this.filter = filter;
+    return this;
+  }
+
+  public int getFilter() { return filter; }
+
+  /**
+   * If true and the type is {@link GL#GL_UNSIGNED_BYTE}, the color components are decoded
+   * from sRGB to linear before filtering and encoded again afterwards.
+   * The alpha component of 2 and 4 component data is always filtered linearly.
+   * Defaults to false.
+   */
+  public MipmapBuilder setSRGB( final boolean srgb ) {
+    this.srgb = srgb;
+    return this;
+  }
+
+  public boolean getSRGB() { return srgb; }
+
+  /**
+   * Sets the executor to process bands of large levels concurrently,
+   * <code>null</code> processes all levels on the calling thread, the default.
+   */
+  public MipmapBuilder setExecutor( final ExecutorService executor ) {
+    this.executor = executor;
+    return this;
+  }
+
+  public ExecutorService getExecutor() { return executor; }
+
+  /** Returns the number of bytes of a tightly packed image of the given size. */
+  public int getImageSize( final int width, final int height ) {
+    return width * height * components * elementSize;
+  }
+
+  /**
+   * Computes the next mipmap level of <code>src</code>, which is
+   * <code>max(1, width/2)</code> x <code>max(1, height/2)</code> pixels.
+   * <p>
+   * The source starts at its current position, the destination is written tightly packed
+   * starting at its current position. Neither position is changed.
+   * </p>
+   * @param src source image
+   * @param width source width in pixels
+   * @param height source height in pixels, <code>width</code> and <code>height</code> must not both be 1
+   * @param rowStride source row stride in bytes, including padding
+   * @param dst destination of the next level
+   * @throws InterruptedException if interrupted while waiting for the executor tasks
+   * @throws RuntimeException if a task failed, wrapping the cause unless it is a {@link RuntimeException}
+   */
+  public void halve( final ByteBuffer src, final int width, final int height, final int rowStride,
+                     final ByteBuffer dst ) throws InterruptedException, RuntimeException {
+    assert( width > 1 || height > 1 );
+    final int newwidth = Math.max( 1, width / 2 );
+    final int newheight = Math.max( 1, height / 2 );
+    final int srcOffset = src.position();
+    final int dstOffset = dst.position();
+    final int rowsPerBand = Math.max( 1, MIN_BAND_PIXELS / newwidth );
+    final int bands = null != executor ? ( newheight + rowsPerBand - 1 ) / rowsPerBand : 1;
+    if( FILTER_KAISER == filter ) {
+      ensureRowBuffers( bands, width * components );
+    }
+    if( 1 == bands ) {
+      halveRows( src, srcOffset, width, height, rowStride, dst, dstOffset, 0, newheight, 0 );
+      return;
+    }
+    final ArrayList<Future<Object>> results = new ArrayList<Future<Object>>( bands );
+    try {
+      for( int i = 0; i < bands; i++ ) {
+        final int band = i;
+        final int y0 = band * rowsPerBand;
+        final int y1 = Math.min( newheight, y0 + rowsPerBand );
+        results.add( executor.submit( new Callable<Object>() {
+          @Override
+          public Object call() {
+            halveRows( src, srcOffset, width, height, rowStride, dst, dstOffset, y0, y1, band );
+            return null;
+          } } ) );
+      }
+      for( int i = 0; i < results.size(); i++ ) {
+        results.get( i ).get();
+      }
+    } catch( final ExecutionException ee ) {
+      final Throwable t = ee.getCause();
+      if( t instanceof RuntimeException ) {
+        throw (RuntimeException) t;
+      }
+      throw new RuntimeException( t );
+    } finally {
+      for( int i = 0; i < results.size(); i++ ) {
+        results.get( i ).cancel( false );
+      }
+    }
+  }
+
+  /**
+   * Generates all mipmap levels below the given base level down to 1x1,
+   * stored tightly packed in one buffer.
+   * @param base level 0, starting at its current position
+   * @param width level 0 width in pixels
+   * @param height level 0 height in pixels
+   * @param rowStride level 0 row stride in bytes, including padding
+   * @return levels 1 to n, slices of one direct buffer, empty if the base level is 1x1
+   * @throws InterruptedException if interrupted while waiting for the executor tasks
+   */
+  public ByteBuffer[] buildLevels( final ByteBuffer base, final int width, final int height, final int rowStride )
+          throws InterruptedException {
+    int count = 0;
+    int total = 0;
+    for( int w = width, h = height; w > 1 || h > 1; count++ ) {
+      w = Math.max( 1, w / 2 );
+      h = Math.max( 1, h / 2 );
+      total += getImageSize( w, h );
+    }
+    final ByteBuffer chain = Buffers.newDirectByteBuffer( total );
+    final ByteBuffer[] levels = new ByteBuffer[count];
+    ByteBuffer src = base;
+    int w = width, h = height, stride = rowStride;
+    for( int i = 0; i < count; i++ ) {
+      final int w2 = Math.max( 1, w / 2 ), h2 = Math.max( 1, h / 2 );
+      chain.limit( chain.position() + getImageSize( w2, h2 ) );
+      final ByteBuffer dst = chain.slice().order( chain.order() );
+      halve( src, w, h, stride, dst );
+      levels[i] = dst;
+      chain.position( chain.limit() );
+      src = dst;
+      w = w2;
+      h = h2;
+      stride = w * components * elementSize;
+    }
+    return levels;
+  }
+
+  private void ensureRowBuffers( final int count, final int length ) {
+    if( rowBuffers.length < count ) {
+      final float[][] n = new float[count][];
+      System.arraycopy( rowBuffers, 0, n, 0, rowBuffers.length );
+      rowBuffers = n;
+    }
+    for( int i = 0; i < count; i++ ) {
+      if( null == rowBuffers[i] || rowBuffers[i].length < length ) {
+        rowBuffers[i] = new float[length];
+      }
+    }
+  }
+
+  private void halveRows( final ByteBuffer src, final int srcOffset, final int width, final int height,
+                          final int rowStride, final ByteBuffer dst, final int dstOffset,
+                          final int y0, final int y1, final int band ) {
+    if( FILTER_KAISER == filter ) {
+      kaiserRows( src, srcOffset, width, height, rowStride, dst, dstOffset, y0, y1, rowBuffers[band] );
+    } else if( GL.GL_FLOAT == type ) {
+      boxRowsFloat( src, srcOffset, width, height, rowStride, dst, dstOffset, y0, y1 );
+    } else if( srgb ) {
+      boxRowsSRGB( src, srcOffset, width, height, rowStride, dst, dstOffset, y0, y1 );
+    } else if( 4 == components && 1 < width && 1 < height ) {
+      boxRowsRGBA8( src, srcOffset, width, rowStride, dst, dstOffset, y0, y1 );
+    } else {
+      boxRowsUByte( src, srcOffset, width, height, rowStride, dst, dstOffset, y0, y1 );
+    }
+  }
+
+  /** RGBA8 box filter, averaging the even and odd bytes of 4 packed pixels at once. */
+  private static void boxRowsRGBA8( final ByteBuffer src, final int srcOffset, final int width, final int rowStride,
+                                    final ByteBuffer dst, final int dstOffset, final int y0, final int y1 ) {
+    final int newwidth = width / 2;
+    for( int y = y0; y < y1; y++ ) {
+      int s = srcOffset + 2 * y * rowStride;
+      int d = dstOffset + y * newwidth * 4;
+      for( int x = 0; x < newwidth; x++ ) {
+        final int p0 = src.getInt( s );
+        final int p1 = src.getInt( s + 4 );
+        final int p2 = src.getInt( s + rowStride );
+        final int p3 = src.getInt( s + rowStride + 4 );
+        final int even = ( p0 & 0x00FF00FF ) + ( p1 & 0x00FF00FF ) + ( p2 & 0x00FF00FF ) + ( p3 & 0x00FF00FF ) + 0x00020002;
+        final int odd = ( ( p0 >>> 8 ) & 0x00FF00FF ) + ( ( p1 >>> 8 ) & 0x00FF00FF ) +
+                        ( ( p2 >>> 8 ) & 0x00FF00FF ) + ( ( p3 >>> 8 ) & 0x00FF00FF ) + 0x00020002;
+        dst.putInt( d, ( ( even >>> 2 ) & 0x00FF00FF ) | ( ( ( odd >>> 2 ) & 0x00FF00FF ) << 8 ) );
+        s += 8;
+        d += 4;
+      }
+    }
+  }
+
+  private void boxRowsUByte( final ByteBuffer src, final int srcOffset, final int width, final int height,
+                             final int rowStride, final ByteBuffer dst, final int dstOffset, final int y0, final int y1 ) {
+    final int newwidth = Math.max( 1, width / 2 );
+    final int dx = 1 < width ? components : 0;
+    final int dy = 1 < height ? rowStride : 0;
+    final int skip = 2 * dx - components;
+    final int rowLen = newwidth * components;
+    for( int y = y0; y < y1; y++ ) {
+      int s = srcOffset + 2 * y * dy;
+      int d = dstOffset + y * rowLen;
+      if( 0 != dx && 0 != dy ) {
+        for( int x = 0; x < newwidth; x++ ) {
+          for( int k = 0; k < components; k++ ) {
+            final int v = ( src.get( s ) & 0xFF ) + ( src.get( s + dx ) & 0xFF ) +
+                          ( src.get( s + dy ) & 0xFF ) + ( src.get( s + dy + dx ) & 0xFF ) + 2;
+            dst.put( d++, (byte) ( v >>> 2 ) );
+            s++;
+          }
+          s += skip;
+        }
+      } else {
+        final int step = dx + dy; // 1D, one of both is zero
+        for( int x = 0; x < newwidth; x++ ) {
+          for( int k = 0; k < components; k++ ) {
+            final int v = ( src.get( s ) & 0xFF ) + ( src.get( s + step ) & 0xFF ) + 1;
+            dst.put( d++, (byte) ( v >>> 1 ) );
+            s++;
+          }
+          s += skip;
+        }
+      }
+    }
+  }
+
+  private void boxRowsSRGB( final ByteBuffer src, final int srcOffset, final int width, final int height,
+                            final int rowStride, final ByteBuffer dst, final int dstOffset, final int y0, final int y1 ) {
+    final int newwidth = Math.max( 1, width / 2 );
+    final int dx = 1 < width ? components : 0;
+    final int dy = 1 < height ? rowStride : 0;
+    final int skip = 2 * dx - components;
+    final int rowLen = newwidth * components;
+    final int alpha = 0 == ( components & 1 ) ? components - 1 : -1;
+    final float scale = ( LINEAR_TO_SRGB.length - 1 ) * 0.25f;
+    for( int y = y0; y < y1; y++ ) {
+      int s = srcOffset + 2 * y * dy;
+      int d = dstOffset + y * rowLen;
+      for( int x = 0; x < newwidth; x++ ) {
+        for( int k = 0; k < components; k++ ) {
+          final int a = src.get( s ) & 0xFF, b = src.get( s + dx ) & 0xFF;
+          final int c = src.get( s + dy ) & 0xFF, e = src.get( s + dy + dx ) & 0xFF;
+          if( k == alpha ) {
+            dst.put( d++, (byte) ( ( a + b + c + e + 2 ) >>> 2 ) );
+          } else {
+            final float l = SRGB_TO_LINEAR[a] + SRGB_TO_LINEAR[b] + SRGB_TO_LINEAR[c] + SRGB_TO_LINEAR[e];
+            dst.put( d++, LINEAR_TO_SRGB[ (int) ( l * scale + 0.5f ) ] );
+          }
+          s++;
+        }
+        s += skip;
+      }
+    }
+  }
+
+  private void boxRowsFloat( final ByteBuffer src, final int srcOffset, final int width, final int height,
+                             final int rowStride, final ByteBuffer dst, final int dstOffset, final int y0, final int y1 ) {
+    final int newwidth = Math.max( 1, width / 2 );
+    final int dx = 1 < width ? components * 4 : 0;
+    final int dy = 1 < height ? rowStride : 0;
+    final int skip = 2 * dx - components * 4;
+    final int rowLen = newwidth * components * 4;
+    for( int y = y0; y < y1; y++ ) {
+      int s = srcOffset + 2 * y * dy;
+      int d = dstOffset + y * rowLen;
+      for( int x = 0; x < newwidth; x++ ) {
+        for( int k = 0; k < components; k++ ) {
+          final float v = src.getFloat( s ) + src.getFloat( s + dx ) +
+                          src.getFloat( s + dy ) + src.getFloat( s + dy + dx );
+          dst.putFloat( d, v * 0.25f );
+          s += 4;
+          d += 4;
+        }
+        s += skip;
+      }
+    }
+  }
+
+  /**
+   * Kaiser filter, per destination row first filtering the source rows vertically into <code>tmp</code>,
+   * then horizontally into the destination. Edges are clamped.
+   */
+  private void kaiserRows( final ByteBuffer src, final int srcOffset, final int width, final int height,
+                           final int rowStride, final ByteBuffer dst, final int dstOffset,
+                           final int y0, final int y1, final float[] tmp ) {
+    final int newwidth = Math.max( 1, width / 2 );
+    final int rowLen = width * components;
+    final boolean isFloat = GL.GL_FLOAT == type;
+    final int alpha = 0 == ( components & 1 ) ? components - 1 : -1;
+    final float[] w = KAISER_WEIGHTS;
+    final int[] rows = new int[KAISER_TAPS];
+    for( int y = y0; y < y1; y++ ) {
+      // vertical pass
+      for( int t = 0; t < KAISER_TAPS; t++ ) {
+        rows[t] = srcOffset + clamp( 2 * y - 2 + t, height ) * rowStride;
+      }
+      for( int i = 0; i < rowLen; i++ ) {
+        float v = 0f;
+        if( isFloat ) {
+          final int o = i * 4;
+          for( int t = 0; t < KAISER_TAPS; t++ ) {
+            v += w[t] * src.getFloat( rows[t] + o );
+          }
+        } else if( srgb && i % components != alpha ) {
+          for( int t = 0; t < KAISER_TAPS; t++ ) {
+            v += w[t] * SRGB_TO_LINEAR[ src.get( rows[t] + i ) & 0xFF ];
+          }
+        } else {
+          for( int t = 0; t < KAISER_TAPS; t++ ) {
+            v += w[t] * ( src.get( rows[t] + i ) & 0xFF );
+          }
+        }
+        tmp[i] = v;
+      }
+      // horizontal pass
+      int d = dstOffset + y * newwidth * components * elementSize;
+      for( int x = 0; x < newwidth; x++ ) {
+        for( int k = 0; k < components; k++ ) {
+          float v = 0f;
+          if( 1 <= x && 2 * x + 3 < width ) {
+            for( int t = 0, i = ( 2 * x - 2 ) * components + k; t < KAISER_TAPS; t++, i += components ) {
+              v += w[t] * tmp[i];
+            }
+          } else {
+            for( int t = 0; t < KAISER_TAPS; t++ ) {
+              v += w[t] * tmp[ clamp( 2 * x - 2 + t, width ) * components + k ];
+            }
+          }
+          if( isFloat ) {
+            dst.putFloat( d, v );
+            d += 4;
+          } else if( srgb && k != alpha ) {
+            final int max = LINEAR_TO_SRGB.length - 1;
+            dst.put( d++, LINEAR_TO_SRGB[ Math.min( max, Math.max( 0, (int) ( v * max + 0.5f ) ) ) ] );
+          } else {
+            dst.put( d++, (byte) Math.min( 255, Math.max( 0, (int) ( v + 0.5f ) ) ) );
+          }
+        }
+      }
+    }
+  }
+
+  private static int clamp( final int i, final int size ) {
+    return i < 0 ? 0 : ( i < size ? i : size - 1 );
+  }
+
+  /**
+   * Weights of a 2:1 reduction at the source taps -2.5 .. +2.5 around the destination center,
+   * a half band sinc windowed by a Kaiser window of the given radius and shape, normalized.
+   */
+  private static float[] computeKaiserWeights( final float radius, final float alpha ) {
+    final float[] w = new float[KAISER_TAPS];
+    double sum = 0;
+    for( int t = 0; t < KAISER_TAPS; t++ ) {
+      final double d = t - 2.5;
+      final double x = Math.PI * d / 2.0;
+      final double sinc = Math.sin( x ) / x;
+      final double r = d / radius;
+      final double window = besselI0( alpha * Math.sqrt( 1.0 - r * r ) ) / besselI0( alpha );
+      w[t] = (float) ( sinc * window );
+      sum += w[t];
+    }
+    for( int t = 0; t < KAISER_TAPS; t++ ) {
+      w[t] /= sum;
+    }
+    return w;
+  }
+
+  private static double besselI0( final double x ) {
+    double sum = 1.0, term = 1.0;
+    final double q = x * x / 4.0;
+    for( int k = 1; k < 32; k++ ) {
+      term *= q / ( (double) k * k );
+      sum += term;
+    }
+    return sum;
+  }
+}
@@ -58,14 +58,20 @@ package jogamp.opengl.util.jpeg;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import jogamp.opengl.Debug;
 
 import com.jogamp.common.util.ArrayHashSet;
 import com.jogamp.common.util.Bitstream;
 import com.jogamp.common.util.VersionNumber;
+import com.jogamp.nativewindow.util.PixelFormat;
 import com.jogamp.opengl.util.texture.TextureData;
 import com.jogamp.opengl.util.texture.TextureData.ColorSpace;
 
@@ -381,8 +387,8 @@ public class JPEGDecoder {
         int blocksPerColumnForMcu;
         int blocksPerLine;
         int blocksPerLineForMcu;
-        /** [blocksPerColumnForMcu][blocksPerLineForMcu][64]; */
-        int[][][] blocks;
+        /** [blocksPerColumnForMcu][blocksPerLineForMcu][64] coefficients in a single array, see {@link #getBlockOffset(int, int)}. */
+        int[] blockData;
         int pred;
         BinObj huffmanTableAC;
         BinObj huffmanTableDC;
@@ -398,13 +404,14 @@ public class JPEGDecoder {
             this.blocksPerColumnForMcu = blocksPerColumnForMcu;
             this.blocksPerLine = blocksPerLine;
             this.blocksPerLineForMcu = blocksPerLineForMcu;
-            this.blocks = new int[blocksPerColumnForMcu][blocksPerLineForMcu][64];
+            this.blockData = new int[blocksPerColumnForMcu * blocksPerLineForMcu * 64];
         }
-        public final int[] getBlock(final int row, final int col) {
+        /** Returns the offset of the 64 coefficients of the given block within {@link #blockData}. */
+        public final int getBlockOffset(final int row, final int col) {
             if( row >= blocksPerColumnForMcu || col >= blocksPerLineForMcu ) {
                 throw new CodecException("Out of bounds given ["+row+"]["+col+"] - "+this);
             }
-            return blocks[row][col];
+            return ( row * blocksPerLineForMcu + col ) * 64;
         }
 
         @Override
@@ -453,6 +460,7 @@ public class JPEGDecoder {
     private JFIF jfif = null;
     private EXIF exif = null;
     private Adobe adobe = null;
+    private Frame frame = null;
     private ComponentOut[] components = null;
 
     public final JFIF getJFIFHeader() { return jfif; }
@@ -460,6 +468,10 @@ public class JPEGDecoder {
     public final Adobe getAdobeHeader() { return adobe; }
     public final int getWidth() { return width; }
     public final int getHeight() { return height; }
+    /** Returns the number of components of the parsed image. */
+    public final int getComponentCount() { return null != frame ? frame.getCompCount() : 0; }
+    /** Returns the color space of the parsed image, i.e. {@link ColorSpace#YCbCr} unless specified by the {@link Adobe} header. */
+    public final ColorSpace getSourceColorSpace() { return ( null != adobe ) ? adobe.colorSpace : ColorSpace.YCbCr; }
 
     private final void setStream(final InputStream is) {
         try {
@@ -512,6 +524,7 @@ public class JPEGDecoder {
         jfif = null;
         exif = null;
         adobe = null;
+        frame = null;
         components = null;
     }
     public synchronized JPEGDecoder parse(final InputStream inputStream) throws IOException {
@@ -719,21 +732,32 @@ public class JPEGDecoder {
             throw new CodecException("no single frame found in stream "+this);
         }
         frame.validateComponents();
-
-        final int compCount = frame.getCompCount();
-        this.components = new ComponentOut[compCount];
-        for (int i = 0; i < compCount; i++) {
-            final ComponentIn component = frame.getCompByIndex(i);
-            // System.err.println("JPG.parse.buildComponentData["+i+"]: "+component); // JAU
-            // System.err.println("JPG.parse.buildComponentData["+i+"]: "+frame); // JAU
-            this.components[i] = new ComponentOut( output.buildComponentData(frame, component),
-                                                   (float)component.h / (float)frame.maxH,
-                                                   (float)component.v / (float)frame.maxV );
-        }
+        this.frame = frame;
         if(DEBUG) { System.err.println("JPG.parse.X: End of processing input "+this); }
         return this;
     }
 
+    /**
+     * Lazily builds the decoded component lines used by {@link #getPixel(ColorSink, int, int)},
+     * not required by {@link #getPixel(ByteBuffer, PixelFormat, int, boolean, ExecutorService)}.
+     */
+    private ComponentOut[] getComponentsOut() {
+        if( null == components ) {
+            final int compCount = frame.getCompCount();
+            final ComponentOut[] comps = new ComponentOut[compCount];
+            for (int i = 0; i < compCount; i++) {
+                final ComponentIn component = frame.getCompByIndex(i);
+                // System.err.println("JPG.parse.buildComponentData["+i+"]: "+component); // JAU
+                // System.err.println("JPG.parse.buildComponentData["+i+"]: "+frame); // JAU
+                comps[i] = new ComponentOut( output.buildComponentData(frame, component),
+                                             (float)component.h / (float)frame.maxH,
+                                             (float)component.v / (float)frame.maxV );
+            }
+            components = comps;
+        }
+        return components;
+    }
+
     private void prepareComponents(final Frame frame) {
         int maxH = 0, maxV = 0;
         // for (componentId in frame.components) {
@@ -848,7 +872,7 @@ public class JPEGDecoder {
                 }
                 for (int blockCol = 0; blockCol < blocksPerLine; blockCol++) {
                     // System.err.println("JPG.buildComponentData: col "+blockCol+"/"+blocksPerLine+", comp.qttIdx "+component.qttIdx+", qtt "+frame.qtt[component.qttIdx]); // JAU
-                    quantizeAndInverse(component.getBlock(blockRow, blockCol), r, R, frame.qtt[component.qttIdx]);
+                    quantizeAndInverse(component.blockData, component.getBlockOffset(blockRow, blockCol), r, R, frame.qtt[component.qttIdx]);
 
                     final int sample = blockCol << 3;
                     int offset = 0;
@@ -867,14 +891,14 @@ public class JPEGDecoder {
         //   "Practical Fast 1-D DCT Algorithms with 11 Multiplications",
         //   IEEE Intl. Conf. on Acoustics, Speech & Signal Processing, 1989,
         //   988-991.
-        private void quantizeAndInverse(final int[] zz, final byte[] dataOut, final int[] dataIn, final int[] qt) {
+        static void quantizeAndInverse(final int[] zz, final int zzOff, final byte[] dataOut, final int[] dataIn, final int[] qt) {
             int v0, v1, v2, v3, v4, v5, v6, v7, t;
             final int[] p = dataIn;
             int i;
 
             // dequant
             for (i = 0; i < 64; i++) {
-                p[i] = zz[i] * qt[i];
+                p[i] = zz[zzOff + i] * qt[i];
             }
 
             // inverse DCT on rows
@@ -1024,7 +1048,8 @@ public class JPEGDecoder {
     }
 
     static interface DecoderFunction {
-        void decode(ComponentIn component, int[] zz) throws IOException;
+        /** Decodes the 64 coefficients of a block, stored in <code>zz</code> starting at <code>off</code>. */
+        void decode(ComponentIn component, int[] zz, int off) throws IOException;
     }
 
     class Decoder {
@@ -1198,10 +1223,10 @@ public class JPEGDecoder {
 
         class BaselineDecoder implements DecoderFunction {
             @Override
-            public void decode(final ComponentIn component, final int[] zz) throws IOException {
+            public void decode(final ComponentIn component, final int[] zz, final int off) throws IOException {
                 final int t = decodeHuffman(component.huffmanTableDC);
                 final int diff = ( t == 0 ) ? 0 : receiveAndExtend(t);
-                zz[0] = ( component.pred += diff );
+                zz[off] = ( component.pred += diff );
                 int k = 1;
                 while (k < 64) {
                     final int rs = decodeHuffman(component.huffmanTableAC);
@@ -1215,29 +1240,29 @@ public class JPEGDecoder {
                     }
                     k += r;
                     final int z = dctZigZag[k];
-                    zz[z] = receiveAndExtend(s);
+                    zz[off + z] = receiveAndExtend(s);
                     k++;
                 }
             }
         }
         class DCFirstDecoder implements DecoderFunction {
             @Override
-            public void decode(final ComponentIn component, final int[] zz) throws IOException {
+            public void decode(final ComponentIn component, final int[] zz, final int off) throws IOException {
                 final int t = decodeHuffman(component.huffmanTableDC);
                 final int diff = ( t == 0 ) ? 0 : (receiveAndExtend(t) << successive);
-                zz[0] = ( component.pred += diff );
+                zz[off] = ( component.pred += diff );
             }
         }
         class DCSuccessiveDecoder implements DecoderFunction {
             @Override
-            public void decode(final ComponentIn component, final int[] zz) throws IOException {
-                zz[0] |= readBit() << successive;
+            public void decode(final ComponentIn component, final int[] zz, final int off) throws IOException {
+                zz[off] |= readBit() << successive;
             }
         }
 
         class ACFirstDecoder implements DecoderFunction {
             @Override
-            public void decode(final ComponentIn component, final int[] zz) throws IOException {
+            public void decode(final ComponentIn component, final int[] zz, final int off) throws IOException {
                 if (eobrun > 0) {
                     eobrun--;
                     return;
@@ -1257,14 +1282,14 @@ public class JPEGDecoder {
                     }
                     k += r;
                     final int z = dctZigZag[k];
-                    zz[z] = receiveAndExtend(s) * (1 << successive);
+                    zz[off + z] = receiveAndExtend(s) * (1 << successive);
                     k++;
                 }
             }
         }
         class ACSuccessiveDecoder implements DecoderFunction {
             @Override
-            public void decode(final ComponentIn component, final int[] zz) throws IOException {
+            public void decode(final ComponentIn component, final int[] zz, final int off) throws IOException {
                 int k = spectralStart;
                 final int e = spectralEnd;
                 int r = 0;
@@ -1294,8 +1319,8 @@ public class JPEGDecoder {
                         continue;
                     case 1: // skipping r zero items
                     case 2:
-                        if ( zz[z] != 0 ) {
-                            zz[z] += (readBit() << successive);
+                        if ( zz[off + z] != 0 ) {
+                            zz[off + z] += (readBit() << successive);
                         } else {
                             r--;
                             if (r == 0) {
@@ -1304,16 +1329,16 @@ public class JPEGDecoder {
                         }
                         break;
                     case 3: // set value for a zero item
-                        if ( zz[z] != 0 ) {
-                            zz[z] += (readBit() << successive);
+                        if ( zz[off + z] != 0 ) {
+                            zz[off + z] += (readBit() << successive);
                         } else {
-                            zz[z] = successiveACNextValue << successive;
+                            zz[off + z] = successiveACNextValue << successive;
                             successiveACState = 0;
                         }
                         break;
                     case 4: // eob
-                        if ( zz[z] != 0 ) {
-                            zz[z] += (readBit() << successive);
+                        if ( zz[off + z] != 0 ) {
+                            zz[off + z] += (readBit() << successive);
                         }
                         break;
                         }
@@ -1332,12 +1357,12 @@ public class JPEGDecoder {
             final int mcuCol = mcu % mcusPerLine;
             final int blockRow = mcuRow * component.v + row;
             final int blockCol = mcuCol * component.h + col;
-            decoder.decode(component, component.getBlock(blockRow, blockCol));
+            decoder.decode(component, component.blockData, component.getBlockOffset(blockRow, blockCol));
         }
         void decodeBlock(final ComponentIn component, final DecoderFunction decoder, final int mcu) throws IOException {
             final int blockRow = (mcu / component.blocksPerLine) | 0;
             final int blockCol = mcu % component.blocksPerLine;
-            decoder.decode(component, component.getBlock(blockRow, blockCol));
+            decoder.decode(component, component.blockData, component.getBlockOffset(blockRow, blockCol));
         }
     }
 
@@ -1365,7 +1390,8 @@ public class JPEGDecoder {
     public synchronized void getPixel(final JPEGDecoder.ColorSink pixelStorage, final int width, final int height) {
         final int scaleX = this.width / width, scaleY = this.height / height;
 
-        final int componentCount = this.components.length;
+        final ComponentOut[] components = getComponentsOut();
+        final int componentCount = components.length;
         final ColorSpace sourceCS = ( null != adobe ) ? adobe.colorSpace : ColorSpace.YCbCr;
         final ColorSpace storageCS = pixelStorage.allocate(width, height, sourceCS, componentCount);
         if( ColorSpace.RGB != storageCS && ColorSpace.YCbCr != storageCS ) {
@@ -1375,7 +1401,7 @@ public class JPEGDecoder {
         switch (componentCount) {
         case 1: {
             // Grayscale
-            final ComponentOut component1 = this.components[0];
+            final ComponentOut component1 = components[0];
             for (int y = 0; y < height; y++) {
                 final byte[] component1Line = component1.getLine((int)(y * component1.scaleY * scaleY));
                 for (int x = 0; x < width; x++) {
@@ -1391,8 +1417,8 @@ public class JPEGDecoder {
         break;
         case 2: {
             // PDF might compress two component data in custom colorspace
-            final ComponentOut component1 = this.components[0];
-            final ComponentOut component2 = this.components[1];
+            final ComponentOut component1 = components[0];
+            final ComponentOut component2 = components[1];
             for (int y = 0; y < height; y++) {
                 final int ys = y * scaleY;
                 final byte[] component1Line = component1.getLine((int)(ys * component1.scaleY));
@@ -1410,9 +1436,9 @@ public class JPEGDecoder {
             if (ColorSpace.YCbCr != sourceCS) {
                 throw new CodecException("Unsupported source color space w 3 components: "+sourceCS);
             }
-            final ComponentOut component1 = this.components[0];
-            final ComponentOut component2 = this.components[1];
-            final ComponentOut component3 = this.components[2];
+            final ComponentOut component1 = components[0];
+            final ComponentOut component2 = components[1];
+            final ComponentOut component3 = components[2];
             for (int y = 0; y < height; y++) {
                 final int ys = y * scaleY;
                 final byte[] component1Line = component1.getLine((int)(ys * component1.scaleY));
@@ -1446,10 +1472,10 @@ public class JPEGDecoder {
             if (ColorSpace.YCCK != sourceCS && ColorSpace.CMYK != sourceCS) {
                 throw new CodecException("Unsupported source color space w 4 components: "+sourceCS);
             }
-            final ComponentOut component1 = this.components[0];
-            final ComponentOut component2 = this.components[1];
-            final ComponentOut component3 = this.components[2];
-            final ComponentOut component4 = this.components[3];
+            final ComponentOut component1 = components[0];
+            final ComponentOut component2 = components[1];
+            final ComponentOut component3 = components[2];
+            final ComponentOut component4 = components[3];
             for (int y = 0; y < height; y++) {
                 final int ys = y * scaleY;
                 final byte[] component1Line = component1.getLine((int)(ys * component1.scaleY));
@@ -1510,6 +1536,286 @@ public class JPEGDecoder {
         }
     }
 
+    /**
+     * Stores the parsed image in the given buffer, converted to the given {@link PixelFormat}.
+     * <p>
+     * Unlike {@link #getPixel(ColorSink, int, int)} no intermediate component lines are created,
+     * each MCU row is inverse transformed into small per component strips and color converted
+     * straight into <code>dest</code>. If <code>executor</code> is not <code>null</code>,
+     * bands of MCU rows are processed concurrently and this method blocks until all are done.
+     * </p>
+     * <p>
+     * Supported destination formats are {@link PixelFormat#LUMINANCE} for grayscale and YCbCr images,
+     * as well as {@link PixelFormat#RGB888}, {@link PixelFormat#BGR888}, {@link PixelFormat#RGBA8888},
+     * {@link PixelFormat#BGRA8888}, {@link PixelFormat#ARGB8888} and {@link PixelFormat#ABGR8888}
+     * for grayscale, YCbCr, CMYK and YCCK images. Alpha is set to <code>0xff</code>.
+     * </p>
+     * <p>
+     * Pixels are stored at absolute positions starting at zero, position and limit of <code>dest</code> are left unchanged.
+     * </p>
+     *
+     * @param dest destination buffer, preferably direct
+     * @param destFmt destination {@link PixelFormat}
+     * @param destStrideInBytes used if greater than width * bytes-per-pixel, otherwise the latter is used
+     * @param destIsGLOriented if true, the last scanline is stored first, i.e. bottom-to-top as expected by glTexImage2D
+     * @param executor optional executor processing bands of MCU rows concurrently, may be <code>null</code>
+     * @throws IllegalArgumentException if <code>destFmt</code> is not supported for this image
+     * @throws IndexOutOfBoundsException if <code>dest</code> is too small
+     * @throws InterruptedException if interrupted while waiting for the tasks
+     */
+    public synchronized void getPixel(final ByteBuffer dest, final PixelFormat destFmt, final int destStrideInBytes,
+                                      final boolean destIsGLOriented, final ExecutorService executor)
+            throws IllegalArgumentException, IndexOutOfBoundsException, InterruptedException
+    {
+        if( null == frame ) {
+            throw new IllegalStateException("No image parsed");
+        }
+        final PixelStore store = new PixelStore(frame, getSourceColorSpace(), width, height,
+                                                dest, destFmt, destStrideInBytes, destIsGLOriented);
+        final int mcuRows = frame.mcusPerColumn;
+        final int tasks = null != executor ? Math.min(mcuRows, 2 * Runtime.getRuntime().availableProcessors()) : 1;
+        if( 1 >= tasks ) {
+            store.storeMcuRows(0, mcuRows);
+            return;
+        }
+        final ArrayList<Future<Object>> results = new ArrayList<Future<Object>>(tasks);
+        final int rowsPerTask = ( mcuRows + tasks - 1 ) / tasks;
+        for(int r0=0; r0<mcuRows; r0+=rowsPerTask) {
+            final int mcuRow0 = r0;
+            final int mcuRow1 = Math.min(r0 + rowsPerTask, mcuRows);
+            results.add( executor.submit( new Callable<Object>() {
+                @Override
+                public Object call() {
+                    store.storeMcuRows(mcuRow0, mcuRow1);
+                    return null;
+                } } ) );
+        }
+        try {
+            for(int i=0; i<results.size(); i++) {
+                results.get(i).get();
+            }
+        } catch (final ExecutionException ee) {
+            final Throwable t = ee.getCause();
+            if( t instanceof RuntimeException ) {
+                throw (RuntimeException)t;
+            }
+            throw new RuntimeException(t);
+        } finally {
+            for(int i=0; i<results.size(); i++) {
+                results.get(i).cancel(false);
+            }
+        }
+    }
+
+    /** YCbCr to RGB terms, identical to the ones computed per pixel in {@link #getPixel(ColorSink, int, int)}. */
+    private static final float[] crToR = new float[256];
+    private static final float[] cbToG = new float[256];
+    private static final float[] crToG = new float[256];
+    private static final float[] cbToB = new float[256];
+    static {
+        for (int i = 0; i < 256; i++) {
+            crToR[i] = 1.402f * (i - 128f);
+            cbToG[i] = 0.3441363f * (i - 128f);
+            crToG[i] = 0.71413636f * (i - 128f);
+            cbToB[i] = 1.772f * (i - 128f);
+        }
+    }
+
+    /**
+     * Inverse transforms MCU rows and stores them color converted, see {@link JPEGDecoder#getPixel(ByteBuffer, PixelFormat, int, boolean, ExecutorService)}.
+     * <p>
+     * Read-only after construction, {@link #storeMcuRows(int, int)} may run concurrently on distinct ranges.
+     * </p>
+     */
+    static class PixelStore {
+        final Frame frame;
+        final int width, height;
+        final int compCount;
+        final boolean cmyk;
+        final ByteBuffer dest;
+        final int destStride;
+        final boolean destIsGLOriented;
+        final int bytesPerPixel;
+        /** Byte offsets of the destination channels, -1 if not present. Luminance is stored at rOff. */
+        final int rOff, gOff, bOff, aOff;
+        final boolean destLum;
+        /** Per component sample column for each pixel column */
+        final int[][] colMap;
+
+        PixelStore(final Frame frame, final ColorSpace sourceCS, final int width, final int height,
+                   final ByteBuffer dest, final PixelFormat destFmt, final int destStrideInBytes, final boolean destIsGLOriented) {
+            this.frame = frame;
+            this.width = width;
+            this.height = height;
+            this.compCount = frame.getCompCount();
+            switch( compCount ) {
+                case 1:
+                    cmyk = false;
+                    break;
+                case 3:
+                    if (ColorSpace.YCbCr != sourceCS) {
+                        throw new CodecException("Unsupported source color space w 3 components: "+sourceCS);
+                    }
+                    cmyk = false;
+                    break;
+                case 4:
+                    if (ColorSpace.YCCK != sourceCS && ColorSpace.CMYK != sourceCS) {
+                        throw new CodecException("Unsupported source color space w 4 components: "+sourceCS);
+                    }
+                    cmyk = ColorSpace.CMYK == sourceCS;
+                    break;
+                default:
+                    throw new CodecException("Unsupported color model: Space "+sourceCS+", components "+compCount);
+            }
+            switch( destFmt ) {
+                case LUMINANCE:
+                    if( 4 == compCount ) {
+                        throw new IllegalArgumentException("Unsupported destination format "+destFmt+" for "+compCount+" components");
+                    }
+                    rOff = 0; gOff = -1; bOff = -1; aOff = -1;
+                    break;
+                case RGB888:
+                case BGR888:
+                case RGBA8888:
+                case BGRA8888:
+                case ARGB8888:
+                case ABGR8888:
+                    rOff = destFmt.comp.find(PixelFormat.CType.R);
+                    gOff = destFmt.comp.find(PixelFormat.CType.G);
+                    bOff = destFmt.comp.find(PixelFormat.CType.B);
+                    aOff = destFmt.comp.find(PixelFormat.CType.A);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported destination format "+destFmt);
+            }
+            destLum = PixelFormat.LUMINANCE == destFmt;
+            bytesPerPixel = destFmt.comp.bytesPerPixel();
+            destStride = Math.max(destStrideInBytes, width * bytesPerPixel);
+            if( 0 < height && dest.capacity() < ( height - 1 ) * destStride + width * bytesPerPixel ) {
+                throw new IndexOutOfBoundsException("Dest buffer has insufficient bytes, needs "+
+                                                    ( ( height - 1 ) * destStride + width * bytesPerPixel )+": "+dest);
+            }
+            this.dest = dest;
+            this.destIsGLOriented = destIsGLOriented;
+            colMap = new int[compCount][width];
+            for (int i = 0; i < compCount; i++) {
+                final ComponentIn component = frame.getCompByIndex(i);
+                final int[] map = colMap[i];
+                for (int x = 0; x < width; x++) {
+                    map[x] = ( x * component.h ) / frame.maxH;
+                }
+            }
+        }
+
+        /** Stores MCU rows [<code>mcuRow0</code>..<code>mcuRow1</code>[. */
+        final void storeMcuRows(final int mcuRow0, final int mcuRow1) {
+            final int maxV = frame.maxV;
+            final byte[][] strips = new byte[compCount][];
+            final int[] stripStride = new int[compCount];
+            for (int i = 0; i < compCount; i++) {
+                final ComponentIn component = frame.getCompByIndex(i);
+                stripStride[i] = component.blocksPerLine << 3;
+                strips[i] = new byte[stripStride[i] * ( component.v << 3 )];
+            }
+            final int[] lineOff = new int[compCount];
+            final int[] R = new int[64];
+            final byte[] r = new byte[64];
+            final byte[] row = new byte[width * bytesPerPixel];
+            if( 0 <= aOff ) {
+                for (int x = 0, i = aOff; x < width; x++, i += bytesPerPixel) {
+                    row[i] = (byte)0xff;
+                }
+            }
+            final ByteBuffer dst = dest.duplicate();
+            dst.clear();
+
+            for (int mcuRow = mcuRow0; mcuRow < mcuRow1; mcuRow++) {
+                for (int i = 0; i < compCount; i++) {
+                    final ComponentIn component = frame.getCompByIndex(i);
+                    final int[] qt = frame.qtt[component.qttIdx];
+                    final byte[] strip = strips[i];
+                    final int stride = stripStride[i];
+                    final int blockRow0 = mcuRow * component.v;
+                    final int blockRow1 = Math.min(blockRow0 + component.v, component.blocksPerColumn);
+                    for (int blockRow = blockRow0; blockRow < blockRow1; blockRow++) {
+                        final int stripOff = ( ( blockRow - blockRow0 ) << 3 ) * stride;
+                        for (int blockCol = 0; blockCol < component.blocksPerLine; blockCol++) {
+                            Output.quantizeAndInverse(component.blockData, component.getBlockOffset(blockRow, blockCol), r, R, qt);
+                            for (int j = 0, o = stripOff + ( blockCol << 3 ); j < 8; j++, o += stride) {
+                                System.arraycopy(r, j << 3, strip, o, 8);
+                            }
+                        }
+                    }
+                }
+                final int y0 = mcuRow * maxV * 8;
+                final int y1 = Math.min(y0 + maxV * 8, height);
+                for (int y = y0; y < y1; y++) {
+                    for (int i = 0; i < compCount; i++) {
+                        final ComponentIn component = frame.getCompByIndex(i);
+                        lineOff[i] = ( ( y * component.v ) / maxV - ( mcuRow * component.v << 3 ) ) * stripStride[i];
+                    }
+                    convertRow(strips, lineOff, row);
+                    dst.position( ( destIsGLOriented ? height - 1 - y : y ) * destStride );
+                    dst.put(row);
+                }
+            }
+        }
+
+        private final void convertRow(final byte[][] strips, final int[] lineOff, final byte[] row) {
+            final int bpp = bytesPerPixel;
+            final byte[] l1 = strips[0];
+            final int o1 = lineOff[0];
+            final int[] m1 = colMap[0];
+            if( 1 == compCount || destLum ) {
+                // Grayscale or luma of YCbCr
+                for (int x = 0, i = 0; x < width; x++, i += bpp) {
+                    final byte Y = l1[o1 + m1[x]];
+                    row[i + rOff] = Y;
+                    if( !destLum ) {
+                        row[i + gOff] = Y;
+                        row[i + bOff] = Y;
+                    }
+                }
+                return;
+            }
+            final byte[] l2 = strips[1], l3 = strips[2];
+            final int o2 = lineOff[1], o3 = lineOff[2];
+            final int[] m2 = colMap[1], m3 = colMap[2];
+            if( 3 == compCount ) {
+                for (int x = 0, i = 0; x < width; x++, i += bpp) {
+                    final int Y  = 0x000000FF & l1[o1 + m1[x]];
+                    final int Cb = 0x000000FF & l2[o2 + m2[x]];
+                    final int Cr = 0x000000FF & l3[o3 + m3[x]];
+                    row[i + rOff] = clampTo8bit(Y + crToR[Cr]);
+                    row[i + gOff] = clampTo8bit(Y - cbToG[Cb] - crToG[Cr]);
+                    row[i + bOff] = clampTo8bit(Y + cbToB[Cb]);
+                }
+                return;
+            }
+            final byte[] l4 = strips[3];
+            final int o4 = lineOff[3];
+            final int[] m4 = colMap[3];
+            for (int x = 0, i = 0; x < width; x++, i += bpp) {
+                final int c1 = 0x000000FF & l1[o1 + m1[x]];
+                final int c2 = 0x000000FF & l2[o2 + m2[x]];
+                final int c3 = 0x000000FF & l3[o3 + m3[x]];
+                final int cK = 0x000000FF & l4[o4 + m4[x]];
+                final float cC, cM, cY;
+                if( cmyk ) {
+                    cC = c1; cM = c2; cY = c3;
+                } else { // YCCK -> 255f - [ R'G'B' ] -> CMYK
+                    cC = 255f - ( c1 + crToR[c3] );
+                    cM = 255f - ( c1 - cbToG[c2] - crToG[c3] );
+                    cY = 255f - ( c1 + cbToB[c2] );
+                }
+                // CMYK -> RGB
+                row[i + rOff] = clampTo8bit( ( cC * cK ) / 255f );
+                row[i + gOff] = clampTo8bit( ( cM * cK ) / 255f );
+                row[i + bOff] = clampTo8bit( ( cY * cK ) / 255f );
+            }
+        }
+    }
+
     private static byte clampTo8bit(final float a) {
         return (byte) ( a < 0f ? 0 : a > 255f ? 255 : a );
     }
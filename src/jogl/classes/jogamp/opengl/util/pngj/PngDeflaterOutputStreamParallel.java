@@ -0,0 +1,255 @@
+package jogamp.opengl.util.pngj;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.Adler32;
+import java.util.zip.Deflater;
+
+/**
+ * Zlib compressing output stream, deflating independent chunks of the input
+ * concurrently (pigz style)
+ * <p>
+ * Each chunk is compressed by its own raw Deflater, using the last 32K of the
+ * previous chunk as preset dictionary, and terminated by a SYNC_FLUSH (the
+ * last one is finished), so the concatenation of the compressed chunks is a
+ * single valid deflate stream. The zlib header and the Adler32 trailer are
+ * written by this stream.
+ * <p>
+ * Chunks are written to the underlying stream in order. At most
+ * <tt>maxPending</tt> chunks are kept in flight; when waiting for the oldest
+ * one, the caller compresses it itself if no worker has started it yet, so
+ * this never deadlocks on a saturated executor.
+ * <p>
+ * SYNC_FLUSH requires Java 7, see {@link #isAvailable()}.
+ */
+class PngDeflaterOutputStreamParallel extends OutputStream {
+
+	public static final int DEFAULT_CHUNK_SIZE = 128 * 1024;
+	private static final int DICT_SIZE = 32768;
+
+	private static final int SYNC_FLUSH = 2; // Deflater.SYNC_FLUSH, Java 7
+	private static final Method deflateFlushMethod; // Deflater.deflate(byte[],int,int,int), Java 7
+
+	static {
+		Method m = null;
+		try {
+			m = Deflater.class.getMethod("deflate", byte[].class, int.class, int.class, int.class);
+		} catch (final Exception e) {
+			m = null;
+		}
+		deflateFlushMethod = m;
+	}
+
+	/**
+	 * true if the runtime supports flushing a Deflater on a byte boundary
+	 * (Java 7 or later). Otherwise this stream cannot be used.
+	 */
+	static boolean isAvailable() {
+		return deflateFlushMethod != null;
+	}
+
+	private final OutputStream out;
+	private final ExecutorService executor;
+	private final int compLevel;
+	private final int deflaterStrategy;
+	private final int chunkSize;
+	private final int maxPending;
+
+	private final Adler32 adler = new Adler32();
+	private final LinkedList<FutureTask<byte[]>> pending = new LinkedList<FutureTask<byte[]>>();
+	private final byte[] single = new byte[1];
+
+	private byte[] chunk; // raw bytes of current chunk
+	private int chunkLen = 0;
+	private byte[] prevChunk = null; // raw bytes of previous chunk, source of dictionary
+	private boolean headerWritten = false;
+	private boolean finished = false;
+
+	/**
+	 * @param out
+	 *            underlying stream (here: IDAT chunks)
+	 * @param compLevel
+	 *            0-9
+	 * @param deflaterStrategy
+	 *            one of Deflater strategies
+	 * @param executor
+	 *            executor running the compression tasks
+	 * @param chunkSize
+	 *            raw bytes per task, at least 32K. 0: use default (128K)
+	 * @param maxPending
+	 *            max chunks in flight. 0: twice the number of processors
+	 */
+	PngDeflaterOutputStreamParallel(final OutputStream out, final int compLevel, final int deflaterStrategy,
+			final ExecutorService executor, final int chunkSize, final int maxPending) {
+		if (!isAvailable())
+			throw new PngjOutputException("parallel deflate requires Deflater.SYNC_FLUSH (Java 7)");
+		this.out = out;
+		this.compLevel = compLevel;
+		this.deflaterStrategy = deflaterStrategy;
+		this.executor = executor;
+		this.chunkSize = chunkSize <= 0 ? DEFAULT_CHUNK_SIZE : Math.max(chunkSize, DICT_SIZE);
+		this.maxPending = maxPending > 0 ? maxPending : Math.max(2, 2 * Runtime.getRuntime().availableProcessors());
+		this.chunk = new byte[this.chunkSize];
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		single[0] = (byte) b;
+		write(single, 0, 1);
+	}
+
+	@Override
+	public void write(final byte[] b, int off, int len) throws IOException {
+		if (finished)
+			throw new IOException("write beyond end of stream");
+		adler.update(b, off, len);
+		while (len > 0) {
+			final int n = Math.min(len, chunkSize - chunkLen);
+			System.arraycopy(b, off, chunk, chunkLen, n);
+			chunkLen += n;
+			off += n;
+			len -= n;
+			if (chunkLen == chunkSize)
+				submitChunk(false);
+		}
+	}
+
+	/**
+	 * Compresses the remaining input, waits for all pending chunks and writes
+	 * the zlib trailer. Does not close the underlying stream.
+	 */
+	public void finish() throws IOException {
+		if (finished)
+			return;
+		finished = true;
+		submitChunk(true);
+		while (!pending.isEmpty())
+			writeOldest();
+		final long a = adler.getValue();
+		out.write((int) (a >>> 24) & 0xff);
+		out.write((int) (a >>> 16) & 0xff);
+		out.write((int) (a >>> 8) & 0xff);
+		out.write((int) a & 0xff);
+	}
+
+	/**
+	 * Discards pending chunks, without writing anything more
+	 */
+	public void abort() {
+		finished = true;
+		for (final FutureTask<byte[]> t : pending)
+			t.cancel(false);
+		pending.clear();
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		finish();
+		out.close();
+	}
+
+	private void submitChunk(final boolean last) throws IOException {
+		final byte[] data = chunk;
+		final int len = chunkLen;
+		final byte[] dict = prevChunk;
+		final FutureTask<byte[]> task = new FutureTask<byte[]>(new Callable<byte[]>() {
+			@Override
+			public byte[] call() throws Exception {
+				return deflateChunk(data, len, dict, last);
+			}
+		});
+		pending.addLast(task);
+		try {
+			executor.execute(task);
+		} catch (final RejectedExecutionException e) {
+			// will be run by the caller in writeOldest()
+		}
+		prevChunk = data;
+		if (!last) {
+			chunk = new byte[chunkSize];
+			chunkLen = 0;
+		} else {
+			chunk = null;
+			prevChunk = null;
+		}
+		while (pending.size() > maxPending)
+			writeOldest();
+	}
+
+	private void writeOldest() throws IOException {
+		final FutureTask<byte[]> task = pending.removeFirst();
+		task.run(); // no-op if already started by a worker
+		final byte[] compressed;
+		try {
+			compressed = task.get();
+		} catch (final InterruptedException e) {
+			abort();
+			throw new PngjOutputException("interrupted while deflating", e);
+		} catch (final ExecutionException e) {
+			abort();
+			throw new PngjOutputException("error deflating chunk", e.getCause());
+		}
+		if (!headerWritten) {
+			out.write(0x78); // deflate, 32K window
+			out.write(zlibFlagByte(compLevel, deflaterStrategy));
+			headerWritten = true;
+		}
+		out.write(compressed);
+	}
+
+	private byte[] deflateChunk(final byte[] data, final int len, final byte[] dict, final boolean last)
+			throws Exception {
+		final Deflater def = new Deflater(compLevel, true);
+		try {
+			final byte[] buf = new byte[Math.max(len / 2, 1024) + 64];
+			def.setStrategy(deflaterStrategy);
+			def.deflate(buf, 0, 0); // applies the strategy before any input, else it may drop the dictionary
+			if (dict != null)
+				def.setDictionary(dict, dict.length - DICT_SIZE, DICT_SIZE);
+			def.setInput(data, 0, len);
+			final ByteArrayOutputStream bos = new ByteArrayOutputStream(buf.length);
+			if (last) {
+				def.finish();
+				while (!def.finished()) {
+					final int n = def.deflate(buf);
+					bos.write(buf, 0, n);
+				}
+			} else {
+				int n;
+				do { // a full buffer means there may be more output pending
+					n = ((Integer) deflateFlushMethod.invoke(def, buf, 0, buf.length, SYNC_FLUSH)).intValue();
+					bos.write(buf, 0, n);
+				} while (n == buf.length);
+			}
+			return bos.toByteArray();
+		} finally {
+			def.end();
+		}
+	}
+
+	/**
+	 * Second byte of the zlib header, FLEVEL chosen as zlib does
+	 */
+	static int zlibFlagByte(final int compLevel, final int deflaterStrategy) {
+		if (deflaterStrategy == Deflater.HUFFMAN_ONLY || compLevel < 2)
+			return 0x01;
+		if (compLevel < 6)
+			return 0x5E;
+		if (compLevel == 6)
+			return 0x9C;
+		return 0xDA;
+	}
+}
@@ -4,6 +4,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.zip.CRC32;
 import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
@@ -40,6 +47,10 @@ import jogamp.opengl.util.pngj.chunks.PngMetadata;
  * 5. Read of the last row auyomatically loads the trailing chunks, and ends the
  * reader.<br>
  * 6. end() forcibly finishes/aborts the reading and closes the stream
+ * <p>
+ * Optionally the IDAT stream can be inflated concurrently on an executor, pipelined
+ * with unfiltering the rows on the reading thread, see
+ * {@link #setInflateExecutor(ExecutorService)}.
  */
 public class PngReader {
 
@@ -74,6 +85,8 @@ public class PngReader {
 	// this only influences the 1-2-4 bitdepth format
 	private boolean unpackedMode = false;
 	private Inflater inflater = null;	// can be reused among several objects. see reuseBuffersFrom()
+	private ExecutorService inflateExecutor = null; // see setInflateExecutor()
+	private IdatPrefetcher idatPrefetcher = null; // only set if inflateExecutor is set and rows are being read
 	/**
 	 * Current chunk group, (0-6) already read or reading
 	 * <p>
@@ -161,6 +174,8 @@ public class PngReader {
 	private void readLastAndClose() {
 		// offset = iIdatCstream.getOffset();
 		if (currentChunkGroup < ChunksList.CHUNK_GROUP_5_AFTERIDAT) {
+			if (idatPrefetcher != null)
+				idatPrefetcher.finish(); // IDAT stream is owned by the prefetcher until it ended
 			try {
 				idatIstream.close();
 			} catch (final Exception e) {
@@ -171,6 +186,8 @@ public class PngReader {
 	}
 
 	private void close() {
+		if (idatPrefetcher != null)
+			idatPrefetcher.abort();
 		if (currentChunkGroup < ChunksList.CHUNK_GROUP_6_END) { // this could only happen if forced close
 			try {
 				idatIstream.close();
@@ -788,8 +805,15 @@ public class PngReader {
 		rowb = rowbprev;
 		rowbprev = tmp;
 		// loads in rowbfilter "raw" bytes, with filter
-		PngHelperInternal.readBytes(idatIstream, rowbfilter, 0, bytesRead + 1);
-		offset = iIdatCstream.getOffset();
+		if (inflateExecutor != null && idatPrefetcher == null)
+			idatPrefetcher = new IdatPrefetcher(inflateExecutor);
+		if (idatPrefetcher != null) {
+			idatPrefetcher.readBytes(rowbfilter, 0, bytesRead + 1);
+			offset = idatPrefetcher.getOffset();
+		} else {
+			PngHelperInternal.readBytes(idatIstream, rowbfilter, 0, bytesRead + 1);
+			offset = iIdatCstream.getOffset();
+		}
 		if (offset < 0)
 			throw new PngjExceptionInternal("bad offset ??" + offset);
 		if (maxTotalBytesRead > 0 && offset >= maxTotalBytesRead)
@@ -813,6 +837,8 @@ public class PngReader {
 	public void readSkippingAllRows() {
 		if (firstChunksNotYetRead())
 			readFirstChunks();
+		if (idatPrefetcher != null)
+			idatPrefetcher.finish(); // rows have been read already, IDAT stream ended afterwards
 		// we read directly from the compressed stream, we dont decompress nor chec CRC
 		iIdatCstream.disableCrcCheck();
 		allocateBuffers();
@@ -918,6 +944,32 @@ public class PngReader {
 			close();
 	}
 
+	/**
+	 * Sets an executor inflating the IDAT stream concurrently.
+	 * <p>
+	 * If set, a task of the given executor inflates the image data into a small
+	 * ring of blocks while the reading thread unfilters and decodes the rows,
+	 * i.e. both stages run pipelined. The task is submitted when reading the
+	 * first row and ends with the IDAT stream, or when {@link #end()} is called.
+	 * <p>
+	 * This option should only be set before start reading the rows.
+	 *
+	 * @param executor
+	 *            the executor, or null to inflate on the reading thread (default)
+	 */
+	public void setInflateExecutor(final ExecutorService executor) {
+		if (idatPrefetcher != null)
+			throw new PngjException("setInflateExecutor must be called before reading rows");
+		this.inflateExecutor = executor;
+	}
+
+	/**
+	 * @see PngReader#setInflateExecutor(ExecutorService)
+	 */
+	public ExecutorService getInflateExecutor() {
+		return inflateExecutor;
+	}
+
 	/**
 	 * Interlaced PNG is accepted -though not welcomed- now...
 	 */
@@ -991,6 +1043,159 @@ public class PngReader {
 		this.crctest = new CRC32();
 	}
 
+	/**
+	 * Block of inflated IDAT bytes, handed from the {@link IdatPrefetcher} task to the reading thread.
+	 */
+	private static final class IdatBlock {
+		final byte[] data;
+		int len;
+		long offset; // offset in InputStream after inflating this block
+		boolean eof; // IDAT stream ended after this block
+		final Throwable error;
+
+		IdatBlock(final int size) {
+			data = new byte[size];
+			error = null;
+		}
+
+		IdatBlock(final Throwable error) {
+			data = null;
+			eof = true;
+			this.error = error;
+		}
+	}
+
+	/**
+	 * Inflates the IDAT stream on an executor, the reading thread consumes the
+	 * inflated blocks. The IDAT streams and the inflater are owned by the task
+	 * until it ended, see {@link #finish()} and {@link #abort()}.
+	 */
+	private final class IdatPrefetcher implements Callable<Object> {
+		private static final int BLOCK_SIZE = 64 * 1024;
+		private static final int BLOCK_COUNT = 4;
+		private final BlockingQueue<IdatBlock> free = new ArrayBlockingQueue<IdatBlock>(BLOCK_COUNT);
+		// one extra slot for a trailing error block, hence put() never blocks
+		private final BlockingQueue<IdatBlock> filled = new ArrayBlockingQueue<IdatBlock>(BLOCK_COUNT + 1);
+		private final AtomicBoolean started = new AtomicBoolean(false);
+		private final CountDownLatch done = new CountDownLatch(1);
+		private final Future<Object> future;
+		private volatile boolean aborted = false;
+		private IdatBlock current = null;
+		private int currentPos = 0;
+		private long blockOffset;
+
+		IdatPrefetcher(final ExecutorService executor) {
+			for (int i = 0; i < BLOCK_COUNT; i++)
+				free.add(new IdatBlock(BLOCK_SIZE));
+			blockOffset = iIdatCstream.getOffset();
+			future = executor.submit(this);
+		}
+
+		@Override
+		public Object call() {
+			if (!started.compareAndSet(false, true))
+				return null; // aborted before running
+			try {
+				boolean eof = false;
+				while (!eof && !aborted) {
+					final IdatBlock b = free.take();
+					int n = 0;
+					b.len = 0;
+					while (b.len < b.data.length && (n = idatIstream.read(b.data, b.len, b.data.length - b.len)) > 0)
+						b.len += n;
+					eof = n < 0;
+					b.eof = eof;
+					b.offset = iIdatCstream.getOffset();
+					filled.put(b);
+				}
+			} catch (final InterruptedException e) {
+				// aborted
+			} catch (final Throwable t) {
+				filled.offer(new IdatBlock(t));
+			} finally {
+				done.countDown();
+			}
+			return null;
+		}
+
+		private IdatBlock take() {
+			final IdatBlock b;
+			try {
+				b = filled.take();
+			} catch (final InterruptedException e) {
+				throw new PngjInputException("interrupted while reading IDAT", e);
+			}
+			if (b.error != null) {
+				if (b.error instanceof PngjException)
+					throw (PngjException) b.error;
+				throw new PngjInputException("error reading IDAT", b.error);
+			}
+			blockOffset = b.offset;
+			return b;
+		}
+
+		/** Same semantics as {@link PngHelperInternal#readBytes(InputStream, byte[], int, int)} */
+		void readBytes(final byte[] b, int off, int len) {
+			while (len > 0) {
+				if (current == null || currentPos == current.len) {
+					if (current != null) {
+						if (current.eof)
+							throw new PngjInputException("error reading bytes, premature end of IDAT stream");
+						free.offer(current);
+					}
+					current = take();
+					currentPos = 0;
+					continue;
+				}
+				final int n = Math.min(len, current.len - currentPos);
+				System.arraycopy(current.data, currentPos, b, off, n);
+				currentPos += n;
+				off += n;
+				len -= n;
+			}
+		}
+
+		long getOffset() {
+			return blockOffset;
+		}
+
+		/** Consumes all remaining blocks up to the end of the IDAT stream and waits until the task ended */
+		void finish() {
+			while (current == null || !current.eof) {
+				if (current != null)
+					free.offer(current);
+				current = take();
+			}
+			currentPos = current.len;
+			awaitDone();
+		}
+
+		/** Stops the task and waits until it ended, if it was running */
+		void abort() {
+			aborted = true;
+			if (!started.compareAndSet(false, true)) {
+				future.cancel(true); // interrupts a pending take
+				awaitDone();
+			} else {
+				future.cancel(false);
+			}
+		}
+
+		private void awaitDone() {
+			boolean interrupted = false;
+			while (true) {
+				try {
+					done.await();
+					break;
+				} catch (final InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+
 	/**
 	 * Basic info, for debugging.
 	 */
@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
 
@@ -57,7 +58,10 @@ public class PngWriter {
 
 	private PngIDatChunkOutputStream datStream;
 
-	private DeflaterOutputStream datStreamDeflated;
+	private OutputStream datStreamDeflated; // DeflaterOutputStream or PngDeflaterOutputStreamParallel
+
+	private ExecutorService compressionExecutor = null; // null: compress serially
+	private int compressionChunkSize = 0; // 0=use default (PngDeflaterOutputStreamParallel 128K)
 
 	/**
 	 * Deflate algortithm compression strategy
@@ -111,9 +115,14 @@ public class PngWriter {
 
 	private void init() {
 		datStream = new PngIDatChunkOutputStream(this.os, idatMaxSize);
-		final Deflater def = new Deflater(compLevel);
-		def.setStrategy(deflaterStrategy);
-		datStreamDeflated = new DeflaterOutputStream(datStream, def);
+		if (compressionExecutor != null && PngDeflaterOutputStreamParallel.isAvailable()) {
+			datStreamDeflated = new PngDeflaterOutputStreamParallel(datStream, compLevel, deflaterStrategy,
+					compressionExecutor, compressionChunkSize, 0);
+		} else {
+			final Deflater def = new Deflater(compLevel);
+			def.setStrategy(deflaterStrategy);
+			datStreamDeflated = new DeflaterOutputStream(datStream, def);
+		}
 		writeSignatureAndIHDR();
 		writeFirstChunks();
 	}
@@ -474,7 +483,10 @@ public class PngWriter {
 		if (rowNum != imgInfo.rows - 1)
 			throw new PngjOutputException("all rows have not been written");
 		try {
-			datStreamDeflated.finish();
+			if (datStreamDeflated instanceof PngDeflaterOutputStreamParallel)
+				((PngDeflaterOutputStreamParallel) datStreamDeflated).finish();
+			else
+				((DeflaterOutputStream) datStreamDeflated).finish();
 			datStream.flush();
 			writeLastChunks();
 			writeEndChunk();
@@ -538,6 +550,40 @@ public class PngWriter {
 		filterStrat = new FilterWriteStrategy(imgInfo, filterType);
 	}
 
+	/**
+	 * Compresses the image data concurrently on the given executor, in
+	 * independently deflated chunks (pigz style). The output is still a single
+	 * zlib stream, valid for any decoder.
+	 * <p>
+	 * Rows are filtered on the calling thread as usual, hence the filter
+	 * strategy is not affected. Compression is slightly worse than serial.
+	 * <p>
+	 * This must be called just after constructor, before starting writing.
+	 * Ignored (serial compression) if the runtime lacks Deflater.SYNC_FLUSH
+	 * (before Java 7)
+	 *
+	 * @param executor
+	 *            null (default): compress serially
+	 */
+	public void setCompressionExecutor(final ExecutorService executor) {
+		this.compressionExecutor = executor;
+	}
+
+	public ExecutorService getCompressionExecutor() {
+		return compressionExecutor;
+	}
+
+	/**
+	 * Raw bytes deflated by each task when a compression executor is set.
+	 * Values below 32K are raised to 32K.
+	 *
+	 * @param chunkSize
+	 *            default=0 : use defaultSize (128K)
+	 */
+	public void setCompressionChunkSize(final int chunkSize) {
+		this.compressionChunkSize = chunkSize;
+	}
+
 	/**
 	 * Sets maximum size of IDAT fragments. This has little effect on
 	 * performance you should rarely call this
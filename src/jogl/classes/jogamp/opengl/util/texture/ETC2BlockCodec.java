@@ -0,0 +1,717 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package jogamp.opengl.util.texture;
+
+/**
+ * Encoder and decoder of single 4x4 ETC2 blocks, i.e. RGB8 and RGBA8 (EAC alpha).
+ * <p>
+ * Blocks are passed as 16 RGBA pixels in row major order, each component 0..255,
+ * i.e. <code>px[(y*4+x)*4 + c]</code>.
+ * </p>
+ * <p>
+ * The color encoder evaluates the ETC1 compatible individual and differential modes for both sub-block
+ * orientations, the ETC2 T and H modes for blocks of two distinct colors
+ * and the ETC2 planar mode for smooth gradients, picking the one with the least error.
+ * </p>
+ */
+public class ETC2BlockCodec {
+    /** Block size of ETC2 RGB8 in bytes */
+    public static final int RGB8_BLOCK_SIZE = 8;
+    /** Block size of ETC2 RGBA8 in bytes */
+    public static final int RGBA8_BLOCK_SIZE = 16;
+
+    /** Intensity modifier tables, ordered by pixel index value */
+    private static final int[][] modifiers = {
+        {  2,   8,  -2,   -8 },
+        {  5,  17,  -5,  -17 },
+        {  9,  29,  -9,  -29 },
+        { 13,  42, -13,  -42 },
+        { 18,  60, -18,  -60 },
+        { 24,  80, -24,  -80 },
+        { 33, 106, -33, -106 },
+        { 47, 183, -47, -183 } };
+
+    /** T and H mode distances */
+    private static final int[] distances = { 3, 6, 11, 16, 23, 32, 41, 64 };
+
+    /** EAC alpha modifier tables */
+    private static final int[][] alphaModifiers = {
+        { -3, -6,  -9, -15, 2, 5, 8, 14 },
+        { -3, -7, -10, -13, 2, 6, 9, 12 },
+        { -2, -5,  -8, -13, 1, 4, 7, 12 },
+        { -2, -4,  -6, -13, 1, 3, 5, 12 },
+        { -3, -6,  -8, -12, 2, 5, 7, 11 },
+        { -3, -7,  -9, -11, 2, 6, 8, 10 },
+        { -4, -7,  -8, -11, 3, 6, 7, 10 },
+        { -3, -5,  -8, -11, 2, 4, 7, 10 },
+        { -2, -6,  -8, -10, 1, 5, 7,  9 },
+        { -2, -5,  -8, -10, 1, 4, 7,  9 },
+        { -2, -4,  -8, -10, 1, 3, 7,  9 },
+        { -2, -5,  -7, -10, 1, 4, 6,  9 },
+        { -3, -4,  -7, -10, 2, 3, 6,  9 },
+        { -1, -2,  -3, -10, 0, 1, 2,  9 },
+        { -4, -6,  -8,  -9, 3, 5, 7,  8 },
+        { -3, -5,  -7,  -9, 2, 4, 6,  8 } };
+
+    private static int clamp255(final int v) {
+        return v < 0 ? 0 : ( v > 255 ? 255 : v );
+    }
+
+    private static int clamp(final int v, final int min, final int max) {
+        return v < min ? min : ( v > max ? max : v );
+    }
+
+    private static int expand4(final int v) { return ( v << 4 ) | v; }
+    private static int expand5(final int v) { return ( v << 3 ) | ( v >> 2 ); }
+    private static int expand6(final int v) { return ( v << 2 ) | ( v >> 4 ); }
+    private static int expand7(final int v) { return ( v << 1 ) | ( v >> 6 ); }
+
+    /** Returns the pixel number (row major) of the n-th pixel of the given sub-block. */
+    private static int subBlockPixel(final boolean flip, final int subBlock, final int n) {
+        if( flip ) { // 4x2, top and bottom
+            return ( subBlock * 2 + ( n >> 2 ) ) * 4 + ( n & 3 );
+        } else {     // 2x4, left and right
+            return ( n >> 1 ) * 4 + subBlock * 2 + ( n & 1 );
+        }
+    }
+
+    /**
+     * Finds the best modifier table and pixel indices of a sub-block for the given base color.
+     * @param idx destination of the pixel index values, row major
+     * @return (error << 3) | table
+     */
+    private static long fitSubBlock(final int[] px, final boolean flip, final int subBlock,
+                                    final int baseR, final int baseG, final int baseB, final int[] idx) {
+        long best = Long.MAX_VALUE;
+        final int[] tidx = new int[8];
+        for(int t=0; t<8; t++) {
+            final int[] mod = modifiers[t];
+            long err = 0;
+            for(int n=0; n<8 && ( err << 3 ) < best; n++) {
+                final int p = subBlockPixel(flip, subBlock, n) * 4;
+                int bestE = Integer.MAX_VALUE;
+                for(int j=0; j<4; j++) {
+                    final int dr = clamp255(baseR + mod[j]) - px[p];
+                    final int dg = clamp255(baseG + mod[j]) - px[p+1];
+                    final int db = clamp255(baseB + mod[j]) - px[p+2];
+                    final int e = dr*dr + dg*dg + db*db;
+                    if( e < bestE ) {
+                        bestE = e;
+                        tidx[n] = j;
+                    }
+                }
+                err += bestE;
+            }
+            final long v = ( err << 3 ) | t;
+            if( v < best ) {
+                best = v;
+                for(int n=0; n<8; n++) {
+                    idx[subBlockPixel(flip, subBlock, n)] = tidx[n];
+                }
+            }
+        }
+        return best;
+    }
+
+    private static long packIndices(final int[] idx) {
+        long msb = 0, lsb = 0;
+        for(int y=0; y<4; y++) {
+            for(int x=0; x<4; x++) {
+                final int v = idx[y*4+x];
+                final int i = x * 4 + y; // column major
+                msb |= (long)( v >> 1 ) << i;
+                lsb |= (long)( v & 1 ) << i;
+            }
+        }
+        return ( msb << 16 ) | lsb;
+    }
+
+    private static void putLong(final long v, final byte[] dst, final int off) {
+        for(int i=0; i<8; i++) {
+            dst[off+i] = (byte) ( v >>> ( 56 - i * 8 ) );
+        }
+    }
+
+    private static long getLong(final byte[] src, final int off) {
+        long v = 0;
+        for(int i=0; i<8; i++) {
+            v = ( v << 8 ) | ( src[off+i] & 0xff );
+        }
+        return v;
+    }
+
+    /**
+     * Encodes the color of the given block as ETC2 RGB8 block, alpha is ignored.
+     * @param px 16 RGBA pixels
+     * @param dst destination array
+     * @param off offset of the 8 byte block within <code>dst</code>
+     */
+    public static void encodeRGB8(final int[] px, final byte[] dst, final int off) {
+        final int[] idx1 = new int[16];
+        final int[] idx2 = new int[16];
+        long bestErr = Long.MAX_VALUE;
+        long bestBits = 0;
+
+        for(int f=0; f<2; f++) {
+            final boolean flip = 1 == f;
+            final float[] avg = new float[6];
+            for(int s=0; s<2; s++) {
+                for(int n=0; n<8; n++) {
+                    final int p = subBlockPixel(flip, s, n) * 4;
+                    avg[s*3]   += px[p];
+                    avg[s*3+1] += px[p+1];
+                    avg[s*3+2] += px[p+2];
+                }
+            }
+            for(int i=0; i<6; i++) {
+                avg[i] /= 8f;
+            }
+            // differential mode, 555 base colors with 333 signed delta
+            final int[] q5 = new int[6];
+            boolean diffOK = true;
+            for(int i=0; i<6; i++) {
+                q5[i] = clamp( (int) ( avg[i] * 31f / 255f + 0.5f ), 0, 31 );
+            }
+            for(int c=0; c<3; c++) {
+                final int d = q5[3+c] - q5[c];
+                if( d < -4 || d > 3 ) {
+                    diffOK = false;
+                }
+            }
+            if( diffOK ) {
+                final long e1 = fitSubBlock(px, flip, 0, expand5(q5[0]), expand5(q5[1]), expand5(q5[2]), idx1);
+                final long e2 = fitSubBlock(px, flip, 1, expand5(q5[3]), expand5(q5[4]), expand5(q5[5]), idx1);
+                final long err = ( e1 >>> 3 ) + ( e2 >>> 3 );
+                if( err < bestErr ) {
+                    bestErr = err;
+                    long bits = 0;
+                    bits |= (long)q5[0] << 59 | (long)( ( q5[3] - q5[0] ) & 7 ) << 56;
+                    bits |= (long)q5[1] << 51 | (long)( ( q5[4] - q5[1] ) & 7 ) << 48;
+                    bits |= (long)q5[2] << 43 | (long)( ( q5[5] - q5[2] ) & 7 ) << 40;
+                    bits |= ( e1 & 7 ) << 37 | ( e2 & 7 ) << 34 | 1L << 33 | ( flip ? 1L : 0L ) << 32;
+                    bestBits = bits | packIndices(idx1);
+                }
+            }
+            // individual mode, 444 base colors
+            final int[] q4 = new int[6];
+            for(int i=0; i<6; i++) {
+                q4[i] = clamp( (int) ( avg[i] * 15f / 255f + 0.5f ), 0, 15 );
+            }
+            final long e1 = fitSubBlock(px, flip, 0, expand4(q4[0]), expand4(q4[1]), expand4(q4[2]), idx2);
+            final long e2 = fitSubBlock(px, flip, 1, expand4(q4[3]), expand4(q4[4]), expand4(q4[5]), idx2);
+            final long err = ( e1 >>> 3 ) + ( e2 >>> 3 );
+            if( err < bestErr ) {
+                bestErr = err;
+                long bits = 0;
+                bits |= (long)q4[0] << 60 | (long)q4[3] << 56;
+                bits |= (long)q4[1] << 52 | (long)q4[4] << 48;
+                bits |= (long)q4[2] << 44 | (long)q4[5] << 40;
+                bits |= ( e1 & 7 ) << 37 | ( e2 & 7 ) << 34 | ( flip ? 1L : 0L ) << 32;
+                bestBits = bits | packIndices(idx2);
+            }
+        }
+        if( 0 < bestErr ) {
+            final long[] th = encodeTH(px);
+            if( th[1] < bestErr ) {
+                bestErr = th[1];
+                bestBits = th[0];
+            }
+        }
+        if( 0 < bestErr ) {
+            final long planar = encodePlanar(px);
+            if( 0 != planar ) {
+                final int[] dec = new int[64];
+                decodeRGB8(planar, dec);
+                long err = 0;
+                for(int i=0; i<16; i++) {
+                    for(int c=0; c<3; c++) {
+                        final int d = dec[i*4+c] - px[i*4+c];
+                        err += d*d;
+                    }
+                }
+                if( err < bestErr ) {
+                    bestBits = planar;
+                }
+            }
+        }
+        putLong(bestBits, dst, off);
+    }
+
+    private static int colorError(final int[] px, final int p, final int[] paint, final int j) {
+        final int dr = paint[j*3] - px[p], dg = paint[j*3+1] - px[p+1], db = paint[j*3+2] - px[p+2];
+        return dr*dr + dg*dg + db*db;
+    }
+
+    /**
+     * Assigns the nearest of the 4 paint colors to each pixel.
+     * @return the sum of squared errors
+     */
+    private static long assignPaints(final int[] px, final int[] paint, final int[] idx) {
+        long err = 0;
+        for(int i=0; i<16; i++) {
+            int best = 0, bestE = Integer.MAX_VALUE;
+            for(int j=0; j<4; j++) {
+                final int e = colorError(px, i*4, paint, j);
+                if( e < bestE ) {
+                    bestE = e;
+                    best = j;
+                }
+            }
+            idx[i] = best;
+            err += bestE;
+        }
+        return err;
+    }
+
+    private static void paintsTH(final boolean tMode, final int[] c, final int d, final int[] paint) {
+        for(int k=0; k<3; k++) {
+            final int v1 = expand4(c[k]), v2 = expand4(c[3+k]);
+            if( tMode ) {
+                paint[k]   = v1;
+                paint[3+k] = clamp255(v2 + d);
+                paint[6+k] = v2;
+                paint[9+k] = clamp255(v2 - d);
+            } else {
+                paint[k]   = clamp255(v1 + d);
+                paint[3+k] = clamp255(v1 - d);
+                paint[6+k] = clamp255(v2 + d);
+                paint[9+k] = clamp255(v2 - d);
+            }
+        }
+    }
+
+    /** Sets the given free bits such that the selected differential mode channels overflow as required, returns -1 if impossible. */
+    private static long selectMode(final long bits, final int[] freeBits, final boolean rOverflow, final boolean gOverflow) {
+        for(int m=0; m<( 1 << freeBits.length ); m++) {
+            long b = bits;
+            for(int i=0; i<freeBits.length; i++) {
+                if( 0 != ( m & ( 1 << i ) ) ) {
+                    b |= 1L << freeBits[i];
+                }
+            }
+            if( overflows(b, 59) == rOverflow && ( rOverflow || overflows(b, 51) == gOverflow ) ) {
+                return b;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Encodes the block in the ETC2 T and H modes, using two colors clustered along the principal axis.
+     * @return the best block bits and its error, error is {@link Long#MAX_VALUE} if none is valid
+     */
+    private static long[] encodeTH(final int[] px) {
+        // split by the mean along the axis of largest extent, followed by 2-means iterations
+        final float[] mean = new float[3];
+        int maxAxis = 0, maxExtent = -1;
+        for(int k=0; k<3; k++) {
+            int min = 255, max = 0;
+            for(int i=0; i<16; i++) {
+                mean[k] += px[i*4+k];
+                min = Math.min(min, px[i*4+k]);
+                max = Math.max(max, px[i*4+k]);
+            }
+            mean[k] /= 16f;
+            if( max - min > maxExtent ) {
+                maxExtent = max - min;
+                maxAxis = k;
+            }
+        }
+        final boolean[] second = new boolean[16];
+        for(int i=0; i<16; i++) {
+            second[i] = px[i*4+maxAxis] > mean[maxAxis];
+        }
+        final float[] centers = new float[6];
+        for(int iter=0; iter<3; iter++) {
+            final int[] count = new int[2];
+            for(int k=0; k<6; k++) {
+                centers[k] = 0;
+            }
+            for(int i=0; i<16; i++) {
+                final int s = second[i] ? 1 : 0;
+                count[s]++;
+                for(int k=0; k<3; k++) {
+                    centers[s*3+k] += px[i*4+k];
+                }
+            }
+            for(int s=0; s<2; s++) {
+                for(int k=0; k<3; k++) {
+                    centers[s*3+k] = 0 < count[s] ? centers[s*3+k] / count[s] : mean[k];
+                }
+            }
+            for(int i=0; i<16; i++) {
+                float d0 = 0, d1 = 0;
+                for(int k=0; k<3; k++) {
+                    final float e0 = px[i*4+k] - centers[k], e1 = px[i*4+k] - centers[3+k];
+                    d0 += e0*e0;
+                    d1 += e1*e1;
+                }
+                second[i] = d1 < d0;
+            }
+        }
+        final int[] c = new int[6];
+        for(int k=0; k<6; k++) {
+            c[k] = clamp( (int) ( centers[k] * 15f / 255f + 0.5f ), 0, 15 );
+        }
+        final int[] paint = new int[12];
+        final int[] idx = new int[16];
+        long bestErr = Long.MAX_VALUE, bestBits = 0;
+
+        // T mode, either cluster as the single paint color
+        for(int single=0; single<2; single++) {
+            final int[] tc = 0 == single ? c : new int[] { c[3], c[4], c[5], c[0], c[1], c[2] };
+            for(int di=0; di<8; di++) {
+                paintsTH(true, tc, distances[di], paint);
+                final long err = assignPaints(px, paint, idx);
+                if( err < bestErr ) {
+                    long bits = (long)( tc[0] >> 2 ) << 59 | (long)( tc[0] & 3 ) << 56;
+                    bits |= (long)tc[1] << 52 | (long)tc[2] << 48;
+                    bits |= (long)tc[3] << 44 | (long)tc[4] << 40 | (long)tc[5] << 36;
+                    bits |= (long)( di >> 1 ) << 34 | 1L << 33 | (long)( di & 1 ) << 32;
+                    bits = selectMode(bits | packIndices(idx), new int[] { 63, 62, 61, 58 }, true, false);
+                    if( 0 <= bits ) {
+                        bestErr = err;
+                        bestBits = bits;
+                    }
+                }
+            }
+        }
+        // H mode, the distance index LSB is given by the order of the base colors
+        for(int di=0; di<8; di++) {
+            paintsTH(false, c, distances[di], paint);
+            final long err = assignPaints(px, paint, idx);
+            if( err < bestErr ) {
+                final int v1 = c[0] << 8 | c[1] << 4 | c[2];
+                final int v2 = c[3] << 8 | c[4] << 4 | c[5];
+                final int[] hc;
+                if( ( v1 >= v2 ) == ( 1 == ( di & 1 ) ) ) {
+                    hc = c;
+                } else if( v1 != v2 ) {
+                    hc = new int[] { c[3], c[4], c[5], c[0], c[1], c[2] };
+                    for(int i=0; i<16; i++) {
+                        idx[i] ^= 2;
+                    }
+                } else {
+                    continue;
+                }
+                long bits = (long)hc[0] << 59;
+                bits |= (long)( hc[1] >> 1 ) << 56 | (long)( hc[1] & 1 ) << 52;
+                bits |= (long)( hc[2] >> 3 ) << 51 | (long)( hc[2] & 7 ) << 47;
+                bits |= (long)hc[3] << 43 | (long)hc[4] << 39 | (long)hc[5] << 35;
+                bits |= (long)( di >> 2 ) << 34 | 1L << 33 | (long)( ( di >> 1 ) & 1 ) << 32;
+                bits = selectMode(bits | packIndices(idx), new int[] { 63, 55, 54, 53, 50 }, false, true);
+                if( 0 <= bits ) {
+                    bestErr = err;
+                    bestBits = bits;
+                }
+            }
+        }
+        return new long[] { bestBits, bestErr };
+    }
+
+    /**
+     * Encodes the least squares plane of the block colors in ETC2 planar mode.
+     * @return the block bits, or 0 if no valid bit combination exists
+     */
+    private static long encodePlanar(final int[] px) {
+        final int[] q = new int[9]; // RO GO BO, RH GH BH, RV GV BV
+        for(int c=0; c<3; c++) {
+            float sum = 0, sx = 0, sy = 0;
+            for(int y=0; y<4; y++) {
+                for(int x=0; x<4; x++) {
+                    final float v = px[(y*4+x)*4+c];
+                    sum += v;
+                    sx += ( x - 1.5f ) * v;
+                    sy += ( y - 1.5f ) * v;
+                }
+            }
+            final float dx = sx / 20f, dy = sy / 20f;
+            final float o = sum / 16f - 1.5f * dx - 1.5f * dy;
+            final float max = 1 == c ? 127f : 63f;
+            q[c]   = clamp( (int) ( o * max / 255f + 0.5f ), 0, (int)max );
+            q[3+c] = clamp( (int) ( ( o + 4f * dx ) * max / 255f + 0.5f ), 0, (int)max );
+            q[6+c] = clamp( (int) ( ( o + 4f * dy ) * max / 255f + 0.5f ), 0, (int)max );
+        }
+        final int ro = q[0], go = q[1], bo = q[2];
+        final int rh = q[3], gh = q[4], bh = q[5];
+        final int rv = q[6], gv = q[7], bv = q[8];
+        long bits = 0;
+        bits |= (long)ro << 57;
+        bits |= (long)( go >> 6 ) << 56;
+        bits |= (long)( go & 0x3f ) << 49;
+        bits |= (long)( bo >> 5 ) << 48;
+        bits |= (long)( ( bo >> 3 ) & 3 ) << 43;
+        bits |= (long)( bo & 7 ) << 39;
+        bits |= (long)( rh >> 1 ) << 34;
+        bits |= 1L << 33;
+        bits |= (long)( rh & 1 ) << 32;
+        bits |= (long)gh << 25;
+        bits |= (long)bh << 19;
+        bits |= (long)rv << 13;
+        bits |= (long)gv << 6;
+        bits |= bv;
+        // the remaining bits 63, 55, 47..45 and 42 shall select planar mode,
+        // i.e. red and green must not overflow while blue does
+        final int[] freeBits = { 63, 55, 47, 46, 45, 42 };
+        for(int m=0; m<64; m++) {
+            long b = bits;
+            for(int i=0; i<6; i++) {
+                if( 0 != ( m & ( 1 << i ) ) ) {
+                    b |= 1L << freeBits[i];
+                }
+            }
+            if( !overflows(b, 59) && !overflows(b, 51) && overflows(b, 43) ) {
+                return b;
+            }
+        }
+        return 0;
+    }
+
+    /** Returns true if the differential mode 5 bit base at <code>shift</code> plus its 3 bit delta leaves 0..31 */
+    private static boolean overflows(final long bits, final int shift) {
+        final int base = (int) ( bits >>> shift ) & 0x1f;
+        final int delta = ( (int) ( bits >>> ( shift - 3 ) ) & 7 ) << 29 >> 29;
+        final int v = base + delta;
+        return v < 0 || v > 31;
+    }
+
+    private static void decodeRGB8(final long bits, final int[] px) {
+        final int lowBits = (int) bits;
+        if( 0 == ( bits & ( 1L << 33 ) ) ) {
+            final int[] base = new int[6];
+            base[0] = expand4( (int) ( bits >>> 60 ) & 0xf ); base[3] = expand4( (int) ( bits >>> 56 ) & 0xf );
+            base[1] = expand4( (int) ( bits >>> 52 ) & 0xf ); base[4] = expand4( (int) ( bits >>> 48 ) & 0xf );
+            base[2] = expand4( (int) ( bits >>> 44 ) & 0xf ); base[5] = expand4( (int) ( bits >>> 40 ) & 0xf );
+            decodeSubBlocks(bits, base, px);
+        } else if( overflows(bits, 59) ) {
+            decodeTH(bits, true, px);
+        } else if( overflows(bits, 51) ) {
+            decodeTH(bits, false, px);
+        } else if( overflows(bits, 43) ) {
+            final int ro = expand6( (int) ( bits >>> 57 ) & 0x3f );
+            final int go = expand7( (int) ( bits >>> 56 & 1 ) << 6 | (int) ( bits >>> 49 ) & 0x3f );
+            final int bo = expand6( (int) ( bits >>> 48 & 1 ) << 5 | (int) ( bits >>> 43 & 3 ) << 3 | (int) ( bits >>> 39 ) & 7 );
+            final int rh = expand6( (int) ( bits >>> 34 & 0x1f ) << 1 | (int) ( bits >>> 32 ) & 1 );
+            final int gh = expand7( ( lowBits >>> 25 ) & 0x7f );
+            final int bh = expand6( ( lowBits >>> 19 ) & 0x3f );
+            final int rv = expand6( ( lowBits >>> 13 ) & 0x3f );
+            final int gv = expand7( ( lowBits >>> 6 ) & 0x7f );
+            final int bv = expand6( lowBits & 0x3f );
+            for(int y=0; y<4; y++) {
+                for(int x=0; x<4; x++) {
+                    final int p = ( y*4+x ) * 4;
+                    px[p]   = clamp255( ( x * ( rh - ro ) + y * ( rv - ro ) + 4 * ro + 2 ) >> 2 );
+                    px[p+1] = clamp255( ( x * ( gh - go ) + y * ( gv - go ) + 4 * go + 2 ) >> 2 );
+                    px[p+2] = clamp255( ( x * ( bh - bo ) + y * ( bv - bo ) + 4 * bo + 2 ) >> 2 );
+                }
+            }
+        } else {
+            final int[] base = new int[6];
+            for(int c=0; c<3; c++) {
+                final int shift = 59 - c * 8;
+                final int b = (int) ( bits >>> shift ) & 0x1f;
+                final int d = ( (int) ( bits >>> ( shift - 3 ) ) & 7 ) << 29 >> 29;
+                base[c] = expand5(b);
+                base[3+c] = expand5(b + d);
+            }
+            decodeSubBlocks(bits, base, px);
+        }
+    }
+
+    private static int pixelIndex(final int lowBits, final int x, final int y) {
+        final int i = x * 4 + y;
+        return ( ( lowBits >>> ( 16 + i ) ) & 1 ) << 1 | ( ( lowBits >>> i ) & 1 );
+    }
+
+    private static void decodeSubBlocks(final long bits, final int[] base, final int[] px) {
+        final boolean flip = 0 != ( bits & ( 1L << 32 ) );
+        final int[] tables = { (int) ( bits >>> 37 ) & 7, (int) ( bits >>> 34 ) & 7 };
+        final int lowBits = (int) bits;
+        for(int y=0; y<4; y++) {
+            for(int x=0; x<4; x++) {
+                final int s = flip ? y >> 1 : x >> 1;
+                final int m = modifiers[tables[s]][pixelIndex(lowBits, x, y)];
+                final int p = ( y*4+x ) * 4;
+                px[p]   = clamp255(base[s*3] + m);
+                px[p+1] = clamp255(base[s*3+1] + m);
+                px[p+2] = clamp255(base[s*3+2] + m);
+            }
+        }
+    }
+
+    private static void decodeTH(final long bits, final boolean tMode, final int[] px) {
+        final int r1, g1, b1, r2, g2, b2, di;
+        if( tMode ) {
+            r1 = expand4( (int) ( bits >>> 59 & 3 ) << 2 | (int) ( bits >>> 56 ) & 3 );
+            g1 = expand4( (int) ( bits >>> 52 ) & 0xf );
+            b1 = expand4( (int) ( bits >>> 48 ) & 0xf );
+            r2 = expand4( (int) ( bits >>> 44 ) & 0xf );
+            g2 = expand4( (int) ( bits >>> 40 ) & 0xf );
+            b2 = expand4( (int) ( bits >>> 36 ) & 0xf );
+            di = (int) ( bits >>> 34 & 3 ) << 1 | (int) ( bits >>> 32 ) & 1;
+        } else {
+            r1 = expand4( (int) ( bits >>> 59 ) & 0xf );
+            g1 = expand4( (int) ( bits >>> 56 & 7 ) << 1 | (int) ( bits >>> 52 ) & 1 );
+            b1 = expand4( (int) ( bits >>> 51 & 1 ) << 3 | (int) ( bits >>> 47 ) & 7 );
+            r2 = expand4( (int) ( bits >>> 43 ) & 0xf );
+            g2 = expand4( (int) ( bits >>> 39 ) & 0xf );
+            b2 = expand4( (int) ( bits >>> 35 ) & 0xf );
+            final int v1 = ( r1 << 16 ) | ( g1 << 8 ) | b1;
+            final int v2 = ( r2 << 16 ) | ( g2 << 8 ) | b2;
+            di = (int) ( bits >>> 34 & 1 ) << 2 | (int) ( bits >>> 32 & 1 ) << 1 | ( v1 >= v2 ? 1 : 0 );
+        }
+        final int d = distances[di];
+        final int[] paint = new int[12];
+        if( tMode ) {
+            paint[0] = r1;             paint[1]  = g1;             paint[2]  = b1;
+            paint[3] = clamp255(r2+d); paint[4]  = clamp255(g2+d); paint[5]  = clamp255(b2+d);
+            paint[6] = r2;             paint[7]  = g2;             paint[8]  = b2;
+            paint[9] = clamp255(r2-d); paint[10] = clamp255(g2-d); paint[11] = clamp255(b2-d);
+        } else {
+            paint[0] = clamp255(r1+d); paint[1]  = clamp255(g1+d); paint[2]  = clamp255(b1+d);
+            paint[3] = clamp255(r1-d); paint[4]  = clamp255(g1-d); paint[5]  = clamp255(b1-d);
+            paint[6] = clamp255(r2+d); paint[7]  = clamp255(g2+d); paint[8]  = clamp255(b2+d);
+            paint[9] = clamp255(r2-d); paint[10] = clamp255(g2-d); paint[11] = clamp255(b2-d);
+        }
+        final int lowBits = (int) bits;
+        for(int y=0; y<4; y++) {
+            for(int x=0; x<4; x++) {
+                final int j = pixelIndex(lowBits, x, y);
+                final int p = ( y*4+x ) * 4;
+                px[p]   = paint[j*3];
+                px[p+1] = paint[j*3+1];
+                px[p+2] = paint[j*3+2];
+            }
+        }
+    }
+
+    /**
+     * Encodes the alpha of the given block as EAC alpha block.
+     * @param px 16 RGBA pixels
+     * @param dst destination array
+     * @param off offset of the 8 byte alpha block within <code>dst</code>
+     */
+    public static void encodeAlpha(final int[] px, final byte[] dst, final int off) {
+        int min = 255, max = 0;
+        for(int i=0; i<16; i++) {
+            final int a = px[i*4+3];
+            min = Math.min(min, a);
+            max = Math.max(max, a);
+        }
+        int bestBase = min, bestMul = 1, bestTable = 13; // table 13 has a zero modifier
+        final int[] idx = new int[16];
+        if( min != max ) {
+            long bestErr = Long.MAX_VALUE;
+            final int[] tidx = new int[16];
+            for(int t=0; t<16 && 0 < bestErr; t++) {
+                final int[] mod = alphaModifiers[t];
+                final int tMin = mod[3], tMax = mod[7];
+                final int m0 = Math.round( (float)( max - min ) / ( tMax - tMin ) );
+                for(int mul=Math.max(1, m0-1); mul<=Math.min(15, m0+1); mul++) {
+                    final int[] bases = { min - tMin * mul, max - tMax * mul, ( min + max + 1 ) / 2 };
+                    for(int b=0; b<bases.length; b++) {
+                        final int base = clamp255(bases[b]);
+                        long err = 0;
+                        for(int i=0; i<16 && err < bestErr; i++) {
+                            final int a = px[i*4+3];
+                            int bestE = Integer.MAX_VALUE;
+                            for(int j=0; j<8; j++) {
+                                final int d = clamp255(base + mod[j] * mul) - a;
+                                if( d*d < bestE ) {
+                                    bestE = d*d;
+                                    tidx[i] = j;
+                                }
+                            }
+                            err += bestE;
+                        }
+                        if( err < bestErr ) {
+                            bestErr = err;
+                            bestBase = base;
+                            bestMul = mul;
+                            bestTable = t;
+                            System.arraycopy(tidx, 0, idx, 0, 16);
+                        }
+                    }
+                }
+            }
+        } else {
+            for(int i=0; i<16; i++) {
+                idx[i] = 4;
+            }
+        }
+        long bits = (long)bestBase << 56 | (long)bestMul << 52 | (long)bestTable << 48;
+        for(int y=0; y<4; y++) {
+            for(int x=0; x<4; x++) {
+                final int i = x * 4 + y; // column major
+                bits |= (long)idx[y*4+x] << ( 45 - i * 3 );
+            }
+        }
+        putLong(bits, dst, off);
+    }
+
+    /**
+     * Encodes the given block as ETC2 RGBA8 block, i.e. EAC alpha followed by the ETC2 color.
+     */
+    public static void encodeRGBA8(final int[] px, final byte[] dst, final int off) {
+        encodeAlpha(px, dst, off);
+        encodeRGB8(px, dst, off+8);
+    }
+
+    /**
+     * Decodes an ETC2 RGB8 block, alpha is set to 255.
+     * @param src source array
+     * @param off offset of the 8 byte block within <code>src</code>
+     * @param px 16 RGBA pixels, destination
+     */
+    public static void decodeRGB8(final byte[] src, final int off, final int[] px) {
+        decodeRGB8(getLong(src, off), px);
+        for(int i=0; i<16; i++) {
+            px[i*4+3] = 255;
+        }
+    }
+
+    /**
+     * Decodes an ETC2 RGBA8 block.
+     * @param src source array
+     * @param off offset of the 16 byte block within <code>src</code>
+     * @param px 16 RGBA pixels, destination
+     */
+    public static void decodeRGBA8(final byte[] src, final int off, final int[] px) {
+        decodeRGB8(getLong(src, off+8), px);
+        final long bits = getLong(src, off);
+        final int base = (int) ( bits >>> 56 ) & 0xff;
+        final int mul = (int) ( bits >>> 52 ) & 0xf;
+        final int[] mod = alphaModifiers[ (int) ( bits >>> 48 ) & 0xf ];
+        for(int y=0; y<4; y++) {
+            for(int x=0; x<4; x++) {
+                final int i = x * 4 + y;
+                px[(y*4+x)*4+3] = clamp255( base + mod[ (int) ( bits >>> ( 45 - i * 3 ) ) & 7 ] * mul );
+            }
+        }
+    }
+}
@@ -0,0 +1,411 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package jogamp.opengl.util.texture;
+
+/**
+ * Encoder and decoder of single 4x4 S3TC blocks, i.e. BC1 (DXT1) and BC3 (DXT5).
+ * <p>
+ * Blocks are passed as 16 RGBA pixels in row major order, each component 0..255,
+ * i.e. <code>px[(y*4+x)*4 + c]</code>.
+ * </p>
+ * <p>
+ * The color encoder fits the endpoints along the principal axis of the block's colors,
+ * followed by a least squares refinement of the quantized endpoints.
+ * Solid blocks use tables of optimal endpoint pairs, hence are reproduced exactly where possible.
+ * </p>
+ */
+public class S3TCBlockCodec {
+    /** Block size of BC1 in bytes */
+    public static final int BC1_BLOCK_SIZE = 8;
+    /** Block size of BC3 in bytes */
+    public static final int BC3_BLOCK_SIZE = 16;
+
+    private static final int REFINE_STEPS = 2;
+
+    /** Optimal 5 bit endpoint pairs [c0, c1] for the 2/3 c0 + 1/3 c1 palette entry per 8 bit value */
+    private static final byte[] match5 = new byte[256*2];
+    /** Optimal 6 bit endpoint pairs [c0, c1] for the 2/3 c0 + 1/3 c1 palette entry per 8 bit value */
+    private static final byte[] match6 = new byte[256*2];
+
+    static {
+        initMatch(match5, 5);
+        initMatch(match6, 6);
+    }
+
+    private static void initMatch(final byte[] match, final int bits) {
+        final int n = 1 << bits;
+        for(int v=0; v<256; v++) {
+            int bestErr = Integer.MAX_VALUE;
+            for(int c0=0; c0<n; c0++) {
+                final int e0 = expand(c0, bits);
+                for(int c1=0; c1<n; c1++) {
+                    final int e1 = expand(c1, bits);
+                    final int err = Math.abs( ( 2 * e0 + e1 ) / 3 - v );
+                    if( err < bestErr ) {
+                        bestErr = err;
+                        match[v*2] = (byte)c0;
+                        match[v*2+1] = (byte)c1;
+                    }
+                }
+            }
+        }
+    }
+
+    private static int expand(final int v, final int bits) {
+        return 5 == bits ? ( v << 3 ) | ( v >> 2 ) : ( v << 2 ) | ( v >> 4 );
+    }
+
+    private static int pack565(final int r, final int g, final int b) {
+        return ( r << 11 ) | ( g << 5 ) | b;
+    }
+
+    private static int quantize565(final float r, final float g, final float b) {
+        final int r5 = clamp( (int) ( r * 31f / 255f + 0.5f ), 0, 31 );
+        final int g6 = clamp( (int) ( g * 63f / 255f + 0.5f ), 0, 63 );
+        final int b5 = clamp( (int) ( b * 31f / 255f + 0.5f ), 0, 31 );
+        return pack565(r5, g6, b5);
+    }
+
+    private static int clamp(final int v, final int min, final int max) {
+        return v < min ? min : ( v > max ? max : v );
+    }
+
+    /**
+     * Computes the 4 entry RGB palette of the given 565 endpoints,
+     * using the 4 color interpretation if <code>fourColors</code> or <code>c0 &gt; c1</code>,
+     * otherwise the 3 color plus black interpretation.
+     */
+    private static void palette(final int c0, final int c1, final boolean fourColors, final int[] pal) {
+        pal[0] = expand( c0 >>> 11, 5 ); pal[1] = expand( ( c0 >>> 5 ) & 0x3f, 6 ); pal[2] = expand( c0 & 0x1f, 5 );
+        pal[3] = expand( c1 >>> 11, 5 ); pal[4] = expand( ( c1 >>> 5 ) & 0x3f, 6 ); pal[5] = expand( c1 & 0x1f, 5 );
+        if( fourColors || c0 > c1 ) {
+            for(int c=0; c<3; c++) {
+                pal[6+c] = ( 2 * pal[c] + pal[3+c] ) / 3;
+                pal[9+c] = ( pal[c] + 2 * pal[3+c] ) / 3;
+            }
+        } else {
+            for(int c=0; c<3; c++) {
+                pal[6+c] = ( pal[c] + pal[3+c] ) / 2;
+                pal[9+c] = 0;
+            }
+        }
+    }
+
+    /**
+     * Assigns the nearest palette entry to each pixel.
+     * @return the sum of squared errors
+     */
+    private static int assignIndices(final int[] px, final int[] pal, final int[] idx) {
+        int total = 0;
+        for(int i=0; i<16; i++) {
+            final int r = px[i*4], g = px[i*4+1], b = px[i*4+2];
+            int best = 0, bestErr = Integer.MAX_VALUE;
+            for(int j=0; j<4; j++) {
+                final int dr = r - pal[j*3], dg = g - pal[j*3+1], db = b - pal[j*3+2];
+                final int err = dr*dr + dg*dg + db*db;
+                if( err < bestErr ) {
+                    bestErr = err;
+                    best = j;
+                }
+            }
+            idx[i] = best;
+            total += bestErr;
+        }
+        return total;
+    }
+
+    /** Palette index to weight of endpoint c0 in 4 color mode */
+    private static final float[] weight0 = { 1f, 0f, 2f/3f, 1f/3f };
+
+    /**
+     * Encodes the color of the given block as BC1 color block,
+     * always using the 4 color interpretation.
+     * @param px 16 RGBA pixels, alpha is ignored
+     * @param dst destination array
+     * @param off offset of the 8 byte color block within <code>dst</code>
+     */
+    public static void encodeColor(final int[] px, final byte[] dst, final int off) {
+        int minR = 255, minG = 255, minB = 255, maxR = 0, maxG = 0, maxB = 0;
+        float mR = 0, mG = 0, mB = 0;
+        for(int i=0; i<16; i++) {
+            final int r = px[i*4], g = px[i*4+1], b = px[i*4+2];
+            minR = Math.min(minR, r); maxR = Math.max(maxR, r);
+            minG = Math.min(minG, g); maxG = Math.max(maxG, g);
+            minB = Math.min(minB, b); maxB = Math.max(maxB, b);
+            mR += r; mG += g; mB += b;
+        }
+        final int[] idx = new int[16];
+        int c0, c1;
+        if( minR == maxR && minG == maxG && minB == maxB ) {
+            // solid block, all pixels use the 2/3 c0 + 1/3 c1 entry
+            c0 = pack565(match5[minR*2], match6[minG*2], match5[minB*2]);
+            c1 = pack565(match5[minR*2+1], match6[minG*2+1], match5[minB*2+1]);
+            for(int i=0; i<16; i++) {
+                idx[i] = 2;
+            }
+        } else {
+            mR /= 16f; mG /= 16f; mB /= 16f;
+            // covariance and its principal axis via power iteration
+            float crr = 0, crg = 0, crb = 0, cgg = 0, cgb = 0, cbb = 0;
+            for(int i=0; i<16; i++) {
+                final float r = px[i*4] - mR, g = px[i*4+1] - mG, b = px[i*4+2] - mB;
+                crr += r*r; crg += r*g; crb += r*b;
+                cgg += g*g; cgb += g*b; cbb += b*b;
+            }
+            float vR = maxR - minR, vG = maxG - minG, vB = maxB - minB;
+            for(int iter=0; iter<4; iter++) {
+                final float r = vR * crr + vG * crg + vB * crb;
+                final float g = vR * crg + vG * cgg + vB * cgb;
+                final float b = vR * crb + vG * cgb + vB * cbb;
+                final float len = Math.max(Math.abs(r), Math.max(Math.abs(g), Math.abs(b)));
+                if( len < 1e-6f ) {
+                    break;
+                }
+                vR = r / len; vG = g / len; vB = b / len;
+            }
+            // extreme pixels along the axis as endpoints
+            float minDot = Float.MAX_VALUE, maxDot = -Float.MAX_VALUE;
+            int minI = 0, maxI = 0;
+            for(int i=0; i<16; i++) {
+                final float d = px[i*4] * vR + px[i*4+1] * vG + px[i*4+2] * vB;
+                if( d < minDot ) { minDot = d; minI = i; }
+                if( d > maxDot ) { maxDot = d; maxI = i; }
+            }
+            c0 = quantize565(px[maxI*4], px[maxI*4+1], px[maxI*4+2]);
+            c1 = quantize565(px[minI*4], px[minI*4+1], px[minI*4+2]);
+
+            final int[] pal = new int[12];
+            final int[] tidx = new int[16];
+            palette(c0, c1, true, pal);
+            int bestErr = assignIndices(px, pal, idx);
+            for(int step=0; step<REFINE_STEPS && 0 < bestErr; step++) {
+                // least squares endpoints for the current indices
+                float aa = 0, bb = 0, ab = 0;
+                float axR = 0, axG = 0, axB = 0, bxR = 0, bxG = 0, bxB = 0;
+                for(int i=0; i<16; i++) {
+                    final float a = weight0[idx[i]], b = 1f - a;
+                    aa += a*a; bb += b*b; ab += a*b;
+                    axR += a * px[i*4]; axG += a * px[i*4+1]; axB += a * px[i*4+2];
+                    bxR += b * px[i*4]; bxG += b * px[i*4+1]; bxB += b * px[i*4+2];
+                }
+                final float det = aa * bb - ab * ab;
+                if( Math.abs(det) < 1e-6f ) {
+                    break;
+                }
+                final float f = 1f / det;
+                final int t0 = quantize565( ( axR * bb - bxR * ab ) * f, ( axG * bb - bxG * ab ) * f, ( axB * bb - bxB * ab ) * f );
+                final int t1 = quantize565( ( bxR * aa - axR * ab ) * f, ( bxG * aa - axG * ab ) * f, ( bxB * aa - axB * ab ) * f );
+                palette(t0, t1, true, pal);
+                final int err = assignIndices(px, pal, tidx);
+                if( err >= bestErr ) {
+                    break;
+                }
+                bestErr = err;
+                c0 = t0;
+                c1 = t1;
+                System.arraycopy(tidx, 0, idx, 0, 16);
+            }
+        }
+        if( c0 < c1 ) {
+            // c0 > c1 selects the 4 color interpretation in BC1
+            final int t = c0; c0 = c1; c1 = t;
+            for(int i=0; i<16; i++) {
+                idx[i] ^= 1;
+            }
+        } else if( c0 == c1 ) {
+            for(int i=0; i<16; i++) {
+                idx[i] = 0;
+            }
+        }
+        int bits = 0;
+        for(int i=0; i<16; i++) {
+            bits |= idx[i] << ( i * 2 );
+        }
+        dst[off]   = (byte) c0;
+        dst[off+1] = (byte) ( c0 >>> 8 );
+        dst[off+2] = (byte) c1;
+        dst[off+3] = (byte) ( c1 >>> 8 );
+        dst[off+4] = (byte) bits;
+        dst[off+5] = (byte) ( bits >>> 8 );
+        dst[off+6] = (byte) ( bits >>> 16 );
+        dst[off+7] = (byte) ( bits >>> 24 );
+    }
+
+    private static void alphaPalette(final int a0, final int a1, final int[] pal) {
+        pal[0] = a0;
+        pal[1] = a1;
+        if( a0 > a1 ) {
+            for(int i=2; i<8; i++) {
+                pal[i] = ( ( 8 - i ) * a0 + ( i - 1 ) * a1 ) / 7;
+            }
+        } else {
+            for(int i=2; i<6; i++) {
+                pal[i] = ( ( 6 - i ) * a0 + ( i - 1 ) * a1 ) / 5;
+            }
+            pal[6] = 0;
+            pal[7] = 255;
+        }
+    }
+
+    private static int assignAlphaIndices(final int[] px, final int[] pal, final int[] idx) {
+        int total = 0;
+        for(int i=0; i<16; i++) {
+            final int a = px[i*4+3];
+            int best = 0, bestErr = Integer.MAX_VALUE;
+            for(int j=0; j<8; j++) {
+                final int d = a - pal[j];
+                if( d*d < bestErr ) {
+                    bestErr = d*d;
+                    best = j;
+                }
+            }
+            idx[i] = best;
+            total += bestErr;
+        }
+        return total;
+    }
+
+    /**
+     * Encodes the alpha of the given block as BC3 alpha block.
+     * <p>
+     * Both the 8 value interpolation and the 6 value interpolation with explicit 0 and 255 are evaluated,
+     * the latter using the range of the remaining alpha values.
+     * </p>
+     * @param px 16 RGBA pixels
+     * @param dst destination array
+     * @param off offset of the 8 byte alpha block within <code>dst</code>
+     */
+    public static void encodeAlpha(final int[] px, final byte[] dst, final int off) {
+        int min = 255, max = 0, min6 = 255, max6 = 0;
+        for(int i=0; i<16; i++) {
+            final int a = px[i*4+3];
+            min = Math.min(min, a);
+            max = Math.max(max, a);
+            if( 0 < a && a < 255 ) {
+                min6 = Math.min(min6, a);
+                max6 = Math.max(max6, a);
+            }
+        }
+        final int[] pal = new int[8];
+        final int[] idx = new int[16];
+        int a0, a1;
+        if( min == max ) {
+            a0 = a1 = min;
+            for(int i=0; i<16; i++) {
+                idx[i] = 0;
+            }
+        } else {
+            a0 = max;
+            a1 = min;
+            alphaPalette(a0, a1, pal);
+            final int err8 = assignAlphaIndices(px, pal, idx);
+            if( 0 < err8 && ( 0 == min || 255 == max ) ) {
+                if( min6 > max6 ) {
+                    min6 = max6 = 0 == min ? 255 : 0; // only 0 and 255
+                }
+                final int[] idx6 = new int[16];
+                alphaPalette(min6, max6, pal);
+                final int err6 = assignAlphaIndices(px, pal, idx6);
+                if( err6 < err8 ) {
+                    a0 = min6;
+                    a1 = max6;
+                    System.arraycopy(idx6, 0, idx, 0, 16);
+                }
+            }
+        }
+        dst[off]   = (byte) a0;
+        dst[off+1] = (byte) a1;
+        long bits = 0;
+        for(int i=0; i<16; i++) {
+            bits |= (long)idx[i] << ( i * 3 );
+        }
+        for(int i=0; i<6; i++) {
+            dst[off+2+i] = (byte) ( bits >>> ( i * 8 ) );
+        }
+    }
+
+    /**
+     * Encodes the given block as BC1 RGB block, alpha is ignored.
+     */
+    public static void encodeBC1(final int[] px, final byte[] dst, final int off) {
+        encodeColor(px, dst, off);
+    }
+
+    /**
+     * Encodes the given block as BC3 RGBA block.
+     */
+    public static void encodeBC3(final int[] px, final byte[] dst, final int off) {
+        encodeAlpha(px, dst, off);
+        encodeColor(px, dst, off+8);
+    }
+
+    private static void decodeColor(final byte[] src, final int off, final boolean bc1, final int[] px) {
+        final int c0 = ( src[off] & 0xff ) | ( src[off+1] & 0xff ) << 8;
+        final int c1 = ( src[off+2] & 0xff ) | ( src[off+3] & 0xff ) << 8;
+        final int bits = ( src[off+4] & 0xff ) | ( src[off+5] & 0xff ) << 8 | ( src[off+6] & 0xff ) << 16 | ( src[off+7] & 0xff ) << 24;
+        final int[] pal = new int[12];
+        palette(c0, c1, !bc1, pal);
+        final boolean transparent = bc1 && c0 <= c1;
+        for(int i=0; i<16; i++) {
+            final int j = ( bits >>> ( i * 2 ) ) & 3;
+            px[i*4]   = pal[j*3];
+            px[i*4+1] = pal[j*3+1];
+            px[i*4+2] = pal[j*3+2];
+            px[i*4+3] = transparent && 3 == j ? 0 : 255;
+        }
+    }
+
+    /**
+     * Decodes a BC1 block, including the 3 color plus transparent black interpretation.
+     * @param src source array
+     * @param off offset of the 8 byte block within <code>src</code>
+     * @param px 16 RGBA pixels, destination
+     */
+    public static void decodeBC1(final byte[] src, final int off, final int[] px) {
+        decodeColor(src, off, true, px);
+    }
+
+    /**
+     * Decodes a BC3 block.
+     * @param src source array
+     * @param off offset of the 16 byte block within <code>src</code>
+     * @param px 16 RGBA pixels, destination
+     */
+    public static void decodeBC3(final byte[] src, final int off, final int[] px) {
+        decodeColor(src, off+8, false, px);
+        final int[] pal = new int[8];
+        alphaPalette(src[off] & 0xff, src[off+1] & 0xff, pal);
+        long bits = 0;
+        for(int i=0; i<6; i++) {
+            bits |= (long)( src[off+2+i] & 0xff ) << ( i * 8 );
+        }
+        for(int i=0; i<16; i++) {
+            px[i*4+3] = pal[ (int) ( bits >>> ( i * 3 ) ) & 7 ];
+        }
+    }
+}
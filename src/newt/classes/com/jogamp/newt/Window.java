@@ -37,6 +37,7 @@ import com.jogamp.newt.event.WindowListener;
 import com.jogamp.newt.event.KeyListener;
 import com.jogamp.newt.event.KeyEvent;
 import com.jogamp.newt.event.InputEvent;
+import com.jogamp.newt.event.MouseEvent;
 import com.jogamp.newt.event.MouseListener;
 
 import jogamp.newt.Debug;
@@ -979,6 +980,51 @@ public interface Window extends NativeWindow, WindowClosingProtocol, ScalableSur
      */
     void enqueueEvent(boolean wait, com.jogamp.newt.event.NEWTEvent event);
 
+    /** No event coalescing, default. See {@link #setEventCoalescing(int)}. */
+    public static final int COALESCE_NONE = 0;
+    /**
+     * Coalesce consecutive queued {@link MouseEvent#EVENT_MOUSE_MOVED moved}, {@link MouseEvent#EVENT_MOUSE_DRAGGED dragged}
+     * and {@link MouseEvent#EVENT_MOUSE_WHEEL_MOVED wheel} events. See {@link #setEventCoalescing(int)}.
+     */
+    public static final int COALESCE_POINTER = 1 << 0;
+    /**
+     * Coalesce consecutive queued {@link WindowEvent#EVENT_WINDOW_RESIZED resized}
+     * and {@link WindowEvent#EVENT_WINDOW_MOVED moved} events. See {@link #setEventCoalescing(int)}.
+     */
+    public static final int COALESCE_WINDOW = 1 << 1;
+    /**
+     * Record all coalesced pointer events, accessible via {@link MouseEvent#getCoalescedEvents()}.
+     * See {@link #setEventCoalescing(int)}.
+     */
+    public static final int COALESCE_HISTORY = 1 << 2;
+
+    /**
+     * Sets the event coalescing policy of this window.
+     * <p>
+     * Consecutive events of the same kind, i.e. same type, modifiers, button and pointer IDs,
+     * are merged into one while still being queued,
+     * hence listeners receive at most one event per kind and dispatch round.
+     * A slow listener or an application rendering at a lower rate than the input device reports
+     * no longer builds up a backlog of outdated events.
+     * </p>
+     * <p>
+     * The merged {@link MouseEvent} carries the latest position, modifiers and timestamp
+     * and the summed up {@link MouseEvent#getRotation() rotation} of all merged events,
+     * see {@link MouseEvent#getCoalescedCount()}.
+     * If {@link #COALESCE_HISTORY} is set, all merged events are accessible via {@link MouseEvent#getCoalescedEvents()}.
+     * </p>
+     * <p>
+     * Only {@link #enqueueEvent(boolean, com.jogamp.newt.event.NEWTEvent) enqueued} events w/o waiting are coalesced,
+     * events directly consumed by the native event dispatching are passed as is.
+     * </p>
+     * @param mode bitmask of {@link #COALESCE_POINTER}, {@link #COALESCE_WINDOW} and {@link #COALESCE_HISTORY},
+     *             or {@link #COALESCE_NONE}
+     */
+    void setEventCoalescing(int mode);
+
+    /** @see #setEventCoalescing(int) */
+    int getEventCoalescing();
+
     void runOnEDTIfAvail(boolean wait, final Runnable task);
 
 
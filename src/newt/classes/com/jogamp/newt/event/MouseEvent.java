@@ -207,6 +207,8 @@ public class MouseEvent extends InputEvent
         this.rotationXYZ = rotationXYZ;
         this.rotationScale = rotationScale;
         this.pointerType = constMousePointerTypes;
+        this.coalescedCount = 1;
+        this.coalesced = null;
     }
 
     /**
@@ -260,6 +262,24 @@ public class MouseEvent extends InputEvent
         this.rotationXYZ = rotationXYZ;
         this.rotationScale = rotationScale;
         this.pointerType = pointerType;
+        this.coalescedCount = 1;
+        this.coalesced = null;
+    }
+
+    private MouseEvent(final MouseEvent src, final float[] rotationXYZ, final int coalescedCount, final MouseEvent[] coalesced) {
+        super(src.getEventType(), src.source, src.getWhen(), src.getModifiers());
+        this.x = src.x;
+        this.y = src.y;
+        this.pressure = src.pressure;
+        this.maxPressure = src.maxPressure;
+        this.pointerID = src.pointerID;
+        this.clickCount = src.clickCount;
+        this.button = src.button;
+        this.rotationXYZ = rotationXYZ;
+        this.rotationScale = src.rotationScale;
+        this.pointerType = src.pointerType;
+        this.coalescedCount = coalescedCount;
+        this.coalesced = coalesced;
     }
 
     public final MouseEvent createVariant(final short newEventType) {
@@ -267,6 +287,44 @@ public class MouseEvent extends InputEvent
                               x, y, pressure, maxPressure, button, clickCount, rotationXYZ, rotationScale);
     }
 
+    /**
+     * Returns a variant of this event, representing <code>coalescedCount</code> consecutive events
+     * of the same type, which have been merged into this latest one.
+     * <p>
+     * Used by the NEWT window to coalesce queued {@link #EVENT_MOUSE_MOVED}, {@link #EVENT_MOUSE_DRAGGED}
+     * and {@link #EVENT_MOUSE_WHEEL_MOVED} events, see {@link com.jogamp.newt.Window#setEventCoalescing(int)}.
+     * </p>
+     * @param rotationXYZ the summed up rotation of all coalesced events
+     * @param coalescedCount number of coalesced events, including this one
+     * @param coalesced all coalesced events in order, the last being this one, or <code>null</code> if not recorded
+     */
+    public final MouseEvent createCoalescedVariant(final float[] rotationXYZ, final int coalescedCount, final MouseEvent[] coalesced) {
+        if( null != coalesced && coalesced.length != coalescedCount ) {
+            throw new IllegalArgumentException("coalescedCount "+coalescedCount+" != coalesced events "+coalesced.length);
+        }
+        return new MouseEvent(this, rotationXYZ, coalescedCount, coalesced);
+    }
+
+    /**
+     * Returns the number of consecutive queued events merged into this one, usually <code>1</code>.
+     * <p>
+     * The position is the one of the latest event, the {@link #getRotation() rotation} is the sum of all.
+     * </p>
+     * @see com.jogamp.newt.Window#setEventCoalescing(int)
+     */
+    public final int getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    /**
+     * Returns all events merged into this one in order, the last sample being the latest,
+     * or <code>null</code> if none have been coalesced or history recording is disabled.
+     * @see com.jogamp.newt.Window#COALESCE_HISTORY
+     */
+    public final MouseEvent[] getCoalescedEvents() {
+        return coalesced;
+    }
+
     /**
      * See details for <a href="#multiPtrEvent">multiple-pointer events</a>.
      * @return the count of pointers involved in this event
@@ -523,7 +581,11 @@ public class MouseEvent extends InputEvent
         sb.append("MouseEvent[").append(getEventTypeString(getEventType()))
         .append(", ").append(Arrays.toString(x)).append("/").append(Arrays.toString(y))
         .append(", button ").append(button).append(", count ")
-        .append(clickCount).append(", rotation [").append(rotationXYZ[0]).append(", ").append(rotationXYZ[1]).append(", ").append(rotationXYZ[2]).append("] * ").append(rotationScale);
+        .append(clickCount);
+        if( 1 < coalescedCount ) {
+            sb.append(", coalesced ").append(coalescedCount);
+        }
+        sb.append(", rotation [").append(rotationXYZ[0]).append(", ").append(rotationXYZ[1]).append(", ").append(rotationXYZ[2]).append("] * ").append(rotationScale);
         if(pointerID.length>0) {
             sb.append(", pointer<").append(pointerID.length).append(">[");
             for(int i=0; i<pointerID.length; i++) {
@@ -578,6 +640,10 @@ public class MouseEvent extends InputEvent
     /** Rotation scale */
     private final float rotationScale;
     private final float maxPressure;
+    /** Number of coalesced events, usually 1 */
+    private final int coalescedCount;
+    /** Coalesced events if recorded, otherwise null */
+    private final MouseEvent[] coalesced;
 
     private static final float[] constMousePressure0 = new float[]{0f};
     private static final float[] constMousePressure1 = new float[]{1f};
@@ -815,6 +815,16 @@ public class GLWindow extends GLAutoDrawableBase implements GLAutoDrawable, Wind
         window.enqueueEvent(wait, event);
     }
 
+    @Override
+    public final void setEventCoalescing(final int mode) {
+        window.setEventCoalescing(mode);
+    }
+
+    @Override
+    public final int getEventCoalescing() {
+        return window.getEventCoalescing();
+    }
+
     @Override
     public final void runOnEDTIfAvail(final boolean wait, final Runnable task) {
         window.runOnEDTIfAvail(wait, task);
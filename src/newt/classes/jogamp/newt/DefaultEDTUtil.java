@@ -35,9 +35,13 @@
  * facility.
  */
 
+
 package jogamp.newt;
 
-import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
 
 import com.jogamp.nativewindow.NativeWindowException;
 
@@ -46,10 +50,20 @@ import jogamp.common.util.locks.LockDebugUtil;
 import com.jogamp.common.ExceptionUtils;
 import com.jogamp.common.util.InterruptSource;
 import com.jogamp.common.util.InterruptedRuntimeException;
-import com.jogamp.common.util.RunnableTask;
 import com.jogamp.common.util.locks.Lock;
 import com.jogamp.newt.util.EDTUtil;
 
+/**
+ * Default NEWT EDT implementation, a dedicated thread dispatching native messages and executing one-shot tasks.
+ * <p>
+ * Tasks are enqueued w/o locking into an intrusive lock-free queue, the EDT is woken up via {@link LockSupport#unpark(Thread)}
+ * if parked and waiting callers are handed the result the same way, i.e. no monitor is involved.
+ * Task objects are recycled.
+ * </p>
+ * <p>
+ * All tasks pending at wake-up are executed in one batch, native messages are dispatched in between batches.
+ * </p>
+ */
 public class DefaultEDTUtil implements EDTUtil {
     public static final boolean DEBUG = Debug.debug("EDT");
 
@@ -58,13 +72,16 @@ public class DefaultEDTUtil implements EDTUtil {
     /** Used to provoke an exception on the EDT while waiting / blocking. Merely exists to test code.*/
     private static final Object TASK_ATTACHMENT_TEST_ERROR = new Object();
 
+    private static final int TASK_POOL_SIZE = 16;
+
     private final Object edtLock = new Object(); // locking the EDT start/stop state
     private /* final */ ThreadGroup threadGroup;
     private final String name;
     private final Runnable dispatchMessages;
-    private NEDT edt = null;
+    private volatile NEDT edt = null;
     private int start_iter=0;
     private static long pollPeriod = EDTUtil.defaultEDTPollPeriod;
+    private final AtomicReferenceArray<EDTTask> taskPool = new AtomicReferenceArray<EDTTask>(TASK_POOL_SIZE);
 
     public DefaultEDTUtil(final ThreadGroup tg, final String name, final Runnable dispatchMessages) {
         this.threadGroup = tg;
@@ -91,8 +108,8 @@ public class DefaultEDTUtil implements EDTUtil {
                 throw new IllegalStateException("EDT still running and not subject to stop. Curr "+Thread.currentThread().getName()+", EDT "+edt.getName()+", isRunning "+edt.isRunning+", shouldStop "+edt.shouldStop);
             }
             if(DEBUG) {
-                if(edt.tasks.size()>0) {
-                    System.err.println(Thread.currentThread()+": Default-EDT reset, remaining tasks: "+edt.tasks.size()+" - "+edt);
+                if(edt.pending.get()>0) {
+                    System.err.println(Thread.currentThread()+": Default-EDT reset, remaining tasks: "+edt.pending.get()+" - "+edt);
                 }
                 System.err.println(Thread.currentThread()+": Default-EDT reset - edt: "+edt);
             }
@@ -113,7 +130,7 @@ public class DefaultEDTUtil implements EDTUtil {
 
     private final void startImpl() {
         if(edt.isAlive()) {
-            throw new RuntimeException("Default-EDT Thread.isAlive(): true, isRunning: "+edt.isRunning+", shouldStop "+edt.shouldStop+", edt: "+edt+", tasks: "+edt.tasks.size());
+            throw new RuntimeException("Default-EDT Thread.isAlive(): true, isRunning: "+edt.isRunning+", shouldStop "+edt.shouldStop+", edt: "+edt+", tasks: "+edt.pending.get());
         }
         start_iter++;
         edt.setName(name+start_iter);
@@ -170,114 +187,125 @@ public class DefaultEDTUtil implements EDTUtil {
         public void run() { }
     };
 
-    private final boolean invokeImpl(boolean wait, Runnable task, final boolean stop, final boolean provokeError) {
-        final RunnableTask rTask;
-        final Object rTaskLock = new Object();
-        synchronized(rTaskLock) { // lock the optional task execution
-            synchronized(edtLock) { // lock the EDT status
-                if( edt.shouldStop ) {
-                    // drop task ..
-                    System.err.println(Thread.currentThread()+": Warning: Default-EDT about (1) to stop, won't enqueue new task: "+edt);
+    private final boolean invokeImpl(final boolean wait, Runnable task, final boolean stop, final boolean provokeError) {
+        final NEDT _edt = edt;
+        if( _edt.shouldStop ) {
+            // drop task ..
+            System.err.println(Thread.currentThread()+": Warning: Default-EDT about (1) to stop, won't enqueue new task: "+_edt);
+            if(DEBUG) {
+                ExceptionUtils.dumpStack(System.err);
+            }
+            return false;
+        }
+        if( _edt == Thread.currentThread() ) {
+            if(null != task) {
+                task.run();
+            }
+            // running in same thread (EDT) -> no wait
+            if( stop ) {
+                _edt.shouldStop = true;
+                if( _edt.pending.get()>0 ) {
+                    System.err.println(Thread.currentThread()+": Warning: Default-EDT about (2) to stop, task executed. Remaining tasks: "+_edt.pending.get()+" - "+_edt);
                     if(DEBUG) {
                         ExceptionUtils.dumpStack(System.err);
                     }
-                    return false;
                 }
-                if( isCurrentThreadEDT() ) {
-                    if(null != task) {
-                        task.run();
-                    }
-                    wait = false; // running in same thread (EDT) -> no wait
-                    rTask = null;
+            }
+        } else {
+            if( !_edt.isRunning ) {
+                if( null != task ) {
                     if( stop ) {
-                        edt.shouldStop = true;
-                        if( edt.tasks.size()>0 ) {
-                            System.err.println(Thread.currentThread()+": Warning: Default-EDT about (2) to stop, task executed. Remaining tasks: "+edt.tasks.size()+" - "+edt);
-                            if(DEBUG) {
-                                ExceptionUtils.dumpStack(System.err);
-                            }
-                        }
-                    }
-                } else {
-                    if( !edt.isRunning ) {
-                        if( null != task ) {
-                            if( stop ) {
-                                System.err.println(Thread.currentThread()+": Warning: Default-EDT is about (3) to stop and stopped already, dropping task. Remaining tasks: "+edt.tasks.size()+" - "+edt);
-                            } else {
-                                System.err.println(Thread.currentThread()+": Warning: Default-EDT is not running, dropping task. NEDT "+edt);
-                            }
-                            if(DEBUG) {
-                                ExceptionUtils.dumpStack(System.err);
-                            }
-                        }
-                        return false;
-                    } else if( stop && null == task ) {
-                        task = nullTask; // ensures execution triggering stop
-                    }
-
-                    if(null != task) {
-                        synchronized(edt.tasks) {
-                            rTask = new RunnableTask(task,
-                                                     wait ? rTaskLock : null,
-                                                     true /* always catch and report Exceptions, don't disturb EDT */,
-                                                     wait ? null : System.err);
-                            if(stop) {
-                                rTask.setAttachment(TASK_ATTACHMENT_STOP); // mark final task, will imply shouldStop:=true
-                            } else if(provokeError) {
-                                rTask.setAttachment(TASK_ATTACHMENT_TEST_ERROR);
-                            }
-                            // append task ..
-                            edt.tasks.add(rTask);
-                            edt.tasks.notifyAll();
-                        }
+                        System.err.println(Thread.currentThread()+": Warning: Default-EDT is about (3) to stop and stopped already, dropping task. Remaining tasks: "+_edt.pending.get()+" - "+_edt);
                     } else {
-                        wait = false;
-                        rTask = null;
+                        System.err.println(Thread.currentThread()+": Warning: Default-EDT is not running, dropping task. NEDT "+_edt);
+                    }
+                    if(DEBUG) {
+                        ExceptionUtils.dumpStack(System.err);
                     }
                 }
+                return false;
+            } else if( stop && null == task ) {
+                task = nullTask; // ensures execution triggering stop
             }
-            if( wait ) {
-                try {
-                    while( rTask.isInQueue() ) {
-                        rTaskLock.wait(); // free lock, allow execution of rTask
-                    }
-                } catch (final InterruptedException ie) {
-                    throw new InterruptedRuntimeException(ie);
+
+            if(null != task) {
+                final EDTTask rTask = acquireTask();
+                rTask.runnable = task;
+                if(stop) {
+                    rTask.attachment = TASK_ATTACHMENT_STOP; // mark final task, will imply shouldStop:=true
+                } else if(provokeError) {
+                    rTask.attachment = TASK_ATTACHMENT_TEST_ERROR;
                 }
-                final Throwable throwable = rTask.getThrowable();
-                if(null!=throwable) {
-                    if(throwable instanceof NativeWindowException) {
-                        throw (NativeWindowException)throwable;
+                rTask.waiter = wait ? Thread.currentThread() : null;
+                _edt.enqueue(rTask);
+                if( wait ) {
+                    while( !rTask.done ) {
+                        LockSupport.park(rTask); // task is handed back via unpark
+                        if( Thread.interrupted() ) {
+                            // task may still be executed, hence not recycled
+                            throw new InterruptedRuntimeException(new InterruptedException("Interrupted while waiting for "+rTask));
+                        }
+                    }
+                    final Throwable throwable = rTask.throwable;
+                    releaseTask(rTask);
+                    if(null!=throwable) {
+                        if(throwable instanceof NativeWindowException) {
+                            throw (NativeWindowException)throwable;
+                        }
+                        throw new RuntimeException(throwable);
                     }
-                    throw new RuntimeException(throwable);
                 }
             }
-            if(DEBUG) {
-                if( stop) {
-                    System.err.println(Thread.currentThread()+": Default-EDT signal STOP X edt: "+edt);
+        }
+        if(DEBUG) {
+            if( stop) {
+                System.err.println(Thread.currentThread()+": Default-EDT signal STOP X edt: "+_edt);
+            }
+        }
+        return true;
+    }
+
+    private final EDTTask acquireTask() {
+        for(int i=0; i<TASK_POOL_SIZE; i++) {
+            if( null != taskPool.get(i) ) {
+                final EDTTask t = taskPool.getAndSet(i, null);
+                if( null != t ) {
+                    return t;
                 }
             }
-            return true;
+        }
+        return new EDTTask();
+    }
+
+    private final void releaseTask(final EDTTask t) {
+        t.runnable = null;
+        t.attachment = null;
+        t.waiter = null;
+        t.throwable = null;
+        t.done = false;
+        for(int i=0; i<TASK_POOL_SIZE; i++) {
+            if( null == taskPool.get(i) && taskPool.compareAndSet(i, null, t) ) {
+                return;
+            }
         }
     }
 
     @Override
     final public boolean waitUntilIdle() {
-        final NEDT _edt;
-        synchronized(edtLock) {
-            _edt = edt;
-        }
+        final NEDT _edt = edt;
         if(!_edt.isRunning || _edt == Thread.currentThread()) {
             return false;
         }
-        synchronized(_edt.tasks) {
+        synchronized(_edt.idleLock) {
+            _edt.idleWaiter++;
             try {
-                while(_edt.isRunning && _edt.tasks.size()>0) {
-                    _edt.tasks.notifyAll();
-                    _edt.tasks.wait();
+                while(_edt.isRunning && _edt.pending.get()>0) {
+                    _edt.idleLock.wait(Math.max(1, pollPeriod));
                 }
             } catch (final InterruptedException e) {
                 throw new InterruptedRuntimeException(e);
+            } finally {
+                _edt.idleWaiter--;
             }
             return true;
         }
@@ -301,10 +329,110 @@ public class DefaultEDTUtil implements EDTUtil {
         }
     }
 
+    /**
+     * One-shot task, linked into the {@link TaskQueue} and recycled after execution.
+     * <p>
+     * A task w/o waiter is recycled by the EDT, otherwise by the waiting caller.
+     * </p>
+     */
+    static final class EDTTask {
+        /** Link of the {@link TaskQueue} */
+        volatile EDTTask next;
+        Runnable runnable;
+        Object attachment;
+        /** Waiting caller or <code>null</code> */
+        volatile Thread waiter;
+        volatile Throwable throwable;
+        volatile boolean done;
+
+        /** Executes the runnable, caught exceptions are kept. */
+        final void run() {
+            try {
+                runnable.run();
+            } catch (final Throwable t) {
+                throwable = t;
+            }
+        }
+
+        /** Marks this task done and wakes up the waiting caller, if any. */
+        final void finish(final Throwable t) {
+            if( null != t ) {
+                throwable = t;
+            }
+            final Thread w = waiter;
+            done = true;
+            if( null != w ) {
+                LockSupport.unpark(w);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "EDTTask[runnable "+runnable+", waiter "+waiter+", done "+done+", throwable "+throwable+"]";
+        }
+    }
+
+    /**
+     * Intrusive lock-free multiple producer, single consumer queue of {@link EDTTask}s.
+     * <p>
+     * Producers only swap the tail, only the EDT polls, hence no allocation and no locking.
+     * </p>
+     */
+    static final class TaskQueue {
+        private final EDTTask stub = new EDTTask();
+        private final AtomicReference<EDTTask> tail = new AtomicReference<EDTTask>(stub);
+        private EDTTask head = stub; // consumer only
+
+        final void push(final EDTTask t) {
+            t.next = null;
+            final EDTTask prev = tail.getAndSet(t);
+            prev.next = t; // link, may be delayed
+        }
+
+        /**
+         * Returns the oldest task or <code>null</code> if empty or its producer is not done linking it yet.
+         * Only called by the consumer.
+         */
+        final EDTTask poll() {
+            EDTTask h = head;
+            EDTTask n = h.next;
+            if( h == stub ) {
+                if( null == n ) {
+                    return null;
+                }
+                head = n;
+                h = n;
+                n = n.next;
+            }
+            if( null != n ) {
+                head = n;
+                return h;
+            }
+            if( h != tail.get() ) {
+                return null; // producer in progress
+            }
+            push(stub);
+            n = h.next;
+            if( null != n ) {
+                head = n;
+                return h;
+            }
+            return null;
+        }
+    }
+
     class NEDT extends InterruptSource.Thread {
         volatile boolean shouldStop = false;
         volatile boolean isRunning = false;
-        final ArrayList<RunnableTask> tasks = new ArrayList<RunnableTask>(); // one shot tasks
+        /** Set on exit while flushing, enqueueing callers flush their task themselves. */
+        volatile boolean closed = false;
+        /** True while parked waiting for tasks, i.e. to be woken up. */
+        volatile boolean parked = false;
+        final TaskQueue tasks = new TaskQueue(); // one shot tasks
+        /** Number of enqueued tasks not yet executed. */
+        final AtomicInteger pending = new AtomicInteger(0);
+        final Object idleLock = new Object();
+        volatile int idleWaiter = 0;
 
         public NEDT(final ThreadGroup tg, final String name) {
             super(tg, null, name);
@@ -320,6 +448,53 @@ public class DefaultEDTUtil implements EDTUtil {
             super.start();
         }
 
+        final void enqueue(final EDTTask task) {
+            pending.incrementAndGet();
+            tasks.push(task);
+            if( parked ) {
+                LockSupport.unpark(this);
+            }
+            if( closed ) {
+                // EDT finished meanwhile and might have missed this task
+                synchronized(edtLock) {
+                    flushTasks(null, getName()+": Default-EDT finished");
+                }
+            }
+        }
+
+        /** Flushes all pending tasks w/ an exception, consumer only, i.e. EDT or holding edtLock after EDT is closed. */
+        private final void flushTasks(final RuntimeException error, final String msg) {
+            int i = 0;
+            while( pending.get() > 0 ) {
+                final EDTTask rt = tasks.poll();
+                if( null == rt ) {
+                    java.lang.Thread.yield(); // producer in progress
+                    continue;
+                }
+                // notify all waiter
+                final String msg2 = msg+", task #"+i;
+                flushTask(rt, null != error ? new Throwable(msg2, error) : new Throwable(msg2));
+                i++;
+            }
+        }
+
+        private final void flushTask(final EDTTask rt, final Throwable t) {
+            pending.decrementAndGet();
+            if( null != rt.waiter ) {
+                rt.finish(t);
+            } else {
+                releaseTask(rt);
+            }
+        }
+
+        private final void notifyIdle() {
+            if( 0 < idleWaiter && 0 == pending.get() ) {
+                synchronized(idleLock) {
+                    idleLock.notifyAll();
+                }
+            }
+        }
+
         private final void validateNoRecursiveLocksHold() {
             if(LockDebugUtil.getRecursiveLockTrace().size()>0) {
                 LockDebugUtil.dumpRecursiveLockTrace(System.err);
@@ -340,47 +515,61 @@ public class DefaultEDTUtil implements EDTUtil {
                 validateNoRecursiveLocksHold();
             }
             RuntimeException error = null;
+            EDTTask errorTask = null;
             try {
                 do {
                     // event dispatch
                     if(!shouldStop) {
                         dispatchMessages.run();
                     }
-                    // wait and work on tasks
-                    RunnableTask task = null;
-                    synchronized(tasks) {
-                        // wait for tasks
-                        if( !shouldStop && tasks.size()==0 ) {
-                            try {
-                                tasks.wait(pollPeriod);
-                            } catch (final InterruptedException e) {
-                                throw new InterruptedRuntimeException(e);
+                    // wait for tasks
+                    int n = pending.get();
+                    if( !shouldStop && 0 == n ) {
+                        parked = true;
+                        if( 0 == pending.get() ) { // re-check after announcing park
+                            final long period = pollPeriod;
+                            if( 0 < period ) {
+                                LockSupport.parkNanos(this, period * 1000000L);
+                            } else {
+                                LockSupport.park(this);
                             }
                         }
-                        // execute one task, if available
-                        if(tasks.size()>0) {
-                            task = tasks.remove(0);
-                            tasks.notifyAll();
-                            final Object attachment = task.getAttachment();
-                            if( TASK_ATTACHMENT_STOP == attachment ) {
-                                shouldStop = true;
-                            } else if( TASK_ATTACHMENT_TEST_ERROR == attachment ) {
-                                tasks.add(0, task);
-                                task = null;
-                                throw new RuntimeException("TASK_ATTACHMENT_TEST_ERROR");
-                            }
+                        parked = false;
+                        if( java.lang.Thread.interrupted() ) {
+                            throw new InterruptedRuntimeException(new InterruptedException("Interrupted while waiting for tasks"));
                         }
+                        n = pending.get();
                     }
-                    if(null!=task) {
+                    // execute all tasks enqueued so far
+                    for(; 0 < n && !shouldStop; n--) {
+                        final EDTTask task = tasks.poll();
+                        if( null == task ) {
+                            java.lang.Thread.yield(); // producer in progress, let it link the task
+                            break;
+                        }
+                        final Object attachment = task.attachment;
+                        if( TASK_ATTACHMENT_STOP == attachment ) {
+                            shouldStop = true;
+                        } else if( TASK_ATTACHMENT_TEST_ERROR == attachment ) {
+                            errorTask = task;
+                            throw new RuntimeException("TASK_ATTACHMENT_TEST_ERROR");
+                        }
                         task.run();
                         if(Lock.DEBUG) {
                             validateNoRecursiveLocksHold();
                         }
-                        if(!task.hasWaiter() && null != task.getThrowable()) {
-                            // at least dump stack-trace in case nobody waits for result
-                            System.err.println("DefaultEDT.run(): Caught exception occured on thread "+java.lang.Thread.currentThread().getName()+": "+task.toString());
-                            task.getThrowable().printStackTrace();
+                        pending.decrementAndGet();
+                        if( null != task.waiter ) {
+                            task.finish(null);
+                        } else {
+                            if( null != task.throwable ) {
+                                // at least dump stack-trace in case nobody waits for result
+                                System.err.println("DefaultEDT.run(): Caught exception occured on thread "+java.lang.Thread.currentThread().getName()+": "+task.toString());
+                                task.throwable.printStackTrace();
+                            }
+                            releaseTask(task);
                         }
+                        notifyIdle();
                     }
                 } while(!shouldStop) ;
             } catch (final Throwable t) {
@@ -392,25 +581,23 @@ public class DefaultEDTUtil implements EDTUtil {
                     error = new RuntimeException("Within Default-EDT", t);
                 }
             } finally {
-                final String msg = getName()+": Default-EDT finished w/ "+tasks.size()+" left";
+                final String msg = getName()+": Default-EDT finished w/ "+pending.get()+" left";
                 if(DEBUG) {
                     System.err.println(msg+", "+error);
                 }
                 synchronized(edtLock) {
-                    int i = 0;
-                    while( tasks.size() > 0 ) {
-                        // notify all waiter
-                        final String msg2 = msg+", task #"+i;
-                        final Throwable t = null != error ? new Throwable(msg2, error) : new Throwable(msg2);
-                        final RunnableTask rt = tasks.remove(0);
-                        if( null != rt ) {
-                            rt.flush(t);
-                            i++;
-                        }
+                    closed = true;
+                    if( null != errorTask ) {
+                        final String msg2 = msg+", task #0";
+                        flushTask(errorTask, null != error ? new Throwable(msg2, error) : new Throwable(msg2));
                     }
+                    flushTasks(error, msg);
                     isRunning = false;
                     edtLock.notifyAll();
                 }
+                synchronized(idleLock) {
+                    idleLock.notifyAll();
+                }
                 if(DEBUG) {
                     System.err.println(msg+" EXIT, exception: "+error);
                 }
@@ -421,4 +608,3 @@ public class DefaultEDTUtil implements EDTUtil {
         } // run()
     } // EventDispatchThread
 }
-
@@ -44,6 +44,7 @@ import com.jogamp.newt.NewtFactory;
 import com.jogamp.newt.event.NEWTEvent;
 import com.jogamp.newt.event.NEWTEventConsumer;
 
+import jogamp.newt.event.NEWTEventQueue;
 import jogamp.newt.event.NEWTEventTask;
 
 import com.jogamp.newt.util.EDTUtil;
@@ -662,9 +663,8 @@ public abstract class DisplayImpl extends Display {
     /** Dispatch native Toolkit messageges */
     protected abstract void dispatchMessagesNative();
 
-    private final Object eventsLock = new Object();
-    private ArrayList<NEWTEventTask> events = new ArrayList<NEWTEventTask>();
-    private volatile boolean haveEvents = false;
+    /** Lock-free event queue, holding {@link NEWTEvent}s or {@link NEWTEventTask}s for waiting callers. */
+    private final NEWTEventQueue events = new NEWTEventQueue();
 
     final protected Runnable dispatchMessagesRunnable = new Runnable() {
         @Override
@@ -727,25 +727,20 @@ public abstract class DisplayImpl extends Display {
             return;
         }
 
-        ArrayList<NEWTEventTask> _events = null;
-
-        if(haveEvents) { // volatile: ok
-            synchronized(eventsLock) {
-                if(haveEvents) {
-                    // swap events list to free ASAP
-                    _events = events;
-                    events = new ArrayList<NEWTEventTask>();
-                    haveEvents = false;
-                }
-                eventsLock.notifyAll();
+        // Only dispatch events enqueued so far,
+        // events re-enqueued by dispatchMessage(..) are handled next time.
+        for(int n = events.size(); 0 < n; n--) {
+            final Object e = events.poll();
+            if( null == e ) {
+                break;
             }
-            if( null != _events ) {
-                for (int i=0; i < _events.size(); i++) {
-                    final NEWTEventTask e = _events.get(i);
-                    if( !e.isDispatched() ) {
-                        dispatchMessage(e);
-                    }
+            if( e instanceof NEWTEventTask ) {
+                final NEWTEventTask eTask = (NEWTEventTask) e;
+                if( !eTask.isDispatched() ) {
+                    dispatchMessage(eTask);
                 }
+            } else {
+                dispatchMessage((NEWTEvent) e);
             }
         }
 
@@ -770,15 +765,17 @@ public abstract class DisplayImpl extends Display {
             return;
         }
 
+        if( !wait ) {
+            // no wrapper and no lock required
+            events.put(e);
+            return;
+        }
+
         final Object lock = new Object();
-        final NEWTEventTask eTask = new NEWTEventTask(e, wait?lock:null);
+        final NEWTEventTask eTask = new NEWTEventTask(e, lock);
         synchronized(lock) {
-            synchronized(eventsLock) {
-                events.add(eTask);
-                haveEvents = true;
-                eventsLock.notifyAll();
-            }
-            while( wait && !eTask.isDispatched() ) {
+            events.put(eTask);
+            while( !eTask.isDispatched() ) {
                 try {
                     lock.wait();
                 } catch (final InterruptedException ie) {
@@ -62,6 +62,7 @@ import com.jogamp.nativewindow.util.RectangleImmutable;
 
 import jogamp.nativewindow.SurfaceScaleUtils;
 import jogamp.nativewindow.SurfaceUpdatedHelper;
+import jogamp.newt.event.NEWTEventCoalescer;
 
 import com.jogamp.common.ExceptionUtils;
 import com.jogamp.common.util.ArrayHashSet;
@@ -147,6 +148,8 @@ public abstract class WindowImpl implements Window, NEWTEventConsumer
     static final long QUEUED_EVENT_TO = 1200; // ms
 
     private static final PointerType[] constMousePointerTypes = new PointerType[] { PointerType.Mouse };
+    private static final short[] constMousePointerIDs = new short[] { (short)0 };
+    private static final float[] constMousePressure0 = new float[] { 0f };
 
     //
     // Volatile: Multithreaded Mutable Access
@@ -3286,6 +3289,7 @@ public abstract class WindowImpl implements Window, NEWTEventConsumer
         }
     }
     private final MonitorModeListenerImpl monitorModeListenerImpl = new MonitorModeListenerImpl();
+    private final NEWTEventCoalescer eventCoalescer = new NEWTEventCoalescer();
 
 
     //----------------------------------------------------------------------
@@ -3328,12 +3332,49 @@ public abstract class WindowImpl implements Window, NEWTEventConsumer
     @Override
     public final void enqueueEvent(final boolean wait, final com.jogamp.newt.event.NEWTEvent event) {
         if(isNativeValid()) {
-            ((DisplayImpl)screen.getDisplay()).enqueueEvent(wait, event);
+            final DisplayImpl display = (DisplayImpl)screen.getDisplay();
+            if( eventCoalescer.isEnabled() ) {
+                synchronized(eventCoalescer) {
+                    if( eventCoalescer.enqueue(wait, event) ) {
+                        return; // merged into queued event
+                    }
+                    if( !wait ) {
+                        // keep queue order of coalescing runs
+                        display.enqueueEvent(false, event);
+                        return;
+                    }
+                }
+            }
+            display.enqueueEvent(wait, event);
         }
     }
 
     @Override
-    public final boolean consumeEvent(final NEWTEvent e) {
+    public final void setEventCoalescing(final int mode) {
+        eventCoalescer.setMode(mode);
+    }
+
+    @Override
+    public final int getEventCoalescing() {
+        return eventCoalescer.getMode();
+    }
+
+    @Override
+    public final boolean consumeEvent(final NEWTEvent event) {
+        final NEWTEvent e = eventCoalescer.dequeued(event);
+        boolean consumed = true;
+        try {
+            consumed = consumeDequeuedEvent(e);
+        } finally {
+            if( consumed ) {
+                // a head not consumed is enqueued again and replaced by its merged event again
+                eventCoalescer.consumed(event);
+            }
+        }
+        return consumed;
+    }
+
+    private final boolean consumeDequeuedEvent(final NEWTEvent e) {
         switch(e.getEventType()) {
             // special repaint treatment
             case WindowEvent.EVENT_WINDOW_REPAINT:
@@ -3424,9 +3465,17 @@ public abstract class WindowImpl implements Window, NEWTEventConsumer
         if( 0 > button || button > MouseEvent.BUTTON_COUNT ) {
             throw new NativeWindowException("Invalid mouse button number" + button);
         }
+        // Pointer type and ID are never modified w/ actionIdx 0, neither is the pressure of
+        // other than PRESSED and DRAGGED events: share them for high rate move events.
+        final float[] pressure;
+        if( MouseEvent.EVENT_MOUSE_PRESSED == eventType || MouseEvent.EVENT_MOUSE_DRAGGED == eventType ) {
+            pressure = new float[] { 0f };
+        } else {
+            pressure = constMousePressure0;
+        }
         doPointerEvent(enqueue, wait, constMousePointerTypes, eventType, modifiers,
-                       0 /*actionIdx*/, new short[] { (short)0 }, button,
-                       new int[]{x}, new int[]{y}, new float[]{0f} /*pressure*/,
+                       0 /*actionIdx*/, constMousePointerIDs, button,
+                       new int[]{x}, new int[]{y}, pressure,
                        1f /*maxPressure*/, rotationXYZ, rotationScale);
     }
 
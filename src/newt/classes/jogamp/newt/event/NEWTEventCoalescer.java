@@ -0,0 +1,283 @@
+/**
+ * Copyright 2026 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package jogamp.newt.event;
+
+import java.util.ArrayList;
+
+import com.jogamp.newt.Window;
+import com.jogamp.newt.event.MouseEvent;
+import com.jogamp.newt.event.NEWTEvent;
+import com.jogamp.newt.event.WindowEvent;
+
+/**
+ * Per window coalescing of consecutive queued high frequency events,
+ * see {@link Window#setEventCoalescing(int)}.
+ * <p>
+ * A coalescing run starts with a coalescable event being enqueued, its <i>head</i>.
+ * Following events of the same kind are merged into the run instead of being enqueued,
+ * until any other event of the window is enqueued or the head has been dequeued.
+ * The dequeued head is replaced by the merged event, i.e. the latest one
+ * w/ the summed up {@link MouseEvent#getRotation() rotation}.
+ * </p>
+ * <p>
+ * The run is released after the merged event has been {@link #consumed(NEWTEvent) consumed}.
+ * A head not consumed and enqueued again, e.g. a resize while the window is locked,
+ * is replaced by the merged event again when dequeued next time.
+ * </p>
+ * <p>
+ * Since the EDT may lag behind, up to {@link #MAX_RUNS} runs may be pending in the queue,
+ * only the last one accepts merges. If exceeded, events are enqueued as is.
+ * </p>
+ * <p>
+ * Enqueueing is performed while holding this instance's monitor,
+ * i.e. {@link #enqueue(boolean, NEWTEvent)} and the actual enqueue operation
+ * must be called within one <code>synchronized</code> block on this instance.
+ * </p>
+ */
+public class NEWTEventCoalescer {
+    /** Maximum number of pending coalescing runs, {@value}. */
+    public static final int MAX_RUNS = 4;
+
+    private static class Run {
+        NEWTEvent head;
+        NEWTEvent latest;
+        int count;
+        final float[] rotation = new float[3];
+        final ArrayList<MouseEvent> history = new ArrayList<MouseEvent>();
+
+        void start(final NEWTEvent e, final boolean recordHistory) {
+            head = e;
+            latest = e;
+            count = 1;
+            rotation[0] = 0f; rotation[1] = 0f; rotation[2] = 0f;
+            history.clear();
+            add(e, recordHistory);
+        }
+        void merge(final NEWTEvent e, final boolean recordHistory) {
+            latest = e;
+            count++;
+            add(e, recordHistory);
+        }
+        private void add(final NEWTEvent e, final boolean recordHistory) {
+            if( e instanceof MouseEvent ) {
+                final MouseEvent me = (MouseEvent)e;
+                final float[] r = me.getRotation();
+                if( null != r ) {
+                    rotation[0] += r[0]; rotation[1] += r[1]; rotation[2] += r[2];
+                }
+                if( recordHistory ) {
+                    history.add(me);
+                }
+            }
+        }
+        NEWTEvent getMerged() {
+            final NEWTEvent res;
+            if( 1 == count ) {
+                res = head;
+            } else if( latest instanceof MouseEvent ) {
+                final MouseEvent[] coalesced;
+                if( history.size() == count ) {
+                    coalesced = history.toArray(new MouseEvent[count]);
+                } else {
+                    coalesced = null;
+                }
+                res = ((MouseEvent)latest).createCoalescedVariant(new float[] { rotation[0], rotation[1], rotation[2] },
+                                                                  count, coalesced);
+            } else {
+                res = latest; // plain WindowEvent w/o payload
+            }
+            return res;
+        }
+        void release() {
+            head = null;
+            latest = null;
+            history.clear();
+        }
+    }
+
+    private volatile int mode = Window.COALESCE_NONE;
+    private final Run[] runs = new Run[MAX_RUNS];
+    /** Number of pending runs, oldest first in {@link #runs}. */
+    private volatile int runCount = 0;
+    /** True if the last pending run accepts merges. */
+    private boolean open = false;
+    private long coalescedTotal = 0;
+
+    public NEWTEventCoalescer() {
+        for(int i=0; i<MAX_RUNS; i++) {
+            runs[i] = new Run();
+        }
+    }
+
+    /**
+     * @param mode bitmask of {@link Window#COALESCE_POINTER}, {@link Window#COALESCE_WINDOW}
+     *             and {@link Window#COALESCE_HISTORY}, or {@link Window#COALESCE_NONE}
+     */
+    public final synchronized void setMode(final int mode) {
+        this.mode = mode;
+        open = false; // pending runs are still released when dequeued
+    }
+
+    public final int getMode() { return mode; }
+
+    /** Returns true if coalescing is enabled, i.e. {@link #enqueue(boolean, NEWTEvent)} shall be used. */
+    public final boolean isEnabled() { return Window.COALESCE_NONE != mode; }
+
+    /** Returns the number of events merged into queued ones so far. */
+    public final synchronized long getCoalescedTotal() { return coalescedTotal; }
+
+    /**
+     * Shall be called before enqueueing the given event, while holding this instance's monitor.
+     * @param wait true if the caller waits until the event has been dispatched, such event is never coalesced
+     * @param e the event to enqueue
+     * @return true if the event has been merged into a queued one, i.e. it must not be enqueued.
+     *         Otherwise the caller must enqueue the event.
+     */
+    public final boolean enqueue(final boolean wait, final NEWTEvent e) {
+        final int m = mode;
+        if( wait || !isCoalescable(m, e) ) {
+            open = false; // not consecutive anymore
+            return false;
+        }
+        final boolean recordHistory = 0 != ( m & Window.COALESCE_HISTORY );
+        if( open ) {
+            final Run r = runs[runCount-1];
+            if( canMerge(r.latest, e) ) {
+                r.merge(e, recordHistory);
+                coalescedTotal++;
+                return true;
+            }
+        }
+        if( runCount < MAX_RUNS ) {
+            runs[runCount].start(e, recordHistory);
+            runCount++;
+            open = true;
+        } else {
+            open = false;
+        }
+        return false;
+    }
+
+    /**
+     * Shall be called for each dequeued event before dispatching it.
+     * <p>
+     * The coalescing run of a head is kept until {@link #consumed(NEWTEvent)},
+     * but accepts no more merges.
+     * </p>
+     * @return the merged event to be dispatched instead, if the given one is the head of a coalescing run,
+     *         otherwise the given event.
+     */
+    public final NEWTEvent dequeued(final NEWTEvent e) {
+        if( 0 == runCount ) { // volatile: ok
+            return e;
+        }
+        synchronized(this) {
+            final int i = indexOf(e);
+            if( 0 <= i ) {
+                if( i == runCount-1 ) {
+                    open = false; // head is gone, following events start a new run
+                }
+                return runs[i].getMerged();
+            }
+        }
+        return e;
+    }
+
+    /**
+     * Shall be called after the dequeued event has been consumed,
+     * releasing its coalescing run if it is a head.
+     * Shall not be called for events enqueued again, i.e. not consumed.
+     * @param e the dequeued event as passed to {@link #dequeued(NEWTEvent)}
+     */
+    public final void consumed(final NEWTEvent e) {
+        if( 0 == runCount ) { // volatile: ok
+            return;
+        }
+        synchronized(this) {
+            final int i = indexOf(e);
+            if( 0 <= i ) {
+                final int n = runCount;
+                final Run r = runs[i];
+                r.release();
+                // keep runs in queue order, recycle the released one
+                for(int j=i; j<n-1; j++) {
+                    runs[j] = runs[j+1];
+                }
+                runs[n-1] = r;
+                runCount = n - 1;
+            }
+        }
+    }
+
+    private int indexOf(final NEWTEvent head) {
+        for(int i=0; i<runCount; i++) {
+            if( runs[i].head == head ) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isCoalescable(final int mode, final NEWTEvent e) {
+        switch( e.getEventType() ) {
+            case MouseEvent.EVENT_MOUSE_MOVED:
+            case MouseEvent.EVENT_MOUSE_DRAGGED:
+            case MouseEvent.EVENT_MOUSE_WHEEL_MOVED:
+                return 0 != ( mode & Window.COALESCE_POINTER ) && e instanceof MouseEvent;
+            case WindowEvent.EVENT_WINDOW_RESIZED:
+            case WindowEvent.EVENT_WINDOW_MOVED:
+                return 0 != ( mode & Window.COALESCE_WINDOW ) && e.getClass() == WindowEvent.class;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean canMerge(final NEWTEvent latest, final NEWTEvent e) {
+        if( latest.getEventType() != e.getEventType() || latest.getSource() != e.getSource() ) {
+            return false;
+        }
+        if( e instanceof MouseEvent ) {
+            final MouseEvent l = (MouseEvent)latest;
+            final MouseEvent m = (MouseEvent)e;
+            if( l.getModifiers() != m.getModifiers() || l.getButton() != m.getButton() ||
+                l.getRotationScale() != m.getRotationScale() ) {
+                return false;
+            }
+            final int pCount = l.getPointerCount();
+            if( pCount != m.getPointerCount() ) {
+                return false;
+            }
+            for(int i=0; i<pCount; i++) {
+                if( l.getPointerId(i) != m.getPointerId(i) || l.getPointerType(i) != m.getPointerType(i) ) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,213 @@
+/**
+ * Copyright 2026 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package jogamp.newt.event;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.jogamp.newt.event.NEWTEvent;
+
+/**
+ * Bounded lock-free NEWTEvent queue, used by the Display to pass events
+ * from native event sources and other producer threads to the EDT.
+ * <p>
+ * Elements are either a plain {@link NEWTEvent}, if the caller does not wait,
+ * or a {@link NEWTEventTask}, if the caller waits for its dispatching.
+ * Hence a non-waiting producer enqueues an event without any allocation or locking.
+ * </p>
+ * <p>
+ * The ring buffer uses one sequence number per slot, i.e. producers and consumer
+ * only contend on the head and tail counter with a single CAS each.
+ * Multiple consumers are tolerated, even though the EDT is usually the only one.
+ * </p>
+ * <p>
+ * If the ring buffer is full, elements are appended to a synchronized overflow list.
+ * While the latter is not drained, all producers append to it,
+ * hence the order of elements enqueued by one thread is always preserved.
+ * </p>
+ */
+public class NEWTEventQueue {
+    /** Default capacity of the lock-free ring buffer, {@value}. */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final int mask;
+    private final AtomicReferenceArray<Object> slots;
+    private final AtomicLongArray sequence;
+    private final AtomicLong head = new AtomicLong(0);
+    private final AtomicLong tail = new AtomicLong(0);
+
+    private final Object overflowLock = new Object();
+    private final ArrayList<Object> overflow = new ArrayList<Object>();
+    private int overflowPos = 0;
+    private volatile int overflowCount = 0;
+
+    /** Creates a queue w/ {@link #DEFAULT_CAPACITY}. */
+    public NEWTEventQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity ring buffer capacity, rounded up to the next power of two
+     */
+    public NEWTEventQueue(final int capacity) {
+        if( 0 >= capacity ) {
+            throw new IllegalArgumentException("Invalid capacity "+capacity);
+        }
+        int cap = 1;
+        while( cap < capacity ) {
+            cap <<= 1;
+        }
+        mask = cap - 1;
+        slots = new AtomicReferenceArray<Object>(cap);
+        sequence = new AtomicLongArray(cap);
+        for(int i=0; i<cap; i++) {
+            sequence.set(i, i);
+        }
+    }
+
+    /** Returns the capacity of the lock-free ring buffer. */
+    public final int capacity() { return mask + 1; }
+
+    /**
+     * Returns the number of enqueued elements, including the overflow list.
+     * <p>
+     * Value is a snapshot only while producers are active.
+     * </p>
+     */
+    public final int size() {
+        final long t = tail.get();
+        final long h = head.get();
+        return (int) Math.max(0, t - h) + overflowCount;
+    }
+
+    public final boolean isEmpty() { return 0 == size(); }
+
+    /** Returns the number of elements currently held in the overflow list. */
+    public final int getOverflowCount() { return overflowCount; }
+
+    /**
+     * Enqueues the given element, either a {@link NEWTEvent} or a {@link NEWTEventTask}.
+     * <p>
+     * Never blocks on the consumer: if the ring buffer is full,
+     * the element is appended to the overflow list.
+     * </p>
+     */
+    public final void put(final Object e) {
+        if( null == e ) {
+            throw new IllegalArgumentException("null element");
+        }
+        if( 0 == overflowCount && offer(e) ) {
+            return;
+        }
+        synchronized(overflowLock) {
+            overflow.add(e);
+            overflowCount = overflow.size() - overflowPos;
+        }
+    }
+
+    /**
+     * Dequeues the oldest element, ring buffer first, or returns <code>null</code> if empty.
+     */
+    public final Object poll() {
+        final Object e = pollRing();
+        if( null != e || 0 == overflowCount ) {
+            return e;
+        }
+        if( tail.get() != head.get() ) {
+            // ring buffer element still being published, overflow elements are younger
+            return null;
+        }
+        synchronized(overflowLock) {
+            if( overflowPos >= overflow.size() ) {
+                return null;
+            }
+            final Object o = overflow.get(overflowPos);
+            overflow.set(overflowPos++, null);
+            if( overflowPos >= overflow.size() ) {
+                // drained: re-enable the ring buffer for all producers
+                overflow.clear();
+                overflowPos = 0;
+            }
+            overflowCount = overflow.size() - overflowPos;
+            return o;
+        }
+    }
+
+    /** Drops all enqueued elements. */
+    public final void clear() {
+        while( null != poll() ) { }
+    }
+
+    private final boolean offer(final Object e) {
+        long pos = tail.get();
+        for(;;) {
+            final int idx = (int)pos & mask;
+            final long d = sequence.get(idx) - pos;
+            if( 0 == d ) {
+                if( tail.compareAndSet(pos, pos+1) ) {
+                    slots.lazySet(idx, e);
+                    sequence.lazySet(idx, pos+1); // publish, ordered after the slot store
+                    return true;
+                }
+                pos = tail.get();
+            } else if( 0 > d ) {
+                return false; // full
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    private final Object pollRing() {
+        long pos = head.get();
+        for(;;) {
+            final int idx = (int)pos & mask;
+            final long d = sequence.get(idx) - ( pos + 1 );
+            if( 0 == d ) {
+                if( head.compareAndSet(pos, pos+1) ) {
+                    final Object e = slots.get(idx);
+                    slots.lazySet(idx, null);
+                    sequence.lazySet(idx, pos + mask + 1); // release slot for the next lap
+                    return e;
+                }
+                pos = head.get();
+            } else if( 0 > d ) {
+                return null; // empty
+            } else {
+                pos = head.get();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "NEWTEventQueue[size "+size()+", capacity "+capacity()+", overflow "+overflowCount+"]";
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.graph;
+
+import java.io.IOException;
+
+import jogamp.graph.geom.plane.AffineTransform;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.FixMethodOrder;
+import org.junit.runners.MethodSorters;
+
+import com.jogamp.common.os.Platform;
+import com.jogamp.common.util.IOUtil;
+import com.jogamp.graph.curve.Region;
+import com.jogamp.graph.curve.opengl.GLGlyphPool;
+import com.jogamp.graph.curve.opengl.GLRegion;
+import com.jogamp.graph.curve.opengl.GLTextInstances;
+import com.jogamp.graph.curve.opengl.TextRegionUtil;
+import com.jogamp.graph.font.Font;
+import com.jogamp.graph.font.FontFactory;
+import com.jogamp.graph.geom.SVertex;
+
+/**
+ * Validates the CPU side of {@link GLGlyphPool} and {@link GLTextInstances},
+ * i.e. glyph sharing and instance generation, and benchmarks it against
+ * per string {@link GLRegion} tessellation. Requires no GPU.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestGLGlyphPool01NOUI {
+    static final float[] rgba = { 0.1f, 0.2f, 0.3f, 1.0f };
+
+    static Font getFont() throws IOException {
+        return FontFactory.get(IOUtil.getResource("fonts/freefont/FreeSans.ttf",
+                TestGLGlyphPool01NOUI.class.getClassLoader(), TestGLGlyphPool01NOUI.class).getInputStream(), true);
+    }
+
+    @Test
+    public void test01PoolEntries() throws IOException {
+        final Font font = getFont();
+        final GLGlyphPool pool = new GLGlyphPool();
+        final GLGlyphPool.Entry a0 = pool.getEntry(font, font.getGlyph('a'));
+        final GLGlyphPool.Entry b0 = pool.getEntry(font, font.getGlyph('b'));
+        Assert.assertSame(a0, pool.getEntry(font, font.getGlyph('a')));
+        Assert.assertEquals(2, pool.getEntryCount());
+        Assert.assertEquals(0, a0.getId());
+        Assert.assertEquals(1, b0.getId());
+        Assert.assertEquals(0, a0.getFirstIndex());
+        Assert.assertTrue(0 < a0.getIndexCount());
+        Assert.assertEquals(0, a0.getIndexCount() % 3);
+        Assert.assertEquals(a0.getIndexCount(), b0.getFirstIndex());
+        Assert.assertEquals(a0.getIndexCount() + b0.getIndexCount(), pool.getIndexCount());
+        Assert.assertTrue(pool.isDirty());
+        System.err.println(pool);
+    }
+
+    @Test
+    public void test02Instances() throws IOException {
+        final Font font = getFont();
+        final GLGlyphPool pool = new GLGlyphPool();
+        final GLTextInstances text = new GLTextInstances(0, pool);
+        Assert.assertTrue(Region.hasInstancing(text.getRenderModes()));
+        Assert.assertTrue(Region.hasColorChannel(text.getRenderModes()));
+        Assert.assertEquals(10, text.addString(font, 24f, "Hello World", 0f, 0f, 0f, rgba));
+        Assert.assertEquals(7, pool.getEntryCount()); // H e l o W r d
+        final int indexCount = pool.getIndexCount();
+        Assert.assertEquals(11, text.addString(font, 12f, "Hello\nWorld!", 10f, 100f, 0f, rgba));
+        Assert.assertEquals(21, text.getInstanceCount());
+        Assert.assertEquals(8, pool.getEntryCount()); // !
+        Assert.assertTrue(indexCount < pool.getIndexCount());
+        text.clear();
+        Assert.assertEquals(0, text.getInstanceCount());
+        Assert.assertEquals(8, pool.getEntryCount());
+        // a second batch shares the pool
+        final GLTextInstances text2 = new GLTextInstances(Region.VARWEIGHT_RENDERING_BIT, pool);
+        text2.addString(font, 24f, "dHoW", 0f, 0f, 0f, rgba);
+        Assert.assertEquals(8, pool.getEntryCount());
+        System.err.println(text2);
+    }
+
+    @Test
+    public void test03RenderModes() {
+        try {
+            new GLTextInstances(Region.VBAA_RENDERING_BIT, new GLGlyphPool());
+            Assert.fail("two pass accepted");
+        } catch (final IllegalArgumentException iae) { }
+        try {
+            GLRegion.create(Region.INSTANCED_RENDERING_BIT, null);
+            Assert.fail("instancing accepted by GLRegion");
+        } catch (final IllegalArgumentException iae) { }
+        Assert.assertEquals("norm-cols-inst", Region.getRenderModeString(Region.COLORCHANNEL_RENDERING_BIT | Region.INSTANCED_RENDERING_BIT));
+    }
+
+    @Test
+    public void test10Perf() throws IOException {
+        final Font font = getFont();
+        final int labels = 2000;
+        final int loops = 3;
+        final String[] text = new String[labels];
+        for(int i=0; i<labels; i++) {
+            text[i] = "Sensor "+i+": "+(i*37 % 1000)+"."+(i % 10)+" kPa";
+        }
+        final AffineTransform t1 = new AffineTransform();
+        final AffineTransform t2 = new AffineTransform();
+        final GLTextInstances instances = new GLTextInstances(0, new GLGlyphPool());
+        long tRegion = 0, tInstances = 0;
+        for(int l=0; l<=loops; l++) {
+            final long t0 = Platform.currentTimeMillis();
+            for(int i=0; i<labels; i++) {
+                final GLRegion region = GLRegion.create(0, null);
+                TextRegionUtil.addStringToRegion(region, SVertex.factory(), font, 24f, text[i], rgba, t1, t2);
+            }
+            final long t1m = Platform.currentTimeMillis();
+            instances.clear();
+            for(int i=0; i<labels; i++) {
+                instances.addString(font, 24f, text[i], 0f, i*30f, 0f, rgba);
+            }
+            final long t2m = Platform.currentTimeMillis();
+            if( 0 < l ) { // skip warm-up
+                tRegion += t1m - t0;
+                tInstances += t2m - t1m;
+            }
+        }
+        Assert.assertTrue(instances.getPool().getEntryCount() < 32); // digits, letters and punctuation only
+        System.err.println(instances);
+        System.err.printf("Summary %d labels: region tessellation %.2f ms, instances %.2f ms, %.1fx%n",
+                labels, (double)tRegion/loops, (double)tInstances/loops, (double)tRegion/Math.max(1, tInstances));
+    }
+
+    public static void main(final String args[]) throws IOException {
+        org.junit.runner.JUnitCore.main(TestGLGlyphPool01NOUI.class.getName());
+    }
+}
@@ -0,0 +1,225 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.graph;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import jogamp.graph.font.GlyphCache;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.FixMethodOrder;
+import org.junit.runners.MethodSorters;
+
+import com.jogamp.common.os.Platform;
+import com.jogamp.common.util.IOUtil;
+import com.jogamp.graph.font.Font;
+import com.jogamp.graph.font.FontFactory;
+
+/**
+ * Validates the bounded, lock-free read {@link GlyphCache}, its CLOCK eviction,
+ * concurrent use and concurrent glyph retrieval of a font. Benchmarks lookups.
+ * Requires no GPU.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestGlyphCache01NOUI {
+
+    @Test
+    public void test01GetPut() {
+        final GlyphCache<String> cache = new GlyphCache<String>(0, 0);
+        Assert.assertNull(cache.get('a'));
+        Assert.assertEquals("a", cache.put('a', "a", 10));
+        Assert.assertEquals("a", cache.get('a'));
+        // existing value wins
+        Assert.assertEquals("a", cache.put('a', "A", 10));
+        Assert.assertEquals("a", cache.get('a'));
+        cache.put('￿', "max", 1);
+        cache.put('\u0000', "min", 1);
+        Assert.assertEquals("max", cache.get('￿'));
+        Assert.assertEquals("min", cache.get('\u0000'));
+        Assert.assertEquals(3, cache.size());
+        Assert.assertEquals(12, cache.getCost());
+        Assert.assertEquals(4, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(0, cache.getEvictionCount());
+        cache.clear();
+        Assert.assertEquals(0, cache.size());
+        Assert.assertNull(cache.get('a'));
+    }
+
+    @Test
+    public void test02EntryBudgetClock() {
+        final GlyphCache<Character> cache = new GlyphCache<Character>(4, 0);
+        for(char c='a'; c<'e'; c++) {
+            cache.put(c, c, 1);
+        }
+        cache.get('a');
+        cache.get('b');
+        cache.put('e', 'e', 1); // clears 'a' and 'b', evicts 'c'
+        Assert.assertEquals(4, cache.size());
+        Assert.assertEquals(1, cache.getEvictionCount());
+        Assert.assertNull(cache.get('c'));
+        Assert.assertNotNull(cache.get('a'));
+        Assert.assertNotNull(cache.get('b'));
+        Assert.assertNotNull(cache.get('d'));
+        Assert.assertNotNull(cache.get('e'));
+        // all referenced: one full turn, then the entry at the hand is evicted
+        cache.put('f', 'f', 1);
+        Assert.assertEquals(4, cache.size());
+        Assert.assertEquals(2, cache.getEvictionCount());
+        Assert.assertNotNull(cache.get('f'));
+    }
+
+    @Test
+    public void test03CostBudget() {
+        final GlyphCache<Character> cache = new GlyphCache<Character>(0, 100);
+        for(char c='a'; c<'k'; c++) {
+            cache.put(c, c, 30);
+            Assert.assertTrue(cache.getCost() <= 100);
+        }
+        Assert.assertEquals(3, cache.size());
+        Assert.assertEquals(90, cache.getCost());
+        Assert.assertEquals(7, cache.getEvictionCount());
+        // too large values are returned, but not cached
+        Assert.assertEquals(Character.valueOf('z'), cache.put('z', 'z', 101));
+        Assert.assertNull(cache.get('z'));
+        Assert.assertEquals(3, cache.size());
+    }
+
+    @Test
+    public void test04Concurrent() throws Exception {
+        final int maxEntries = 64;
+        final GlyphCache<Character> cache = new GlyphCache<Character>(maxEntries, 0);
+        final int threads = 4;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final ArrayList<Future<Integer>> results = new ArrayList<Future<Integer>>();
+            for(int t=0; t<threads; t++) {
+                final long seed = t;
+                results.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        final Random rnd = new Random(seed);
+                        int errors = 0;
+                        for(int i=0; i<200000; i++) {
+                            final char c = (char) ( 0 == ( i & 1 ) ? rnd.nextInt(48) : rnd.nextInt(512) );
+                            Character v = cache.get(c);
+                            if( null == v ) {
+                                v = cache.put(c, Character.valueOf(c), 1);
+                            }
+                            if( c != v.charValue() ) {
+                                errors++;
+                            }
+                        }
+                        return errors;
+                    } } ) );
+            }
+            for(final Future<Integer> f : results) {
+                Assert.assertEquals(0, f.get().intValue());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        System.err.println(cache);
+        Assert.assertTrue(cache.size() <= maxEntries);
+        Assert.assertEquals(cache.size(), cache.getCost());
+        Assert.assertTrue(0 < cache.getEvictionCount());
+        Assert.assertEquals(threads * 200000L, cache.getHitCount() + cache.getMissCount());
+    }
+
+    static Font getFont() throws IOException {
+        return FontFactory.get(IOUtil.getResource("fonts/freefont/FreeSerif.ttf",
+                TestGlyphCache01NOUI.class.getClassLoader(), TestGlyphCache01NOUI.class).getInputStream(), true);
+    }
+
+    @Test
+    public void test05ConcurrentFontGlyphs() throws Exception {
+        final String text = "The quick brown fox jumps over the lazy dog. 0123456789 äöüß αβγ ЖИ";
+        final float pixelSize = 24f;
+        final float expected = getFont().getMetricWidth(text, pixelSize);
+        final Font font = getFont();
+        final int threads = 4;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final ArrayList<Future<Float>> results = new ArrayList<Future<Float>>();
+            for(int t=0; t<threads; t++) {
+                results.add(executor.submit(new Callable<Float>() {
+                    @Override
+                    public Float call() {
+                        float w = 0;
+                        for(int i=0; i<50; i++) {
+                            w = font.getMetricWidth(text, pixelSize);
+                            for(int j=0; j<text.length(); j++) {
+                                // one shared instance per symbol
+                                if( font.getGlyph(text.charAt(j)) != font.getGlyph(text.charAt(j)) ) {
+                                    return Float.NaN;
+                                }
+                            }
+                        }
+                        return w;
+                    } } ) );
+            }
+            for(final Future<Float> f : results) {
+                Assert.assertEquals(expected, f.get().floatValue(), 0f);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test10Perf() throws IOException {
+        final Font font = getFont();
+        final String text = "The quick brown fox jumps over the lazy dog. 0123456789";
+        final int loops = 2000;
+        for(int j=0; j<text.length(); j++) {
+            font.getGlyph(text.charAt(j));
+        }
+        long t = 0;
+        for(int l=0; l<=loops; l++) {
+            final long t0 = Platform.currentTimeMicros();
+            for(int j=0; j<text.length(); j++) {
+                font.getGlyph(text.charAt(j));
+            }
+            if( 0 < l ) { // skip warm-up
+                t += Platform.currentTimeMicros() - t0;
+            }
+        }
+        System.err.printf("Summary cached glyph lookup: %.1f ns%n", 1000.0*t / ( (long)loops * text.length() ));
+    }
+
+    public static void main(final String args[]) throws IOException {
+        org.junit.runner.JUnitCore.main(TestGlyphCache01NOUI.class.getName());
+    }
+}
@@ -0,0 +1,387 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.graph;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.FixMethodOrder;
+import org.junit.runners.MethodSorters;
+
+import com.jogamp.common.os.Platform;
+import com.jogamp.common.util.IOUtil;
+import com.jogamp.graph.curve.MSDFGenerator;
+import com.jogamp.graph.curve.OutlineShape;
+import com.jogamp.graph.curve.Region;
+import com.jogamp.graph.curve.opengl.GLSDFGlyphAtlas;
+import com.jogamp.graph.curve.opengl.GLSDFText;
+import com.jogamp.graph.font.Font;
+import com.jogamp.graph.font.FontFactory;
+import com.jogamp.graph.geom.Outline;
+import com.jogamp.graph.geom.Vertex;
+
+/**
+ * Validates the CPU side of {@link MSDFGenerator} and {@link GLSDFGlyphAtlas}.
+ * <p>
+ * Glyph coverage reconstructed from the generated fields by bilinear filtering, as done by the GPU,
+ * is compared against a reference image rasterized from the flattened outlines.
+ * Requires no GPU.
+ * </p>
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestMSDFGenerator01NOUI {
+    static final String glyphs = "AgOWkx@&%8Rvw";
+    static final int upsampling = 4;
+
+    static Font getFont() throws IOException {
+        return FontFactory.get(IOUtil.getResource("fonts/freefont/FreeSans.ttf",
+                TestMSDFGenerator01NOUI.class.getClassLoader(), TestMSDFGenerator01NOUI.class).getInputStream(), true);
+    }
+
+    /** Flattens the outline into a closed polygon, inserting implied on-curve points between off-curve points. */
+    static float[] flatten(final Outline outline) {
+        int n = outline.getVertexCount();
+        final Vertex first = outline.getVertex(0), last = outline.getVertex(n-1);
+        if( 2 < n && first.getX() == last.getX() && first.getY() == last.getY() ) {
+            n--;
+        }
+        int start = 0;
+        while( start < n && !outline.getVertex(start).isOnCurve() ) {
+            start++;
+        }
+        Assert.assertTrue(start < n); // FreeSans has no all off-curve contours
+        final ArrayList<float[]> pts = new ArrayList<float[]>();
+        final Vertex s = outline.getVertex(start);
+        float px = s.getX(), py = s.getY();
+        pts.add(new float[] { px, py });
+        for(int j=1; j<=n; j++) {
+            final Vertex v = outline.getVertex( ( start + j ) % n );
+            if( v.isOnCurve() ) {
+                px = v.getX(); py = v.getY();
+                pts.add(new float[] { px, py });
+            } else {
+                final Vertex w = outline.getVertex( ( start + j + 1 ) % n );
+                final float ex = w.isOnCurve() ? w.getX() : ( v.getX() + w.getX() ) / 2f;
+                final float ey = w.isOnCurve() ? w.getY() : ( v.getY() + w.getY() ) / 2f;
+                for(int k=1; k<=16; k++) {
+                    final float t = k / 16f, mt = 1f - t;
+                    pts.add(new float[] { mt*mt*px + 2*mt*t*v.getX() + t*t*ex, mt*mt*py + 2*mt*t*v.getY() + t*t*ey });
+                }
+                px = ex; py = ey;
+                if( w.isOnCurve() ) {
+                    j++;
+                }
+            }
+        }
+        final float[] res = new float[2*pts.size()];
+        for(int i=0; i<pts.size(); i++) {
+            res[2*i] = pts.get(i)[0];
+            res[2*i+1] = pts.get(i)[1];
+        }
+        return res;
+    }
+
+    /** Nonzero winding inside test of the point against the polygons. */
+    static boolean isInside(final ArrayList<float[]> polygons, final float x, final float y) {
+        int winding = 0;
+        for(int p=0; p<polygons.size(); p++) {
+            final float[] poly = polygons.get(p);
+            final int n = poly.length / 2;
+            for(int i=0; i<n; i++) {
+                final float x0 = poly[2*i], y0 = poly[2*i+1];
+                final float x1 = poly[2*((i+1)%n)], y1 = poly[2*((i+1)%n)+1];
+                if( ( y0 <= y && y < y1 ) || ( y1 <= y && y < y0 ) ) {
+                    final float xc = x0 + ( y - y0 ) / ( y1 - y0 ) * ( x1 - x0 );
+                    if( xc > x ) {
+                        winding += y1 > y0 ? 1 : -1;
+                    }
+                }
+            }
+        }
+        return 0 != winding;
+    }
+
+    /** Bilinear texture lookup of the given channel at pixel coordinates, clamped to edge. */
+    static float sample(final MSDFGenerator.Field f, final int channel, final float x, final float y) {
+        final float fx = x - 0.5f, fy = y - 0.5f;
+        final int x0 = (int)Math.floor(fx), y0 = (int)Math.floor(fy);
+        final float ax = fx - x0, ay = fy - y0;
+        final float v00 = texel(f, channel, x0, y0), v10 = texel(f, channel, x0+1, y0);
+        final float v01 = texel(f, channel, x0, y0+1), v11 = texel(f, channel, x0+1, y0+1);
+        return ( v00 * ( 1 - ax ) + v10 * ax ) * ( 1 - ay ) + ( v01 * ( 1 - ax ) + v11 * ax ) * ay;
+    }
+
+    static float texel(final MSDFGenerator.Field f, final int channel, final int x, final int y) {
+        final int cx = Math.max(0, Math.min(f.getWidth()-1, x));
+        final int cy = Math.max(0, Math.min(f.getHeight()-1, y));
+        return ( f.getData()[4 * ( cy * f.getWidth() + cx ) + channel] & 0xff ) / 255f;
+    }
+
+    static float median(final float a, final float b, final float c) {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
+    /**
+     * Returns the number of reference samples, inside samples,
+     * and samples mismatched by the multi-channel and by the true distance (alpha) reconstruction.
+     */
+    static int[] compare(final OutlineShape shape, final MSDFGenerator.Field f) {
+        final ArrayList<float[]> polygons = new ArrayList<float[]>();
+        for(int i=0; i<shape.getOutlineNumber(); i++) {
+            if( 2 < shape.getOutline(i).getVertexCount() ) {
+                polygons.add(flatten(shape.getOutline(i)));
+            }
+        }
+        final int[] res = new int[4];
+        final int w = f.getWidth() * upsampling, h = f.getHeight() * upsampling;
+        for(int y=0; y<h; y++) {
+            for(int x=0; x<w; x++) {
+                final float px = ( x + 0.5f ) / upsampling, py = ( y + 0.5f ) / upsampling;
+                final boolean ref = isInside(polygons, px / f.getScale() - f.getTranslateX(), py / f.getScale() - f.getTranslateY());
+                final boolean msdf = median(sample(f, 0, px, py), sample(f, 1, px, py), sample(f, 2, px, py)) >= 0.5f;
+                final boolean sdf = sample(f, 3, px, py) >= 0.5f;
+                res[0]++;
+                if( ref ) { res[1]++; }
+                if( ref != msdf ) { res[2]++; }
+                if( ref != sdf ) { res[3]++; }
+            }
+        }
+        return res;
+    }
+
+    @Test
+    public void test01Reference() throws IOException {
+        final Font font = getFont();
+        final MSDFGenerator gen = new MSDFGenerator(null, MSDFGenerator.DEFAULT_RANGE);
+        for(final float pixelSize : new float[] { 16f, 32f }) {
+            final float scale = font.getMetrics().getScale(pixelSize);
+            int samples = 0, inside = 0, msdfErr = 0, sdfErr = 0;
+            for(int i=0; i<glyphs.length(); i++) {
+                final OutlineShape shape = font.getGlyph(glyphs.charAt(i)).getShape();
+                final MSDFGenerator.Field f = gen.generate(shape, scale);
+                Assert.assertFalse(f.isEmpty());
+                Assert.assertEquals(4 * f.getWidth() * f.getHeight(), f.getData().length);
+                // field covers the shape's bounds incl. the distance range
+                Assert.assertTrue(f.getWidth() >= shape.getBounds().getWidth() * scale + gen.getRange());
+                Assert.assertTrue(f.getHeight() >= shape.getBounds().getHeight() * scale + gen.getRange());
+                // border is outside
+                Assert.assertTrue(f.getMedian(0, 0) < 0.5f);
+                Assert.assertTrue(f.getDistance(f.getWidth()-1, f.getHeight()-1) < 0.5f);
+                final int[] r = compare(shape, f);
+                samples += r[0]; inside += r[1]; msdfErr += r[2]; sdfErr += r[3];
+                // each glyph matches the reference at least as well as the true distance
+                Assert.assertTrue(glyphs.charAt(i)+": msdf "+r[2]+", sdf "+r[3], r[2] <= r[3] + r[1] / 100);                
+            }
+            System.err.printf("Reference %.0f px: samples %d, inside %d, mismatch msdf %d (%.2f%%), sdf %d (%.2f%%)%n",
+                    pixelSize, samples, inside, msdfErr, 100.0*msdfErr/inside, sdfErr, 100.0*sdfErr/inside);
+            // sharp corners are preserved by the multi-channel field
+            Assert.assertTrue(msdfErr < sdfErr);
+            Assert.assertTrue(msdfErr < inside * ( pixelSize < 20f ? 0.1f : 0.02f ));
+        }
+    }
+
+    @Test
+    public void test02Concurrent() throws IOException, InterruptedException {
+        final Font font = getFont();
+        final ArrayList<OutlineShape> shapes = new ArrayList<OutlineShape>();
+        for(int i=0; i<glyphs.length(); i++) {
+            shapes.add(font.getGlyph(glyphs.charAt(i)).getShape());
+        }
+        final float scale = font.getMetrics().getScale(24f);
+        final MSDFGenerator serial = new MSDFGenerator(null, 6f);
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            final MSDFGenerator parallel = new MSDFGenerator(executor, 6f);
+            final MSDFGenerator.Field[] fields = parallel.generate(shapes, scale);
+            Assert.assertEquals(shapes.size(), fields.length);
+            for(int i=0; i<fields.length; i++) {
+                final MSDFGenerator.Field f = serial.generate(shapes.get(i), scale);
+                Assert.assertEquals(6f, fields[i].getRange(), 0f);
+                Assert.assertEquals(f.getWidth(), fields[i].getWidth());
+                Assert.assertEquals(f.getHeight(), fields[i].getHeight());
+                Assert.assertArrayEquals(f.getData(), fields[i].getData());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test03Atlas() throws IOException, InterruptedException {
+        final Font font = getFont();
+        final GLSDFGlyphAtlas atlas = new GLSDFGlyphAtlas(new MSDFGenerator(null, MSDFGenerator.DEFAULT_RANGE), 48f);
+        Assert.assertEquals(3, atlas.addGlyphs(font, font.getGlyphRun("ab a c", 24f))); // a b c
+        Assert.assertEquals(0, atlas.addGlyphs(font, font.getGlyphRun("cab", 24f)));
+        final GLSDFGlyphAtlas.Entry a = atlas.getEntry(font, font.getGlyph('a'));
+        Assert.assertSame(a, atlas.getEntry(font, font.getGlyph('a')));
+        Assert.assertFalse(a.isEmpty());
+        Assert.assertTrue(a.getX0() < a.getX1());
+        Assert.assertTrue(a.getY0() < a.getY1());
+        Assert.assertTrue(atlas.isDirty());
+
+        // fill the atlas beyond its initial size
+        final String text = "ABCDEFGHIJKLMNOPQRSTUVWXYZdefghijklmnopqrstuvwxyz0123456789@&%$#";
+        final int layouts = atlas.getLayoutCount();
+        atlas.addGlyphs(font, font.getGlyphRun(text, 24f));
+        Assert.assertTrue(layouts < atlas.getLayoutCount());
+        Assert.assertEquals(3 + text.length(), atlas.getEntryCount());
+
+        // all fields are copied to their non overlapping location
+        final MSDFGenerator gen = new MSDFGenerator(null, MSDFGenerator.DEFAULT_RANGE);
+        final byte[] data = atlas.getData();
+        final String all = "abc"+text;
+        final boolean[] used = new boolean[atlas.getWidth() * atlas.getHeight()];
+        for(int i=0; i<all.length(); i++) {
+            final Font.Glyph glyph = font.getGlyph(all.charAt(i));
+            final GLSDFGlyphAtlas.Entry e = atlas.getEntry(font, glyph);
+            final MSDFGenerator.Field f = gen.generate(glyph.getShape(), font.getMetrics().getScale(48f));
+            Assert.assertEquals(f.getWidth(), e.getTexelWidth());
+            Assert.assertEquals(f.getHeight(), e.getTexelHeight());
+            for(int y=0; y<f.getHeight(); y++) {
+                for(int x=0; x<f.getWidth(); x++) {
+                    final int t = ( e.getTexelY() + y ) * atlas.getWidth() + e.getTexelX() + x;
+                    Assert.assertFalse(used[t]);
+                    used[t] = true;
+                    for(int c=0; c<4; c++) {
+                        Assert.assertEquals(f.getData()[4 * ( y * f.getWidth() + x ) + c], data[4 * t + c]);
+                    }
+                }
+            }
+        }
+        System.err.println(atlas);
+        atlas.clear();
+        Assert.assertEquals(0, atlas.getEntryCount());
+    }
+
+    @Test
+    public void test04RenderModes() {
+        final GLSDFGlyphAtlas atlas = new GLSDFGlyphAtlas();
+        try {
+            new GLSDFText(Region.VBAA_RENDERING_BIT, atlas, 0);
+            Assert.fail("two pass accepted");
+        } catch (final IllegalArgumentException iae) { }
+        try {
+            new GLSDFText(Region.INSTANCED_RENDERING_BIT, atlas, 0);
+            Assert.fail("instancing accepted");
+        } catch (final IllegalArgumentException iae) { }
+        final GLSDFText text = new GLSDFText(0, atlas, 0);
+        Assert.assertTrue(Region.hasSDF(text.getRenderModes()));
+        Assert.assertEquals("norm-cols-sdf", Region.getRenderModeString(text.getRenderModes()));
+    }
+
+    @Test
+    public void test05Text() throws IOException {
+        final Font font = getFont();
+        final GLSDFGlyphAtlas atlas = new GLSDFGlyphAtlas();
+        final GLSDFText text = new GLSDFText(0, atlas, 0);
+        final float[] rgba = { 0.1f, 0.2f, 0.3f, 1.0f };
+        Assert.assertEquals(10, text.addString(font, 24f, "Hello World", 0f, 0f, 0f, rgba));
+        Assert.assertEquals(7, atlas.getEntryCount()); // H e l o W r d
+        Assert.assertEquals(10, text.addString(font, 12f, "Hello World", 0f, 100f, 0f, rgba));
+        Assert.assertEquals(20, text.getQuadCount());
+        Assert.assertEquals(7, atlas.getEntryCount());
+        // cleared atlas invalidates the entries, they are queried again when drawn
+        final GLSDFGlyphAtlas.Entry h = atlas.getEntry(font, font.getGlyph('H'));
+        Assert.assertTrue(h.isValid());
+        atlas.clear();
+        Assert.assertFalse(h.isValid());
+        Assert.assertEquals(20, text.getQuadCount());
+        Assert.assertTrue(atlas.getEntry(font, font.getGlyph('H')).isValid());
+        text.clear();
+        Assert.assertEquals(0, text.getQuadCount());
+        System.err.println(text);
+    }
+
+    @Test
+    public void test06AtlasLimit() throws IOException {
+        final Font font = getFont();
+        // ~1500 texel high glyphs w/ few straight edges, two rows fit into the atlas
+        final GLSDFGlyphAtlas atlas = new GLSDFGlyphAtlas(new MSDFGenerator(), 2000f);
+        final String text = "HIKLMNTEFAVWXYZ17lkvwxyz";
+        int added = 0;
+        try {
+            for(int i=0; i<text.length(); i++) {
+                atlas.getEntry(font, font.getGlyph(text.charAt(i)));
+                added++;
+            }
+            Assert.fail("atlas exceeding "+GLSDFGlyphAtlas.MAX_SIZE+" not detected");
+        } catch (final RuntimeException re) {
+            System.err.println(re.getMessage()+", added "+added+": "+atlas);
+        }
+        Assert.assertTrue(0 < added);
+        Assert.assertEquals(added, atlas.getEntryCount());
+        Assert.assertEquals(GLSDFGlyphAtlas.MAX_SIZE, atlas.getWidth());
+        Assert.assertEquals(GLSDFGlyphAtlas.MAX_SIZE, atlas.getHeight());
+        // added glyphs stay valid, the failed one is not added
+        final GLSDFGlyphAtlas.Entry a = atlas.getEntry(font, font.getGlyph(text.charAt(0)));
+        Assert.assertTrue(a.getTexelX() + a.getTexelWidth() <= atlas.getWidth());
+        Assert.assertTrue(a.getTexelY() + a.getTexelHeight() <= atlas.getHeight());
+        Assert.assertEquals(added, atlas.getEntryCount());
+
+        atlas.clear();
+        atlas.getEntry(font, font.getGlyph(text.charAt(added)));
+        Assert.assertEquals(1, atlas.getEntryCount());
+    }
+
+    @Test
+    public void test10Perf() throws IOException, InterruptedException {
+        final Font font = getFont();
+        final ArrayList<OutlineShape> shapes = new ArrayList<OutlineShape>();
+        final String text = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789@&%$#";
+        for(int i=0; i<text.length(); i++) {
+            shapes.add(font.getGlyph(text.charAt(i)).getShape());
+        }
+        final float scale = font.getMetrics().getScale(32f);
+        final MSDFGenerator serial = new MSDFGenerator(null, MSDFGenerator.DEFAULT_RANGE);
+        final MSDFGenerator parallel = new MSDFGenerator();
+        final int loops = 3;
+        long tSerial = 0, tParallel = 0;
+        for(int l=0; l<=loops; l++) {
+            final long t0 = Platform.currentTimeMicros();
+            serial.generate(shapes, scale);
+            final long t1 = Platform.currentTimeMicros();
+            parallel.generate(shapes, scale);
+            final long t2 = Platform.currentTimeMicros();
+            if( 0 < l ) { // skip warm-up
+                tSerial += t1 - t0;
+                tParallel += t2 - t1;
+            }
+        }
+        System.err.printf("Summary %d glyphs @ 32 px, %d threads: serial %.0f glyphs/s, parallel %.0f glyphs/s%n",
+                shapes.size(), Runtime.getRuntime().availableProcessors(),
+                1e6 * shapes.size() * loops / Math.max(1, tSerial), 1e6 * shapes.size() * loops / Math.max(1, tParallel));
+    }
+
+    public static void main(final String args[]) throws IOException {
+        org.junit.runner.JUnitCore.main(TestMSDFGenerator01NOUI.class.getName());
+    }
+}
@@ -0,0 +1,186 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.graph;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import jogamp.graph.font.typecast.ot.OTFont;
+import jogamp.graph.font.typecast.ot.OTFontCollection;
+import jogamp.graph.font.typecast.ot.OTGlyph;
+import jogamp.graph.font.typecast.ot.Point;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.FixMethodOrder;
+import org.junit.runners.MethodSorters;
+
+import com.jogamp.common.os.Platform;
+import com.jogamp.common.util.IOUtil;
+import com.jogamp.graph.font.Font;
+import com.jogamp.graph.font.FontFactory;
+
+/**
+ * Validates the memory mapped, lazily parsed {@link OTFontCollection} against stream based loading,
+ * concurrent glyph access and benchmarks font loading.
+ * Requires no GPU.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestOTFontCollection01NOUI {
+    static final String[] fontFiles = { "FreeMono.ttf", "FreeSans.ttf", "FreeSerif.ttf", "FreeSerifBoldItalic.ttf" };
+
+    static File getFontFile(final String name) throws IOException, URISyntaxException {
+        return new File(IOUtil.getResource("fonts/freefont/"+name, TestOTFontCollection01NOUI.class.getClassLoader(),
+                                           TestOTFontCollection01NOUI.class).getURL().toURI());
+    }
+
+    static OTFontCollection createFromStream(final File file) throws IOException {
+        final InputStream in = new FileInputStream(file);
+        try {
+            return OTFontCollection.create(in, (int) file.length());
+        } finally {
+            in.close();
+        }
+    }
+
+    static String toString(final OTFont font, final int glyphID) {
+        final OTGlyph g = font.getGlyph(glyphID);
+        if( null == g ) {
+            return "null";
+        }
+        final StringBuilder sb = new StringBuilder();
+        sb.append(g.getAdvanceWidth()).append('/').append(g.getLeftSideBearing()).append(':');
+        for(int i=0; i<g.getPointCount(); i++) {
+            final Point p = g.getPoint(i);
+            sb.append(p.x).append(',').append(p.y).append(p.onCurve ? 'o' : 'x').append(p.endOfContour ? "e " : " ");
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void test01FileEqualsStream() throws IOException, URISyntaxException {
+        for(final String name : fontFiles) {
+            final File file = getFontFile(name);
+            final OTFontCollection fcFile = OTFontCollection.create(file);
+            final OTFontCollection fcStream = createFromStream(file);
+            Assert.assertTrue(fcFile.getData(0).isDirect()); // mapped
+            Assert.assertFalse(fcStream.getData(0).isDirect());
+            final OTFont fFile = fcFile.getFont(0), fStream = fcStream.getFont(0);
+            Assert.assertEquals(fStream.getNumGlyphs(), fFile.getNumGlyphs());
+            Assert.assertEquals(fStream.getAllNames(null, "|").toString(), fFile.getAllNames(null, "|").toString());
+            int outlines = 0;
+            for(int i=0; i<fFile.getNumGlyphs(); i++) {
+                final String s = toString(fFile, i);
+                Assert.assertEquals(name+", glyph "+i, toString(fStream, i), s);
+                if( !"null".equals(s) ) {
+                    outlines++;
+                }
+            }
+            System.err.println(name+": "+fFile.getNumGlyphs()+" glyphs, "+outlines+" outlines");
+            Assert.assertTrue(0 < outlines);
+            // a second collection of the same file
+            final OTFontCollection fcFile2 = OTFontCollection.create(file);
+            Assert.assertEquals(toString(fFile, 'A'), toString(fcFile2.getFont(0), 'A'));
+        }
+    }
+
+    @Test
+    public void test02ConcurrentGlyphAccess() throws Exception {
+        final File file = getFontFile("FreeSerif.ttf");
+        final OTFont ref = createFromStream(file).getFont(0);
+        final String[] expected = new String[ref.getNumGlyphs()];
+        for(int i=0; i<expected.length; i++) {
+            expected[i] = toString(ref, i);
+        }
+        final OTFont font = OTFontCollection.create(file).getFont(0);
+        final int threads = 4;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final ArrayList<Future<Integer>> results = new ArrayList<Future<Integer>>();
+            for(int t=0; t<threads; t++) {
+                final int start = t * expected.length / threads;
+                results.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        int mismatches = 0;
+                        for(int j=0; j<expected.length; j++) {
+                            final int i = ( start + j ) % expected.length;
+                            if( !expected[i].equals(TestOTFontCollection01NOUI.toString(font, i)) ) {
+                                mismatches++;
+                            }
+                        }
+                        return mismatches;
+                    } } ) );
+            }
+            for(final Future<Integer> f : results) {
+                Assert.assertEquals(0, f.get().intValue());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test10Perf() throws IOException, URISyntaxException {
+        final int loops = 10;
+        for(final String name : fontFiles) {
+            final File file = getFontFile(name);
+            final long[] t = new long[2];
+            for(int p=0; p<2; p++) {
+                for(int l=0; l<=loops; l++) {
+                    final long t0 = Platform.currentTimeMillis();
+                    final Font font;
+                    if( 0 == p ) {
+                        final InputStream in = new FileInputStream(file);
+                        font = FontFactory.get(in, (int) file.length(), true);
+                    } else {
+                        font = FontFactory.get(file);
+                    }
+                    font.getGlyph('A');
+                    if( 0 < l ) { // skip warm-up
+                        t[p] += Platform.currentTimeMillis() - t0;
+                    }
+                }
+            }
+            System.err.printf("Summary %s, %d kB: load and first glyph, stream %.2f ms, mapped file %.2f ms%n",
+                              name, file.length() / 1024, (double)t[0]/loops, (double)t[1]/loops);
+        }
+    }
+
+    public static void main(final String args[]) throws IOException {
+        org.junit.runner.JUnitCore.main(TestOTFontCollection01NOUI.class.getName());
+    }
+}
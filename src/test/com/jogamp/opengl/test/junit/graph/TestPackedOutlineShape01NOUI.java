@@ -0,0 +1,329 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.graph;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.FixMethodOrder;
+import org.junit.runners.MethodSorters;
+
+import jogamp.graph.geom.plane.AffineTransform;
+
+import com.jogamp.common.os.Platform;
+import com.jogamp.graph.curve.OutlineShape;
+import com.jogamp.graph.curve.PackedOutlineShape;
+import com.jogamp.graph.curve.ShapeTessellator;
+import com.jogamp.graph.curve.TessellatedShape;
+import com.jogamp.graph.curve.tess.Triangulation;
+import com.jogamp.graph.geom.Outline;
+import com.jogamp.graph.geom.SVertex;
+import com.jogamp.graph.geom.Vertex;
+
+/**
+ * Validates {@link PackedOutlineShape} against {@link OutlineShape},
+ * benchmarks its memory footprint and tessellation. Requires no GPU.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestPackedOutlineShape01NOUI {
+
+    /** Adds the same star with curved tips and an optional hole to both shapes */
+    static void addStar(final long seed, final OutlineShape shape, final PackedOutlineShape packed) {
+        final Random rnd = new Random(seed);
+        final float cx = rnd.nextFloat() * 1000f;
+        final float cy = rnd.nextFloat() * 1000f;
+        final int points = 3 + rnd.nextInt(8);
+        final float r = 5f + rnd.nextFloat() * 20f;
+        for(int i=0; i<2*points; i++) {
+            final double a = Math.PI * i / points;
+            final float ri = 0 == ( i & 1 ) ? r : r * 0.5f;
+            final float x = cx + ri * (float)Math.cos(a);
+            final float y = cy + ri * (float)Math.sin(a);
+            final boolean onCurve = 1 == ( i % 4 ) ? false : true;
+            if( null != shape ) {
+                shape.addVertex(x, y, onCurve);
+            }
+            if( null != packed ) {
+                packed.addVertex(x, y, onCurve);
+            }
+        }
+        if( null != shape ) {
+            shape.closeLastOutline(true);
+        }
+        if( null != packed ) {
+            packed.closeLastOutline(true);
+        }
+        if( rnd.nextBoolean() ) {
+            final float h = r * 0.2f;
+            final float[] hole = { cx - h, cy - h, cx - h, cy + h, cx + h, cy + h, cx + h, cy - h };
+            if( null != shape ) {
+                shape.addEmptyOutline();
+                for(int i=0; i<hole.length; i+=2) {
+                    shape.addVertex(hole[i], hole[i+1], true);
+                }
+                shape.closeLastOutline(true);
+            }
+            if( null != packed ) {
+                packed.addEmptyOutline();
+                for(int i=0; i<hole.length; i+=2) {
+                    packed.addVertex(hole[i], hole[i+1], true);
+                }
+                packed.closeLastOutline(true);
+            }
+        }
+    }
+
+    static OutlineShape createShape(final long seed) {
+        final OutlineShape shape = new OutlineShape(SVertex.factory());
+        addStar(seed, shape, null);
+        return shape;
+    }
+
+    static PackedOutlineShape createPacked(final long seed) {
+        final PackedOutlineShape packed = new PackedOutlineShape();
+        addStar(seed, null, packed);
+        return packed;
+    }
+
+    static void assertSameOutlines(final OutlineShape shape, final PackedOutlineShape packed) {
+        Assert.assertEquals(shape.getOutlineNumber(), packed.getOutlineNumber());
+        int n = 0;
+        for(int o=0; o<shape.getOutlineNumber(); o++) {
+            final Outline outline = shape.getOutline(o);
+            final List<Vertex> views = packed.getOutlineVertices(o);
+            Assert.assertEquals(outline.getVertexCount(), views.size());
+            Assert.assertEquals(outline.isClosed(), packed.isOutlineClosed(o));
+            for(int i=0; i<outline.getVertexCount(); i++) {
+                final Vertex v = outline.getVertex(i);
+                Assert.assertEquals(v, views.get(i));
+                Assert.assertEquals(views.get(i), v);
+                Assert.assertArrayEquals(v.getCoord(), views.get(i).getCoord(), 0f);
+                Assert.assertEquals(v.isOnCurve(), packed.isOnCurve(n++));
+            }
+        }
+        Assert.assertEquals(n, packed.getVertexCount());
+        Assert.assertEquals(shape.getBounds(), packed.getBounds());
+    }
+
+    @Test
+    public void test01Views() {
+        for(int s=0; s<50; s++) {
+            final OutlineShape shape = new OutlineShape(SVertex.factory());
+            final PackedOutlineShape packed = new PackedOutlineShape(1);
+            addStar(s, shape, packed);
+            addStar(s+1000, shape, packed);
+            assertSameOutlines(shape, packed);
+        }
+        // write through
+        final PackedOutlineShape packed = createPacked(1);
+        final Vertex v = packed.getVertex(2);
+        v.setCoord(-1f, -2f, -3f);
+        v.setOnCurve(false);
+        Assert.assertEquals(-1f, packed.getX(2), 0f);
+        Assert.assertEquals(-2f, packed.getY(2), 0f);
+        Assert.assertEquals(-3f, packed.getZ(2), 0f);
+        Assert.assertFalse(packed.isOnCurve(2));
+        Assert.assertEquals(-3f, packed.getBounds().getMinZ(), 0f);
+        final Vertex c = v.clone();
+        v.setX(5f);
+        Assert.assertEquals(-1f, c.getX(), 0f);
+    }
+
+    @Test
+    public void test02Unpack() {
+        for(int s=0; s<50; s++) {
+            final OutlineShape shape = createShape(s);
+            shape.setSharpness(0.3f);
+            shape.setTriangulationType(Triangulation.Type.SWEEP);
+            final PackedOutlineShape packed = new PackedOutlineShape(shape);
+            assertSameOutlines(shape, packed);
+            Assert.assertEquals(0.3f, packed.getSharpness(), 0f);
+            Assert.assertEquals(Triangulation.Type.SWEEP, packed.getTriangulationType());
+            Assert.assertEquals(ShapeTessellator.getHash(shape), ShapeTessellator.getHash(packed));
+
+            final OutlineShape unpacked = packed.toOutlineShape(SVertex.factory());
+            Assert.assertEquals(shape, unpacked);
+            Assert.assertEquals(ShapeTessellator.getHash(shape), ShapeTessellator.getHash(unpacked));
+            Assert.assertEquals(ShapeTessellator.getHash(createShape(s)), ShapeTessellator.getHash(createPacked(s)));
+        }
+    }
+
+    @Test
+    public void test03Transform() {
+        final AffineTransform t = new AffineTransform();
+        t.setToRotation(0.3f, 10f, 20f);
+        t.scale(2f, 0.5f, new AffineTransform());
+        final OutlineShape shape = createShape(7).transform(t);
+        final PackedOutlineShape src = createPacked(7);
+        final PackedOutlineShape packed = src.transform(t);
+        Assert.assertEquals(shape.getBounds(), packed.getBounds());
+        int n = 0;
+        for(int o=0; o<shape.getOutlineNumber(); o++) {
+            final Outline outline = shape.getOutline(o);
+            for(int i=0; i<outline.getVertexCount(); i++, n++) {
+                Assert.assertArrayEquals(outline.getVertex(i).getCoord(), packed.getVertex(n).getCoord(), 0f);
+                // Outline.transform() does not preserve the on-curve flag
+                Assert.assertEquals(src.isOnCurve(n), packed.isOnCurve(n));
+            }
+        }
+        Assert.assertEquals(n, packed.getVertexCount());
+    }
+
+    @Test
+    public void test04Tessellate() {
+        final ShapeTessellator tessellator = new ShapeTessellator(null, 100);
+        for(int s=0; s<20; s++) {
+            final TessellatedShape tp = tessellator.tessellate(createPacked(s));
+            final TessellatedShape ts = new ShapeTessellator(null, 0).tessellate(createShape(s));
+            Assert.assertEquals(ts.getVertexCount(), tp.getVertexCount());
+            Assert.assertEquals(ts.getIndexCount(), tp.getIndexCount());
+            for(int i=0; i<ts.getIndexCount(); i++) {
+                Assert.assertEquals(ts.getIndex(i), tp.getIndex(i));
+            }
+            // equal content shares the cache entry
+            Assert.assertSame(tp, tessellator.tessellate(createShape(s)));
+            Assert.assertSame(tp, tessellator.tessellate(createPacked(s)));
+        }
+        Assert.assertEquals(20, tessellator.getCacheMissCount());
+        Assert.assertEquals(40, tessellator.getCacheHitCount());
+    }
+
+    @Test
+    public void test05EmptyOutlines() {
+        // consecutive empty outlines, as OutlineShape.addOutline(int, Outline) may produce
+        final OutlineShape shape = createShape(3);
+        shape.addOutline(0, new Outline());
+        shape.addOutline(0, new Outline());
+        final PackedOutlineShape packed = new PackedOutlineShape(shape);
+        final OutlineShape unpacked = packed.toOutlineShape(SVertex.factory());
+        Assert.assertEquals(unpacked.getOutlineNumber(), packed.getOutlineNumber());
+        assertSameOutlines(unpacked, packed);
+        assertSameOutlines(unpacked, new PackedOutlineShape(unpacked));
+        Assert.assertEquals(ShapeTessellator.getHash(packed), ShapeTessellator.getHash(unpacked));
+        Assert.assertEquals(packed.getVertexCount(), packed.getVertexCapacity());
+    }
+
+    private static long usedMemory() {
+        final Runtime rt = Runtime.getRuntime();
+        for(int i=0; i<4; i++) {
+            System.gc();
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    @Test
+    public void test10Perf() {
+        final int count = 10000;
+
+        // memory footprint
+        final long m0 = usedMemory();
+        final ArrayList<OutlineShape> shapes = new ArrayList<OutlineShape>(count);
+        for(int s=0; s<count; s++) {
+            shapes.add(createShape(s));
+        }
+        final long m1 = usedMemory();
+        final ArrayList<PackedOutlineShape> packed = new ArrayList<PackedOutlineShape>(count);
+        int points = 0;
+        for(int s=0; s<count; s++) {
+            packed.add(createPacked(s));
+            points += packed.get(s).getVertexCount();
+        }
+        final long m2 = usedMemory();
+        final long shapeBytes = m1 - m0;
+        final long packedBytes = m2 - m1;
+        shapes.clear();
+
+        // one large shape
+        final int largePoints = 200000;
+        final long m3 = usedMemory();
+        final OutlineShape largeShape = new OutlineShape(SVertex.factory());
+        for(int i=0; i<largePoints; i++) {
+            largeShape.addVertex(i, i & 1, true);
+        }
+        final long m4 = usedMemory();
+        final PackedOutlineShape largePacked = new PackedOutlineShape(largePoints);
+        for(int i=0; i<largePoints; i++) {
+            largePacked.addVertex(i, i & 1, true);
+        }
+        final long m5 = usedMemory();
+        Assert.assertEquals(largeShape.getBounds(), largePacked.getBounds());
+        final long largeShapeBytes = m4 - m3;
+        final long largePackedBytes = m5 - m4;
+        for(int s=0; s<count; s++) {
+            shapes.add(createShape(s));
+        }
+
+        // bounds
+        final long t0 = Platform.currentTimeMicros();
+        for(int s=0; s<count; s++) {
+            shapes.get(s).getOutline(0).setVertex(0, shapes.get(s).getOutline(0).getVertex(0));
+            shapes.get(s).getOutline(0).getBounds();
+        }
+        final long t1 = Platform.currentTimeMicros();
+        for(int s=0; s<count; s++) {
+            final PackedOutlineShape p = packed.get(s);
+            p.setCoord(0, p.getX(0), p.getY(0), p.getZ(0));
+            p.getBounds();
+        }
+        final long t2 = Platform.currentTimeMicros();
+
+        // tessellation
+        final ShapeTessellator tessellator = new ShapeTessellator(null, count);
+        for(int s=0; s<count; s++) {
+            tessellator.tessellate(shapes.get(s));
+        }
+        final long t3 = Platform.currentTimeMicros();
+        final ShapeTessellator packedTessellator = new ShapeTessellator(null, count);
+        for(int s=0; s<count; s++) {
+            packedTessellator.tessellate(packed.get(s));
+        }
+        final long t4 = Platform.currentTimeMicros();
+        for(int s=0; s<count; s++) {
+            packedTessellator.tessellate(packed.get(s));
+        }
+        final long t5 = Platform.currentTimeMicros();
+        Assert.assertEquals(count, packedTessellator.getCacheHitCount());
+
+        System.err.printf("Summary %d shapes, %d points: memory objects %d bytes/point, packed %d bytes/point%n",
+                count, points, shapeBytes / points, packedBytes / points);
+        System.err.printf("Summary 1 shape, %d points: memory objects %d bytes/point, packed %d bytes/point%n",
+                largePoints, largeShapeBytes / largePoints, largePackedBytes / largePoints);
+        System.err.printf("Summary bounds objects %.2f ms, packed %.2f ms; tessellation objects %.2f ms, packed %.2f ms, packed cached %.2f ms%n",
+                (t1-t0)/1000.0, (t2-t1)/1000.0, (t3-t2)/1000.0, (t4-t3)/1000.0, (t5-t4)/1000.0);
+        // heap measurements above are informal, the packed storage is exactly sized
+        Assert.assertEquals(largePoints, largePacked.getVertexCapacity());
+    }
+
+    public static void main(final String args[]) throws IOException {
+        org.junit.runner.JUnitCore.main(TestPackedOutlineShape01NOUI.class.getName());
+    }
+}
@@ -0,0 +1,277 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.graph;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.FixMethodOrder;
+import org.junit.runners.MethodSorters;
+
+import jogamp.graph.geom.plane.AffineTransform;
+
+import com.jogamp.common.os.Platform;
+import com.jogamp.graph.curve.OutlineShape;
+import com.jogamp.graph.curve.Region;
+import com.jogamp.graph.curve.ShapeTessellator;
+import com.jogamp.graph.curve.TessellatedShape;
+import com.jogamp.graph.geom.SVertex;
+import com.jogamp.opengl.math.geom.AABBox;
+
+/**
+ * Validates in place replacement of shape ranges within a {@link Region},
+ * i.e. {@link Region#replaceOutlineShape(int, OutlineShape, AffineTransform, float[])}
+ * and {@link Region#replaceTessellatedShape(int, TessellatedShape, AffineTransform, float[])},
+ * compared to rebuilding the region. Requires no GPU.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestRegionReplaceShape01NOUI {
+
+    /** Records the pushed and replaced vertices and indices, as well as the number of replaced ones. */
+    static class RecordingRegion extends Region {
+        final ArrayList<Float> vertices = new ArrayList<Float>();
+        final ArrayList<Integer> indices = new ArrayList<Integer>();
+        int replacedVertices = 0;
+        int replacedIndices = 0;
+
+        RecordingRegion() {
+            super(0);
+        }
+        @Override
+        protected void pushVertex(final float[] coords, final float[] texParams, final float[] rgba) {
+            for(int i=0; i<3; i++) {
+                vertices.add(coords[i]);
+            }
+            for(int i=0; i<3; i++) {
+                vertices.add(texParams[i]);
+            }
+        }
+        @Override
+        protected void pushIndex(final int idx) {
+            indices.add(idx);
+        }
+        @Override
+        public boolean supportsShapeReplacement() { return true; }
+        @Override
+        protected void replaceVertex(final int index, final float[] coords, final float[] texParams, final float[] rgba) {
+            for(int i=0; i<3; i++) {
+                vertices.set(6*index+i, coords[i]);
+            }
+            for(int i=0; i<3; i++) {
+                vertices.set(6*index+3+i, texParams[i]);
+            }
+            replacedVertices++;
+        }
+        @Override
+        protected void replaceIndex(final int position, final int idx) {
+            indices.set(position, idx);
+            replacedIndices++;
+        }
+        void clear() {
+            vertices.clear();
+            indices.clear();
+            clearImpl();
+        }
+        void drawn() {
+            clearDirtyBits(DIRTY_SHAPE|DIRTY_SHAPE_RANGE|DIRTY_STATE);
+        }
+    }
+
+    static OutlineShape createShape(final int seed) {
+        return TestShapeTessellator01NOUI.createShape(seed);
+    }
+
+    static AffineTransform translate(final float x, final float y) {
+        final AffineTransform t = new AffineTransform();
+        t.setToTranslation(x, y);
+        return t;
+    }
+
+    @Test
+    public void test01ReplaceOutlineShape() {
+        final int count = 100;
+        final ArrayList<OutlineShape> shapes = new ArrayList<OutlineShape>();
+        for(int i=0; i<count; i++) {
+            shapes.add(createShape(i));
+        }
+        final RecordingRegion region = new RecordingRegion();
+        for(int i=0; i<count; i++) {
+            region.addOutlineShape(shapes.get(i), translate(i, 0), null);
+        }
+        Assert.assertEquals(count, region.getShapeCount());
+        final AABBox bounds0 = new AABBox().copy(region.getBounds());
+        region.drawn();
+
+        // move one shape
+        final int k = 42;
+        final int vertexCount = region.vertices.size();
+        Assert.assertTrue(region.replaceOutlineShape(k, shapes.get(k), translate(k, 100), null));
+        Assert.assertTrue(region.isShapeRangeDirty());
+        Assert.assertFalse(region.isShapeDirty());
+        Assert.assertEquals(vertexCount, region.vertices.size());
+
+        final RecordingRegion expected = new RecordingRegion();
+        for(int i=0; i<count; i++) {
+            expected.addOutlineShape(shapes.get(i), i == k ? translate(k, 100) : translate(i, 0), null);
+        }
+        Assert.assertEquals(expected.vertices, region.vertices);
+        Assert.assertEquals(expected.indices, region.indices);
+        Assert.assertEquals(expected.getBounds(), region.getBounds());
+        Assert.assertEquals(new ShapeTessellator(null, 0).tessellate(shapes.get(k)).getVertexCount(), region.replacedVertices);
+
+        // moving it back shrinks the bounding box again
+        Assert.assertTrue(region.replaceOutlineShape(k, shapes.get(k), translate(k, 0), null));
+        Assert.assertEquals(bounds0, region.getBounds());
+        Assert.assertTrue(region.replaceOutlineShape(k, shapes.get(k), translate(k, -100), null));
+        Assert.assertTrue(region.replaceOutlineShape(k, shapes.get(k), translate(k, 0), null));
+        Assert.assertEquals(bounds0, region.getBounds());
+    }
+
+    @Test
+    public void test02ReplaceBatch() throws InterruptedException {
+        final int count = 200;
+        final ArrayList<OutlineShape> shapes = new ArrayList<OutlineShape>();
+        for(int i=0; i<count; i++) {
+            shapes.add(createShape(i));
+        }
+        final ShapeTessellator tessellator = new ShapeTessellator(null, count);
+        final TessellatedShape tess = tessellator.tessellate(shapes);
+        final RecordingRegion region = new RecordingRegion();
+        region.addOutlineShape(createShape(1000), null, null);
+        region.addTessellatedShape(tess, null, null);
+        Assert.assertEquals(1 + count, region.getShapeCount());
+
+        // replace a shape of the batch by a shape of equal topology, i.e. itself
+        final int k = 17;
+        Assert.assertTrue(region.replaceTessellatedShape(1 + k, tessellator.tessellate(shapes.get(k)), translate(0, 50), null));
+        final RecordingRegion expected = new RecordingRegion();
+        expected.addOutlineShape(createShape(1000), null, null);
+        for(int i=0; i<count; i++) {
+            expected.addOutlineShape(shapes.get(i), i == k ? translate(0, 50) : null, null);
+        }
+        Assert.assertEquals(expected.vertices, region.vertices);
+        Assert.assertEquals(expected.indices, region.indices);
+
+        // replace the whole batch, moving it
+        Assert.assertTrue(region.replaceTessellatedShape(1, tess, translate(5, 5), null));
+        expected.clear();
+        expected.addOutlineShape(createShape(1000), null, null);
+        expected.addTessellatedShape(tess, translate(5, 5), null);
+        Assert.assertEquals(expected.vertices, region.vertices);
+        Assert.assertEquals(expected.indices, region.indices);
+    }
+
+    @Test
+    public void test03Mismatch() {
+        final RecordingRegion region = new RecordingRegion();
+        for(int i=0; i<10; i++) {
+            region.addOutlineShape(createShape(i), null, null);
+        }
+        final ArrayList<Float> vertices = new ArrayList<Float>(region.vertices);
+        final ArrayList<Integer> indices = new ArrayList<Integer>(region.indices);
+        int k = 0;
+        final int n = new ShapeTessellator(null, 0).tessellate(createShape(3)).getVertexCount();
+        while( n == new ShapeTessellator(null, 0).tessellate(createShape(k)).getVertexCount() ) {
+            k++;
+        }
+        Assert.assertFalse(region.replaceOutlineShape(3, createShape(k), null, null));
+        Assert.assertFalse(region.isShapeRangeDirty());
+        Assert.assertEquals(vertices, region.vertices);
+        Assert.assertEquals(indices, region.indices);
+        Assert.assertEquals(0, region.replacedVertices);
+        try {
+            region.replaceOutlineShape(10, createShape(0), null, null);
+            Assert.fail("IndexOutOfBoundsException expected");
+        } catch(final IndexOutOfBoundsException e) { }
+
+        region.clear();
+        Assert.assertEquals(0, region.getShapeCount());
+
+        final Region unsupported = new Region(0) {
+            @Override
+            protected void pushVertex(final float[] coords, final float[] texParams, final float[] rgba) { }
+            @Override
+            protected void pushIndex(final int idx) { }
+        };
+        unsupported.addOutlineShape(createShape(0), null, null);
+        Assert.assertFalse(unsupported.supportsShapeReplacement());
+        Assert.assertFalse(unsupported.replaceOutlineShape(0, createShape(0), null, null));
+        Assert.assertFalse(unsupported.isShapeRangeDirty());
+    }
+
+    @Test
+    public void test10Perf() throws InterruptedException {
+        final int count = 10000;
+        final int loops = 100;
+        final ArrayList<OutlineShape> shapes = new ArrayList<OutlineShape>();
+        for(int i=0; i<count; i++) {
+            shapes.add(createShape(i));
+        }
+        final List<AffineTransform> transforms = new ArrayList<AffineTransform>();
+        for(int i=0; i<count; i++) {
+            transforms.add(translate(i % 100, i / 100));
+        }
+        final RecordingRegion region = new RecordingRegion();
+        for(int i=0; i<count; i++) {
+            region.addOutlineShape(shapes.get(i), transforms.get(i), null);
+        }
+        final int totalVertices = region.vertices.size() / 6;
+        final int totalIndices = region.indices.size();
+
+        // full rebuild, moving one shape
+        final long t0 = Platform.currentTimeMicros();
+        for(int l=0; l<loops; l++) {
+            region.clear();
+            transforms.set(l, translate(l, l));
+            for(int i=0; i<count; i++) {
+                region.addOutlineShape(shapes.get(i), transforms.get(i), null);
+            }
+        }
+        final long t1 = Platform.currentTimeMicros();
+        // replace, moving one shape
+        region.replacedVertices = 0;
+        region.replacedIndices = 0;
+        for(int l=0; l<loops; l++) {
+            Assert.assertTrue(region.replaceOutlineShape(l, shapes.get(l), translate(l+1, l), null));
+        }
+        final long t2 = Platform.currentTimeMicros();
+        final int replacedVertices = region.replacedVertices / loops;
+        final int replacedIndices = region.replacedIndices / loops;
+
+        System.err.printf("Summary move 1 of %d shapes: rebuild %.3f ms, %d vertices, %d indices; replace %.3f ms, %d vertices, %d indices%n",
+                count, (t1-t0)/1000.0/loops, totalVertices, totalIndices, (t2-t1)/1000.0/loops, replacedVertices, replacedIndices);
+        Assert.assertTrue(100 * replacedVertices < totalVertices);
+    }
+
+    public static void main(final String args[]) throws IOException {
+        org.junit.runner.JUnitCore.main(TestRegionReplaceShape01NOUI.class.getName());
+    }
+}
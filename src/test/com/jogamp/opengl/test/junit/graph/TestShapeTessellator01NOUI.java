@@ -0,0 +1,243 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.graph;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.FixMethodOrder;
+import org.junit.runners.MethodSorters;
+
+import com.jogamp.common.os.Platform;
+import com.jogamp.graph.curve.OutlineShape;
+import com.jogamp.graph.curve.Region;
+import com.jogamp.graph.curve.ShapeTessellator;
+import com.jogamp.graph.curve.TessellatedShape;
+import com.jogamp.graph.geom.SVertex;
+
+/**
+ * Validates the concurrent batch tessellation of {@link ShapeTessellator} against
+ * {@link Region#addOutlineShapes(java.util.List, jogamp.graph.geom.plane.AffineTransform, float[])}
+ * and its cache. Benchmarks building a region of many shapes. Requires no GPU.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestShapeTessellator01NOUI {
+
+    /** Records the pushed vertices and indices */
+    static class RecordingRegion extends Region {
+        final ArrayList<Float> vertices = new ArrayList<Float>();
+        final ArrayList<Integer> indices = new ArrayList<Integer>();
+
+        RecordingRegion() {
+            super(0);
+        }
+        @Override
+        protected void pushVertex(final float[] coords, final float[] texParams, final float[] rgba) {
+            for(int i=0; i<3; i++) {
+                vertices.add(coords[i]);
+            }
+            for(int i=0; i<3; i++) {
+                vertices.add(texParams[i]);
+            }
+        }
+        @Override
+        protected void pushIndex(final int idx) {
+            indices.add(idx);
+        }
+    }
+
+    /** Star with curved tips and an optional hole */
+    static OutlineShape createShape(final long seed) {
+        final Random rnd = new Random(seed);
+        final OutlineShape shape = new OutlineShape(SVertex.factory());
+        final float cx = rnd.nextFloat() * 1000f;
+        final float cy = rnd.nextFloat() * 1000f;
+        final int points = 3 + rnd.nextInt(8);
+        final float r = 5f + rnd.nextFloat() * 20f;
+        for(int i=0; i<2*points; i++) {
+            final double a = Math.PI * i / points;
+            final float ri = 0 == ( i & 1 ) ? r : r * 0.5f;
+            shape.addVertex(cx + ri * (float)Math.cos(a), cy + ri * (float)Math.sin(a), 1 == ( i % 4 ) ? false : true);
+        }
+        shape.closeLastOutline(true);
+        if( rnd.nextBoolean() ) {
+            final float h = r * 0.2f;
+            shape.addEmptyOutline();
+            shape.addVertex(cx - h, cy - h, true);
+            shape.addVertex(cx - h, cy + h, true);
+            shape.addVertex(cx + h, cy + h, true);
+            shape.addVertex(cx + h, cy - h, true);
+            shape.closeLastOutline(true);
+        }
+        return shape;
+    }
+
+    static ArrayList<OutlineShape> createShapes(final int count) {
+        final ArrayList<OutlineShape> shapes = new ArrayList<OutlineShape>(count);
+        for(int i=0; i<count; i++) {
+            shapes.add(createShape(i));
+        }
+        return shapes;
+    }
+
+    @Test
+    public void test01SameAsRegion() throws InterruptedException {
+        final int count = 500;
+        final RecordingRegion expected = new RecordingRegion();
+        expected.addOutlineShapes(createShapes(count), null, null);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final ShapeTessellator tessellator = new ShapeTessellator(executor, 0);
+            final TessellatedShape tess = tessellator.tessellate(createShapes(count));
+            Assert.assertEquals(count, tess.getShapeCount());
+            Assert.assertEquals(count, tessellator.getCacheMissCount());
+            final RecordingRegion actual = new RecordingRegion();
+            actual.addTessellatedShape(tess, null, null);
+            Assert.assertEquals(expected.vertices, actual.vertices);
+            Assert.assertEquals(expected.indices, actual.indices);
+            Assert.assertEquals(expected.getBounds(), actual.getBounds());
+            Assert.assertEquals(tess.getIndexCount(), actual.indices.size());
+            Assert.assertTrue(actual.isShapeDirty());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test02Cache() throws InterruptedException {
+        final int count = 300;
+        final ShapeTessellator tessellator = new ShapeTessellator(null, 1000);
+        final TessellatedShape t0 = tessellator.tessellate(createShapes(count));
+        Assert.assertEquals(count, tessellator.getCacheMissCount());
+        Assert.assertEquals(0, tessellator.getCacheHitCount());
+        Assert.assertEquals(count, tessellator.getCacheCount());
+
+        // re-created unchanged shapes are not triangulated again
+        final ArrayList<OutlineShape> shapes = createShapes(count);
+        final TessellatedShape t1 = tessellator.tessellate(shapes);
+        Assert.assertEquals(count, tessellator.getCacheMissCount());
+        Assert.assertEquals(count, tessellator.getCacheHitCount());
+        Assert.assertEquals(t0.getVertexCount(), t1.getVertexCount());
+        Assert.assertEquals(t0.getIndexCount(), t1.getIndexCount());
+
+        // changed shape and duplicate instance
+        final OutlineShape changed = createShape(0);
+        changed.setSharpness(0.7f);
+        final ArrayList<OutlineShape> shapes2 = new ArrayList<OutlineShape>();
+        shapes2.add(changed);
+        shapes2.add(changed);
+        final TessellatedShape t2 = tessellator.tessellate(shapes2);
+        Assert.assertEquals(count + 1, tessellator.getCacheMissCount());
+        Assert.assertEquals(2, t2.getShapeCount());
+        Assert.assertEquals(2 * tessellator.tessellate(createShape(0)).getIndexCount(), t2.getIndexCount());
+
+        tessellator.clearCache();
+        Assert.assertEquals(0, tessellator.getCacheCount());
+        Assert.assertEquals(0, tessellator.getCacheHitCount());
+    }
+
+    @Test
+    public void test03Hash() {
+        Assert.assertEquals(ShapeTessellator.getHash(createShape(1)), ShapeTessellator.getHash(createShape(1)));
+        Assert.assertNotEquals(ShapeTessellator.getHash(createShape(1)), ShapeTessellator.getHash(createShape(2)));
+        final OutlineShape s = createShape(1);
+        s.addVertex(0, 0, 0.1f, true);
+        Assert.assertNotEquals(ShapeTessellator.getHash(createShape(1)), ShapeTessellator.getHash(s));
+    }
+
+    @Test
+    public void test04IndexRange() throws InterruptedException {
+        final ShapeTessellator tessellator = new ShapeTessellator(null, 0);
+        final TessellatedShape tess = tessellator.tessellate(createShapes(2000));
+        Assert.assertTrue(tess.getVertexCount() <= 0x10000);
+        final RecordingRegion region = new RecordingRegion();
+        region.addTessellatedShape(tess, null, null);
+        final int indexCount = region.indices.size();
+        try {
+            region.addTessellatedShape(tess, null, null);
+            Assert.fail("16-bit index range overflow not detected");
+        } catch (final IllegalArgumentException e) {
+            // expected, nothing pushed
+            Assert.assertEquals(indexCount, region.indices.size());
+        }
+    }
+
+    @Test
+    public void test10Perf() throws InterruptedException {
+        final int count = 20000;
+        final int batch = 2000; // within 16-bit index range per region
+        final int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final ArrayList<OutlineShape> shapes0 = createShapes(count);
+            final ArrayList<OutlineShape> shapes1 = createShapes(count);
+            final ArrayList<OutlineShape> shapes2 = createShapes(count);
+            final ShapeTessellator tessellator = new ShapeTessellator(executor, count);
+
+            final long t0 = Platform.currentTimeMillis();
+            int indices0 = 0;
+            for(int i=0; i<count; i+=batch) {
+                final RecordingRegion r0 = new RecordingRegion();
+                r0.addOutlineShapes(shapes0.subList(i, i+batch), null, null);
+                indices0 += r0.indices.size();
+            }
+            final long t1 = Platform.currentTimeMillis();
+            int indices1 = 0;
+            for(int i=0; i<count; i+=batch) {
+                final RecordingRegion r1 = new RecordingRegion();
+                r1.addTessellatedShape(tessellator.tessellate(shapes1.subList(i, i+batch)), null, null);
+                indices1 += r1.indices.size();
+            }
+            final long t2 = Platform.currentTimeMillis();
+            int indices2 = 0;
+            for(int i=0; i<count; i+=batch) {
+                final RecordingRegion r2 = new RecordingRegion();
+                r2.addTessellatedShape(tessellator.tessellate(shapes2.subList(i, i+batch)), null, null);
+                indices2 += r2.indices.size();
+            }
+            final long t3 = Platform.currentTimeMillis();
+
+            Assert.assertEquals(indices0, indices1);
+            Assert.assertEquals(indices0, indices2);
+            System.err.printf("Summary %d shapes, %d threads: sequential %d ms, batch %d ms, cached rebuild %d ms%n",
+                    count, threads, t1-t0, t2-t1, t3-t2);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public static void main(final String args[]) throws IOException {
+        org.junit.runner.JUnitCore.main(TestShapeTessellator01NOUI.class.getName());
+    }
+}
@@ -0,0 +1,207 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.graph;
+
+import java.io.IOException;
+
+import jogamp.graph.font.typecast.ot.Point;
+import jogamp.graph.font.typecast.ot.table.CharstringType2;
+import jogamp.graph.font.typecast.t2.T2Interpreter;
+import jogamp.graph.font.typecast.t2.T2Program;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.FixMethodOrder;
+import org.junit.runners.MethodSorters;
+
+/**
+ * Validates the {@link T2Program} execution of the Type 2 charstring {@link T2Interpreter}
+ * against outline points recorded with the previous, per operand boxing implementation.
+ * <p>
+ * Only <code>index</code> differs, which always failed before and now copies the addressed element.
+ * </p>
+ * Requires no GPU.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestT2Interpreter01NOUI {
+
+    /** Charstring w/o subroutine indices, operands <code>v</code> in [-107..107] are encoded as <code>v+139</code> */
+    static class Charstring extends CharstringType2 {
+        Charstring(final int ... data) {
+            super(0, "test", data, 0, data.length, null, null);
+        }
+    }
+
+    /**
+     * Asserts the outline points given as <code>x, y, onCurve</code> triples,
+     * the last one closing the contour.
+     */
+    static void assertPoints(final int[] expected, final Charstring cs) {
+        final T2Program program = cs.getProgram();
+        Assert.assertSame(program, cs.getProgram());
+
+        final T2Interpreter interpreter = new T2Interpreter();
+        final Point[] points = interpreter.execute(cs);
+        Assert.assertNotNull(points);
+        Assert.assertEquals(expected.length / 3, points.length);
+        for(int i=0; i<points.length; i++) {
+            Assert.assertEquals("x["+i+"]", expected[i*3+0], points[i].x);
+            Assert.assertEquals("y["+i+"]", expected[i*3+1], points[i].y);
+            Assert.assertEquals("onCurve["+i+"]", 1 == expected[i*3+2], points[i].onCurve);
+            Assert.assertEquals("endOfContour["+i+"]", i == points.length - 1, points[i].endOfContour);
+        }
+        // re-executed program yields the same points
+        final Point[] points2 = interpreter.execute(program);
+        Assert.assertEquals(points.length, points2.length);
+        for(int i=0; i<points.length; i++) {
+            Assert.assertEquals(points[i].x, points2[i].x);
+            Assert.assertEquals(points[i].y, points2[i].y);
+        }
+    }
+
+    @Test
+    public void test01Lines() {
+        assertPoints(new int[] { 10, 20, 1,  15, 20, 1,  15, 25, 1,  10, 25, 1 },
+                     new Charstring(
+                        149, 159, 21,                       // 10 20 rmoveto
+                        144, 139, 139, 144, 134, 139, 5,    // 5 0 0 5 -5 0 rlineto
+                        14));                               // endchar
+    }
+
+    @Test
+    public void test02Curves() {
+        assertPoints(new int[] { 10, 0, 0,  20, 10, 0,  20, 20, 1,  40, 40, 0,  30, 50, 0,  35, 55, 1 },
+                     new Charstring(
+                        149, 139, 149, 149, 139, 149,       // 10 0 10 10 0 10
+                        159, 159, 129, 149, 144, 144, 8,    // 20 20 -10 10 5 5 rrcurveto
+                        14));
+        assertPoints(new int[] { 10, 3, 0,  15, 8, 0,  25, 8, 1,  29, 8, 0,  33, 12, 0,  37, 12, 1 },
+                     new Charstring(
+                        142, 149, 144, 144, 149,            // 3 10 5 5 10
+                        143, 143, 143, 143, 27,             // 4 4 4 4 hhcurveto
+                        14));
+        // vvcurveto is not implemented, the current point stays
+        assertPoints(new int[] { 1, 1, 1 },
+                     new Charstring(
+                        142, 149, 144, 144, 149, 26,        // 3 10 5 5 10 vvcurveto
+                        140, 140, 5,                        // 1 1 rlineto
+                        14));
+        assertPoints(new int[] { 10, 0, 0,  15, 5, 0,  15, 15, 1,  15, 25, 0,  20, 30, 0,  30, 30, 1,
+                                 40, 30, 0,  45, 35, 0,  45, 45, 1,  45, 55, 0,  50, 60, 0,  60, 63, 1 },
+                     new Charstring(
+                        149, 144, 144, 149, 149, 144, 144, 149, 31,         // 10 5 5 10 10 5 5 10 hvcurveto
+                        149, 144, 144, 149, 149, 144, 144, 149, 142, 31,    // 10 5 5 10 10 5 5 10 3 hvcurveto
+                        14));
+        // 4 argument vhcurveto is not implemented
+        assertPoints(new int[] { 0, 10, 0,  5, 15, 0,  15, 15, 1,  25, 15, 0,  30, 20, 0,  30, 30, 1,
+                                 30, 40, 0,  35, 45, 0,  45, 45, 1,  55, 45, 0,  60, 50, 0,  63, 60, 1,  64, 61, 1 },
+                     new Charstring(
+                        149, 144, 144, 149, 149, 144, 144, 149, 30,         // 10 5 5 10 10 5 5 10 vhcurveto
+                        149, 144, 144, 149, 149, 144, 144, 149, 142, 30,    // 10 5 5 10 10 5 5 10 3 vhcurveto
+                        149, 144, 144, 149, 30,                             // 10 5 5 10 vhcurveto
+                        140, 140, 5,                                        // 1 1 rlineto
+                        14));
+    }
+
+    @Test
+    public void test03Flex() {
+        // flex, hflex, hflex1 and flex1 are not implemented, they only clear the arguments
+        assertPoints(new int[] { 1, 1, 1,  2, 2, 1,  3, 3, 1,  4, 4, 1 },
+                     new Charstring(
+                        149, 139, 149, 149, 149, 139, 149, 139, 149, 129, 149, 139, 189, 12, 35,    // .. 50 flex
+                        140, 140, 5,
+                        149, 149, 144, 149, 149, 134, 149, 12, 34,                                  // .. hflex
+                        140, 140, 5,
+                        149, 140, 144, 149, 149, 144, 149, 140, 149, 12, 36,                        // .. hflex1
+                        140, 140, 5,
+                        149, 140, 149, 149, 149, 139, 149, 139, 149, 129, 149, 12, 37,              // .. flex1
+                        140, 140, 5,
+                        14));
+    }
+
+    @Test
+    public void test04Subroutines() {
+        // subroutine calls are not implemented, their arguments remain on the stack
+        assertPoints(new int[] { 3, 4, 1,  3, 6, 1 },
+                     new Charstring(
+                        142, 143, 139, 29,                  // 3 4 0 callgsubr
+                        141, 10,                            // 2 callsubr
+                        5,                                  // rlineto
+                        11,                                 // return
+                        14));
+    }
+
+    @Test
+    public void test05Arithmetic() {
+        assertPoints(new int[] { 7, 8, 1,  21, 11, 1,  19, 20, 1,  24, 25, 1,  26, 26, 1,  26, 27, 1,  27, 27, 1,  28, 32, 1 },
+                     new Charstring(
+                        142, 143, 12, 10, 149, 141, 12, 11, 21,             // 3 4 add 10 2 sub rmoveto
+                        146, 141, 12, 24, 148, 142, 12, 12, 5,              // 7 2 mul 9 3 div rlineto
+                        141, 12, 14, 148, 12, 9, 5,                         // 2 neg 9 abs rlineto
+                        155, 12, 26, 144, 12, 27, 5,                        // 16 sqrt 5 dup rlineto
+                        140, 141, 12, 28, 5,                                // 1 2 exch rlineto
+                        140, 139, 12, 3, 140, 139, 12, 4, 5,                // 1 0 and 1 0 or rlineto
+                        142, 142, 12, 15, 142, 143, 12, 15, 5,              // 3 3 eq 3 4 eq rlineto
+                        139, 12, 5, 144, 141, 12, 18, 5,                    // 0 not 5 2 drop rlineto
+                        14));
+    }
+
+    @Test
+    public void test06Storage() {
+        assertPoints(new int[] { 7, 14, 1,  8, 16, 1 },
+                     new Charstring(
+                        146, 139, 12, 20,                                   // 7 0 put
+                        139, 12, 21, 139, 12, 21, 141, 12, 24, 5,           // 0 get 0 get 2 mul rlineto
+                        140, 141, 142, 143, 12, 22,                         // 1 2 3 4 ifelse
+                        140, 141, 143, 142, 12, 22, 5,                      // 1 2 4 3 ifelse rlineto
+                        14));
+    }
+
+    @Test
+    public void test07Roll() {
+        assertPoints(new int[] { 4, 1, 1,  6, 4, 1,  8, 7, 1,  12, 8, 1 },
+                     new Charstring(
+                        140, 141, 142, 143, 143, 140, 12, 30, 5,            // 1 2 3 4 4 1 roll rlineto
+                        140, 141, 142, 143, 143, 138, 12, 30, 5,            // 1 2 3 4 4 -1 roll rlineto
+                        14));
+    }
+
+    @Test
+    public void test08Index() {
+        assertPoints(new int[] { 5, 6, 1,  12, 11, 1,  17, 17, 1,  23, 23, 1 },
+                     new Charstring(
+                        144, 145, 146, 141, 12, 29, 5,                      // 5 6 7 2 index rlineto
+                        144, 145, 139, 12, 29, 138, 12, 29, 5,              // 5 6 0 index -1 index rlineto
+                        14));
+    }
+
+    public static void main(final String args[]) throws IOException {
+        final String tstname = TestT2Interpreter01NOUI.class.getName();
+        org.junit.runner.JUnitCore.main(tstname);
+    }
+}
@@ -0,0 +1,257 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.graph;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+
+import jogamp.graph.font.typecast.ot.OTFont;
+import jogamp.graph.font.typecast.ot.OTFontCollection;
+import jogamp.graph.font.typecast.ot.OTGlyph;
+import jogamp.graph.font.typecast.ot.table.FpgmTable;
+import jogamp.graph.font.typecast.ot.table.GlyfDescript;
+import jogamp.graph.font.typecast.ot.table.MaxpTable;
+import jogamp.graph.font.typecast.ot.table.PrepTable;
+import jogamp.graph.font.typecast.ot.table.Table;
+import jogamp.graph.font.typecast.tt.engine.CompiledProgram;
+import jogamp.graph.font.typecast.tt.engine.Interpreter;
+import jogamp.graph.font.typecast.tt.engine.Parser;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.FixMethodOrder;
+import org.junit.runners.MethodSorters;
+
+import com.jogamp.common.os.Platform;
+import com.jogamp.common.util.IOUtil;
+
+/**
+ * Validates the {@link CompiledProgram} execution of the TrueType {@link Interpreter}
+ * and benchmarks the glyph outline throughput with and without hinting programs.
+ * Requires no GPU.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestTTInterpreter01NOUI {
+    static final String[] fontFiles = { "FreeMono.ttf", "FreeSans.ttf", "FreeSerif.ttf" };
+
+    static File getFontFile(final String name) throws IOException, URISyntaxException {
+        return new File(IOUtil.getResource("fonts/freefont/"+name, TestTTInterpreter01NOUI.class.getClassLoader(),
+                                           TestTTInterpreter01NOUI.class).getURL().toURI());
+    }
+
+    static short[] toInstructions(final int ... bytes) {
+        final short[] res = new short[bytes.length];
+        for(int i=0; i<bytes.length; i++) {
+            res[i] = (short) ( bytes[i] & 0xff );
+        }
+        return res;
+    }
+
+    static Interpreter createInterpreter(final OTFont font, final Parser parser) {
+        final MaxpTable maxp = font.getMaxpTable();
+        final Interpreter interpreter = new Interpreter(maxp.getMaxStackElements(), maxp.getMaxStorage(), maxp.getMaxFunctionDefs());
+        parser.setFontProgram((FpgmTable) font.getTable(Table.fpgm));
+        parser.setCvtProgram((PrepTable) font.getTable(Table.prep));
+        interpreter.setParser(parser);
+        interpreter.runFontProgram();
+        interpreter.runCvtProgram();
+        return interpreter;
+    }
+
+    static final short[] program = toInstructions(
+            0xB0, 0,                    //  0: PUSHB[1] 0
+            0x2C,                       //  2: FDEF
+            0xB0, 1, 0x60,              //  3:   PUSHB[1] 1, ADD
+            0x2D,                       //  6: ENDF
+            0xB1, 10, 0,                //  7: PUSHB[2] 10 0
+            0x2B,                       // 10: CALL            -> 11
+            0xB8, 0xFF, 0xFE,           // 11: PUSHW[1] -2
+            0x60,                       // 14: ADD             -> 9
+            0xB0, 0, 0x58,              // 15: PUSHB[1] 0, IF
+            0xB0, 1, 0x58,              // 18:   PUSHB[1] 1, IF
+            0xB0, 99,                   // 21:     PUSHB[1] 99
+            0x59,                       // 23:   EIF
+            0xB0, 98,                   // 24:   PUSHB[1] 98
+            0x1B,                       // 26: ELSE
+            0xB0, 7,                    // 27:   PUSHB[1] 7    -> 9 7
+            0x59,                       // 29: EIF
+            0xB1, 3, 1, 0x78,           // 30: PUSHB[2] 3 1, JROT
+            0xB0, 55,                   // 34: PUSHB[1] 55 (skipped)
+            0xB0, 8,                    // 36: PUSHB[1] 8      -> 9 7 8
+            0x40, 1, 3,                 // 38: NPUSHB 1 3
+            0xB0, 1, 0x61,              // 41: PUSHB[1] 1, SUB
+            0x20, 0xB8, 0xFF, 0xF8,     // 44: DUP, PUSHW[1] -8
+            0x23, 0x78                  // 48: SWAP, JROT to 41 while != 0 -> 9 7 8 0
+        );
+    static final int[] programResult = { 9, 7, 8, 0 };
+
+    static void assertStack(final Interpreter interpreter, final int[] expected) {
+        Assert.assertEquals(expected.length, interpreter.getStackDepth());
+        for(int i=0; i<expected.length; i++) {
+            Assert.assertEquals("stack["+i+"]", expected[i], interpreter.getStackElement(i));
+        }
+    }
+
+    @Test
+    public void test01CompiledProgram() {
+        final CompiledProgram cp = CompiledProgram.compile(program);
+        Assert.assertEquals(program.length, cp.getByteLength());
+        Assert.assertEquals(0, cp.getPosition(0));
+        Assert.assertEquals(cp.getCodeLength(), cp.getPosition(1)); // push data
+        Assert.assertEquals(cp.getCodeLength(), cp.getPosition(program.length));
+
+        final Interpreter interpreter = new Interpreter(16, 4, 4);
+        final Parser parser = new Parser();
+        parser.setFontProgram(program);
+        interpreter.setParser(parser);
+        interpreter.runFontProgram();
+        assertStack(interpreter, programResult);
+
+        // entry at a byte offset, the function is defined already
+        final Interpreter interpreter2 = new Interpreter(16, 4, 4);
+        interpreter2.setParser(parser);
+        interpreter2.execute(parser.getProgram(0), 0);
+        assertStack(interpreter2, programResult);
+        interpreter2.execute(15); // from the IF block: 7 8 0
+        Assert.assertEquals(programResult.length + 3, interpreter2.getStackDepth());
+        Assert.assertEquals(0, interpreter2.getStackElement(interpreter2.getStackDepth()-1));
+
+        // truncated push and unmatched IF
+        final CompiledProgram cp2 = CompiledProgram.compile(toInstructions(0xB0, 0, 0x58, 0xB2, 1));
+        final Interpreter interpreter3 = new Interpreter(16, 4, 4);
+        interpreter3.execute(cp2, 0);
+        Assert.assertEquals(0, interpreter3.getStackDepth());
+        Assert.assertEquals(0, CompiledProgram.compile(null).getCodeLength());
+    }
+
+    @Test
+    public void test02FontPrograms() throws IOException, URISyntaxException {
+        for(final String name : fontFiles) {
+            final OTFont font = OTFontCollection.create(getFontFile(name)).getFont(0);
+            final FpgmTable fpgm = (FpgmTable) font.getTable(Table.fpgm);
+            Assert.assertNotNull(fpgm);
+            Assert.assertSame(fpgm.getCompiledProgram(), fpgm.getCompiledProgram());
+
+            final Parser parser = new Parser();
+            final Interpreter interpreter = createInterpreter(font, parser);
+            int programs = 0, bytes = 0;
+            for(int i=0; i<font.getNumGlyphs(); i++) {
+                final GlyfDescript gd = font.getGlyfTable().getDescription(i);
+                if( null == gd ) {
+                    continue;
+                }
+                Assert.assertSame(gd, font.getGlyfTable().getDescription(i));
+                final CompiledProgram cp = gd.getCompiledProgram();
+                Assert.assertSame(cp, gd.getCompiledProgram());
+                Assert.assertEquals(null != gd.getInstructions() ? gd.getInstructions().length : 0, cp.getByteLength());
+                parser.setGlyphProgram(gd);
+                interpreter.runGlyphProgram();
+                if( 0 < cp.getByteLength() ) {
+                    programs++;
+                    bytes += cp.getByteLength();
+                }
+            }
+            System.err.println(name+": "+programs+" glyph programs, "+bytes+" bytes");
+            Assert.assertTrue(0 < programs);
+        }
+    }
+
+    static int outlines(final OTFont font) {
+        int points = 0;
+        for(int i=0; i<font.getNumGlyphs(); i++) {
+            final OTGlyph g = font.getGlyph(i);
+            if( null != g ) {
+                points += g.getPointCount();
+            }
+        }
+        return points;
+    }
+
+    static int hintedOutlines(final OTFont font, final Parser parser, final Interpreter interpreter, final boolean cached) {
+        int points = 0;
+        for(int i=0; i<font.getNumGlyphs(); i++) {
+            final GlyfDescript gd = font.getGlyfTable().getDescription(i);
+            if( null == gd ) {
+                continue;
+            }
+            if( cached ) {
+                parser.setGlyphProgram(gd);
+            } else {
+                parser.setGlyphProgram(gd.getInstructions());
+            }
+            interpreter.runGlyphProgram();
+            points += font.getGlyph(i).getPointCount();
+        }
+        return points;
+    }
+
+    @Test
+    public void test10Perf() throws IOException, URISyntaxException {
+        final OTFont font = OTFontCollection.create(getFontFile("FreeSerif.ttf")).getFont(0);
+        final Parser parser = new Parser();
+        final Interpreter interpreter = createInterpreter(font, parser);
+        final int glyphs = font.getNumGlyphs();
+        final int loops = 10;
+
+        // warm up
+        final int points = outlines(font);
+        for(int l=0; l<3; l++) {
+            Assert.assertEquals(points, outlines(font));
+            Assert.assertEquals(points, hintedOutlines(font, parser, interpreter, false));
+            Assert.assertEquals(points, hintedOutlines(font, parser, interpreter, true));
+        }
+
+        long t0 = Platform.currentTimeMicros();
+        for(int l=0; l<loops; l++) {
+            outlines(font);
+        }
+        final long tOutline = Platform.currentTimeMicros() - t0;
+
+        t0 = Platform.currentTimeMicros();
+        for(int l=0; l<loops; l++) {
+            hintedOutlines(font, parser, interpreter, false);
+        }
+        final long tCompile = Platform.currentTimeMicros() - t0;
+
+        t0 = Platform.currentTimeMicros();
+        for(int l=0; l<loops; l++) {
+            hintedOutlines(font, parser, interpreter, true);
+        }
+        final long tCached = Platform.currentTimeMicros() - t0;
+
+        final double n = (double)glyphs * loops;
+        System.err.printf("Summary %d glyphs x %d, %d points: outline %.0f glyphs/s, hinted compiled per glyph %.0f glyphs/s, hinted cached %.0f glyphs/s%n",
+                glyphs, loops, points, n * 1e6 / tOutline, n * 1e6 / tCompile, n * 1e6 / tCached);
+    }
+
+    public static void main(final String args[]) throws IOException {
+        final String tstname = TestTTInterpreter01NOUI.class.getName();
+        org.junit.runner.JUnitCore.main(tstname);
+    }
+}
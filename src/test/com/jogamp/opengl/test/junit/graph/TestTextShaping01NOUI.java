@@ -0,0 +1,163 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.graph;
+
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.FixMethodOrder;
+import org.junit.runners.MethodSorters;
+
+import com.jogamp.common.os.Platform;
+import com.jogamp.common.util.IOUtil;
+import com.jogamp.graph.font.Font;
+import com.jogamp.graph.font.FontFactory;
+import com.jogamp.graph.font.GlyphRun;
+
+/**
+ * Validates kerning, GSUB ligature substitution and the cached {@link GlyphRun} layout
+ * of {@link Font#getGlyphRun(CharSequence, float)}. Benchmarks layout throughput.
+ * Requires no GPU.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestTextShaping01NOUI {
+
+    static Font getFont(final String name) throws IOException {
+        return FontFactory.get(IOUtil.getResource("fonts/freefont/"+name,
+                TestTextShaping01NOUI.class.getClassLoader(), TestTextShaping01NOUI.class).getInputStream(), true);
+    }
+
+    static float getAdvanceSum(final Font font, final String text, final float pixelSize) {
+        float w = 0;
+        for(int i=0; i<text.length(); i++) {
+            w += font.getGlyph(text.charAt(i)).getAdvance(pixelSize, true);
+        }
+        return w;
+    }
+
+    @Test
+    public void test01Kerning() throws IOException {
+        final Font font = getFont("FreeSerif.ttf");
+        final float pixelSize = 48f;
+        final int idA = font.getGlyphID('A');
+        final int idV = font.getGlyphID('V');
+        Assert.assertTrue(0 < idA);
+        Assert.assertTrue(0 < idV);
+        Assert.assertEquals(font.getGlyph('A').getID() & 0xffff, idA);
+        final float kern = font.getKerning(idA, idV, pixelSize);
+        System.err.println("Kerning A-V: "+kern);
+        Assert.assertTrue(0 > kern);
+        Assert.assertEquals(0f, font.getKerning(idA, idA, pixelSize), 0f);
+
+        final GlyphRun run = font.getGlyphRun("AV", pixelSize);
+        System.err.println(run);
+        Assert.assertEquals(2, run.getGlyphCount());
+        Assert.assertEquals(0f, run.getX(0), 0f);
+        Assert.assertEquals(font.getGlyph('A').getAdvance(pixelSize, true) + kern, run.getX(1), 0.0001f);
+        Assert.assertTrue(run.getWidth() < getAdvanceSum(font, "AV", pixelSize));
+    }
+
+    @Test
+    public void test02Ligatures() throws IOException {
+        final Font font = getFont("FreeSerif.ttf");
+        final float pixelSize = 48f;
+        final String text = "office fish";
+        final GlyphRun run = font.getGlyphRun(text, pixelSize);
+        System.err.println(run);
+        Assert.assertEquals(7, run.getGlyphCount()); // o ffi c e fi s h
+        Assert.assertEquals(0, run.getGlyph(1).getSymbol()); // ligatures carry no symbol
+        Assert.assertEquals(0, run.getSymbol(1));
+        Assert.assertSame(font.getGlyphByID(run.getGlyphID(1)), run.getGlyph(1));
+        Assert.assertEquals('c', run.getGlyph(2).getSymbol());
+        Assert.assertEquals('c', run.getSymbol(2));
+        Assert.assertSame(font.getGlyph('c'), run.getGlyph(2));
+        final GlyphRun run2 = font.getGlyphRun("of fice", pixelSize);
+        Assert.assertEquals(5, run2.getGlyphCount()); // no ligature across a space: o f fi c e
+        for(int i=0; i<run.getGlyphCount(); i++) {
+            Assert.assertNotNull(run.getGlyph(i));
+        }
+    }
+
+    @Test
+    public void test03Lines() throws IOException {
+        final Font font = getFont("FreeSans.ttf");
+        final float pixelSize = 24f;
+        final GlyphRun run = font.getGlyphRun("ab\ncd e\n\nf", pixelSize);
+        final float lineHeight = font.getLineHeight(pixelSize);
+        Assert.assertEquals(4, run.getLineCount());
+        Assert.assertEquals(6, run.getGlyphCount());
+        Assert.assertEquals(0f, run.getY(0), 0f);
+        Assert.assertEquals(0f, run.getY(1), 0f);
+        Assert.assertEquals(0f, run.getX(2), 0f);
+        Assert.assertEquals(-lineHeight, run.getY(2), 0.0001f);
+        Assert.assertEquals(-lineHeight, run.getY(4), 0.0001f);
+        Assert.assertTrue(run.getX(4) > run.getX(3) + font.getAdvanceWidth(Font.Glyph.ID_SPACE, pixelSize));
+        Assert.assertEquals(0f, run.getX(5), 0f);
+        Assert.assertEquals(-3*lineHeight, run.getY(5), 0.0001f);
+        Assert.assertEquals(run.getWidth(), font.getMetricBounds("ab\ncd e\n\nf", pixelSize).getWidth(), 0f);
+    }
+
+    @Test
+    public void test04Cache() throws IOException {
+        final Font font = getFont("FreeSans.ttf");
+        final GlyphRun run = font.getGlyphRun("Cached", 24f);
+        Assert.assertSame(run, font.getGlyphRun(new StringBuilder("Cached"), 24f));
+        Assert.assertNotSame(run, font.getGlyphRun("Cached", 25f));
+        Assert.assertEquals(6, run.getGlyphCount());
+        Assert.assertSame(font, run.getFont());
+        Assert.assertEquals(24f, run.getPixelSize(), 0f);
+    }
+
+    @Test
+    public void test10Perf() throws IOException {
+        final Font font = getFont("FreeSerif.ttf");
+        final String text = "The office staff affirmed: AVAWAY To, Ty. Wafflè fjord 0123456789";
+        final int loops = 2000;
+        long tCached = 0, tShaped = 0;
+        int glyphs = 0;
+        for(int l=0; l<=loops; l++) {
+            final long t0 = Platform.currentTimeMicros();
+            glyphs = font.getGlyphRun(text, 32f).getGlyphCount();
+            final long t1 = Platform.currentTimeMicros();
+            // distinct pixel size defeats the cache
+            font.getGlyphRun(text, 32f + ( l % 1000 ) / 1000f + 1f);
+            final long t2 = Platform.currentTimeMicros();
+            if( 0 < l ) { // skip warm-up
+                tCached += t1 - t0;
+                tShaped += t2 - t1;
+            }
+        }
+        System.err.printf("Summary glyph layout: cached %.0f glyphs/s, shaped %.0f glyphs/s (%d glyphs per run)%n",
+                1e6 * glyphs * loops / Math.max(1, tCached), 1e6 * glyphs * loops / Math.max(1, tShaped), glyphs);
+    }
+
+    public static void main(final String args[]) throws IOException {
+        org.junit.runner.JUnitCore.main(TestTextShaping01NOUI.class.getName());
+    }
+}
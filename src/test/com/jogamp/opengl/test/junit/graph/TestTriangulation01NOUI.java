@@ -0,0 +1,256 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.graph;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.FixMethodOrder;
+import org.junit.runners.MethodSorters;
+
+import com.jogamp.common.os.Platform;
+import com.jogamp.common.util.IOUtil;
+import com.jogamp.graph.curve.OutlineShape;
+import com.jogamp.graph.curve.tess.Triangulation;
+import com.jogamp.graph.curve.tess.Triangulator;
+import com.jogamp.graph.font.Font;
+import com.jogamp.graph.font.FontFactory;
+import com.jogamp.graph.geom.Outline;
+import com.jogamp.graph.geom.SVertex;
+import com.jogamp.graph.geom.Triangle;
+import com.jogamp.graph.geom.Vertex;
+import com.jogamp.opengl.math.VectorUtil;
+import com.jogamp.opengl.math.geom.AABBox;
+
+/**
+ * Validates the {@link Triangulation.Type#SWEEP} triangulation of polygons with holes
+ * and of glyph outlines against the expected area and triangle count.
+ * Benchmarks it against {@link Triangulation.Type#CDT}. Requires no GPU.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestTriangulation01NOUI {
+
+    static Outline createPolygon(final float[] xy) {
+        final Outline o = new Outline();
+        for(int i=0; i<xy.length; i+=2) {
+            o.addVertex(SVertex.factory().create(xy[i], xy[i+1], 0f, true));
+        }
+        return o;
+    }
+
+    /** Comb with the given teeth, counter clockwise, having 4*teeth+2 vertices. */
+    static Outline createComb(final int teeth) {
+        final int n = 4*teeth+2;
+        final float[] xy = new float[2*n];
+        int i = 0;
+        xy[i++] = 0f;          xy[i++] = 0f;
+        xy[i++] = 2f*teeth;    xy[i++] = 0f;
+        for(int t=teeth-1; t>=0; t--) {
+            xy[i++] = 2f*t+2f; xy[i++] = 10f + ( t % 3 );
+            xy[i++] = 2f*t+1f; xy[i++] = 10f + ( t % 3 );
+            xy[i++] = 2f*t+1f; xy[i++] = 1f;
+            if( 0 < t ) {
+                xy[i++] = 2f*t; xy[i++] = 1f;
+            }
+        }
+        xy[i++] = 0f; xy[i++] = 10f;
+        return createPolygon(xy);
+    }
+
+    static float getArea(final ArrayList<Triangle> triangles) {
+        return getArea(triangles, true);
+    }
+
+    static float getArea(final ArrayList<Triangle> triangles, final boolean requireCCW) {
+        float area = 0;
+        for(int i=0; i<triangles.size(); i++) {
+            final Vertex[] v = triangles.get(i).getVertices();
+            final float a = VectorUtil.triAreaVec2(v[0], v[1], v[2]);
+            if( requireCCW ) {
+                Assert.assertTrue("CW triangle "+triangles.get(i), a >= 0);
+            }
+            area += Math.abs(a) / 2f;
+        }
+        return area;
+    }
+
+    static ArrayList<Triangle> triangulate(final Triangulation.Type type, final Outline... outlines) {
+        final ArrayList<Triangle> sink = new ArrayList<Triangle>();
+        final Triangulator triangulator = Triangulation.create(type);
+        for(int i=0; i<outlines.length; i++) {
+            triangulator.addCurve(sink, outlines[i], OutlineShape.DEFAULT_SHARPNESS);
+        }
+        triangulator.generate(sink);
+        triangulator.reset();
+        return sink;
+    }
+
+    @Test
+    public void test01Square() {
+        final ArrayList<Triangle> t = triangulate(Triangulation.Type.SWEEP, createPolygon(new float[] { 0,0, 1,0, 1,1, 0,1 }));
+        Assert.assertEquals(2, t.size());
+        Assert.assertEquals(1f, getArea(t), 0.0001f);
+        // clockwise input
+        final ArrayList<Triangle> t2 = triangulate(Triangulation.Type.SWEEP, createPolygon(new float[] { 0,0, 0,1, 1,1, 1,0 }));
+        Assert.assertEquals(2, t2.size());
+        Assert.assertEquals(1f, getArea(t2), 0.0001f);
+    }
+
+    @Test
+    public void test02Holes() {
+        final Outline outer = createPolygon(new float[] { 0,0, 10,0, 10,10, 0,10 });
+        final Outline hole1 = createPolygon(new float[] { 1,1, 4,1, 4,4, 1,4 });
+        final Outline hole2 = createPolygon(new float[] { 6,6, 9,8, 6,9 });
+        final Outline island = createPolygon(new float[] { 2,2, 3,2, 3,3, 2,3 });
+        final ArrayList<Triangle> t = triangulate(Triangulation.Type.SWEEP, outer, hole1, hole2, island);
+        final float area = 100f - 9f - 4.5f + 1f;
+        Assert.assertEquals(area, getArea(t), 0.0001f);
+        // n + 2h - 2 for the outer polygon, plus the island
+        Assert.assertEquals(11 + 4 - 2 + 2, t.size());
+    }
+
+    @Test
+    public void test03Comb() {
+        for(int teeth=1; teeth<50; teeth+=7) {
+            final Outline comb = createComb(teeth);
+            final float area = Math.abs(VectorUtil.area(comb.getVertices())) / 2f;
+            final ArrayList<Triangle> t = triangulate(Triangulation.Type.SWEEP, comb);
+            Assert.assertEquals(comb.getVertexCount() - 2, t.size());
+            Assert.assertEquals(area, getArea(t), 0.001f);
+        }
+    }
+
+    static Font getFont() throws IOException {
+        return FontFactory.get(IOUtil.getResource("fonts/freefont/FreeSans.ttf",
+                TestTriangulation01NOUI.class.getClassLoader(), TestTriangulation01NOUI.class).getInputStream(), true);
+    }
+
+    static int countCovering(final ArrayList<Triangle> triangles, final float x, final float y) {
+        int count = 0;
+        for(int i=0; i<triangles.size(); i++) {
+            final Vertex[] v = triangles.get(i).getVertices();
+            final float a = ( v[1].getX() - v[0].getX() ) * ( y - v[0].getY() ) - ( v[1].getY() - v[0].getY() ) * ( x - v[0].getX() );
+            final float b = ( v[2].getX() - v[1].getX() ) * ( y - v[1].getY() ) - ( v[2].getY() - v[1].getY() ) * ( x - v[1].getX() );
+            final float c = ( v[0].getX() - v[2].getX() ) * ( y - v[2].getY() ) - ( v[0].getY() - v[2].getY() ) * ( x - v[2].getX() );
+            if( ( a > 0 && b > 0 && c > 0 ) || ( a < 0 && b < 0 && c < 0 ) ) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /** Even-odd test against the outlines' control polygons */
+    static boolean isInside(final OutlineShape shape, final float x, final float y) {
+        boolean inside = false;
+        for(int o=0; o<shape.getOutlineNumber(); o++) {
+            final ArrayList<Vertex> vertices = shape.getOutline(o).getVertices();
+            final int size = vertices.size();
+            for(int i=0, j=size-1; i<size; j=i++) {
+                final Vertex v1 = vertices.get(i);
+                final Vertex v2 = vertices.get(j);
+                if ( ((v1.getY() > y) != (v2.getY() > y)) &&
+                      (x < (v2.getX() - v1.getX()) * (y - v1.getY()) / (v2.getY() - v1.getY()) + v1.getX()) ){
+                    inside = !inside;
+                }
+            }
+        }
+        return inside;
+    }
+
+    @Test
+    public void test04Glyphs() throws IOException {
+        final Font font = FontFactory.get(IOUtil.getResource("fonts/freefont/FreeSans.ttf",
+                TestTriangulation01NOUI.class.getClassLoader(), TestTriangulation01NOUI.class).getInputStream(), true);
+        final String text = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789@&%$§äöüß";
+        for(int i=0; i<text.length(); i++) {
+            final OutlineShape shape = font.getGlyph(text.charAt(i)).getShape();
+            if( null == shape ) {
+                continue;
+            }
+            shape.setTriangulationType(Triangulation.Type.SWEEP);
+            Assert.assertEquals(Triangulation.Type.SWEEP, shape.getTriangulationType());
+            final ArrayList<Triangle> triangles = shape.getTriangles(OutlineShape.VerticesState.QUADRATIC_NURBS);
+            Assert.assertTrue(0 < triangles.size());
+            getArea(triangles);
+            // inner triangles use the outline vertices, curve triangles use copies
+            final IdentityHashMap<Vertex, Vertex> outlineVertices = new IdentityHashMap<Vertex, Vertex>();
+            for(int o=0; o<shape.getOutlineNumber(); o++) {
+                for(final Vertex v : shape.getOutline(o).getVertices()) {
+                    outlineVertices.put(v, v);
+                }
+            }
+            final ArrayList<Triangle> inner = new ArrayList<Triangle>();
+            for(final Triangle t : triangles) {
+                final Vertex[] v = t.getVertices();
+                if( outlineVertices.containsKey(v[0]) && outlineVertices.containsKey(v[1]) && outlineVertices.containsKey(v[2]) ) {
+                    inner.add(t);
+                }
+            }
+            Assert.assertTrue(0 < inner.size());
+            // the inner triangles don't overlap and all triangles cover the control polygons
+            final AABBox box = shape.getBounds();
+            for(float x=box.getMinX()+0.37f; x<box.getMaxX(); x+=box.getWidth()/97f) {
+                for(float y=box.getMinY()+0.13f; y<box.getMaxY(); y+=box.getHeight()/89f) {
+                    Assert.assertTrue("Glyph '"+text.charAt(i)+"' overlap at "+x+"/"+y, 1 >= countCovering(inner, x, y));
+                    if( isInside(shape, x, y) ) {
+                        Assert.assertTrue("Glyph '"+text.charAt(i)+"' gap at "+x+"/"+y, 0 < countCovering(triangles, x, y));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test10Perf() {
+        final Outline comb = createComb(500);
+        final int loops = 10;
+        long tCDT = 0, tSweep = 0;
+        int nCDT = 0, nSweep = 0;
+        for(int l=0; l<=loops; l++) {
+            final long t0 = Platform.currentTimeMicros();
+            nCDT = triangulate(Triangulation.Type.CDT, comb).size();
+            final long t1 = Platform.currentTimeMicros();
+            nSweep = triangulate(Triangulation.Type.SWEEP, comb).size();
+            final long t2 = Platform.currentTimeMicros();
+            if( 0 < l ) { // skip warm-up
+                tCDT += t1 - t0;
+                tSweep += t2 - t1;
+            }
+        }
+        System.err.printf("Summary comb of %d vertices: CDT %.2f ms, %d triangles, sweep %.2f ms, %d triangles%n",
+                comb.getVertexCount(), tCDT/1000.0/loops, nCDT, tSweep/1000.0/loops, nSweep);
+        Assert.assertEquals(comb.getVertexCount() - 2, nSweep);
+    }
+
+    public static void main(final String args[]) throws IOException {
+        org.junit.runner.JUnitCore.main(TestTriangulation01NOUI.class.getName());
+    }
+}
@@ -0,0 +1,277 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.jogl.acore.anim;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import com.jogamp.common.os.Platform;
+import com.jogamp.opengl.GLAutoDrawable;
+import com.jogamp.opengl.util.AnimatorBase;
+import com.jogamp.opengl.util.FPSAnimator;
+import com.jogamp.opengl.util.FramePacingAnimator;
+import com.jogamp.opengl.util.FrameTimeHistogram;
+
+/**
+ * Validates {@link FrameTimeHistogram} and the {@link FramePacingAnimator} deadline scheduling
+ * w/o native surface, using a proxy {@link GLAutoDrawable} only counting its display calls,
+ * and compares the frame time jitter against {@link FPSAnimator}.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestFramePacingAnimator01NOUI {
+
+    static class DisplayCounter implements InvocationHandler {
+        final AtomicInteger count = new AtomicInteger(0);
+        final FrameTimeHistogram intervals = new FrameTimeHistogram();
+        volatile long displayMillis = 0;
+        long lastDisplay = 0;
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            final String name = method.getName();
+            if( "display".equals(name) ) {
+                count.incrementAndGet();
+                final long t = System.nanoTime();
+                if( 0 != lastDisplay ) {
+                    intervals.record(t - lastDisplay);
+                }
+                lastDisplay = t;
+                if( 0 < displayMillis ) {
+                    Thread.sleep(displayMillis);
+                }
+                return null;
+            } else if( "equals".equals(name) ) {
+                return Boolean.valueOf(proxy == args[0]);
+            } else if( "hashCode".equals(name) ) {
+                return Integer.valueOf(System.identityHashCode(proxy));
+            } else if( "toString".equals(name) ) {
+                return "DisplayCounter["+count.get()+"]";
+            }
+            final Class<?> rt = method.getReturnType();
+            if( boolean.class == rt ) {
+                return Boolean.FALSE;
+            } else if( int.class == rt ) {
+                return Integer.valueOf(0);
+            } else if( long.class == rt ) {
+                return Long.valueOf(0);
+            }
+            return null;
+        }
+    }
+
+    static GLAutoDrawable createDrawable(final DisplayCounter dc) {
+        return (GLAutoDrawable) Proxy.newProxyInstance(GLAutoDrawable.class.getClassLoader(),
+                                                       new Class<?>[] { GLAutoDrawable.class }, dc);
+    }
+
+    static final long MS = 1000000L;
+
+    @Test
+    public void test01HistogramValues() {
+        final FrameTimeHistogram h = new FrameTimeHistogram();
+        Assert.assertEquals(0, h.getCount());
+        Assert.assertEquals(0, h.getPercentile(50.0));
+        for(int i=1; i<=1000; i++) {
+            h.record(i * MS / 10); // 0.1 .. 100 ms
+        }
+        Assert.assertEquals(1000, h.getCount());
+        Assert.assertEquals(100 * MS, h.getMax());
+        Assert.assertEquals(MS / 10, h.getMin());
+        Assert.assertEquals(50.05 * MS, h.getMean(), MS / 1000.0);
+        // relative error below 1/SUB_BUCKETS
+        final double relErr = 1.0 / FrameTimeHistogram.SUB_BUCKETS;
+        Assert.assertEquals(50.0 * MS, h.getPercentile(50.0), 50.0 * MS * relErr);
+        Assert.assertEquals(95.0 * MS, h.getPercentile(95.0), 95.0 * MS * relErr);
+        Assert.assertEquals(99.0 * MS, h.getPercentile(99.0), 99.0 * MS * relErr);
+        Assert.assertEquals(100 * MS, h.getPercentile(100.0));
+        Assert.assertEquals(500, h.getCountAbove(50 * MS), 1000 * relErr);
+        System.err.println(h);
+
+        h.record(0);
+        h.record(-1);
+        h.record(Long.MAX_VALUE);
+        Assert.assertEquals(1003, h.getCount());
+        Assert.assertEquals(Long.MAX_VALUE, h.getMax());
+        Assert.assertEquals(0, h.getMin());
+
+        h.reset();
+        Assert.assertEquals(0, h.getCount());
+        Assert.assertEquals(0, h.getMax());
+        Assert.assertEquals(0, h.getCountAbove(0));
+    }
+
+    @Test
+    public void test02HistogramConcurrent() throws InterruptedException {
+        final FrameTimeHistogram h = new FrameTimeHistogram();
+        final int threadCount = 4;
+        final int perThread = 100000;
+        final Thread[] threads = new Thread[threadCount];
+        for(int t=0; t<threadCount; t++) {
+            final int tid = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for(int i=0; i<perThread; i++) {
+                        h.record( ( tid + 1 ) * MS );
+                    }
+                } }, "Recorder-"+t);
+        }
+        for(int t=0; t<threadCount; t++) {
+            threads[t].start();
+        }
+        long lastCount = 0;
+        while( threads[threadCount-1].isAlive() ) {
+            final long c = h.getCount();
+            Assert.assertTrue(c >= lastCount);
+            final long p50 = h.getPercentile(50.0);
+            Assert.assertTrue(0 == c || ( MS <= p50 && p50 <= threadCount * MS * 2 ));
+            lastCount = c;
+            Thread.yield();
+        }
+        for(int t=0; t<threadCount; t++) {
+            threads[t].join();
+        }
+        Assert.assertEquals(threadCount * perThread, h.getCount());
+        Assert.assertEquals(threadCount * MS, h.getMax());
+        Assert.assertEquals(MS, h.getMin());
+        Assert.assertEquals(perThread, h.getCountAbove(( threadCount - 1 ) * MS + MS / 2));
+    }
+
+    @Test
+    public void test03PacedFrameRate() throws InterruptedException {
+        final DisplayCounter dc = new DisplayCounter();
+        final FramePacingAnimator anim = new FramePacingAnimator(createDrawable(dc), 100);
+        Assert.assertTrue(anim.start());
+        Assert.assertTrue(anim.isStarted());
+        Thread.sleep(1000);
+        final int frames0 = dc.count.get();
+        Thread.sleep(1000);
+        final int frames = dc.count.get() - frames0;
+        final FrameTimeHistogram h = anim.getFrameTimeHistogram();
+        final long p50 = h.getPercentile(50.0);
+        final double mean = h.getMean();
+        Assert.assertTrue(anim.stop());
+        Assert.assertFalse(anim.isStarted());
+        System.err.println("Paced 100 fps: frames "+frames+"/s, missed "+anim.getMissedDeadlines()+", "+h);
+        // deadlines are absolute, i.e. no cumulative drift
+        Assert.assertEquals(100, frames, 3);
+        Assert.assertEquals(10.0 * MS, mean, 0.3 * MS);
+        Assert.assertEquals(10.0 * MS, p50, 10.0 * MS / FrameTimeHistogram.SUB_BUCKETS + MS);
+    }
+
+    @Test
+    public void test04MissedDeadlines() throws InterruptedException {
+        final DisplayCounter dc = new DisplayCounter();
+        dc.displayMillis = 25; // 100 fps requested, 40 fps possible
+        final FramePacingAnimator anim = new FramePacingAnimator(createDrawable(dc), 100);
+        anim.setFrameSkipping(true);
+        Assert.assertTrue(anim.start());
+        Thread.sleep(1000);
+        Assert.assertTrue(anim.stop());
+        final FrameTimeHistogram h = anim.getFrameTimeHistogram();
+        System.err.println("Skipping: frames "+dc.count.get()+", missed "+anim.getMissedDeadlines()+", skipped "+anim.getSkippedFrames()+", "+h);
+        Assert.assertTrue(0 < anim.getMissedDeadlines());
+        Assert.assertEquals(anim.getMissedDeadlines(), anim.getSkippedFrames());
+        // a late frame starts right away, while the deadlines passed meanwhile are dropped
+        Assert.assertEquals(25.0 * MS, h.getPercentile(50.0), 25.0 * MS / FrameTimeHistogram.SUB_BUCKETS + 2 * MS);
+        Assert.assertEquals(40, dc.count.get(), 4);
+
+        dc.count.set(0);
+        anim.setFrameSkipping(false);
+        Assert.assertTrue(anim.start());
+        Thread.sleep(1000);
+        Assert.assertTrue(anim.stop());
+        System.err.println("Catch-up: frames "+dc.count.get()+", missed "+anim.getMissedDeadlines()+", skipped "+anim.getSkippedFrames()+", "+anim.getFrameTimeHistogram());
+        // each late frame is counted once
+        Assert.assertTrue(0 < anim.getMissedDeadlines());
+        Assert.assertTrue(anim.getMissedDeadlines() <= dc.count.get());
+        Assert.assertEquals(0, anim.getSkippedFrames());
+    }
+
+    @Test
+    public void test05PauseResume() throws InterruptedException {
+        final DisplayCounter dc = new DisplayCounter();
+        final FramePacingAnimator anim = new FramePacingAnimator(createDrawable(dc), 50);
+        Assert.assertTrue(anim.start());
+        Thread.sleep(200);
+        Assert.assertTrue(anim.pause());
+        Assert.assertTrue(anim.isPaused());
+        Assert.assertFalse(anim.isAnimating());
+        final int frames0 = dc.count.get();
+        Thread.sleep(200);
+        Assert.assertEquals(frames0, dc.count.get());
+        Assert.assertTrue(anim.resume());
+        Assert.assertTrue(anim.isAnimating());
+        Thread.sleep(200);
+        Assert.assertTrue(anim.stop());
+        Assert.assertTrue(frames0 < dc.count.get());
+        // paused time is neither a frame time nor a missed deadline
+        Assert.assertEquals(0, anim.getMissedDeadlines());
+        Assert.assertTrue(anim.getFrameTimeHistogram().getMax() < 100 * MS);
+        try {
+            anim.setFPS(60);
+        } catch (final Exception e) {
+            Assert.fail("setFPS on stopped animator: "+e);
+        }
+    }
+
+    @Test
+    public void test10Perf() throws InterruptedException {
+        final int fps = 60;
+        final long durationMillis = 3000;
+        final double target = 1000.0 / fps;
+        final AnimatorBase[] anims = new AnimatorBase[2];
+        final DisplayCounter[] dcs = new DisplayCounter[] { new DisplayCounter(), new DisplayCounter() };
+        anims[0] = new FramePacingAnimator(createDrawable(dcs[0]), fps);
+        anims[1] = new FPSAnimator(createDrawable(dcs[1]), fps, true);
+        for(int i=0; i<anims.length; i++) {
+            final long t0 = Platform.currentTimeMicros();
+            anims[i].start();
+            Thread.sleep(durationMillis);
+            anims[i].stop();
+            final long dt = Platform.currentTimeMicros() - t0;
+            final FrameTimeHistogram h = dcs[i].intervals;
+            System.err.printf("Summary %-19s: %.2f fps, frame p50 %.3f ms, p99 %.3f ms, max %.3f ms, > 1.5 period %d, target %.3f ms%n",
+                    anims[i].getClass().getSimpleName(), dcs[i].count.get() * 1e6 / dt,
+                    h.getPercentile(50.0)/1e6, h.getPercentile(99.0)/1e6, h.getMax()/1e6,
+                    h.getCountAbove((long)(target * 1.5e6)), target);
+            Assert.assertTrue(0 < h.getCount());
+        }
+    }
+
+    public static void main(final String args[]) {
+        org.junit.runner.JUnitCore.main(TestFramePacingAnimator01NOUI.class.getName());
+    }
+}
@@ -0,0 +1,374 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.jogl.acore.anim;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import com.jogamp.common.os.Platform;
+import com.jogamp.opengl.GLAnimatorControl;
+import com.jogamp.opengl.GLAutoDrawable;
+import com.jogamp.opengl.util.Animator;
+import com.jogamp.opengl.util.AnimatorBase;
+import com.jogamp.opengl.util.ParallelAnimator;
+
+/**
+ * Validates the {@link ParallelAnimator} scheduling w/o native surface,
+ * using proxy {@link GLAutoDrawable}s only recording their display calls,
+ * and compares the frame rate of simulated 2 ms frames against {@link Animator}.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestParallelAnimator01NOUI {
+
+    static class StubDrawable implements InvocationHandler {
+        final ArrayList<StubDrawable> all;
+        final AtomicInteger count = new AtomicInteger(0);
+        final AtomicReference<String> failure;
+        final HashSet<Thread> threads = new HashSet<Thread>();
+        volatile long displayMillis = 0;
+        volatile boolean throwAtDisplay = false;
+        /** Validate frame barrier against all other validating drawables, i.e. animated since start */
+        volatile boolean checkBarrier = true;
+        volatile Thread ect = null;
+        volatile Thread lastThread = null;
+        GLAutoDrawable proxy;
+
+        StubDrawable(final ArrayList<StubDrawable> all, final AtomicReference<String> failure) {
+            this.all = all;
+            this.failure = failure;
+            proxy = (GLAutoDrawable) Proxy.newProxyInstance(GLAutoDrawable.class.getClassLoader(),
+                                                            new Class<?>[] { GLAutoDrawable.class }, this);
+            all.add(this);
+        }
+
+        void display() throws InterruptedException {
+            final Thread ct = Thread.currentThread();
+            if( null != ect && ct != ect ) {
+                failure.compareAndSet(null, "display on "+ct.getName()+" but ECT "+ect.getName());
+            }
+            final int frame = count.incrementAndGet();
+            synchronized(threads) {
+                threads.add(ct);
+            }
+            lastThread = ct;
+            // frame barrier: all others are done w/ frame-1 and did not start frame+1
+            for(int i=0; checkBarrier && i<all.size(); i++) {
+                final StubDrawable o = all.get(i);
+                final int f = o.count.get();
+                if( o.checkBarrier && ( f < frame - 1 || f > frame ) ) {
+                    failure.compareAndSet(null, "frame "+frame+", but other drawable at "+f);
+                }
+            }
+            if( 0 < displayMillis ) {
+                Thread.sleep(displayMillis);
+            }
+            if( throwAtDisplay ) {
+                throw new RuntimeException("Test exception at frame "+frame);
+            }
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            final String name = method.getName();
+            if( "display".equals(name) ) {
+                display();
+                return null;
+            } else if( "setExclusiveContextThread".equals(name) ) {
+                final Thread old = ect;
+                ect = (Thread) args[0];
+                return old;
+            } else if( "getExclusiveContextThread".equals(name) ) {
+                return ect;
+            } else if( "equals".equals(name) ) {
+                return Boolean.valueOf(proxy == args[0]);
+            } else if( "hashCode".equals(name) ) {
+                return Integer.valueOf(System.identityHashCode(proxy));
+            } else if( "toString".equals(name) ) {
+                return "StubDrawable["+count.get()+"]";
+            }
+            final Class<?> rt = method.getReturnType();
+            if( boolean.class == rt ) {
+                return Boolean.FALSE;
+            } else if( int.class == rt ) {
+                return Integer.valueOf(0);
+            } else if( long.class == rt ) {
+                return Long.valueOf(0);
+            }
+            return null;
+        }
+    }
+
+    /** Groups drawables by a given key, in lieu of a shared context set */
+    static class GroupingAnimator extends ParallelAnimator {
+        final IdentityHashMap<GLAutoDrawable, Object> keys = new IdentityHashMap<GLAutoDrawable, Object>();
+
+        GroupingAnimator(final int maxRenderThreads) {
+            super(maxRenderThreads);
+        }
+
+        @Override
+        protected Object getRenderGroupKey(final GLAutoDrawable drawable) {
+            synchronized(keys) {
+                final Object key = keys.get(drawable);
+                return null != key ? key : super.getRenderGroupKey(drawable);
+            }
+        }
+    }
+
+    static ArrayList<StubDrawable> createStubs(final int count, final AtomicReference<String> failure) {
+        final ArrayList<StubDrawable> all = new ArrayList<StubDrawable>();
+        for(int i=0; i<count; i++) {
+            new StubDrawable(all, failure);
+        }
+        return all;
+    }
+
+    static void waitForFrames(final ArrayList<StubDrawable> stubs, final int frames) throws InterruptedException {
+        for(int i=0; i<stubs.size(); i++) {
+            final StubDrawable s = stubs.get(i);
+            final int f0 = s.count.get();
+            for(int w=0; w<500 && s.count.get() < f0 + frames; w++) {
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    static int countThreads(final ArrayList<StubDrawable> stubs) {
+        final HashSet<Thread> threads = new HashSet<Thread>();
+        for(int i=0; i<stubs.size(); i++) {
+            synchronized(stubs.get(i).threads) {
+                threads.addAll(stubs.get(i).threads);
+            }
+        }
+        return threads.size();
+    }
+
+    @Test
+    public void test01BarrierAndThreads() throws InterruptedException {
+        final AtomicReference<String> failure = new AtomicReference<String>();
+        final ArrayList<StubDrawable> stubs = createStubs(6, failure);
+        final ParallelAnimator anim = new ParallelAnimator(4);
+        for(int i=0; i<stubs.size(); i++) {
+            anim.add(stubs.get(i).proxy);
+        }
+        Assert.assertTrue(anim.start());
+        waitForFrames(stubs, 200);
+        Assert.assertEquals(4, anim.getRenderThreadCount());
+        final Thread animThread = anim.getThread();
+        Assert.assertTrue(anim.stop());
+        Assert.assertNull(failure.get(), failure.get());
+        Assert.assertEquals(0, anim.getRenderThreadCount());
+
+        // 6 drawables on 4 threads: 2 threads w/ 2 drawables, none on the animator thread
+        final IdentityHashMap<Thread, Integer> load = new IdentityHashMap<Thread, Integer>();
+        for(int i=0; i<stubs.size(); i++) {
+            final StubDrawable s = stubs.get(i);
+            Assert.assertEquals(1, s.threads.size());
+            Assert.assertNotSame(animThread, s.lastThread);
+            final Integer l = load.get(s.lastThread);
+            load.put(s.lastThread, Integer.valueOf( null != l ? l.intValue() + 1 : 1 ));
+        }
+        Assert.assertEquals(4, load.size());
+        for(final Integer l : load.values()) {
+            Assert.assertTrue(l.intValue() <= 2);
+        }
+        // all drawables rendered the same number of frames, +/- the last one
+        for(int i=1; i<stubs.size(); i++) {
+            Assert.assertEquals(stubs.get(0).count.get(), stubs.get(i).count.get(), 1);
+        }
+    }
+
+    @Test
+    public void test02RenderGroups() throws InterruptedException {
+        final AtomicReference<String> failure = new AtomicReference<String>();
+        final ArrayList<StubDrawable> stubs = createStubs(6, failure);
+        final GroupingAnimator anim = new GroupingAnimator(6);
+        final Object groupA = "A", groupB = "B";
+        for(int i=0; i<stubs.size(); i++) {
+            anim.keys.put(stubs.get(i).proxy, i < 3 ? groupA : groupB);
+            anim.add(stubs.get(i).proxy);
+        }
+        Assert.assertTrue(anim.start());
+        waitForFrames(stubs, 50);
+        Assert.assertEquals(2, anim.getRenderThreadCount());
+        final Thread tA = anim.getRenderThread(stubs.get(0).proxy);
+        final Thread tB = anim.getRenderThread(stubs.get(3).proxy);
+        Assert.assertNotNull(tA);
+        Assert.assertNotNull(tB);
+        Assert.assertNotSame(tA, tB);
+        for(int i=0; i<stubs.size(); i++) {
+            Assert.assertSame(i < 3 ? tA : tB, anim.getRenderThread(stubs.get(i).proxy));
+            Assert.assertSame(i < 3 ? tA : tB, stubs.get(i).lastThread);
+        }
+
+        // w/o exclusive context, a drawable follows its changed group
+        synchronized(anim.keys) {
+            anim.keys.put(stubs.get(5).proxy, groupA);
+        }
+        waitForFrames(stubs, 50);
+        Assert.assertSame(tA, anim.getRenderThread(stubs.get(5).proxy));
+        Assert.assertSame(tA, stubs.get(5).lastThread);
+
+        // removed drawables free their render thread
+        stubs.get(3).checkBarrier = false;
+        stubs.get(4).checkBarrier = false;
+        anim.remove(stubs.get(3).proxy);
+        anim.remove(stubs.get(4).proxy);
+        waitForFrames(new ArrayList<StubDrawable>(stubs.subList(0, 3)), 10);
+        Assert.assertEquals(1, anim.getRenderThreadCount());
+        Assert.assertNull(anim.getRenderThread(stubs.get(3).proxy));
+        Assert.assertTrue(anim.stop());
+        Assert.assertNull(failure.get(), failure.get());
+    }
+
+    @Test
+    public void test03ExclusiveContext() throws InterruptedException {
+        final AtomicReference<String> failure = new AtomicReference<String>();
+        final ArrayList<StubDrawable> stubs = createStubs(4, failure);
+        for(int i=2; i<stubs.size(); i++) {
+            stubs.get(i).checkBarrier = false; // added later
+        }
+        final ParallelAnimator anim = new ParallelAnimator(4);
+        anim.setExclusiveContext(true);
+        for(int i=0; i<2; i++) {
+            anim.add(stubs.get(i).proxy);
+        }
+        Assert.assertTrue(anim.start());
+        waitForFrames(new ArrayList<StubDrawable>(stubs.subList(0, 2)), 20);
+        // added while animating
+        for(int i=2; i<stubs.size(); i++) {
+            anim.add(stubs.get(i).proxy);
+        }
+        waitForFrames(stubs, 20);
+        final HashSet<Thread> ects = new HashSet<Thread>();
+        for(int i=0; i<stubs.size(); i++) {
+            final StubDrawable s = stubs.get(i);
+            Assert.assertNotNull(s.ect);
+            Assert.assertSame(s.ect, anim.getRenderThread(s.proxy));
+            Assert.assertSame(s.ect, s.lastThread);
+            ects.add(s.ect);
+        }
+        Assert.assertEquals(4, ects.size());
+
+        // pause releases exclusive context
+        Assert.assertTrue(anim.pause());
+        for(int i=0; i<stubs.size(); i++) {
+            Assert.assertNull(stubs.get(i).ect);
+        }
+        Assert.assertTrue(anim.resume());
+        waitForFrames(stubs, 10);
+        for(int i=0; i<stubs.size(); i++) {
+            Assert.assertNotNull(stubs.get(i).ect);
+        }
+        Assert.assertTrue(anim.stop());
+        for(int i=0; i<stubs.size(); i++) {
+            Assert.assertNull(stubs.get(i).ect);
+        }
+        Assert.assertNull(failure.get(), failure.get());
+    }
+
+    @Test
+    public void test04UncaughtException() throws InterruptedException {
+        final AtomicReference<String> failure = new AtomicReference<String>();
+        final ArrayList<StubDrawable> stubs = createStubs(4, failure);
+        final ParallelAnimator anim = new ParallelAnimator(4);
+        final AtomicReference<GLAutoDrawable> source = new AtomicReference<GLAutoDrawable>();
+        anim.setUncaughtExceptionHandler(new GLAnimatorControl.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(final GLAnimatorControl animator, final GLAutoDrawable drawable, final Throwable cause) {
+                source.set(drawable);
+            } });
+        for(int i=0; i<stubs.size(); i++) {
+            anim.add(stubs.get(i).proxy);
+        }
+        Assert.assertTrue(anim.start());
+        waitForFrames(stubs, 10);
+        stubs.get(2).throwAtDisplay = true;
+        for(int w=0; w<200 && anim.isStarted(); w++) {
+            Thread.sleep(10);
+        }
+        Assert.assertFalse(anim.isStarted());
+        Assert.assertSame(stubs.get(2).proxy, source.get());
+        Assert.assertEquals(0, anim.getRenderThreadCount());
+        Assert.assertNull(failure.get(), failure.get());
+    }
+
+    static double measureFPS(final AnimatorBase anim, final ArrayList<StubDrawable> stubs, final long durationMillis) throws InterruptedException {
+        for(int i=0; i<stubs.size(); i++) {
+            anim.add(stubs.get(i).proxy);
+        }
+        anim.start();
+        Thread.sleep(100); // warm up
+        final int f0 = stubs.get(0).count.get();
+        final long t0 = Platform.currentTimeMicros();
+        Thread.sleep(durationMillis);
+        final int f1 = stubs.get(0).count.get();
+        final long dt = Platform.currentTimeMicros() - t0;
+        anim.stop();
+        return ( f1 - f0 ) * 1e6 / dt;
+    }
+
+    @Test
+    public void test10Perf() throws InterruptedException {
+        final int drawableCount = 12;
+        final long displayMillis = 2;
+        final long durationMillis = 2000;
+        final AtomicReference<String> failure = new AtomicReference<String>();
+        final ArrayList<StubDrawable> stubs0 = createStubs(drawableCount, failure);
+        final ArrayList<StubDrawable> stubs1 = createStubs(drawableCount, failure);
+        for(int i=0; i<drawableCount; i++) {
+            stubs0.get(i).displayMillis = displayMillis;
+            stubs1.get(i).displayMillis = displayMillis;
+        }
+        final Animator serial = new Animator();
+        serial.setModeBits(false, AnimatorBase.MODE_EXPECT_AWT_RENDERING_THREAD);
+        serial.setRunAsFastAsPossible(true);
+        final double fpsSerial = measureFPS(serial, stubs0, durationMillis);
+        final ParallelAnimator parallel = new ParallelAnimator(drawableCount);
+        final double fpsParallel = measureFPS(parallel, stubs1, durationMillis);
+        System.err.printf("Summary Animator        : %d drawables, %d ms frame, %.2f fps%n", drawableCount, displayMillis, fpsSerial);
+        System.err.printf("Summary ParallelAnimator: %d drawables, %d ms frame, %.2f fps, speedup %.2f%n", drawableCount, displayMillis, fpsParallel, fpsParallel/fpsSerial);
+        Assert.assertNull(failure.get(), failure.get());
+        Assert.assertTrue(fpsParallel > fpsSerial);
+    }
+
+    public static void main(final String args[]) {
+        org.junit.runner.JUnitCore.main(TestParallelAnimator01NOUI.class.getName());
+    }
+}
@@ -0,0 +1,306 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.jogl.glu;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import jogamp.opengl.glu.mipmap.HalveImage;
+import jogamp.opengl.glu.mipmap.MipmapBuilder;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.FixMethodOrder;
+import org.junit.runners.MethodSorters;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.common.os.Platform;
+import com.jogamp.opengl.GL;
+
+/**
+ * Validates the {@link MipmapBuilder} box filter against the GLU {@link HalveImage} results,
+ * its float, sRGB and Kaiser filters as well as concurrent processing, and benchmarks it.
+ * Requires no GPU.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestMipmapBuilder01NOUI {
+
+    static ByteBuffer randomBytes(final int size, final long seed) {
+        final Random rnd = new Random(seed);
+        final ByteBuffer b = Buffers.newDirectByteBuffer(size);
+        for(int i=0; i<size; i++) {
+            b.put(i, (byte)rnd.nextInt(256));
+        }
+        return b;
+    }
+
+    static void assertEquals(final String msg, final ByteBuffer expected, final ByteBuffer has, final int size, final int tolerance) {
+        for(int i=0; i<size; i++) {
+            final int e = expected.get(i) & 0xFF, h = has.get(i) & 0xFF;
+            if( Math.abs(e - h) > tolerance ) {
+                Assert.assertEquals(msg+", byte "+i, e, h);
+            }
+        }
+    }
+
+    @Test
+    public void test01BoxUByteMatchesGLU() throws InterruptedException {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final int[][] sizes = { { 256, 256 }, { 512, 128 }, { 64, 256 }, { 1024, 512 } };
+            for(int c=1; c<=4; c++) {
+                for(final int[] size : sizes) {
+                    final int w = size[0], h = size[1];
+                    for(int pad=0; pad<=3; pad+=3) {
+                        final int stride = w * c + pad;
+                        final ByteBuffer src = randomBytes(stride * h, w * 31 + c + pad);
+                        final ByteBuffer expected = Buffers.newDirectByteBuffer(w/2 * h/2 * c);
+                        // HalveImage does not skip row padding, feed it the packed rows
+                        final ByteBuffer packed = Buffers.newDirectByteBuffer(w * h * c);
+                        for(int y=0; y<h; y++) {
+                            for(int i=0; i<w*c; i++) {
+                                packed.put(y*w*c + i, src.get(y*stride + i));
+                            }
+                        }
+                        HalveImage.halveImage_ubyte(c, w, h, packed, expected, 1, w * c, c);
+                        for(int p=0; p<2; p++) {
+                            final MipmapBuilder builder = new MipmapBuilder(c, GL.GL_UNSIGNED_BYTE);
+                            builder.setExecutor( 0 == p ? null : executor );
+                            final ByteBuffer has = Buffers.newDirectByteBuffer(expected.capacity());
+                            builder.halve(src, w, h, stride, has);
+                            assertEquals("c "+c+", "+w+"x"+h+", pad "+pad+", exec "+p, expected, has, expected.capacity(), 0);
+                        }
+                    }
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test02Box1DAndLevels() throws InterruptedException {
+        final int c = 4;
+        final ByteBuffer row = randomBytes(8 * c, 2);
+        final MipmapBuilder builder = new MipmapBuilder(c, GL.GL_UNSIGNED_BYTE);
+        final ByteBuffer[] levels = builder.buildLevels(row, 8, 1, 8 * c);
+        Assert.assertEquals(3, levels.length);
+        Assert.assertEquals(4 * c, levels[0].capacity());
+        Assert.assertEquals(2 * c, levels[1].capacity());
+        Assert.assertEquals(1 * c, levels[2].capacity());
+        for(int i=0; i<4*c; i++) {
+            final int x = i / c, k = i % c;
+            final int e = ( ( row.get(2*x*c + k) & 0xFF ) + ( row.get((2*x+1)*c + k) & 0xFF ) + 1 ) / 2;
+            Assert.assertEquals("byte "+i, e, levels[0].get(i) & 0xFF);
+        }
+        // column, rows padded
+        final ByteBuffer column = randomBytes(8 * 8, 3);
+        final ByteBuffer has = Buffers.newDirectByteBuffer(4 * c);
+        builder.halve(column, 1, 8, 8, has);
+        for(int y=0; y<4; y++) {
+            for(int k=0; k<c; k++) {
+                final int e = ( ( column.get(2*y*8 + k) & 0xFF ) + ( column.get((2*y+1)*8 + k) & 0xFF ) + 1 ) / 2;
+                Assert.assertEquals("row "+y+", comp "+k, e, has.get(y*c + k) & 0xFF);
+            }
+        }
+        // non square down to 1x1
+        final ByteBuffer[] levels2 = builder.buildLevels(randomBytes(16 * 4 * c, 4), 16, 4, 16 * c);
+        Assert.assertEquals(4, levels2.length);
+        Assert.assertEquals(c, levels2[3].capacity());
+    }
+
+    @Test
+    public void test03BoxFloat() throws InterruptedException {
+        final int w = 64, h = 32, c = 3;
+        final ByteBuffer src = Buffers.newDirectByteBuffer(w * h * c * 4);
+        final Random rnd = new Random(5);
+        for(int i=0; i<w*h*c; i++) {
+            src.putFloat(i*4, rnd.nextFloat() * 10f - 5f);
+        }
+        final ByteBuffer dst = Buffers.newDirectByteBuffer(w/2 * h/2 * c * 4);
+        new MipmapBuilder(c, GL.GL_FLOAT).halve(src, w, h, w * c * 4, dst);
+        for(int y=0; y<h/2; y++) {
+            for(int x=0; x<w/2; x++) {
+                for(int k=0; k<c; k++) {
+                    final int s = ( 2*y*w + 2*x ) * c + k;
+                    final float e = ( src.getFloat(s*4) + src.getFloat((s+c)*4) + src.getFloat((s+w*c)*4) + src.getFloat((s+w*c+c)*4) ) / 4f;
+                    Assert.assertEquals(e, dst.getFloat(( ( y*w/2 + x ) * c + k ) * 4), 1e-5f);
+                }
+            }
+        }
+        Assert.assertEquals(ByteOrder.nativeOrder(), dst.order());
+    }
+
+    @Test
+    public void test04SRGB() throws InterruptedException {
+        final int w = 16, h = 16, c = 4;
+        // black and white checker with alpha checker
+        final ByteBuffer checker = Buffers.newDirectByteBuffer(w * h * c);
+        for(int y=0; y<h; y++) {
+            for(int x=0; x<w; x++) {
+                final byte v = (byte)( 0 == ( ( x ^ y ) & 1 ) ? 0 : 255 );
+                for(int k=0; k<c; k++) {
+                    checker.put(( y*w + x ) * c + k, v);
+                }
+            }
+        }
+        for(int f=0; f<2; f++) {
+            final MipmapBuilder builder = new MipmapBuilder(c, GL.GL_UNSIGNED_BYTE).setSRGB(true);
+            builder.setFilter( 0 == f ? MipmapBuilder.FILTER_BOX : MipmapBuilder.FILTER_KAISER );
+            final ByteBuffer dst = Buffers.newDirectByteBuffer(w/2 * h/2 * c);
+            builder.halve(checker, w, h, w * c, dst);
+            final float tolerance = 0 == f ? 1f : 8f; // the Kaiser filter passes some of the Nyquist frequency
+            for(int i=0; i<w/2*h/2; i++) {
+                for(int k=0; k<3; k++) {
+                    // 50% linear intensity is 188 in sRGB
+                    Assert.assertEquals("filter "+f+", pixel "+i, 188f, dst.get(i*c+k) & 0xFF, tolerance);
+                }
+                Assert.assertEquals("filter "+f+", alpha "+i, 128f, dst.get(i*c+3) & 0xFF, tolerance);
+            }
+        }
+        // uniform colors are kept
+        final ByteBuffer uniform = Buffers.newDirectByteBuffer(4 * 4 * c);
+        for(int v=0; v<256; v++) {
+            for(int i=0; i<uniform.capacity(); i++) {
+                uniform.put(i, (byte)v);
+            }
+            final ByteBuffer dst = Buffers.newDirectByteBuffer(2 * 2 * c);
+            new MipmapBuilder(c, GL.GL_UNSIGNED_BYTE).setSRGB(true).halve(uniform, 4, 4, 4 * c, dst);
+            for(int i=0; i<dst.capacity(); i++) {
+                Assert.assertEquals("value "+v, v, dst.get(i) & 0xFF);
+            }
+        }
+    }
+
+    @Test
+    public void test05Kaiser() throws InterruptedException {
+        final int w = 128, h = 64;
+        // uniform colors are kept
+        final ByteBuffer uniform = Buffers.newDirectByteBuffer(w * h * 4);
+        for(int i=0; i<uniform.capacity(); i++) {
+            uniform.put(i, (byte)( 37 * ( i & 3 ) + 20 ));
+        }
+        final MipmapBuilder builder = new MipmapBuilder(4, GL.GL_UNSIGNED_BYTE).setFilter(MipmapBuilder.FILTER_KAISER);
+        final ByteBuffer dst = Buffers.newDirectByteBuffer(w/2 * h/2 * 4);
+        builder.halve(uniform, w, h, w * 4, dst);
+        assertEquals("uniform", uniform, dst, dst.capacity(), 0);
+
+        // a smooth horizontal ramp stays close to the box filter
+        final ByteBuffer ramp = Buffers.newDirectByteBuffer(w * h * 4);
+        for(int y=0; y<h; y++) {
+            for(int x=0; x<w; x++) {
+                for(int k=0; k<4; k++) {
+                    ramp.put(( y*w + x ) * 4 + k, (byte)( x * 2 ));
+                }
+            }
+        }
+        final ByteBuffer box = Buffers.newDirectByteBuffer(dst.capacity());
+        new MipmapBuilder(4, GL.GL_UNSIGNED_BYTE).halve(ramp, w, h, w * 4, box);
+        builder.halve(ramp, w, h, w * 4, dst);
+        for(int y=0; y<h/2; y++) {
+            for(int x=2; x<w/2-2; x++) { // edges are clamped
+                final int i = ( y*w/2 + x ) * 4;
+                Assert.assertEquals("pixel "+x+"/"+y, box.get(i) & 0xFF, dst.get(i) & 0xFF, 1f);
+            }
+        }
+
+        // concurrent equals serial, for bytes and floats
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final int W = 1024, H = 512;
+            final ByteBuffer src = randomBytes(W * H * 4, 6);
+            final ByteBuffer srcF = Buffers.newDirectByteBuffer(W * H * 4);
+            for(int i=0; i<W*H; i++) {
+                srcF.putFloat(i*4, ( src.get(i*4) & 0xFF ) / 255f);
+            }
+            for(int t=0; t<2; t++) {
+                final int type = 0 == t ? GL.GL_UNSIGNED_BYTE : GL.GL_FLOAT;
+                final int c = 0 == t ? 4 : 1;
+                final MipmapBuilder serial = new MipmapBuilder(c, type).setFilter(MipmapBuilder.FILTER_KAISER);
+                final MipmapBuilder concurrent = new MipmapBuilder(c, type).setFilter(MipmapBuilder.FILTER_KAISER).setExecutor(executor);
+                final ByteBuffer a = Buffers.newDirectByteBuffer(W/2 * H/2 * 4);
+                final ByteBuffer b = Buffers.newDirectByteBuffer(a.capacity());
+                serial.halve(0 == t ? src : srcF, W, H, W * 4, a);
+                concurrent.halve(0 == t ? src : srcF, W, H, W * 4, b);
+                Assert.assertEquals("type "+t, 0, a.compareTo(b));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    static double mpps(final long pixels, final long ms) {
+        return 0 < ms ? pixels / 1000.0 / ms : 0;
+    }
+
+    @Test
+    public void test10Perf() throws InterruptedException {
+        final int width = 2048, height = 2048, loops = 2;
+        final ByteBuffer src = randomBytes(width * height * 4, 7);
+        final ByteBuffer dst = Buffers.newDirectByteBuffer(width/2 * height/2 * 4);
+        final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            final String[] names = { "GLU HalveImage", "box serial", "box concurrent", "box sRGB concurrent", "kaiser concurrent" };
+            final MipmapBuilder[] builders = { null,
+                new MipmapBuilder(4, GL.GL_UNSIGNED_BYTE),
+                new MipmapBuilder(4, GL.GL_UNSIGNED_BYTE).setExecutor(executor),
+                new MipmapBuilder(4, GL.GL_UNSIGNED_BYTE).setExecutor(executor).setSRGB(true),
+                new MipmapBuilder(4, GL.GL_UNSIGNED_BYTE).setExecutor(executor).setFilter(MipmapBuilder.FILTER_KAISER) };
+            for(int b=0; b<builders.length; b++) {
+                long t = 0;
+                for(int l=0; l<=loops; l++) {
+                    final long t0 = Platform.currentTimeMillis();
+                    if( null == builders[b] ) {
+                        src.rewind();
+                        dst.rewind();
+                        HalveImage.halveImage_ubyte(4, width, height, src, dst, 1, width * 4, 4);
+                    } else {
+                        src.rewind();
+                        dst.rewind();
+                        builders[b].halve(src, width, height, width * 4, dst);
+                    }
+                    if( 0 < l ) { // skip warm-up
+                        t += Platform.currentTimeMillis() - t0;
+                    }
+                }
+                System.err.printf("Summary RGBA8 %dx%d %s: %d ms, %.2f MPixel/s%n",
+                                  width, height, names[b], t, mpps((long)loops*width*height, t));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public static void main(final String args[]) throws IOException {
+        org.junit.runner.JUnitCore.main(TestMipmapBuilder01NOUI.class.getName());
+    }
+}
@@ -0,0 +1,336 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package com.jogamp.opengl.test.junit.jogl.math;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.FixMethodOrder;
+import org.junit.runners.MethodSorters;
+
+import com.jogamp.common.os.Platform;
+import com.jogamp.opengl.math.Ray;
+import com.jogamp.opengl.math.VectorUtil;
+import com.jogamp.opengl.math.geom.AABBox;
+import com.jogamp.opengl.math.geom.AABBoxTree;
+import com.jogamp.opengl.math.geom.Frustum;
+
+/**
+ * Validates and benchmarks {@link AABBoxTree} ray and frustum queries
+ * against a linear scan over {@link AABBox#intersectsRay(Ray)} and {@link Frustum#isAABBoxOutside(AABBox)}.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestAABBoxTree01NOUI {
+
+    /** Creates a ray from outside of the box cube towards a random point within. */
+    static void createRay(final Random rnd, final Ray ray) {
+        for(int j=0; j<3; j++) {
+            ray.orig[j] = rnd.nextFloat() * 400f - 200f;
+            ray.dir[j] = rnd.nextFloat() * 200f - 100f - ray.orig[j];
+        }
+        VectorUtil.normalizeVec3(ray.dir);
+    }
+
+    static int[] linearRayIntersections(final Ray ray, final AABBox[] boxes) {
+        final int[] res = new int[boxes.length];
+        int n = 0;
+        for(int i=0; i<boxes.length; i++) {
+            if( boxes[i].intersectsRay(ray) ) {
+                res[n++] = i;
+            }
+        }
+        return Arrays.copyOf(res, n);
+    }
+
+    /** Returns the closest entry distance of the ray into all boxes, computed in double precision. */
+    static double linearClosestDistance(final Ray ray, final float[] low, final float[] high, final int count) {
+        double best = Double.POSITIVE_INFINITY;
+        for(int i=0; i<count; i++) {
+            double t0 = 0, t1 = Double.POSITIVE_INFINITY;
+            for(int j=0; j<3; j++) {
+                final double o = ray.orig[j], d = ray.dir[j];
+                final double a = ( low[3*i+j] - o ) / d, b = ( high[3*i+j] - o ) / d;
+                t0 = Math.max(t0, Math.min(a, b));
+                t1 = Math.min(t1, Math.max(a, b));
+            }
+            if( t0 <= t1 ) {
+                best = Math.min(best, t0);
+            }
+        }
+        return best;
+    }
+
+    static int[] linearVisible(final Frustum f, final AABBox[] boxes) {
+        final int[] res = new int[boxes.length];
+        int n = 0;
+        for(int i=0; i<boxes.length; i++) {
+            if( !f.isAABBoxOutside(boxes[i]) ) {
+                res[n++] = i;
+            }
+        }
+        return Arrays.copyOf(res, n);
+    }
+
+    static int[] sorted(final int[] a, final int n) {
+        final int[] r = Arrays.copyOf(a, n);
+        Arrays.sort(r);
+        return r;
+    }
+
+    private static void validate(final AABBoxTree tree, final float[] low, final float[] high, final AABBox[] boxes,
+                                 final Frustum f, final Random rnd, final int rays) {
+        final int count = boxes.length;
+        final int[] res = new int[count];
+        final Ray ray = new Ray();
+        final float[] dist = new float[1];
+        int hitRays = 0;
+        for(int r=0; r<rays; r++) {
+            createRay(rnd, ray);
+            final int[] exp = linearRayIntersections(ray, boxes);
+            final int n = tree.getRayIntersections(ray, res);
+            Assert.assertArrayEquals("Ray "+r+": "+ray, exp, sorted(res, n));
+
+            final int closest = tree.getClosestRayIntersection(ray, dist);
+            if( 0 == exp.length ) {
+                Assert.assertEquals(-1, closest);
+            } else {
+                hitRays++;
+                Assert.assertTrue(0 <= Arrays.binarySearch(exp, closest));
+                final double expDist = linearClosestDistance(ray, low, high, count);
+                Assert.assertEquals("Ray "+r+": "+ray, expDist, dist[0], 1e-3);
+            }
+        }
+        Assert.assertTrue(0 < hitRays);
+
+        final int[] exp = linearVisible(f, boxes);
+        Assert.assertTrue(0 < exp.length && exp.length < count);
+        final int n = tree.getVisible(f, res);
+        Assert.assertArrayEquals(exp, sorted(res, n));
+    }
+
+    @Test
+    public void test01BuildQuery() {
+        final Frustum f = TestFrustum01NOUI.createFrustum();
+        final int count = 10000 + 17;
+        final float[] low = new float[count*3];
+        final float[] high = new float[count*3];
+        final AABBox[] boxes = new AABBox[count];
+        TestFrustum01NOUI.createBoxes(new Random(42), count, low, high, boxes);
+
+        final AABBoxTree tree = new AABBoxTree();
+        tree.build(low, high, count);
+        System.err.println(tree);
+        Assert.assertEquals(count, tree.getBoxCount());
+        Assert.assertTrue(tree.getNodeCount() < 2*count);
+        Assert.assertTrue(tree.getDepth() < 64);
+        validate(tree, low, high, boxes, f, new Random(1), 500);
+    }
+
+    @Test
+    public void test02Refit() {
+        final Frustum f = TestFrustum01NOUI.createFrustum();
+        final int count = 10000;
+        final float[] low = new float[count*3];
+        final float[] high = new float[count*3];
+        final AABBox[] boxes = new AABBox[count];
+        final Random rnd = new Random(7);
+        TestFrustum01NOUI.createBoxes(rnd, count, low, high, boxes);
+
+        final AABBoxTree tree = new AABBoxTree();
+        tree.build(low, high, count);
+        for(int l=0; l<3; l++) {
+            // move every box
+            for(int i=0; i<count; i++) {
+                final int i3 = i*3;
+                for(int j=0; j<3; j++) {
+                    final float d = rnd.nextFloat() * 20f - 10f;
+                    low[i3+j] += d;
+                    high[i3+j] += d;
+                }
+                boxes[i].setSize(low[i3], low[i3+1], low[i3+2], high[i3], high[i3+1], high[i3+2]);
+            }
+            tree.refit();
+            validate(tree, low, high, boxes, f, rnd, 200);
+        }
+    }
+
+    @Test
+    public void test03ParallelBuild() throws InterruptedException {
+        final Frustum f = TestFrustum01NOUI.createFrustum();
+        final int count = 100000 + 3;
+        final float[] low = new float[count*3];
+        final float[] high = new float[count*3];
+        final AABBox[] boxes = new AABBox[count];
+        TestFrustum01NOUI.createBoxes(new Random(11), count, low, high, boxes);
+
+        final AABBoxTree tree = new AABBoxTree();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            tree.build(executor, low, high, count);
+        } finally {
+            executor.shutdown();
+        }
+        System.err.println(tree);
+        validate(tree, low, high, boxes, f, new Random(2), 100);
+    }
+
+    @Test
+    public void test04Degenerated() {
+        final AABBoxTree tree = new AABBoxTree(2);
+        final Ray ray = new Ray();
+        ray.orig[2] = 10f;
+        ray.dir[2] = -1f;
+        final int[] res = new int[100];
+        final float[] dist = new float[1];
+
+        tree.build(new float[0], new float[0], 0);
+        Assert.assertEquals(0, tree.getRayIntersections(ray, res));
+        Assert.assertEquals(-1, tree.getClosestRayIntersection(ray, dist));
+        Assert.assertEquals(0, tree.getVisible(TestFrustum01NOUI.createFrustum(), res));
+        Assert.assertEquals(0, tree.getDepth());
+
+        // coincident boxes, forcing splits w/o spatial separation
+        final int count = 100;
+        final float[] low = new float[count*3];
+        final float[] high = new float[count*3];
+        for(int i=0; i<count; i++) {
+            low[i*3+0] = -1f; low[i*3+1] = -1f; low[i*3+2] = -1f;
+            high[i*3+0] = 1f; high[i*3+1] = 1f; high[i*3+2] = 1f;
+        }
+        tree.build(low, high, count);
+        Assert.assertEquals(count, tree.getRayIntersections(ray, res));
+        Assert.assertEquals(0, tree.getClosestRayIntersection(ray, dist));
+        Assert.assertEquals(9f, dist[0], 0f);
+
+        ray.orig[0] = 2f;
+        Assert.assertEquals(0, tree.getRayIntersections(ray, res));
+        Assert.assertEquals(-1, tree.getClosestRayIntersection(ray, dist));
+
+        // result array too small: counted only
+        ray.orig[0] = 0f;
+        Assert.assertEquals(count, tree.getRayIntersections(ray, new int[10]));
+    }
+
+    private void testPerf(final int count, final int rays, final int loops, final ExecutorService executor) throws InterruptedException {
+        final Frustum f = TestFrustum01NOUI.createFrustum();
+        final float[] low = new float[count*3];
+        final float[] high = new float[count*3];
+        final AABBox[] boxes = new AABBox[count];
+        TestFrustum01NOUI.createBoxes(new Random(1), count, low, high, boxes);
+        final AABBoxTree tree = new AABBoxTree();
+        final Ray[] rayArray = new Ray[rays];
+        final Random rnd = new Random(3);
+        for(int r=0; r<rays; r++) {
+            rayArray[r] = new Ray();
+            createRay(rnd, rayArray[r]);
+        }
+        final int[] res = new int[count];
+
+        long tBuild = 0, tBuildPar = 0, tRefit = 0, tLinRay = 0, tRay = 0, tClosest = 0, tLinFrustum = 0, tFrustum = 0;
+        int hLin = 0, hTree = 0, vLin = 0, vTree = 0;
+        for(int l=-1; l<loops; l++) { // first loop is warm-up
+            final long t0 = Platform.currentTimeMillis();
+            tree.build(low, high, count);
+            final long t1 = Platform.currentTimeMillis();
+            tree.build(executor, low, high, count);
+            final long t2 = Platform.currentTimeMillis();
+            tree.refit();
+            final long t3 = Platform.currentTimeMillis();
+            hLin = 0;
+            for(int r=0; r<rays; r++) {
+                for(int i=0; i<count; i++) {
+                    if( boxes[i].intersectsRay(rayArray[r]) ) {
+                        hLin++;
+                    }
+                }
+            }
+            final long t4 = Platform.currentTimeMillis();
+            hTree = 0;
+            for(int r=0; r<rays; r++) {
+                hTree += tree.getRayIntersections(rayArray[r], res);
+            }
+            final long t5 = Platform.currentTimeMillis();
+            for(int r=0; r<rays; r++) {
+                tree.getClosestRayIntersection(rayArray[r], null);
+            }
+            final long t6 = Platform.currentTimeMillis();
+            vLin = 0;
+            for(int i=0; i<count; i++) {
+                if( !f.isAABBoxOutside(boxes[i]) ) {
+                    vLin++;
+                }
+            }
+            final long t7 = Platform.currentTimeMillis();
+            vTree = tree.getVisible(f, res);
+            final long t8 = Platform.currentTimeMillis();
+            if( 0 <= l ) {
+                tBuild += t1 - t0;
+                tBuildPar += t2 - t1;
+                tRefit += t3 - t2;
+                tLinRay += t4 - t3;
+                tRay += t5 - t4;
+                tClosest += t6 - t5;
+                tLinFrustum += t7 - t6;
+                tFrustum += t8 - t7;
+            }
+        }
+        Assert.assertEquals(hLin, hTree);
+        Assert.assertEquals(vLin, vTree);
+        System.err.printf("Summary %d loops of %7d boxes, %d rays, %s:%n", loops, count, rays, tree);
+        System.err.printf("  build           %6d ms total, %f ms/loop%n", tBuild, (double)tBuild/loops);
+        System.err.printf("  build parallel  %6d ms total, %f ms/loop%n", tBuildPar, (double)tBuildPar/loops);
+        System.err.printf("  refit           %6d ms total, %f ms/loop%n", tRefit, (double)tRefit/loops);
+        System.err.printf("  rays linear     %6d ms total, %f ms/loop, %d hits%n", tLinRay, (double)tLinRay/loops, hLin);
+        System.err.printf("  rays tree       %6d ms total, %f ms/loop%n", tRay, (double)tRay/loops);
+        System.err.printf("  rays closest    %6d ms total, %f ms/loop%n", tClosest, (double)tClosest/loops);
+        System.err.printf("  frustum linear  %6d ms total, %f ms/loop, %d visible%n", tLinFrustum, (double)tLinFrustum/loops, vLin);
+        System.err.printf("  frustum tree    %6d ms total, %f ms/loop%n", tFrustum, (double)tFrustum/loops);
+    }
+
+    @Test
+    public void test10Perf() throws InterruptedException {
+        final int cores = Runtime.getRuntime().availableProcessors();
+        final ExecutorService executor = Executors.newFixedThreadPool(cores);
+        try {
+            testPerf(  10000, 100, 10, executor);
+            testPerf( 100000, 100,  3, executor);
+            testPerf(1000000,  10,  1, executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public static void main(final String args[]) {
+        org.junit.runner.JUnitCore.main(TestAABBoxTree01NOUI.class.getName());
+    }
+}
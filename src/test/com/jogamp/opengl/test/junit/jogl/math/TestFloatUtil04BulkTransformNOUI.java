@@ -0,0 +1,235 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package com.jogamp.opengl.test.junit.jogl.math;
+
+import java.nio.FloatBuffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.FixMethodOrder;
+import org.junit.runners.MethodSorters;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.common.os.Platform;
+import com.jogamp.opengl.math.FloatUtil;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestFloatUtil04BulkTransformNOUI {
+
+    static final float[] mv = new float[] {  0.5f,  0.2f, -0.1f, 0,
+                                            -0.3f,  0.9f,  0.4f, 0,
+                                             0.2f, -0.5f,  0.8f, 0,
+                                             3.0f, -2.0f, 10.0f, 1 };
+
+    static final float[] p = new float[] { 2.3464675f, 0,          0,        0,
+                                           0,          2.4142134f, 0,        0,
+                                           0,          0,         -1.0002f, -1,
+                                           0,          0,        -20.002f,   0 };
+
+    private static float[] makeData(final int count, final int components) {
+        final float[] data = new float[count*components];
+        for(int i=0; i<data.length; i++) {
+            data[i] = ( i % 17 ) * 0.25f - 2f;
+        }
+        return data;
+    }
+
+    @Test
+    public void test01Vec4Array() {
+        final int count = 33;
+        final float[] in = makeData(count, 4);
+        final float[] out1 = new float[count*4];
+        final float[] out2 = new float[count*4+4];
+        final float[] tmp = new float[4];
+        for(int i=0; i<count; i++) {
+            FloatUtil.multMatrixVec(p, 0, in, i*4, tmp, 0);
+            System.arraycopy(tmp, 0, out1, i*4, 4);
+        }
+        FloatUtil.multMatrixVec4Array(p, 0, in, 0, out2, 4, count);
+        for(int i=0; i<count*4; i++) {
+            Assert.assertEquals("Elem "+i, out1[i], out2[4+i], FloatUtil.EPSILON);
+        }
+
+        // in-place
+        FloatUtil.multMatrixVec4Array(p, 0, in, 0, in, 0, count);
+        Assert.assertArrayEquals(out1, in, FloatUtil.EPSILON);
+    }
+
+    @Test
+    public void test02Vec3Array() {
+        final int count = 33;
+        final float[] in = makeData(count, 3);
+        final float[] out1 = new float[count*3];
+        final float[] out2 = new float[count*3];
+        final float[] out3 = new float[count*3];
+        final float[] vin = new float[4];
+        final float[] vout = new float[4];
+        for(int i=0; i<count; i++) {
+            System.arraycopy(in, i*3, vin, 0, 3);
+            vin[3] = 1f;
+            FloatUtil.multMatrixVec(mv, vin, vout);
+            System.arraycopy(vout, 0, out1, i*3, 3);
+            vin[3] = 0f;
+            FloatUtil.multMatrixVec(mv, vin, vout);
+            System.arraycopy(vout, 0, out3, i*3, 3);
+        }
+        FloatUtil.multMatrixVec3Array(mv, 0, in, 0, out2, 0, count);
+        Assert.assertArrayEquals(out1, out2, FloatUtil.EPSILON);
+
+        FloatUtil.multMatrixDir3Array(mv, 0, in, 0, out2, 0, count);
+        Assert.assertArrayEquals(out3, out2, FloatUtil.EPSILON);
+    }
+
+    @Test
+    public void test03BufferArrays() {
+        final int count = 21;
+        final float[] in4 = makeData(count, 4);
+        final float[] in3 = makeData(count, 3);
+        final float[] exp4 = FloatUtil.multMatrixVec4Array(p, 0, in4, 0, new float[count*4], 0, count);
+        final float[] exp3 = FloatUtil.multMatrixVec3Array(mv, 0, in3, 0, new float[count*3], 0, count);
+
+        final FloatBuffer b4 = Buffers.newDirectFloatBuffer(count*4+2);
+        b4.position(2);
+        b4.put(in4);
+        b4.position(2);
+        FloatUtil.multMatrixVec4Array(p, 0, b4, b4, count);
+        Assert.assertEquals(2, b4.position());
+        final float[] res4 = new float[count*4];
+        b4.get(res4);
+        Assert.assertArrayEquals(exp4, res4, FloatUtil.EPSILON);
+
+        final FloatBuffer b3i = FloatBuffer.wrap(in3);
+        final FloatBuffer b3o = Buffers.newDirectFloatBuffer(count*3);
+        FloatUtil.multMatrixVec3Array(mv, 0, b3i, b3o, count);
+        final float[] res3 = new float[count*3];
+        b3o.get(res3);
+        Assert.assertArrayEquals(exp3, res3, FloatUtil.EPSILON);
+
+        final float[] expD3 = FloatUtil.multMatrixDir3Array(mv, 0, in3, 0, new float[count*3], 0, count);
+        final FloatBuffer bd3 = Buffers.newDirectFloatBuffer(count*3);
+        bd3.put(in3);
+        bd3.rewind();
+        FloatUtil.multMatrixDir3Array(mv, 0, bd3, bd3, count);
+        Assert.assertEquals(0, bd3.position());
+        bd3.get(res3);
+        Assert.assertArrayEquals(expD3, res3, FloatUtil.EPSILON);
+    }
+
+    @Test
+    public void test04MatrixArray() {
+        final int count = 9;
+        final float[] b = makeData(count, 16);
+        final float[] d1 = new float[count*16];
+        final float[] d2 = new float[count*16];
+        for(int i=0; i<count; i++) {
+            FloatUtil.multMatrix(mv, 0, b, i*16, d1, i*16);
+        }
+        FloatUtil.multMatrixArray(mv, 0, b, 0, d2, 0, count);
+        Assert.assertArrayEquals(d1, d2, FloatUtil.EPSILON);
+
+        final float[] a = makeData(count, 16);
+        FloatUtil.multMatrixArrays(a, 0, b, 0, d2, 0, count);
+        for(int i=0; i<count; i++) {
+            FloatUtil.multMatrix(a, i*16, b, i*16, d1, i*16);
+        }
+        Assert.assertArrayEquals(d1, d2, FloatUtil.EPSILON);
+
+        // in-place
+        FloatUtil.multMatrixArray(mv, 0, b, 0, b, 0, count);
+        for(int i=0; i<count; i++) {
+            FloatUtil.multMatrix(mv, 0, makeData(count, 16), i*16, d1, i*16);
+        }
+        Assert.assertArrayEquals(d1, b, FloatUtil.EPSILON);
+    }
+
+    @Test(expected=IndexOutOfBoundsException.class)
+    public void test05Bounds() {
+        FloatUtil.multMatrixVec3Array(mv, 0, new float[3*10], 0, new float[3*10], 3, 10);
+    }
+
+    @Test
+    public void test10Perf() {
+        final int count = 200000;
+        final int loops = 50;
+        final float[] in4 = makeData(count, 4);
+        final float[] in3 = makeData(count, 3);
+        final float[] inM = makeData(count, 16);
+        final float[] out4 = new float[count*4];
+        final float[] out3 = new float[count*3];
+        final float[] outM = new float[count*16];
+        final float[] vin = new float[4];
+        final float[] vout = new float[4];
+
+        long tV4Single = 0, tV4Bulk = 0, tV3Single = 0, tV3Bulk = 0, tMSingle = 0, tMBulk = 0;
+
+        for(int l=-5; l<loops; l++) { // first 5 loops are warm-up
+            final long t0 = Platform.currentTimeMillis();
+            for(int i=0; i<count; i++) {
+                FloatUtil.multMatrixVec(p, 0, in4, i*4, out4, i*4);
+            }
+            final long t1 = Platform.currentTimeMillis();
+            FloatUtil.multMatrixVec4Array(p, 0, in4, 0, out4, 0, count);
+            final long t2 = Platform.currentTimeMillis();
+            for(int i=0; i<count; i++) {
+                System.arraycopy(in3, i*3, vin, 0, 3);
+                vin[3] = 1f;
+                FloatUtil.multMatrixVec(mv, vin, vout);
+                System.arraycopy(vout, 0, out3, i*3, 3);
+            }
+            final long t3 = Platform.currentTimeMillis();
+            FloatUtil.multMatrixVec3Array(mv, 0, in3, 0, out3, 0, count);
+            final long t4 = Platform.currentTimeMillis();
+            for(int i=0; i<count; i++) {
+                FloatUtil.multMatrix(mv, 0, inM, i*16, outM, i*16);
+            }
+            final long t5 = Platform.currentTimeMillis();
+            FloatUtil.multMatrixArray(mv, 0, inM, 0, outM, 0, count);
+            final long t6 = Platform.currentTimeMillis();
+            if( 0 <= l ) {
+                tV4Single += t1 - t0;
+                tV4Bulk += t2 - t1;
+                tV3Single += t3 - t2;
+                tV3Bulk += t4 - t3;
+                tMSingle += t5 - t4;
+                tMBulk += t6 - t5;
+            }
+        }
+        System.err.printf("Summary %d loops of %d elements:%n", loops, count);
+        System.err.printf("  Vec4 single %6d ms total, %f ms/loop%n", tV4Single, (double)tV4Single/loops);
+        System.err.printf("  Vec4 bulk   %6d ms total, %f ms/loop%n", tV4Bulk, (double)tV4Bulk/loops);
+        System.err.printf("  Vec3 single %6d ms total, %f ms/loop%n", tV3Single, (double)tV3Single/loops);
+        System.err.printf("  Vec3 bulk   %6d ms total, %f ms/loop%n", tV3Bulk, (double)tV3Bulk/loops);
+        System.err.printf("  Mat4 single %6d ms total, %f ms/loop%n", tMSingle, (double)tMSingle/loops);
+        System.err.printf("  Mat4 bulk   %6d ms total, %f ms/loop%n", tMBulk, (double)tMBulk/loops);
+    }
+
+    public static void main(final String args[]) {
+        org.junit.runner.JUnitCore.main(TestFloatUtil04BulkTransformNOUI.class.getName());
+    }
+}
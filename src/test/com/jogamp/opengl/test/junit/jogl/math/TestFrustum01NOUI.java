@@ -0,0 +1,215 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package com.jogamp.opengl.test.junit.jogl.math;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.FixMethodOrder;
+import org.junit.runners.MethodSorters;
+
+import com.jogamp.common.os.Platform;
+import com.jogamp.opengl.math.FloatUtil;
+import com.jogamp.opengl.math.geom.AABBox;
+import com.jogamp.opengl.math.geom.Frustum;
+
+/**
+ * Validates and benchmarks the bulk {@link Frustum#cullAABBoxes(float[], float[], int, byte[], int[]) AABBox culling}
+ * against the per object {@link Frustum#isAABBoxOutside(AABBox)} path.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestFrustum01NOUI {
+
+    static Frustum createFrustum() {
+        final float[] p = new float[16];
+        final float[] mv = new float[16];
+        final float[] pmv = new float[16];
+        FloatUtil.makePerspective(p, 0, true, 45f * FloatUtil.PI / 180f, 1.5f, 1f, 100f);
+        FloatUtil.makeTranslation(mv, true, 0f, 0f, -50f);
+        FloatUtil.multMatrix(p, mv, pmv);
+        final Frustum f = new Frustum();
+        f.updateByPMV(pmv, 0);
+        return f;
+    }
+
+    /** Creates random boxes in the cube [-100..100] w/ size [0..4], 3 floats per corner. */
+    static void createBoxes(final Random rnd, final int count, final float[] low, final float[] high, final AABBox[] boxes) {
+        for(int i=0; i<count; i++) {
+            final int i3 = i*3;
+            for(int j=0; j<3; j++) {
+                low[i3+j] = rnd.nextFloat() * 200f - 100f;
+                high[i3+j] = low[i3+j] + rnd.nextFloat() * 4f;
+            }
+            if( null != boxes ) {
+                boxes[i] = new AABBox(low[i3], low[i3+1], low[i3+2], high[i3], high[i3+1], high[i3+2]);
+            }
+        }
+    }
+
+    @Test
+    public void test01Correctness() throws InterruptedException {
+        final Frustum f = createFrustum();
+        final int count = 10000 + 17;
+        final float[] low = new float[count*3];
+        final float[] high = new float[count*3];
+        final AABBox[] boxes = new AABBox[count];
+        createBoxes(new Random(42), count, low, high, boxes);
+
+        final int[] expIdx = new int[count];
+        int expCount = 0;
+        for(int i=0; i<count; i++) {
+            if( !f.isAABBoxOutside(boxes[i]) ) {
+                expIdx[expCount++] = i;
+            }
+        }
+        System.err.println("Visible "+expCount+" / "+count);
+        Assert.assertTrue(0 < expCount && expCount < count);
+
+        final int[] idx = new int[count];
+        Assert.assertEquals(expCount, f.cullAABBoxes(low, high, count, null, idx));
+        Assert.assertArrayEquals(Arrays.copyOf(expIdx, expCount), Arrays.copyOf(idx, expCount));
+
+        // plane-coherency cache, twice to use cached planes
+        final byte[] lastFailedPlane = new byte[count];
+        Arrays.fill(lastFailedPlane, Frustum.NO_PLANE);
+        for(int j=0; j<2; j++) {
+            Assert.assertEquals(expCount, f.cullAABBoxes(low, high, count, lastFailedPlane, idx));
+            Assert.assertArrayEquals(Arrays.copyOf(expIdx, expCount), Arrays.copyOf(idx, expCount));
+        }
+
+        final long[] bits = new long[(count+63)/64];
+        Assert.assertEquals(expCount, f.cullAABBoxes(low, high, count, lastFailedPlane, bits));
+        validateBits(expIdx, expCount, bits, count);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Arrays.fill(bits, 0);
+            Assert.assertEquals(expCount, f.cullAABBoxes(executor, 7, low, high, count, lastFailedPlane, bits));
+            validateBits(expIdx, expCount, bits, count);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test02Bounds() {
+        final Frustum f = createFrustum();
+        final float[] low = new float[2*3];
+        final float[] high = new float[2*3];
+        final int count = Integer.MAX_VALUE / 3 + 2; // count*3 overflows to a negative int
+        try {
+            f.cullAABBoxes(low, high, count, null, new long[1]);
+            Assert.fail("IndexOutOfBoundsException expected");
+        } catch(final IndexOutOfBoundsException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("box arrays"));
+        }
+        try {
+            f.cullAABBoxes(low, high, 3, null, new int[3]);
+            Assert.fail("IndexOutOfBoundsException expected");
+        } catch(final IndexOutOfBoundsException e) { }
+    }
+
+    private static void validateBits(final int[] expIdx, final int expCount, final long[] bits, final int count) {
+        int j = 0;
+        for(int i=0; i<count; i++) {
+            final boolean visible = 0 != ( bits[i >>> 6] & ( 1L << ( i & 63 ) ) );
+            final boolean expVisible = j < expCount && expIdx[j] == i;
+            Assert.assertEquals("Box "+i, expVisible, visible);
+            if( expVisible ) {
+                j++;
+            }
+        }
+    }
+
+    private void testPerf(final int count, final int loops, final ExecutorService executor, final int taskCount) throws InterruptedException {
+        final Frustum f = createFrustum();
+        final float[] low = new float[count*3];
+        final float[] high = new float[count*3];
+        final AABBox[] boxes = new AABBox[count];
+        createBoxes(new Random(1), count, low, high, boxes);
+        final int[] idx = new int[count];
+        final long[] bits = new long[(count+63)/64];
+        final byte[] lastFailedPlane = new byte[count];
+        Arrays.fill(lastFailedPlane, Frustum.NO_PLANE);
+
+        long tObj = 0, tIdx = 0, tCache = 0, tPar = 0;
+        int vObj = 0, vIdx = 0, vCache = 0, vPar = 0;
+        for(int l=-3; l<loops; l++) { // first 3 loops are warm-up
+            final long t0 = Platform.currentTimeMillis();
+            vObj = 0;
+            for(int i=0; i<count; i++) {
+                if( !f.isAABBoxOutside(boxes[i]) ) {
+                    vObj++;
+                }
+            }
+            final long t1 = Platform.currentTimeMillis();
+            vIdx = f.cullAABBoxes(low, high, count, null, idx);
+            final long t2 = Platform.currentTimeMillis();
+            vCache = f.cullAABBoxes(low, high, count, lastFailedPlane, bits);
+            final long t3 = Platform.currentTimeMillis();
+            vPar = f.cullAABBoxes(executor, taskCount, low, high, count, lastFailedPlane, bits);
+            final long t4 = Platform.currentTimeMillis();
+            if( 0 <= l ) {
+                tObj += t1 - t0;
+                tIdx += t2 - t1;
+                tCache += t3 - t2;
+                tPar += t4 - t3;
+            }
+        }
+        Assert.assertEquals(vObj, vIdx);
+        Assert.assertEquals(vObj, vCache);
+        Assert.assertEquals(vObj, vPar);
+        System.err.printf("Summary %d loops of %7d boxes, %d visible:%n", loops, count, vObj);
+        System.err.printf("  per object      %6d ms total, %f ms/loop%n", tObj, (double)tObj/loops);
+        System.err.printf("  bulk index      %6d ms total, %f ms/loop%n", tIdx, (double)tIdx/loops);
+        System.err.printf("  bulk bits+cache %6d ms total, %f ms/loop%n", tCache, (double)tCache/loops);
+        System.err.printf("  parallel x %2d   %6d ms total, %f ms/loop%n", taskCount, tPar, (double)tPar/loops);
+    }
+
+    @Test
+    public void test10Perf() throws InterruptedException {
+        final int cores = Runtime.getRuntime().availableProcessors();
+        final ExecutorService executor = Executors.newFixedThreadPool(cores);
+        try {
+            testPerf(  10000, 200, executor, cores);
+            testPerf( 100000,  50, executor, cores);
+            testPerf(1000000,  10, executor, cores);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public static void main(final String args[]) {
+        org.junit.runner.JUnitCore.main(TestFrustum01NOUI.class.getName());
+    }
+}
@@ -155,7 +155,7 @@ public class TestPMVMatrix01NEWT extends UITestCase {
         // System.err.println("P0: "+pmv.toString());
 
         Assert.assertTrue("Dirty bits clean, "+pmv.toString(), 0 != pmv.getDirtyBits());
-        Assert.assertEquals("Remaining dirty bits not Mvi|Mvit|Frustum, "+pmv.toString(), PMVMatrix.DIRTY_INVERSE_MODELVIEW|PMVMatrix.DIRTY_INVERSE_TRANSPOSED_MODELVIEW | PMVMatrix.DIRTY_FRUSTUM, pmv.getDirtyBits());
+        Assert.assertEquals("Remaining dirty bits not Mvi|Mvit|Frustum|PMv, "+pmv.toString(), PMVMatrix.DIRTY_INVERSE_MODELVIEW|PMVMatrix.DIRTY_INVERSE_TRANSPOSED_MODELVIEW | PMVMatrix.DIRTY_FRUSTUM | PMVMatrix.DIRTY_PREMUL_PMV, pmv.getDirtyBits());
         Assert.assertEquals("Request bits not zero, "+pmv.toString(), 0, pmv.getRequestMask());
 
         //
@@ -172,7 +172,7 @@ public class TestPMVMatrix01NEWT extends UITestCase {
         }
         Assert.assertTrue("Modified bits zero", 0 != pmv.getModifiedBits(true)); // clear & test
         Assert.assertTrue("Dirty bits clean, "+pmv.toString(), 0 != pmv.getDirtyBits());
-        Assert.assertEquals("Remaining dirty bits not Mvi|Mvit|Frustum, "+pmv.toString(), PMVMatrix.DIRTY_INVERSE_MODELVIEW|PMVMatrix.DIRTY_INVERSE_TRANSPOSED_MODELVIEW | PMVMatrix.DIRTY_FRUSTUM, pmv.getDirtyBits());
+        Assert.assertEquals("Remaining dirty bits not Mvi|Mvit|Frustum|PMv, "+pmv.toString(), PMVMatrix.DIRTY_INVERSE_MODELVIEW|PMVMatrix.DIRTY_INVERSE_TRANSPOSED_MODELVIEW | PMVMatrix.DIRTY_FRUSTUM | PMVMatrix.DIRTY_PREMUL_PMV, pmv.getDirtyBits());
         Assert.assertEquals("Request bits not zero, "+pmv.toString(), 0, pmv.getRequestMask());
 
         //
@@ -181,14 +181,14 @@ public class TestPMVMatrix01NEWT extends UITestCase {
         pmv.glTranslatef(1f, 2f, 3f); // all dirty !
         Assert.assertTrue("Modified bits zero", 0 != pmv.getModifiedBits(true)); // clear & test
         Assert.assertTrue("Dirty bits clean, "+pmv.toString(), 0 != pmv.getDirtyBits());
-        Assert.assertEquals("Remaining dirty bits not Mvi|Mvit|Frustum, "+pmv.toString(), PMVMatrix.DIRTY_INVERSE_MODELVIEW|PMVMatrix.DIRTY_INVERSE_TRANSPOSED_MODELVIEW | PMVMatrix.DIRTY_FRUSTUM, pmv.getDirtyBits());
+        Assert.assertEquals("Remaining dirty bits not Mvi|Mvit|Frustum|PMv, "+pmv.toString(), PMVMatrix.DIRTY_INVERSE_MODELVIEW|PMVMatrix.DIRTY_INVERSE_TRANSPOSED_MODELVIEW | PMVMatrix.DIRTY_FRUSTUM | PMVMatrix.DIRTY_PREMUL_PMV, pmv.getDirtyBits());
         Assert.assertEquals("Request bits not zero, "+pmv.toString(), 0, pmv.getRequestMask());
         // System.err.println("P1: "+pmv.toString());
 
         b = pmv.update(); // will not clean dirty bits, since no request has been made -> false
         Assert.assertEquals("Update has been perfomed, but non requested", false, b);
         Assert.assertTrue("Dirty bits clean, "+pmv.toString(), 0 != pmv.getDirtyBits());
-        Assert.assertEquals("Remaining dirty bits not Mvi|Mvit|Frustum, "+pmv.toString(), PMVMatrix.DIRTY_INVERSE_MODELVIEW|PMVMatrix.DIRTY_INVERSE_TRANSPOSED_MODELVIEW | PMVMatrix.DIRTY_FRUSTUM, pmv.getDirtyBits());
+        Assert.assertEquals("Remaining dirty bits not Mvi|Mvit|Frustum|PMv, "+pmv.toString(), PMVMatrix.DIRTY_INVERSE_MODELVIEW|PMVMatrix.DIRTY_INVERSE_TRANSPOSED_MODELVIEW | PMVMatrix.DIRTY_FRUSTUM | PMVMatrix.DIRTY_PREMUL_PMV, pmv.getDirtyBits());
         Assert.assertEquals("Request bits not zero, "+pmv.toString(), 0, pmv.getRequestMask());
         // System.err.println("P2: "+pmv.toString());
 
@@ -202,7 +202,7 @@ public class TestPMVMatrix01NEWT extends UITestCase {
         mvi = pmv.glGetMviMatrixf();
         MiscUtils.assertFloatBufferEquals("Mvi not translated123, "+pmv.toString(), translated123I, mvi, epsilon);
         Assert.assertEquals("Request bit Mvi not set, "+pmv.toString(), PMVMatrix.DIRTY_INVERSE_MODELVIEW, pmv.getRequestMask());
-        Assert.assertEquals("Remaining dirty bits not Mvit|Frustum, "+pmv.toString(), PMVMatrix.DIRTY_INVERSE_TRANSPOSED_MODELVIEW | PMVMatrix.DIRTY_FRUSTUM, pmv.getDirtyBits());
+        Assert.assertEquals("Remaining dirty bits not Mvit|Frustum|PMv, "+pmv.toString(), PMVMatrix.DIRTY_INVERSE_TRANSPOSED_MODELVIEW | PMVMatrix.DIRTY_FRUSTUM | PMVMatrix.DIRTY_PREMUL_PMV, pmv.getDirtyBits());
 
         frustum = pmv.glGetFrustum();
         Assert.assertNotNull("Frustum is null"+pmv.toString(), frustum); // FIXME: Test Frustum value!
@@ -222,7 +222,7 @@ public class TestPMVMatrix01NEWT extends UITestCase {
         pmv.glLoadIdentity(); // all dirty
         Assert.assertTrue("Modified bits zero", 0 != pmv.getModifiedBits(true)); // clear & test
         Assert.assertTrue("Dirty bits clean, "+pmv.toString(), 0 != pmv.getDirtyBits());
-        Assert.assertEquals("Remaining dirty bits not Mvi|Mvit|Frustum, "+pmv.toString(), PMVMatrix.DIRTY_INVERSE_MODELVIEW|PMVMatrix.DIRTY_INVERSE_TRANSPOSED_MODELVIEW | PMVMatrix.DIRTY_FRUSTUM, pmv.getDirtyBits());
+        Assert.assertEquals("Remaining dirty bits not Mvi|Mvit|Frustum|PMv, "+pmv.toString(), PMVMatrix.DIRTY_INVERSE_MODELVIEW|PMVMatrix.DIRTY_INVERSE_TRANSPOSED_MODELVIEW | PMVMatrix.DIRTY_FRUSTUM | PMVMatrix.DIRTY_PREMUL_PMV, pmv.getDirtyBits());
         Assert.assertEquals("Request bits Mvi|Mvit|Frustum not set, "+pmv.toString(), PMVMatrix.DIRTY_INVERSE_MODELVIEW | PMVMatrix.DIRTY_INVERSE_TRANSPOSED_MODELVIEW | PMVMatrix.DIRTY_FRUSTUM, pmv.getRequestMask());
         MiscUtils.assertFloatBufferEquals("P not identity, "+pmv.toString(), ident, p, epsilon);
         MiscUtils.assertFloatBufferEquals("Mv not identity, "+pmv.toString(), ident, mv, epsilon);
@@ -257,7 +257,7 @@ public class TestPMVMatrix01NEWT extends UITestCase {
         // System.err.println("P0: "+pmv.toString());
 
         Assert.assertTrue("Dirty bits clean, "+pmv.toString(), 0 != pmv.getDirtyBits());
-        Assert.assertEquals("Remaining dirty bits not Mvi|Mvit|Frustum, "+pmv.toString(), PMVMatrix.DIRTY_INVERSE_MODELVIEW|PMVMatrix.DIRTY_INVERSE_TRANSPOSED_MODELVIEW | PMVMatrix.DIRTY_FRUSTUM, pmv.getDirtyBits());
+        Assert.assertEquals("Remaining dirty bits not Mvi|Mvit|Frustum|PMv, "+pmv.toString(), PMVMatrix.DIRTY_INVERSE_MODELVIEW|PMVMatrix.DIRTY_INVERSE_TRANSPOSED_MODELVIEW | PMVMatrix.DIRTY_FRUSTUM | PMVMatrix.DIRTY_PREMUL_PMV, pmv.getDirtyBits());
         Assert.assertEquals("Request bits not zero, "+pmv.toString(), 0, pmv.getRequestMask());
 
         //
@@ -275,7 +275,7 @@ public class TestPMVMatrix01NEWT extends UITestCase {
         // System.err.println("P0: "+pmv.toString());
         Assert.assertTrue("Modified bits zero", 0 != pmv.getModifiedBits(true)); // clear & test
         Assert.assertTrue("Dirty bits clean, "+pmv.toString(), 0 != pmv.getDirtyBits());
-        Assert.assertEquals("Remaining dirty bits not Mvi|Mvit|Frustum, "+pmv.toString(), PMVMatrix.DIRTY_INVERSE_MODELVIEW|PMVMatrix.DIRTY_INVERSE_TRANSPOSED_MODELVIEW | PMVMatrix.DIRTY_FRUSTUM, pmv.getDirtyBits());
+        Assert.assertEquals("Remaining dirty bits not Mvi|Mvit|Frustum|PMv, "+pmv.toString(), PMVMatrix.DIRTY_INVERSE_MODELVIEW|PMVMatrix.DIRTY_INVERSE_TRANSPOSED_MODELVIEW | PMVMatrix.DIRTY_FRUSTUM | PMVMatrix.DIRTY_PREMUL_PMV, pmv.getDirtyBits());
         Assert.assertEquals("Request bits not zero, "+pmv.toString(), 0, pmv.getRequestMask());
         // System.err.println("P1: "+pmv.toString());
 
@@ -291,12 +291,12 @@ public class TestPMVMatrix01NEWT extends UITestCase {
 
         mvi  = pmv.glGetMviMatrixf();
         MiscUtils.assertFloatBufferEquals("Mvi not identity, "+pmv.toString(), ident, mvi, epsilon);
-        Assert.assertEquals("Remaining dirty bits not Mvit|Frustum, "+pmv.toString(), PMVMatrix.DIRTY_INVERSE_TRANSPOSED_MODELVIEW | PMVMatrix.DIRTY_FRUSTUM, pmv.getDirtyBits());
+        Assert.assertEquals("Remaining dirty bits not Mvit|Frustum|PMv, "+pmv.toString(), PMVMatrix.DIRTY_INVERSE_TRANSPOSED_MODELVIEW | PMVMatrix.DIRTY_FRUSTUM | PMVMatrix.DIRTY_PREMUL_PMV, pmv.getDirtyBits());
         Assert.assertEquals("Request bit Mvi not set, "+pmv.toString(), PMVMatrix.DIRTY_INVERSE_MODELVIEW, pmv.getRequestMask());
 
         mvit = pmv.glGetMvitMatrixf();
         MiscUtils.assertFloatBufferEquals("Mvi not identity, "+pmv.toString(), ident, mvit, epsilon);
-        Assert.assertEquals("Remaining dirty bits not Frustum, "+pmv.toString(), PMVMatrix.DIRTY_FRUSTUM, pmv.getDirtyBits());
+        Assert.assertEquals("Remaining dirty bits not Frustum|PMv, "+pmv.toString(), PMVMatrix.DIRTY_FRUSTUM | PMVMatrix.DIRTY_PREMUL_PMV, pmv.getDirtyBits());
         Assert.assertEquals("Request bits Mvi and Mvit not set, "+pmv.toString(), PMVMatrix.DIRTY_INVERSE_MODELVIEW | PMVMatrix.DIRTY_INVERSE_TRANSPOSED_MODELVIEW, pmv.getRequestMask());
 
         frustum = pmv.glGetFrustum();
@@ -310,7 +310,7 @@ public class TestPMVMatrix01NEWT extends UITestCase {
         pmv.glTranslatef(1f, 2f, 3f); // all dirty !
         Assert.assertTrue("Modified bits zero", 0 != pmv.getModifiedBits(true)); // clear & test
         Assert.assertTrue("Dirty bits clean, "+pmv.toString(), 0 != pmv.getDirtyBits());
-        Assert.assertEquals("Remaining dirty bits not Mvi|Mvit|Frustum, "+pmv.toString(), PMVMatrix.DIRTY_INVERSE_MODELVIEW|PMVMatrix.DIRTY_INVERSE_TRANSPOSED_MODELVIEW | PMVMatrix.DIRTY_FRUSTUM, pmv.getDirtyBits());
+        Assert.assertEquals("Remaining dirty bits not Mvi|Mvit|Frustum|PMv, "+pmv.toString(), PMVMatrix.DIRTY_INVERSE_MODELVIEW|PMVMatrix.DIRTY_INVERSE_TRANSPOSED_MODELVIEW | PMVMatrix.DIRTY_FRUSTUM | PMVMatrix.DIRTY_PREMUL_PMV, pmv.getDirtyBits());
         MiscUtils.assertFloatBufferEquals("P not identity, "+pmv.toString()+pmv.toString(), ident, p, epsilon);
         MiscUtils.assertFloatBufferEquals("Mv not translated123, "+pmv.toString()+pmv.toString(), translated123C, mv, epsilon);
         MiscUtils.assertFloatBufferNotEqual("Mvi already translated123 w/o update, "+pmv.toString()+pmv.toString(), translated123I, mvi, epsilon);
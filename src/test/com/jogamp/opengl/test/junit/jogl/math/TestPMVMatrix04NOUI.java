@@ -0,0 +1,232 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package com.jogamp.opengl.test.junit.jogl.math;
+
+import java.lang.management.ManagementFactory;
+import java.nio.FloatBuffer;
+
+import com.jogamp.opengl.fixedfunc.GLMatrixFunc;
+
+import com.jogamp.common.os.Platform;
+import com.jogamp.opengl.math.FloatUtil;
+import com.jogamp.opengl.math.Quaternion;
+import com.jogamp.opengl.util.PMVMatrix;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.FixMethodOrder;
+import org.junit.runners.MethodSorters;
+
+/**
+ * Validates the {@link PMVMatrix} derivation cache,
+ * i.e. the per derived value dirty-bits and their restoration at modelview pop,
+ * as well as allocation-free push/translate/rotate/pop operations.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestPMVMatrix04NOUI {
+
+    static final float epsilon = 0.00001f;
+
+    private static PMVMatrix createCamera(final int mvStackDepth) {
+        final PMVMatrix m = new PMVMatrix(mvStackDepth);
+        m.glMatrixMode(GLMatrixFunc.GL_PROJECTION);
+        m.glLoadIdentity();
+        m.gluPerspective(45f, 1.5f, 1f, 100f);
+        m.glMatrixMode(GLMatrixFunc.GL_MODELVIEW);
+        m.glLoadIdentity();
+        m.glTranslatef(0f, 0f, -10f);
+        return m;
+    }
+
+    @Test
+    public void test01PremulPMv() {
+        final PMVMatrix m = createCamera(0);
+        final float[] exp = new float[16];
+        m.multPMvMatrixf(exp, 0);
+
+        final FloatBuffer pmv = m.glGetPMvPremulMatrixf();
+        final float[] has = new float[16];
+        pmv.get(has);
+        pmv.reset();
+        Assert.assertArrayEquals(exp, has, epsilon);
+        Assert.assertEquals(0, m.getDirtyBits() & PMVMatrix.DIRTY_PREMUL_PMV);
+
+        m.glRotatef(30f, 0f, 1f, 0f);
+        Assert.assertTrue(0 != ( m.getDirtyBits() & PMVMatrix.DIRTY_PREMUL_PMV ) );
+        Assert.assertTrue(m.update());
+        m.multPMvMatrixf(exp, 0);
+        pmv.get(has);
+        pmv.reset();
+        Assert.assertArrayEquals(exp, has, epsilon);
+    }
+
+    @Test
+    public void test02PopRestoresCleanDerivations() {
+        final PMVMatrix m = createCamera(0);
+        m.glGetFrustum();
+        m.glGetMviMatrixf();
+        Assert.assertEquals(0, m.getDirtyBits() & ( PMVMatrix.DIRTY_FRUSTUM | PMVMatrix.DIRTY_INVERSE_MODELVIEW ) );
+        final float[] mvi0 = new float[16];
+        m.glGetMviMatrixf().get(mvi0);
+        m.glGetMviMatrixf().reset();
+
+        // Derivations not requested within section
+        m.glPushMatrix();
+        m.glTranslatef(1f, 2f, 3f);
+        m.glRotatef(45f, 1f, 0f, 0f);
+        Assert.assertEquals(PMVMatrix.DIRTY_ALL, m.getDirtyBits() & PMVMatrix.DIRTY_ALL);
+        m.glPopMatrix();
+        Assert.assertEquals(0, m.getDirtyBits() & ( PMVMatrix.DIRTY_FRUSTUM | PMVMatrix.DIRTY_INVERSE_MODELVIEW ) );
+
+        // Only Mvi requested within section, hence only Mvi must be recomputed after pop
+        m.clearAllUpdateRequests();
+        m.glPushMatrix();
+        m.glTranslatef(1f, 2f, 3f);
+        final float[] mvi1 = new float[16];
+        m.glGetMviMatrixf().get(mvi1);
+        m.glGetMviMatrixf().reset();
+        Assert.assertEquals(-1f, mvi1[12], epsilon); // inverse of translation (1, 2, -7)
+        Assert.assertEquals(-2f, mvi1[13], epsilon);
+        Assert.assertEquals( 7f, mvi1[14], epsilon);
+        m.glPopMatrix();
+        Assert.assertTrue(0 != ( m.getDirtyBits() & PMVMatrix.DIRTY_INVERSE_MODELVIEW ) );
+        Assert.assertEquals(0, m.getDirtyBits() & PMVMatrix.DIRTY_FRUSTUM );
+        final float[] mvi2 = new float[16];
+        m.glGetMviMatrixf().get(mvi2);
+        m.glGetMviMatrixf().reset();
+        Assert.assertArrayEquals(mvi0, mvi2, epsilon);
+
+        // Nested sections, recomputation in inner section invalidates outer section
+        m.glPushMatrix();
+        m.glTranslatef(1f, 0f, 0f);
+        m.glPushMatrix();
+        m.glTranslatef(0f, 1f, 0f);
+        m.glGetFrustum();
+        m.glPopMatrix();
+        Assert.assertTrue(0 != ( m.getDirtyBits() & PMVMatrix.DIRTY_FRUSTUM ) );
+        m.glPopMatrix();
+        Assert.assertTrue(0 != ( m.getDirtyBits() & PMVMatrix.DIRTY_FRUSTUM ) );
+    }
+
+    @Test
+    public void test03ProjectionChangeWithinSection() {
+        final PMVMatrix m = createCamera(0);
+        m.glGetFrustum();
+        m.glPushMatrix();
+        m.glMatrixMode(GLMatrixFunc.GL_PROJECTION);
+        m.glLoadIdentity();
+        m.glMatrixMode(GLMatrixFunc.GL_MODELVIEW);
+        m.glPopMatrix();
+        Assert.assertTrue(0 != ( m.getDirtyBits() & PMVMatrix.DIRTY_FRUSTUM ) );
+        Assert.assertTrue(0 != ( m.getDirtyBits() & PMVMatrix.DIRTY_PREMUL_PMV ) );
+        Assert.assertEquals(0, m.getDirtyBits() & PMVMatrix.DIRTY_INVERSE_MODELVIEW & m.getRequestMask() );
+    }
+
+    private static boolean isAllocationCounterAvailable() {
+        final java.lang.management.ThreadMXBean tmx = ManagementFactory.getThreadMXBean();
+        if( tmx instanceof com.sun.management.ThreadMXBean ) {
+            final com.sun.management.ThreadMXBean stmx = (com.sun.management.ThreadMXBean)tmx;
+            return stmx.isThreadAllocatedMemorySupported() && stmx.isThreadAllocatedMemoryEnabled();
+        }
+        return false;
+    }
+    private static long getAllocatedBytes() {
+        return ((com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static void objectLoop(final PMVMatrix m, final Quaternion quat, final int count) {
+        for(int i=0; i<count; i++) {
+            m.glPushMatrix();
+            m.glTranslatef(i, 0f, -i);
+            m.glRotatef(i, 0f, 1f, 0f);
+            m.glRotate(quat);
+            m.glScalef(2f, 2f, 2f);
+            m.glGetMvitMatrixf();
+            m.glPopMatrix();
+        }
+        m.glGetFrustum();
+    }
+
+    @Test
+    public void test04NoAllocation() {
+        if( !isAllocationCounterAvailable() ) {
+            System.err.println("Thread allocation counter not available, skipped");
+            return;
+        }
+        final PMVMatrix m = createCamera(4);
+        final Quaternion quat = new Quaternion().rotateByAngleY(0.5f);
+        for(int i=0; i<20; i++) {
+            objectLoop(m, quat, 1000); // warm-up, incl. lazy frustum instance and JIT
+        }
+
+        final int count = 100000;
+        // measure the measurement overhead
+        final long a0 = getAllocatedBytes();
+        final long a1 = getAllocatedBytes();
+        objectLoop(m, quat, count);
+        final long a2 = getAllocatedBytes();
+        final long allocated = ( a2 - a1 ) - ( a1 - a0 );
+        System.err.println("Allocated bytes for "+count+" objects: "+allocated);
+        // tolerate incidental allocations, e.g. by the VM, not scaling with the object count
+        Assert.assertTrue("Allocated "+allocated+" bytes for "+count+" objects", allocated < count / 10);
+    }
+
+    @Test
+    public void test10Perf() {
+        final PMVMatrix m = createCamera(4);
+        final Quaternion quat = new Quaternion().rotateByAngleY(0.5f);
+        final int count = 10000;
+        final int frames = 200;
+
+        long tObj = 0;
+        for(int f=-10; f<frames; f++) { // first 10 frames are warm-up
+            final long t0 = Platform.currentTimeMillis();
+            m.glGetFrustum(); // per frame camera culling
+            m.glGetMviMatrixf();
+            for(int i=0; i<count; i++) {
+                m.glPushMatrix();
+                m.glTranslatef(i, 0f, -i);
+                m.glRotatef(i, 0f, 1f, 0f);
+                m.glRotate(quat);
+                m.glPopMatrix();
+            }
+            final long t1 = Platform.currentTimeMillis();
+            if( 0 <= f ) {
+                tObj += t1 - t0;
+            }
+        }
+        m.clearAllUpdateRequests();
+        System.err.printf("Summary %d frames of %d objects: %6d ms total, %f ms/frame, %f ns/object%n",
+                frames, count, tObj, (double)tObj/frames, tObj*1000000.0/((double)frames*count));
+    }
+
+    public static void main(final String args[]) {
+        org.junit.runner.JUnitCore.main(TestPMVMatrix04NOUI.class.getName());
+    }
+}
@@ -0,0 +1,277 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.jogl.util.texture;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import jogamp.opengl.util.jpeg.JPEGDecoder;
+
+import com.jogamp.nativewindow.util.PixelFormat;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.FixMethodOrder;
+import org.junit.runners.MethodSorters;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.common.os.Platform;
+import com.jogamp.common.util.IOUtil;
+import com.jogamp.opengl.util.texture.TextureData.ColorSpace;
+import com.jogamp.opengl.util.texture.spi.JPEGImage;
+
+/**
+ * Validates {@link JPEGDecoder#getPixel(ByteBuffer, PixelFormat, int, boolean, ExecutorService) direct JPEG decoding}
+ * into a destination buffer, serial and concurrent, against the {@link JPEGDecoder.ColorSink} based decoding
+ * and benchmarks their throughput.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestJPEGImage02NOUI {
+    static final String[] files = { "test-ntscN_3-01-160x90-90pct-yuv444-base.jpg",
+                                    "test-ntscN_3-01-160x90-90pct-yuv444-prog.jpg",
+                                    "test-ntscN_3-01-160x90-60pct-yuv422h-base.jpg",
+                                    "test-ntscN_3-01-160x90-60pct-yuv422h-prog.jpg",
+                                    "j1-baseline.jpg",
+                                    "j2-progressive.jpg",
+                                    "j3-baseline_gray.jpg",
+                                    "test-cmyk-01.jpg",
+                                    "test-ycck-01.jpg",
+                                    "bug745_qttdef_post_frame.jpg" };
+
+    static byte[] readResource(final String fname) throws IOException {
+        final URLConnection urlConn = IOUtil.getResource(fname, TestJPEGImage02NOUI.class.getClassLoader(), TestJPEGImage02NOUI.class);
+        if( null == urlConn ) {
+            throw new IOException("Cannot find "+fname);
+        }
+        final InputStream in = urlConn.getInputStream();
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            IOUtil.copyStream2Stream(in, out, -1);
+            return out.toByteArray();
+        } finally {
+            IOUtil.close(in, false);
+        }
+    }
+
+    /** Stores RGB top-to-bottom, the reference decoding path. */
+    static class RGBSink implements JPEGDecoder.ColorSink {
+        int width;
+        byte[] data;
+
+        @Override
+        public ColorSpace allocate(final int width, final int height, final ColorSpace sourceCS, final int sourceComponents) {
+            this.width = width;
+            this.data = new byte[width * height * 3];
+            return ColorSpace.RGB;
+        }
+        @Override
+        public void storeRGB(final int x, final int y, final byte r, final byte g, final byte b) {
+            final int i = ( y * width + x ) * 3;
+            data[i] = r;
+            data[i+1] = g;
+            data[i+2] = b;
+        }
+        @Override
+        public void store2(final int x, final int y, final byte c1, final byte c2) {
+            throw new RuntimeException("not supported");
+        }
+        @Override
+        public void storeYCbCr(final int x, final int y, final byte Y, final byte Cb, final byte Cr) {
+            throw new RuntimeException("not supported");
+        }
+    }
+
+    static byte[] decodeSink(final byte[] jpeg) throws IOException {
+        final JPEGDecoder decoder = new JPEGDecoder();
+        decoder.parse(new ByteArrayInputStream(jpeg));
+        final RGBSink sink = new RGBSink();
+        decoder.getPixel(sink, decoder.getWidth(), decoder.getHeight());
+        return sink.data;
+    }
+
+    static byte[] toArray(final ByteBuffer bb, final int size) {
+        final byte[] a = new byte[size];
+        final ByteBuffer d = bb.duplicate();
+        d.clear();
+        d.get(a);
+        return a;
+    }
+
+    @Test
+    public void test01DirectVsSink() throws IOException, InterruptedException {
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            for(final String fname : files) {
+                final byte[] jpeg = readResource(fname);
+                final byte[] expRGB = decodeSink(jpeg);
+
+                final JPEGDecoder decoder = new JPEGDecoder();
+                decoder.parse(new ByteArrayInputStream(jpeg));
+                final int width = decoder.getWidth(), height = decoder.getHeight();
+                System.err.println(fname+": "+width+"x"+height+", comps "+decoder.getComponentCount()+", "+decoder.getSourceColorSpace());
+
+                final ByteBuffer rgb = Buffers.newDirectByteBuffer(width * height * 3);
+                decoder.getPixel(rgb, PixelFormat.RGB888, 0, false, null);
+                Assert.assertArrayEquals(fname, expRGB, toArray(rgb, expRGB.length));
+                Assert.assertEquals(0, rgb.position());
+
+                // concurrent bands
+                rgb.clear();
+                decoder.getPixel(rgb, PixelFormat.RGB888, 0, false, executor);
+                Assert.assertArrayEquals(fname, expRGB, toArray(rgb, expRGB.length));
+
+                // channel order, alpha, stride and orientation
+                final PixelFormat[] fmts = { PixelFormat.BGR888, PixelFormat.RGBA8888, PixelFormat.BGRA8888, PixelFormat.ARGB8888, PixelFormat.ABGR8888 };
+                for(final PixelFormat fmt : fmts) {
+                    final int bpp = fmt.comp.bytesPerPixel();
+                    final int stride = width * bpp + 12;
+                    final ByteBuffer dest = Buffers.newDirectByteBuffer(stride * height);
+                    decoder.getPixel(dest, fmt, stride, true, executor);
+                    final int rOff = fmt.comp.find(PixelFormat.CType.R), gOff = fmt.comp.find(PixelFormat.CType.G);
+                    final int bOff = fmt.comp.find(PixelFormat.CType.B), aOff = fmt.comp.find(PixelFormat.CType.A);
+                    for(int y=0; y<height; y++) {
+                        final int row = ( height - 1 - y ) * stride;
+                        for(int x=0; x<width; x++) {
+                            final int i = row + x * bpp, e = ( y * width + x ) * 3;
+                            Assert.assertEquals(expRGB[e], dest.get(i + rOff));
+                            Assert.assertEquals(expRGB[e+1], dest.get(i + gOff));
+                            Assert.assertEquals(expRGB[e+2], dest.get(i + bOff));
+                            if( 0 <= aOff ) {
+                                Assert.assertEquals((byte)0xff, dest.get(i + aOff));
+                            }
+                        }
+                    }
+                }
+                if( 4 != decoder.getComponentCount() ) {
+                    final ByteBuffer lum = Buffers.newDirectByteBuffer(width * height);
+                    decoder.getPixel(lum, PixelFormat.LUMINANCE, 0, false, null);
+                    if( 1 == decoder.getComponentCount() ) {
+                        for(int i=0; i<width*height; i++) {
+                            Assert.assertEquals(expRGB[i*3], lum.get(i));
+                        }
+                    }
+                } else {
+                    try {
+                        decoder.getPixel(Buffers.newDirectByteBuffer(width * height), PixelFormat.LUMINANCE, 0, false, null);
+                        Assert.fail("LUMINANCE of 4 components w/o exception");
+                    } catch (final IllegalArgumentException iae) {
+                        System.err.println("Expected: "+iae);
+                    }
+                }
+                try {
+                    decoder.getPixel(Buffers.newDirectByteBuffer(width * height * 3 - 1), PixelFormat.RGB888, 0, false, null);
+                    Assert.fail("Too small buffer w/o exception");
+                } catch (final IndexOutOfBoundsException ioobe) {
+                    System.err.println("Expected: "+ioobe);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test02ReuseBuffer() throws IOException {
+        final ByteBuffer dest = Buffers.newDirectByteBuffer(1024 * 1024 * 4);
+        for(final String fname : files) {
+            final byte[] jpeg = readResource(fname);
+            final JPEGImage image = JPEGImage.read(new ByteArrayInputStream(jpeg), PixelFormat.RGBA8888, dest, null);
+            Assert.assertSame(dest, image.getData());
+            Assert.assertEquals(4, image.getBytesPerPixel());
+            final JPEGImage image3 = JPEGImage.read(new ByteArrayInputStream(jpeg));
+            Assert.assertEquals(3, image3.getBytesPerPixel());
+            final int w = image.getWidth(), h = image.getHeight();
+            for(int i=0; i<w*h; i++) {
+                Assert.assertEquals(image3.getData().get(i*3), dest.get(i*4));
+                Assert.assertEquals(image3.getData().get(i*3+2), dest.get(i*4+2));
+            }
+        }
+        final JPEGImage image = JPEGImage.read(new ByteArrayInputStream(readResource(files[0])), PixelFormat.RGB888, Buffers.newDirectByteBuffer(16), null);
+        Assert.assertEquals(image.getWidth() * image.getHeight() * 3, image.getData().capacity());
+    }
+
+    private static double mbps(final long bytes, final long ms) {
+        return 0 < ms ? ( bytes / ( 1024.0 * 1024.0 ) ) / ( ms / 1000.0 ) : Double.POSITIVE_INFINITY;
+    }
+
+    private void testPerf(final String fname, final int loops) throws IOException, InterruptedException {
+        final byte[] jpeg = readResource(fname);
+        final JPEGDecoder decoder = new JPEGDecoder();
+        decoder.parse(new ByteArrayInputStream(jpeg));
+        final long decodedBytes = (long)decoder.getWidth() * decoder.getHeight() * 3;
+        final ByteBuffer dest = Buffers.newDirectByteBuffer((int)decodedBytes);
+        final int cores = Runtime.getRuntime().availableProcessors();
+        final ExecutorService executor = Executors.newFixedThreadPool(cores);
+        try {
+            long tSink = 0, tDirect = 0, tPar = 0;
+            for(int l=-1; l<loops; l++) { // first loop is warm-up
+                final long t0 = Platform.currentTimeMillis();
+                for(int i=0; i<20; i++) {
+                    decodeSink(jpeg);
+                }
+                final long t1 = Platform.currentTimeMillis();
+                for(int i=0; i<20; i++) {
+                    JPEGImage.read(new ByteArrayInputStream(jpeg), PixelFormat.RGB888, dest, null);
+                }
+                final long t2 = Platform.currentTimeMillis();
+                for(int i=0; i<20; i++) {
+                    JPEGImage.read(new ByteArrayInputStream(jpeg), PixelFormat.RGB888, dest, executor);
+                }
+                final long t3 = Platform.currentTimeMillis();
+                if( 0 <= l ) {
+                    tSink += t1 - t0;
+                    tDirect += t2 - t1;
+                    tPar += t3 - t2;
+                }
+            }
+            final long total = decodedBytes * 20 * loops;
+            System.err.printf("Summary %d x 20 decodes of %s %dx%d, %d cores:%n", loops, fname, decoder.getWidth(), decoder.getHeight(), cores);
+            System.err.printf("  ColorSink         %6d ms total, %8.2f MB/s%n", tSink, mbps(total, tSink));
+            System.err.printf("  direct            %6d ms total, %8.2f MB/s%n", tDirect, mbps(total, tDirect));
+            System.err.printf("  direct parallel   %6d ms total, %8.2f MB/s%n", tPar, mbps(total, tPar));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test10Perf() throws IOException, InterruptedException {
+        testPerf("j1-baseline.jpg", 3);
+        testPerf("j2-progressive.jpg", 3);
+    }
+
+    public static void main(final String args[]) {
+        org.junit.runner.JUnitCore.main(TestJPEGImage02NOUI.class.getName());
+    }
+}
@@ -0,0 +1,282 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package com.jogamp.opengl.test.junit.jogl.util.texture;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import jogamp.opengl.util.pngj.ImageInfo;
+import jogamp.opengl.util.pngj.ImageLine;
+import jogamp.opengl.util.pngj.ImageLineHelper;
+import jogamp.opengl.util.pngj.PngReader;
+import jogamp.opengl.util.pngj.PngjException;
+import jogamp.opengl.util.pngj.chunks.PngChunkPLTE;
+import jogamp.opengl.util.pngj.chunks.PngChunkTRNS;
+
+import com.jogamp.nativewindow.util.Dimension;
+import com.jogamp.nativewindow.util.PixelFormat;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.FixMethodOrder;
+import org.junit.runners.MethodSorters;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.common.os.Platform;
+import com.jogamp.common.util.IOUtil;
+import com.jogamp.opengl.util.PNGPixelRect;
+
+/**
+ * Validates the byte row based {@link PNGPixelRect#read(InputStream, PixelFormat, boolean, int, boolean, ExecutorService) PNG decoding},
+ * serial and w/ pipelined inflation, against the {@link ImageLine} based decoding
+ * and benchmarks their throughput.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestPNGPixelRect02NOUI {
+
+    static byte[] readResource(final String basename) throws IOException {
+        final URLConnection urlConn = IOUtil.getResource(basename+".png", TestPNGPixelRect02NOUI.class.getClassLoader(), TestPNGPixelRect02NOUI.class);
+        if( null == urlConn ) {
+            throw new IOException("Cannot find "+basename+".png");
+        }
+        final InputStream in = urlConn.getInputStream();
+        try {
+            return IOUtil.copyStream2ByteArray(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Decodes the PNG to {@link PixelFormat#RGBA8888} via {@link PngReader#readRow(int)} {@link ImageLine}s
+     * and per pixel conversion, i.e. the former {@link PNGPixelRect} decoding path.
+     */
+    static ByteBuffer readImageLines(final InputStream in, final boolean direct) {
+        final PngReader pngr = new PngReader(new BufferedInputStream(in), null);
+        final ImageInfo imgInfo = pngr.imgInfo;
+        final PngChunkPLTE plte = pngr.getMetadata().getPLTE();
+        final PngChunkTRNS trns = pngr.getMetadata().getTRNS();
+        final int width = imgInfo.cols;
+        final ByteBuffer res = direct ? Buffers.newDirectByteBuffer(width * imgInfo.rows * 4) : ByteBuffer.allocate(width * imgInfo.rows * 4);
+        int[] rgba = null;
+        int dOff = 0;
+        for(int row = 0; row < imgInfo.rows; row++) {
+            final ImageLine l1 = pngr.readRow(row);
+            final int[] src;
+            final int channels;
+            if( imgInfo.indexed ) {
+                rgba = ImageLineHelper.palette2rgb(l1, plte, trns, rgba);
+                src = rgba;
+                channels = null != trns ? 4 : 3;
+            } else {
+                src = l1.scanline;
+                channels = imgInfo.channels;
+            }
+            for(int j = 0; j < width; j++) {
+                final int o = j * channels;
+                switch( channels ) {
+                    case 1:
+                        res.put(dOff++, (byte)src[o]); res.put(dOff++, (byte)src[o]); res.put(dOff++, (byte)src[o]); res.put(dOff++, (byte)0xff);
+                        break;
+                    case 2:
+                        res.put(dOff++, (byte)src[o]); res.put(dOff++, (byte)src[o]); res.put(dOff++, (byte)src[o]); res.put(dOff++, (byte)src[o+1]);
+                        break;
+                    case 3:
+                        res.put(dOff++, (byte)src[o]); res.put(dOff++, (byte)src[o+1]); res.put(dOff++, (byte)src[o+2]); res.put(dOff++, (byte)0xff);
+                        break;
+                    default:
+                        res.put(dOff++, (byte)src[o]); res.put(dOff++, (byte)src[o+1]); res.put(dOff++, (byte)src[o+2]); res.put(dOff++, (byte)src[o+3]);
+                }
+            }
+        }
+        pngr.end();
+        return res;
+    }
+
+    private static PNGPixelRect read(final byte[] png, final PixelFormat destFmt, final boolean destIsGLOriented, final ExecutorService executor) throws IOException {
+        return PNGPixelRect.read(new ByteArrayInputStream(png), destFmt, true /* directBuffer */, 0 /* destMinStrideInBytes */, destIsGLOriented, executor);
+    }
+
+    @Test
+    public void test01ReadAll() throws IOException {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for(int i=0; i<PNGTstFiles.allBasenames.length; i++) {
+                final String basename = PNGTstFiles.allBasenames[i];
+                final byte[] png = readResource(basename);
+                final ByteBuffer exp = readImageLines(new ByteArrayInputStream(png), false);
+
+                final PNGPixelRect rgba = read(png, PixelFormat.RGBA8888, false, null);
+                System.err.println(basename+": "+rgba);
+                Assert.assertEquals(basename, exp, rgba.getPixels());
+                Assert.assertEquals(basename, exp, read(png, PixelFormat.RGBA8888, false, executor).getPixels());
+
+                // source format (fast-path) and flipped, serial vs pipelined
+                for(int k=0; k<2; k++) {
+                    final PNGPixelRect s = read(png, null, 0 == k, null);
+                    final PNGPixelRect p = read(png, null, 0 == k, executor);
+                    Assert.assertEquals(basename, s.getPixelformat(), p.getPixelformat());
+                    Assert.assertEquals(basename, s.getPixels(), p.getPixels());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /** Creates a compressible RGBA test image, i.e. smooth gradients w/ some noise. */
+    static byte[] createPNG(final int width, final int height, final long seed) throws IOException {
+        final Random rnd = new Random(seed);
+        final ByteBuffer pixels = Buffers.newDirectByteBuffer(width * height * 4);
+        for(int y=0; y<height; y++) {
+            for(int x=0; x<width; x++) {
+                pixels.put((byte)( x + rnd.nextInt(4) ));
+                pixels.put((byte)( y + rnd.nextInt(4) ));
+                pixels.put((byte)( x + y ));
+                pixels.put((byte)0xff);
+            }
+        }
+        pixels.rewind();
+        final PNGPixelRect image = new PNGPixelRect(PixelFormat.RGBA8888, new Dimension(width, height), width * 4, false, pixels, 72, 72);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        image.write(out, true);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void test02Abort() throws IOException {
+        final byte[] png = createPNG(512, 512, 1);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // truncated image data must fail, not block
+            final byte[] truncated = Arrays.copyOf(png, png.length / 2);
+            for(int k=0; k<2; k++) {
+                try {
+                    read(truncated, null, false, 0 == k ? null : executor);
+                    Assert.fail("Truncated PNG read w/o exception");
+                } catch (final PngjException e) {
+                    System.err.println("Expected: "+e);
+                }
+            }
+            // end while inflating must stop the task
+            for(int k=0; k<10; k++) {
+                final PngReader pngr = new PngReader(new ByteArrayInputStream(png), null);
+                pngr.setInflateExecutor(executor);
+                pngr.readRowByte(null, k);
+                pngr.end();
+            }
+            Assert.assertEquals(read(png, null, false, null).getPixels(), read(png, null, false, executor).getPixels());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static double mbps(final long bytes, final long ms) {
+        return 0 < ms ? ( bytes / ( 1024.0 * 1024.0 ) ) / ( ms / 1000.0 ) : Double.POSITIVE_INFINITY;
+    }
+
+    private void testPerf(final int width, final int height, final int imageCount, final int loops) throws IOException, InterruptedException, ExecutionException {
+        final byte[][] pngs = new byte[imageCount][];
+        for(int i=0; i<imageCount; i++) {
+            pngs[i] = createPNG(width, height, i);
+        }
+        final long decodedBytes = (long)width * height * 4 * imageCount;
+        final int cores = Runtime.getRuntime().availableProcessors();
+        final ExecutorService executor = Executors.newFixedThreadPool(cores + 1);
+        try {
+            long tLines = 0, tRows = 0, tPipe = 0, tPar = 0;
+            for(int l=-1; l<loops; l++) { // first loop is warm-up
+                final long t0 = Platform.currentTimeMillis();
+                for(int i=0; i<imageCount; i++) {
+                    readImageLines(new ByteArrayInputStream(pngs[i]), true);
+                }
+                final long t1 = Platform.currentTimeMillis();
+                for(int i=0; i<imageCount; i++) {
+                    read(pngs[i], PixelFormat.RGBA8888, true, null);
+                }
+                final long t2 = Platform.currentTimeMillis();
+                for(int i=0; i<imageCount; i++) {
+                    read(pngs[i], PixelFormat.RGBA8888, true, executor);
+                }
+                final long t3 = Platform.currentTimeMillis();
+                final List<Future<PNGPixelRect>> results = new ArrayList<Future<PNGPixelRect>>();
+                for(int i=0; i<imageCount; i++) {
+                    final byte[] png = pngs[i];
+                    results.add(executor.submit(new Callable<PNGPixelRect>() {
+                        @Override
+                        public PNGPixelRect call() throws IOException {
+                            return read(png, PixelFormat.RGBA8888, true, null);
+                        } } ) );
+                }
+                for(int i=0; i<imageCount; i++) {
+                    results.get(i).get();
+                }
+                final long t4 = Platform.currentTimeMillis();
+                if( 0 <= l ) {
+                    tLines += t1 - t0;
+                    tRows += t2 - t1;
+                    tPipe += t3 - t2;
+                    tPar += t4 - t3;
+                }
+            }
+            final long total = decodedBytes * loops;
+            System.err.printf("Summary %d loops of %d images %dx%d RGBA, %d cores:%n", loops, imageCount, width, height, cores);
+            System.err.printf("  ImageLine         %6d ms total, %8.2f MB/s%n", tLines, mbps(total, tLines));
+            System.err.printf("  byte rows         %6d ms total, %8.2f MB/s%n", tRows, mbps(total, tRows));
+            System.err.printf("  pipelined         %6d ms total, %8.2f MB/s%n", tPipe, mbps(total, tPipe));
+            System.err.printf("  parallel images   %6d ms total, %8.2f MB/s%n", tPar, mbps(total, tPar));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test10Perf() throws IOException, InterruptedException, ExecutionException {
+        testPerf(1024, 1024, 4, 3);
+        testPerf(4096, 4096, 1, 2);
+    }
+
+    public static void main(final String args[]) {
+        org.junit.runner.JUnitCore.main(TestPNGPixelRect02NOUI.class.getName());
+    }
+}
@@ -0,0 +1,232 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.jogl.util.texture;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import jogamp.opengl.util.pngj.FilterType;
+import jogamp.opengl.util.pngj.ImageInfo;
+import jogamp.opengl.util.pngj.PngWriter;
+
+import com.jogamp.nativewindow.util.Dimension;
+import com.jogamp.nativewindow.util.PixelFormat;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.FixMethodOrder;
+import org.junit.runners.MethodSorters;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.common.os.Platform;
+import com.jogamp.opengl.util.PNGPixelRect;
+
+/**
+ * Validates {@link PNGPixelRect#write(OutputStream, boolean, ExecutorService) PNG encoding}
+ * w/ concurrently deflated chunks against serial encoding, i.e. the IDAT stream must be one valid zlib stream
+ * inflating to the very same filtered rows, and benchmarks their throughput.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestPNGPixelRect03NOUI {
+
+    /** Returns the concatenated IDAT chunk data of the given PNG file. */
+    static byte[] getIDAT(final byte[] png) {
+        final ByteArrayOutputStream idat = new ByteArrayOutputStream();
+        final ByteBuffer bb = ByteBuffer.wrap(png);
+        bb.position(8); // signature
+        while( bb.remaining() >= 12 ) {
+            final int len = bb.getInt();
+            final int type = bb.getInt();
+            if( 0x49444154 == type ) { // IDAT
+                idat.write(png, bb.position(), len);
+            }
+            bb.position(bb.position() + len + 4); // data + crc
+        }
+        return idat.toByteArray();
+    }
+
+    /** Inflates the given zlib stream, which must be complete incl. a matching Adler32 trailer. */
+    static byte[] inflate(final byte[] zlib) throws DataFormatException {
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(zlib);
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buf = new byte[65536];
+            while( !inflater.finished() ) {
+                final int n = inflater.inflate(buf);
+                if( 0 == n && ( inflater.needsInput() || inflater.needsDictionary() ) ) {
+                    Assert.fail("Incomplete zlib stream, inflated "+out.size()+" bytes");
+                }
+                out.write(buf, 0, n);
+            }
+            Assert.assertEquals("Trailing bytes after zlib stream", 0, inflater.getRemaining());
+            return out.toByteArray();
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /** Creates noisy gradient rows, compressible but not trivially. */
+    static byte[][] createRows(final ImageInfo imi, final long seed) {
+        final Random rnd = new Random(seed);
+        final byte[][] rows = new byte[imi.rows][imi.samplesPerRowPacked];
+        for(int y=0; y<imi.rows; y++) {
+            for(int i=0; i<imi.samplesPerRowPacked; i++) {
+                rows[y][i] = (byte)( i / imi.channels + y + rnd.nextInt(8) );
+            }
+        }
+        return rows;
+    }
+
+    static byte[] writePNG(final ImageInfo imi, final byte[][] rows, final FilterType filterType, final int compLevel,
+                           final ExecutorService executor, final int chunkSize) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final PngWriter png = new PngWriter(out, imi);
+        png.setFilterType(filterType);
+        png.setCompLevel(compLevel);
+        png.setCompressionExecutor(executor);
+        png.setCompressionChunkSize(chunkSize);
+        png.writeRowsByte(rows);
+        png.end();
+        return out.toByteArray();
+    }
+
+    @Test
+    public void test01SerialVsParallel() throws DataFormatException {
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            final int[][] sizes = { { 1, 1 }, { 7, 3 }, { 100, 100 }, { 300, 200 }, { 1024, 333 } };
+            final FilterType[] filterTypes = { FilterType.FILTER_NONE, FilterType.FILTER_SUB, FilterType.FILTER_UP,
+                                               FilterType.FILTER_AVERAGE, FilterType.FILTER_PAETH,
+                                               FilterType.FILTER_DEFAULT, FilterType.FILTER_AGGRESSIVE };
+            final int[] channels = { 1, 3, 4 };
+            for(final int[] size : sizes) {
+                for(final int c : channels) {
+                    final ImageInfo imi = new ImageInfo(size[0], size[1], 8, 4 == c, 1 == c, false);
+                    final byte[][] rows = createRows(imi, size[0] * 31 + c);
+                    for(final FilterType filterType : filterTypes) {
+                        for(final int compLevel : new int[] { 0, 1, 6, 9 }) {
+                            final byte[] serial = writePNG(imi, rows, filterType, compLevel, null, 0);
+                            final byte[] parallel = writePNG(imi, rows, filterType, compLevel, executor, 32768);
+                            final byte[] serialRaw = inflate(getIDAT(serial));
+                            final byte[] parallelRaw = inflate(getIDAT(parallel));
+                            Assert.assertArrayEquals(imi+", "+filterType+", level "+compLevel, serialRaw, parallelRaw);
+                        }
+                    }
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static PNGPixelRect createImage(final int width, final int height, final long seed) {
+        final Random rnd = new Random(seed);
+        final ByteBuffer pixels = Buffers.newDirectByteBuffer(width * height * 4);
+        for(int y=0; y<height; y++) {
+            for(int x=0; x<width; x++) {
+                pixels.put((byte)( x + rnd.nextInt(4) ));
+                pixels.put((byte)( y + rnd.nextInt(4) ));
+                pixels.put((byte)( x + y ));
+                pixels.put((byte)0xff);
+            }
+        }
+        pixels.rewind();
+        return new PNGPixelRect(PixelFormat.RGBA8888, new Dimension(width, height), width * 4, false, pixels, 72, 72);
+    }
+
+    @Test
+    public void test02AsyncRoundtrip() throws IOException, InterruptedException, ExecutionException {
+        // a single worker, also running the encoding task itself, must not deadlock
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final PNGPixelRect image = createImage(800, 600, 1);
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final Future<PNGPixelRect> result = image.writeAsync(out, true, executor);
+            Assert.assertSame(image, result.get());
+            final PNGPixelRect decoded = PNGPixelRect.read(new ByteArrayInputStream(out.toByteArray()), PixelFormat.RGBA8888, false, 0, false);
+            Assert.assertEquals(image.getPixels(), decoded.getPixels());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static double mbps(final long bytes, final long ms) {
+        return 0 < ms ? ( bytes / ( 1024.0 * 1024.0 ) ) / ( ms / 1000.0 ) : Double.POSITIVE_INFINITY;
+    }
+
+    private void testPerf(final int width, final int height, final int loops) throws IOException {
+        final PNGPixelRect image = createImage(width, height, 2);
+        final int cores = Runtime.getRuntime().availableProcessors();
+        final ExecutorService executor = Executors.newFixedThreadPool(cores);
+        try {
+            long tSerial = 0, tParallel = 0, sizeSerial = 0, sizeParallel = 0;
+            for(int l=-1; l<loops; l++) { // first loop is warm-up
+                final ByteArrayOutputStream out0 = new ByteArrayOutputStream();
+                final ByteArrayOutputStream out1 = new ByteArrayOutputStream();
+                final long t0 = Platform.currentTimeMillis();
+                image.write(out0, true, null);
+                final long t1 = Platform.currentTimeMillis();
+                image.write(out1, true, executor);
+                final long t2 = Platform.currentTimeMillis();
+                if( 0 <= l ) {
+                    tSerial += t1 - t0;
+                    tParallel += t2 - t1;
+                }
+                sizeSerial = out0.size();
+                sizeParallel = out1.size();
+            }
+            final long total = (long)width * height * 4 * loops;
+            System.err.printf("Summary %d loops of %dx%d RGBA, %d cores:%n", loops, width, height, cores);
+            System.err.printf("  serial            %6d ms total, %8.2f MB/s, %9d bytes%n", tSerial, mbps(total, tSerial), sizeSerial);
+            System.err.printf("  parallel          %6d ms total, %8.2f MB/s, %9d bytes%n", tParallel, mbps(total, tParallel), sizeParallel);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test10Perf() throws IOException {
+        testPerf(1024, 1024, 2);
+        testPerf(2048, 2048, 1);
+    }
+
+    public static void main(final String args[]) {
+        org.junit.runner.JUnitCore.main(TestPNGPixelRect03NOUI.class.getName());
+    }
+}
@@ -0,0 +1,349 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.jogl.util.texture;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URLConnection;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.FixMethodOrder;
+import org.junit.runners.MethodSorters;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.common.os.Platform;
+import com.jogamp.common.util.IOUtil;
+import com.jogamp.nativewindow.util.PixelFormat;
+import com.jogamp.opengl.GL;
+import com.jogamp.opengl.util.PNGPixelRect;
+import com.jogamp.opengl.util.texture.ImageType;
+import com.jogamp.opengl.util.texture.TextureCompressor;
+import com.jogamp.opengl.util.texture.TextureCompressor.Format;
+import com.jogamp.opengl.util.texture.TextureData;
+import com.jogamp.opengl.util.texture.TextureIO;
+import com.jogamp.opengl.util.texture.spi.DDSImage;
+
+/**
+ * Validates the {@link TextureCompressor} BC1, BC3 and ETC2 encoders by their decoded quality,
+ * the KTX and KTX2 {@link TextureIO} reader and writer by round trips and benchmarks the encoders.
+ * Requires no GPU.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestTextureCompressor01NOUI {
+    static final String[] pngFiles = { "test-ntscN_4-01-160x90.png", "test-ntscP_4-01-160x90.png", "bug724-transparent-grey_orig.png" };
+
+    static ByteBuffer readPNG(final String fname, final int[] size) throws IOException {
+        final URLConnection urlConn = IOUtil.getResource(fname, TestTextureCompressor01NOUI.class.getClassLoader(), TestTextureCompressor01NOUI.class);
+        if( null == urlConn ) {
+            throw new IOException("Cannot find "+fname);
+        }
+        final PNGPixelRect image = PNGPixelRect.read(urlConn.getInputStream(), PixelFormat.RGBA8888, true /* directBuffer */, 0, false);
+        size[0] = image.getSize().getWidth();
+        size[1] = image.getSize().getHeight();
+        return image.getPixels();
+    }
+
+    /** Gradients with noisy and sharp edged regions, alpha ramp */
+    static ByteBuffer synthetic(final int width, final int height, final long seed) {
+        final Random rnd = new Random(seed);
+        final ByteBuffer img = Buffers.newDirectByteBuffer(width * height * 4);
+        for(int y=0; y<height; y++) {
+            for(int x=0; x<width; x++) {
+                final int noise = x > width / 2 ? rnd.nextInt(24) : 0;
+                final int edge = ( x / 8 + y / 8 ) % 2 == 0 && y > height / 2 ? 96 : 0;
+                img.put((byte) Math.min(255, x * 255 / width + noise));
+                img.put((byte) Math.min(255, y * 255 / height + edge));
+                img.put((byte) Math.min(255, ( x + y ) * 128 / ( width + height ) + noise + edge));
+                img.put((byte) ( ( x * 4 ) & 0xff ));
+            }
+        }
+        img.rewind();
+        return img;
+    }
+
+    /** @return PSNR in dB of RGB (if <code>alpha</code> is false) or alpha */
+    static double psnr(final ByteBuffer a, final ByteBuffer b, final int pixels, final boolean alpha) {
+        double se = 0;
+        for(int i=0; i<pixels; i++) {
+            for(int c=alpha?3:0; c<(alpha?4:3); c++) {
+                final int d = ( a.get(i*4+c) & 0xff ) - ( b.get(i*4+c) & 0xff );
+                se += d*d;
+            }
+        }
+        final double mse = se / ( pixels * ( alpha ? 1 : 3 ) );
+        return 0 == mse ? 99.0 : 10.0 * Math.log10( 255.0 * 255.0 / mse );
+    }
+
+    static ByteBuffer roundTrip(final Format fmt, final ByteBuffer rgba, final int width, final int height,
+                                final ExecutorService executor) throws InterruptedException {
+        final ByteBuffer c = Buffers.newDirectByteBuffer(TextureCompressor.getCompressedSize(fmt, width, height));
+        TextureCompressor.compress(fmt, rgba, width, height, 0, c, executor);
+        final ByteBuffer d = Buffers.newDirectByteBuffer(width * height * 4);
+        TextureCompressor.decompress(fmt, c, width, height, d);
+        return d;
+    }
+
+    static boolean hasAlpha(final Format fmt) {
+        return Format.BC3 == fmt || Format.ETC2_RGBA8 == fmt;
+    }
+
+    @Test
+    public void test01SolidBlocks() throws InterruptedException {
+        final Random rnd = new Random(42);
+        final ByteBuffer rgba = Buffers.newDirectByteBuffer(4 * 4 * 4);
+        for(int n=0; n<200; n++) {
+            final byte r = (byte)rnd.nextInt(256), g = (byte)rnd.nextInt(256), b = (byte)rnd.nextInt(256), a = (byte)rnd.nextInt(256);
+            for(int i=0; i<16; i++) {
+                rgba.put(i*4, r).put(i*4+1, g).put(i*4+2, b).put(i*4+3, a);
+            }
+            for(final Format fmt : Format.values()) {
+                final ByteBuffer d = roundTrip(fmt, rgba, 4, 4, null);
+                for(int i=0; i<16; i++) {
+                    for(int c=0; c<3; c++) {
+                        final int err = Math.abs( ( rgba.get(i*4+c) & 0xff ) - ( d.get(i*4+c) & 0xff ) );
+                        // BC1 solid colors are matched by the 2/3 interpolant, ETC2 by the 444/555 base plus modifier
+                        Assert.assertTrue(fmt+": component "+c+" error "+err, err <= ( Format.BC1 == fmt || Format.BC3 == fmt ? 3 : 4 ));
+                    }
+                    if( hasAlpha(fmt) ) {
+                        Assert.assertEquals(fmt+": alpha", rgba.get(i*4+3) & 0xff, d.get(i*4+3) & 0xff);
+                    } else {
+                        Assert.assertEquals(fmt+": alpha", 255, d.get(i*4+3) & 0xff);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test02Quality() throws IOException, InterruptedException {
+        final int[] size = new int[2];
+        for(int f=0; f<=pngFiles.length; f++) {
+            final ByteBuffer rgba;
+            final String name;
+            if( f < pngFiles.length ) {
+                name = pngFiles[f];
+                rgba = readPNG(name, size);
+            } else {
+                name = "synthetic";
+                size[0] = 131; size[1] = 67;
+                rgba = synthetic(size[0], size[1], 1);
+            }
+            for(final Format fmt : Format.values()) {
+                final ByteBuffer d = roundTrip(fmt, rgba, size[0], size[1], null);
+                final double rgb = psnr(rgba, d, size[0] * size[1], false);
+                final double alpha = psnr(rgba, d, size[0] * size[1], true);
+                System.err.printf("%s %dx%d %s: RGB %.2f dB, alpha %.2f dB%n", name, size[0], size[1], fmt, rgb, alpha);
+                Assert.assertTrue(name+" "+fmt+" RGB PSNR "+rgb, rgb >= 33.0);
+                if( hasAlpha(fmt) ) {
+                    Assert.assertTrue(name+" "+fmt+" alpha PSNR "+alpha, alpha >= 40.0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test03ConcurrentEqualsSerial() throws InterruptedException {
+        final int width = 101, height = 77;
+        final ByteBuffer rgba = synthetic(width, height, 2);
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            for(final Format fmt : Format.values()) {
+                final ByteBuffer c0 = Buffers.newDirectByteBuffer(TextureCompressor.getCompressedSize(fmt, width, height));
+                final ByteBuffer c1 = Buffers.newDirectByteBuffer(TextureCompressor.getCompressedSize(fmt, width, height));
+                TextureCompressor.compress(fmt, rgba, width, height, 0, c0, null);
+                TextureCompressor.compress(fmt, rgba, width, height, 0, c1, executor);
+                Assert.assertEquals(fmt.toString(), c0, c1);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /** Decodes third party DXT1 and DXT5 files, compared to their uncompressed version. */
+    @Test
+    public void test04DecodeDDS() throws IOException, InterruptedException {
+        final DDSImage ref = readDDS("test-64x32_uncompressed.dds");
+        final ByteBuffer refRGBA = Buffers.newDirectByteBuffer(64 * 32 * 4);
+        final ByteBuffer refData = ref.getMipMap(0).getData();
+        final int bpp = DDSImage.D3DFMT_R8G8B8 == ref.getPixelFormat() ? 3 : 4;
+        for(int i=0; i<64*32; i++) { // BGR(A) to RGBA
+            refRGBA.put(i*4,   refData.get(i*bpp+2));
+            refRGBA.put(i*4+1, refData.get(i*bpp+1));
+            refRGBA.put(i*4+2, refData.get(i*bpp));
+            refRGBA.put(i*4+3, 4 == bpp ? refData.get(i*bpp+3) : (byte)0xff);
+        }
+        final String[] files = { "test-64x32_DXT1.dds", "test-64x32_DXT5.dds" };
+        final Format[] fmts = { Format.BC1, Format.BC3 };
+        for(int f=0; f<files.length; f++) {
+            final DDSImage image = readDDS(files[f]);
+            final ByteBuffer d = Buffers.newDirectByteBuffer(64 * 32 * 4);
+            TextureCompressor.decompress(fmts[f], image.getMipMap(0).getData(), 64, 32, d);
+            final double rgb = psnr(refRGBA, d, 64 * 32, false);
+            System.err.printf("%s: RGB %.2f dB vs uncompressed%n", files[f], rgb);
+            Assert.assertTrue(files[f]+" RGB PSNR "+rgb, rgb >= 30.0);
+
+            // our encoder shall be on par
+            final ByteBuffer e = roundTrip(fmts[f], refRGBA, 64, 32, null);
+            final double rgbE = psnr(refRGBA, e, 64 * 32, false);
+            System.err.printf("%s: RGB %.2f dB re-encoded%n", fmts[f], rgbE);
+            Assert.assertTrue(fmts[f]+" RGB PSNR "+rgbE+" < "+rgb, rgbE >= rgb - 1.0);
+        }
+    }
+
+    static DDSImage readDDS(final String fname) throws IOException {
+        final URLConnection urlConn = IOUtil.getResource(fname, TestTextureCompressor01NOUI.class.getClassLoader(), TestTextureCompressor01NOUI.class);
+        if( null == urlConn ) {
+            throw new IOException("Cannot find "+fname);
+        }
+        return DDSImage.read(ByteBuffer.wrap(IOUtil.copyStream2ByteArray(urlConn.getInputStream())));
+    }
+
+    @Test
+    public void test05MipmapsAndKTX() throws IOException, InterruptedException {
+        final int width = 37, height = 21;
+        final ByteBuffer rgb = Buffers.newDirectByteBuffer(width * height * 3);
+        final ByteBuffer rgba = synthetic(width, height, 3);
+        for(int i=0; i<width*height; i++) {
+            rgb.put(rgba.get(i*4)).put(rgba.get(i*4+1)).put(rgba.get(i*4+2));
+        }
+        rgb.rewind();
+        final TextureData src = new TextureData(null, GL.GL_RGB, width, height, 0, GL.GL_RGB, GL.GL_UNSIGNED_BYTE,
+                                                false, false, true, rgb, null);
+        final File dir = new File(System.getProperty("java.io.tmpdir"));
+        for(final Format fmt : Format.values()) {
+            final TextureData cdata = TextureCompressor.compress(src, fmt, true, null);
+            Assert.assertTrue(cdata.isDataCompressed());
+            Assert.assertEquals(fmt.glInternalFormat, cdata.getInternalFormat());
+            Assert.assertTrue(cdata.getMustFlipVertically());
+            final Buffer[] levels = cdata.getMipmapData();
+            Assert.assertEquals(6, levels.length); // 37x21 .. 1x1
+            for(int l=0, w=width, h=height; l<levels.length; l++, w=Math.max(1, w/2), h=Math.max(1, h/2)) {
+                Assert.assertEquals(TextureCompressor.getCompressedSize(fmt, w, h), levels[l].capacity());
+            }
+            for(final String suffix : new String[] { TextureIO.KTX, TextureIO.KTX2 }) {
+                final File file = new File(dir, getClass().getSimpleName()+"-"+fmt+"."+suffix);
+                try {
+                    TextureIO.write(cdata, file);
+                    final byte[] header = new byte[ImageType.MAGIC_MAX_SIZE];
+                    System.arraycopy(IOUtil.copyStream2ByteArray(file.toURI().toURL().openStream()), 0, header, 0, header.length);
+                    Assert.assertEquals(suffix, ImageType.Util.getFileSuffix(header));
+
+                    final TextureData rdata = TextureIO.newTextureData(null, file, true /* mipmap */, null);
+                    Assert.assertEquals(ImageType.T_KTX.equals(suffix) ? ImageType.T_KTX : ImageType.T_KTX2, rdata.getSourceImageType().type);
+                    Assert.assertTrue(rdata.isDataCompressed());
+                    Assert.assertEquals(fmt.glInternalFormat, rdata.getInternalFormat());
+                    Assert.assertEquals(width, rdata.getWidth());
+                    Assert.assertEquals(height, rdata.getHeight());
+                    Assert.assertTrue(rdata.getMustFlipVertically());
+                    final Buffer[] rlevels = rdata.getMipmapData();
+                    Assert.assertEquals(levels.length, rlevels.length);
+                    for(int l=0; l<levels.length; l++) {
+                        Assert.assertEquals(suffix+" level "+l, ((ByteBuffer)levels[l]).duplicate().rewind(), rlevels[l]);
+                    }
+                } finally {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test06UncompressedKTX() throws IOException {
+        // odd RGB width, KTX pads rows to 4 bytes
+        final int width = 5, height = 3;
+        final ByteBuffer rgb = Buffers.newDirectByteBuffer(width * height * 3);
+        for(int i=0; i<rgb.capacity(); i++) {
+            rgb.put(i, (byte)( i * 7 ));
+        }
+        final TextureData src = new TextureData(null, GL.GL_RGB, width, height, 0, GL.GL_RGB, GL.GL_UNSIGNED_BYTE,
+                                                false, false, false, rgb, null);
+        final File dir = new File(System.getProperty("java.io.tmpdir"));
+        for(final String suffix : new String[] { TextureIO.KTX, TextureIO.KTX2 }) {
+            final File file = new File(dir, getClass().getSimpleName()+"-rgb."+suffix);
+            try {
+                TextureIO.write(src, file);
+                final TextureData rdata = TextureIO.newTextureData(null, file, false /* mipmap */, null);
+                Assert.assertFalse(rdata.isDataCompressed());
+                Assert.assertFalse(rdata.getMustFlipVertically());
+                Assert.assertEquals(GL.GL_RGB, rdata.getPixelFormat());
+                Assert.assertEquals(GL.GL_UNSIGNED_BYTE, rdata.getPixelType());
+                final int stride = ImageType.T_KTX.equals(suffix) ? 16 : 15;
+                Assert.assertEquals(ImageType.T_KTX.equals(suffix) ? 4 : 1, rdata.getAlignment());
+                final ByteBuffer pixels = (ByteBuffer) rdata.getBuffer();
+                for(int y=0; y<height; y++) {
+                    for(int x=0; x<width*3; x++) {
+                        Assert.assertEquals(rgb.get(y*width*3+x), pixels.get(y*stride+x));
+                    }
+                }
+            } finally {
+                file.delete();
+            }
+        }
+    }
+
+    static double mpps(final long pixels, final long ms) {
+        return ( pixels / 1000000.0 ) / ( Math.max(1, ms) / 1000.0 );
+    }
+
+    @Test
+    public void test10Perf() throws InterruptedException {
+        final int width = 512, height = 512, loops = 2;
+        final ByteBuffer rgba = synthetic(width, height, 4);
+        final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            for(final Format fmt : Format.values()) {
+                final ByteBuffer c = Buffers.newDirectByteBuffer(TextureCompressor.getCompressedSize(fmt, width, height));
+                final long[] t = new long[2];
+                for(int p=0; p<2; p++) {
+                    final ExecutorService e = 0 == p ? null : executor;
+                    for(int l=0; l<=loops; l++) {
+                        final long t0 = Platform.currentTimeMillis();
+                        TextureCompressor.compress(fmt, rgba, width, height, 0, c, e);
+                        if( 0 < l ) { // skip warm-up
+                            t[p] += Platform.currentTimeMillis() - t0;
+                        }
+                    }
+                }
+                System.err.printf("Summary %s %dx%d: serial %d ms, %.2f MPixel/s; concurrent %d ms, %.2f MPixel/s%n",
+                                  fmt, width, height, t[0], mpps((long)loops*width*height, t[0]), t[1], mpps((long)loops*width*height, t[1]));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public static void main(final String args[]) throws IOException {
+        org.junit.runner.JUnitCore.main(TestTextureCompressor01NOUI.class.getName());
+    }
+}
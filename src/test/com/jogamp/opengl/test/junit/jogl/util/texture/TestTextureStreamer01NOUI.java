@@ -0,0 +1,310 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.jogl.util.texture;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.FixMethodOrder;
+import org.junit.runners.MethodSorters;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.common.os.Platform;
+import com.jogamp.opengl.GL;
+import com.jogamp.opengl.util.texture.TextureData;
+import com.jogamp.opengl.util.texture.TextureStreamer;
+import com.jogamp.opengl.util.texture.TextureStreamer.Request;
+import com.jogamp.opengl.util.texture.TextureStreamer.State;
+
+/**
+ * Validates the headless CPU stage of the {@link TextureStreamer},
+ * i.e. priority ordering, cancellation and the memory budget,
+ * using a synthetic decoder, and benchmarks its throughput.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestTextureStreamer01NOUI {
+    static final long TIMEOUT = 10000;
+
+    /** Decodes <code>file:/W/H/n</code> to a WxH RGBA image, optionally blocked by a gate. */
+    static class SyntheticStreamer extends TextureStreamer {
+        final ArrayList<String> decodeOrder = new ArrayList<String>();
+        volatile CountDownLatch gate = null;
+
+        SyntheticStreamer(final int workerCount, final long memoryBudget) {
+            super(null, workerCount, memoryBudget, 0);
+        }
+
+        @Override
+        protected TextureData decode(final Request request) throws IOException {
+            final CountDownLatch g = gate;
+            if( null != g ) {
+                try {
+                    g.await(TIMEOUT, TimeUnit.MILLISECONDS);
+                } catch (final InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            final String[] parts = request.getURL().getPath().split("/");
+            if( "fail".equals(parts[3]) ) {
+                throw new IOException("synthetic failure");
+            }
+            synchronized( decodeOrder ) {
+                decodeOrder.add(parts[3]);
+            }
+            final int w = Integer.parseInt(parts[1]);
+            final int h = Integer.parseInt(parts[2]);
+            final ByteBuffer pixels = Buffers.newDirectByteBuffer(w * h * 4);
+            for(int i=0; i<pixels.capacity(); i++) {
+                pixels.put(i, (byte)i);
+            }
+            return new TextureData(null, GL.GL_RGBA, w, h, 0, GL.GL_RGBA, GL.GL_UNSIGNED_BYTE,
+                                   false, false, false, pixels, null);
+        }
+    }
+
+    static URL url(final int w, final int h, final String name) throws IOException {
+        return new URL("file:/"+w+"/"+h+"/"+name);
+    }
+
+    static Request pollDecoded(final TextureStreamer ts) throws InterruptedException {
+        final long t0 = System.currentTimeMillis();
+        Request r;
+        while( null == ( r = ts.pollDecoded() ) && System.currentTimeMillis() - t0 < TIMEOUT ) {
+            Thread.sleep(1);
+        }
+        return r;
+    }
+
+    static void waitForState(final Request r, final State s) throws InterruptedException {
+        final long t0 = System.currentTimeMillis();
+        while( s != r.getState() && System.currentTimeMillis() - t0 < TIMEOUT ) {
+            Thread.sleep(1);
+        }
+        Assert.assertEquals(s, r.getState());
+    }
+
+    @Test
+    public void test01PriorityOrder() throws IOException, InterruptedException {
+        final SyntheticStreamer ts = new SyntheticStreamer(1, Long.MAX_VALUE);
+        try {
+            final CountDownLatch gate = new CountDownLatch(1);
+            ts.gate = gate;
+            // occupies the single worker until the gate opens
+            final Request blocker = ts.load(url(4, 4, "blocker"), null, false, 0, null);
+            waitForState(blocker, State.DECODING);
+
+            final Request low0 = ts.load(url(4, 4, "low0"), null, false, 1, null);
+            final Request low1 = ts.load(url(4, 4, "low1"), null, false, 1, null);
+            final Request high = ts.load(url(4, 4, "high"), null, false, 5, null);
+            final Request mid = ts.load(url(4, 4, "mid"), null, false, 3, null);
+            low1.setPriority(10);
+            Assert.assertEquals(4, ts.getQueuedCount());
+            gate.countDown();
+
+            final Request[] expected = { blocker, low1, high, mid, low0 };
+            for(int i=0; i<expected.length; i++) {
+                waitForState(expected[i], State.DECODED);
+            }
+            Assert.assertEquals(5, ts.getDecodedCount());
+            Assert.assertArrayEquals(new String[] { "blocker", "low1", "high", "mid", "low0" }, ts.decodeOrder.toArray());
+
+            // decoded requests are handed out by priority as well, including changed priorities
+            low0.setPriority(20);
+            blocker.setPriority(7);
+            final Request[] expectedUpload = { low0, low1, blocker, high, mid };
+            for(int i=0; i<expectedUpload.length; i++) {
+                final Request r = ts.pollDecoded();
+                Assert.assertSame(expectedUpload[i], r);
+                Assert.assertEquals(16*4, r.getTextureData().getEstimatedMemorySize());
+            }
+            Assert.assertNull(ts.pollDecoded());
+            Assert.assertEquals(0, ts.getDecodedBytes());
+        } finally {
+            ts.dispose(null);
+        }
+    }
+
+    @Test
+    public void test02Cancel() throws IOException, InterruptedException {
+        final SyntheticStreamer ts = new SyntheticStreamer(1, Long.MAX_VALUE);
+        try {
+            final CountDownLatch gate = new CountDownLatch(1);
+            ts.gate = gate;
+            final Request decoding = ts.load(url(4, 4, "decoding"), null, false, 0, null);
+            waitForState(decoding, State.DECODING);
+            final Request queued = ts.load(url(4, 4, "queued"), null, false, 0, null);
+            final Request kept = ts.load(url(4, 4, "kept"), null, false, 0, null);
+
+            Assert.assertTrue(queued.cancel());
+            Assert.assertTrue(decoding.cancel());
+            Assert.assertFalse(queued.cancel());
+            gate.countDown();
+            waitForState(kept, State.DECODED);
+            Assert.assertEquals(State.CANCELLED, queued.getState());
+            Assert.assertEquals(State.CANCELLED, decoding.getState());
+            Assert.assertEquals(1, ts.getDecodedCount());
+            Assert.assertEquals(16*4, ts.getDecodedBytes());
+
+            // cancelling decoded data releases its memory
+            Assert.assertTrue(kept.cancel());
+            Assert.assertEquals(0, ts.getDecodedCount());
+            Assert.assertEquals(0, ts.getDecodedBytes());
+            Assert.assertNull(ts.pollDecoded());
+            Assert.assertArrayEquals(new String[] { "decoding", "kept" }, ts.decodeOrder.toArray());
+
+            final Request failing = ts.load(url(4, 4, "fail"), null, false, 0, null);
+            waitForState(failing, State.FAILED);
+            Assert.assertTrue(failing.getError() instanceof IOException);
+            Assert.assertFalse(failing.cancel());
+        } finally {
+            ts.dispose(null);
+        }
+    }
+
+    @Test
+    public void test03MemoryBudget() throws IOException, InterruptedException {
+        final int imgSize = 32*32*4;
+        final SyntheticStreamer ts = new SyntheticStreamer(1, 3 * imgSize);
+        try {
+            final Request[] requests = new Request[8];
+            for(int i=0; i<requests.length; i++) {
+                requests[i] = ts.load(url(32, 32, "r"+i), null, false, 0, null);
+            }
+            waitForState(requests[2], State.DECODED);
+            Thread.sleep(100);
+            // budget holds exactly three images
+            Assert.assertEquals(3, ts.getDecodedCount());
+            Assert.assertEquals(3 * imgSize, ts.getDecodedBytes());
+
+            for(int i=0; i<requests.length; i++) {
+                final Request r = pollDecoded(ts);
+                Assert.assertNotNull("request "+i, r);
+                Assert.assertSame(requests[i], r);
+                Assert.assertTrue(ts.getDecodedBytes() <= 3 * imgSize);
+            }
+            Assert.assertEquals(0, ts.getDecodedBytes());
+        } finally {
+            ts.dispose(null);
+        }
+
+        // a single image larger than the budget still passes
+        final SyntheticStreamer ts2 = new SyntheticStreamer(1, imgSize / 2);
+        try {
+            final Request big0 = ts2.load(url(32, 32, "big0"), null, false, 0, null);
+            final Request big1 = ts2.load(url(32, 32, "big1"), null, false, 0, null);
+            waitForState(big0, State.DECODED);
+            Thread.sleep(50);
+            Assert.assertEquals(State.QUEUED, big1.getState());
+            Assert.assertSame(big0, pollDecoded(ts2));
+            Assert.assertSame(big1, pollDecoded(ts2));
+        } finally {
+            ts2.dispose(null);
+        }
+    }
+
+    @Test
+    public void test04Dispose() throws IOException, InterruptedException {
+        final SyntheticStreamer ts = new SyntheticStreamer(1, Long.MAX_VALUE);
+        final CountDownLatch gate = new CountDownLatch(1);
+        try {
+            final Request done = ts.load(url(4, 4, "done"), null, false, 0, null);
+            waitForState(done, State.DECODED);
+            ts.gate = gate;
+            final Request decoding = ts.load(url(4, 4, "decoding"), null, false, 0, null);
+            waitForState(decoding, State.DECODING);
+            final Request queued0 = ts.load(url(4, 4, "queued0"), null, false, 0, null);
+            final Request queued1 = ts.load(url(4, 4, "queued1"), null, false, 5, null);
+            Assert.assertEquals(2, ts.getQueuedCount());
+
+            ts.dispose(null);
+            final Request[] all = { done, decoding, queued0, queued1 };
+            for(int i=0; i<all.length; i++) {
+                Assert.assertEquals(all[i].toString(), State.CANCELLED, all[i].getState());
+            }
+            Assert.assertEquals(0, ts.getDecodedCount());
+            Assert.assertEquals(0, ts.getDecodedBytes());
+
+            // the interrupted decode completes w/o resurrecting its request
+            gate.countDown();
+            Thread.sleep(50);
+            Assert.assertEquals(State.CANCELLED, decoding.getState());
+            Assert.assertNull(ts.pollDecoded());
+            try {
+                ts.load(url(4, 4, "late"), null, false, 0, null);
+                Assert.fail("IllegalStateException expected");
+            } catch(final IllegalStateException e) { }
+        } finally {
+            gate.countDown();
+            ts.dispose(null);
+        }
+    }
+
+    static double mbps(final long bytes, final long ms) {
+        return ( bytes / ( 1024.0 * 1024.0 ) ) / ( Math.max(1, ms) / 1000.0 );
+    }
+
+    @Test
+    public void test10Perf() throws IOException, InterruptedException {
+        final int loops = 3;
+        final int count = 64;
+        final int w = 256, h = 256;
+        final int workers = Math.max(2, Runtime.getRuntime().availableProcessors());
+        final SyntheticStreamer ts = new SyntheticStreamer(workers, 8L * w * h * 4);
+        try {
+            long tTotal = 0;
+            for(int l=0; l<=loops; l++) {
+                final long t0 = Platform.currentTimeMillis();
+                for(int i=0; i<count; i++) {
+                    ts.load(url(w, h, "p"+l+"_"+i), null, false, i % 4, null);
+                }
+                for(int i=0; i<count; i++) {
+                    Assert.assertNotNull(pollDecoded(ts));
+                }
+                final long td = Platform.currentTimeMillis() - t0;
+                if( 0 < l ) { // skip warm-up
+                    tTotal += td;
+                }
+            }
+            final long bytes = (long)loops * count * w * h * 4;
+            System.err.printf("Summary: %d workers, %d x %dx%d RGBA: %d ms, %.1f MB/s%n",
+                    workers, loops * count, w, h, tTotal, mbps(bytes, tTotal));
+        } finally {
+            ts.dispose(null);
+        }
+    }
+
+    public static void main(final String args[]) throws IOException {
+        org.junit.runner.JUnitCore.main(TestTextureStreamer01NOUI.class.getName());
+    }
+}
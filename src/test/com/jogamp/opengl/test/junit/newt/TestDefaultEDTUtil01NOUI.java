@@ -0,0 +1,312 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.newt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import com.jogamp.common.os.Platform;
+import com.jogamp.common.util.RunnableTask;
+import com.jogamp.nativewindow.NativeWindowException;
+
+import jogamp.newt.DefaultEDTUtil;
+
+/**
+ * Validates {@link DefaultEDTUtil} task execution w/o native display,
+ * and measures invoke latency and task throughput against the former wait/notify task loop.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestDefaultEDTUtil01NOUI {
+    static final Runnable nop = new Runnable() {
+        @Override
+        public void run() { }
+    };
+
+    static final AtomicInteger dispatchCount = new AtomicInteger(0);
+    static final Runnable dispatchMessages = new Runnable() {
+        @Override
+        public void run() { dispatchCount.incrementAndGet(); }
+    };
+
+    static DefaultEDTUtil createEDT() {
+        final DefaultEDTUtil edt = new DefaultEDTUtil(Thread.currentThread().getThreadGroup(), "Test", dispatchMessages);
+        edt.start();
+        Assert.assertTrue(edt.isRunning());
+        return edt;
+    }
+
+    @Test
+    public void test01Order() {
+        final DefaultEDTUtil edt = createEDT();
+        final ArrayList<Integer> seq = new ArrayList<Integer>();
+        final int count = 10000;
+        for(int i=0; i<count; i++) {
+            final int v = i;
+            Assert.assertTrue(edt.invoke(false, new Runnable() {
+                @Override
+                public void run() {
+                    Assert.assertTrue(edt.isCurrentThreadEDT());
+                    seq.add(Integer.valueOf(v));
+                } }));
+        }
+        final boolean[] ran = { false };
+        Assert.assertTrue(edt.invoke(true, new Runnable() {
+            @Override
+            public void run() { ran[0] = true; } }));
+        Assert.assertTrue(ran[0]);
+        Assert.assertEquals(count, seq.size());
+        for(int i=0; i<count; i++) {
+            Assert.assertEquals(i, seq.get(i).intValue());
+        }
+        // invoke on EDT runs right away
+        Assert.assertTrue(edt.invoke(true, new Runnable() {
+            @Override
+            public void run() {
+                final boolean[] nested = { false };
+                edt.invoke(true, new Runnable() {
+                    @Override
+                    public void run() { nested[0] = true; } });
+                Assert.assertTrue(nested[0]);
+            } }));
+        Assert.assertTrue(edt.invokeStop(true, null));
+        Assert.assertTrue(edt.waitUntilStopped() || !edt.isRunning());
+        Assert.assertFalse(edt.isRunning());
+        Assert.assertFalse(edt.invoke(true, nop));
+    }
+
+    @Test
+    public void test02Exceptions() {
+        final DefaultEDTUtil edt = createEDT();
+        try {
+            edt.invoke(true, new Runnable() {
+                @Override
+                public void run() { throw new NativeWindowException("test02a"); } });
+            Assert.fail("No exception");
+        } catch (final NativeWindowException e) {
+            Assert.assertEquals("test02a", e.getMessage());
+        }
+        try {
+            edt.invoke(true, new Runnable() {
+                @Override
+                public void run() { throw new IllegalStateException("test02b"); } });
+            Assert.fail("No exception");
+        } catch (final RuntimeException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        // exceptions of non waiting tasks are reported only
+        System.err.println("Expected exception 'test02c':");
+        edt.invoke(false, new Runnable() {
+            @Override
+            public void run() { throw new IllegalStateException("test02c"); } });
+        Assert.assertTrue(edt.invoke(true, nop));
+        Assert.assertTrue(edt.isRunning());
+
+        // provoked EDT failure, flushing the waiting caller
+        try {
+            edt.invokeAndWaitError(nop);
+            Assert.fail("No exception");
+        } catch (final RuntimeException e) {
+            System.err.println("Expected: "+e);
+        }
+        edt.waitUntilStopped();
+        Assert.assertFalse(edt.isRunning());
+
+        // restart
+        edt.start();
+        Assert.assertTrue(edt.invoke(true, nop));
+        edt.invokeStop(true, null);
+        Assert.assertFalse(edt.isRunning());
+    }
+
+    @Test
+    public void test03MultipleThreadsIdle() throws InterruptedException {
+        final DefaultEDTUtil edt = createEDT();
+        final int threadCount = 4, count = 20000;
+        final AtomicInteger executed = new AtomicInteger(0);
+        final int[] next = new int[threadCount];
+        final String[] error = { null };
+        final Thread[] threads = new Thread[threadCount];
+        for(int t=0; t<threadCount; t++) {
+            final int tid = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for(int i=0; i<count; i++) {
+                        final int v = i;
+                        edt.invoke(0 == i % 1000, new Runnable() {
+                            @Override
+                            public void run() {
+                                if( next[tid] != v && null == error[0] ) {
+                                    error[0] = "thread "+tid+": expected "+next[tid]+", has "+v;
+                                }
+                                next[tid] = v + 1;
+                                executed.incrementAndGet();
+                            } });
+                    }
+                } }, "Invoker-"+t);
+            threads[t].start();
+        }
+        for(int t=0; t<threadCount; t++) {
+            threads[t].join();
+        }
+        Assert.assertTrue(edt.waitUntilIdle());
+        Assert.assertEquals(threadCount * count, executed.get());
+        Assert.assertNull(error[0], error[0]);
+        edt.invokeStop(true, null);
+    }
+
+    /** Former NEDT task loop: synchronized list w/ wait/notify, one task per wake-up, lock object per waiting invoke. */
+    static class LegacyEDT extends Thread {
+        final ArrayList<RunnableTask> tasks = new ArrayList<RunnableTask>();
+        volatile boolean shouldStop = false;
+
+        LegacyEDT() {
+            super("LegacyEDT");
+            setDaemon(true);
+        }
+
+        void invoke(final boolean wait, final Runnable task) {
+            final Object rTaskLock = new Object();
+            synchronized(rTaskLock) {
+                final RunnableTask rTask;
+                synchronized(tasks) {
+                    rTask = new RunnableTask(task, wait ? rTaskLock : null, true, wait ? null : System.err);
+                    tasks.add(rTask);
+                    tasks.notifyAll();
+                }
+                if( wait ) {
+                    try {
+                        while( rTask.isInQueue() ) {
+                            rTaskLock.wait();
+                        }
+                    } catch (final InterruptedException ie) {
+                        throw new RuntimeException(ie);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            while( !shouldStop ) {
+                dispatchMessages.run();
+                RunnableTask task = null;
+                synchronized(tasks) {
+                    if( tasks.size()==0 ) {
+                        try {
+                            tasks.wait(10);
+                        } catch (final InterruptedException e) {
+                            return;
+                        }
+                    }
+                    if( tasks.size()>0 ) {
+                        task = tasks.remove(0);
+                        tasks.notifyAll();
+                    }
+                }
+                if( null != task ) {
+                    task.run();
+                }
+            }
+        }
+    }
+
+    interface Invoker {
+        void invoke(boolean wait, Runnable task);
+    }
+
+    /** Returns { p50, p99 } of invoke-and-wait latency in microseconds. */
+    static long[] measureLatency(final Invoker invoker, final int count) {
+        final long[] lat = new long[count];
+        for(int i=0; i<count; i++) {
+            final long t0 = Platform.currentTimeMicros();
+            invoker.invoke(true, nop);
+            lat[i] = Platform.currentTimeMicros() - t0;
+        }
+        Arrays.sort(lat);
+        return new long[] { lat[count/2], lat[(int)(count*0.99)] };
+    }
+
+    /** Returns the invoke throughput in tasks per second, all but the last task w/o waiting. */
+    static double measureThroughput(final Invoker invoker, final int count) {
+        final long t0 = Platform.currentTimeMicros();
+        for(int i=0; i<count-1; i++) {
+            invoker.invoke(false, nop);
+        }
+        invoker.invoke(true, nop);
+        final long t1 = Platform.currentTimeMicros();
+        return 1e6 * count / Math.max(1, t1 - t0);
+    }
+
+    @Test
+    public void test10Perf() throws InterruptedException {
+        final DefaultEDTUtil edt = createEDT();
+        final Invoker newInvoker = new Invoker() {
+            @Override
+            public void invoke(final boolean wait, final Runnable task) { edt.invoke(wait, task); } };
+        final LegacyEDT legacy = new LegacyEDT();
+        legacy.start();
+        final Invoker legacyInvoker = new Invoker() {
+            @Override
+            public void invoke(final boolean wait, final Runnable task) { legacy.invoke(wait, task); } };
+
+        final int latencyCount = 20000, throughputCount = 500000;
+        // warm-up
+        measureLatency(newInvoker, latencyCount/4);
+        measureLatency(legacyInvoker, latencyCount/4);
+        measureThroughput(newInvoker, throughputCount/4);
+        measureThroughput(legacyInvoker, throughputCount/4);
+
+        final long[] latNew = measureLatency(newInvoker, latencyCount);
+        final long[] latLegacy = measureLatency(legacyInvoker, latencyCount);
+        dispatchCount.set(0);
+        final double tpNew = measureThroughput(newInvoker, throughputCount);
+        final int dispatchNew = dispatchCount.getAndSet(0);
+        final double tpLegacy = measureThroughput(legacyInvoker, throughputCount);
+        final int dispatchLegacy = dispatchCount.get();
+
+        legacy.shouldStop = true;
+        legacy.join();
+        edt.invokeStop(true, null);
+
+        System.err.printf("Summary invoke-and-wait latency p50/p99 [us]: new %d/%d, legacy %d/%d%n",
+                latNew[0], latNew[1], latLegacy[0], latLegacy[1]);
+        System.err.printf("Summary %d tasks, %d threads: new %.0f tasks/s w/ %d dispatches, legacy %.0f tasks/s w/ %d dispatches%n",
+                throughputCount, Runtime.getRuntime().availableProcessors(), tpNew, dispatchNew, tpLegacy, dispatchLegacy);
+    }
+
+    public static void main(final String args[]) {
+        org.junit.runner.JUnitCore.main(TestDefaultEDTUtil01NOUI.class.getName());
+    }
+}
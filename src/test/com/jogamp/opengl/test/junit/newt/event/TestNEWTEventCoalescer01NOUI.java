@@ -0,0 +1,284 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.newt.event;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.FixMethodOrder;
+import org.junit.runners.MethodSorters;
+
+import com.jogamp.newt.Window;
+import com.jogamp.newt.event.InputEvent;
+import com.jogamp.newt.event.KeyEvent;
+import com.jogamp.newt.event.MouseEvent;
+import com.jogamp.newt.event.NEWTEvent;
+import com.jogamp.newt.event.WindowEvent;
+
+import jogamp.newt.event.NEWTEventCoalescer;
+import jogamp.newt.event.NEWTEventQueue;
+
+/**
+ * Validates {@link NEWTEventCoalescer}, used by the NEWT window for {@link Window#setEventCoalescing(int)},
+ * in conjunction with the {@link NEWTEventQueue}.
+ * Requires no native display.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestNEWTEventCoalescer01NOUI {
+    static final Object source = new Object();
+
+    static MouseEvent createMouse(final short type, final int modifiers, final int x, final int y, final float rotation) {
+        return new MouseEvent(type, source, x, modifiers, x, y, (short)0, (short)0, new float[] { 0f, rotation, 0f }, 1f);
+    }
+    static KeyEvent createKey() {
+        return KeyEvent.create(KeyEvent.EVENT_KEY_PRESSED, source, 0, 0, KeyEvent.VK_A, KeyEvent.VK_A, 'a');
+    }
+
+    /** Enqueues like the NEWT window does. */
+    static boolean enqueue(final NEWTEventCoalescer coalescer, final NEWTEventQueue queue, final NEWTEvent e) {
+        synchronized(coalescer) {
+            if( coalescer.enqueue(false, e) ) {
+                return false;
+            }
+            queue.put(e);
+            return true;
+        }
+    }
+
+    /** Dequeues and consumes like the NEWT window does. */
+    static NEWTEvent dequeue(final NEWTEventCoalescer coalescer, final NEWTEventQueue queue) {
+        final NEWTEvent e = (NEWTEvent) queue.poll();
+        if( null == e ) {
+            return null;
+        }
+        final NEWTEvent res = coalescer.dequeued(e);
+        coalescer.consumed(e);
+        return res;
+    }
+
+    @Test
+    public void test01MergeMoves() {
+        final NEWTEventCoalescer coalescer = new NEWTEventCoalescer();
+        final NEWTEventQueue queue = new NEWTEventQueue(16);
+        Assert.assertFalse(coalescer.isEnabled());
+        for(int i=0; i<10; i++) {
+            Assert.assertTrue(enqueue(coalescer, queue, createMouse(MouseEvent.EVENT_MOUSE_MOVED, 0, i, i, 0f)));
+        }
+        Assert.assertEquals(10, queue.size());
+        queue.clear();
+
+        coalescer.setMode(Window.COALESCE_POINTER);
+        Assert.assertTrue(coalescer.isEnabled());
+        final MouseEvent head = createMouse(MouseEvent.EVENT_MOUSE_MOVED, 0, 0, 0, 0f);
+        Assert.assertTrue(enqueue(coalescer, queue, head));
+        for(int i=1; i<10; i++) {
+            Assert.assertFalse(enqueue(coalescer, queue, createMouse(MouseEvent.EVENT_MOUSE_MOVED, 0, i, 2*i, 0f)));
+        }
+        Assert.assertEquals(1, queue.size());
+        Assert.assertEquals(9, coalescer.getCoalescedTotal());
+
+        final MouseEvent e = (MouseEvent) dequeue(coalescer, queue);
+        Assert.assertNotSame(head, e);
+        Assert.assertEquals(MouseEvent.EVENT_MOUSE_MOVED, e.getEventType());
+        Assert.assertEquals(9, e.getX());
+        Assert.assertEquals(18, e.getY());
+        Assert.assertEquals(9, e.getWhen());
+        Assert.assertEquals(10, e.getCoalescedCount());
+        Assert.assertNull(e.getCoalescedEvents());
+
+        // head dequeued, next event starts a new run
+        final MouseEvent next = createMouse(MouseEvent.EVENT_MOUSE_MOVED, 0, 20, 20, 0f);
+        Assert.assertTrue(enqueue(coalescer, queue, next));
+        Assert.assertSame(next, dequeue(coalescer, queue));
+        Assert.assertEquals(1, next.getCoalescedCount());
+        Assert.assertNull(queue.poll());
+    }
+
+    @Test
+    public void test02WheelRotationAndHistory() {
+        final NEWTEventCoalescer coalescer = new NEWTEventCoalescer();
+        final NEWTEventQueue queue = new NEWTEventQueue(16);
+        coalescer.setMode(Window.COALESCE_POINTER | Window.COALESCE_HISTORY);
+        final MouseEvent[] events = new MouseEvent[5];
+        for(int i=0; i<events.length; i++) {
+            events[i] = createMouse(MouseEvent.EVENT_MOUSE_WHEEL_MOVED, 0, 10+i, 10, 0.5f);
+            enqueue(coalescer, queue, events[i]);
+        }
+        final MouseEvent e = (MouseEvent) dequeue(coalescer, queue);
+        Assert.assertEquals(5, e.getCoalescedCount());
+        Assert.assertEquals(2.5f, e.getRotation()[1], 0.0001f);
+        Assert.assertEquals(0f, e.getRotation()[0], 0f);
+        Assert.assertEquals(14, e.getX());
+        Assert.assertArrayEquals(events, e.getCoalescedEvents());
+        // source events are untouched
+        Assert.assertEquals(0.5f, events[4].getRotation()[1], 0f);
+        Assert.assertNull(queue.poll());
+    }
+
+    @Test
+    public void test03ConsecutiveOnly() {
+        final NEWTEventCoalescer coalescer = new NEWTEventCoalescer();
+        final NEWTEventQueue queue = new NEWTEventQueue(16);
+        coalescer.setMode(Window.COALESCE_POINTER);
+
+        // move, move | key | move, move | drag w/ button | drag
+        enqueue(coalescer, queue, createMouse(MouseEvent.EVENT_MOUSE_MOVED, 0, 1, 1, 0f));
+        enqueue(coalescer, queue, createMouse(MouseEvent.EVENT_MOUSE_MOVED, 0, 2, 2, 0f));
+        enqueue(coalescer, queue, createKey());
+        enqueue(coalescer, queue, createMouse(MouseEvent.EVENT_MOUSE_MOVED, 0, 3, 3, 0f));
+        enqueue(coalescer, queue, createMouse(MouseEvent.EVENT_MOUSE_MOVED, 0, 4, 4, 0f));
+        enqueue(coalescer, queue, createMouse(MouseEvent.EVENT_MOUSE_DRAGGED, InputEvent.BUTTON1_MASK, 5, 5, 0f));
+        enqueue(coalescer, queue, createMouse(MouseEvent.EVENT_MOUSE_DRAGGED, InputEvent.BUTTON1_MASK, 6, 6, 0f));
+        // not merged into pending runs: different modifier
+        enqueue(coalescer, queue, createMouse(MouseEvent.EVENT_MOUSE_DRAGGED, InputEvent.BUTTON1_MASK | InputEvent.SHIFT_MASK, 7, 7, 0f));
+        Assert.assertEquals(5, queue.size());
+
+        MouseEvent e = (MouseEvent) dequeue(coalescer, queue);
+        Assert.assertEquals(2, e.getX());
+        Assert.assertEquals(2, e.getCoalescedCount());
+        Assert.assertTrue(dequeue(coalescer, queue) instanceof KeyEvent);
+        e = (MouseEvent) dequeue(coalescer, queue);
+        Assert.assertEquals(MouseEvent.EVENT_MOUSE_MOVED, e.getEventType());
+        Assert.assertEquals(4, e.getX());
+        e = (MouseEvent) dequeue(coalescer, queue);
+        Assert.assertEquals(MouseEvent.EVENT_MOUSE_DRAGGED, e.getEventType());
+        Assert.assertEquals(6, e.getX());
+        Assert.assertEquals(2, e.getCoalescedCount());
+        e = (MouseEvent) dequeue(coalescer, queue);
+        Assert.assertEquals(7, e.getX());
+        Assert.assertEquals(1, e.getCoalescedCount());
+        Assert.assertNull(queue.poll());
+    }
+
+    @Test
+    public void test04WindowEventsAndMaxRuns() {
+        final NEWTEventCoalescer coalescer = new NEWTEventCoalescer();
+        final NEWTEventQueue queue = new NEWTEventQueue(64);
+        coalescer.setMode(Window.COALESCE_POINTER);
+        // not enabled for window events
+        enqueue(coalescer, queue, new WindowEvent(WindowEvent.EVENT_WINDOW_RESIZED, source, 1));
+        enqueue(coalescer, queue, new WindowEvent(WindowEvent.EVENT_WINDOW_RESIZED, source, 2));
+        Assert.assertEquals(2, queue.size());
+        queue.clear();
+
+        coalescer.setMode(Window.COALESCE_WINDOW);
+        final int runs = NEWTEventCoalescer.MAX_RUNS + 2;
+        for(int r=0; r<runs; r++) {
+            for(int i=0; i<3; i++) {
+                enqueue(coalescer, queue, new WindowEvent(WindowEvent.EVENT_WINDOW_RESIZED, source, 10*r+i));
+            }
+            enqueue(coalescer, queue, createKey());
+        }
+        // pending runs are limited, further events are enqueued as is
+        Assert.assertEquals(NEWTEventCoalescer.MAX_RUNS * 2 + ( runs - NEWTEventCoalescer.MAX_RUNS ) * 4, queue.size());
+        for(int r=0; r<NEWTEventCoalescer.MAX_RUNS; r++) {
+            final NEWTEvent e = dequeue(coalescer, queue);
+            Assert.assertEquals(WindowEvent.EVENT_WINDOW_RESIZED, e.getEventType());
+            Assert.assertEquals(10*r+2, e.getWhen());
+            Assert.assertTrue(dequeue(coalescer, queue) instanceof KeyEvent);
+        }
+        int count = 0;
+        while( null != dequeue(coalescer, queue) ) {
+            count++;
+        }
+        Assert.assertEquals(( runs - NEWTEventCoalescer.MAX_RUNS ) * 4, count);
+    }
+
+    /** Producer thread enqueues moves at high rate, a slow consumer should not build up a backlog. */
+    @Test
+    public void test05SlowConsumer() throws InterruptedException {
+        final NEWTEventCoalescer coalescer = new NEWTEventCoalescer();
+        final NEWTEventQueue queue = new NEWTEventQueue();
+        coalescer.setMode(Window.COALESCE_POINTER);
+        final int total = 200000;
+        final Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for(int i=1; i<=total; i++) {
+                    enqueue(coalescer, queue, createMouse(MouseEvent.EVENT_MOUSE_MOVED, 0, i, i, 0f));
+                }
+            } }, "Producer");
+        producer.start();
+        int dispatched = 0, samples = 0, maxBacklog = 0, lastX = 0;
+        while( lastX < total ) {
+            maxBacklog = Math.max(maxBacklog, queue.size());
+            final MouseEvent e = (MouseEvent) dequeue(coalescer, queue);
+            if( null == e ) {
+                Thread.yield();
+                continue;
+            }
+            Assert.assertTrue(e.getX() > lastX);
+            lastX = e.getX();
+            samples += e.getCoalescedCount();
+            dispatched++;
+            Thread.sleep(0, 100000); // slow listener
+        }
+        producer.join();
+        System.err.println("Coalesced "+samples+" samples into "+dispatched+" events, max backlog "+maxBacklog);
+        Assert.assertEquals(total, samples);
+        Assert.assertTrue("backlog "+maxBacklog, maxBacklog <= 1);
+    }
+
+    /** A head not consumed is enqueued again as is, like a resize while the window is locked. */
+    @Test
+    public void test06NotConsumed() {
+        final NEWTEventCoalescer coalescer = new NEWTEventCoalescer();
+        final NEWTEventQueue queue = new NEWTEventQueue(16);
+        coalescer.setMode(Window.COALESCE_WINDOW);
+        final WindowEvent head = new WindowEvent(WindowEvent.EVENT_WINDOW_RESIZED, source, 1);
+        enqueue(coalescer, queue, head);
+        enqueue(coalescer, queue, new WindowEvent(WindowEvent.EVENT_WINDOW_RESIZED, source, 2));
+        final WindowEvent latest = new WindowEvent(WindowEvent.EVENT_WINDOW_RESIZED, source, 3);
+        enqueue(coalescer, queue, latest);
+        Assert.assertEquals(1, queue.size());
+
+        // dequeued, not consumed and enqueued again
+        Assert.assertSame(head, queue.poll());
+        Assert.assertSame(latest, coalescer.dequeued(head));
+        queue.put(head);
+
+        // no merge into the dequeued run, following events start a new run
+        final WindowEvent next = new WindowEvent(WindowEvent.EVENT_WINDOW_RESIZED, source, 4);
+        Assert.assertTrue(enqueue(coalescer, queue, next));
+        Assert.assertFalse(enqueue(coalescer, queue, new WindowEvent(WindowEvent.EVENT_WINDOW_RESIZED, source, 5)));
+        Assert.assertEquals(2, queue.size());
+
+        // the head is replaced by the merged event again, w/ its latest timestamp
+        final NEWTEvent e = dequeue(coalescer, queue);
+        Assert.assertSame(latest, e);
+        Assert.assertEquals(3, e.getWhen());
+        Assert.assertEquals(5, dequeue(coalescer, queue).getWhen());
+        Assert.assertNull(queue.poll());
+
+        // all runs released
+        Assert.assertSame(head, coalescer.dequeued(head));
+    }
+
+    public static void main(final String args[]) {
+        org.junit.runner.JUnitCore.main(TestNEWTEventCoalescer01NOUI.class.getName());
+    }
+}
@@ -0,0 +1,346 @@
+/**
+ * Copyright 2015 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.newt.event;
+
+import java.util.ArrayList;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.FixMethodOrder;
+import org.junit.runners.MethodSorters;
+
+import com.jogamp.common.os.Platform;
+import com.jogamp.newt.event.MouseEvent;
+import com.jogamp.newt.event.NEWTEvent;
+import com.jogamp.newt.event.NEWTEventConsumer;
+
+import jogamp.newt.event.NEWTEventQueue;
+import jogamp.newt.event.NEWTEventTask;
+
+/**
+ * Validates the lock-free {@link NEWTEventQueue} used by the NEWT Display,
+ * i.e. FIFO order per producer thread incl. the overflow path, and measures its throughput
+ * against the former synchronized list swapping queue.
+ * Requires no native display.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TestNEWTEventQueue01NOUI {
+
+    /** Event source, consumes events like a NEWT Window. */
+    static class Consumer implements NEWTEventConsumer {
+        final int producerCount;
+        final int[] next;
+        volatile long consumed = 0;
+        volatile String error = null;
+
+        Consumer(final int producerCount) {
+            this.producerCount = producerCount;
+            this.next = new int[producerCount];
+        }
+
+        @Override
+        public boolean consumeEvent(final NEWTEvent event) {
+            final MouseEvent e = (MouseEvent) event;
+            final int p = e.getX();
+            final int seq = e.getY();
+            if( 0 <= p && p < producerCount ) {
+                if( seq != next[p] && null == error ) {
+                    error = "producer "+p+": expected "+next[p]+", has "+seq;
+                }
+                next[p] = seq + 1;
+            }
+            consumed++;
+            return true;
+        }
+    }
+
+    static MouseEvent createEvent(final Object source, final int producer, final int seq) {
+        return new MouseEvent(MouseEvent.EVENT_MOUSE_MOVED, source, 0, 0, producer, seq, (short)0, (short)0, null, 0f);
+    }
+
+    /** Dispatches like DisplayImpl.dispatchMessages(), returns the number of dispatched elements. */
+    static int dispatch(final NEWTEventQueue queue) {
+        int count = 0;
+        for(int n = queue.size(); 0 < n; n--) {
+            final Object e = queue.poll();
+            if( null == e ) {
+                break;
+            }
+            final NEWTEvent event;
+            if( e instanceof NEWTEventTask ) {
+                final NEWTEventTask eTask = (NEWTEventTask) e;
+                event = eTask.get();
+                eTask.notifyCaller();
+            } else {
+                event = (NEWTEvent) e;
+            }
+            ((NEWTEventConsumer)event.getSource()).consumeEvent(event);
+            count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void test01FIFOOverflow() {
+        final NEWTEventQueue queue = new NEWTEventQueue(6);
+        Assert.assertEquals(8, queue.capacity());
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertNull(queue.poll());
+
+        final Consumer consumer = new Consumer(1);
+        final int count = 100;
+        for(int i=0; i<count; i++) {
+            queue.put(createEvent(consumer, 0, i));
+        }
+        Assert.assertEquals(count, queue.size());
+        Assert.assertEquals(count - queue.capacity(), queue.getOverflowCount());
+
+        // partial dispatch, drains the ring buffer first,
+        // producer keeps using the overflow list until it is drained
+        for(int i=0; i<10; i++) {
+            Assert.assertEquals(i, ((MouseEvent)queue.poll()).getY());
+        }
+        queue.put(createEvent(consumer, 0, count));
+        Assert.assertEquals(count - 10 + 1, queue.getOverflowCount());
+        consumer.next[0] = 10;
+        Assert.assertEquals(count - 10 + 1, dispatch(queue));
+        Assert.assertNull(consumer.error, consumer.error);
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertEquals(0, queue.getOverflowCount());
+
+        // ring buffer in use again
+        queue.put(createEvent(consumer, 0, count+1));
+        Assert.assertEquals(0, queue.getOverflowCount());
+        Assert.assertEquals(1, dispatch(queue));
+        Assert.assertNull(consumer.error, consumer.error);
+    }
+
+    @Test
+    public void test02DispatchSnapshot() {
+        // events re-enqueued while dispatching are handled next time
+        final NEWTEventQueue queue = new NEWTEventQueue(4);
+        final int[] calls = { 0 };
+        final NEWTEventConsumer requeue = new NEWTEventConsumer() {
+            @Override
+            public boolean consumeEvent(final NEWTEvent event) {
+                calls[0]++;
+                queue.put(event);
+                return false;
+            } };
+        queue.put(createEvent(requeue, 0, 0));
+        queue.put(createEvent(requeue, 0, 1));
+        Assert.assertEquals(2, dispatch(queue));
+        Assert.assertEquals(2, calls[0]);
+        Assert.assertEquals(2, queue.size());
+        queue.clear();
+        Assert.assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void test03WaitingTasks() throws InterruptedException {
+        final NEWTEventQueue queue = new NEWTEventQueue(16);
+        final Consumer consumer = new Consumer(1);
+        final Object lock = new Object();
+        final NEWTEventTask eTask = new NEWTEventTask(createEvent(consumer, 0, 1), lock);
+        final Thread caller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                synchronized(lock) {
+                    queue.put(eTask);
+                    while( !eTask.isDispatched() ) {
+                        try {
+                            lock.wait();
+                        } catch (final InterruptedException ie) {
+                            return;
+                        }
+                    }
+                }
+            } }, "Caller");
+        queue.put(createEvent(consumer, 0, 0));
+        caller.start();
+        while( 2 > queue.size() ) {
+            Thread.yield();
+        }
+        queue.put(createEvent(consumer, 0, 2));
+        Assert.assertEquals(3, dispatch(queue));
+        caller.join(5000);
+        Assert.assertFalse(caller.isAlive());
+        Assert.assertTrue(eTask.isDispatched());
+        Assert.assertEquals(3, consumer.consumed);
+        Assert.assertNull(consumer.error, consumer.error);
+    }
+
+    /** Producers and consumer running concurrently, small capacity to hit the overflow path. */
+    static long runConcurrent(final NEWTEventQueue queue, final Consumer consumer, final int eventsPerProducer) throws InterruptedException {
+        final int producerCount = consumer.producerCount;
+        final long total = (long)producerCount * eventsPerProducer;
+        final MouseEvent[][] events = new MouseEvent[producerCount][];
+        for(int p=0; p<producerCount; p++) {
+            events[p] = new MouseEvent[eventsPerProducer];
+            for(int i=0; i<eventsPerProducer; i++) {
+                events[p][i] = createEvent(consumer, p, i);
+            }
+        }
+        final Thread[] producers = new Thread[producerCount];
+        for(int p=0; p<producerCount; p++) {
+            final MouseEvent[] pEvents = events[p];
+            producers[p] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for(int i=0; i<pEvents.length; i++) {
+                        queue.put(pEvents[i]);
+                    }
+                } }, "Producer-"+p);
+        }
+        final long t0 = Platform.currentTimeMicros();
+        for(int p=0; p<producerCount; p++) {
+            producers[p].start();
+        }
+        while( consumer.consumed < total ) {
+            if( 0 == dispatch(queue) ) {
+                Thread.yield();
+            }
+        }
+        final long t1 = Platform.currentTimeMicros();
+        for(int p=0; p<producerCount; p++) {
+            producers[p].join();
+        }
+        return t1 - t0;
+    }
+
+    @Test
+    public void test04MultipleProducer() throws InterruptedException {
+        final NEWTEventQueue queue = new NEWTEventQueue(64);
+        final Consumer consumer = new Consumer(4);
+        runConcurrent(queue, consumer, 100000);
+        Assert.assertNull(consumer.error, consumer.error);
+        Assert.assertEquals(400000, consumer.consumed);
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertEquals(0, queue.getOverflowCount());
+    }
+
+    /** Former DisplayImpl queue: synchronized list, swapped per dispatch. */
+    static class SyncListQueue {
+        private final Object lock = new Object();
+        private ArrayList<NEWTEventTask> events = new ArrayList<NEWTEventTask>();
+        private volatile boolean haveEvents = false;
+
+        void put(final NEWTEvent e) {
+            final NEWTEventTask eTask = new NEWTEventTask(e, null);
+            synchronized(lock) {
+                events.add(eTask);
+                haveEvents = true;
+                lock.notifyAll();
+            }
+        }
+        int dispatch() {
+            ArrayList<NEWTEventTask> _events = null;
+            if( haveEvents ) {
+                synchronized(lock) {
+                    if( haveEvents ) {
+                        _events = events;
+                        events = new ArrayList<NEWTEventTask>();
+                        haveEvents = false;
+                    }
+                    lock.notifyAll();
+                }
+            }
+            if( null == _events ) {
+                return 0;
+            }
+            for(int i=0; i<_events.size(); i++) {
+                final NEWTEventTask eTask = _events.get(i);
+                final NEWTEvent event = eTask.get();
+                ((NEWTEventConsumer)event.getSource()).consumeEvent(event);
+                eTask.notifyCaller();
+            }
+            return _events.size();
+        }
+    }
+
+    @Test
+    public void test10Perf() throws InterruptedException {
+        final int producerCount = 2;
+        final int eventsPerProducer = 1000000;
+        final long total = (long)producerCount * eventsPerProducer;
+        final int loops = 3;
+        long tQueue = 0, tSync = 0;
+        for(int l=0; l<=loops; l++) {
+            {
+                final Consumer consumer = new Consumer(producerCount);
+                final long t = runConcurrent(new NEWTEventQueue(), consumer, eventsPerProducer);
+                Assert.assertNull(consumer.error, consumer.error);
+                if( 0 < l ) { // skip warm-up
+                    tQueue += t;
+                }
+            }
+            {
+                final Consumer consumer = new Consumer(producerCount);
+                final SyncListQueue queue = new SyncListQueue();
+                final Thread[] producers = new Thread[producerCount];
+                for(int p=0; p<producerCount; p++) {
+                    final MouseEvent[] pEvents = new MouseEvent[eventsPerProducer];
+                    for(int i=0; i<eventsPerProducer; i++) {
+                        pEvents[i] = createEvent(consumer, p, i);
+                    }
+                    producers[p] = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            for(int i=0; i<pEvents.length; i++) {
+                                queue.put(pEvents[i]);
+                            }
+                        } }, "Producer-"+p);
+                }
+                final long t0 = Platform.currentTimeMicros();
+                for(int p=0; p<producerCount; p++) {
+                    producers[p].start();
+                }
+                while( consumer.consumed < total ) {
+                    if( 0 == queue.dispatch() ) {
+                        Thread.yield();
+                    }
+                }
+                final long t1 = Platform.currentTimeMicros();
+                for(int p=0; p<producerCount; p++) {
+                    producers[p].join();
+                }
+                Assert.assertNull(consumer.error, consumer.error);
+                if( 0 < l ) {
+                    tSync += t1 - t0;
+                }
+            }
+        }
+        System.err.printf("Summary %d events, %d producer, %d threads: lock-free %.2f Mevents/s, synchronized list %.2f Mevents/s%n",
+                total, producerCount, Runtime.getRuntime().availableProcessors(),
+                total * loops / Math.max(1.0, tQueue), total * loops / Math.max(1.0, tSync));
+    }
+
+    public static void main(final String args[]) {
+        org.junit.runner.JUnitCore.main(TestNEWTEventQueue01NOUI.class.getName());
+    }
+}